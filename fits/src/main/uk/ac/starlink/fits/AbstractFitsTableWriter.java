@@ -3,6 +3,8 @@ package uk.ac.starlink.fits;
 import java.io.BufferedOutputStream;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Date;
@@ -89,6 +91,17 @@ public abstract class AbstractFitsTableWriter extends StreamStarTableWriter
         writeStarTables( Tables.singleTableSequence( table ), out );
     }
 
+    /**
+     * Writes a single table to a location.
+     * Invokes {@link #writeStarTables(uk.ac.starlink.table.TableSequence,
+     *                                 java.lang.String,
+     *                                 uk.ac.starlink.table.StarTableOutput)}.
+     */
+    public void writeStarTable( StarTable table, String location,
+                                StarTableOutput sto ) throws IOException {
+        writeStarTables( Tables.singleTableSequence( table ), location, sto );
+    }
+
     /**
      * Writes tables.  Calls {@link #writePrimaryHDU(java.io.DataOutput)}
      * to write the primary HDU.
@@ -98,7 +111,7 @@ public abstract class AbstractFitsTableWriter extends StreamStarTableWriter
      */
     public void writeStarTables( TableSequence tableSeq, OutputStream out )
             throws IOException {
-        DataOutputStream ostrm = new DataOutputStream( out );
+        DataOutputStream ostrm = toDataOutputStream( out );
         writePrimaryHDU( ostrm );
         for ( StarTable table; ( table = tableSeq.nextTable() ) != null; ) {
             writeTableHDU( table, createSerializer( table ), ostrm );
@@ -109,12 +122,18 @@ public abstract class AbstractFitsTableWriter extends StreamStarTableWriter
     /**
      * Invokes {@link #writeStarTables(uk.ac.starlink.table.TableSequence,
                                        java.io.OutputStream)}.
+     * If the location is a regular file, the stream passed on gives access
+     * to the file channel, which allows table data to be written
+     * in parallel.  Other destinations, such as pipes, are written
+     * sequentially.
      */
     public void writeStarTables( TableSequence tableSeq, String location,
                                  StarTableOutput sto ) throws IOException {
         OutputStream out = sto.getOutputStream( location );
         try {
-            out = new BufferedOutputStream( out );
+            out = isPositionable( out, location )
+                ? new ChannelDataOutput( (FileOutputStream) out )
+                : new BufferedOutputStream( out );
             writeStarTables( tableSeq, out );
             out.flush();
         }
@@ -123,6 +142,34 @@ public abstract class AbstractFitsTableWriter extends StreamStarTableWriter
         }
     }
 
+    /**
+     * Indicates whether an output stream writes to a regular file
+     * whose channel can be positioned, so that positional writes
+     * can be used.  A FileOutputStream may also write to a FIFO
+     * or a device such as /dev/stdout, which does not support seeks.
+     *
+     * @param  out  output stream
+     * @param  location  location to which <code>out</code> writes
+     * @return  true iff <code>out</code> can be written using
+     *          positional writes
+     */
+    private static boolean isPositionable( OutputStream out,
+                                           String location ) {
+        if ( out instanceof FileOutputStream &&
+             new File( location ).isFile() ) {
+            try {
+                ((FileOutputStream) out).getChannel().position();
+                return true;
+            }
+            catch ( IOException e ) {
+                return false;
+            }
+        }
+        else {
+            return false;
+        }
+    }
+
     /**
      * Writes the primary HDU.  This cannot contain a table since BINTABLE
      * HDUs can only be extensions.
@@ -156,6 +203,22 @@ public abstract class AbstractFitsTableWriter extends StreamStarTableWriter
         fitser.writeData( out );
     }
 
+    /**
+     * Returns a DataOutputStream which writes to a given output stream.
+     * Subclasses overriding {@link #writeStarTables(TableSequence,
+     * OutputStream)} should use this method to prepare the output,
+     * since if the supplied stream is already a DataOutputStream it is
+     * used directly, which preserves the possibility of
+     * writing to a file in parallel.
+     *
+     * @param  out  output stream
+     * @return  data output stream writing to <code>out</code>
+     */
+    protected static DataOutputStream toDataOutputStream( OutputStream out ) {
+        return out instanceof DataOutputStream ? (DataOutputStream) out
+                                               : new DataOutputStream( out );
+    }
+
     /**
      * Provides a suitable serializer for a given table.
      * Note this should throw an IOException if it can be determined that
@@ -0,0 +1,138 @@
+package uk.ac.starlink.fits;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import uk.ac.starlink.util.BgzfIndex;
+
+/**
+ * Random-access BasicInput implementation that reads the uncompressed
+ * content of a BGZF-format gzipped file.
+ * Blocks are read from the file and inflated as required,
+ * with the help of an index of block offsets.
+ * The most recently used block is kept.
+ *
+ * <p>The file channel is only accessed using positional reads,
+ * so multiple instances may share the same channel,
+ * but an instance of this class should not be used from multiple threads.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+class BgzfInput implements BasicInput {
+
+    private final FileChannel chan_;
+    private final BgzfIndex index_;
+    private final long offset_;
+    private final long leng_;
+    private final ByteBuffer scratch_;
+    private long pos_;
+    private ByteBuffer buf_;
+    private long bufStart_;
+
+    /**
+     * Constructor.
+     *
+     * @param  chan  channel for BGZF file
+     * @param  index  block index for file
+     * @param  offset  offset into the uncompressed stream of input start
+     * @param  leng   number of uncompressed bytes in input
+     */
+    public BgzfInput( FileChannel chan, BgzfIndex index,
+                      long offset, long leng ) {
+        chan_ = chan;
+        index_ = index;
+        offset_ = offset;
+        leng_ = leng;
+        scratch_ = ByteBuffer.allocate( 8 );
+    }
+
+    public boolean isRandom() {
+        return true;
+    }
+
+    public void seek( long pos ) throws EOFException {
+        if ( pos < 0 || pos > leng_ ) {
+            throw new EOFException( "Out of bounds: " + pos );
+        }
+        pos_ = pos;
+    }
+
+    public long getOffset() {
+        return pos_;
+    }
+
+    public void skip( long nbyte ) throws IOException {
+        seek( pos_ + nbyte );
+    }
+
+    public byte readByte() throws IOException {
+        return buffer( 1 ).get();
+    }
+
+    public short readShort() throws IOException {
+        return buffer( 2 ).getShort();
+    }
+
+    public int readInt() throws IOException {
+        return buffer( 4 ).getInt();
+    }
+
+    public long readLong() throws IOException {
+        return buffer( 8 ).getLong();
+    }
+
+    public float readFloat() throws IOException {
+        return buffer( 4 ).getFloat();
+    }
+
+    public double readDouble() throws IOException {
+        return buffer( 8 ).getDouble();
+    }
+
+    public void close() {
+        buf_ = null;
+    }
+
+    /**
+     * Returns a buffer positioned so that the next few bytes read from it
+     * are those at the current position of this input,
+     * and advances the current position.
+     *
+     * @param  nbyte  number of bytes that will be read (no more than 8)
+     * @return  buffer ready for reading
+     */
+    private ByteBuffer buffer( int nbyte ) throws IOException {
+        if ( pos_ + nbyte > leng_ ) {
+            throw new EOFException();
+        }
+        long upos = offset_ + pos_;
+        if ( buf_ == null || upos < bufStart_ ||
+             upos >= bufStart_ + buf_.limit() ) {
+            int iblock = index_.getBlockIndex( upos );
+            if ( iblock < 0 ) {
+                throw new EOFException();
+            }
+            buf_ = ByteBuffer.wrap( index_.readBlock( chan_, iblock ) );
+            bufStart_ = index_.getUncompressedOffset( iblock );
+        }
+        buf_.position( (int) ( upos - bufStart_ ) );
+        if ( buf_.remaining() >= nbyte ) {
+            pos_ += nbyte;
+            return buf_;
+        }
+
+        /* Value straddles a block boundary. */
+        else {
+            byte[] bytes = new byte[ nbyte ];
+            for ( int i = 0; i < nbyte; i++ ) {
+                bytes[ i ] = readByte();
+            }
+            scratch_.clear();
+            scratch_.put( bytes );
+            scratch_.flip();
+            return scratch_;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -13,12 +14,16 @@ import nom.tam.fits.FitsException;
 import nom.tam.fits.Header;
 import uk.ac.starlink.table.AbstractStarTable;
 import uk.ac.starlink.table.ColumnInfo;
+import uk.ac.starlink.table.ColumnProjectable;
 import uk.ac.starlink.table.DefaultValueInfo;
 import uk.ac.starlink.table.DescribedValue;
+import uk.ac.starlink.table.RandomRowSplittable;
 import uk.ac.starlink.table.RowSequence;
+import uk.ac.starlink.table.RowSplittable;
 import uk.ac.starlink.table.TableSink;
 import uk.ac.starlink.table.Tables;
 import uk.ac.starlink.table.ValueInfo;
+import uk.ac.starlink.table.storage.PrimitiveColumnAccess;
 
 /**
  * An implementation of the StarTable interface which uses a FITS BINTABLE
@@ -28,6 +33,20 @@ import uk.ac.starlink.table.ValueInfo;
  * <p>The implementation varies according to whether random or sequential-only
  * access is provided by the underlying data access.
  * A factory method is provided to create an appropriate instance.
+ * In the random-access case, the {@link #getRowSplittable} method
+ * returns an object which can be split into disjoint row ranges,
+ * each read using its own input object (for instance its own
+ * mapped view of the file), so that the table can be scanned
+ * by several threads at once.
+ *
+ * <p>This class implements {@link ColumnProjectable}, so that when only
+ * some columns are required, the bytes of the others are skipped
+ * rather than decoded.
+ *
+ * <p>Random-access instances also implement
+ * {@link uk.ac.starlink.table.storage.PrimitiveColumnAccess},
+ * so that runs of values from numeric scalar columns can be read
+ * into primitive arrays without creating an object for each cell.
  *
  * <p>Some instances of this class hang on to file descriptors.
  * If you are in danger of running out of that resource before
@@ -38,7 +57,8 @@ import uk.ac.starlink.table.ValueInfo;
  * @author   Mark Taylor
  */
 public abstract class BintableStarTable extends AbstractStarTable
-                                        implements Closeable {
+                                        implements Closeable,
+                                                   ColumnProjectable {
 
     private final int ncol_;
     private final long nrow_;
@@ -88,6 +108,9 @@ public abstract class BintableStarTable extends AbstractStarTable
         TNULL_INFO, TSCAL_INFO, TZERO_INFO, TDISP_INFO, TBCOL_INFO, TFORM_INFO,
     };
 
+    /** Approximate number of bytes decoded at once in bulk reads. */
+    private static final int BLOCK_BYTES = 1024 * 1024;
+
     /** BigInteger equal to 2^63 (== Long.MAX_VALUE + 1). */
     static final BigInteger TWO63 = BigInteger.ONE.shiftLeft( 63 );
 
@@ -383,6 +406,16 @@ public abstract class BintableStarTable extends AbstractStarTable
         return Arrays.asList( AUX_DATA_INFOS );
     }
 
+    /**
+     * Returns the block decoder for a given column.
+     *
+     * @param  icol  column index
+     * @return  block decoder, or null if not available
+     */
+    ColumnReader.BlockDecoder getBlockDecoder( int icol ) {
+        return colReaders_[ icol ].getBlockDecoder();
+    }
+
     /**
      * Reads a cell from a given column from the current position in
      * a stream.
@@ -412,6 +445,38 @@ public abstract class BintableStarTable extends AbstractStarTable
         return row;
     }
 
+    /**
+     * Reads the selected cells of a row from the current position
+     * in a stream, skipping the bytes of the other columns.
+     *
+     * @param  stream a stream containing the byte data, positioned to
+     *                the start of a row
+     * @param  proj   column selection
+     * @param  toEnd  if true, the stream is left positioned at the end of
+     *                the row; if false, it is left wherever the last
+     *                selected cell ends
+     * @return  <tt>ncol</tt>-element array of cells for this row,
+     *          with null elements for unselected columns
+     */
+    Object[] readProjectedRow( BasicInput stream, Projection proj,
+                               boolean toEnd )
+            throws IOException {
+        Object[] row = new Object[ ncol_ ];
+        int[] icols = proj.icols_;
+        int[] skips = proj.skips_;
+        for ( int i = 0; i < icols.length; i++ ) {
+            if ( skips[ i ] > 0 ) {
+                stream.skip( skips[ i ] );
+            }
+            int icol = icols[ i ];
+            row[ icol ] = colReaders_[ icol ].readValue( stream );
+        }
+        if ( toEnd && proj.tailSkip_ > 0 ) {
+            stream.skip( proj.tailSkip_ );
+        }
+        return row;
+    }
+
     /**
      * Returns the number of bytes occupied in the data stream by a single
      * row of the table.  This is equal to the sum of the column offsets array.
@@ -527,6 +592,22 @@ public abstract class BintableStarTable extends AbstractStarTable
         }
 
         public RowSequence getRowSequence() throws IOException {
+            return createRowSequence( null );
+        }
+
+        public RowSequence getProjectedRowSequence( boolean[] colFlags )
+                throws IOException {
+            return createRowSequence( new Projection( this, colFlags ) );
+        }
+
+        /**
+         * Returns a row sequence which reads some or all columns.
+         *
+         * @param  proj  column selection, or null for all columns
+         * @return  new row sequence
+         */
+        private RowSequence createRowSequence( final Projection proj )
+                throws IOException {
             final BasicInput input = inputFact_.createInput( true );
             final Object[] beforeStart = new Object[ 0 ];
             final long nrow = getRowCount();
@@ -563,7 +644,9 @@ public abstract class BintableStarTable extends AbstractStarTable
                             input.skip( nskip_ );
                             nskip_ = 0;
                         }
-                        row_ = readRow( input );
+                        row_ = proj == null
+                             ? readRow( input )
+                             : readProjectedRow( input, proj, true );
                     }
                     return row_;
                 }
@@ -585,8 +668,12 @@ public abstract class BintableStarTable extends AbstractStarTable
 
     /**
      * Random-access BintableStarTable concrete subclass.
+     * Numeric scalar columns can be read in bulk using the
+     * PrimitiveColumnAccess methods.
      */
-    private static class RandomBintableStarTable extends BintableStarTable {
+    private static class RandomBintableStarTable
+            extends BintableStarTable
+            implements PrimitiveColumnAccess {
         private final InputFactory inputFact_;
         private final BasicInputThreadLocal randomInputThreadLocal_;
         private final int rowLength_;
@@ -633,6 +720,22 @@ public abstract class BintableStarTable extends AbstractStarTable
         }
 
         public RowSequence getRowSequence() throws IOException {
+            return createRowSequence( null );
+        }
+
+        public RowSequence getProjectedRowSequence( boolean[] colFlags )
+                throws IOException {
+            return createRowSequence( new Projection( this, colFlags ) );
+        }
+
+        /**
+         * Returns a row sequence which reads some or all columns.
+         *
+         * @param  proj  column selection, or null for all columns
+         * @return  new row sequence
+         */
+        private RowSequence createRowSequence( final Projection proj )
+                throws IOException {
             final BasicInput input = inputFact_.createInput( true );
             assert input.isRandom();
             final long endPos = getRowCount() * rowLength_;
@@ -654,7 +757,9 @@ public abstract class BintableStarTable extends AbstractStarTable
                 public Object[] getRow() throws IOException {
                     if ( pos >= 0 && pos < endPos ) {
                         input.seek( pos );
-                        return readRow( input );
+                        return proj == null
+                             ? readRow( input )
+                             : readProjectedRow( input, proj, false );
                     }
                     else {
                         throw new IllegalStateException();
@@ -666,9 +771,279 @@ public abstract class BintableStarTable extends AbstractStarTable
             };
         }
 
+        public RowSplittable getRowSplittable() {
+            return new BintableRowSplittable( this, 0, getRowCount() );
+        }
+
+        public boolean isCellAccessEfficient() {
+
+            /* Reading a single value needs a seek and a decode into
+             * a temporary array, which costs more than reading the cell
+             * as an object. */
+            return false;
+        }
+
+        public Class getPrimitiveClass( int icol ) {
+            if ( getBlockDecoder( icol ) == null ) {
+                return null;
+            }
+            Class clazz = getColumnInfo( icol ).getContentClass();
+            if ( clazz == Double.class ) {
+                return double.class;
+            }
+            else if ( clazz == Float.class ) {
+                return float.class;
+            }
+            else if ( clazz == Long.class ) {
+                return long.class;
+            }
+            else if ( clazz == Integer.class ) {
+                return int.class;
+            }
+            else if ( clazz == Short.class ) {
+                return short.class;
+            }
+            else if ( clazz == Byte.class ) {
+                return byte.class;
+            }
+            else {
+                return null;
+            }
+        }
+
+        /**
+         * Reads the values from a run of rows in a numeric scalar column.
+         * When the data is mapped, values are decoded in bulk directly
+         * from the mapped buffer, with scaling and blank values applied
+         * in a tight loop, so this is much cheaper than reading cells
+         * one by one.
+         */
+        public void readDoubles( int icol, long irow, double[] dest, int off,
+                                 int n )
+                throws IOException {
+            ColumnReader.BlockDecoder decoder = getBlockDecoder( icol );
+            if ( decoder == null ) {
+                throw new UnsupportedOperationException( "Can't read column "
+                                                       + icol + " as doubles" );
+            }
+            checkRows( irow, n );
+            BasicInput input = randomInputThreadLocal_.get();
+            int chunk = Math.max( 1, BLOCK_BYTES / Math.max( 1, rowLength_ ) );
+            for ( int i = 0; i < n; ) {
+                int nr = Math.min( chunk, n - i );
+                input.seek( ( irow + i ) * rowLength_ + colOffsets_[ icol ] );
+                int count = ( nr - 1 ) * rowLength_ + decoder.getWidth();
+                ByteBuffer buf = null;
+                if ( input instanceof SimpleMappedInput ) {
+                    buf = ((SimpleMappedInput) input).readBuffer( count );
+                }
+                else if ( input instanceof BlockMappedInput ) {
+                    buf = ((BlockMappedInput) input).readBuffer( count );
+                }
+
+                /* Decode directly from mapped data if possible. */
+                if ( buf != null ) {
+                    decoder.decodeDoubles( buf, buf.position(), rowLength_,
+                                           nr, dest, off + i );
+                }
+
+                /* Otherwise fall back to reading cell by cell. */
+                else {
+                    for ( int j = 0; j < nr; j++ ) {
+                        Object value = getCell( irow + i + j, icol );
+                        dest[ off + i + j ] = value instanceof Number
+                                            ? ((Number) value).doubleValue()
+                                            : Double.NaN;
+                    }
+                }
+                i += nr;
+            }
+        }
+
+        public void readLongs( int icol, long irow, long[] dest, int off,
+                               int n )
+                throws IOException {
+            Class pclazz = getPrimitiveClass( icol );
+            checkRows( irow, n );
+
+            /* Long values may not survive conversion to double,
+             * so read them cell by cell. */
+            if ( pclazz == long.class ) {
+                for ( int i = 0; i < n; i++ ) {
+                    Object value = getCell( irow + i, icol );
+                    dest[ off + i ] = value instanceof Number
+                                    ? ((Number) value).longValue()
+                                    : 0L;
+                }
+            }
+
+            /* Smaller integer values are represented exactly as doubles. */
+            else if ( pclazz == int.class || pclazz == short.class ||
+                      pclazz == byte.class ) {
+                double[] dvals = new double[ n ];
+                readDoubles( icol, irow, dvals, 0, n );
+                for ( int i = 0; i < n; i++ ) {
+                    double dval = dvals[ i ];
+                    dest[ off + i ] = Double.isNaN( dval ) ? 0L : (long) dval;
+                }
+            }
+            else {
+                throw new UnsupportedOperationException( "Can't read column "
+                                                       + icol + " as longs" );
+            }
+        }
+
+        public void readBooleans( int icol, long irow, boolean[] dest,
+                                  int off, int n ) {
+            throw new UnsupportedOperationException( "Can't read column "
+                                                   + icol + " as booleans" );
+        }
+
+        public void readBlanks( int icol, long irow, boolean[] dest, int off,
+                                int n )
+                throws IOException {
+            Class pclazz = getPrimitiveClass( icol );
+            checkRows( irow, n );
+            if ( pclazz == long.class ) {
+                for ( int i = 0; i < n; i++ ) {
+                    dest[ off + i ] = getCell( irow + i, icol ) == null;
+                }
+            }
+            else {
+                double[] dvals = new double[ n ];
+                readDoubles( icol, irow, dvals, 0, n );
+                for ( int i = 0; i < n; i++ ) {
+                    dest[ off + i ] = Double.isNaN( dvals[ i ] );
+                }
+            }
+        }
+
+        /**
+         * Checks that a run of rows lies within this table.
+         *
+         * @param  irow  index of first row
+         * @param  n   number of rows
+         * @throws  IllegalArgumentException  if the rows are out of range
+         */
+        private void checkRows( long irow, int n ) {
+            if ( irow < 0 || n < 0 || irow + n > getRowCount() ) {
+                throw new IllegalArgumentException( "Rows out of range" );
+            }
+        }
+
         public void close() throws IOException {
             randomInputThreadLocal_.close();
             inputFact_.close();
         }
     }
+
+    /**
+     * RowSplittable for a random-access table, in which each part
+     * reads its rows using a BasicInput of its own.
+     * The input is only created when the first cell is read,
+     * so that a splittable which is split further does not acquire
+     * resources it does not use.
+     */
+    private static class BintableRowSplittable extends RandomRowSplittable {
+        private final RandomBintableStarTable table_;
+        private BasicInput input_;
+
+        /**
+         * Constructor.
+         *
+         * @param  table  table
+         * @param  start  index of first row covered (inclusive)
+         * @param  end    index after last row covered (exclusive)
+         */
+        BintableRowSplittable( RandomBintableStarTable table,
+                               long start, long end ) {
+            super( table, start, end );
+            table_ = table;
+        }
+
+        public Object getCell( int icol ) throws IOException {
+            BasicInput input = getInput();
+            input.seek( checkedRowIndex() * table_.rowLength_
+                      + table_.colOffsets_[ icol ] );
+            return table_.readCell( input, icol );
+        }
+
+        public Object[] getRow() throws IOException {
+            BasicInput input = getInput();
+            long pos = checkedRowIndex() * table_.rowLength_;
+
+            /* Avoid the seek if the input is already in the right place,
+             * which is usually the case for sequential reads. */
+            if ( input.getOffset() != pos ) {
+                input.seek( pos );
+            }
+            return table_.readRow( input );
+        }
+
+        public void close() throws IOException {
+            if ( input_ != null ) {
+                input_.close();
+                input_ = null;
+            }
+        }
+
+        protected RowSplittable createSplittable( long start, long end ) {
+            return new BintableRowSplittable( table_, start, end );
+        }
+
+        /**
+         * Returns the input object used by this splittable,
+         * creating it if necessary.
+         *
+         * @return  random-access input
+         */
+        private BasicInput getInput() throws IOException {
+            if ( input_ == null ) {
+                input_ = table_.inputFact_.createInput( true );
+                assert input_.isRandom();
+            }
+            return input_;
+        }
+    }
+
+    /**
+     * Describes which columns of a row are to be read,
+     * and how many bytes to skip before each of them.
+     */
+    private static class Projection {
+        final int[] icols_;
+        final int[] skips_;
+        final int tailSkip_;
+
+        /**
+         * Constructor.
+         *
+         * @param  table  table
+         * @param  colFlags  per-column flags, true for columns to read
+         */
+        Projection( BintableStarTable table, boolean[] colFlags ) {
+            int ncol = table.ncol_;
+            int[] offsets = table.colOffsets_;
+            int nsel = 0;
+            for ( int icol = 0; icol < ncol; icol++ ) {
+                if ( colFlags[ icol ] ) {
+                    nsel++;
+                }
+            }
+            icols_ = new int[ nsel ];
+            skips_ = new int[ nsel ];
+            int pos = 0;
+            int isel = 0;
+            for ( int icol = 0; icol < ncol; icol++ ) {
+                if ( colFlags[ icol ] ) {
+                    icols_[ isel ] = icol;
+                    skips_[ isel ] = offsets[ icol ] - pos;
+                    pos = offsets[ icol ]
+                        + table.colReaders_[ icol ].getLength();
+                    isel++;
+                }
+            }
+            tailSkip_ = Math.max( 0, table.rowLength_ - pos );
+        }
+    }
 }
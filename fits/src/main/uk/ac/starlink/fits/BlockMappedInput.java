@@ -206,6 +206,27 @@ public abstract class BlockMappedInput implements BasicInput {
         seek( getOffset() + nbyte );
     }
 
+    /**
+     * Returns a buffer giving bulk access to a given number of bytes
+     * starting at the current position, and advances the position
+     * past them.  The bytes start at the returned buffer's position.
+     * Usually the result is a view of a mapped block, but if the
+     * bytes straddle blocks it is a copy.
+     *
+     * @param  count  number of bytes required
+     * @return  buffer containing at least count bytes
+     */
+    ByteBuffer readBuffer( int count ) throws IOException {
+        ByteBuffer buf = buffer_.remaining() >= count
+                       ? buffer_
+                       : getAssuredBuffer( count );
+        if ( buf == buffer_ ) {
+            buf = buffer_.slice();
+            buffer_.position( buffer_.position() + count );
+        }
+        return buf;
+    }
+
     /**
      * Returns the number of mapped blocks used.
      *
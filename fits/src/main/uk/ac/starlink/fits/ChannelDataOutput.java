@@ -0,0 +1,46 @@
+package uk.ac.starlink.fits;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * DataOutputStream which writes to a file, and which also provides
+ * access to the underlying file channel.
+ * Serializers that recognise this class can use positional writes
+ * to the channel, for instance to write parts of the output in parallel.
+ * Before doing that they must {@link #flush} this stream,
+ * and afterwards they must position the channel at the end of
+ * the data they have written.
+ *
+ * <p>The file output stream should not be opened in append mode,
+ * since positional writes do not behave predictably in that case.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+class ChannelDataOutput extends DataOutputStream {
+
+    private final FileChannel chan_;
+
+    /**
+     * Constructor.
+     *
+     * @param  out  output stream for a file opened in non-append mode
+     */
+    public ChannelDataOutput( FileOutputStream out ) {
+        super( new BufferedOutputStream( out ) );
+        chan_ = out.getChannel();
+    }
+
+    /**
+     * Returns the channel to which this stream writes.
+     *
+     * @return  file channel
+     */
+    public FileChannel getChannel() {
+        return chan_;
+    }
+}
@@ -5,17 +5,29 @@ import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 import nom.tam.fits.Header;
 import uk.ac.starlink.table.AbstractStarTable;
 import uk.ac.starlink.table.ColumnInfo;
+import uk.ac.starlink.table.ColumnProjectable;
+import uk.ac.starlink.table.RowRunner;
 import uk.ac.starlink.table.RowSequence;
 import uk.ac.starlink.table.TableFormatException;
 import uk.ac.starlink.table.Tables;
 import uk.ac.starlink.util.Compression;
+import uk.ac.starlink.util.DaemonThreadFactory;
 import uk.ac.starlink.util.DataSource;
 import uk.ac.starlink.util.FileDataSource;
+import uk.ac.starlink.util.FutureUtils;
 import uk.ac.starlink.util.Loader;
 
 /**             
@@ -23,6 +35,12 @@ import uk.ac.starlink.util.Loader;
  * data for an entire column in each cell of the table.
  * The BINTABLE must be the first extension of a FITS file.
  *
+ * <p>This class implements {@link ColumnProjectable}.
+ * Since each column is stored separately, a projected row sequence
+ * only touches the data for the selected columns, and if several columns
+ * are selected, their values are read in batches, with the columns
+ * shared between several concurrent tasks.
+ *
  * <p>Some instances of this class hang on to file descriptors.
  * If you are in danger of running out of that resource before
  * insstances are garbage collected, you can call the {@link #close}
@@ -32,7 +50,8 @@ import uk.ac.starlink.util.Loader;
  * @author   Mark Taylor
  * @since    21 Jun 2006
  */
-public class ColFitsStarTable extends AbstractStarTable implements Closeable {
+public class ColFitsStarTable extends AbstractStarTable
+                              implements Closeable, ColumnProjectable {
 
     private final int ncol_;
     private final long nrow_;
@@ -40,6 +59,11 @@ public class ColFitsStarTable extends AbstractStarTable implements Closeable {
     private final InputFactory[] inputFacts_;
     private final ColumnReader[] randomColReaders_;
     private final Closeable closer_;
+    private RowRunner rowRunner_;
+
+    /** Number of rows read at a time by parallel row sequences. */
+    private static final int BATCH_ROWS = 4096;
+    private static ExecutorService executor_;
 
     private final static Logger logger_ =
         Logger.getLogger( "uk.ac.starlink.fits" );
@@ -71,6 +95,8 @@ public class ColFitsStarTable extends AbstractStarTable implements Closeable {
             throw new TableFormatException( "Doesn't have exactly one row" );
         }
 
+        rowRunner_ = RowRunner.DEFAULT;
+
         /* Find the number of columns. */
         int ncolStd = cards.getIntValue( "TFIELDS" ).intValue();
         ncol_ = wide == null
@@ -302,6 +328,29 @@ public class ColFitsStarTable extends AbstractStarTable implements Closeable {
         }
     }
 
+    /**
+     * Sets the row runner which determines how many threads are used
+     * to read columns for projected row sequences.
+     * Only its thread count is used, since work is divided by column.
+     * A runner with a single thread, or null, means that
+     * all reading is done sequentially.
+     * The default is {@link uk.ac.starlink.table.RowRunner#DEFAULT}.
+     *
+     * @param  rowRunner  row runner, or null
+     */
+    public void setRowRunner( RowRunner rowRunner ) {
+        rowRunner_ = rowRunner;
+    }
+
+    /**
+     * Returns the row runner which determines the number of threads used.
+     *
+     * @return  row runner, may be null
+     */
+    public RowRunner getRowRunner() {
+        return rowRunner_;
+    }
+
     public int getColumnCount() {
         return ncol_;
     }
@@ -341,13 +390,108 @@ public class ColFitsStarTable extends AbstractStarTable implements Closeable {
     }
 
     public RowSequence getRowSequence() throws IOException {
-        return new ColFitsRowSequence();
+        return new ColFitsRowSequence( null );
+    }
+
+    public RowSequence getProjectedRowSequence( boolean[] colFlags )
+            throws IOException {
+        int nsel = 0;
+        for ( int icol = 0; icol < ncol_; icol++ ) {
+            if ( colFlags[ icol ] ) {
+                nsel++;
+            }
+        }
+        int nthread = rowRunner_ == null
+                    ? 1
+                    : Math.min( nsel, rowRunner_.getThreadCount() );
+        return nthread > 1
+             ? new ParallelColFitsRowSequence( colFlags, nthread )
+             : new ColFitsRowSequence( colFlags );
     }
 
     public void close() throws IOException {
         closer_.close();
     }
 
+    /**
+     * Returns the executor service used for concurrent reading and
+     * writing of column data.  Its threads are daemons, and expire
+     * when idle.  Callers limit the concurrency they use
+     * by the number of tasks they submit at once.
+     *
+     * @return  executor
+     */
+    static synchronized ExecutorService getExecutor() {
+        if ( executor_ == null ) {
+            executor_ = Executors
+                       .newCachedThreadPool( new DaemonThreadFactory(
+                                                 "ColFits" ) );
+        }
+        return executor_;
+    }
+
+    /**
+     * Submits tasks for execution by the column data executor.
+     *
+     * @param  tasks  tasks
+     * @return  futures corresponding to the submitted tasks
+     */
+    static <T> List<Future<T>> submitTasks( List<? extends Callable<T>>
+                                            tasks ) {
+        ExecutorService executor = getExecutor();
+        List<Future<T>> futures = new ArrayList<Future<T>>( tasks.size() );
+        for ( Callable<T> task : tasks ) {
+            futures.add( executor.submit( task ) );
+        }
+        return futures;
+    }
+
+    /**
+     * Waits for a list of futures to complete and returns their results,
+     * rethrowing the first error encountered.
+     * All the futures are complete or cancelled when this method returns,
+     * even if it fails.
+     * Waiting for a task's result establishes a happens-before
+     * relationship, so a column store or input used by one task
+     * may safely be used by a later task on a different thread.
+     *
+     * @param  futures  futures
+     * @return  results, in order
+     */
+    static <T> List<T> getResults( List<Future<T>> futures )
+            throws IOException {
+        List<T> results = new ArrayList<T>( futures.size() );
+        boolean done = false;
+        try {
+            for ( Future<T> future : futures ) {
+                results.add( FutureUtils.getResult( future ) );
+            }
+            done = true;
+            return results;
+        }
+        finally {
+            if ( ! done ) {
+                for ( Future<T> future : futures ) {
+                    future.cancel( false );
+                }
+                for ( Future<T> future : futures ) {
+                    try {
+                        future.get();
+                    }
+                    catch ( InterruptedException e ) {
+                        Thread.currentThread().interrupt();
+                    }
+                    catch ( ExecutionException e ) {
+                        // already reported, or secondary
+                    }
+                    catch ( CancellationException e ) {
+                        // fine
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Parse the content of a FITS TDIMnn header card.
      * This has the form (a,b,c,..), where a, b, c are integer values.
@@ -738,10 +882,31 @@ public class ColFitsStarTable extends AbstractStarTable implements Closeable {
         throw new IOException( "Unknown TFORM character '" + formatChar + "'" );
     }
 
+    /**
+     * Returns a column reader for sequential reads of a given column.
+     *
+     * @param  icol  column index
+     * @return  new reader, which should be closed after use
+     */
+    private ColumnReader createSequentialColumnReader( int icol )
+            throws IOException {
+        final BasicInput input = inputFacts_[ icol ].createInput( true );
+        return new ColumnReader( valReaders_[ icol ] ) {
+            protected BasicInput getInput() {
+                return input;
+            }
+            public void close() throws IOException {
+                input.close();
+            }
+        };
+    }
+
     /**
      * RowSequence implementation for this table.
+     * Column values are only read when requested.
      */
     private class ColFitsRowSequence implements RowSequence {
+        private final boolean[] colFlags_;
         private final ColumnReader[] seqColReaders_;
         private final long[] cursors_;
         private final Object[] lastValues_;
@@ -749,22 +914,19 @@ public class ColFitsStarTable extends AbstractStarTable implements Closeable {
 
         /**
          * Constructor.
+         *
+         * @param  colFlags  flags for columns which may be read,
+         *                   or null for all columns
          */
-        ColFitsRowSequence() throws IOException {
+        ColFitsRowSequence( boolean[] colFlags ) throws IOException {
+            colFlags_ = colFlags;
             seqColReaders_ = new ColumnReader[ ncol_ ];
             cursors_ = new long[ ncol_ ];
             for ( int icol = 0; icol < ncol_; icol++ ) {
-                final BasicInput input =
-                    inputFacts_[ icol ].createInput( true );
-                seqColReaders_[ icol ] =
-                        new ColumnReader( valReaders_[ icol ] ) {
-                    protected BasicInput getInput() {
-                        return input;
-                    }
-                    public void close() throws IOException {
-                        input.close();
-                    }
-                };
+                if ( colFlags == null || colFlags[ icol ] ) {
+                    seqColReaders_[ icol ] =
+                        createSequentialColumnReader( icol );
+                }
                 cursors_[ icol ] = -1;
             }
             lastValues_ = new Object[ ncol_ ];
@@ -794,14 +956,159 @@ public class ColFitsStarTable extends AbstractStarTable implements Closeable {
         public Object[] getRow() throws IOException {
             Object[] row = new Object[ ncol_ ];
             for ( int icol = 0; icol < ncol_; icol++ ) {
-                row[ icol ] = getCell( icol );
+                if ( colFlags_ == null || colFlags_[ icol ] ) {
+                    row[ icol ] = getCell( icol );
+                }
             }
             return row;
         }
 
         public void close() throws IOException {
             for ( ColumnReader colReader : seqColReaders_ ) {
-                colReader.close();
+                if ( colReader != null ) {
+                    colReader.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * RowSequence implementation which reads the values of selected columns
+     * in batches of rows, using a given number of concurrent tasks,
+     * each of which looks after a subset of the columns.
+     * The next batch is read while the current one is being consumed.
+     */
+    private class ParallelColFitsRowSequence implements RowSequence {
+        private final int[] icols_;
+        private final int[] jcols_;
+        private final ColumnReader[] colReaders_;
+        private final int[][] jcolGroups_;
+        private long nextBatchStart_;
+        private List<Future<Object>> pending_;
+        private Object[][] nextBatch_;
+        private Object[][] batch_;
+        private long batchStart_;
+        private long irow_;
+
+        /**
+         * Constructor.
+         *
+         * @param  colFlags  flags for columns to read
+         * @param  nthread   number of concurrent tasks
+         */
+        ParallelColFitsRowSequence( boolean[] colFlags, int nthread )
+                throws IOException {
+            jcols_ = new int[ ncol_ ];
+            List<Integer> icolList = new ArrayList<Integer>();
+            for ( int icol = 0; icol < ncol_; icol++ ) {
+                jcols_[ icol ] = colFlags[ icol ] ? icolList.size() : -1;
+                if ( colFlags[ icol ] ) {
+                    icolList.add( new Integer( icol ) );
+                }
+            }
+            int nsel = icolList.size();
+            icols_ = new int[ nsel ];
+            colReaders_ = new ColumnReader[ nsel ];
+            for ( int j = 0; j < nsel; j++ ) {
+                icols_[ j ] = icolList.get( j ).intValue();
+                colReaders_[ j ] = createSequentialColumnReader( icols_[ j ] );
+            }
+
+            /* Assign columns to tasks in rotation. */
+            jcolGroups_ = new int[ nthread ][];
+            for ( int ig = 0; ig < nthread; ig++ ) {
+                jcolGroups_[ ig ] = new int[ ( nsel - ig + nthread - 1 )
+                                             / nthread ];
+            }
+            for ( int j = 0; j < nsel; j++ ) {
+                jcolGroups_[ j % nthread ][ j / nthread ] = j;
+            }
+            irow_ = -1;
+            batchStart_ = 0;
+            batch_ = new Object[ nsel ][ 0 ];
+            submitBatch();
+        }
+
+        public boolean next() throws IOException {
+            if ( irow_ + 1 >= nrow_ ) {
+                irow_ = nrow_;
+                return false;
+            }
+            irow_++;
+            if ( irow_ - batchStart_ >= batch_[ 0 ].length ) {
+                getResults( pending_ );
+                pending_ = null;
+                batch_ = nextBatch_;
+                batchStart_ = irow_;
+                submitBatch();
+            }
+            return true;
+        }
+
+        public Object getCell( int icol ) {
+            if ( irow_ < 0 || irow_ >= nrow_ ) {
+                throw new IllegalStateException();
+            }
+            int jcol = jcols_[ icol ];
+            return jcol >= 0 ? batch_[ jcol ][ (int) ( irow_ - batchStart_ ) ]
+                             : null;
+        }
+
+        public Object[] getRow() {
+            Object[] row = new Object[ ncol_ ];
+            for ( int icol : icols_ ) {
+                row[ icol ] = getCell( icol );
+            }
+            return row;
+        }
+
+        public void close() throws IOException {
+            try {
+                if ( pending_ != null ) {
+                    try {
+                        getResults( pending_ );
+                    }
+                    catch ( IOException e ) {
+                        // not interested
+                    }
+                    pending_ = null;
+                }
+            }
+            finally {
+                for ( ColumnReader colReader : colReaders_ ) {
+                    colReader.close();
+                }
+            }
+        }
+
+        /**
+         * Submits tasks to read the next batch of rows, if there are any.
+         */
+        private void submitBatch() {
+            final int nr =
+                (int) Math.min( BATCH_ROWS, nrow_ - nextBatchStart_ );
+            if ( nr > 0 ) {
+                final Object[][] batch = new Object[ colReaders_.length ][];
+                List<Callable<Object>> tasks =
+                    new ArrayList<Callable<Object>>();
+                for ( final int[] jcols : jcolGroups_ ) {
+                    tasks.add( new Callable<Object>() {
+                        public Object call() throws IOException {
+                            for ( int jcol : jcols ) {
+                                ColumnReader colReader = colReaders_[ jcol ];
+                                Object[] values = new Object[ nr ];
+                                for ( int i = 0; i < nr; i++ ) {
+                                    values[ i ] = colReader.readNextCell();
+                                }
+                                batch[ jcol ] = values;
+                            }
+                            return null;
+                        }
+                    } );
+                }
+                nextBatch_ = batch;
+                pending_ = submitTasks( tasks );
+                nextBatchStart_ += nr;
             }
         }
     }
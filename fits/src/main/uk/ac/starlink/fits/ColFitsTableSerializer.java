@@ -2,15 +2,22 @@ package uk.ac.starlink.fits;
 
 import java.io.DataOutput;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import nom.tam.fits.FitsException;
 import nom.tam.fits.Header;
 import nom.tam.fits.HeaderCardException;
+import nom.tam.util.BufferedDataOutputStream;
 import uk.ac.starlink.table.ColumnInfo;
 import uk.ac.starlink.table.DescribedValue;
+import uk.ac.starlink.table.RowRunner;
 import uk.ac.starlink.table.RowSequence;
 import uk.ac.starlink.table.StarTable;
 import uk.ac.starlink.table.Tables;
@@ -20,6 +27,12 @@ import uk.ac.starlink.table.WrapperStarTable;
  * Object which can serialize a StarTable to a data stream as a one-row FITS
  * file in which each element contains an entire column of the table.
  *
+ * <p>Column data is accumulated in per-column temporary stores.
+ * If multiple threads are available, the stores are filled concurrently,
+ * each thread looking after a subset of the columns,
+ * and when writing to a file the stores are copied concurrently
+ * to their known positions in the output.
+ *
  * @author   Mark Taylor
  * @since    26 Jun 2006
  */
@@ -31,6 +44,11 @@ public class ColFitsTableSerializer implements FitsTableSerializer {
     private final int ncol_;
     private final long nrow_;
     private final String tname_;
+    private final int nthread_;
+
+    /** Number of rows passed to the column stores at a time. */
+    private static final int BATCH_ROWS = 1024;
+
     private final static Logger logger_ =
         Logger.getLogger( "uk.ac.starlink.fits" );
 
@@ -44,6 +62,24 @@ public class ColFitsTableSerializer implements FitsTableSerializer {
      */
     public ColFitsTableSerializer( StarTable table, WideFits wide )
             throws IOException {
+        this( table, wide, RowRunner.DEFAULT );
+    }
+
+    /**
+     * Constructor with control over parallelism.
+     * Only the thread count of the supplied runner is used;
+     * work is divided between threads by column rather than by row.
+     *
+     * @param   table  table to serialize
+     * @param   wide   convention for representing over-wide tables;
+     *                 null to avoid this convention
+     * @param   rowRunner  determines the number of threads used;
+     *                     null or single-threaded for sequential operation
+     * @throws IOException if it won't be possible to write the given table
+     */
+    public ColFitsTableSerializer( StarTable table, WideFits wide,
+                                   RowRunner rowRunner )
+            throws IOException {
         wide_ = wide;
 
         /* Prepare an array of column storage objects which know how to do
@@ -65,23 +101,16 @@ public class ColFitsTableSerializer implements FitsTableSerializer {
             }
         }
         FitsConstants.checkColumnCount( wide, nUseCol );
+        nthread_ = rowRunner == null
+                 ? 1
+                 : Math.min( rowRunner.getThreadCount(), nUseCol );
 
         /* Store the table data into these storage objects. */
         boolean ok = false;
         RowSequence rseq = table.getRowSequence();
         try {
-            long lrow = 0L;
-            while ( rseq.next() ) {
-                Object[] row = rseq.getRow();
-                for ( int icol = 0; icol < ncol_; icol++ ) {
-                    ColumnStore colStore = colStores_[ icol ];
-                    if ( colStore != null ) {
-                        colStore.storeValue( row[ icol ] ); 
-                    }
-                }
-                lrow++;
-            }
-            nrow_ = lrow;
+            nrow_ = nthread_ > 1 ? storeParallel( rseq )
+                                 : storeSequential( rseq );
             ok = true;
         }
         finally {
@@ -110,6 +139,115 @@ public class ColFitsTableSerializer implements FitsTableSerializer {
         }
     }
 
+    /**
+     * Passes all the rows of a sequence to the column stores
+     * on the current thread.
+     *
+     * @param  rseq  row sequence
+     * @return  number of rows stored
+     */
+    private long storeSequential( RowSequence rseq ) throws IOException {
+        long lrow = 0L;
+        while ( rseq.next() ) {
+            Object[] row = rseq.getRow();
+            for ( int icol = 0; icol < ncol_; icol++ ) {
+                ColumnStore colStore = colStores_[ icol ];
+                if ( colStore != null ) {
+                    colStore.storeValue( row[ icol ] ); 
+                }
+            }
+            lrow++;
+        }
+        return lrow;
+    }
+
+    /**
+     * Passes all the rows of a sequence to the column stores using
+     * multiple threads.  Rows are read in batches on the current thread,
+     * and each batch is stored by tasks that each look after a fixed
+     * subset of the columns, while the next batch is being read.
+     *
+     * @param  rseq  row sequence
+     * @return  number of rows stored
+     */
+    private long storeParallel( RowSequence rseq ) throws IOException {
+
+        /* Assign columns to threads in rotation. */
+        List<Integer> useCols = new ArrayList<Integer>();
+        for ( int icol = 0; icol < ncol_; icol++ ) {
+            if ( colStores_[ icol ] != null ) {
+                useCols.add( new Integer( icol ) );
+            }
+        }
+        int nuse = useCols.size();
+        int[][] icolGroups = new int[ nthread_ ][];
+        for ( int ig = 0; ig < nthread_; ig++ ) {
+            icolGroups[ ig ] = new int[ ( nuse - ig + nthread_ - 1 )
+                                        / nthread_ ];
+        }
+        for ( int i = 0; i < nuse; i++ ) {
+            icolGroups[ i % nthread_ ][ i / nthread_ ] =
+                useCols.get( i ).intValue();
+        }
+
+        /* Read batches of rows, and pass each one to the workers while
+         * reading the next.  Two batch buffers are used alternately. */
+        Object[][][] batches = new Object[ 2 ][ BATCH_ROWS ][];
+        List<Future<Object>> pending = null;
+        long lrow = 0L;
+        try {
+            for ( int ib = 0; true; ib = 1 - ib ) {
+                final Object[][] batch = batches[ ib ];
+                int nr = 0;
+                while ( nr < BATCH_ROWS && rseq.next() ) {
+                    batch[ nr++ ] = rseq.getRow().clone();
+                }
+                if ( pending != null ) {
+                    ColFitsStarTable.getResults( pending );
+                    pending = null;
+                }
+                if ( nr == 0 ) {
+                    break;
+                }
+                lrow += nr;
+                final int nrow = nr;
+                List<Callable<Object>> tasks =
+                    new ArrayList<Callable<Object>>();
+                for ( int ig = 0; ig < nthread_; ig++ ) {
+                    final int[] icols = icolGroups[ ig ];
+                    tasks.add( new Callable<Object>() {
+                        public Object call() throws IOException {
+                            for ( int icol : icols ) {
+                                ColumnStore colStore = colStores_[ icol ];
+                                for ( int ir = 0; ir < nrow; ir++ ) {
+                                    colStore.storeValue( batch[ ir ][ icol ] );
+                                }
+                            }
+                            return null;
+                        }
+                    } );
+                }
+                pending = ColFitsStarTable.submitTasks( tasks );
+                if ( nr < BATCH_ROWS ) {
+                    ColFitsStarTable.getResults( pending );
+                    pending = null;
+                    break;
+                }
+            }
+        }
+        finally {
+            if ( pending != null ) {
+                try {
+                    ColFitsStarTable.getResults( pending );
+                }
+                catch ( IOException e ) {
+                    // secondary error
+                }
+            }
+        }
+        return lrow;
+    }
+
     public Header getHeader() throws HeaderCardException {
 
         /* Work out the length of the single table row. */
@@ -187,16 +325,22 @@ public class ColFitsTableSerializer implements FitsTableSerializer {
      */
     public void writeData( DataOutput out ) throws IOException {
 
-        /* Write the cell provided by each serializer in turn. */
+        /* Write the cell provided by each serializer in turn,
+         * concurrently if possible. */
         long size = 0L;
-        for ( int icol = 0; icol < ncol_; icol++ ) {
-            if ( colStores_[ icol ] != null ) {
-                logger_.info( "Writing column " + ( icol + 1 ) + "/" + ncol_ 
-                            + ": " + colids_[ icol ] );
-                ColumnStore colStore = colStores_[ icol ];
-                colStore.streamData( out );
-                size += colStore.getDataLength();
-                colStore.dispose();
+        if ( out instanceof ChannelDataOutput && nthread_ > 1 ) {
+            size = writeDataParallel( (ChannelDataOutput) out );
+        }
+        else {
+            for ( int icol = 0; icol < ncol_; icol++ ) {
+                if ( colStores_[ icol ] != null ) {
+                    logger_.info( "Writing column " + ( icol + 1 ) + "/"
+                                + ncol_ + ": " + colids_[ icol ] );
+                    ColumnStore colStore = colStores_[ icol ];
+                    colStore.streamData( out );
+                    size += colStore.getDataLength();
+                    colStore.dispose();
+                }
             }
         }
 
@@ -207,10 +351,83 @@ public class ColFitsTableSerializer implements FitsTableSerializer {
         }
     }
 
+    /**
+     * Writes the column data using multiple threads.
+     * Each column store is copied to its known position in the output
+     * file using positional writes.  On exit the channel is positioned
+     * at the end of the data.  No padding is written.
+     *
+     * @param  out  output stream; must be positioned at the start of the
+     *              data, but may contain unflushed bytes
+     * @return  number of bytes written
+     */
+    private long writeDataParallel( ChannelDataOutput out )
+            throws IOException {
+        out.flush();
+        final FileChannel chan = out.getChannel();
+        long pos0 = chan.position();
+        long pos = pos0;
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+        for ( int icol = 0; icol < ncol_; icol++ ) {
+            final ColumnStore colStore = colStores_[ icol ];
+            if ( colStore != null ) {
+                final long colPos = pos;
+                final String msg = "Writing column " + ( icol + 1 ) + "/"
+                                 + ncol_ + ": " + colids_[ icol ];
+                tasks.add( new Callable<Object>() {
+                    public Object call() throws IOException {
+                        logger_.info( msg );
+                        BufferedDataOutputStream colOut =
+                            new BufferedDataOutputStream(
+                                new ChannelOutputStream( chan, colPos ) );
+                        colStore.streamData( colOut );
+                        colOut.close();
+                        colStore.dispose();
+                        return null;
+                    }
+                } );
+                pos += colStore.getDataLength();
+            }
+        }
+        List<Future<Object>> futures =
+            ColFitsStarTable.submitTasks( groupTasks( tasks, nthread_ ) );
+        ColFitsStarTable.getResults( futures );
+        chan.position( pos );
+        return pos - pos0;
+    }
+
     public long getRowCount() {
         return nrow_;
     }
 
+    /**
+     * Combines a list of tasks into a smaller number of tasks,
+     * each of which runs some of the originals in sequence.
+     * The original tasks are assigned to the groups in rotation.
+     *
+     * @param  tasks  tasks to run
+     * @param  ngroup  maximum number of output tasks
+     * @return  grouped tasks
+     */
+    private static List<Callable<Object>>
+            groupTasks( final List<Callable<Object>> tasks, int ngroup ) {
+        final int ntask = tasks.size();
+        final int ng = Math.min( ngroup, ntask );
+        List<Callable<Object>> groups = new ArrayList<Callable<Object>>();
+        for ( int ig = 0; ig < ng; ig++ ) {
+            final int ig0 = ig;
+            groups.add( new Callable<Object>() {
+                public Object call() throws Exception {
+                    for ( int it = ig0; it < ntask; it += ng ) {
+                        tasks.get( it ).call();
+                    }
+                    return null;
+                }
+            } );
+        }
+        return groups;
+    }
+
     public char getFormatChar( int icol ) {
         ColumnStore colStore = colStores_[ icol ];
         if ( colStore != null ) {
@@ -249,6 +466,40 @@ public class ColFitsTableSerializer implements FitsTableSerializer {
         return null;
     }
 
+    /**
+     * OutputStream which writes to a file channel starting at a given
+     * position, using positional writes.  The channel's own position
+     * is not affected, so several instances may write to the same channel
+     * concurrently as long as their regions do not overlap.
+     * Closing this stream flushes it but does not close the channel.
+     */
+    private static class ChannelOutputStream extends OutputStream {
+        private final FileChannel chan_;
+        private long pos_;
+
+        /**
+         * Constructor.
+         *
+         * @param  chan  file channel
+         * @param  pos   position in file of first byte to write
+         */
+        ChannelOutputStream( FileChannel chan, long pos ) {
+            chan_ = chan;
+            pos_ = pos;
+        }
+
+        public void write( int b ) throws IOException {
+            write( new byte[] { (byte) b }, 0, 1 );
+        }
+
+        public void write( byte[] b, int off, int len ) throws IOException {
+            ByteBuffer bbuf = ByteBuffer.wrap( b, off, len );
+            while ( bbuf.hasRemaining() ) {
+                pos_ += chan_.write( bbuf, pos_ );
+            }
+        }
+    }
+
     private static String getCardValue( ColumnStore colStore, String tcard ) {
         Header hdr = new Header();
         int icol = 99;
@@ -1,6 +1,7 @@
 package uk.ac.starlink.fits;
 
 import java.io.IOException;
+import uk.ac.starlink.table.RowRunner;
 import uk.ac.starlink.table.StarTable;
 
 /**
@@ -16,12 +17,16 @@ import uk.ac.starlink.table.StarTable;
  * interchange, in practice most non-STIL processors are unlikely to
  * be able to do much useful with it.
  *
+ * <p>Columns may be prepared and written on multiple threads;
+ * see {@link #setRowRunner}.
+ *
  * @author   Mark Taylor
  * @since    21 Jun 2006
  */
 public class ColFitsTableWriter extends AbstractFitsTableWriter {
 
     private final WideFits wide_;
+    private RowRunner rowRunner_;
 
     /**
      * Default constructor.
@@ -40,6 +45,30 @@ public class ColFitsTableWriter extends AbstractFitsTableWriter {
     public ColFitsTableWriter( String name, WideFits wide ) {
         super( name );
         wide_ = wide;
+        rowRunner_ = RowRunner.DEFAULT;
+    }
+
+    /**
+     * Sets the row runner which determines how many threads are used
+     * to prepare and write the columns.
+     * Only its thread count is used, since work is divided by column.
+     * A runner with a single thread, or null, means that
+     * all processing is done sequentially.
+     * The default is {@link uk.ac.starlink.table.RowRunner#DEFAULT}.
+     *
+     * @param  rowRunner  row runner, or null
+     */
+    public void setRowRunner( RowRunner rowRunner ) {
+        rowRunner_ = rowRunner;
+    }
+
+    /**
+     * Returns the row runner which determines the number of threads used.
+     *
+     * @return  row runner, may be null
+     */
+    public RowRunner getRowRunner() {
+        return rowRunner_;
     }
 
     public boolean looksLikeFile( String location ) {
@@ -48,6 +77,6 @@ public class ColFitsTableWriter extends AbstractFitsTableWriter {
 
     protected FitsTableSerializer createSerializer( StarTable table )
             throws IOException {
-        return new ColFitsTableSerializer( table, wide_ );
+        return new ColFitsTableSerializer( table, wide_, rowRunner_ );
     }
 }
@@ -3,6 +3,8 @@ package uk.ac.starlink.fits;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -23,6 +25,7 @@ abstract class ColumnReader {
     private final int[] shape_;
     private final int length_;
     private final boolean isUnsignedByte_;
+    private BlockDecoder blockDecoder_;
     private static final Logger logger_ =
         Logger.getLogger( "uk.ac.starlink.fits" );
 
@@ -118,6 +121,16 @@ abstract class ColumnReader {
         return isUnsignedByte_;
     }
 
+    /**
+     * Returns an object which can decode many values from this column
+     * in a single call, if this reader reads numeric scalars.
+     *
+     * @return  block decoder, or null if not available
+     */
+    BlockDecoder getBlockDecoder() {
+        return blockDecoder_;
+    }
+
     /**
      * Constructs a ColumnReader object suitable for reading a given column
      * of a table.
@@ -293,8 +306,13 @@ abstract class ColumnReader {
 
         /* Scalar value case. */
         else if ( count == 1 ) {
-            return createScalarColumnReader( type, scale, zeroNum,
-                                             hasBlank, blank );
+            ColumnReader reader =
+                createScalarColumnReader( type, scale, zeroNum,
+                                          hasBlank, blank );
+            reader.blockDecoder_ =
+                createBlockDecoder( type, scale, zeroNum, hasBlank, blank,
+                                    reader.getContentClass() );
+            return reader;
         }
 
         /* Fixed size array case. */
@@ -1185,6 +1203,189 @@ abstract class ColumnReader {
         }
     }
 
+    /**
+     * Returns a new block decoder for a scalar numeric column.
+     * The decoded values are the same as those that would be
+     * returned by the corresponding column reader, but as doubles.
+     *
+     * @param   type  TFORM data type character
+     * @param   scale  factor to scale numerical values by
+     * @param   zeroNum   offset to add to numerical values
+     * @param   hasBlank  true if a magic value is regarded as blank
+     * @param   blank   value represnting magic null value
+     *                  (only used if hasBlank is true)
+     * @param   clazz   content class of the scalar column reader
+     * @return  new decoder, or null for non-numeric types
+     */
+    private static BlockDecoder createBlockDecoder( char type,
+                                                    final double scale,
+                                                    Number zeroNum,
+                                                    final boolean hasBlank,
+                                                    final long blank,
+                                                    Class clazz ) {
+        final double dZero = zeroNum.doubleValue();
+        final boolean isScaled = ( scale != 1.0 || dZero != 0.0 );
+        boolean isIntegral = clazz == Byte.class || clazz == Short.class
+                          || clazz == Integer.class || clazz == Long.class;
+        final IntegerScaler scaler;
+        if ( isIntegral && zeroNum.equals( BintableStarTable.TWO63 ) ) {
+            scaler = new IntegerScaler( Long.MIN_VALUE, -1L, Long.MIN_VALUE );
+        }
+        else if ( isIntegral ) {
+            long lZero = zeroNum.longValue();
+            scaler = new IntegerScaler( lZero < 0 ? Long.MIN_VALUE - lZero
+                                                  : Long.MIN_VALUE,
+                                        lZero > 0 ? Long.MAX_VALUE - lZero
+                                                  : Long.MAX_VALUE,
+                                        lZero );
+        }
+        else {
+            scaler = new IntegerScaler( scale, dZero, clazz == Float.class );
+        }
+        switch ( type ) {
+            case 'B':
+                final byte bBlank = (byte) blank;
+                return new BlockDecoder( 1 ) {
+                    void decodeDoubles( ByteBuffer buf, int pos, int stride,
+                                        int n, double[] out, int iout ) {
+                        for ( int i = 0; i < n; i++ ) {
+                            byte val = buf.get( pos );
+                            out[ iout + i ] = hasBlank && val == bBlank
+                                            ? Double.NaN
+                                            : scaler.scale( val & 0xff );
+                            pos += stride;
+                        }
+                    }
+                };
+            case 'I':
+                final short sBlank = (short) blank;
+                return new BlockDecoder( 2 ) {
+                    void decodeDoubles( ByteBuffer buf, int pos, int stride,
+                                        int n, double[] out, int iout ) {
+                        if ( stride == 2 ) {
+                            short[] vals = new short[ n ];
+                            view( buf, pos ).asShortBuffer().get( vals );
+                            for ( int i = 0; i < n; i++ ) {
+                                short val = vals[ i ];
+                                out[ iout + i ] = hasBlank && val == sBlank
+                                                ? Double.NaN
+                                                : scaler.scale( val );
+                            }
+                        }
+                        else {
+                            for ( int i = 0; i < n; i++ ) {
+                                short val = buf.getShort( pos );
+                                out[ iout + i ] = hasBlank && val == sBlank
+                                                ? Double.NaN
+                                                : scaler.scale( val );
+                                pos += stride;
+                            }
+                        }
+                    }
+                };
+            case 'J':
+                final int iBlank = (int) blank;
+                return new BlockDecoder( 4 ) {
+                    void decodeDoubles( ByteBuffer buf, int pos, int stride,
+                                        int n, double[] out, int iout ) {
+                        if ( stride == 4 ) {
+                            int[] vals = new int[ n ];
+                            view( buf, pos ).asIntBuffer().get( vals );
+                            for ( int i = 0; i < n; i++ ) {
+                                int val = vals[ i ];
+                                out[ iout + i ] = hasBlank && val == iBlank
+                                                ? Double.NaN
+                                                : scaler.scale( val );
+                            }
+                        }
+                        else {
+                            for ( int i = 0; i < n; i++ ) {
+                                int val = buf.getInt( pos );
+                                out[ iout + i ] = hasBlank && val == iBlank
+                                                ? Double.NaN
+                                                : scaler.scale( val );
+                                pos += stride;
+                            }
+                        }
+                    }
+                };
+            case 'K':
+                return new BlockDecoder( 8 ) {
+                    void decodeDoubles( ByteBuffer buf, int pos, int stride,
+                                        int n, double[] out, int iout ) {
+                        if ( stride == 8 ) {
+                            long[] vals = new long[ n ];
+                            view( buf, pos ).asLongBuffer().get( vals );
+                            for ( int i = 0; i < n; i++ ) {
+                                long val = vals[ i ];
+                                out[ iout + i ] = hasBlank && val == blank
+                                                ? Double.NaN
+                                                : scaler.scale( val );
+                            }
+                        }
+                        else {
+                            for ( int i = 0; i < n; i++ ) {
+                                long val = buf.getLong( pos );
+                                out[ iout + i ] = hasBlank && val == blank
+                                                ? Double.NaN
+                                                : scaler.scale( val );
+                                pos += stride;
+                            }
+                        }
+                    }
+                };
+            case 'E':
+                return new BlockDecoder( 4 ) {
+                    void decodeDoubles( ByteBuffer buf, int pos, int stride,
+                                        int n, double[] out, int iout ) {
+                        if ( stride == 4 ) {
+                            float[] vals = new float[ n ];
+                            view( buf, pos ).asFloatBuffer().get( vals );
+                            for ( int i = 0; i < n; i++ ) {
+                                out[ iout + i ] = vals[ i ];
+                            }
+                        }
+                        else {
+                            for ( int i = 0; i < n; i++ ) {
+                                out[ iout + i ] = buf.getFloat( pos );
+                                pos += stride;
+                            }
+                        }
+                        if ( isScaled ) {
+                            for ( int i = 0; i < n; i++ ) {
+                                out[ iout + i ] =
+                                    (float) ( out[ iout + i ] * scale + dZero );
+                            }
+                        }
+                    }
+                };
+            case 'D':
+                return new BlockDecoder( 8 ) {
+                    void decodeDoubles( ByteBuffer buf, int pos, int stride,
+                                        int n, double[] out, int iout ) {
+                        if ( stride == 8 ) {
+                            view( buf, pos ).asDoubleBuffer()
+                                            .get( out, iout, n );
+                        }
+                        else {
+                            for ( int i = 0; i < n; i++ ) {
+                                out[ iout + i ] = buf.getDouble( pos );
+                                pos += stride;
+                            }
+                        }
+                        if ( isScaled ) {
+                            for ( int i = 0; i < n; i++ ) {
+                                out[ iout + i ] =
+                                    out[ iout + i ] * scale + dZero;
+                            }
+                        }
+                    }
+                };
+            default:
+                return null;
+        }
+    }
+
     /**
      * Indicates whether a Number value is an integer type or not.
      * Makes some assumptions about the types it may have been passed.
@@ -1265,6 +1466,135 @@ abstract class ColumnReader {
         }
     }
 
+    /**
+     * Decodes runs of values from a numeric scalar column held in a buffer
+     * into a primitive array, without creating an object for each value.
+     * Values are read from the buffer using absolute gets, so the
+     * buffer's position is not affected.
+     * Instances are thread-safe.
+     */
+    static abstract class BlockDecoder {
+
+        private final int width_;
+
+        /**
+         * Constructor.
+         *
+         * @param  width  number of bytes per value
+         */
+        BlockDecoder( int width ) {
+            width_ = width;
+        }
+
+        /**
+         * Returns the number of bytes occupied by each value.
+         *
+         * @return  value width in bytes
+         */
+        int getWidth() {
+            return width_;
+        }
+
+        /**
+         * Decodes a run of values as doubles, applying blank values
+         * and scaling.  Blank values are returned as NaN.
+         *
+         * @param  buf  buffer containing FITS data
+         * @param  pos  buffer index of first value
+         * @param  stride  distance in bytes between the starts of
+         *                 adjacent values; for a BINTABLE this is
+         *                 the row length
+         * @param  n   number of values to decode
+         * @param  out  array into which values are written
+         * @param  iout  index into <code>out</code> of first value
+         */
+        abstract void decodeDoubles( ByteBuffer buf, int pos, int stride,
+                                     int n, double[] out, int iout );
+
+        /**
+         * Returns a big-endian view of a buffer starting at a given index,
+         * suitable for bulk reads.
+         *
+         * @param  buf  buffer
+         * @param  pos  index of start of view
+         * @return  view buffer positioned at <code>pos</code>
+         */
+        static ByteBuffer view( ByteBuffer buf, int pos ) {
+            ByteBuffer view = buf.duplicate();
+            view.position( pos );
+            view.order( ByteOrder.BIG_ENDIAN );
+            return view;
+        }
+    }
+
+    /**
+     * Turns raw integer values into doubles in the same way as the
+     * scalar column readers, so that block-decoded values match those
+     * read one at a time.
+     */
+    private static class IntegerScaler {
+        private final boolean isIntegral_;
+        private final long lMin_;
+        private final long lMax_;
+        private final long lZero_;
+        private final double scale_;
+        private final double dZero_;
+        private final boolean isFloat_;
+
+        /**
+         * Constructs a scaler for values read as integers.
+         * Results out of range are NaN.
+         *
+         * @param  lMin  minimum raw value which can be offset
+         * @param  lMax  maximum raw value which can be offset
+         * @param  lZero  integer offset (addition may wrap)
+         */
+        IntegerScaler( long lMin, long lMax, long lZero ) {
+            isIntegral_ = true;
+            lMin_ = lMin;
+            lMax_ = lMax;
+            lZero_ = lZero;
+            scale_ = 1.0;
+            dZero_ = 0.0;
+            isFloat_ = false;
+        }
+
+        /**
+         * Constructs a scaler for values read as floating point.
+         *
+         * @param  scale  scale factor
+         * @param  dZero  offset
+         * @param  isFloat  true if results should have float precision
+         */
+        IntegerScaler( double scale, double dZero, boolean isFloat ) {
+            isIntegral_ = false;
+            lMin_ = Long.MIN_VALUE;
+            lMax_ = Long.MAX_VALUE;
+            lZero_ = 0L;
+            scale_ = scale;
+            dZero_ = dZero;
+            isFloat_ = isFloat;
+        }
+
+        /**
+         * Converts a raw value.
+         *
+         * @param  val  raw value
+         * @return  scaled value
+         */
+        double scale( long val ) {
+            if ( isIntegral_ ) {
+                return val >= lMin_ && val <= lMax_
+                     ? (double) ( val + lZero_ )
+                     : Double.NaN;
+            }
+            else {
+                double dval = val * scale_ + dZero_;
+                return isFloat_ ? (double) (float) dval : dval;
+            }
+        }
+    }
+
     /**
      * Abstract class defining an object which can read an array of similarly
      * typed values from a stream.
@@ -0,0 +1,317 @@
+package uk.ac.starlink.fits;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import uk.ac.starlink.table.ColumnInfo;
+import uk.ac.starlink.table.StarTable;
+import uk.ac.starlink.table.WrapperStarTable;
+import uk.ac.starlink.util.CacheFiles;
+import uk.ac.starlink.util.URLUtils;
+
+/**
+ * Persistent cache of the column statistics gathered by the first pass
+ * of {@link StandardFitsTableSerializer}, for tables read from local files.
+ *
+ * <p>Statistics are only cached for tables which have been read directly
+ * from a file, not for wrapper tables, whose content may differ from
+ * that of the file.  A cache entry is only used if the file's length
+ * and modification time, and the table's position in the file,
+ * class and column metadata, match those recorded when it was written.
+ * The position is taken from the fragment part of the table's URL,
+ * such as the HDU index appended by {@link FitsTableBuilder};
+ * a table with no fragment is the default table for its file.
+ * Cache files are written to the directory named by the
+ * {@link PrescanMode#STATSDIR_PROPERTY} system property if set,
+ * or the default temporary directory otherwise.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+class ColumnStatsCache {
+
+    private final File dataFile_;
+    private final File cacheFile_;
+    private final long signature_;
+    private final int ncol_;
+
+    private static final int MAGIC = 0x46535453;
+    private static final int VERSION = 2;
+    private static final Logger logger_ =
+        Logger.getLogger( "uk.ac.starlink.fits" );
+
+    /**
+     * Constructor.
+     *
+     * @param  dataFile  file from which the table was read
+     * @param  signature  hash of table characteristics
+     * @param  ncol   number of columns
+     */
+    private ColumnStatsCache( File dataFile, long signature, int ncol ) {
+        dataFile_ = dataFile;
+        signature_ = signature;
+        ncol_ = ncol;
+        cacheFile_ =
+            new File( CacheFiles.getCacheDir( PrescanMode.STATSDIR_PROPERTY ),
+                      "fitsstats-" + Long.toHexString( signature )
+                    + ".stats" );
+    }
+
+    /**
+     * Returns a cache for a given table if it is eligible for caching.
+     *
+     * @param  table  table to be written
+     * @return  cache for table, or null if its statistics can't be cached
+     */
+    public static ColumnStatsCache getCache( StarTable table ) {
+        if ( table instanceof WrapperStarTable ) {
+            return null;
+        }
+        URL url = table.getURL();
+        if ( url == null ) {
+            return null;
+        }
+
+        /* Separate the location of the file from the position of the
+         * table within it. */
+        String loc = url.toString();
+        int ihash = loc.indexOf( '#' );
+        String fileLoc = ihash >= 0 ? loc.substring( 0, ihash ) : loc;
+        String position = ihash >= 0 ? loc.substring( ihash + 1 ) : "";
+        File file = URLUtils.urlToFile( fileLoc );
+        if ( file == null || ! file.isFile() ) {
+            return null;
+        }
+
+        /* Use a hash of everything which identifies the table
+         * as the signature. */
+        StringBuffer sbuf = new StringBuffer()
+            .append( CacheFiles.getPath( file ) )
+            .append( '\n' )
+            .append( position )
+            .append( '\n' )
+            .append( table.getClass().getName() )
+            .append( '\n' )
+            .append( table.getRowCount() );
+        int ncol = table.getColumnCount();
+        for ( int icol = 0; icol < ncol; icol++ ) {
+            ColumnInfo info = table.getColumnInfo( icol );
+            int[] shape = info.getShape();
+            sbuf.append( '\n' )
+                .append( info.getName() )
+                .append( '\t' )
+                .append( info.getContentClass().getName() )
+                .append( '\t' )
+                .append( info.getElementSize() )
+                .append( '\t' )
+                .append( shape == null ? "" : Arrays.toString( shape ) )
+                .append( '\t' )
+                .append( info.isNullable() );
+        }
+        return new ColumnStatsCache( file, CacheFiles.hash( sbuf ), ncol );
+    }
+
+    /**
+     * Returns the cached statistics, if available.
+     *
+     * @return  statistics, or null if there is no valid cache entry
+     */
+    public Stats readStats() {
+        if ( ! cacheFile_.exists() ) {
+            return null;
+        }
+        try {
+            InputStream in =
+                new BufferedInputStream( new FileInputStream( cacheFile_ ) );
+            try {
+                DataInputStream din = new DataInputStream( in );
+                if ( din.readInt() != MAGIC ||
+                     din.readInt() != VERSION ||
+                     din.readLong() != signature_ ||
+                     din.readLong() != dataFile_.length() ||
+                     din.readLong() != dataFile_.lastModified() ||
+                     din.readInt() != ncol_ ) {
+                    return null;
+                }
+                Stats stats = new Stats( ncol_ );
+                stats.nrow_ = din.readLong();
+                for ( int icol = 0; icol < ncol_; icol++ ) {
+                    stats.maxChars_[ icol ] = din.readInt();
+                    stats.maxElements_[ icol ] = din.readInt();
+                    stats.totalElements_[ icol ] = din.readLong();
+                    stats.hasNulls_[ icol ] = din.readBoolean();
+                }
+                logger_.info( "Using cached column statistics "
+                            + cacheFile_ );
+                return stats;
+            }
+            finally {
+                in.close();
+            }
+        }
+        catch ( IOException e ) {
+            logger_.log( Level.INFO,
+                         "Failed to read column statistics " + cacheFile_, e );
+            return null;
+        }
+    }
+
+    /**
+     * Attempts to cache statistics.  The file is written under a temporary
+     * name and then renamed, so that a partial entry is never used.
+     * Failure is logged but not fatal.
+     *
+     * @param  stats  statistics to cache
+     */
+    public void writeStats( Stats stats ) {
+        File tmpFile = new File( cacheFile_.getPath() + ".tmp" );
+        try {
+            OutputStream out =
+                new BufferedOutputStream( new FileOutputStream( tmpFile ) );
+            try {
+                DataOutputStream dout = new DataOutputStream( out );
+                dout.writeInt( MAGIC );
+                dout.writeInt( VERSION );
+                dout.writeLong( signature_ );
+                dout.writeLong( dataFile_.length() );
+                dout.writeLong( dataFile_.lastModified() );
+                dout.writeInt( ncol_ );
+                dout.writeLong( stats.nrow_ );
+                for ( int icol = 0; icol < ncol_; icol++ ) {
+                    dout.writeInt( stats.maxChars_[ icol ] );
+                    dout.writeInt( stats.maxElements_[ icol ] );
+                    dout.writeLong( stats.totalElements_[ icol ] );
+                    dout.writeBoolean( stats.hasNulls_[ icol ] );
+                }
+                dout.flush();
+            }
+            finally {
+                out.close();
+            }
+            CacheFiles.commit( tmpFile, cacheFile_ );
+            logger_.info( "Wrote column statistics " + cacheFile_ );
+        }
+        catch ( IOException e ) {
+            tmpFile.delete();
+            logger_.log( Level.WARNING,
+                         "Failed to write column statistics " + cacheFile_,
+                         e );
+        }
+    }
+
+    /**
+     * Column statistics gathered by a pass through the table data.
+     */
+    static class Stats {
+        long nrow_;
+        final int[] maxChars_;
+        final int[] maxElements_;
+        final long[] totalElements_;
+        final boolean[] hasNulls_;
+
+        /**
+         * Constructor.
+         *
+         * @param  ncol  number of columns
+         */
+        Stats( int ncol ) {
+            maxChars_ = new int[ ncol ];
+            maxElements_ = new int[ ncol ];
+            totalElements_ = new long[ ncol ];
+            hasNulls_ = new boolean[ ncol ];
+        }
+    }
+
+    /**
+     * Checks rows being written against statistics that have been
+     * taken from the cache rather than gathered from the data.
+     */
+    static class RowChecker {
+        private final int[] maxChars_;
+        private final int[] maxElements_;
+        private final boolean[] varChars_;
+        private final boolean[] varElementChars_;
+        private final boolean[] varShapes_;
+        private final boolean[] noNulls_;
+
+        /**
+         * Constructor.
+         *
+         * @param  stats   statistics in use
+         * @param  varChars  flags for columns with string length from stats
+         * @param  varElementChars  flags for columns with string array
+         *                          element length from stats
+         * @param  varShapes   flags for columns with array size from stats
+         * @param  noNulls   flags for columns which must not contain nulls
+         */
+        RowChecker( Stats stats, boolean[] varChars,
+                    boolean[] varElementChars, boolean[] varShapes,
+                    boolean[] noNulls ) {
+            maxChars_ = stats.maxChars_;
+            maxElements_ = stats.maxElements_;
+            varChars_ = varChars;
+            varElementChars_ = varElementChars;
+            varShapes_ = varShapes;
+            noNulls_ = noNulls;
+        }
+
+        /**
+         * Checks that a row is consistent with the statistics.
+         *
+         * @param  row  row data
+         * @throws  IOException  if the row is not consistent
+         */
+        public void checkRow( Object[] row ) throws IOException {
+            for ( int icol = 0; icol < row.length; icol++ ) {
+                Object cell = row[ icol ];
+                if ( cell == null ) {
+                    if ( noNulls_[ icol ] ) {
+                        throw staleError();
+                    }
+                }
+                else {
+                    if ( varChars_[ icol ] &&
+                         ((String) cell).length() > maxChars_[ icol ] ) {
+                        throw staleError();
+                    }
+                    if ( varElementChars_[ icol ] ) {
+                        String[] svals = (String[]) cell;
+                        for ( int i = 0; i < svals.length; i++ ) {
+                            if ( svals[ i ] != null &&
+                                 svals[ i ].length() > maxChars_[ icol ] ) {
+                                throw staleError();
+                            }
+                        }
+                    }
+                    if ( varShapes_[ icol ] &&
+                         Array.getLength( cell ) > maxElements_[ icol ] ) {
+                        throw staleError();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns an exception indicating out of date statistics.
+         *
+         * @return  new exception
+         */
+        private static IOException staleError() {
+            return new IOException( "Cached FITS column statistics out of date"
+                                  + " - try " + PrescanMode.PRESCAN_PROPERTY
+                                  + "=" + PrescanMode.FULL );
+        }
+    }
+}
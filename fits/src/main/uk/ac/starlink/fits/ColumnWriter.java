@@ -5,6 +5,9 @@ import java.io.IOException;
 
 /**
  * Writes the data for a single column of a FITS BINTABLE.
+ * Implementations used by {@link StandardFitsTableSerializer}
+ * may be called from multiple threads concurrently when a table is
+ * written in parallel, so should not keep mutable state.
  *
  * @author   Mark Taylor
  * @since    10 Jul 2008
@@ -1,6 +1,7 @@
 package uk.ac.starlink.fits;
 
 import java.io.IOException;
+import uk.ac.starlink.table.RowRunner;
 import uk.ac.starlink.table.StarTable;
 
 /**
@@ -37,6 +38,11 @@ import uk.ac.starlink.table.StarTable;
  * table is set to the largest of these.  Excess space is padded
  * with some sort of blank value (NaN for floating point values,
  * spaces for strings, zero-like values otherwise).
+ * The first pass may be avoided or its results reused;
+ * see {@link #setPrescanMode}.
+ * <p>
+ * When writing a random-access table to a file, the rows may be
+ * encoded and written on multiple threads; see {@link #setRowRunner}.
  *
  * @author   Mark Taylor (Starlink)
  */
@@ -44,6 +50,8 @@ public class FitsTableWriter extends AbstractFitsTableWriter {
 
     private final boolean allowSignedByte_;
     private final WideFits wide_;
+    private RowRunner rowRunner_;
+    private PrescanMode prescanMode_;
 
     /**
      * Default constructor.
@@ -66,6 +74,51 @@ public class FitsTableWriter extends AbstractFitsTableWriter {
         super( name );
         allowSignedByte_ = allowSignedByte;
         wide_ = wide;
+        rowRunner_ = RowRunner.DEFAULT;
+        prescanMode_ = PrescanMode.getDefault();
+    }
+
+    /**
+     * Sets the row runner which controls whether and how table data
+     * is written in parallel when output is to a file.
+     * A runner with a single thread, or null, means that rows
+     * are always written sequentially.
+     * The default is {@link uk.ac.starlink.table.RowRunner#DEFAULT}.
+     *
+     * @param  rowRunner  row runner, or null
+     */
+    public void setRowRunner( RowRunner rowRunner ) {
+        rowRunner_ = rowRunner;
+    }
+
+    /**
+     * Returns the row runner which controls parallel writing.
+     *
+     * @return  row runner, may be null
+     */
+    public RowRunner getRowRunner() {
+        return rowRunner_;
+    }
+
+    /**
+     * Sets the policy for gathering information about the table data
+     * that is required before the header can be written.
+     * The default is given by {@link PrescanMode#getDefault}.
+     *
+     * @param  prescanMode  prescan mode
+     */
+    public void setPrescanMode( PrescanMode prescanMode ) {
+        prescanMode_ = prescanMode;
+    }
+
+    /**
+     * Returns the policy for gathering information about the table data
+     * before writing.
+     *
+     * @return  prescan mode
+     */
+    public PrescanMode getPrescanMode() {
+        return prescanMode_;
     }
 
     /**
@@ -90,7 +143,10 @@ public class FitsTableWriter extends AbstractFitsTableWriter {
 
     protected FitsTableSerializer createSerializer( StarTable table )
             throws IOException {
-        return new StandardFitsTableSerializer( table, allowSignedByte_,
-                                                wide_ );
+        StandardFitsTableSerializer fitser =
+            new StandardFitsTableSerializer( table, allowSignedByte_, wide_,
+                                             prescanMode_ );
+        fitser.setRowRunner( rowRunner_ );
+        return fitser;
     }
 }
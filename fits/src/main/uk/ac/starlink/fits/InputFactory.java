@@ -5,6 +5,7 @@ import java.io.Closeable;
 import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
@@ -12,6 +13,7 @@ import java.nio.channels.FileChannel;
 import java.util.logging.Logger;
 import nom.tam.util.BufferedFile;
 import nom.tam.util.RandomAccess;
+import uk.ac.starlink.util.BgzfIndex;
 import uk.ac.starlink.util.Compression;
 import uk.ac.starlink.util.DataSource;
 import uk.ac.starlink.util.FileDataSource;
@@ -66,6 +68,11 @@ public abstract class InputFactory implements Closeable {
             File uncompressedFile = ((FileDataSource) datsrc).getFile();
             return createFileFactory( uncompressedFile, offset, leng );
         }
+        else if ( isFile && datsrc.getCompression() == Compression.GZIP &&
+                  isBgzf( ((FileDataSource) datsrc).getFile() ) ) {
+            File bgzfFile = ((FileDataSource) datsrc).getFile();
+            return createBgzfFactory( bgzfFile, offset, leng );
+        }
         else {
             if ( isFile ) {
                 logger_.warning( "Can't map compressed file " + datsrc.getName()
@@ -169,6 +176,80 @@ public abstract class InputFactory implements Closeable {
         }
     }
 
+    /**
+     * Constructs an instance of this class to read a gzipped file
+     * in the blocked BGZF format.
+     * An index of the compressed blocks is constructed,
+     * which permits random access.
+     *
+     * @param  bgzfFile  BGZF-format gzipped file
+     * @param   offset   offset into uncompressed stream of input start
+     * @param   leng  number of uncompressed bytes in stream
+     * @return  new instance
+     */
+    public static InputFactory createBgzfFactory( File bgzfFile,
+                                                  final long offset,
+                                                  final long leng )
+            throws IOException {
+        final File file = bgzfFile;
+        RandomAccessFile raf = new RandomAccessFile( file, "r" );
+        final FileChannel chan = raf.getChannel();
+        final BgzfIndex index;
+        try {
+            index = BgzfIndex.createIndex( chan );
+        }
+        catch ( IOException e ) {
+            chan.close();
+            throw e;
+        }
+        logger_.info( "Will read BGZF blocks: " + file + " ("
+                    + index.getBlockCount() + " blocks)" );
+        return new AbstractInputFactory( true ) {
+            public BasicInput createInput( boolean isSeq )
+                    throws IOException {
+                int iblock = index.getBlockIndex( offset );
+
+                /* For sequential access, start a stream at the block
+                 * containing the start offset, so that the following
+                 * blocks can be decompressed in parallel. */
+                if ( isSeq && iblock >= 0 ) {
+                    InputStream baseIn = new FileInputStream( file );
+                    IOUtils.skip( baseIn, index.getCompressedOffset( iblock ) );
+                    InputStream in = Compression.GZIP.decompress( baseIn );
+                    IOUtils.skip( in, offset
+                                    - index.getUncompressedOffset( iblock ) );
+                    DataInputStream dataIn =
+                        new DataInputStream( new BufferedInputStream( in ) );
+                    return createSequentialInput( dataIn );
+                }
+                else {
+                    return new BgzfInput( chan, index, offset, leng );
+                }
+            }
+            public void close() throws IOException {
+                chan.close();
+            }
+        };
+    }
+
+    /**
+     * Indicates whether a file is gzipped in the blocked BGZF format.
+     *
+     * @param  file  file
+     * @return   true iff the file starts with a BGZF block
+     */
+    private static boolean isBgzf( File file ) throws IOException {
+        byte[] header = new byte[ BgzfIndex.HEADER_SIZE ];
+        InputStream in = new FileInputStream( file );
+        try {
+            return in.read( header ) == header.length
+                && BgzfIndex.isBgzf( header );
+        }
+        finally {
+            in.close();
+        }
+    }
+
     /**
      * Returns a non-random-access BasicInput based on a supplied input stream.
      * The result is just an adapter wrapping the supplied DataInput.
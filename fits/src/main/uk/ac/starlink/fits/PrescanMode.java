@@ -0,0 +1,87 @@
+package uk.ac.starlink.fits;
+
+import java.util.logging.Logger;
+
+/**
+ * Determines how a FITS table serializer finds out the things about
+ * a table it needs to know before it can write the header,
+ * but which may not be available from the table metadata.
+ * These are the row count, the maximum widths of variable-length
+ * string and array columns, and whether nullable integer columns
+ * actually contain null values.
+ * Finding them out in general requires a first pass through the data,
+ * which for large tables may take as long as writing it.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ * @see      StandardFitsTableSerializer
+ */
+public enum PrescanMode {
+
+    /**
+     * A first pass is made through the data whenever required
+     * information is missing from the metadata.
+     */
+    FULL,
+
+    /**
+     * Declared metadata is trusted, and a first pass is avoided
+     * where possible.  Nullable integer columns without a declared
+     * blank value are assumed to contain nulls, so a default blank value
+     * is declared for them without checking.  A first pass is still
+     * made if the row count or column widths are unknown.
+     */
+    TRUST,
+
+    /**
+     * Like {@link #TRUST}, but if a first pass is still required and
+     * the table has been read directly from a local file,
+     * the statistics it gathers are cached persistently,
+     * and reused if the same table is written again.
+     * When cached statistics are used, the data is checked against them
+     * as it is written, and an error results if they are found to be
+     * out of date.
+     */
+    CACHE;
+
+    /**
+     * Name of the system property which determines the default mode.
+     * Its value may be the name of one of the modes, case-insensitive.
+     * If not set, the default is {@link #FULL}.
+     */
+    public static final String PRESCAN_PROPERTY = "startable.fits.prescan";
+
+    /**
+     * Name of the system property giving the directory in which
+     * column statistics are cached for {@link #CACHE} mode.
+     * If not set, java.io.tmpdir is used.
+     */
+    public static final String STATSDIR_PROPERTY = "startable.fits.statsdir";
+
+    /**
+     * Returns the default mode.
+     * This is determined by the {@link #PRESCAN_PROPERTY} system property.
+     *
+     * @return  default prescan mode
+     */
+    public static PrescanMode getDefault() {
+        String name;
+        try {
+            name = System.getProperty( PRESCAN_PROPERTY );
+        }
+        catch ( SecurityException e ) {
+            name = null;
+        }
+        if ( name != null && name.trim().length() > 0 ) {
+            for ( PrescanMode mode : values() ) {
+                if ( mode.name().equalsIgnoreCase( name.trim() ) ) {
+                    return mode;
+                }
+            }
+            Logger.getLogger( "uk.ac.starlink.fits" )
+                  .warning( "Unknown " + PRESCAN_PROPERTY + " value \""
+                          + name + "\"; using " + FULL );
+        }
+        return FULL;
+    }
+}
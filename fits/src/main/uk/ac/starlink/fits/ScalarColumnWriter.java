@@ -133,7 +133,6 @@ abstract class ScalarColumnWriter implements ColumnWriter {
             /* Byte is a bit tricky since a FITS byte is unsigned, while
              * a byte in a StarTable (a java byte) is signed. */
             if ( allowSignedByte ) {
-                final byte[] buf = new byte[ 1 ];
                 final byte badVal = blankNum == null ? (byte) 0
                                                      : blankNum.byteValue();
                 return new ScalarColumnWriter( 'B', 1,
@@ -143,8 +142,7 @@ abstract class ScalarColumnWriter implements ColumnWriter {
                             throws IOException {
                         byte b = (value != null) ? ((Number) value).byteValue()
                                                  : badVal;
-                        buf[ 0 ] = (byte) ( b ^ (byte) 0x80 );
-                        stream.write( buf );
+                        stream.writeByte( b ^ (byte) 0x80 );
                     }
                     public double getZero() {
                         return -128.0;
@@ -3,6 +3,7 @@ package uk.ac.starlink.fits;
 import java.io.EOFException;
 import java.io.IOException;
 import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.logging.Logger;
@@ -130,6 +131,23 @@ public class SimpleMappedInput implements BasicInput {
         }
     }
 
+    /**
+     * Returns a buffer giving bulk access to a given number of bytes
+     * starting at the current position, and advances the position
+     * past them.  The bytes start at the returned buffer's position.
+     *
+     * @param  count  number of bytes required
+     * @return  buffer view of mapped bytes
+     */
+    ByteBuffer readBuffer( int count ) throws EOFException {
+        if ( niobuf_.remaining() < count ) {
+            throw new EOFException();
+        }
+        ByteBuffer buf = niobuf_.slice();
+        niobuf_.position( niobuf_.position() + count );
+        return buf;
+    }
+
     public void close() {
         MappedByteBuffer niobuf = niobuf_;
         niobuf_ = null;
@@ -1,8 +1,12 @@
 package uk.ac.starlink.fits;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 import java.util.logging.Logger;
 import nom.tam.fits.FitsException;
@@ -10,7 +14,10 @@ import nom.tam.fits.Header;
 import nom.tam.fits.HeaderCardException;
 import uk.ac.starlink.table.ColumnInfo;
 import uk.ac.starlink.table.DescribedValue;
+import uk.ac.starlink.table.RowCollector;
+import uk.ac.starlink.table.RowRunner;
 import uk.ac.starlink.table.RowSequence;
+import uk.ac.starlink.table.RowSplittable;
 import uk.ac.starlink.table.StarTable;
 import uk.ac.starlink.table.Tables;
 
@@ -21,6 +28,19 @@ import uk.ac.starlink.table.Tables;
  * Array-valued columns are all written as fixed size arrays.
  * This class does the hard work for FitsTableWriter.
  *
+ * <p>Since all rows have the same length, when writing a random-access
+ * table to a file the data can be written in parallel:
+ * disjoint row ranges are encoded on separate threads and written
+ * to their known positions in the file.
+ * This happens if the output supplied to {@link #writeData} is the
+ * one set up for file output by {@link AbstractFitsTableWriter},
+ * and if the configured {@link #setRowRunner RowRunner}
+ * uses multiple threads.
+ *
+ * <p>The {@link PrescanMode} determines whether a first pass through
+ * the data is made to find out things like maximum string lengths
+ * that are not supplied by the table metadata.
+ *
  * @author   Mark Taylor (Starlink)
  */
 public class StandardFitsTableSerializer implements FitsTableSerializer {
@@ -33,6 +53,12 @@ public class StandardFitsTableSerializer implements FitsTableSerializer {
     private ColumnWriter[] colWriters;
     private ColumnInfo[] colInfos;
     private long rowCount;
+    private RowRunner rowRunner = RowRunner.DEFAULT;
+    private PrescanMode prescanMode = PrescanMode.FULL;
+    private ColumnStatsCache.RowChecker rowChecker;
+
+    /** Approximate size in bytes of blocks written in parallel mode. */
+    private static final int PARALLEL_BLOCK_BYTES = 1024 * 1024;
 
     /**
      * Package-private constructor intended for use by subclasses.
@@ -64,7 +90,31 @@ public class StandardFitsTableSerializer implements FitsTableSerializer {
     public StandardFitsTableSerializer( StarTable table,
                                         boolean allowSignedByte, WideFits wide )
             throws IOException {
+        this( table, allowSignedByte, wide, PrescanMode.getDefault() );
+    }
+
+    /**
+     * Constructs a serializer to write a given StarTable, with explicit
+     * instruction about how to gather the information required
+     * before the data can be written.
+     *
+     * @param  table  the table to be written
+     * @param  allowSignedByte  if true, bytes written as FITS signed bytes
+     *         (TZERO=-128), if false bytes written as signed shorts
+     * @param   wide   convention for representing over-wide tables;
+     *                 null to avoid this convention
+     * @param   prescanMode  determines how a first pass through the data
+     *                       is avoided; null means FULL
+     * @throws IOException if it won't be possible to write the given table
+     */
+    public StandardFitsTableSerializer( StarTable table,
+                                        boolean allowSignedByte, WideFits wide,
+                                        PrescanMode prescanMode )
+            throws IOException {
         this( allowSignedByte, wide );
+        if ( prescanMode != null ) {
+            this.prescanMode = prescanMode;
+        }
         init( table );
     }
 
@@ -160,10 +210,56 @@ public class StandardFitsTableSerializer implements FitsTableSerializer {
             }
         }
 
-        /* If necessary, make a first pass through the table data to
+        /* Unless told to do a full scan, don't make a pass just to find
+         * out whether nullable integer columns contain nulls; assume
+         * they do.  The cost is that a non-null value equal to the
+         * chosen blank value will be read back as null. */
+        if ( checkForNullableInts && prescanMode != PrescanMode.FULL ) {
+            for ( int icol = 0; icol < ncol; icol++ ) {
+                if ( mayHaveNullableInts[ icol ] ) {
+                    hasNulls[ icol ] = true;
+                }
+            }
+            checkForNullableInts = false;
+        }
+        boolean needScan = hasVarShapes || checkForNullableInts || nrow < 0;
+
+        /* If a first pass is required, see if its results are available
+         * from a previous run. */
+        ColumnStatsCache statsCache = null;
+        ColumnStatsCache.Stats cachedStats = null;
+        if ( needScan && prescanMode == PrescanMode.CACHE ) {
+            statsCache = ColumnStatsCache.getCache( table );
+            if ( statsCache != null ) {
+                cachedStats = statsCache.readStats();
+            }
+        }
+        if ( cachedStats != null ) {
+            nrow = cachedStats.nrow_;
+            boolean[] noNulls = new boolean[ ncol ];
+            for ( int icol = 0; icol < ncol; icol++ ) {
+                if ( varChars[ icol ] || varElementChars[ icol ] ) {
+                    maxChars[ icol ] = cachedStats.maxChars_[ icol ];
+                }
+                if ( varShapes[ icol ] ) {
+                    maxElements[ icol ] = cachedStats.maxElements_[ icol ];
+                    totalElements[ icol ] = cachedStats.totalElements_[ icol ];
+                }
+                if ( mayHaveNullableInts[ icol ] && ! hasNulls[ icol ] ) {
+                    hasNulls[ icol ] = cachedStats.hasNulls_[ icol ];
+                    noNulls[ icol ] = ! hasNulls[ icol ];
+                }
+            }
+            rowChecker =
+                new ColumnStatsCache.RowChecker( cachedStats, varChars,
+                                                 varElementChars, varShapes,
+                                                 noNulls );
+        }
+
+        /* Otherwise if necessary, make a first pass through the table data to
          * find out the maximum size of variable length fields and the length
          * of the table. */
-        if ( hasVarShapes || checkForNullableInts || nrow < 0 ) {
+        else if ( needScan ) {
             StringBuffer sbuf = new StringBuffer( "First pass needed: " );
             if ( hasVarShapes ) {
                 sbuf.append( "(variable array shapes) " );
@@ -224,6 +320,24 @@ public class StandardFitsTableSerializer implements FitsTableSerializer {
                 rseq.close();
             }
 
+            /* Save the results for next time if required. */
+            if ( statsCache != null ) {
+                ColumnStatsCache.Stats stats =
+                    new ColumnStatsCache.Stats( ncol );
+                stats.nrow_ = nrow;
+                System.arraycopy( maxChars, 0, stats.maxChars_, 0, ncol );
+                System.arraycopy( maxElements, 0, stats.maxElements_, 0,
+                                  ncol );
+                System.arraycopy( totalElements, 0, stats.totalElements_, 0,
+                                  ncol );
+                System.arraycopy( hasNulls, 0, stats.hasNulls_, 0, ncol );
+                statsCache.writeStats( stats );
+            }
+        }
+
+        /* Tidy up values that have been gathered from the data. */
+        if ( needScan ) {
+
             /* In the case of variable string lengths and no non-null data
              * in any of the cells, maxChars could still be set negative.
              * Fix that here. */
@@ -313,6 +427,39 @@ public class StandardFitsTableSerializer implements FitsTableSerializer {
         return colWriters;
     }
 
+    /**
+     * Sets the row runner which controls whether and how table data
+     * is written in parallel.
+     * A runner with a single thread, or null, means that the data
+     * is always written sequentially.
+     * The default is {@link uk.ac.starlink.table.RowRunner#DEFAULT}.
+     *
+     * @param  rowRunner  row runner, or null
+     */
+    public void setRowRunner( RowRunner rowRunner ) {
+        this.rowRunner = rowRunner;
+    }
+
+    /**
+     * Returns the row runner which controls parallel writing.
+     *
+     * @return  row runner, may be null
+     */
+    public RowRunner getRowRunner() {
+        return rowRunner;
+    }
+
+    /**
+     * Indicates whether the data may be written in parallel.
+     * This requires the column writers to be usable from multiple
+     * threads.  The StandardFitsTableSerializer implementation returns true.
+     *
+     * @return  true iff parallel writing is permitted
+     */
+    boolean isParallelWritable() {
+        return true;
+    }
+
     public Header getHeader() throws HeaderCardException {
 
         /* Work out the dimensions in columns and bytes of the table. */
@@ -504,23 +651,40 @@ public class StandardFitsTableSerializer implements FitsTableSerializer {
         }
 
         /* Write the data cells, delegating the item in each column to
-         * the writer that knows how to handle it. */
+         * the writer that knows how to handle it.  If possible, do it
+         * in parallel direct to the output file. */
         long nWritten = 0L;
-        RowSequence rseq = table.getRowSequence();
-        try {
-            while ( rseq.next() ) {
-                Object[] row = rseq.getRow();
-                for ( int icol = 0; icol < ncol; icol++ ) {
-                    ColumnWriter writer = colWriters[ icol ];
-                    if ( writer != null ) {
-                        writer.writeValue( strm, row[ icol ] );
+        if ( strm instanceof ChannelDataOutput &&
+             rowRunner != null && rowRunner.getThreadCount() > 1 &&
+             table.isRandom() && isParallelWritable() ) {
+            nWritten = writeDataParallel( (ChannelDataOutput) strm, rowBytes );
+        }
+        else {
+            RowSequence rseq = table.getRowSequence();
+            try {
+                long irow = 0;
+                while ( rseq.next() ) {
+                    Object[] row = rseq.getRow();
+                    if ( rowChecker != null ) {
+                        rowChecker.checkRow( row );
+                    }
+                    for ( int icol = 0; icol < ncol; icol++ ) {
+                        ColumnWriter writer = colWriters[ icol ];
+                        if ( writer != null ) {
+                            writer.writeValue( strm, row[ icol ] );
+                        }
                     }
+                    nWritten += rowBytes;
+                    irow++;
+                }
+                if ( rowChecker != null && irow != rowCount ) {
+                    throw new IOException( "Cached row count out of date ("
+                                         + rowCount + " != " + irow + ")" );
                 }
-                nWritten += rowBytes;
             }
-        }
-        finally {
-            rseq.close();
+            finally {
+                rseq.close();
+            }
         }
 
         /* Write padding. */
@@ -530,6 +694,36 @@ public class StandardFitsTableSerializer implements FitsTableSerializer {
         }
     }
 
+    /**
+     * Writes the table data cells using multiple threads.
+     * Row ranges are encoded into byte blocks on separate threads,
+     * and each block is written to its position in the file using
+     * positional writes.  On exit the channel is positioned at the end
+     * of the data.  No padding is written.
+     *
+     * @param  out  output stream; must be positioned at the start of the
+     *              data, but may contain unflushed bytes
+     * @param  rowBytes  number of bytes per row
+     * @return   number of bytes written
+     */
+    private long writeDataParallel( ChannelDataOutput out, int rowBytes )
+            throws IOException {
+        out.flush();
+        FileChannel chan = out.getChannel();
+        long pos0 = chan.position();
+        long nrow = rowRunner
+                   .collect( new DataCollector( colWriters, rowChecker,
+                                                rowCount, rowBytes,
+                                                chan, pos0 ), table )[ 0 ];
+        if ( nrow != rowCount ) {
+            throw new IOException( "Table row count changed during write ("
+                                 + rowCount + " -> " + nrow + ")" );
+        }
+        long nWritten = nrow * rowBytes;
+        chan.position( pos0 + nWritten );
+        return nWritten;
+    }
+
     public char getFormatChar( int icol ) {
         if ( colWriters[ icol ] == null ) {
             return (char) 0;
@@ -588,29 +782,14 @@ public class StandardFitsTableSerializer implements FitsTableSerializer {
         if ( clazz == String.class ) {
             final int maxChars = eSize;
             final int[] dims = new int[] { maxChars };
-            final byte[] buf = new byte[ maxChars ];
             final byte[] blankBuf = new byte[ maxChars ];
             final byte padByte = (byte) ' ';
             Arrays.fill( blankBuf, padByte );
             return new ColumnWriter() {
                 public void writeValue( DataOutput out, Object value )
                         throws IOException {
-                    final byte[] bytes;
-                    if ( value == null ) {
-                        bytes = blankBuf;
-                    }
-                    else {
-                        bytes = buf;
-                        String sval = (String) value;
-                        int leng = Math.min( sval.length(), maxChars );
-                        for ( int i = 0; i < leng; i++ ) {
-                            bytes[ i ] = (byte) sval.charAt( i );
-                        }
-                        for ( int i = leng; i < maxChars; i++ ) {
-                            bytes[ i ] = padByte;
-                        }
-                    }
-                    out.write( bytes );
+                    writePaddedString( out, (String) value, maxChars,
+                                       blankBuf );
                 }
                 public String getFormat() {
                     return Integer.toString( maxChars ) + 'A';
@@ -640,8 +819,8 @@ public class StandardFitsTableSerializer implements FitsTableSerializer {
             final int[] charDims = new int[ shape.length + 1 ];
             charDims[ 0 ] = maxChars;
             System.arraycopy( shape, 0, charDims, 1, shape.length );
-            final byte[] buf = new byte[ maxChars ];
-            final byte padByte = (byte) ' ';
+            final byte[] blankBuf = new byte[ maxChars ];
+            Arrays.fill( blankBuf, (byte) ' ' );
             return new ColumnWriter() {
                 public void writeValue( DataOutput out, Object value )
                         throws IOException {
@@ -650,23 +829,12 @@ public class StandardFitsTableSerializer implements FitsTableSerializer {
                         String[] svals = (String[]) value;
                         int leng = Math.min( svals.length, maxEls );
                         for ( ; is < leng; is++ ) {
-                            String str = svals[ is ];
-                            int ic = 0;
-                            if ( str != null ) {
-                                int sleng = Math.min( str.length(), maxChars );
-                                for ( ; ic < sleng; ic++ ) {
-                                    buf[ ic ] = (byte) str.charAt( ic );
-                                }
-                            }
-                            Arrays.fill( buf, ic, maxChars, padByte );
-                            out.write( buf );
+                            writePaddedString( out, svals[ is ], maxChars,
+                                               blankBuf );
                         }
                     }
-                    if ( is < maxEls ) {
-                        Arrays.fill( buf, padByte );
-                        for ( ; is < maxEls; is++ ) {
-                            out.write( buf );
-                        }
+                    for ( ; is < maxEls; is++ ) {
+                        out.write( blankBuf );
                     }
                 }
                 public String getFormat() {
@@ -712,6 +880,157 @@ public class StandardFitsTableSerializer implements FitsTableSerializer {
         }
     }
 
+    /**
+     * Writes a string as a fixed-length field of single-byte characters,
+     * truncating it or padding it with blanks as required.
+     * No scratch buffer is used, so this is safe to call concurrently.
+     *
+     * @param  out  destination
+     * @param  sval  string value, may be null
+     * @param  maxChars  field length in bytes
+     * @param  blankBuf  buffer of at least <code>maxChars</code> blanks;
+     *                   not modified
+     */
+    private static void writePaddedString( DataOutput out, String sval,
+                                           int maxChars, byte[] blankBuf )
+            throws IOException {
+        int leng = 0;
+        if ( sval != null ) {
+            leng = Math.min( sval.length(), maxChars );
+            out.writeBytes( leng < sval.length() ? sval.substring( 0, leng )
+                                                 : sval );
+        }
+        out.write( blankBuf, 0, maxChars - leng );
+    }
+
+    /**
+     * RowCollector which encodes rows and writes them to their positions
+     * in an output file.  The accumulator is a one-element array
+     * giving the number of rows written.
+     */
+    private static class DataCollector extends RowCollector<long[]> {
+
+        private final ColumnWriter[] colWriters_;
+        private final ColumnStatsCache.RowChecker rowChecker_;
+        private final long nrow_;
+        private final int rowBytes_;
+        private final FileChannel chan_;
+        private final long pos0_;
+        private final int blockRows_;
+
+        /**
+         * Constructor.
+         *
+         * @param  colWriters  column writers, null for unwritten columns
+         * @param  rowChecker  checks rows before writing, or null
+         * @param  nrow   number of rows in table
+         * @param  rowBytes   number of bytes per row
+         * @param  chan   output file channel
+         * @param  pos0   file position of first row
+         */
+        DataCollector( ColumnWriter[] colWriters,
+                       ColumnStatsCache.RowChecker rowChecker,
+                       long nrow, int rowBytes, FileChannel chan, long pos0 ) {
+            colWriters_ = colWriters;
+            rowChecker_ = rowChecker;
+            nrow_ = nrow;
+            rowBytes_ = rowBytes;
+            chan_ = chan;
+            pos0_ = pos0;
+            blockRows_ = Math.max( 1, PARALLEL_BLOCK_BYTES
+                                    / Math.max( 1, rowBytes ) );
+        }
+
+        public long[] createAccumulator() {
+            return new long[ 1 ];
+        }
+
+        public long[] combine( long[] acc1, long[] acc2 ) {
+            acc1[ 0 ] += acc2[ 0 ];
+            return acc1;
+        }
+
+        public void accumulateRows( RowSplittable rseq, long[] acc )
+                throws IOException {
+            int ncol = colWriters_.length;
+            BlockBuffer buf = new BlockBuffer( blockRows_ * rowBytes_ );
+            DataOutputStream dout = new DataOutputStream( buf );
+            long irow0 = -1;
+            int nr = 0;
+            while ( rseq.next() ) {
+                if ( nr == 0 ) {
+                    irow0 = rseq.getRowIndex();
+                    if ( irow0 < 0 ) {
+                        throw new IOException( "Row index not known" );
+                    }
+                }
+                Object[] row = rseq.getRow();
+                if ( rowChecker_ != null ) {
+                    rowChecker_.checkRow( row );
+                }
+                for ( int icol = 0; icol < ncol; icol++ ) {
+                    ColumnWriter writer = colWriters_[ icol ];
+                    if ( writer != null ) {
+                        writer.writeValue( dout, row[ icol ] );
+                    }
+                }
+                if ( ++nr == blockRows_ ) {
+                    writeBlock( buf, irow0, nr );
+                    acc[ 0 ] += nr;
+                    nr = 0;
+                }
+            }
+            if ( nr > 0 ) {
+                writeBlock( buf, irow0, nr );
+                acc[ 0 ] += nr;
+            }
+        }
+
+        /**
+         * Writes the contents of a buffer to the output file and resets it.
+         *
+         * @param  buf  buffer containing encoded rows
+         * @param  irow0  index of the first row in the buffer
+         * @param  nr   number of rows in the buffer
+         */
+        private void writeBlock( BlockBuffer buf, long irow0, int nr )
+                throws IOException {
+            if ( irow0 + nr > nrow_ ) {
+                throw new IOException( "Table row count changed during write" );
+            }
+            ByteBuffer bbuf = buf.toByteBuffer();
+            long pos = pos0_ + irow0 * rowBytes_;
+            while ( bbuf.hasRemaining() ) {
+                pos += chan_.write( bbuf, pos );
+            }
+            buf.reset();
+        }
+    }
+
+    /**
+     * ByteArrayOutputStream which can expose its content without copying.
+     */
+    private static class BlockBuffer extends ByteArrayOutputStream {
+
+        /**
+         * Constructor.
+         *
+         * @param  size  initial capacity
+         */
+        BlockBuffer( int size ) {
+            super( size );
+        }
+
+        /**
+         * Returns a buffer view of the current content.
+         *
+         * @return  buffer wrapping this object's internal array
+         */
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap( buf, 0, count );
+        }
+    }
+
     /**
      * ColumnWriter implementation for arrays with fixed sizes.
      */
@@ -145,6 +145,13 @@ public class VariableFitsTableSerializer extends StandardFitsTableSerializer {
         return count;
     }
 
+    /**
+     * Returns false, since the heap must be written in row order.
+     */
+    boolean isParallelWritable() {
+        return false;
+    }
+
     public void writeData( DataOutput out ) throws IOException {
         VariableArrayColumnWriter[] vcws = getVariableArrayColumnWriters();
         ByteStore byteStore = storagePolicy_.makeByteStore();
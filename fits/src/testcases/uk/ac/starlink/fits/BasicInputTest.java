@@ -1,6 +1,7 @@
 package uk.ac.starlink.fits;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
@@ -10,16 +11,20 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import junit.framework.TestCase;
 import nom.tam.util.BufferedDataInputStream;
 import nom.tam.util.BufferedFile;
+import uk.ac.starlink.util.IOUtils;
 
 public class BasicInputTest extends TestCase {
 
@@ -69,6 +74,15 @@ public class BasicInputTest extends TestCase {
         exerciseInput( BlockMappedInput
                       .createInput( chan, off1, leng1, "test", leng1*2, 0 ) );
 
+        File gzFile = writeBgzf( file, 50 );
+        InputFactory bgzfFact =
+            InputFactory.createBgzfFactory( gzFile, off1, leng1 );
+        assertTrue( bgzfFact.isRandom() );
+        exerciseInput( bgzfFact.createInput( false ) );
+        exerciseInput( bgzfFact.createInput( true ) );
+        bgzfFact.close();
+        gzFile.delete();
+
         // Note this one fails: the EOFException is not thrown at the
         // right place.  Hmm.
 //      exerciseInput( seqOffInput( off1,
@@ -118,6 +132,26 @@ public class BasicInputTest extends TestCase {
             catch ( EOFException e ) {
                 // ok
             }
+
+            /* Bulk access for mapped inputs. */
+            if ( in instanceof SimpleMappedInput ||
+                 in instanceof BlockMappedInput ) {
+                int nr = 4;
+                for ( int i1 = 0; i1 < count - nr; i1++ ) {
+                    int pos = isiz * i1 + 3;
+                    in.seek( pos );
+                    int nb = isiz * ( nr - 1 ) + 4;
+                    ByteBuffer bbuf = in instanceof SimpleMappedInput
+                                    ? ((SimpleMappedInput) in).readBuffer( nb )
+                                    : ((BlockMappedInput) in).readBuffer( nb );
+                    assertEquals( pos + nb, in.getOffset() );
+                    for ( int k = 0; k < nr; k++ ) {
+                        assertEquals( intFor( i1 + 1 + k ),
+                                      bbuf.getInt( bbuf.position()
+                                                 + k * isiz ) );
+                    }
+                }
+            }
         }
         in.close();
     }
@@ -129,6 +163,40 @@ public class BasicInputTest extends TestCase {
         return input;
     }
 
+    private static File writeBgzf( File file, int blocksize )
+            throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        IOUtils.copy( new FileInputStream( file ), bout );
+        byte[] data = bout.toByteArray();
+        File gzFile = File.createTempFile( "tmp", ".dat.gz" );
+        gzFile.deleteOnExit();
+        DataOutputStream out =
+            new DataOutputStream(
+                new BufferedOutputStream( new FileOutputStream( gzFile ) ) );
+        for ( int off = 0; off <= data.length; off += blocksize ) {
+            int len = Math.min( blocksize, data.length - off );
+            Deflater deflater = new Deflater( Deflater.BEST_SPEED, true );
+            deflater.setInput( data, off, len );
+            deflater.finish();
+            byte[] cbuf = new byte[ len + 1024 ];
+            int clen = 0;
+            while ( ! deflater.finished() ) {
+                clen += deflater.deflate( cbuf, clen, cbuf.length - clen );
+            }
+            deflater.end();
+            CRC32 crc = new CRC32();
+            crc.update( data, off, len );
+            out.write( new byte[] { 0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0,
+                                    (byte) 0xff, 6, 0, 'B', 'C', 2, 0 } );
+            out.writeShort( Short.reverseBytes( (short) ( clen + 25 ) ) );
+            out.write( cbuf, 0, clen );
+            out.writeInt( Integer.reverseBytes( (int) crc.getValue() ) );
+            out.writeInt( Integer.reverseBytes( len ) );
+        }
+        out.close();
+        return gzFile;
+    }
+
     private static byte byteFor( int i ) {
         return (byte) i;
     }
@@ -0,0 +1,104 @@
+package uk.ac.starlink.fits;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import uk.ac.starlink.table.ArrayColumn;
+import uk.ac.starlink.table.ColumnPermutedStarTable;
+import uk.ac.starlink.table.ColumnProjectable;
+import uk.ac.starlink.table.ColumnStarTable;
+import uk.ac.starlink.table.RowSequence;
+import uk.ac.starlink.table.StarTable;
+import uk.ac.starlink.table.StoragePolicy;
+import uk.ac.starlink.util.DataSource;
+import uk.ac.starlink.util.FileDataSource;
+import uk.ac.starlink.util.TestCase;
+import uk.ac.starlink.util.URLDataSource;
+
+public class BintableProjectionTest extends TestCase {
+
+    private static final int NROW = 500;
+
+    public BintableProjectionTest( String name ) {
+        super( name );
+    }
+
+    public void testProjection() throws IOException {
+        ColumnStarTable t0 = ColumnStarTable.makeTableWithRows( NROW );
+        long[] lvals = new long[ NROW ];
+        double[][] avals = new double[ NROW ][];
+        String[] svals = new String[ NROW ];
+        int[] ivals = new int[ NROW ];
+        for ( int i = 0; i < NROW; i++ ) {
+            lvals[ i ] = i;
+            avals[ i ] = new double[] { i, i + 1, i + 2 };
+            svals[ i ] = "row" + i;
+            ivals[ i ] = -i;
+        }
+        t0.addColumn( ArrayColumn.makeColumn( "l", lvals ) );
+        t0.addColumn( ArrayColumn.makeColumn( "a", avals ) );
+        t0.addColumn( ArrayColumn.makeColumn( "s", svals ) );
+        t0.addColumn( ArrayColumn.makeColumn( "i", ivals ) );
+
+        File f = File.createTempFile( "proj", ".fits" );
+        f.deleteOnExit();
+        OutputStream out = new FileOutputStream( f );
+        new FitsTableWriter().writeStarTable( t0, out );
+        out.close();
+
+        StarTable rtable = readTable( new FileDataSource( f ) );
+        assertTrue( rtable.isRandom() );
+        checkProjection( rtable );
+
+        StarTable stable = readTable( new URLDataSource( f.toURI()
+                                                          .toURL() ) );
+        assertTrue( ! stable.isRandom() );
+        checkProjection( stable );
+        f.delete();
+    }
+
+    private StarTable readTable( DataSource datsrc ) throws IOException {
+        StarTable table = new FitsTableBuilder()
+                         .makeStarTable( datsrc, false,
+                                         StoragePolicy.PREFER_MEMORY );
+        assertTrue( table instanceof BintableStarTable );
+        return table;
+    }
+
+    private void checkProjection( StarTable table ) throws IOException {
+
+        /* Direct use of the projected row sequence. */
+        RowSequence rseq = ((ColumnProjectable) table)
+                          .getProjectedRowSequence( new boolean[] {
+                               false, false, true, false } );
+        for ( int i = 0; i < NROW; i++ ) {
+            assertTrue( rseq.next() );
+            if ( i % 3 != 1 ) {
+                Object[] row = rseq.getRow();
+                assertEquals( 4, row.length );
+                assertNull( row[ 0 ] );
+                assertNull( row[ 1 ] );
+                assertEquals( "row" + i, row[ 2 ] );
+                assertNull( row[ 3 ] );
+            }
+        }
+        assertTrue( ! rseq.next() );
+        rseq.close();
+
+        /* Projection pushed down from a column permutation. */
+        StarTable ptable =
+            new ColumnPermutedStarTable( table, new int[] { 3, 0 } );
+        RowSequence pseq = ptable.getRowSequence();
+        for ( int i = 0; i < NROW; i++ ) {
+            assertTrue( pseq.next() );
+            Object[] row = pseq.getRow();
+            assertEquals( 2, row.length );
+            assertEquals( new Integer( -i ), row[ 0 ] );
+            assertEquals( new Long( i ), row[ 1 ] );
+            assertEquals( new Long( i ), pseq.getCell( 1 ) );
+        }
+        assertTrue( ! pseq.next() );
+        pseq.close();
+    }
+}
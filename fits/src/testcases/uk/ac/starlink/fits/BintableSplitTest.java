@@ -0,0 +1,162 @@
+package uk.ac.starlink.fits;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import uk.ac.starlink.table.ArrayColumn;
+import uk.ac.starlink.table.ColumnStarTable;
+import uk.ac.starlink.table.RowCollector;
+import uk.ac.starlink.table.RowRunner;
+import uk.ac.starlink.table.RowSplittable;
+import uk.ac.starlink.table.StarTable;
+import uk.ac.starlink.table.StarTableOutput;
+import uk.ac.starlink.table.StoragePolicy;
+import uk.ac.starlink.table.Tables;
+import uk.ac.starlink.util.FileDataSource;
+import uk.ac.starlink.util.IOUtils;
+import uk.ac.starlink.util.TestCase;
+
+public class BintableSplitTest extends TestCase {
+
+    public BintableSplitTest( String name ) {
+        super( name );
+    }
+
+    public void testSplit() throws IOException {
+        int nrow = 20000;
+        ColumnStarTable t0 = ColumnStarTable.makeTableWithRows( nrow );
+        long[] lvals = new long[ nrow ];
+        double[] dvals = new double[ nrow ];
+        String[] svals = new String[ nrow ];
+        for ( int i = 0; i < nrow; i++ ) {
+            lvals[ i ] = i;
+            dvals[ i ] = i * 0.5;
+            svals[ i ] = "s" + ( i % 100 );
+        }
+        t0.addColumn( ArrayColumn.makeColumn( "l", lvals ) );
+        t0.addColumn( ArrayColumn.makeColumn( "d", dvals ) );
+        t0.addColumn( ArrayColumn.makeColumn( "s", svals ) );
+
+        File f = File.createTempFile( "split", ".fits" );
+        f.deleteOnExit();
+        OutputStream out = new FileOutputStream( f );
+        new FitsTableWriter().writeStarTable( t0, out );
+        out.close();
+        StarTable t1 = new FitsTableBuilder()
+                      .makeStarTable( new FileDataSource( f ), false,
+                                      StoragePolicy.PREFER_MEMORY );
+        assertTrue( t1 instanceof BintableStarTable );
+        assertTrue( t1.isRandom() );
+        Tables.checkTable( t1 );
+
+        RowRunner runner = new RowRunner( 4, 1000 );
+        List<RowSplittable> splits =
+            runner.partition( t1.getRowSplittable() );
+        assertTrue( splits.size() > 1 );
+        long irow = 0;
+        for ( RowSplittable split : splits ) {
+            while ( split.next() ) {
+                assertEquals( irow, split.getRowIndex() );
+                assertEquals( new Long( irow ), split.getCell( 0 ) );
+                Object[] row = split.getRow();
+                assertEquals( new Double( irow * 0.5 ), row[ 1 ] );
+                assertEquals( "s" + ( irow % 100 ), row[ 2 ] );
+                irow++;
+            }
+            split.close();
+        }
+        assertEquals( nrow, irow );
+
+        long[] sums = runner.collect( new RowCollector<long[]>() {
+            public long[] createAccumulator() {
+                return new long[ 2 ];
+            }
+            public void accumulateRows( RowSplittable rseq, long[] acc )
+                    throws IOException {
+                while ( rseq.next() ) {
+                    acc[ 0 ]++;
+                    acc[ 1 ] += ((Number) rseq.getRow()[ 0 ]).longValue();
+                }
+            }
+            public long[] combine( long[] acc1, long[] acc2 ) {
+                acc1[ 0 ] += acc2[ 0 ];
+                acc1[ 1 ] += acc2[ 1 ];
+                return acc1;
+            }
+        }, t1 );
+        assertEquals( nrow, sums[ 0 ] );
+        assertEquals( (long) nrow * ( nrow - 1 ) / 2, sums[ 1 ] );
+        ((BintableStarTable) t1).close();
+        f.delete();
+    }
+
+    public void testParallelWrite() throws IOException {
+        int nrow = 5003;
+        ColumnStarTable t0 = ColumnStarTable.makeTableWithRows( nrow );
+        int[] ivals = new int[ nrow ];
+        byte[] bvals = new byte[ nrow ];
+        String[] svals = new String[ nrow ];
+        String[][] savals = new String[ nrow ][];
+        for ( int i = 0; i < nrow; i++ ) {
+            ivals[ i ] = i * 3;
+            bvals[ i ] = (byte) i;
+            svals[ i ] = i % 7 == 0 ? null : "s" + ( i % 1000 );
+            savals[ i ] = new String[] { "a" + i, i % 3 == 0 ? "" : "bb" };
+        }
+        t0.addColumn( ArrayColumn.makeColumn( "i", ivals ) );
+        t0.addColumn( ArrayColumn.makeColumn( "b", bvals ) );
+        t0.addColumn( ArrayColumn.makeColumn( "s", svals ) );
+        t0.addColumn( ArrayColumn.makeColumn( "sa", savals ) );
+        StarTable[] tables = new StarTable[] { t0, t0 };
+
+        FitsTableWriter writer = new FitsTableWriter();
+        File f0 = File.createTempFile( "seq", ".fits" );
+        f0.deleteOnExit();
+        OutputStream out = new FileOutputStream( f0 );
+        writer.writeStarTables( Tables.arrayTableSequence( tables ), out );
+        out.close();
+
+        writer.setRowRunner( new RowRunner( 4, 100 ) );
+        File f1 = File.createTempFile( "par", ".fits" );
+        f1.deleteOnExit();
+        writer.writeStarTables( Tables.arrayTableSequence( tables ),
+                                f1.getPath(), new StarTableOutput() );
+
+        byte[] buf0 = readCards( f0 );
+        byte[] buf1 = readCards( f1 );
+        assertEquals( buf0.length, buf1.length );
+        assertEquals( 0, buf0.length % 2880 );
+        assertArrayEquals( buf0, buf1 );
+        f0.delete();
+        f1.delete();
+    }
+
+    /**
+     * Reads the bytes of a FITS file, blanking out the DATE-HDU header
+     * cards, which may differ between otherwise identical files.
+     */
+    private static byte[] readCards( File file ) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        InputStream in = new FileInputStream( file );
+        IOUtils.copy( in, bout );
+        in.close();
+        byte[] buf = bout.toByteArray();
+        byte[] dateKey = "DATE-HDU".getBytes( "US-ASCII" );
+        for ( int off = 0; off + 80 <= buf.length; off += 80 ) {
+            boolean isDate = true;
+            for ( int i = 0; i < dateKey.length; i++ ) {
+                isDate = isDate && buf[ off + i ] == dateKey[ i ];
+            }
+            if ( isDate ) {
+                Arrays.fill( buf, off, off + 80, (byte) ' ' );
+            }
+        }
+        return buf;
+    }
+}
@@ -0,0 +1,152 @@
+package uk.ac.starlink.fits;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import uk.ac.starlink.table.ArrayColumn;
+import uk.ac.starlink.table.ColumnStarTable;
+import uk.ac.starlink.table.RowRunner;
+import uk.ac.starlink.table.RowSequence;
+import uk.ac.starlink.table.StarTable;
+import uk.ac.starlink.table.StarTableOutput;
+import uk.ac.starlink.table.StoragePolicy;
+import uk.ac.starlink.table.Tables;
+import uk.ac.starlink.util.FileDataSource;
+import uk.ac.starlink.util.IOUtils;
+import uk.ac.starlink.util.TestCase;
+
+public class ColFitsParallelTest extends TestCase {
+
+    public ColFitsParallelTest( String name ) {
+        super( name );
+    }
+
+    public void testParallel() throws IOException {
+        int nrow = 10007;
+        ColumnStarTable t0 = ColumnStarTable.makeTableWithRows( nrow );
+        int[] ivals = new int[ nrow ];
+        double[] dvals = new double[ nrow ];
+        short[] hvals = new short[ nrow ];
+        String[] svals = new String[ nrow ];
+        float[][] favals = new float[ nrow ][];
+        for ( int i = 0; i < nrow; i++ ) {
+            ivals[ i ] = i * 3;
+            dvals[ i ] = i * 0.25;
+            hvals[ i ] = (short) i;
+            svals[ i ] = i % 7 == 0 ? null : "s" + ( i % 1000 );
+            favals[ i ] = new float[] { i, -i };
+        }
+        t0.addColumn( ArrayColumn.makeColumn( "i", ivals ) );
+        t0.addColumn( ArrayColumn.makeColumn( "d", dvals ) );
+        t0.addColumn( ArrayColumn.makeColumn( "h", hvals ) );
+        t0.addColumn( ArrayColumn.makeColumn( "s", svals ) );
+        t0.addColumn( ArrayColumn.makeColumn( "fa", favals ) );
+
+        /* Sequential write to a stream. */
+        ColFitsTableWriter writer = new ColFitsTableWriter();
+        writer.setRowRunner( RowRunner.SEQUENTIAL );
+        File f0 = File.createTempFile( "seq", ".colfits" );
+        f0.deleteOnExit();
+        OutputStream out = new FileOutputStream( f0 );
+        writer.writeStarTable( t0, out );
+        out.close();
+
+        /* Parallel write to a file. */
+        writer.setRowRunner( new RowRunner( 4, 100 ) );
+        File f1 = File.createTempFile( "par", ".colfits" );
+        f1.deleteOnExit();
+        writer.writeStarTables( Tables.singleTableSequence( t0 ),
+                                f1.getPath(), new StarTableOutput() );
+        assertArrayEquals( readCards( f0 ), readCards( f1 ) );
+
+        /* Read back, using both full and projected row sequences. */
+        StarTable t1 = new ColFitsTableBuilder()
+                      .makeStarTable( new FileDataSource( f1 ), false,
+                                      StoragePolicy.PREFER_MEMORY );
+        assertTrue( t1 instanceof ColFitsStarTable );
+        ColFitsStarTable ct1 = (ColFitsStarTable) t1;
+        ct1.setRowRunner( new RowRunner( 4, 100 ) );
+        int ncol = t0.getColumnCount();
+        boolean[] allFlags = new boolean[ ncol ];
+        Arrays.fill( allFlags, true );
+        assertSameRows( t0, t1.getRowSequence(), allFlags );
+        assertSameRows( t0, ct1.getProjectedRowSequence( allFlags ),
+                        allFlags );
+        boolean[] someFlags = new boolean[] { true, false, true, true, false };
+        assertSameRows( t0, ct1.getProjectedRowSequence( someFlags ),
+                        someFlags );
+        boolean[] oneFlags = new boolean[] { false, true, false, false, false };
+        assertSameRows( t0, ct1.getProjectedRowSequence( oneFlags ),
+                        oneFlags );
+
+        /* Early close of a projected sequence. */
+        RowSequence rseq = ct1.getProjectedRowSequence( allFlags );
+        assertTrue( rseq.next() );
+        assertEquals( new Integer( 0 ), rseq.getCell( 0 ) );
+        rseq.close();
+
+        ct1.close();
+        f0.delete();
+        f1.delete();
+    }
+
+    private void assertSameRows( StarTable t0, RowSequence rseq,
+                                 boolean[] colFlags )
+            throws IOException {
+        int ncol = t0.getColumnCount();
+        long nrow = t0.getRowCount();
+        for ( long irow = 0; irow < nrow; irow++ ) {
+            assertTrue( rseq.next() );
+            Object[] row = rseq.getRow();
+            for ( int icol = 0; icol < ncol; icol++ ) {
+                if ( colFlags[ icol ] ) {
+                    Object cell0 = t0.getCell( irow, icol );
+                    assertScalarOrArrayEquals( cell0, row[ icol ] );
+                    assertScalarOrArrayEquals( cell0, rseq.getCell( icol ) );
+                }
+                else {
+                    assertNull( row[ icol ] );
+                }
+            }
+        }
+        assertFalse( rseq.next() );
+        rseq.close();
+    }
+
+    private void assertScalarOrArrayEquals( Object v0, Object v1 ) {
+        if ( v0 instanceof float[] ) {
+            assertArrayEquals( v0, v1 );
+        }
+        else {
+            assertEquals( v0, v1 );
+        }
+    }
+
+    /**
+     * Reads the bytes of a FITS file, blanking out the DATE-HDU header
+     * cards, which may differ between otherwise identical files.
+     */
+    private static byte[] readCards( File file ) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        InputStream in = new FileInputStream( file );
+        IOUtils.copy( in, bout );
+        in.close();
+        byte[] buf = bout.toByteArray();
+        byte[] dateKey = "DATE-HDU".getBytes( "US-ASCII" );
+        for ( int off = 0; off + 80 <= buf.length; off += 80 ) {
+            boolean isDate = true;
+            for ( int i = 0; i < dateKey.length; i++ ) {
+                isDate = isDate && buf[ off + i ] == dateKey[ i ];
+            }
+            if ( isDate ) {
+                Arrays.fill( buf, off, off + 80, (byte) ' ' );
+            }
+        }
+        return buf;
+    }
+}
@@ -20,6 +20,7 @@ import uk.ac.starlink.table.StarTableOutput;
 import uk.ac.starlink.table.StoragePolicy;
 import uk.ac.starlink.table.Tables;
 import uk.ac.starlink.table.formats.TextTableWriter;
+import uk.ac.starlink.table.storage.PrimitiveColumnAccess;
 import uk.ac.starlink.util.FileDataSource;
 import uk.ac.starlink.util.TestCase;
 import uk.ac.starlink.util.URLDataSource;
@@ -52,6 +53,7 @@ public class ColumnReaderTest extends TestCase {
         // new TextTableWriter().writeStarTable( inTable, System.out );
 
         checkIntegersTable( inTable );
+        checkPrimitiveAccess( (PrimitiveColumnAccess) inTable );
     }
 
     /**
@@ -123,6 +125,56 @@ public class ColumnReaderTest extends TestCase {
         rseq.close();
     }
 
+    /**
+     * Checks that block-decoded values match those read cell by cell.
+     *
+     * @param  access  random-access table
+     */
+    private void checkPrimitiveAccess( PrimitiveColumnAccess access )
+            throws IOException {
+        StarTable table = (StarTable) access;
+        int nrow = (int) table.getRowCount();
+        int ncol = table.getColumnCount();
+        int nread = 0;
+        for ( int icol = 0; icol < ncol; icol++ ) {
+            Class clazz = table.getColumnInfo( icol ).getContentClass();
+            boolean isNumber = Number.class.isAssignableFrom( clazz );
+            Class pclazz = access.getPrimitiveClass( icol );
+            assertEquals( isNumber, pclazz != null );
+            if ( isNumber ) {
+                boolean isInt = pclazz == long.class || pclazz == int.class
+                             || pclazz == short.class || pclazz == byte.class;
+                double[] dvals = new double[ nrow + 1 ];
+                access.readDoubles( icol, 0, dvals, 1, nrow );
+                double[] dvals2 = new double[ nrow - 1 ];
+                access.readDoubles( icol, 1, dvals2, 0, nrow - 1 );
+                boolean[] blanks = new boolean[ nrow ];
+                access.readBlanks( icol, 0, blanks, 0, nrow );
+                long[] lvals = new long[ nrow ];
+                if ( isInt ) {
+                    access.readLongs( icol, 0, lvals, 0, nrow );
+                }
+                for ( int irow = 0; irow < nrow; irow++ ) {
+                    Object cell = table.getCell( irow, icol );
+                    double dval = cell == null
+                                ? Double.NaN
+                                : ((Number) cell).doubleValue();
+                    assertEquals( dval, dvals[ irow + 1 ] );
+                    if ( irow > 0 ) {
+                        assertEquals( dval, dvals2[ irow - 1 ] );
+                    }
+                    assertEquals( Tables.isBlank( cell ), blanks[ irow ] );
+                    if ( isInt && cell != null ) {
+                        assertEquals( ((Number) cell).longValue(),
+                                      lvals[ irow ] );
+                    }
+                }
+                nread++;
+            }
+        }
+        assertTrue( nread > 10 );
+    }
+
     /**
      * Tests the contents of a table.
      * It succeeds only if every element in row I is either a Number with
@@ -0,0 +1,139 @@
+package uk.ac.starlink.fits;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.Arrays;
+import uk.ac.starlink.table.ArrayColumn;
+import uk.ac.starlink.table.ColumnStarTable;
+import uk.ac.starlink.table.StarTable;
+import uk.ac.starlink.table.WrapperStarTable;
+import uk.ac.starlink.util.TestCase;
+
+public class PrescanTest extends TestCase {
+
+    private File statsDir_;
+
+    public PrescanTest( String name ) {
+        super( name );
+    }
+
+    protected void setUp() throws IOException {
+        statsDir_ = File.createTempFile( "stats", ".d" );
+        statsDir_.delete();
+        statsDir_.mkdir();
+        System.setProperty( PrescanMode.STATSDIR_PROPERTY,
+                            statsDir_.getPath() );
+    }
+
+    protected void tearDown() {
+        System.clearProperty( PrescanMode.STATSDIR_PROPERTY );
+        File[] files = statsDir_.listFiles();
+        for ( int i = 0; i < files.length; i++ ) {
+            files[ i ].delete();
+        }
+        statsDir_.delete();
+    }
+
+    public void testModes() throws IOException {
+        int nrow = 300;
+        int[] ivals = new int[ nrow ];
+        String[] svals = new String[ nrow ];
+        for ( int i = 0; i < nrow; i++ ) {
+            ivals[ i ] = i;
+            svals[ i ] = "s" + i;
+        }
+        File dataFile = File.createTempFile( "data", ".txt" );
+        dataFile.deleteOnExit();
+        OutputStream out = new FileOutputStream( dataFile );
+        out.write( "dummy".getBytes( "US-ASCII" ) );
+        out.close();
+        ColumnStarTable table = ColumnStarTable.makeTableWithRows( nrow );
+        table.addColumn( ArrayColumn.makeColumn( "i", ivals ) );
+        table.addColumn( ArrayColumn.makeColumn( "s", svals ) );
+        table.setURL( dataFile.toURI().toURL() );
+
+        /* Full scan finds there are no nulls in the integer column. */
+        StandardFitsTableSerializer fullSer = createSerializer( table,
+                                                      PrescanMode.FULL );
+        assertNull( fullSer.getBadValue( 0 ) );
+        assertEquals( 4, fullSer.getColumnWriters()[ 1 ].getLength() );
+        byte[] fullData = writeData( fullSer );
+        assertEquals( 0, statsDir_.listFiles().length );
+
+        /* Trust mode assumes nulls but otherwise writes the same data. */
+        StandardFitsTableSerializer trustSer = createSerializer( table,
+                                                       PrescanMode.TRUST );
+        assertNotNull( trustSer.getBadValue( 0 ) );
+        assertEquals( 4, trustSer.getColumnWriters()[ 1 ].getLength() );
+        assertTrue( Arrays.equals( fullData, writeData( trustSer ) ) );
+        assertEquals( 0, statsDir_.listFiles().length );
+
+        /* Cache mode writes statistics the first time and reads them
+         * the second time. */
+        StandardFitsTableSerializer cacheSer1 = createSerializer( table,
+                                                       PrescanMode.CACHE );
+        assertEquals( 1, statsDir_.listFiles().length );
+        assertTrue( Arrays.equals( fullData, writeData( cacheSer1 ) ) );
+        StandardFitsTableSerializer cacheSer2 = createSerializer( table,
+                                                       PrescanMode.CACHE );
+        assertEquals( 1, statsDir_.listFiles().length );
+        assertEquals( nrow, cacheSer2.getRowCount() );
+        assertEquals( 4, cacheSer2.getColumnWriters()[ 1 ].getLength() );
+        assertTrue( Arrays.equals( fullData, writeData( cacheSer2 ) ) );
+
+        /* Wrapper tables are not cached. */
+        createSerializer( new WrapperStarTable( table ) {},
+                          PrescanMode.CACHE );
+        assertEquals( 1, statsDir_.listFiles().length );
+
+        /* Tables at different positions in the same file are cached
+         * separately. */
+        table.setURL( new URL( dataFile.toURI().toURL() + "#1" ) );
+        createSerializer( table, PrescanMode.CACHE );
+        assertEquals( 2, statsDir_.listFiles().length );
+        table.setURL( dataFile.toURI().toURL() );
+
+        /* Stale statistics are detected during the write. */
+        svals[ 10 ] = "a much longer string";
+        StandardFitsTableSerializer staleSer = createSerializer( table,
+                                                       PrescanMode.CACHE );
+        assertEquals( 4, staleSer.getColumnWriters()[ 1 ].getLength() );
+        try {
+            writeData( staleSer );
+            fail();
+        }
+        catch ( IOException e ) {
+            // ok
+        }
+
+        /* Modifying the file invalidates the cache. */
+        assertTrue( dataFile.setLastModified( dataFile.lastModified()
+                                            - 10000 ) );
+        StandardFitsTableSerializer newSer = createSerializer( table,
+                                                     PrescanMode.CACHE );
+        assertEquals( 20, newSer.getColumnWriters()[ 1 ].getLength() );
+        writeData( newSer );
+        dataFile.delete();
+    }
+
+    private static StandardFitsTableSerializer
+            createSerializer( StarTable table, PrescanMode mode )
+            throws IOException {
+        return new StandardFitsTableSerializer( table, true, WideFits.DEFAULT,
+                                                mode );
+    }
+
+    private static byte[] writeData( FitsTableSerializer ser )
+            throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        DataOutputStream dout = new DataOutputStream( bout );
+        ser.writeData( dout );
+        dout.flush();
+        return bout.toByteArray();
+    }
+}
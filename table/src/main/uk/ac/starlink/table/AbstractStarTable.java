@@ -168,6 +168,14 @@ public abstract class AbstractStarTable implements StarTable {
         return row;
     }
 
+    /**
+     * The <tt>AbstractStarTable</tt> implementation of this method
+     * returns the result of {@link Tables#getDefaultRowSplittable}.
+     */
+    public RowSplittable getRowSplittable() throws IOException {
+        return Tables.getDefaultRowSplittable( this );
+    }
+
     abstract public ColumnInfo getColumnInfo( int icol );
     abstract public int getColumnCount();
     abstract public long getRowCount();
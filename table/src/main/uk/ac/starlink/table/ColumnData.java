@@ -71,6 +71,102 @@ public abstract class ColumnData {
      */
     public abstract Object readValue( long irow ) throws IOException;
 
+    /**
+     * Indicates whether the typed read methods of this column,
+     * such as {@link #readDoubleValue}, are implemented so as to avoid
+     * creating objects.
+     * The implementation in the <tt>ColumnData</tt> class returns
+     * <tt>false</tt>.
+     *
+     * @return  true iff typed reads are efficient
+     */
+    public boolean hasPrimitiveValues() {
+        return false;
+    }
+
+    /**
+     * Indicates whether the value at a given row is null.
+     * The implementation in the <tt>ColumnData</tt> class
+     * uses {@link #readValue}.
+     *
+     * @param   irow  row index
+     * @return  true iff the value at <tt>irow</tt> is null
+     * @throws  IOException  if there is some problem reading
+     */
+    public boolean isNullValue( long irow ) throws IOException {
+        return readValue( irow ) == null;
+    }
+
+    /**
+     * Returns the value at a given row of a numeric column as a double.
+     * The implementation in the <tt>ColumnData</tt> class
+     * uses {@link #readValue}.
+     *
+     * @param   irow  row index
+     * @return  value, or NaN if null
+     * @throws  IOException  if there is some problem reading
+     */
+    public double readDoubleValue( long irow ) throws IOException {
+        Object val = readValue( irow );
+        return val == null ? Double.NaN : ((Number) val).doubleValue();
+    }
+
+    /**
+     * Returns the value at a given row of a numeric column as a float.
+     * The implementation in the <tt>ColumnData</tt> class
+     * uses {@link #readValue}.
+     *
+     * @param   irow  row index
+     * @return  value, or NaN if null
+     * @throws  IOException  if there is some problem reading
+     */
+    public float readFloatValue( long irow ) throws IOException {
+        Object val = readValue( irow );
+        return val == null ? Float.NaN : ((Number) val).floatValue();
+    }
+
+    /**
+     * Returns the value at a given row of a numeric column as a long.
+     * The implementation in the <tt>ColumnData</tt> class
+     * uses {@link #readValue}.
+     *
+     * @param   irow  row index
+     * @return  value; zero if null
+     * @throws  IOException  if there is some problem reading
+     */
+    public long readLongValue( long irow ) throws IOException {
+        Object val = readValue( irow );
+        return val == null ? 0L : ((Number) val).longValue();
+    }
+
+    /**
+     * Returns the value at a given row of a numeric column as an int.
+     * The implementation in the <tt>ColumnData</tt> class
+     * uses {@link #readValue}.
+     *
+     * @param   irow  row index
+     * @return  value; zero if null
+     * @throws  IOException  if there is some problem reading
+     */
+    public int readIntValue( long irow ) throws IOException {
+        Object val = readValue( irow );
+        return val == null ? 0 : ((Number) val).intValue();
+    }
+
+    /**
+     * Returns the value at a given row of a boolean column.
+     * The implementation in the <tt>ColumnData</tt> class
+     * uses {@link #readValue}.
+     *
+     * @param   irow  row index
+     * @return  value; false if null
+     * @throws  IOException  if there is some problem reading
+     */
+    public boolean readBooleanValue( long irow ) throws IOException {
+        Object val = readValue( irow );
+        return val != null && ((Boolean) val).booleanValue();
+    }
+
     /**
      * Stores a given value in a given row for this column.
      * Will only work if the <tt>isWritable</tt> method returns true.
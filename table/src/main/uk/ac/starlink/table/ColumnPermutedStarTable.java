@@ -1,6 +1,7 @@
 package uk.ac.starlink.table;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Wrapper table which provides a view of a base table in which the
@@ -33,9 +34,15 @@ import java.io.IOException;
  * in this table to the ratio of the columns in the base table
  * (the threshold is given by {@link #READROW_FRACTION}).
  *
+ * <p>If the base table implements {@link ColumnProjectable} and
+ * not all of its columns are used by this one, row sequences are
+ * obtained from the base table's projected row sequence, so that the
+ * values of unused columns are never read.
+ *
  * @author   Mark Taylor (Starlink)
  */
-public class ColumnPermutedStarTable extends WrapperStarTable {
+public class ColumnPermutedStarTable extends WrapperStarTable
+                                     implements ColumnProjectable {
 
     private int[] columnMap_;
     private boolean fixReadRow_;
@@ -121,6 +128,12 @@ public class ColumnPermutedStarTable extends WrapperStarTable {
 
     public RowSequence getRowSequence() throws IOException {
         final int ncol = getColumnCount();
+        boolean[] colFlags = new boolean[ ncol ];
+        Arrays.fill( colFlags, true );
+        RowSequence projSeq = createProjectedSequence( colFlags );
+        if ( projSeq != null ) {
+            return projSeq;
+        }
         return readRow_
              ? (RowSequence)
                new WrapperRowSequence( baseTable.getRowSequence() ) {
@@ -146,6 +159,13 @@ public class ColumnPermutedStarTable extends WrapperStarTable {
                };
     }
 
+    public RowSequence getProjectedRowSequence( boolean[] colFlags )
+            throws IOException {
+        RowSequence projSeq = createProjectedSequence( colFlags );
+        return projSeq == null ? getRowSequence()
+                               : projSeq;
+    }
+
     public Object getCell( long irow, int icol ) throws IOException {
         return baseTable.getCell( irow, columnMap_[ icol ] );
     }
@@ -164,6 +184,44 @@ public class ColumnPermutedStarTable extends WrapperStarTable {
         }
     }
 
+    /**
+     * Returns a row sequence which reads only those base table columns
+     * required for the selected columns of this table,
+     * if the base table supports that.
+     *
+     * @param  colFlags  flags indicating required columns of this table
+     * @return  projected row sequence, or null if projection is not
+     *          possible or would not read fewer columns
+     */
+    private RowSequence createProjectedSequence( boolean[] colFlags )
+            throws IOException {
+        if ( ! ( baseTable instanceof ColumnProjectable ) ) {
+            return null;
+        }
+        boolean[] baseFlags = new boolean[ baseTable.getColumnCount() ];
+        for ( int icol = 0; icol < columnMap_.length; icol++ ) {
+            if ( colFlags[ icol ] ) {
+                baseFlags[ columnMap_[ icol ] ] = true;
+            }
+        }
+        boolean isAll = true;
+        for ( int jcol = 0; jcol < baseFlags.length; jcol++ ) {
+            isAll = isAll && baseFlags[ jcol ];
+        }
+        if ( isAll ) {
+            return null;
+        }
+        return new WrapperRowSequence( ((ColumnProjectable) baseTable)
+                                      .getProjectedRowSequence( baseFlags ) ) {
+            public Object getCell( int icol ) throws IOException {
+                return baseSeq.getCell( columnMap_[ icol ] );
+            }
+            public Object[] getRow() throws IOException {
+                return permuteRow( baseSeq.getRow() );
+            }
+        };
+    }
+
     /**
      * Turns a row of the base table into a row of this table.
      *
@@ -0,0 +1,38 @@
+package uk.ac.starlink.table;
+
+import java.io.IOException;
+
+/**
+ * Interface for tables which can iterate over their rows more
+ * efficiently if only some of the columns are required.
+ * A table whose cells are stored row by row, such as a FITS binary table,
+ * may implement this so that the bytes for unwanted columns
+ * need not be decoded.
+ *
+ * <p>Wrapper tables which use only some of their base table's columns,
+ * such as {@link ColumnPermutedStarTable}, check whether the base
+ * table implements this interface, and if so push their column
+ * selection down to it.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+public interface ColumnProjectable extends StarTable {
+
+    /**
+     * Returns a row sequence which only reads the values of selected
+     * columns.  The sequence has the same rows as that returned by
+     * {@link #getRowSequence}, and arrays returned by its
+     * <code>getRow</code> method have one element for every column
+     * in this table, but the elements for unselected columns are null.
+     * The result of calling <code>getCell</code> for an unselected column
+     * is undefined.
+     *
+     * @param  colFlags  array with one element for each column of
+     *                   this table, true for columns whose values are
+     *                   required
+     * @return  row sequence reading only the selected columns
+     */
+    RowSequence getProjectedRowSequence( boolean[] colFlags )
+            throws IOException;
+}
@@ -3,6 +3,7 @@ package uk.ac.starlink.table;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import uk.ac.starlink.table.storage.PrimitiveColumnAccess;
 
 /**
  * A random-access StarTable that manages its data in columns.
@@ -16,10 +17,17 @@ import java.util.List;
  * {@link #getRowCount}. 
  * If you just need a <tt>ColumnStarTable</tt> with a fixed number of rows
  * you can use the static convenience method {@link #makeTableWithRows}.
+ * <p>
+ * The {@link uk.ac.starlink.table.storage.PrimitiveColumnAccess} methods
+ * are implemented using the typed read methods of the
+ * <tt>ColumnData</tt> objects, and are available for scalar numeric
+ * and boolean columns whose <tt>ColumnData</tt> reports
+ * {@link ColumnData#hasPrimitiveValues primitive values}.
  *
  * @author   Mark Taylor (Starlink)
  */
-public abstract class ColumnStarTable extends RandomStarTable {
+public abstract class ColumnStarTable extends RandomStarTable
+                                      implements PrimitiveColumnAccess {
 
     public List columns = new ArrayList();
 
@@ -63,6 +71,122 @@ public abstract class ColumnStarTable extends RandomStarTable {
         return getColumnData( icol ).readValue( lrow );
     }
 
+    public boolean isCellAccessEfficient() {
+        return true;
+    }
+
+    public Class getPrimitiveClass( int icol ) {
+        ColumnData colData = getColumnData( icol );
+        if ( ! colData.hasPrimitiveValues() ) {
+            return null;
+        }
+        Class clazz = colData.getColumnInfo().getContentClass();
+        if ( clazz == Double.class ) {
+            return double.class;
+        }
+        else if ( clazz == Float.class ) {
+            return float.class;
+        }
+        else if ( clazz == Long.class ) {
+            return long.class;
+        }
+        else if ( clazz == Integer.class ) {
+            return int.class;
+        }
+        else if ( clazz == Boolean.class ) {
+            return boolean.class;
+        }
+        else {
+            return null;
+        }
+    }
+
+    public void readDoubles( int icol, long irow, double[] dest, int off,
+                             int n )
+            throws IOException {
+        ColumnData colData = getColumnData( icol );
+        Class clazz = getPrimitiveClass( icol );
+        for ( int i = 0; i < n; i++ ) {
+            long lrow = irow + i;
+            final double dval;
+            if ( clazz == float.class ) {
+                dval = colData.readFloatValue( lrow );
+            }
+            else if ( clazz == long.class ) {
+                dval = colData.isNullValue( lrow )
+                     ? Double.NaN
+                     : colData.readLongValue( lrow );
+            }
+            else if ( clazz == int.class ) {
+                dval = colData.isNullValue( lrow )
+                     ? Double.NaN
+                     : colData.readIntValue( lrow );
+            }
+            else {
+                dval = colData.readDoubleValue( lrow );
+            }
+            dest[ off + i ] = dval;
+        }
+    }
+
+    public void readLongs( int icol, long irow, long[] dest, int off, int n )
+            throws IOException {
+        ColumnData colData = getColumnData( icol );
+        boolean isInt = getPrimitiveClass( icol ) == int.class;
+        for ( int i = 0; i < n; i++ ) {
+            long lrow = irow + i;
+            dest[ off + i ] = isInt ? colData.readIntValue( lrow )
+                                    : colData.readLongValue( lrow );
+        }
+    }
+
+    public void readBooleans( int icol, long irow, boolean[] dest, int off,
+                              int n )
+            throws IOException {
+        ColumnData colData = getColumnData( icol );
+        for ( int i = 0; i < n; i++ ) {
+            dest[ off + i ] = colData.readBooleanValue( irow + i );
+        }
+    }
+
+    public void readBlanks( int icol, long irow, boolean[] dest, int off,
+                            int n )
+            throws IOException {
+        ColumnData colData = getColumnData( icol );
+        Class clazz = getPrimitiveClass( icol );
+        for ( int i = 0; i < n; i++ ) {
+            long lrow = irow + i;
+            final boolean isBlank;
+            if ( clazz == double.class ) {
+                isBlank = Double.isNaN( colData.readDoubleValue( lrow ) );
+            }
+            else if ( clazz == float.class ) {
+                isBlank = Float.isNaN( colData.readFloatValue( lrow ) );
+            }
+            else {
+                isBlank = colData.isNullValue( lrow );
+            }
+            dest[ off + i ] = isBlank;
+        }
+    }
+
+    /**
+     * Returns a splittable which reads data directly from this
+     * table's <tt>ColumnData</tt> objects.
+     * The columns in use at the time of the call are used throughout
+     * the life of the returned object.
+     *
+     * @return  a splittable row iterator
+     */
+    public RowSplittable getRowSplittable() {
+        int ncol = getColumnCount();
+        ColumnData[] coldatas = new ColumnData[ ncol ];
+        for ( int icol = 0; icol < ncol; icol++ ) {
+            coldatas[ icol ] = getColumnData( icol );
+        }
+        return new ColumnRowSplittable( this, coldatas, 0, getRowCount() );
+    }
+
     /**
      * Stores an object in a given cell of the table.
      *
@@ -129,4 +253,45 @@ public abstract class ColumnStarTable extends RandomStarTable {
         };
     }
 
+    /**
+     * RowSplittable implementation which reads from a fixed array of
+     * ColumnData objects.
+     */
+    private static class ColumnRowSplittable extends RandomRowSplittable {
+        private final ColumnData[] coldatas_;
+
+        /**
+         * Constructor.
+         *
+         * @param  table  table
+         * @param  coldatas  column data array, one for each table column
+         * @param  start  index of first row covered (inclusive)
+         * @param  end    index after last row covered (exclusive)
+         */
+        ColumnRowSplittable( StarTable table, ColumnData[] coldatas,
+                             long start, long end ) {
+            super( table, start, end );
+            coldatas_ = coldatas;
+        }
+
+        public Object getCell( int icol ) throws IOException {
+            return coldatas_[ icol ].readValue( checkedRowIndex() );
+        }
+
+        public Object[] getRow() throws IOException {
+            long irow = checkedRowIndex();
+            int ncol = coldatas_.length;
+            Object[] row = new Object[ ncol ];
+            for ( int icol = 0; icol < ncol; icol++ ) {
+                row[ icol ] = coldatas_[ icol ].readValue( irow );
+            }
+            return row;
+        }
+
+        protected RowSplittable createSplittable( long start, long end ) {
+            return new ColumnRowSplittable( getTable(), coldatas_,
+                                            start, end );
+        }
+    }
+
 }
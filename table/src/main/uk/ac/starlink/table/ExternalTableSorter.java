@@ -0,0 +1,527 @@
+package uk.ac.starlink.table;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+import uk.ac.starlink.util.DaemonThreadFactory;
+import uk.ac.starlink.util.FutureUtils;
+
+/**
+ * Sorts tables which may be too large to sort in memory,
+ * or which do not provide random access.
+ *
+ * <p>The input table is read sequentially, just once, in runs of
+ * a given number of rows.  Each run is sorted in memory, using primitive
+ * arrays for numeric sort keys, and written out to a {@link RowStore}
+ * obtained from a {@link StoragePolicy}.  Runs may be sorted and written
+ * on background threads while the next run is being read.
+ * The output table is a non-random table whose row sequence performs
+ * a k-way merge of the runs.
+ * If there are too many runs to merge efficiently, groups of them are
+ * first merged into longer stored runs.
+ *
+ * <p>The sort is stable, so rows with equal keys appear in their
+ * original order.  The collation order is the same as that of
+ * {@link Tables#sortTable}.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+public class ExternalTableSorter {
+
+    private final StoragePolicy policy_;
+    private final int runRows_;
+    private final int nthread_;
+
+    /** Maximum number of runs merged at once. */
+    private static final int MERGE_WIDTH = 64;
+
+    /** Fraction of heap used for all the in-memory runs together. */
+    private static final double HEAP_FRACTION = 0.25;
+
+    private static final Logger logger_ =
+        Logger.getLogger( "uk.ac.starlink.table" );
+
+    /**
+     * Constructor.
+     *
+     * @param  policy  storage policy for sorted runs
+     * @param  runRows  maximum number of rows sorted in memory at once
+     * @param  nthread  number of threads to use for sorting runs;
+     *                  if &lt;=1, all work is done on the calling thread
+     */
+    public ExternalTableSorter( StoragePolicy policy, int runRows,
+                                int nthread ) {
+        policy_ = policy;
+        runRows_ = Math.max( 1, runRows );
+        nthread_ = Math.max( 1, nthread );
+    }
+
+    /**
+     * Returns the maximum number of rows sorted in memory at once.
+     *
+     * @return  run length
+     */
+    public int getRunRows() {
+        return runRows_;
+    }
+
+    /**
+     * Returns a sorted version of a table.
+     * The input table is read once, during this call.
+     * The returned table does not in general provide random access,
+     * but it may be iterated over any number of times.
+     *
+     * @param   table  table to sort
+     * @param   colIndices  indices of the columns which are to act as sort
+     *          keys; first element is primary key etc
+     * @param   up  true for sorting into ascending order, false for
+     *          descending order
+     * @param   nullsLast  true if blank values should be considered
+     *          last in the collation order, false if they should
+     *          be considered first
+     * @return  sorted table
+     */
+    public StarTable sortTable( StarTable table, int[] colIndices,
+                                boolean up, boolean nullsLast )
+            throws IOException {
+        for ( int i = 0; i < colIndices.length; i++ ) {
+            ColumnInfo info = table.getColumnInfo( colIndices[ i ] );
+            Class clazz = info.getContentClass();
+            if ( ! Comparable.class.isAssignableFrom( clazz ) &&
+                 clazz != Object.class ) {
+                throw new IOException( "Column " + info
+                                     + " has no defined sort order" );
+            }
+        }
+        RowOrder order = new RowOrder( table, colIndices, up, nullsLast );
+        List<StarTable> runs = createRuns( table, order );
+        logger_.config( "Sorted " + runs.size() + " runs of up to "
+                    + runRows_ + " rows" );
+        if ( runs.size() == 1 ) {
+            return runs.get( 0 );
+        }
+        while ( runs.size() > MERGE_WIDTH ) {
+            List<StarTable> mergedRuns = new ArrayList<StarTable>();
+            for ( int ir = 0; ir < runs.size(); ir += MERGE_WIDTH ) {
+                List<StarTable> group =
+                    runs.subList( ir, Math.min( ir + MERGE_WIDTH,
+                                                runs.size() ) );
+                mergedRuns.add( policy_.copyTable(
+                                    new MergeTable( table, group, order ) ) );
+            }
+            logger_.info( "Merged " + runs.size() + " runs to "
+                        + mergedRuns.size() );
+            runs = mergedRuns;
+        }
+        return new MergeTable( table, runs, order );
+    }
+
+    /**
+     * Returns a suitable number of rows to sort in memory at once
+     * for a given table, based on the available heap memory.
+     *
+     * @param  table  table to be sorted
+     * @param  nthread  number of sorting threads
+     * @return  suggested run length
+     */
+    public static int getDefaultRunRows( StarTable table, int nthread ) {
+        double budget = Runtime.getRuntime().maxMemory() * HEAP_FRACTION
+                      / ( Math.max( 1, nthread ) + 1 );
+        long nrow = (long) ( budget / estimateRowBytes( table ) );
+        return (int) Math.max( 1000,
+                               Math.min( nrow, Integer.MAX_VALUE / 2 ) );
+    }
+
+    /**
+     * Returns a rough estimate of the number of bytes of heap used by
+     * a row of a table held as an array of objects.
+     *
+     * @param  table  table
+     * @return  bytes per row
+     */
+    private static int estimateRowBytes( StarTable table ) {
+        int ncol = table.getColumnCount();
+        int nbyte = 16 + 8 * ncol;
+        for ( int icol = 0; icol < ncol; icol++ ) {
+            ColumnInfo info = table.getColumnInfo( icol );
+            Class clazz = info.getContentClass();
+            if ( clazz == String.class ) {
+                int esize = info.getElementSize();
+                nbyte += 40 + 2 * ( esize > 0 ? esize : 16 );
+            }
+            else if ( clazz.isArray() ) {
+                int[] shape = info.getShape();
+                long nel = 1;
+                for ( int i = 0; shape != null && i < shape.length; i++ ) {
+                    nel *= shape[ i ] > 0 ? shape[ i ] : 8;
+                }
+                nbyte += 16 + (int) Math.min( nel * 8, 1 << 20 );
+            }
+            else {
+                nbyte += 24;
+            }
+        }
+        return nbyte;
+    }
+
+    /**
+     * Reads the input table in runs and returns a list of sorted
+     * stored tables, one for each run.
+     *
+     * @param  table  input table
+     * @param  order  row ordering
+     * @return   list of sorted runs in input order
+     */
+    private List<StarTable> createRuns( StarTable table, RowOrder order )
+            throws IOException {
+        ExecutorService executor =
+            nthread_ > 1
+                ? Executors.newFixedThreadPool( nthread_,
+                                                new DaemonThreadFactory(
+                                                    "ExternalTableSorter" ) )
+                : null;
+        List<StarTable> runs = new ArrayList<StarTable>();
+        LinkedList<Future<StarTable>> pending =
+            new LinkedList<Future<StarTable>>();
+        RowSequence rseq = table.getRowSequence();
+        boolean done = false;
+        try {
+            boolean more = true;
+            while ( more ) {
+                List<Object[]> rows =
+                    new ArrayList<Object[]>( Math.min( runRows_, 1024 ) );
+                while ( rows.size() < runRows_ && ( more = rseq.next() ) ) {
+                    rows.add( rseq.getRow() );
+                }
+                if ( rows.size() > 0 || runs.size() + pending.size() == 0 ) {
+                    RunTask task = new RunTask( table, order, rows );
+                    if ( executor == null ) {
+                        runs.add( task.call() );
+                    }
+                    else {
+
+                        /* Limit the number of runs held in memory. */
+                        while ( pending.size() >= nthread_ ) {
+                            runs.add( FutureUtils
+                                     .getResult( pending.removeFirst() ) );
+                        }
+                        pending.add( executor.submit( task ) );
+                    }
+                }
+            }
+            while ( ! pending.isEmpty() ) {
+                runs.add( FutureUtils.getResult( pending.removeFirst() ) );
+            }
+            done = true;
+            return runs;
+        }
+        finally {
+            rseq.close();
+            if ( executor != null ) {
+                if ( ! done ) {
+                    executor.shutdownNow();
+                }
+                executor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Defines the collation order of rows.
+     */
+    private static class RowOrder {
+        final Class[] clazzes_;
+        final int[] colIndices_;
+        final boolean up_;
+        final boolean nullsLast_;
+
+        /**
+         * Constructor.
+         *
+         * @param   table  table whose rows will be compared
+         * @param   colIndices  indices of the sort key columns
+         * @param   up  true for ascending order
+         * @param   nullsLast  true for blanks last
+         */
+        RowOrder( StarTable table, int[] colIndices, boolean up,
+                  boolean nullsLast ) {
+            colIndices_ = (int[]) colIndices.clone();
+            up_ = up;
+            nullsLast_ = nullsLast;
+            clazzes_ = new Class[ colIndices.length ];
+            for ( int i = 0; i < colIndices.length; i++ ) {
+                clazzes_[ i ] =
+                    table.getColumnInfo( colIndices[ i ] ).getContentClass();
+            }
+        }
+
+        /**
+         * Compares two rows.
+         *
+         * @param  row1  first row
+         * @param  row2  second row
+         * @return  negative, zero or positive for less than, equal to
+         *          or greater than
+         */
+        int compareRows( Object[] row1, Object[] row2 ) {
+            int c = 0;
+            for ( int i = 0; i < colIndices_.length && c == 0; i++ ) {
+                int icol = colIndices_[ i ];
+                c = KeyColumn.compareObjects( row1[ icol ], row2[ icol ],
+                                              up_, nullsLast_ );
+            }
+            return c;
+        }
+    }
+
+    /**
+     * Sorts a single run in memory and writes it to storage.
+     */
+    private class RunTask implements Callable<StarTable> {
+        private final StarTable meta_;
+        private final RowOrder order_;
+        private final List<Object[]> rows_;
+        private final int nrow_;
+
+        /**
+         * Constructor.
+         *
+         * @param  meta  table supplying metadata
+         * @param  order  row ordering
+         * @param  rows   list of rows to sort; will be cleared
+         */
+        RunTask( StarTable meta, RowOrder order, List<Object[]> rows ) {
+            meta_ = meta;
+            order_ = order;
+            rows_ = rows;
+            nrow_ = rows.size();
+        }
+
+        public StarTable call() throws IOException {
+
+            /* Extract sort keys. */
+            int nkey = order_.colIndices_.length;
+            KeyColumn[] keys = new KeyColumn[ nkey ];
+            for ( int ik = 0; ik < nkey; ik++ ) {
+                KeyColumn key =
+                    KeyColumn.createKeyColumn( order_.clazzes_[ ik ], nrow_,
+                                               order_.up_,
+                                               order_.nullsLast_ );
+                int icol = order_.colIndices_[ ik ];
+                try {
+                    for ( int ir = 0; ir < nrow_; ir++ ) {
+                        key.setValue( ir, rows_.get( ir )[ icol ] );
+                    }
+                }
+                catch ( ClassCastException e ) {
+                    throw (IOException)
+                          new IOException( "Bad value type for sort key "
+                                         + meta_.getColumnInfo( icol ) )
+                         .initCause( e );
+                }
+                keys[ ik ] = key;
+            }
+
+            /* Sort row indices. */
+            int[] perm = new IndexSorter( RowRunner.SEQUENTIAL )
+                        .sort( keys, nrow_ );
+
+            /* Write rows in order to storage. */
+            RowStore store = policy_.makeConfiguredRowStore( meta_ );
+            for ( int i = 0; i < nrow_; i++ ) {
+                int ir = perm[ i ];
+                store.acceptRow( rows_.get( ir ) );
+                rows_.set( ir, null );
+            }
+            store.endRows();
+            return store.getStarTable();
+        }
+    }
+
+    /**
+     * Table whose rows are the merged rows of a number of sorted runs.
+     */
+    private static class MergeTable extends WrapperStarTable {
+        private final StarTable[] runs_;
+        private final RowOrder order_;
+        private final long nrow_;
+
+        /**
+         * Constructor.
+         *
+         * @param  meta  table supplying metadata
+         * @param  runs  sorted runs in input order
+         * @param  order  row ordering
+         */
+        MergeTable( StarTable meta, List<StarTable> runs, RowOrder order ) {
+            super( meta );
+            runs_ = runs.toArray( new StarTable[ 0 ] );
+            order_ = order;
+            long nrow = 0;
+            for ( int ir = 0; ir < runs_.length; ir++ ) {
+                nrow += runs_[ ir ].getRowCount();
+            }
+            nrow_ = nrow;
+        }
+
+        public long getRowCount() {
+            return nrow_;
+        }
+
+        public boolean isRandom() {
+            return false;
+        }
+
+        public Object getCell( long irow, int icol ) {
+            throw new UnsupportedOperationException( "No random access" );
+        }
+
+        public Object[] getRow( long irow ) {
+            throw new UnsupportedOperationException( "No random access" );
+        }
+
+        public RowSequence getRowSequence() throws IOException {
+            return new MergeRowSequence( runs_, order_ );
+        }
+    }
+
+    /**
+     * Row sequence which merges the row sequences of a number of
+     * sorted tables.  A binary heap keeps track of which input sequence
+     * has the next row; ties are resolved in favour of the earlier input,
+     * which keeps the merge stable.
+     * An input sequence is not advanced until the row it supplied
+     * is no longer current.
+     */
+    private static class MergeRowSequence implements RowSequence {
+        private final RowSequence[] rseqs_;
+        private final Object[][] heads_;
+        private final RowOrder order_;
+        private final int[] heap_;
+        private int nheap_;
+        private Object[] row_;
+        private boolean advanceTop_;
+
+        /**
+         * Constructor.
+         *
+         * @param  runs  sorted runs in input order
+         * @param  order  row ordering
+         */
+        MergeRowSequence( StarTable[] runs, RowOrder order )
+                throws IOException {
+            int nrun = runs.length;
+            order_ = order;
+            rseqs_ = new RowSequence[ nrun ];
+            heads_ = new Object[ nrun ][];
+            heap_ = new int[ nrun ];
+            for ( int ir = 0; ir < nrun; ir++ ) {
+                rseqs_[ ir ] = runs[ ir ].getRowSequence();
+                if ( rseqs_[ ir ].next() ) {
+                    heads_[ ir ] = rseqs_[ ir ].getRow();
+                    heap_[ nheap_ ] = ir;
+                    siftUp( nheap_++ );
+                }
+            }
+        }
+
+        public boolean next() throws IOException {
+            if ( advanceTop_ ) {
+                advanceTop_ = false;
+                int ir = heap_[ 0 ];
+                if ( rseqs_[ ir ].next() ) {
+                    heads_[ ir ] = rseqs_[ ir ].getRow();
+                }
+                else {
+                    heads_[ ir ] = null;
+                    heap_[ 0 ] = heap_[ --nheap_ ];
+                }
+                siftDown( 0 );
+            }
+            if ( nheap_ == 0 ) {
+                row_ = null;
+                return false;
+            }
+            row_ = heads_[ heap_[ 0 ] ];
+            advanceTop_ = true;
+            return true;
+        }
+
+        public Object[] getRow() {
+            if ( row_ == null ) {
+                throw new IllegalStateException( "No current row" );
+            }
+            return row_;
+        }
+
+        public Object getCell( int icol ) {
+            return getRow()[ icol ];
+        }
+
+        public void close() throws IOException {
+            for ( int ir = 0; ir < rseqs_.length; ir++ ) {
+                rseqs_[ ir ].close();
+            }
+        }
+
+        /**
+         * Indicates whether the head of one run comes before that of
+         * another.
+         *
+         * @param  ir1  first run index
+         * @param  ir2  second run index
+         * @return  true iff run 1 should supply the next row before run 2
+         */
+        private boolean before( int ir1, int ir2 ) {
+            int c = order_.compareRows( heads_[ ir1 ], heads_[ ir2 ] );
+            return c < 0 || ( c == 0 && ir1 < ir2 );
+        }
+
+        private void siftUp( int i ) {
+            while ( i > 0 ) {
+                int parent = ( i - 1 ) / 2;
+                if ( before( heap_[ i ], heap_[ parent ] ) ) {
+                    swap( i, parent );
+                    i = parent;
+                }
+                else {
+                    return;
+                }
+            }
+        }
+
+        private void siftDown( int i ) {
+            while ( true ) {
+                int left = 2 * i + 1;
+                if ( left >= nheap_ ) {
+                    return;
+                }
+                int right = left + 1;
+                int child = right < nheap_ && before( heap_[ right ],
+                                                      heap_[ left ] )
+                          ? right
+                          : left;
+                if ( before( heap_[ child ], heap_[ i ] ) ) {
+                    swap( i, child );
+                    i = child;
+                }
+                else {
+                    return;
+                }
+            }
+        }
+
+        private void swap( int i, int j ) {
+            int tmp = heap_[ i ];
+            heap_[ i ] = heap_[ j ];
+            heap_[ j ] = tmp;
+        }
+    }
+}
@@ -0,0 +1,489 @@
+package uk.ac.starlink.table;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import uk.ac.starlink.util.DaemonThreadFactory;
+import uk.ac.starlink.util.FutureUtils;
+
+/**
+ * Sorts row indices according to the values held in a number of
+ * {@link KeyColumn}s, possibly in parallel.
+ *
+ * <p>If all the keys can supply radix keys, a least significant digit
+ * radix sort is done on the primitive key values, one sort key at a time,
+ * starting with the least significant.  Otherwise, a merge sort
+ * comparing all the keys is used.  Both sorts are stable.
+ * Large arrays are divided into chunks which are processed on
+ * separate threads.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+class IndexSorter {
+
+    private final int nthread_;
+    private final long minChunk_;
+
+    /** Number of bits in each radix digit. */
+    private static final int RADIX_BITS = 8;
+
+    /** Number of buckets for each radix digit. */
+    private static final int NBUCKET = 1 << RADIX_BITS;
+
+    /** Length of runs sorted by insertion sort before merging. */
+    private static final int INSERTION_RUN = 32;
+
+
+    /**
+     * Constructor.
+     *
+     * @param  runner  determines the number of threads to use,
+     *                 and the smallest array chunk that will be split off
+     */
+    public IndexSorter( RowRunner runner ) {
+        nthread_ = runner.getThreadCount();
+        minChunk_ = Math.max( 1, runner.getMinChunk() );
+    }
+
+    /**
+     * Returns the indices of a number of rows sorted by the values
+     * of a given set of key columns.
+     *
+     * @param  keys   sort key values, first element is primary key etc
+     * @param  n    number of rows
+     * @return  array of <code>n</code> row indices in sorted order
+     */
+    public int[] sort( KeyColumn[] keys, int n ) throws IOException {
+        int[] perm = new int[ n ];
+        for ( int i = 0; i < n; i++ ) {
+            perm[ i ] = i;
+        }
+        boolean isRadix = true;
+        for ( int ik = 0; ik < keys.length; ik++ ) {
+            isRadix = isRadix && keys[ ik ].hasRadixKeys();
+        }
+        int nchunk = (int) Math.max( 1, Math.min( nthread_, n / minChunk_ ) );
+        ExecutorService executor =
+            nchunk > 1
+                ? Executors.newFixedThreadPool( nchunk,
+                                                new DaemonThreadFactory(
+                                                    "IndexSorter" ) )
+                : null;
+        try {
+            Chunker chunker = new Chunker( executor, nchunk );
+            if ( isRadix ) {
+                for ( int ik = keys.length - 1; ik >= 0; ik-- ) {
+                    radixSort( perm, keys[ ik ], chunker );
+                }
+            }
+            else {
+                mergeSort( perm, createOrder( keys ), chunker );
+            }
+        }
+        finally {
+            if ( executor != null ) {
+                executor.shutdownNow();
+            }
+        }
+        return perm;
+    }
+
+    /**
+     * Returns an ordering which compares row indices using a number of
+     * key columns.
+     *
+     * @param  keys  sort keys
+     * @return  ordering
+     */
+    private static IndexOrder createOrder( final KeyColumn[] keys ) {
+        if ( keys.length == 1 ) {
+            final KeyColumn key = keys[ 0 ];
+            return new IndexOrder() {
+                public int compare( int i, int j ) {
+                    return key.compare( i, j );
+                }
+            };
+        }
+        else {
+            return new IndexOrder() {
+                public int compare( int i, int j ) {
+                    for ( int ik = 0; ik < keys.length; ik++ ) {
+                        int c = keys[ ik ].compare( i, j );
+                        if ( c != 0 ) {
+                            return c;
+                        }
+                    }
+                    return 0;
+                }
+            };
+        }
+    }
+
+    /**
+     * Performs a stable radix sort in place on an array of row indices
+     * using a single key column.
+     *
+     * @param  perm   row indices
+     * @param  key    key column, which must supply radix keys
+     * @param  chunker  chunk processor
+     */
+    private static void radixSort( final int[] perm, final KeyColumn key,
+                                   Chunker chunker )
+            throws IOException {
+        final int n = perm.length;
+        final int nchunk = chunker.nchunk_;
+
+        /* Count blank values in each chunk. */
+        final int[] chunkBlanks = new int[ nchunk ];
+        chunker.run( n, new ChunkTask() {
+            public void run( int ic, int lo, int hi ) {
+                int nb = 0;
+                for ( int i = lo; i < hi; i++ ) {
+                    if ( key.isBlank( perm[ i ] ) ) {
+                        nb++;
+                    }
+                }
+                chunkBlanks[ ic ] = nb;
+            }
+        } );
+        final int[] blankOffs = new int[ nchunk ];
+        final int[] valueOffs = new int[ nchunk ];
+        int nblank = 0;
+        for ( int ic = 0; ic < nchunk; ic++ ) {
+            blankOffs[ ic ] = nblank;
+            valueOffs[ ic ] = Chunker.getLo( n, nchunk, ic ) - nblank;
+            nblank += chunkBlanks[ ic ];
+        }
+        final int nval = n - nblank;
+
+        /* Separate blank from non-blank entries, preserving order,
+         * and calculate radix keys for the non-blank ones. */
+        final int[] blanks = new int[ nblank ];
+        final int[][] ixs = new int[][] { new int[ nval ], new int[ nval ] };
+        final long[][] rks = new long[][] { new long[ nval ],
+                                            new long[ nval ] };
+        chunker.run( n, new ChunkTask() {
+            public void run( int ic, int lo, int hi ) {
+                int ib = blankOffs[ ic ];
+                int iv = valueOffs[ ic ];
+                int[] ix = ixs[ 0 ];
+                long[] rk = rks[ 0 ];
+                for ( int i = lo; i < hi; i++ ) {
+                    int irow = perm[ i ];
+                    if ( key.isBlank( irow ) ) {
+                        blanks[ ib++ ] = irow;
+                    }
+                    else {
+                        ix[ iv ] = irow;
+                        rk[ iv ] = key.getRadixKey( irow );
+                        iv++;
+                    }
+                }
+            }
+        } );
+
+        /* Find which digits differ between keys; the others need no pass. */
+        final long[] chunkDiffs = new long[ nchunk ];
+        chunker.run( nval, new ChunkTask() {
+            public void run( int ic, int lo, int hi ) {
+                long[] rk = rks[ 0 ];
+                long k0 = nval > 0 ? rk[ 0 ] : 0L;
+                long diff = 0;
+                for ( int i = lo; i < hi; i++ ) {
+                    diff |= rk[ i ] ^ k0;
+                }
+                chunkDiffs[ ic ] = diff;
+            }
+        } );
+        long diff = 0;
+        for ( int ic = 0; ic < nchunk; ic++ ) {
+            diff |= chunkDiffs[ ic ];
+        }
+
+        /* Perform a counting sort pass for each significant digit. */
+        final int[][] counts = new int[ nchunk ][ NBUCKET ];
+        int isrc = 0;
+        for ( int shift = 0; shift < 64; shift += RADIX_BITS ) {
+            if ( ( ( diff >>> shift ) & ( NBUCKET - 1 ) ) != 0 ) {
+                final int sh = shift;
+                final int is0 = isrc;
+                chunker.run( nval, new ChunkTask() {
+                    public void run( int ic, int lo, int hi ) {
+                        long[] rk = rks[ is0 ];
+                        int[] count = counts[ ic ];
+                        for ( int ib = 0; ib < NBUCKET; ib++ ) {
+                            count[ ib ] = 0;
+                        }
+                        for ( int i = lo; i < hi; i++ ) {
+                            count[ (int) ( rk[ i ] >>> sh )
+                                   & ( NBUCKET - 1 ) ]++;
+                        }
+                    }
+                } );
+                int off = 0;
+                for ( int ib = 0; ib < NBUCKET; ib++ ) {
+                    for ( int ic = 0; ic < nchunk; ic++ ) {
+                        int c = counts[ ic ][ ib ];
+                        counts[ ic ][ ib ] = off;
+                        off += c;
+                    }
+                }
+                chunker.run( nval, new ChunkTask() {
+                    public void run( int ic, int lo, int hi ) {
+                        int[] srcIx = ixs[ is0 ];
+                        long[] srcRk = rks[ is0 ];
+                        int[] dstIx = ixs[ 1 - is0 ];
+                        long[] dstRk = rks[ 1 - is0 ];
+                        int[] offs = counts[ ic ];
+                        for ( int i = lo; i < hi; i++ ) {
+                            long k = srcRk[ i ];
+                            int j = offs[ (int) ( k >>> sh )
+                                          & ( NBUCKET - 1 ) ]++;
+                            dstIx[ j ] = srcIx[ i ];
+                            dstRk[ j ] = k;
+                        }
+                    }
+                } );
+                isrc = 1 - isrc;
+            }
+        }
+
+        /* Write the results back to the original array. */
+        int[] ix = ixs[ isrc ];
+        if ( key.isBlankFirst() ) {
+            System.arraycopy( blanks, 0, perm, 0, nblank );
+            System.arraycopy( ix, 0, perm, nblank, nval );
+        }
+        else {
+            System.arraycopy( ix, 0, perm, 0, nval );
+            System.arraycopy( blanks, 0, perm, nval, nblank );
+        }
+    }
+
+    /**
+     * Performs a stable merge sort in place on an array of row indices.
+     * Chunks are sorted in parallel, and then adjacent pairs of
+     * sorted ranges are merged in parallel until only one remains.
+     *
+     * @param  perm   row indices
+     * @param  order  ordering
+     * @param  chunker  chunk processor
+     */
+    private static void mergeSort( final int[] perm, final IndexOrder order,
+                                   Chunker chunker )
+            throws IOException {
+        final int n = perm.length;
+        final int[] buf = new int[ n ];
+        chunker.run( n, new ChunkTask() {
+            public void run( int ic, int lo, int hi ) {
+                sortRange( perm, buf, lo, hi, order );
+            }
+        } );
+        final int nchunk = chunker.nchunk_;
+        for ( int width = 1; width < nchunk; width *= 2 ) {
+            final int w = width;
+            int npair = ( nchunk + 2 * w - 1 ) / ( 2 * w );
+            chunker.runTasks( npair, new ChunkTask() {
+                public void run( int ip, int ilo, int ihi ) {
+                    int c0 = ip * 2 * w;
+                    int lo = Chunker.getLo( n, nchunk, c0 );
+                    int mid = Chunker.getLo( n, nchunk,
+                                             Math.min( c0 + w, nchunk ) );
+                    int hi = Chunker.getLo( n, nchunk,
+                                            Math.min( c0 + 2 * w, nchunk ) );
+                    merge( perm, lo, mid, hi, buf, lo, order );
+                    System.arraycopy( buf, lo, perm, lo, hi - lo );
+                }
+            } );
+        }
+    }
+
+    /**
+     * Performs a stable sort in place on a range of an array.
+     *
+     * @param  a  array
+     * @param  buf  workspace array, at least as long as <code>hi</code>
+     * @param  lo  start of range (inclusive)
+     * @param  hi  end of range (exclusive)
+     * @param  order  ordering
+     */
+    private static void sortRange( int[] a, int[] buf, int lo, int hi,
+                                   IndexOrder order ) {
+
+        /* Insertion sort short runs. */
+        for ( int r0 = lo; r0 < hi; r0 += INSERTION_RUN ) {
+            int r1 = Math.min( r0 + INSERTION_RUN, hi );
+            for ( int i = r0 + 1; i < r1; i++ ) {
+                int v = a[ i ];
+                int j = i - 1;
+                while ( j >= r0 && order.compare( v, a[ j ] ) < 0 ) {
+                    a[ j + 1 ] = a[ j ];
+                    j--;
+                }
+                a[ j + 1 ] = v;
+            }
+        }
+
+        /* Merge runs bottom-up, alternating between the two arrays. */
+        int[] src = a;
+        int[] dst = buf;
+        for ( int width = INSERTION_RUN; width < hi - lo; width *= 2 ) {
+            for ( int i0 = lo; i0 < hi; i0 += 2 * width ) {
+                int mid = Math.min( i0 + width, hi );
+                int i1 = Math.min( i0 + 2 * width, hi );
+                merge( src, i0, mid, i1, dst, i0, order );
+            }
+            int[] tmp = src;
+            src = dst;
+            dst = tmp;
+        }
+        if ( src != a ) {
+            System.arraycopy( src, lo, a, lo, hi - lo );
+        }
+    }
+
+    /**
+     * Merges two adjacent sorted ranges of an array into another array.
+     * Where elements are equal, those from the first range come first.
+     *
+     * @param  src  source array
+     * @param  lo   start of first range
+     * @param  mid  end of first range and start of second range
+     * @param  hi   end of second range
+     * @param  dst  destination array
+     * @param  off  offset in destination array for merged output
+     * @param  order  ordering
+     */
+    private static void merge( int[] src, int lo, int mid, int hi,
+                               int[] dst, int off, IndexOrder order ) {
+        int i = lo;
+        int j = mid;
+        int k = off;
+        while ( i < mid && j < hi ) {
+            dst[ k++ ] = order.compare( src[ j ], src[ i ] ) < 0
+                       ? src[ j++ ]
+                       : src[ i++ ];
+        }
+        while ( i < mid ) {
+            dst[ k++ ] = src[ i++ ];
+        }
+        while ( j < hi ) {
+            dst[ k++ ] = src[ j++ ];
+        }
+    }
+
+    /**
+     * Compares items by integer index.
+     */
+    private interface IndexOrder {
+
+        /**
+         * Compares two items.
+         *
+         * @param  i  index of first item
+         * @param  j  index of second item
+         * @return  negative, zero or positive for less than, equal to
+         *          or greater than
+         */
+        int compare( int i, int j );
+    }
+
+    /**
+     * Unit of work operating on a range of an array.
+     */
+    private interface ChunkTask {
+
+        /**
+         * Processes a chunk.
+         *
+         * @param  ic  chunk index
+         * @param  lo  start of range (inclusive)
+         * @param  hi  end of range (exclusive)
+         */
+        void run( int ic, int lo, int hi );
+    }
+
+    /**
+     * Runs tasks over a fixed number of chunks of an array,
+     * in parallel if an executor is available.
+     */
+    private static class Chunker {
+        private final ExecutorService executor_;
+        private final int nchunk_;
+
+        /**
+         * Constructor.
+         *
+         * @param  executor  executor service, or null for sequential
+         *                   processing
+         * @param  nchunk   number of chunks
+         */
+        Chunker( ExecutorService executor, int nchunk ) {
+            executor_ = executor;
+            nchunk_ = nchunk;
+        }
+
+        /**
+         * Returns the start of a chunk.
+         *
+         * @param  n  array length
+         * @param  nchunk  number of chunks
+         * @param  ic  chunk index, may be equal to nchunk
+         * @return   start index of chunk
+         */
+        static int getLo( int n, int nchunk, int ic ) {
+            return (int) ( (long) n * ic / nchunk );
+        }
+
+        /**
+         * Runs a task on each chunk of an array and waits for completion.
+         *
+         * @param  n  array length
+         * @param  task  task
+         */
+        void run( final int n, final ChunkTask task ) throws IOException {
+            runTasks( nchunk_, new ChunkTask() {
+                public void run( int ic, int ilo, int ihi ) {
+                    task.run( ic, getLo( n, nchunk_, ic ),
+                              getLo( n, nchunk_, ic + 1 ) );
+                }
+            } );
+        }
+
+        /**
+         * Runs a task a given number of times and waits for completion.
+         * The range arguments passed to the task are not meaningful.
+         *
+         * @param  ntask  number of invocations
+         * @param  task  task, invoked with index values 0..ntask-1
+         */
+        void runTasks( int ntask, final ChunkTask task ) throws IOException {
+            if ( executor_ == null || ntask == 1 ) {
+                for ( int it = 0; it < ntask; it++ ) {
+                    task.run( it, 0, 0 );
+                }
+            }
+            else {
+                List<Future<Object>> futures =
+                    new ArrayList<Future<Object>>( ntask );
+                for ( int it = 0; it < ntask; it++ ) {
+                    final int it0 = it;
+                    futures.add( executor_.submit( new Callable<Object>() {
+                        public Object call() {
+                            task.run( it0, 0, 0 );
+                            return null;
+                        }
+                    } ) );
+                }
+                for ( Future<Object> future : futures ) {
+                    FutureUtils.getResult( future );
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package uk.ac.starlink.table;
+
+/**
+ * Holds the values of a sort key for a number of rows,
+ * so that the rows can be compared by index.
+ * Numeric keys are held in primitive arrays, which avoids the
+ * cost of boxed values and virtual <code>compareTo</code> calls
+ * during sorting, and can supply radix keys for non-comparison sorts.
+ * Values for different rows may be set concurrently from different
+ * threads.
+ *
+ * <p>The collation order is the same as that used by
+ * {@link Tables#sortTable}: blank values
+ * (as determined by {@link Tables#isBlank}) come at the start or the
+ * end of the collation order, other values are ordered by their
+ * natural ordering, and the whole order is reversed for a
+ * descending sort.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+abstract class KeyColumn {
+
+    private final int nullCmp_;
+    private final int sense_;
+
+    /**
+     * Constructor.
+     *
+     * @param   up  true for ascending order, false for descending
+     * @param   nullsLast  true if blank values come last in the
+     *          collation order, false if they come first
+     */
+    protected KeyColumn( boolean up, boolean nullsLast ) {
+        sense_ = up ? +1 : -1;
+        nullCmp_ = ( up ^ nullsLast ) ? -1 : +1;
+    }
+
+    /**
+     * Stores the key value for a given row.
+     *
+     * @param  i  row index
+     * @param  value  key value, may be blank
+     * @throws  ClassCastException  if the value is not of a type
+     *          appropriate for this column
+     */
+    public abstract void setValue( int i, Object value );
+
+    /**
+     * Indicates whether the key for a given row is blank.
+     *
+     * @param  i  row index
+     * @return  true iff blank
+     */
+    public abstract boolean isBlank( int i );
+
+    /**
+     * Compares the non-blank values for two rows in their natural order.
+     *
+     * @param  i  first row index
+     * @param  j  second row index
+     * @return  negative, zero or positive for less than, equal to
+     *          or greater than
+     */
+    protected abstract int compareValues( int i, int j );
+
+    /**
+     * Compares the keys for two rows in collation order.
+     *
+     * @param  i  first row index
+     * @param  j  second row index
+     * @return  negative, zero or positive for less than, equal to
+     *          or greater than
+     */
+    public int compare( int i, int j ) {
+        boolean null1 = isBlank( i );
+        boolean null2 = isBlank( j );
+        if ( null1 || null2 ) {
+            return null1 && null2 ? 0 : ( null1 ? nullCmp_ : -nullCmp_ );
+        }
+        else {
+            return sense_ * compareValues( i, j );
+        }
+    }
+
+    /**
+     * Indicates whether blank values come before non-blank ones
+     * in the collation order.
+     *
+     * @return  true iff blanks sort first
+     */
+    public boolean isBlankFirst() {
+        return nullCmp_ < 0;
+    }
+
+    /**
+     * Indicates whether this column can supply radix keys.
+     *
+     * @return  true iff {@link #getRadixKey} may be called
+     */
+    public boolean hasRadixKeys() {
+        return false;
+    }
+
+    /**
+     * Returns a 64-bit key for the non-blank value of a given row.
+     * Comparing the keys of two rows as unsigned integers gives
+     * the same result as {@link #compare}.
+     * The default implementation throws an UnsupportedOperationException.
+     *
+     * @param  i  row index
+     * @return   radix key
+     */
+    public long getRadixKey( int i ) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Adjusts an unsigned key in ascending order for the sense of this
+     * column's sort.
+     *
+     * @param  key  ascending unsigned key
+     * @return   key in collation order
+     */
+    protected long senseKey( long key ) {
+        return sense_ > 0 ? key : ~key;
+    }
+
+    /**
+     * Returns a key column suitable for values of a given class.
+     *
+     * @param  clazz  content class of key values
+     * @param  n   number of rows
+     * @param   up  true for ascending order, false for descending
+     * @param   nullsLast  true if blank values come last in the
+     *          collation order, false if they come first
+     * @return  new key column
+     */
+    public static KeyColumn createKeyColumn( Class clazz, int n, boolean up,
+                                             boolean nullsLast ) {
+        if ( clazz == Double.class || clazz == Float.class ) {
+            return new DoubleKeyColumn( n, up, nullsLast );
+        }
+        else if ( clazz == Long.class || clazz == Integer.class ||
+                  clazz == Short.class || clazz == Byte.class ) {
+            return new LongKeyColumn( n, up, nullsLast );
+        }
+        else {
+            return new ObjectKeyColumn( n, up, nullsLast );
+        }
+    }
+
+    /**
+     * Compares two key values in collation order.
+     * The result is consistent with that of {@link #compare}.
+     *
+     * @param  o1  first value
+     * @param  o2  second value
+     * @param   up  true for ascending order, false for descending
+     * @param   nullsLast  true if blank values come last in the
+     *          collation order, false if they come first
+     * @return  negative, zero or positive for less than, equal to
+     *          or greater than
+     */
+    public static int compareObjects( Object o1, Object o2, boolean up,
+                                      boolean nullsLast ) {
+        boolean null1 = Tables.isBlank( o1 );
+        boolean null2 = Tables.isBlank( o2 );
+        if ( null1 && null2 ) {
+            return 0;
+        }
+        else if ( null1 ) {
+            return ( up ^ nullsLast ) ? -1 : +1;
+        }
+        else if ( null2 ) {
+            return ( up ^ nullsLast ) ? +1 : -1;
+        }
+        else {
+            int c = ((Comparable) o1).compareTo( o2 );
+            return up ? c : -c;
+        }
+    }
+
+    /**
+     * KeyColumn for floating point values.  NaN represents blank.
+     */
+    private static class DoubleKeyColumn extends KeyColumn {
+        private final double[] values_;
+
+        DoubleKeyColumn( int n, boolean up, boolean nullsLast ) {
+            super( up, nullsLast );
+            values_ = new double[ n ];
+        }
+
+        public void setValue( int i, Object value ) {
+            values_[ i ] = value == null ? Double.NaN
+                                         : ((Number) value).doubleValue();
+        }
+
+        public boolean isBlank( int i ) {
+            return Double.isNaN( values_[ i ] );
+        }
+
+        protected int compareValues( int i, int j ) {
+            return Double.compare( values_[ i ], values_[ j ] );
+        }
+
+        public boolean hasRadixKeys() {
+            return true;
+        }
+
+        public long getRadixKey( int i ) {
+            long bits = Double.doubleToLongBits( values_[ i ] );
+            return senseKey( bits < 0 ? ~bits : bits ^ Long.MIN_VALUE );
+        }
+    }
+
+    /**
+     * KeyColumn for integer values.
+     * Blank flags are held in a boolean array rather than a bit set
+     * so that different rows can be written concurrently.
+     */
+    private static class LongKeyColumn extends KeyColumn {
+        private final long[] values_;
+        private final boolean[] blanks_;
+
+        LongKeyColumn( int n, boolean up, boolean nullsLast ) {
+            super( up, nullsLast );
+            values_ = new long[ n ];
+            blanks_ = new boolean[ n ];
+        }
+
+        public void setValue( int i, Object value ) {
+            if ( value == null ) {
+                blanks_[ i ] = true;
+            }
+            else {
+                blanks_[ i ] = false;
+                values_[ i ] = ((Number) value).longValue();
+            }
+        }
+
+        public boolean isBlank( int i ) {
+            return blanks_[ i ];
+        }
+
+        protected int compareValues( int i, int j ) {
+            long v1 = values_[ i ];
+            long v2 = values_[ j ];
+            return v1 < v2 ? -1 : ( v1 > v2 ? +1 : 0 );
+        }
+
+        public boolean hasRadixKeys() {
+            return true;
+        }
+
+        public long getRadixKey( int i ) {
+            return senseKey( values_[ i ] ^ Long.MIN_VALUE );
+        }
+    }
+
+    /**
+     * KeyColumn for arbitrary Comparable values.
+     */
+    private static class ObjectKeyColumn extends KeyColumn {
+        private final Comparable[] values_;
+
+        ObjectKeyColumn( int n, boolean up, boolean nullsLast ) {
+            super( up, nullsLast );
+            values_ = new Comparable[ n ];
+        }
+
+        public void setValue( int i, Object value ) {
+            values_[ i ] = Tables.isBlank( value ) ? null : (Comparable) value;
+        }
+
+        public boolean isBlank( int i ) {
+            return values_[ i ] == null;
+        }
+
+        protected int compareValues( int i, int j ) {
+            return values_[ i ].compareTo( values_[ j ] );
+        }
+    }
+}
@@ -12,6 +12,9 @@ import java.util.BitSet;
  * <p>
  * Obtain an instance of this class using one of the 
  * <tt>makePrimitiveColumn</tt> methods.
+ * <p>
+ * The typed read methods such as {@link #readDoubleValue} read
+ * directly from the array for columns of the corresponding type.
  *
  * @author   Mark Taylor (Starlink)
  */
@@ -64,6 +67,17 @@ public abstract class PrimitiveArrayColumn extends ArrayColumn {
         flags.clear();
     }
 
+    /**
+     * Returns true.
+     */
+    public boolean hasPrimitiveValues() {
+        return true;
+    }
+
+    public boolean isNullValue( long lrow ) {
+        return flags.get( (int) lrow ) == trueMeansNull;
+    }
+
     abstract void storeElement( int irow, Object val );
     abstract Object readElement( int irow );
 
@@ -206,6 +220,9 @@ public abstract class PrimitiveArrayColumn extends ArrayColumn {
         Object readElement( int irow ) {
             return data[ irow ] ? Boolean.TRUE : Boolean.FALSE;
         }
+        public boolean readBooleanValue( long lrow ) {
+            return data[ (int) lrow ];
+        }
     }
 
     private static class CharacterArrayColumn extends PrimitiveArrayColumn {
@@ -265,6 +282,9 @@ public abstract class PrimitiveArrayColumn extends ArrayColumn {
         Object readElement( int irow ) {
             return new Integer( data[ irow ] );
         }
+        public int readIntValue( long lrow ) {
+            return data[ (int) lrow ];
+        }
     }
 
     private static class LongArrayColumn extends PrimitiveArrayColumn {
@@ -280,6 +300,9 @@ public abstract class PrimitiveArrayColumn extends ArrayColumn {
         Object readElement( int irow ) {
             return new Long( data[ irow ] );
         }
+        public long readLongValue( long lrow ) {
+            return data[ (int) lrow ];
+        }
     }
 
     private static class FloatArrayColumn extends PrimitiveArrayColumn {
@@ -295,6 +318,9 @@ public abstract class PrimitiveArrayColumn extends ArrayColumn {
         Object readElement( int irow ) {
             return new Float( data[ irow ] );
         }
+        public float readFloatValue( long lrow ) {
+            return isNullValue( lrow ) ? Float.NaN : data[ (int) lrow ];
+        }
     }
 
     private static class DoubleArrayColumn extends PrimitiveArrayColumn {
@@ -310,5 +336,8 @@ public abstract class PrimitiveArrayColumn extends ArrayColumn {
         Object readElement( int irow ) {
             return new Double( data[ irow ] );
         }
+        public double readDoubleValue( long lrow ) {
+            return isNullValue( lrow ) ? Double.NaN : data[ (int) lrow ];
+        }
     }
 }
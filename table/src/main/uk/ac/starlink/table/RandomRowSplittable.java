@@ -0,0 +1,160 @@
+package uk.ac.starlink.table;
+
+import java.io.IOException;
+
+/**
+ * RowSplittable implementation based on the random access methods
+ * of a random-access table.
+ * Splitting divides the remaining row range in two.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+public class RandomRowSplittable implements RowSplittable {
+
+    private final StarTable table_;
+    private long start_;
+    private long end_;
+    private long irow_;
+
+    /**
+     * Minimum number of rows for which a split will be performed.
+     */
+    public static final long MIN_SPLIT = 2;
+
+    /**
+     * Constructs a splittable covering all the rows of a table.
+     *
+     * @param  table  random-access table with a known row count
+     * @throws IllegalArgumentException if <code>table.isRandom()==false</code>
+     *         or <code>table.getRowCount()&lt;0</code>
+     */
+    public RandomRowSplittable( StarTable table ) {
+        this( table, 0, table.getRowCount() );
+        if ( ! table.isRandom() ) {
+            throw new IllegalArgumentException( "Table " + table
+                                              + " is not random access" );
+        }
+        if ( end_ < 0 ) {
+            throw new IllegalArgumentException( "Table " + table
+                                              + " row count unknown" );
+        }
+    }
+
+    /**
+     * Constructs a splittable covering a given row range of a table.
+     *
+     * @param  table  random-access table
+     * @param  start  index of first row covered (inclusive)
+     * @param  end    index after last row covered (exclusive)
+     */
+    protected RandomRowSplittable( StarTable table, long start, long end ) {
+        table_ = table;
+        start_ = start;
+        end_ = end;
+        irow_ = start - 1;
+    }
+
+    /**
+     * Returns the table on which this splittable is based.
+     *
+     * @return  table
+     */
+    public StarTable getTable() {
+        return table_;
+    }
+
+    /**
+     * Returns the index of the first row covered by this splittable.
+     *
+     * @return  start row index (inclusive)
+     */
+    public long getStart() {
+        return start_;
+    }
+
+    /**
+     * Returns the index after the last row covered by this splittable.
+     *
+     * @return  end row index (exclusive)
+     */
+    public long getEnd() {
+        return end_;
+    }
+
+    public RowSplittable split() {
+        if ( irow_ != start_ - 1 ) {
+            throw new IllegalStateException( "Iteration has already started" );
+        }
+        long nrow = end_ - start_;
+        if ( nrow >= MIN_SPLIT ) {
+            long mid = start_ + nrow / 2;
+            RowSplittable head = createSplittable( start_, mid );
+            start_ = mid;
+            irow_ = mid - 1;
+            return head;
+        }
+        else {
+            return null;
+        }
+    }
+
+    public long splittableSize() {
+        return end_ - start_;
+    }
+
+    public long getRowIndex() {
+        return irow_ >= start_ ? irow_ : -1;
+    }
+
+    public boolean next() {
+        if ( irow_ < end_ - 1 ) {
+            irow_++;
+            return true;
+        }
+        else {
+            irow_ = end_;
+            return false;
+        }
+    }
+
+    public Object getCell( int icol ) throws IOException {
+        return table_.getCell( checkedRowIndex(), icol );
+    }
+
+    public Object[] getRow() throws IOException {
+        return table_.getRow( checkedRowIndex() );
+    }
+
+    public void close() throws IOException {
+    }
+
+    /**
+     * Constructs a new splittable covering a subrange of the rows
+     * covered by this one.  This is used by the {@link #split} method.
+     * Subclasses may override it to return an instance of their own type.
+     *
+     * @param  start  index of first row covered (inclusive)
+     * @param  end    index after last row covered (exclusive)
+     * @return   new splittable
+     */
+    protected RowSplittable createSplittable( long start, long end ) {
+        return new RandomRowSplittable( table_, start, end );
+    }
+
+    /**
+     * Returns the index of the current row, throwing an exception
+     * if there is none.
+     *
+     * @return  current row index
+     * @throws  IllegalStateException  if there is no current row
+     */
+    protected long checkedRowIndex() {
+        if ( irow_ >= start_ && irow_ < end_ ) {
+            return irow_;
+        }
+        else {
+            throw new IllegalStateException( "No current row" );
+        }
+    }
+}
@@ -35,6 +35,16 @@ public abstract class RandomStarTable extends AbstractStarTable {
         return new RandomRowSequence( this );
     }
 
+    /**
+     * Returns a <tt>RowSplittable</tt> object based on the random data
+     * access methods of this table.
+     *
+     * @return  a splittable row iterator
+     */
+    public RowSplittable getRowSplittable() {
+        return new RandomRowSplittable( this );
+    }
+
     /**
      * The number of rows in this table.  Implementations must supply
      * a non-negative return value.
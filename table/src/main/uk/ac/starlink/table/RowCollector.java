@@ -0,0 +1,56 @@
+package uk.ac.starlink.table;
+
+import java.io.IOException;
+
+/**
+ * Accumulates information from the rows of a table, in a way which
+ * can be performed in parallel on disjoint row ranges.
+ * An accumulator object is created for each row range,
+ * the rows in that range are fed to it, and then the accumulators
+ * are combined pairwise to yield a single result.
+ * This follows the pattern of the <code>java.util.stream.Collector</code>
+ * class.  Instances are executed by a {@link RowRunner}.
+ *
+ * <p>Implementations must take care that the accumulator objects
+ * do not share mutable state, since they may be populated on
+ * different threads.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+public abstract class RowCollector<A> {
+
+    /**
+     * Returns a new empty accumulator.
+     *
+     * @return   new accumulator
+     */
+    public abstract A createAccumulator();
+
+    /**
+     * Consumes all the rows of a row sequence,
+     * accumulating information from them into a given accumulator.
+     * The supplied row sequence should be iterated over by this method,
+     * but it should not be closed.
+     *
+     * @param  rseq   row sequence positioned at the start of its iteration
+     * @param  acc    accumulator to populate,
+     *                created by this collector's {@link #createAccumulator}
+     */
+    public abstract void accumulateRows( RowSplittable rseq, A acc )
+            throws IOException;
+
+    /**
+     * Combines the information from two accumulators.
+     * The first accumulator covers rows which precede those covered
+     * by the second one, so this ordering can be taken into account
+     * where results depend on it.
+     * The return value may be one of the inputs,
+     * which may be modified in the process.
+     *
+     * @param  acc1  accumulator for earlier rows
+     * @param  acc2  accumulator for later rows
+     * @return   accumulator covering the rows of both inputs
+     */
+    public abstract A combine( A acc1, A acc2 );
+}
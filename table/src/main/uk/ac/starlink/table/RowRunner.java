@@ -0,0 +1,260 @@
+package uk.ac.starlink.table;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+import uk.ac.starlink.util.DaemonThreadFactory;
+import uk.ac.starlink.util.FutureUtils;
+
+/**
+ * Manages processing of the rows of a table, possibly in parallel.
+ * The table's {@link RowSplittable} is split up into a number of
+ * disjoint row ranges, and each one is fed to an accumulator
+ * of a {@link RowCollector} on a thread from a pool.
+ * The resulting accumulators are then combined in row order.
+ * If the table cannot be split, for instance because it does not
+ * provide random access, all the work is done on the calling thread.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+public class RowRunner {
+
+    private final int nthread_;
+    private final long minChunk_;
+
+    /** Number of row ranges targeted for each thread. */
+    private static final int SPLITS_PER_THREAD = 4;
+
+    /** Default minimum number of rows in a row range. */
+    public static final long DFLT_MIN_CHUNK = 100000;
+
+    /** Instance which uses multiple threads if the hardware supports it. */
+    public static final RowRunner DEFAULT =
+        new RowRunner( Runtime.getRuntime().availableProcessors(),
+                       DFLT_MIN_CHUNK );
+
+    /** Instance which does all processing on the calling thread. */
+    public static final RowRunner SEQUENTIAL = new RowRunner( 1, 0 );
+
+    private static final Logger logger_ =
+        Logger.getLogger( "uk.ac.starlink.table" );
+
+    /**
+     * Constructor.
+     *
+     * @param  nthread  maximum number of worker threads to use
+     * @param  minChunk  minimum number of rows in a row range;
+     *                   ranges smaller than this will not be split
+     */
+    public RowRunner( int nthread, long minChunk ) {
+        nthread_ = Math.max( 1, nthread );
+        minChunk_ = minChunk;
+    }
+
+    /**
+     * Returns the maximum number of threads this runner will use.
+     *
+     * @return  thread count
+     */
+    public int getThreadCount() {
+        return nthread_;
+    }
+
+    /**
+     * Returns the minimum number of rows that will be split.
+     *
+     * @return  minimum chunk size
+     */
+    public long getMinChunk() {
+        return minChunk_;
+    }
+
+    /**
+     * Collects information from all the rows of a table,
+     * possibly in parallel.
+     *
+     * @param  collector  collector
+     * @param  table   table
+     * @return   accumulator covering all the rows of the table
+     */
+    public <A> A collect( RowCollector<A> collector, StarTable table )
+            throws IOException {
+        return collect( collector, table.getRowSplittable() );
+    }
+
+    /**
+     * Collects information from all the rows of a splittable,
+     * possibly in parallel.
+     *
+     * @param  collector  collector
+     * @param  rootSplit  splittable positioned at the start of its iteration
+     * @return   accumulator covering all the rows of the splittable
+     */
+    public <A> A collect( RowCollector<A> collector, RowSplittable rootSplit )
+            throws IOException {
+        List<RowSplittable> splits = partition( rootSplit );
+        int nsplit = splits.size();
+        if ( nsplit == 1 || nthread_ == 1 ) {
+            A acc = collector.createAccumulator();
+            for ( RowSplittable split : splits ) {
+                try {
+                    collector.accumulateRows( split, acc );
+                }
+                finally {
+                    split.close();
+                }
+            }
+            return acc;
+        }
+        else {
+            logger_.config( "Processing rows in " + nsplit + " ranges on "
+                          + Math.min( nthread_, nsplit ) + " threads" );
+            return collectParallel( collector, splits );
+        }
+    }
+
+    /**
+     * Splits a splittable up into a number of parts suitable for
+     * processing by this runner.
+     *
+     * @param  rootSplit   splittable positioned at the start of its iteration
+     * @return  list of disjoint splittables in row order
+     */
+    public List<RowSplittable> partition( RowSplittable rootSplit ) {
+        LinkedList<RowSplittable> splits = new LinkedList<RowSplittable>();
+        splits.add( rootSplit );
+        if ( nthread_ == 1 ) {
+            return splits;
+        }
+        int maxSplit = nthread_ * SPLITS_PER_THREAD;
+        while ( splits.size() < maxSplit ) {
+
+            /* Find the largest remaining part. */
+            ListIterator<RowSplittable> largestIt = null;
+            long largestSize = -1;
+            for ( ListIterator<RowSplittable> it = splits.listIterator();
+                  it.hasNext(); ) {
+                long size = it.next().splittableSize();
+                if ( size > largestSize ) {
+                    largestSize = size;
+                    largestIt = splits.listIterator( it.previousIndex() );
+                }
+            }
+
+            /* Split it if it's big enough, inserting the head part in
+             * the list before the tail part to preserve row order. */
+            if ( largestIt == null || largestSize < 2 * minChunk_ ) {
+                break;
+            }
+            RowSplittable tail = largestIt.next();
+            RowSplittable head = tail.split();
+            if ( head == null ) {
+                break;
+            }
+            largestIt.previous();
+            largestIt.add( head );
+        }
+        return splits;
+    }
+
+    /**
+     * Performs parallel collection over a given list of splittables.
+     *
+     * @param  collector  collector
+     * @param  splits   disjoint splittables in row order
+     * @return   combined accumulator
+     */
+    private <A> A collectParallel( final RowCollector<A> collector,
+                                   List<RowSplittable> splits )
+            throws IOException {
+        int nsplit = splits.size();
+        ExecutorService executor =
+            Executors.newFixedThreadPool( Math.min( nthread_, nsplit ),
+                                          new DaemonThreadFactory(
+                                              "RowRunner" ) );
+        List<SplitTask<A>> tasks = new ArrayList<SplitTask<A>>( nsplit );
+        List<Future<A>> futures = new ArrayList<Future<A>>( nsplit );
+        boolean done = false;
+        try {
+            for ( RowSplittable split : splits ) {
+                SplitTask<A> task = new SplitTask<A>( collector, split );
+                tasks.add( task );
+                futures.add( executor.submit( task ) );
+            }
+            A result = null;
+            for ( Future<A> future : futures ) {
+                A acc = FutureUtils.getResult( future );
+                result = result == null ? acc
+                                        : collector.combine( result, acc );
+            }
+            done = true;
+            return result;
+        }
+        finally {
+            if ( ! done ) {
+                executor.shutdownNow();
+                for ( SplitTask<A> task : tasks ) {
+                    task.closeIfUnstarted();
+                }
+            }
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Callable which accumulates the rows from a single splittable.
+     */
+    private static class SplitTask<A> implements Callable<A> {
+        private final RowCollector<A> collector_;
+        private final RowSplittable split_;
+        private boolean started_;
+
+        /**
+         * Constructor.
+         *
+         * @param  collector  collector
+         * @param  split   row range to process
+         */
+        SplitTask( RowCollector<A> collector, RowSplittable split ) {
+            collector_ = collector;
+            split_ = split;
+        }
+
+        public A call() throws IOException {
+            synchronized ( this ) {
+                started_ = true;
+            }
+            A acc = collector_.createAccumulator();
+            try {
+                collector_.accumulateRows( split_, acc );
+            }
+            finally {
+                split_.close();
+            }
+            return acc;
+        }
+
+        /**
+         * Closes this task's splittable if it has not been processed.
+         */
+        synchronized void closeIfUnstarted() {
+            if ( ! started_ ) {
+                started_ = true;
+                try {
+                    split_.close();
+                }
+                catch ( IOException e ) {
+                    // never mind
+                }
+            }
+        }
+    }
+}
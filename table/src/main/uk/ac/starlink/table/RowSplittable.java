@@ -0,0 +1,63 @@
+package uk.ac.starlink.table;
+
+/**
+ * RowSequence which is also capable of partitioning itself into
+ * disjoint row ranges, each of which can be iterated over independently.
+ * This can be used in the same way as a <code>java.util.Spliterator</code>
+ * to process the rows of a table in parallel on multiple threads.
+ *
+ * <p>Splitting must be done before iteration starts,
+ * that is before the first call of {@link #next}.
+ * Each of the resulting objects is a <code>RowSequence</code>
+ * which can then be iterated over in the usual way,
+ * and which should be closed after use.
+ * Although a given RowSplittable (like any RowSequence) is not
+ * in general safe for use from multiple threads, the separate parts
+ * resulting from a split may be used concurrently on different threads.
+ *
+ * <p>The {@link RowRunner} class provides a convenient way to make
+ * use of this facility.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ * @see      StarTable#getRowSplittable
+ */
+public interface RowSplittable extends RowSequence {
+
+    /**
+     * Attempts to partition this object into two halves,
+     * ideally of similar size.
+     * If splitting is not possible or not worth while,
+     * <code>null</code> is returned.  Otherwise, the returned object
+     * covers the first part of the rows previously covered by this one,
+     * and this object is modified to cover only the remainder.
+     * The row ranges covered by the two objects are disjoint,
+     * and their union is the range previously covered by this one.
+     *
+     * <p>This method must not be called after the first call
+     * of {@link #next}.
+     *
+     * @return  splittable covering the initial part of this one's rows,
+     *          or null
+     */
+    RowSplittable split();
+
+    /**
+     * Returns the number of rows covered by this object,
+     * or an estimate of it.  This is used to make decisions about
+     * whether further splitting is worthwhile.
+     * If no estimate is available, -1 may be returned.
+     *
+     * @return  approximate number of rows in this splittable, or -1
+     */
+    long splittableSize();
+
+    /**
+     * Returns the index in the underlying table of the current row,
+     * if known.  If the index is not known, or there is no current row,
+     * -1 is returned.
+     *
+     * @return   index of current row in the table, or -1
+     */
+    long getRowIndex();
+}
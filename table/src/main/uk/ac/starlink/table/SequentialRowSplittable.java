@@ -0,0 +1,67 @@
+package uk.ac.starlink.table;
+
+import java.io.IOException;
+
+/**
+ * RowSplittable implementation which wraps a RowSequence and
+ * never splits.  This is the fallback implementation for tables
+ * which do not provide random access or any more intelligent
+ * splitting capability; processing of such tables cannot be
+ * parallelised in this way.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+public class SequentialRowSplittable extends WrapperRowSequence
+                                     implements RowSplittable {
+
+    private final long nrow_;
+    private long irow_;
+
+    /**
+     * Constructs a splittable based on a table's row sequence.
+     *
+     * @param  table  table
+     */
+    public SequentialRowSplittable( StarTable table ) throws IOException {
+        this( table.getRowSequence(), table.getRowCount() );
+    }
+
+    /**
+     * Constructs a splittable wrapping a given row sequence.
+     *
+     * @param  rseq   row sequence positioned at the start of its iteration
+     * @param  nrow   number of rows in the sequence, or -1 if not known
+     */
+    public SequentialRowSplittable( RowSequence rseq, long nrow ) {
+        super( rseq );
+        nrow_ = nrow;
+        irow_ = -1;
+    }
+
+    /**
+     * Returns null.
+     */
+    public RowSplittable split() {
+        return null;
+    }
+
+    public long splittableSize() {
+        return nrow_;
+    }
+
+    public long getRowIndex() {
+        return irow_;
+    }
+
+    public boolean next() throws IOException {
+        if ( super.next() ) {
+            irow_++;
+            return true;
+        }
+        else {
+            irow_ = -1;
+            return false;
+        }
+    }
+}
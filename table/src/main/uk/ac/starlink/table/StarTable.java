@@ -26,6 +26,8 @@ import java.util.List;
  * should be thread-safe.  Separate <tt>RowSequence</tt> objects obtained
  * from the same table should be safely usable from different threads, 
  * but a given <tt>RowSequence</tt> in general will not.
+ * A {@link RowSplittable} obtained from {@link #getRowSplittable}
+ * can be used to process disjoint ranges of rows on different threads.
  *
  * @author   Mark Taylor (Starlink)
  */
@@ -152,6 +154,24 @@ public interface StarTable {
      */
     RowSequence getRowSequence() throws IOException;
 
+    /**
+     * Returns an object which can iterate over all the rows in the table,
+     * but which may also be requested to split recursively
+     * into disjoint row ranges for potentially parallel processing.
+     * Tables which cannot split in a useful way may return a
+     * splittable which never splits, in which case processing
+     * will be done sequentially.
+     *
+     * <p>The {@link Tables#getDefaultRowSplittable} method can be used
+     * to provide an implementation based on the table's
+     * random or sequential access methods.
+     *
+     * @return  new splittable row iterator
+     * @throws  IOException   if there is an error providing access
+     * @see   RowRunner
+     */
+    RowSplittable getRowSplittable() throws IOException;
+
     /**
      * Indicates whether random access is provided by this table.
      * Only if the result is <tt>true</tt> may the {@link #getRow}
@@ -6,12 +6,14 @@ import java.util.logging.Logger;
 import uk.ac.starlink.table.jdbc.JDBCStarTable;
 import uk.ac.starlink.table.storage.AdaptiveByteStore;
 import uk.ac.starlink.table.storage.ByteStoreStoragePolicy;
+import uk.ac.starlink.table.storage.ColumnarRowStore;
 import uk.ac.starlink.table.storage.ListRowStore;
 import uk.ac.starlink.table.storage.DiscardByteStore;
 import uk.ac.starlink.table.storage.DiscardRowStore;
 import uk.ac.starlink.table.storage.DiskRowStore;
 import uk.ac.starlink.table.storage.FileByteStore;
 import uk.ac.starlink.table.storage.MemoryByteStore;
+import uk.ac.starlink.table.storage.OffHeapRowStore;
 import uk.ac.starlink.table.storage.SidewaysRowStore;
 import uk.ac.starlink.util.Loader;
 
@@ -34,7 +36,8 @@ import uk.ac.starlink.util.Loader;
  *
  * <p>Code which wants to store data in a particular way may use one of
  * the predefined policies {@link #ADAPTIVE}, {@link #PREFER_MEMORY},
- * {@link #PREFER_DISK} {@link #SIDEWAYS} or {@link #DISCARD},
+ * {@link #PREFER_DISK} {@link #SIDEWAYS} {@link #COLUMNAR}
+ * {@link #OFFHEAP} or {@link #DISCARD},
  * or may implement their own policy by extending this class.
  * If you want more control, you can always create instances of the 
  * public {@link RowStore} implementations directly.
@@ -59,7 +62,7 @@ public abstract class StoragePolicy {
      * Name of the system property which can be set to indicate the
      * initial setting of the default storage policy ({@value}).
      * Currently recognised values are "adaptive", "memory", "disk",
-     * "sideways", and "discard".
+     * "sideways", "columnar", "offheap" and "discard".
      * Alternatively, the classname of a StoragePolicy implementation
      * with a no-arg constructor may be supplied.
      */
@@ -86,6 +89,12 @@ public abstract class StoragePolicy {
                 else if ( "sideways".equals( pref ) ) {
                     defaultInstance_ = SIDEWAYS;
                 }
+                else if ( "columnar".equals( pref ) ) {
+                    defaultInstance_ = COLUMNAR;
+                }
+                else if ( "offheap".equals( pref ) ) {
+                    defaultInstance_ = OFFHEAP;
+                }
                 else if ( "discard".equals( pref ) ) {
                     defaultInstance_ = DISCARD;
                 }
@@ -200,6 +209,7 @@ public abstract class StoragePolicy {
      * Storage policy which will always store table data in memory.
      * Table cells are stored as objects, which will be fast to write,
      * and can cope with any object type, but may be expensive on memory.
+     * For large tables {@link #OFFHEAP} may be a better choice.
      */
     public static final StoragePolicy PREFER_MEMORY = new StoragePolicy() {
         public ByteStore makeByteStore() {
@@ -266,6 +276,69 @@ public abstract class StoragePolicy {
             }
         };
 
+    /**
+     * Storage policy which will normally store table data in scratch disk
+     * files, one per column, which are memory-mapped for reading.
+     * Scalar numeric and boolean columns are stored in native primitive
+     * layout, and tables obtained from this policy's row stores implement
+     * {@link uk.ac.starlink.table.storage.PrimitiveColumnAccess},
+     * so that code which is able to make use of it can read blocks
+     * of column values into primitive arrays without per-cell object
+     * creation.
+     * If it's impossible for some reason to store the data in this way,
+     * or if the number of cells requested is small, it will fall back
+     * to using memory storage.
+     * Temporary disk files (at least one per column) are written
+     * in the default temporary directory, which is the value of the
+     * <tt>java.io.tmpdir</tt> system property, and will be deleted
+     * when the JVM exits, if not before.  They will <em>probably</em>
+     * be deleted around the time they are no longer needed (when the
+     * RowStore in question is garbage collected), though this cannot
+     * be guaranteed since it depends on the details of the JVM's
+     * GC implementation.
+     */
+    public static final StoragePolicy COLUMNAR =
+        new DiskStoragePolicy( "COLUMNAR", MIN_DISK_CELLS ) {
+            protected RowStore makeDiskRowStore() throws IOException {
+                return new ColumnarRowStore();
+            }
+        };
+
+    /**
+     * Storage policy which stores table data in memory, but outside
+     * the Java heap.
+     * Fixed-width columns are stored in slabs of direct memory and
+     * other columns are serialized into an off-heap data area,
+     * so that large tables do not require a very large heap or
+     * cause long garbage collection pauses.
+     * The tables it produces provide primitive column access like those of
+     * {@link #COLUMNAR}.
+     * Small tables, or those which can't be stored in this way,
+     * are stored as for {@link #PREFER_MEMORY}.
+     */
+    public static final StoragePolicy OFFHEAP = new StoragePolicy() {
+        public ByteStore makeByteStore() {
+            return new MemoryByteStore();
+        }
+        public RowStore makeRowStore() {
+            return new OffHeapRowStore();
+        }
+        public RowStore makeConfiguredRowStore( StarTable meta ) {
+            long nrow = meta.getRowCount();
+            if ( nrow > 0 && nrow * meta.getColumnCount() < MIN_DISK_CELLS ) {
+                ListRowStore store = new ListRowStore();
+                store.acceptMetadata( meta );
+                return store;
+            }
+            else {
+                return makeOffHeapRowStore( meta );
+            }
+        }
+        public String toString() {
+            return "StoragePolicy.OFFHEAP";
+        }
+    };
+
     /**
      * Storage policy which just throws away the rows it is given.
      * Tables obtained from its row stores will have no rows.
@@ -308,6 +381,28 @@ public abstract class StoragePolicy {
         }
     };
 
+    /**
+     * Returns an off-heap row store configured for a given table,
+     * or a list row store if that's not possible.
+     *
+     * @param  meta  template table
+     * @return  configured row store
+     */
+    private static RowStore makeOffHeapRowStore( StarTable meta ) {
+        OffHeapRowStore store = new OffHeapRowStore();
+        try {
+            store.acceptMetadata( meta );
+            return store;
+        }
+        catch ( TableFormatException e ) {
+            logger_.warning( "Off-heap store unsuitable for table: " + e
+                           + " - using heap instead" );
+            ListRowStore lstore = new ListRowStore();
+            lstore.acceptMetadata( meta );
+            return lstore;
+        }
+    }
+
     /**
      * Abstract superclass of storage policies which use disk-based storage
      * for tables larger than a certain threshold.
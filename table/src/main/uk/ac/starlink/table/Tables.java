@@ -97,6 +97,28 @@ public class Tables {
         return StoragePolicy.getDefaultPolicy().randomTable( startab );
     }
 
+    /**
+     * Returns a RowSplittable for a table based on its random or
+     * sequential access methods.
+     * If the table provides random access, the result can split
+     * into disjoint row ranges accessed using <code>getCell</code>
+     * and <code>getRow</code>.
+     * Otherwise, it is a wrapper for the table's <code>RowSequence</code>
+     * which does not split.
+     * This is suitable for use as the implementation of
+     * {@link StarTable#getRowSplittable} in tables with no more
+     * efficient way of splitting.
+     *
+     * @param  table  table
+     * @return  new splittable for the table
+     */
+    public static RowSplittable getDefaultRowSplittable( StarTable table )
+            throws IOException {
+        return table.isRandom() && table.getRowCount() >= 0
+             ? new RandomRowSplittable( table )
+             : new SequentialRowSplittable( table );
+    }
+
     /**
      * Convenience method to return an array of all the column headers
      * in a given table.  Modifying this array will not affect the table.
@@ -293,6 +315,51 @@ public class Tables {
         if ( nrow >= 0 ) {
             assertTrue( lrow == nrow );
         }
+
+        /* Check that the rows from a split RowSplittable match those
+         * from the row sequence. */
+        checkSplittable( table, lrow, formatChars );
+    }
+
+    /**
+     * Checks that the rows got by splitting a table's RowSplittable
+     * are the same as those got from its RowSequence.
+     *
+     * @param  table  table to test
+     * @param  nrow   number of rows in the table
+     * @param  formatChars  maximum formatted value length for comparisons
+     */
+    private static void checkSplittable( StarTable table, long nrow,
+                                         int formatChars )
+            throws IOException {
+        int ncol = table.getColumnCount();
+        List<RowSplittable> splits =
+            new RowRunner( 4, 1 ).partition( table.getRowSplittable() );
+        RowSequence rseq = table.getRowSequence();
+        long lrow = 0;
+        for ( RowSplittable split : splits ) {
+            while ( split.next() ) {
+                assertTrue( rseq.next() );
+                long ix = split.getRowIndex();
+                assertTrue( ix == lrow || ix == -1 );
+                for ( int icol = 0; icol < ncol; icol++ ) {
+                    ColumnInfo info = table.getColumnInfo( icol );
+                    Object v1 = rseq.getCell( icol );
+                    Object v2 = split.getCell( icol );
+                    assertTrue( ( v1 == null ) == ( v2 == null ) );
+                    if ( v1 != null ) {
+                        assertTrue( info.formatValue( v1, formatChars )
+                                   .equals( info.formatValue( v2,
+                                                              formatChars ) ) );
+                    }
+                }
+                lrow++;
+            }
+            split.close();
+        }
+        assertTrue( ! rseq.next() );
+        rseq.close();
+        assertTrue( lrow == nrow );
     }
 
     /**
@@ -103,6 +103,18 @@ public class WrapperStarTable implements StarTable {
         return baseTable.getRowSequence();
     }
 
+    /**
+     * The <tt>WrapperStarTable</tt> implementation of this method
+     * returns the result of {@link Tables#getDefaultRowSplittable}
+     * applied to this table, rather than delegating to the base table,
+     * since subclasses may modify the data.
+     * Subclasses which present the rows of the base table unchanged
+     * may override it to return <code>baseTable.getRowSplittable()</code>.
+     */
+    public RowSplittable getRowSplittable() throws IOException {
+        return Tables.getDefaultRowSplittable( this );
+    }
+
     public boolean isRandom() {
         return baseTable.isRandom();
     }
@@ -0,0 +1,809 @@
+package uk.ac.starlink.table.formats;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+import uk.ac.starlink.table.AbstractStarTable;
+import uk.ac.starlink.table.ArrayColumn;
+import uk.ac.starlink.table.ColumnInfo;
+import uk.ac.starlink.table.ColumnStarTable;
+import uk.ac.starlink.table.ReaderRowSequence;
+import uk.ac.starlink.table.RowSequence;
+import uk.ac.starlink.table.TableFormatException;
+import uk.ac.starlink.util.DaemonThreadFactory;
+import uk.ac.starlink.util.FutureUtils;
+
+/**
+ * Reads CSV data from an uncompressed local file using multiple threads.
+ * The file is memory-mapped and split into chunks at record boundaries.
+ * The chunks are tokenized and their column types assessed in parallel,
+ * and the resulting {@link RowEvaluator}s are merged to give the
+ * table metadata.  The data can then either be read sequentially,
+ * or decoded in parallel straight into column arrays to give
+ * a random-access table.
+ *
+ * <p>Record boundaries are located without a sequential pass through
+ * the file.  Since double quote characters only occur in pairs within
+ * quoted cells, a line end is outside any quoted cell if and only if
+ * an even number of quotes precedes it.  So it is enough to count the
+ * quotes in each segment of the file in parallel, and then look for the
+ * first line end with the right parity near the start of each segment.
+ *
+ * <p>The syntax understood is exactly that of {@link CsvStarTable}.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+class CsvChunkReader {
+
+    private final File file_;
+    private final int nthread_;
+    private final long[] chunkStarts_;
+    private final long[] rowBases_;
+    private final boolean hasHeading_;
+    private final RowEvaluator.Metadata meta_;
+
+    /** Minimum size of a file segment used for locating chunks. */
+    public static final long MIN_SEGMENT = 1L << 20;
+
+    /** Maximum size of a file segment used for locating chunks. */
+    public static final long MAX_SEGMENT = 1L << 28;
+
+    /** Number of file segments targeted for each thread. */
+    private static final int SEGMENTS_PER_THREAD = 4;
+
+    private static final Logger logger_ =
+        Logger.getLogger( "uk.ac.starlink.table.formats" );
+
+    /**
+     * Constructs a reader using a default number of threads and
+     * segment size.
+     *
+     * @param  file  uncompressed CSV file
+     */
+    public CsvChunkReader( File file ) throws IOException {
+        this( file, Runtime.getRuntime().availableProcessors(), -1 );
+    }
+
+    /**
+     * Constructs a reader with explicit configuration.
+     * This reads through the file to work out the table metadata.
+     *
+     * @param  file  uncompressed CSV file
+     * @param  nthread  maximum number of threads to use
+     * @param  segSize  size of file segments used for locating chunks,
+     *                  or -1 for a default value
+     */
+    CsvChunkReader( File file, int nthread, long segSize ) throws IOException {
+        file_ = file;
+        nthread_ = Math.max( 1, nthread );
+        long leng = file.length();
+        if ( segSize <= 0 ) {
+            segSize = ( leng + nthread_ * SEGMENTS_PER_THREAD - 1 )
+                    / ( nthread_ * SEGMENTS_PER_THREAD );
+            segSize = Math.min( MAX_SEGMENT, Math.max( MIN_SEGMENT, segSize ) );
+        }
+
+        /* Split the file into chunks at record boundaries. */
+        chunkStarts_ = findChunks( leng, segSize );
+        int nchunk = chunkStarts_.length - 1;
+        logger_.config( "Reading CSV file " + file + " in " + nchunk
+                      + " chunks on " + Math.min( nchunk, nthread_ )
+                      + " threads" );
+
+        /* Tokenize and assess each chunk.  The first row is kept apart,
+         * since it may be a heading row. */
+        List<ChunkScan> scanTasks = new ArrayList<ChunkScan>( nchunk );
+        for ( int ic = 0; ic < nchunk; ic++ ) {
+            scanTasks.add( new ChunkScan( ic ) );
+        }
+        List<ChunkScan> scans = invokeAll( scanTasks );
+        String[] row0 = scans.get( 0 ).row0_;
+        if ( row0 == null ) {
+            throw new TableFormatException( "No rows" );
+        }
+        RowEvaluator evaluator = new RowEvaluator();
+        long[] chunkRows = new long[ nchunk ];
+        long nrow = 0;
+        for ( int ic = 0; ic < nchunk; ic++ ) {
+            ChunkScan scan = scans.get( ic );
+            evaluator.merge( scan.evaluator_ );
+            chunkRows[ ic ] = scan.nrow_;
+            nrow += scan.nrow_;
+        }
+        if ( nrow == 0 ) {
+            throw new TableFormatException( "No rows" );
+        }
+
+        /* Decide what to do with the first row in the same way as
+         * CsvStarTable. */
+        RowEvaluator.Metadata meta = evaluator.getMetadata();
+        hasHeading_ = CsvStarTable.isHeadingRow( row0, meta );
+        if ( hasHeading_ ) {
+            meta_ = CsvStarTable.applyHeadings( row0, meta );
+        }
+        else {
+            evaluator.submitRow( Arrays.asList( row0 ) );
+            meta_ = evaluator.getMetadata();
+        }
+
+        /* Record the table index of the first row in each chunk.
+         * The first chunk includes the first row if it's data. */
+        rowBases_ = new long[ nchunk ];
+        long irow = 0;
+        for ( int ic = 0; ic < nchunk; ic++ ) {
+            rowBases_[ ic ] = irow;
+            irow += chunkRows[ ic ];
+            if ( ic == 0 && ! hasHeading_ ) {
+                irow++;
+            }
+        }
+        assert irow == meta_.nrow_;
+    }
+
+    /**
+     * Returns a table containing the data read by this reader.
+     * If in-memory storage is requested, and the table is not too large,
+     * the cells are decoded in parallel into column arrays held in memory.
+     * Otherwise, the returned table reads rows sequentially from the
+     * mapped file on demand.
+     *
+     * @param  inMemory  whether a random-access table held in memory
+     *                   is preferred
+     * @return  new table
+     */
+    public AbstractStarTable createTable( boolean inMemory )
+            throws IOException {
+        return inMemory && meta_.nrow_ <= Integer.MAX_VALUE
+             ? createColumnTable()
+             : new SequentialCsvTable();
+    }
+
+    /**
+     * Decodes all the data in parallel into a new table based on
+     * column arrays.
+     *
+     * @return  new random-access table
+     */
+    private ColumnStarTable createColumnTable() throws IOException {
+        int nrow = (int) meta_.nrow_;
+        int ncol = meta_.ncol_;
+        Object[] arrays = new Object[ ncol ];
+        for ( int icol = 0; icol < ncol; icol++ ) {
+            arrays[ icol ] =
+                createArray( meta_.colInfos_[ icol ].getContentClass(), nrow );
+        }
+
+        /* Decode each chunk on its own thread.  Primitive arrays are
+         * populated directly, but null flags for primitive columns are
+         * collected per chunk and applied afterwards, since the column
+         * objects which record them are not safe for concurrent update. */
+        int nchunk = chunkStarts_.length - 1;
+        List<ChunkDecode> decodeTasks = new ArrayList<ChunkDecode>( nchunk );
+        for ( int ic = 0; ic < nchunk; ic++ ) {
+            decodeTasks.add( new ChunkDecode( ic, arrays ) );
+        }
+        List<ChunkDecode> decodes = invokeAll( decodeTasks );
+        ColumnStarTable table = ColumnStarTable.makeTableWithRows( nrow );
+        ArrayColumn[] cols = new ArrayColumn[ ncol ];
+        for ( int icol = 0; icol < ncol; icol++ ) {
+            cols[ icol ] =
+                ArrayColumn.makeColumn( meta_.colInfos_[ icol ],
+                                        arrays[ icol ] );
+            table.addColumn( cols[ icol ] );
+        }
+        for ( int ic = 0; ic < nchunk; ic++ ) {
+            BitSet[] nullFlags = decodes.get( ic ).nullFlags_;
+            int base = (int) rowBases_[ ic ];
+            for ( int icol = 0; icol < ncol; icol++ ) {
+                BitSet flags = nullFlags[ icol ];
+                if ( flags != null ) {
+                    for ( int i = flags.nextSetBit( 0 ); i >= 0;
+                          i = flags.nextSetBit( i + 1 ) ) {
+                        cols[ icol ].storeValue( base + i, null );
+                    }
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Locates record boundaries in the file, to define chunks
+     * which can be tokenized independently.
+     *
+     * @param  leng  file length
+     * @param  segSize  size of segments in which to look for boundaries
+     * @return  array of chunk start offsets, with a final element
+     *          giving the file length
+     */
+    private long[] findChunks( long leng, long segSize ) throws IOException {
+        int nseg = (int) Math.max( 1, ( leng + segSize - 1 ) / segSize );
+        List<SegmentScan> segTasks = new ArrayList<SegmentScan>( nseg );
+        for ( int is = 0; is < nseg; is++ ) {
+            long start = is * segSize;
+            long end = Math.min( leng, start + segSize );
+            segTasks.add( new SegmentScan( start, end ) );
+        }
+        List<SegmentScan> segs = invokeAll( segTasks );
+
+        /* The first chunk starts at the start of the file.
+         * Each subsequent segment yields a chunk start, unless no
+         * suitable boundary was found within it. */
+        List<Long> starts = new ArrayList<Long>();
+        starts.add( new Long( 0 ) );
+        long nquote = 0;
+        for ( int is = 0; is < nseg; is++ ) {
+            SegmentScan seg = segs.get( is );
+            if ( is > 0 ) {
+                long bound = nquote % 2 == 0 ? seg.evenBound_
+                                             : seg.oddBound_;
+                if ( bound > 0 && bound < leng ) {
+                    starts.add( new Long( bound ) );
+                }
+            }
+            nquote += seg.nquote_;
+        }
+        starts.add( new Long( leng ) );
+        int nchunk = starts.size() - 1;
+        long[] chunkStarts = new long[ nchunk + 1 ];
+        for ( int ic = 0; ic <= nchunk; ic++ ) {
+            chunkStarts[ ic ] = starts.get( ic ).longValue();
+            if ( ic > 0 && chunkStarts[ ic ] - chunkStarts[ ic - 1 ]
+                           > Integer.MAX_VALUE ) {
+                throw new TableFormatException( "CSV record too long" );
+            }
+        }
+        return chunkStarts;
+    }
+
+    /**
+     * Maps a region of the file.
+     *
+     * @param  start  offset of region start
+     * @param  leng   length of region
+     * @return  read-only buffer
+     */
+    private ByteBuffer map( long start, long leng ) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile( file_, "r" );
+        try {
+            return raf.getChannel()
+                      .map( FileChannel.MapMode.READ_ONLY, start, leng );
+        }
+        finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Returns a tokenizer for a given chunk, positioned at its first
+     * data row.
+     *
+     * @param  ichunk  chunk index
+     * @return  tokenizer
+     */
+    private Tokenizer createChunkTokenizer( int ichunk ) throws IOException {
+        long start = chunkStarts_[ ichunk ];
+        Tokenizer tokenizer =
+            new Tokenizer( map( start, chunkStarts_[ ichunk + 1 ] - start ) );
+        if ( ichunk == 0 && hasHeading_ ) {
+            tokenizer.readRow();
+        }
+        return tokenizer;
+    }
+
+    /**
+     * Runs a list of tasks, possibly in parallel, and returns their results.
+     *
+     * @param  tasks  tasks
+     * @return  list of results in the same order as the tasks
+     */
+    private <T> List<T> invokeAll( List<? extends Callable<T>> tasks )
+            throws IOException {
+        int ntask = tasks.size();
+        List<T> results = new ArrayList<T>( ntask );
+        if ( ntask == 1 || nthread_ == 1 ) {
+            for ( Callable<T> task : tasks ) {
+                try {
+                    results.add( task.call() );
+                }
+                catch ( IOException e ) {
+                    throw e;
+                }
+                catch ( RuntimeException e ) {
+                    throw e;
+                }
+                catch ( Exception e ) {
+                    throw (IOException) new IOException( e.getMessage() )
+                                       .initCause( e );
+                }
+            }
+            return results;
+        }
+        ExecutorService executor =
+            Executors.newFixedThreadPool( Math.min( nthread_, ntask ),
+                                          new DaemonThreadFactory(
+                                              "CSV reader" ) );
+        try {
+            List<Future<T>> futures = new ArrayList<Future<T>>( ntask );
+            for ( Callable<T> task : tasks ) {
+                futures.add( executor.submit( task ) );
+            }
+            for ( Future<T> future : futures ) {
+                results.add( FutureUtils.getResult( future ) );
+            }
+            return results;
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns an array suitable for storing decoded values of a given
+     * class.  For wrapper types the corresponding primitive array is used.
+     *
+     * @param  clazz  content class
+     * @param  nrow   array length
+     * @return  new array
+     */
+    private static Object createArray( Class clazz, int nrow ) {
+        if ( clazz == Boolean.class ) {
+            return new boolean[ nrow ];
+        }
+        else if ( clazz == Short.class ) {
+            return new short[ nrow ];
+        }
+        else if ( clazz == Integer.class ) {
+            return new int[ nrow ];
+        }
+        else if ( clazz == Long.class ) {
+            return new long[ nrow ];
+        }
+        else if ( clazz == Float.class ) {
+            return new float[ nrow ];
+        }
+        else if ( clazz == Double.class ) {
+            return new double[ nrow ];
+        }
+        else {
+            return new Object[ nrow ];
+        }
+    }
+
+    /**
+     * Stores a non-null value in an array created by {@link #createArray}.
+     *
+     * @param  array  array
+     * @param  irow   index
+     * @param  value  value of the appropriate wrapper type
+     */
+    private static void storeValue( Object array, int irow, Object value ) {
+        if ( array instanceof double[] ) {
+            ((double[]) array)[ irow ] = ((Number) value).doubleValue();
+        }
+        else if ( array instanceof float[] ) {
+            ((float[]) array)[ irow ] = ((Number) value).floatValue();
+        }
+        else if ( array instanceof int[] ) {
+            ((int[]) array)[ irow ] = ((Number) value).intValue();
+        }
+        else if ( array instanceof long[] ) {
+            ((long[]) array)[ irow ] = ((Number) value).longValue();
+        }
+        else if ( array instanceof short[] ) {
+            ((short[]) array)[ irow ] = ((Number) value).shortValue();
+        }
+        else if ( array instanceof boolean[] ) {
+            ((boolean[]) array)[ irow ] = ((Boolean) value).booleanValue();
+        }
+        else {
+            ((Object[]) array)[ irow ] = value;
+        }
+    }
+
+    /**
+     * Task which counts the quotes in a segment of the file, and
+     * locates the first record boundary within it for each possible
+     * parity of the number of quotes preceding it.
+     */
+    private class SegmentScan implements Callable<SegmentScan> {
+        final long start_;
+        final long end_;
+        long nquote_;
+        long evenBound_;
+        long oddBound_;
+
+        /**
+         * Constructor.
+         *
+         * @param  start  offset of segment start
+         * @param  end    offset of segment end
+         */
+        SegmentScan( long start, long end ) {
+            start_ = start;
+            end_ = end;
+            evenBound_ = -1;
+            oddBound_ = -1;
+        }
+
+        public SegmentScan call() throws IOException {
+            ByteBuffer buf = map( start_, end_ - start_ );
+            int n = buf.limit();
+            long nq = 0;
+            for ( int i = 0; i < n; i++ ) {
+                byte b = buf.get( i );
+                if ( b == '"' ) {
+                    nq++;
+                }
+                else if ( ( b == '\r' || b == '\n' ) &&
+                          ( evenBound_ < 0 || oddBound_ < 0 ) ) {
+
+                    /* Skip to the end of the run of line end characters.
+                     * If it reaches the end of the segment, there are
+                     * no more quotes or boundaries here. */
+                    int j = i + 1;
+                    while ( j < n && ( buf.get( j ) == '\r' ||
+                                       buf.get( j ) == '\n' ) ) {
+                        j++;
+                    }
+                    if ( j == n ) {
+                        break;
+                    }
+                    if ( nq % 2 == 0 ) {
+                        if ( evenBound_ < 0 ) {
+                            evenBound_ = start_ + j;
+                        }
+                    }
+                    else {
+                        if ( oddBound_ < 0 ) {
+                            oddBound_ = start_ + j;
+                        }
+                    }
+                    i = j - 1;
+                }
+            }
+            nquote_ = nq;
+            return this;
+        }
+    }
+
+    /**
+     * Task which tokenizes a chunk and assesses the types of its cells.
+     */
+    private class ChunkScan implements Callable<ChunkScan> {
+        final int ichunk_;
+        final RowEvaluator evaluator_;
+        String[] row0_;
+        long nrow_;
+
+        /**
+         * Constructor.
+         *
+         * @param  ichunk  chunk index
+         */
+        ChunkScan( int ichunk ) {
+            ichunk_ = ichunk;
+            evaluator_ = new RowEvaluator();
+        }
+
+        public ChunkScan call() throws IOException {
+            long start = chunkStarts_[ ichunk_ ];
+            Tokenizer tokenizer =
+                new Tokenizer( map( start,
+                                    chunkStarts_[ ichunk_ + 1 ] - start ) );
+            try {
+                if ( ichunk_ == 0 ) {
+                    row0_ = tokenizer.readRow();
+                }
+                for ( String[] row; ( row = tokenizer.readRow() ) != null; ) {
+                    evaluator_.submitRow( Arrays.asList( row ) );
+                    nrow_++;
+                }
+            }
+            catch ( TableFormatException e ) {
+                throw new TableFormatException( e.getMessage()
+                                              + " in block at byte offset "
+                                              + start, e );
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Task which decodes the cells of a chunk into column arrays.
+     * Blank cells in primitive columns are recorded in per-column bit sets,
+     * indexed by row offset from the start of the chunk.
+     * Blank cells in object columns need no record, since the array
+     * element is left null.
+     */
+    private class ChunkDecode implements Callable<ChunkDecode> {
+        final int ichunk_;
+        final Object[] arrays_;
+        final BitSet[] nullFlags_;
+
+        /**
+         * Constructor.
+         *
+         * @param  ichunk  chunk index
+         * @param  arrays  per-column storage arrays for the whole table
+         */
+        ChunkDecode( int ichunk, Object[] arrays ) {
+            ichunk_ = ichunk;
+            arrays_ = arrays;
+            nullFlags_ = new BitSet[ arrays.length ];
+        }
+
+        public ChunkDecode call() throws IOException {
+            RowEvaluator.Decoder[] decoders = meta_.decoders_;
+            int ncol = decoders.length;
+            Tokenizer tokenizer = createChunkTokenizer( ichunk_ );
+            int base = (int) rowBases_[ ichunk_ ];
+            int jrow = 0;
+            for ( String[] cells; ( cells = tokenizer.readRow() ) != null; ) {
+                for ( int icol = 0; icol < ncol; icol++ ) {
+                    String sval = cells[ icol ];
+                    if ( sval.length() > 0 ) {
+                        storeValue( arrays_[ icol ], base + jrow,
+                                    decoders[ icol ].decode( sval ) );
+                    }
+                    else if ( ! ( arrays_[ icol ] instanceof Object[] ) ) {
+                        if ( nullFlags_[ icol ] == null ) {
+                            nullFlags_[ icol ] = new BitSet();
+                        }
+                        nullFlags_[ icol ].set( jrow );
+                    }
+                }
+                jrow++;
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Table which reads its rows sequentially from the mapped chunks.
+     */
+    private class SequentialCsvTable extends AbstractStarTable {
+
+        public int getColumnCount() {
+            return meta_.ncol_;
+        }
+
+        public long getRowCount() {
+            return meta_.nrow_;
+        }
+
+        public ColumnInfo getColumnInfo( int icol ) {
+            return meta_.colInfos_[ icol ];
+        }
+
+        public RowSequence getRowSequence() {
+            final RowEvaluator.Decoder[] decoders = meta_.decoders_;
+            final int ncol = decoders.length;
+            final int nchunk = chunkStarts_.length - 1;
+            return new ReaderRowSequence() {
+                int ichunk_ = -1;
+                Tokenizer tokenizer_;
+                protected Object[] readRow() throws IOException {
+                    while ( true ) {
+                        if ( tokenizer_ != null ) {
+                            String[] cells = tokenizer_.readRow();
+                            if ( cells != null ) {
+                                Object[] row = new Object[ ncol ];
+                                for ( int icol = 0; icol < ncol; icol++ ) {
+                                    String sval = cells[ icol ];
+                                    if ( sval.length() > 0 ) {
+                                        row[ icol ] =
+                                            decoders[ icol ].decode( sval );
+                                    }
+                                }
+                                return row;
+                            }
+                        }
+                        if ( ++ichunk_ < nchunk ) {
+                            tokenizer_ = createChunkTokenizer( ichunk_ );
+                        }
+                        else {
+                            tokenizer_ = null;
+                            return null;
+                        }
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * Splits the bytes of a buffer into rows of cell strings,
+     * following the rules of {@link CsvStarTable#readRow}.
+     */
+    static class Tokenizer {
+        private final ByteBuffer buf_;
+        private final List<String> cellList_;
+        private final StringBuffer strBuf_;
+        private char[] cbuf_;
+        private int nc_;
+
+        /**
+         * Constructor.
+         *
+         * @param  buf  buffer containing CSV text; reading starts at its
+         *              current position
+         */
+        Tokenizer( ByteBuffer buf ) {
+            buf_ = buf;
+            cellList_ = new ArrayList<String>();
+            strBuf_ = new StringBuffer();
+            cbuf_ = new char[ 64 ];
+        }
+
+        /**
+         * Reads the next row.
+         *
+         * @return  array of trimmed cell strings, or null at end of buffer
+         */
+        String[] readRow() throws TableFormatException {
+            List<String> cellList = cellList_;
+            cellList.clear();
+            nc_ = 0;
+            boolean discard = false;
+            boolean endFile = false;
+            while ( cellList.size() == 0 && ! endFile ) {
+                for ( boolean endLine = false; ! endLine; ) {
+                    int c = read();
+                    switch ( c ) {
+                        case -1:
+                            endFile = true;
+                        case '\r':
+                        case '\n':
+                            while ( buf_.hasRemaining() ) {
+                                byte b = buf_.get( buf_.position() );
+                                if ( b == '\r' || b == '\n' ) {
+                                    buf_.get();
+                                }
+                                else {
+                                    break;
+                                }
+                            }
+                            if ( discard ) {
+                                discard = false;
+                            }
+                            else if ( cellList.size() > 0 || ! endFile ) {
+                                cellList.add( getTrimmedBuffer() );
+                            }
+                            nc_ = 0;
+                            endLine = true;
+                            break;
+                        case ',':
+                            if ( discard ) {
+                                discard = false;
+                            }
+                            else {
+                                cellList.add( getTrimmedBuffer() );
+                            }
+                            nc_ = 0;
+                            break;
+                        case '"':
+                            if ( getTrimmedBuffer().length() > 0 ) {
+                                throw new TableFormatException(
+                                    "Mixed quoted/unquoted cell '"
+                                  + new String( cbuf_, 0, nc_ ) + "'" );
+                            }
+                            cellList.add( readString() );
+                            discard = true;
+                            break;
+                        case ' ':
+                        case '\t':
+                            if ( ! discard ) {
+                                append( (char) c );
+                            }
+                            break;
+                        default:
+                            if ( discard ) {
+                                throw new TableFormatException(
+                                    "Mixed quoted/unquoted cell '"
+                                  + (char) c + "'" );
+                            }
+                            else {
+                                append( (char) c );
+                            }
+                    }
+                }
+            }
+            return cellList.size() == 0
+                 ? null
+                 : cellList.toArray( new String[ cellList.size() ] );
+        }
+
+        /**
+         * Reads a double-quoted string, following the opening quote.
+         *
+         * @return  the (undelimited) string
+         */
+        private String readString() throws TableFormatException {
+            StringBuffer sbuf = strBuf_;
+            sbuf.setLength( 0 );
+            while ( true ) {
+                int c = read();
+                switch ( c ) {
+                    case '"':
+                        int c2 = read();
+                        if ( c2 == '"' ) {
+                            sbuf.append( '"' );
+                        }
+                        else {
+                            if ( c2 != -1 ) {
+                                unread();
+                            }
+                            return sbuf.toString();
+                        }
+                        break;
+                    case -1:
+                        throw new TableFormatException(
+                            "End of file within a string literal" );
+                    default:
+                        sbuf.append( (char) c );
+                }
+            }
+        }
+
+        /**
+         * Reads the next byte as a character.
+         *
+         * @return  character value, or -1 at end of buffer
+         */
+        private int read() {
+            return buf_.hasRemaining() ? buf_.get() & 0xff : -1;
+        }
+
+        /**
+         * Steps back over the last byte read.
+         */
+        private void unread() {
+            buf_.position( buf_.position() - 1 );
+        }
+
+        /**
+         * Appends a character to the current cell buffer.
+         *
+         * @param  c  character
+         */
+        private void append( char c ) {
+            if ( nc_ == cbuf_.length ) {
+                char[] cbuf = new char[ nc_ * 2 ];
+                System.arraycopy( cbuf_, 0, cbuf, 0, nc_ );
+                cbuf_ = cbuf;
+            }
+            cbuf_[ nc_++ ] = c;
+        }
+
+        /**
+         * Returns the content of the current cell buffer with leading
+         * and trailing whitespace removed, as for {@link String#trim}.
+         *
+         * @return  trimmed cell text
+         */
+        private String getTrimmedBuffer() {
+            int lo = 0;
+            int hi = nc_;
+            while ( lo < hi && cbuf_[ lo ] <= ' ' ) {
+                lo++;
+            }
+            while ( hi > lo && cbuf_[ hi - 1 ] <= ' ' ) {
+                hi--;
+            }
+            return new String( cbuf_, lo, hi - lo );
+        }
+    }
+}
@@ -93,50 +93,75 @@ public class CsvStarTable extends StreamStarTable {
         if ( meta.nrow_ == 0 ) {
             throw new TableFormatException( "No rows" );
         }
-        RowEvaluator.Decoder[] decoders = meta.decoders_;
-        int ncol = meta.ncol_;
 
-        /* Now return to the first row.  See if it's a data row. */
-        if ( row0.length == ncol ) {
-            boolean isDataRow = true;
-            for ( int icol = 0; icol < ncol; icol++ ) {
-                String cell = row0[ icol ];
-                if ( cell != null && cell.length() > 0 ) {
-                    isDataRow = isDataRow
-                             && decoders[ icol ].isValid( cell );
-                }
-            }
+        /* Now return to the first row.  If it's a data row, present it
+         * to the row evaluator like the other rows, and return the
+         * metadata thus constructed. */
+        if ( ! isHeadingRow( row0, meta ) ) {
+            evaluator.submitRow( Arrays.asList( row0 ) );
+            return evaluator.getMetadata();
+        }
 
-            /* If it is a data row, present it to the row evaluator like
-             * the other rows, and return the metadata thus constructed. */
-            if ( isDataRow ) {
-                evaluator.submitRow( Arrays.asList( row0 ) );
-                return evaluator.getMetadata();
-            }
+        /* Otherwise, take column names from it if it looks like a
+         * headings row, or just ignore it (some sort of comment?)
+         * if it has the wrong number of elements. */
+        else {
+            hasHeading_ = true;
+            return applyHeadings( row0, meta );
+        }
+    }
 
-            /* If it's a headings row, get column names from it, and
-             * construct and return a suitable metadata item. */
-            else {
-                assert ! isDataRow;
-                hasHeading_ = true;
-                ColumnInfo[] colinfos = meta.colInfos_;
-                for ( int icol = 0; icol < ncol; icol++ ) {
-                    String h = row0[ icol ];
-                    if ( h != null && h.trim().length() > 0 ) {
-                        colinfos[ icol ].setName( h );
-                    }
-                }
-                return new RowEvaluator.Metadata( colinfos, decoders,
-                                                  meta.nrow_ );
+    /**
+     * Determines whether the first row of a CSV file is a special
+     * row rather than data.  It is considered to be data only if it
+     * has the right number of cells and each one can be decoded
+     * according to the metadata gleaned from the other rows.
+     *
+     * @param  row0  cells of the first row
+     * @param  meta  metadata obtained from all the other rows
+     * @return  true iff <code>row0</code> is not a data row
+     */
+    static boolean isHeadingRow( String[] row0, RowEvaluator.Metadata meta ) {
+        int ncol = meta.ncol_;
+        if ( row0.length != ncol ) {
+            return true;
+        }
+        RowEvaluator.Decoder[] decoders = meta.decoders_;
+        boolean isDataRow = true;
+        for ( int icol = 0; icol < ncol; icol++ ) {
+            String cell = row0[ icol ];
+            if ( cell != null && cell.length() > 0 ) {
+                isDataRow = isDataRow
+                         && decoders[ icol ].isValid( cell );
             }
         }
+        return ! isDataRow;
+    }
 
-        /* If the first row has the wrong number of elements just ignore it 
-         * (some sort of comment?) and use the metadata we've got. */
-        else {
-            hasHeading_ = true;
+    /**
+     * Returns metadata which takes account of a non-data first row.
+     * If that row has the right number of cells, its contents are used
+     * as column names.
+     *
+     * @param  row0  cells of the first row, which is not a data row
+     * @param  meta  metadata obtained from all the other rows
+     * @return   metadata for the table
+     */
+    static RowEvaluator.Metadata applyHeadings( String[] row0,
+                                                RowEvaluator.Metadata meta ) {
+        int ncol = meta.ncol_;
+        if ( row0.length != ncol ) {
             return meta;
         }
+        ColumnInfo[] colinfos = meta.colInfos_;
+        for ( int icol = 0; icol < ncol; icol++ ) {
+            String h = row0[ icol ];
+            if ( h != null && h.trim().length() > 0 ) {
+                colinfos[ icol ].setName( h );
+            }
+        }
+        return new RowEvaluator.Metadata( colinfos, meta.decoders_,
+                                          meta.nrow_ );
     }
 
     /**
@@ -1,25 +1,51 @@
 package uk.ac.starlink.table.formats;
 
 import java.awt.datatransfer.DataFlavor;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.logging.Logger;
+import uk.ac.starlink.table.AbstractStarTable;
 import uk.ac.starlink.table.StarTable;
 import uk.ac.starlink.table.StoragePolicy;
 import uk.ac.starlink.table.TableBuilder;
 import uk.ac.starlink.table.TableFormatException;
 import uk.ac.starlink.table.TableSink;
+import uk.ac.starlink.util.Compression;
 import uk.ac.starlink.util.DataSource;
+import uk.ac.starlink.util.FileDataSource;
+import uk.ac.starlink.util.Loader;
 
 /**
  * A table builder which reads tables in Comma-Separated Values format.
  * The detailed format of input file which is understood is documented
  * fully in the {@link CsvStarTable} class.
  *
+ * <p>Uncompressed local files are memory-mapped and read in chunks
+ * on multiple threads, avoiding a separate sequential pass to work out
+ * column types.  If random access is requested and the storage policy
+ * is {@link StoragePolicy#PREFER_MEMORY}, the data is decoded
+ * in parallel directly into column arrays.  For other policies
+ * a sequential table is returned, and it is left to the caller
+ * to store the data as the policy dictates.
+ * This behaviour can be turned off using the {@link #PARALLEL_PROPERTY}
+ * system property.
+ *
  * @author   Mark Taylor (Starlink)
  * @since    21 Sep 2004
  */
 public class CsvTableBuilder implements TableBuilder {
 
+    /**
+     * Name of system property which controls whether local CSV files
+     * are read using multiple threads.  Set it to "false" to use
+     * sequential stream reading in all cases.
+     */
+    public static final String PARALLEL_PROPERTY = "startable.csv.parallel";
+
+    private static final Logger logger_ =
+        Logger.getLogger( "uk.ac.starlink.table.formats" );
+
     public String getFormatName() {
         return "CSV";
     }
@@ -31,11 +57,60 @@ public class CsvTableBuilder implements TableBuilder {
     public StarTable makeStarTable( DataSource datsrc, boolean wantRandom,
                                     StoragePolicy policy )
             throws TableFormatException, IOException {
-        return new CsvStarTable( datsrc );
+        File file = getMappableFile( datsrc );
+        if ( file != null ) {
+            boolean inMemory = wantRandom
+                            && policy == StoragePolicy.PREFER_MEMORY;
+            AbstractStarTable table =
+                new CsvChunkReader( file ).createTable( inMemory );
+            table.setName( datsrc.getName() );
+            table.setURL( datsrc.getURL() );
+            return table;
+        }
+        else {
+            return new CsvStarTable( datsrc );
+        }
     }
 
     public void streamStarTable( InputStream in, TableSink sink, String pos )
             throws TableFormatException {
         throw new TableFormatException( "Can't stream ASCII format tables" ); 
     }
+
+    /**
+     * Returns the file from which a data source's CSV data can be
+     * read by a {@link CsvChunkReader}, if there is one.
+     *
+     * @param  datsrc  data source
+     * @return   uncompressed local file, or null
+     */
+    private static File getMappableFile( DataSource datsrc )
+            throws IOException {
+        if ( datsrc instanceof FileDataSource &&
+             datsrc.getCompression() == Compression.NONE &&
+             Loader.is64Bit() && isParallelEnabled() ) {
+            File file = ((FileDataSource) datsrc).getFile();
+            return file.isFile() ? file : null;
+        }
+        else {
+            return null;
+        }
+    }
+
+    /**
+     * Indicates whether parallel reading has been disabled by
+     * system property.
+     *
+     * @return  false iff {@link #PARALLEL_PROPERTY} is set to "false"
+     */
+    private static boolean isParallelEnabled() {
+        try {
+            return ! "false".equalsIgnoreCase( System.getProperty(
+                                                   PARALLEL_PROPERTY ) );
+        }
+        catch ( SecurityException e ) {
+            logger_.info( "Can't read " + PARALLEL_PROPERTY + " property" );
+            return true;
+        }
+    }
 }
@@ -349,6 +349,44 @@ public class RowEvaluator {
         }
     }
 
+    /**
+     * Merges the information gathered by another evaluator into this one.
+     * The effect is as if the rows submitted to <tt>other</tt> had
+     * also been submitted to this evaluator.
+     * This allows different parts of a table to be examined separately,
+     * for instance on different threads.
+     *
+     * @param   other  evaluator whose information is to be added to this one
+     * @throws  TableFormatException  if the two evaluators have seen rows
+     *          with different numbers of columns
+     */
+    public void merge( RowEvaluator other ) throws TableFormatException {
+        if ( other.ncol_ >= 0 ) {
+            if ( ncol_ < 0 ) {
+                init( other.ncol_ );
+            }
+            if ( other.ncol_ != ncol_ ) {
+                throw new TableFormatException(
+                    "Wrong number of columns (expecting " + ncol_ +
+                    ", found " + other.ncol_ + ")" );
+            }
+            for ( int icol = 0; icol < ncol_; icol++ ) {
+                maybeBoolean_[ icol ] &= other.maybeBoolean_[ icol ];
+                maybeShort_[ icol ] &= other.maybeShort_[ icol ];
+                maybeInteger_[ icol ] &= other.maybeInteger_[ icol ];
+                maybeLong_[ icol ] &= other.maybeLong_[ icol ];
+                maybeFloat_[ icol ] &= other.maybeFloat_[ icol ];
+                maybeDouble_[ icol ] &= other.maybeDouble_[ icol ];
+                maybeDate_[ icol ] &= other.maybeDate_[ icol ];
+                maybeHms_[ icol ] &= other.maybeHms_[ icol ];
+                maybeDms_[ icol ] &= other.maybeDms_[ icol ];
+                stringLength_[ icol ] = Math.max( stringLength_[ icol ],
+                                                  other.stringLength_[ icol ] );
+            }
+        }
+        nrow_ += other.nrow_;
+    }
+
     /**
      * Returns information gleaned from previous <tt>submitRow</tt>
      * calls about the kind of data that appears to be in the columns.
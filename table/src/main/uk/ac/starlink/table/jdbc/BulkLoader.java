@@ -0,0 +1,51 @@
+package uk.ac.starlink.table.jdbc;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import uk.ac.starlink.table.RowSequence;
+
+/**
+ * Fast-path writer which loads rows into an existing database table
+ * using some mechanism more efficient than one INSERT per row,
+ * for instance a streamed COPY.
+ * A {@link JDBCFormatter} will use a BulkLoader, if it has one
+ * which declares itself able to load to a given connection,
+ * in preference to parameterised INSERT statements.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+public interface BulkLoader {
+
+    /**
+     * Indicates whether this loader can write rows with the given
+     * columns to a given connection.
+     *
+     * @param  conn  database connection
+     * @param  cols  descriptions of the columns to write;
+     *               null elements represent columns which will not be written
+     * @return   true iff {@link #loadRows} may be called
+     */
+    boolean canLoad( Connection conn, JDBCFormatter.SqlColumn[] cols )
+            throws SQLException;
+
+    /**
+     * Writes all the remaining rows from a row sequence into a
+     * database table.
+     * Only cells corresponding to non-null elements of <code>cols</code>
+     * are written.  The row sequence is not closed by this method.
+     *
+     * @param  conn  database connection
+     * @param  target  table name followed by a parenthesised,
+     *                 comma-separated list of the names of the columns
+     *                 to write, suitably quoted for the database
+     * @param  cols  descriptions of the columns to write;
+     *               null elements represent columns which will not be written
+     * @param  rseq  row sequence supplying the data
+     * @return   number of rows written
+     */
+    long loadRows( Connection conn, String target,
+                   JDBCFormatter.SqlColumn[] cols, RowSequence rseq )
+            throws IOException, SQLException;
+}
@@ -28,6 +28,16 @@ import uk.ac.starlink.util.Loader;
 /**
  * Handles conversion of a StarTable into a new table in an RDBMS.
  *
+ * <p>Rows are written using a {@link BulkLoader} if one is available
+ * that can handle the connection, and otherwise by parameterised INSERT
+ * statements submitted in batches.
+ * If the connection is in auto-commit mode, the inserts are done in
+ * transactions which are committed at regular intervals rather than
+ * one per row.
+ * The default batch size and commit interval may be set using the
+ * system properties {@link #BATCH_SIZE_PROPERTY} and
+ * {@link #COMMIT_ROWS_PROPERTY} respectively.
+ *
  * @author   Mark Taylor
  */
 public class JDBCFormatter {
@@ -41,6 +51,27 @@ public class JDBCFormatter {
     private final Map typeNameMap_;
     private final SqlSyntax sqlSyntax_;
     private final boolean upperCasePreferred_;
+    private int batchSize_;
+    private long commitRows_;
+    private BulkLoader bulkLoader_;
+
+    /**
+     * Name of system property giving the default number of INSERT
+     * statements submitted in each batch ({@value}).
+     */
+    public static final String BATCH_SIZE_PROPERTY = "startable.jdbc.batch";
+
+    /**
+     * Name of system property giving the default number of rows
+     * written between transaction commits ({@value}).
+     */
+    public static final String COMMIT_ROWS_PROPERTY = "startable.jdbc.commit";
+
+    /** Default batch size if not set by system property. */
+    public static final int DFLT_BATCH_SIZE = 1000;
+
+    /** Default commit interval if not set by system property. */
+    public static final long DFLT_COMMIT_ROWS = 100000;
 
     private static Logger logger = 
         Logger.getLogger( "uk.ac.starlink.table.jdbc" );
@@ -61,6 +92,11 @@ public class JDBCFormatter {
         maxTableLeng_ = meta.getMaxTableNameLength();
         upperCasePreferred_ = meta.storesUpperCaseIdentifiers();
         sqlSyntax_ = getSqlSyntax( meta );
+        batchSize_ = (int) JDBCUtils.getLongProperty( BATCH_SIZE_PROPERTY,
+                                                      DFLT_BATCH_SIZE );
+        commitRows_ = JDBCUtils.getLongProperty( COMMIT_ROWS_PROPERTY,
+                                                 DFLT_COMMIT_ROWS );
+        bulkLoader_ = new PostgresCopyLoader();
 
         /* Work out column types and see if we need to work out maximum string
          * lengths. */
@@ -136,6 +172,69 @@ public class JDBCFormatter {
         }
     }
 
+    /**
+     * Sets the number of INSERT statements submitted together in a batch.
+     * A value of 1 or less means each row is inserted separately.
+     * Batching is not used if the database does not support it.
+     *
+     * @param  batchSize  rows per batch
+     */
+    public void setBatchSize( int batchSize ) {
+        batchSize_ = batchSize;
+    }
+
+    /**
+     * Returns the number of INSERT statements submitted together in a batch.
+     *
+     * @return  rows per batch
+     */
+    public int getBatchSize() {
+        return batchSize_;
+    }
+
+    /**
+     * Sets the number of rows written between transaction commits.
+     * This only has an effect if the connection is in auto-commit mode
+     * when the rows are written; in that case auto-commit is turned off
+     * during writing and restored afterwards.
+     * A value of zero or less means rows are committed according to the
+     * connection's auto-commit mode.
+     *
+     * @param  commitRows  rows per transaction
+     */
+    public void setCommitRows( long commitRows ) {
+        commitRows_ = commitRows;
+    }
+
+    /**
+     * Returns the number of rows written between transaction commits.
+     *
+     * @return  rows per transaction
+     */
+    public long getCommitRows() {
+        return commitRows_;
+    }
+
+    /**
+     * Sets the fast-path loader to use in preference to INSERT statements
+     * where it declares itself able to.
+     * By default a {@link PostgresCopyLoader} is used.
+     *
+     * @param  bulkLoader  bulk loader, or null to use INSERTs only
+     */
+    public void setBulkLoader( BulkLoader bulkLoader ) {
+        bulkLoader_ = bulkLoader;
+    }
+
+    /**
+     * Returns the fast-path loader to use in preference to INSERT statements.
+     *
+     * @return  bulk loader, may be null
+     */
+    public BulkLoader getBulkLoader() {
+        return bulkLoader_;
+    }
+
     /**
      * Returns the text of a suitable CREATE TABLE statement.
      *
@@ -193,6 +292,34 @@ public class JDBCFormatter {
         return sql.toString();
     }
 
+    /**
+     * Returns the table name and parenthesised list of writable column
+     * names, as used for the target of a {@link BulkLoader}.
+     *
+     * @param   tableName  name of SQL table for insertion
+     * @return  target specification
+     */
+    private String getLoadTarget( String tableName ) {
+        StringBuffer sql = new StringBuffer();
+        sql.append( defensiveQuoteTable( tableName ) )
+           .append( " (" );
+        boolean first = true;
+        int ncol = sqlCols_.length;
+        for ( int icol = 0; icol < ncol; icol++ ) {
+            SqlColumn sqlCol = sqlCols_[ icol ];
+            if ( sqlCol != null ) {
+                if ( ! first ) {
+                    sql.append( ',' );
+                }
+                first = false;
+                sql.append( ' ' )
+                   .append( defensiveQuoteColumn( sqlCol.getColumnName() ) );
+            }
+        }
+        sql.append( " )" );
+        return sql.toString();
+    }
+
     /**
      * Writes data from this formatter's input table into the database.
      * This method is somewhat misnamed - depending on the write mode, 
@@ -228,14 +355,83 @@ public class JDBCFormatter {
             stmt.executeUpdate( create );
         }
 
+        stmt.close();
+
+        /* Use explicit transactions if required. */
+        boolean isTxn = commitRows_ > 0
+                     && conn_.getAutoCommit()
+                     && conn_.getMetaData().supportsTransactions();
+        if ( isTxn ) {
+            conn_.setAutoCommit( false );
+        }
+
+        /* Add the data. */
+        RowSequence rseq = table_.getRowSequence();
+        boolean done = false;
+        try {
+            BulkLoader loader = bulkLoader_ != null
+                             && bulkLoader_.canLoad( conn_, sqlCols_ )
+                              ? bulkLoader_
+                              : null;
+            long nrow;
+            if ( loader != null ) {
+                String target = getLoadTarget( tableName );
+                logger.info( "Bulk load to " + target + " using " + loader );
+                nrow = loader.loadRows( conn_, target, sqlCols_, rseq );
+            }
+            else {
+                nrow = insertRows( tableName, rseq, isTxn );
+            }
+            if ( isTxn ) {
+                conn_.commit();
+            }
+            logger.info( "Wrote " + nrow + " rows" );
+            done = true;
+        }
+        finally {
+            rseq.close();
+            if ( isTxn ) {
+                if ( ! done ) {
+                    try {
+                        conn_.rollback();
+                    }
+                    catch ( SQLException e ) {
+                        logger.warning( "Rollback failed: " + e );
+                    }
+                }
+                conn_.setAutoCommit( true );
+            }
+        }
+    }
+
+    /**
+     * Writes the remaining rows of a row sequence to the database
+     * using INSERT statements, batched if possible.
+     *
+     * @param   tableName  name of SQL table for insertion
+     * @param   rseq   row sequence supplying data
+     * @param   isTxn  true if this method should commit the current
+     *                 transaction every {@link #getCommitRows} rows
+     * @return  number of rows written
+     */
+    private long insertRows( String tableName, RowSequence rseq,
+                             boolean isTxn )
+            throws IOException, SQLException {
+
         /* Prepare a statement for adding the data. */
         String insert = getInsertStatement( tableName );
         logger.info( insert );
         PreparedStatement pstmt = conn_.prepareStatement( insert );
+        boolean isBatch = batchSize_ > 1
+                       && conn_.getMetaData().supportsBatchUpdates();
+        if ( isBatch ) {
+            logger.info( "Inserting in batches of " + batchSize_ );
+        }
 
         /* Add the data. */
         int ncol = sqlCols_.length;
-        RowSequence rseq = table_.getRowSequence();
+        long irow = 0;
+        int nbatch = 0;
         try {
             while ( rseq.next() ) {
                 Object[] row = rseq.getRow();
@@ -253,12 +449,33 @@ public class JDBCFormatter {
                         }
                     }
                 }
-                pstmt.executeUpdate();
+                if ( isBatch ) {
+                    pstmt.addBatch();
+                    if ( ++nbatch >= batchSize_ ) {
+                        pstmt.executeBatch();
+                        nbatch = 0;
+                    }
+                }
+                else {
+                    pstmt.executeUpdate();
+                }
+                irow++;
+                if ( isTxn && irow % commitRows_ == 0 ) {
+                    if ( nbatch > 0 ) {
+                        pstmt.executeBatch();
+                        nbatch = 0;
+                    }
+                    conn_.commit();
+                }
+            }
+            if ( nbatch > 0 ) {
+                pstmt.executeBatch();
             }
         }
         finally {
-            rseq.close();
+            pstmt.close();
         }
+        return irow;
     }
 
     /**
@@ -18,12 +18,24 @@ import uk.ac.starlink.table.WrapperRowSequence;
 /**
  * A StarTable implementation based on the results of an SQL query 
  * on a JDBC table.
+ *
+ * <p>Sequential reads can optionally be partitioned using
+ * {@link #setPartitioning setPartitioning}.  In that case the query is
+ * split into several sub-queries covering different ranges of a
+ * numeric key column, which are executed concurrently on separate
+ * connections, and whose results are merged into a single row sequence.
+ * This can make better use of database and network resources
+ * for large queries.
  */
 public class JDBCStarTable extends AbstractStarTable {
 
     private ColumnInfo[] colInfos_;
     private final Connector connx_;
     private final String sql_;
+    private int fetchSize_;
+    private String partKey_;
+    private int npart_;
+    private boolean isOrderedMerge_;
 
     /**
      * Holds a random access ResultSet if this object provides random access.
@@ -71,6 +83,7 @@ public class JDBCStarTable extends AbstractStarTable {
             throws SQLException {
         connx_ = connx;
         sql_ = sql;
+        fetchSize_ = JDBCUtils.getDefaultFetchSize();
         Connection conn = connx.getConnection();
         setName( conn.getMetaData().getURL() + '#' + sql );
 
@@ -161,12 +174,83 @@ public class JDBCStarTable extends AbstractStarTable {
         }
     }
 
+    /**
+     * Sets the number of rows retrieved from the database in each
+     * round trip when reading sequentially.
+     * The default is given by {@link JDBCUtils#getDefaultFetchSize}.
+     *
+     * @param  fetchSize  JDBC fetch size
+     */
+    public void setFetchSize( int fetchSize ) {
+        fetchSize_ = fetchSize;
+    }
+
+    /**
+     * Returns the number of rows retrieved from the database in each
+     * round trip when reading sequentially.
+     *
+     * @return  JDBC fetch size
+     */
+    public int getFetchSize() {
+        return fetchSize_;
+    }
+
+    /**
+     * Configures this table to read sequential row sequences using
+     * several concurrent range queries on a numeric key column.
+     * Each call to {@link #getRowSequence} first queries the minimum
+     * and maximum values of the key, then divides that range into
+     * <code>npart</code> equal intervals, and reads each interval
+     * on its own connection and thread.
+     * Rows with a null key value are included in the last interval.
+     *
+     * <p>If <code>isOrdered</code> is true, each interval's query sorts
+     * its rows by the key column, and the intervals are returned in turn,
+     * so that rows are returned in ascending order of the key,
+     * with null keys last.  Any other ordering in the query itself
+     * is not preserved.  If the key range cannot be divided,
+     * the query is run unchanged.
+     * Otherwise rows are returned in whatever order they arrive,
+     * which keeps all the readers busy.
+     *
+     * <p>The query must be usable as a derived table
+     * (<code>SELECT * FROM (query) alias</code>),
+     * and the connector must be able to supply multiple connections.
+     * This setting does not affect random access.
+     *
+     * @param  keyCol  name of a numeric column in the query result,
+     *                 quoted if necessary; null to disable partitioning
+     * @param  npart   number of partitions; a value &lt;=1 disables
+     *                 partitioning
+     * @param  isOrdered  whether rows from different partitions are
+     *                    returned in partition order
+     */
+    public void setPartitioning( String keyCol, int npart,
+                                 boolean isOrdered ) {
+        partKey_ = keyCol;
+        npart_ = npart;
+        isOrderedMerge_ = isOrdered;
+    }
+
+    /**
+     * Returns the number of partitions used for sequential reads.
+     *
+     * @return  partition count; 1 means no partitioning
+     */
+    public int getPartitionCount() {
+        return partKey_ != null && npart_ > 1 ? npart_ : 1;
+    }
+
     public RowSequence getRowSequence() throws IOException {
+        if ( getPartitionCount() > 1 ) {
+            return createPartitionedRowSequence();
+        }
         final StarResultSet srset;
         Connection conn = null;
         try {
             conn = connx_.getConnection();
-            Statement stmt = JDBCUtils.createStreamingStatement( conn, false );
+            Statement stmt = JDBCUtils.createStreamingStatement( conn, false,
+                                                                 fetchSize_ );
             srset = new StarResultSet( stmt.executeQuery( sql_ ) );
             checkConsistent( srset );
         }
@@ -214,6 +298,33 @@ public class JDBCStarTable extends AbstractStarTable {
         };
     }
 
+    /**
+     * Returns a row sequence which reads the query result in partitions.
+     *
+     * @return  row sequence
+     */
+    private RowSequence createPartitionedRowSequence() throws IOException {
+        String[] sqls;
+        try {
+            Connection conn = connx_.getConnection();
+            try {
+                sqls = PartitionedRowSequence
+                      .createRangeQueries( conn, sql_, partKey_, npart_,
+                                           isOrderedMerge_ );
+            }
+            finally {
+                conn.close();
+            }
+        }
+        catch ( SQLException e ) {
+            throw (IOException) new IOException( e.getMessage() )
+                               .initCause( e );
+        }
+        logger_.info( "Reading query in " + sqls.length + " partitions" );
+        return new PartitionedRowSequence( connx_, sqls, colInfos_.length,
+                                           fetchSize_, isOrderedMerge_ );
+    }
+
     /**
      * Returns a JDBC Connection that can supply the data for this table.
      *
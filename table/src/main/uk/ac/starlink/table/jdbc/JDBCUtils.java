@@ -24,6 +24,16 @@ public class JDBCUtils {
     private static final Pattern SQLSERVER_DRIVER_REGEX =
         Pattern.compile( ".*SQL.?Server.*", Pattern.CASE_INSENSITIVE );
 
+    /**
+     * Name of system property giving the default number of rows
+     * fetched from the database in each round trip
+     * when streaming query results ({@value}).
+     */
+    public static final String FETCH_SIZE_PROPERTY = "startable.jdbc.fetch";
+
+    /** Default fetch size if not set by system property. */
+    public static final int DFLT_FETCH_SIZE = 1024;
+
     private static Logger logger_ =
         Logger.getLogger( "uk.ac.starlink.table.jdbc" );
 
@@ -50,6 +60,32 @@ public class JDBCUtils {
     public static Statement createStreamingStatement( Connection conn, 
                                                       boolean update )
             throws SQLException {
+        return createStreamingStatement( conn, update,
+                                         getDefaultFetchSize() );
+    }
+
+    /**
+     * Returns a statement which tries its best to stream data,
+     * with a given number of rows retrieved per round trip.
+     * The fetch size is only a hint; it is ignored for drivers,
+     * like MySQL's, which can only stream a row at a time.
+     *
+     * <p>Note that in some cases the supplied connection may have its
+     * autocommit mode modified by this call.
+     *
+     * @param   conn  connection
+     * @param   update  true for an updatable set, false for read-only
+     * @param   fetchSize  number of rows fetched per round trip;
+     *                     if &lt;=0 the default is used
+     * @return  statement which (hopefully) streams results
+     */
+    public static Statement createStreamingStatement( Connection conn, 
+                                                      boolean update,
+                                                      int fetchSize )
+            throws SQLException {
+        if ( fetchSize <= 0 ) {
+            fetchSize = getDefaultFetchSize();
+        }
         int concurrency = update ? ResultSet.CONCUR_UPDATABLE
                                  : ResultSet.CONCUR_READ_ONLY;
 
@@ -68,7 +104,7 @@ public class JDBCUtils {
             conn.setAutoCommit( false );
             Statement stmt = conn.createStatement( ResultSet.TYPE_FORWARD_ONLY,
                                                    concurrency );
-            stmt.setFetchSize( 1024 );
+            stmt.setFetchSize( fetchSize );
             return stmt;
         }
 
@@ -108,8 +144,55 @@ public class JDBCUtils {
         else {
             logger_.info( "No special steps to stream results - "
                        + "may run out of memory for large ResultSet?" );
-            return conn.createStatement( ResultSet.TYPE_FORWARD_ONLY,
-                                         concurrency );
+            Statement stmt =
+                conn.createStatement( ResultSet.TYPE_FORWARD_ONLY,
+                                      concurrency );
+            try {
+                stmt.setFetchSize( fetchSize );
+            }
+            catch ( SQLException e ) {
+                logger_.info( "Fetch size not set: " + e );
+            }
+            return stmt;
+        }
+    }
+
+    /**
+     * Returns the default fetch size used for streaming statements.
+     * This is taken from the {@link #FETCH_SIZE_PROPERTY} system property
+     * if it is set, and {@link #DFLT_FETCH_SIZE} otherwise.
+     *
+     * @return  default fetch size
+     */
+    public static int getDefaultFetchSize() {
+        int size = (int) getLongProperty( FETCH_SIZE_PROPERTY,
+                                          DFLT_FETCH_SIZE );
+        return size > 0 ? size : DFLT_FETCH_SIZE;
+    }
+
+    /**
+     * Returns the value of a system property as a long integer.
+     *
+     * @param  propName  property name
+     * @param  dflt   default value if property is absent or unusable
+     * @return  property value
+     */
+    static long getLongProperty( String propName, long dflt ) {
+        try {
+            String txt = System.getProperty( propName );
+            if ( txt != null && txt.trim().length() > 0 ) {
+                try {
+                    return Long.parseLong( txt.trim() );
+                }
+                catch ( NumberFormatException e ) {
+                    logger_.warning( "Bad value for " + propName + ": "
+                                   + txt );
+                }
+            }
+        }
+        catch ( SecurityException e ) {
+            // never mind
         }
+        return dflt;
     }
 }
@@ -0,0 +1,388 @@
+package uk.ac.starlink.table.jdbc;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Logger;
+import uk.ac.starlink.table.RowSequence;
+
+/**
+ * RowSequence which reads the results of several SQL queries concurrently,
+ * each on its own connection and thread, and presents them as a
+ * single sequence of rows.
+ * This is intended for splitting a large query into sub-queries
+ * covering disjoint ranges of a numeric key column;
+ * see {@link #createRangeQueries createRangeQueries}.
+ *
+ * <p>Rows are passed from the reader threads in blocks through bounded
+ * queues, so the amount of memory used does not depend on the size
+ * of the result.  If the merge is ordered, all the rows from the first
+ * query are returned, followed by all those from the second, and so on;
+ * otherwise rows are returned in whatever order they arrive.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+class PartitionedRowSequence implements RowSequence {
+
+    private final BlockingQueue<Block>[] queues_;
+    private final Thread[] readers_;
+    private final boolean isOrdered_;
+    private final int npart_;
+    private int iq_;
+    private int nDone_;
+    private Block block_;
+    private int irow_;
+    private Object[] row_;
+    private volatile boolean closed_;
+
+    /** Number of rows passed between threads at once. */
+    private static final int BLOCK_ROWS = 256;
+
+    /** Number of blocks which may be queued per reader thread. */
+    private static final int QUEUE_BLOCKS = 4;
+
+    private static final Logger logger_ =
+        Logger.getLogger( "uk.ac.starlink.table.jdbc" );
+
+    /**
+     * Constructor.  Reader threads are started immediately.
+     *
+     * @param  connx  source of connections, one per query
+     * @param  sqls   query texts; all must yield the same columns
+     * @param  ncol   number of columns expected in each result
+     * @param  fetchSize  JDBC fetch size for each query
+     * @param  isOrdered  true to return the results of each query
+     *                    in turn, false to return rows as they arrive
+     */
+    public PartitionedRowSequence( Connector connx, String[] sqls, int ncol,
+                                   int fetchSize, boolean isOrdered ) {
+        npart_ = sqls.length;
+        isOrdered_ = isOrdered;
+        queues_ = new BlockingQueue[ isOrdered ? npart_ : 1 ];
+        for ( int iq = 0; iq < queues_.length; iq++ ) {
+            queues_[ iq ] =
+                new ArrayBlockingQueue<Block>( isOrdered
+                                             ? QUEUE_BLOCKS
+                                             : QUEUE_BLOCKS * npart_ );
+        }
+        readers_ = new Thread[ npart_ ];
+        for ( int ip = 0; ip < npart_; ip++ ) {
+            BlockingQueue<Block> queue = queues_[ isOrdered ? ip : 0 ];
+            readers_[ ip ] = new Reader( connx, sqls[ ip ], ncol, fetchSize,
+                                         queue, ip );
+            readers_[ ip ].start();
+        }
+    }
+
+    public boolean next() throws IOException {
+        while ( block_ == null || irow_ + 1 >= block_.nrow_ ) {
+            if ( nDone_ >= npart_ ) {
+                row_ = null;
+                return false;
+            }
+            Block block;
+            try {
+                block = queues_[ iq_ ].take();
+            }
+            catch ( InterruptedException e ) {
+                throw (IOException)
+                      new IOException( "Interrupted" ).initCause( e );
+            }
+            if ( block.error_ != null ) {
+                close();
+                throw block.error_;
+            }
+            if ( block.isEnd_ ) {
+                nDone_++;
+                if ( isOrdered_ && iq_ + 1 < queues_.length ) {
+                    iq_++;
+                }
+            }
+            block_ = block;
+            irow_ = -1;
+        }
+        row_ = block_.rows_[ ++irow_ ];
+        return true;
+    }
+
+    public Object getCell( int icol ) {
+        return getRow()[ icol ];
+    }
+
+    public Object[] getRow() {
+        if ( row_ == null ) {
+            throw new NoSuchElementException( "No current row" );
+        }
+        return row_;
+    }
+
+    public void close() {
+        if ( ! closed_ ) {
+            closed_ = true;
+            for ( int ip = 0; ip < readers_.length; ip++ ) {
+                readers_[ ip ].interrupt();
+            }
+            for ( int iq = 0; iq < queues_.length; iq++ ) {
+                queues_[ iq ].clear();
+            }
+        }
+    }
+
+    /**
+     * Returns a list of queries which between them return the same rows
+     * as a given query, partitioned into ranges of a numeric key column.
+     * The minimum and maximum values of the key are first determined
+     * by a database query, and the range between them is divided
+     * into equal intervals.  Rows with a null key are included in the
+     * last partition.
+     * If the range cannot be divided, the supplied query is returned
+     * unchanged as the only partition.
+     *
+     * <p>The sub-queries are of the form
+     * <code>SELECT * FROM (sql) alias WHERE ...</code>,
+     * so the supplied query must be usable as a derived table.
+     * SQL does not guarantee that the rows of a derived table keep
+     * any ORDER BY it has, so if the sub-queries are required to be
+     * ordered, they sort their own rows by the key column,
+     * with null keys last.
+     *
+     * @param  conn  connection used to find the range of the key
+     * @param  sql   text of the SQL query to partition
+     * @param  keyCol  name of a numeric column in the result of
+     *                 <code>sql</code>, quoted if necessary
+     * @param  npart  requested number of partitions
+     * @param  isOrdered  true if each sub-query should return its rows
+     *                    in ascending order of the key column
+     * @return  array of between 1 and <code>npart</code> queries
+     */
+    public static String[] createRangeQueries( Connection conn, String sql,
+                                               String keyCol, int npart,
+                                               boolean isOrdered )
+            throws SQLException {
+        String from = " FROM ( " + sql + " ) partq";
+        Statement stmt = conn.createStatement();
+        Object min;
+        Object max;
+        try {
+            ResultSet rset =
+                stmt.executeQuery( "SELECT MIN(" + keyCol + "), "
+                                 + "MAX(" + keyCol + ")" + from );
+            rset.next();
+            min = rset.getObject( 1 );
+            max = rset.getObject( 2 );
+            rset.close();
+        }
+        finally {
+            stmt.close();
+        }
+        if ( ! ( min instanceof Number && max instanceof Number ) ||
+             npart <= 1 ) {
+            return new String[] { sql };
+        }
+        boolean isInt = isInteger( (Number) min ) && isInteger( (Number) max );
+        double dmin = ((Number) min).doubleValue();
+        double dmax = ((Number) max).doubleValue();
+        if ( ! ( dmax > dmin ) ) {
+            return new String[] { sql };
+        }
+        if ( isInt ) {
+            npart = (int) Math.max( 1, Math.min( npart, dmax - dmin + 1 ) );
+        }
+
+        /* Work out the bounds between adjacent partitions. */
+        String[] bounds = new String[ npart - 1 ];
+        long lmin = ((Number) min).longValue();
+        long lmax = ((Number) max).longValue();
+        for ( int ib = 0; ib < npart - 1; ib++ ) {
+            double frac = ( ib + 1.0 ) / npart;
+            if ( isInt ) {
+                long lb = lmin + (long) Math.ceil( ( dmax - dmin ) * frac );
+                bounds[ ib ] = Long.toString( Math.min( Math.max( lb, lmin ),
+                                                        lmax ) );
+            }
+            else {
+                bounds[ ib ] = Double.toString( dmin + ( dmax - dmin ) * frac );
+            }
+        }
+
+        /* Assemble the queries. */
+        String[] sqls = new String[ npart ];
+        for ( int ip = 0; ip < npart; ip++ ) {
+            StringBuffer sbuf = new StringBuffer()
+                .append( "SELECT *" )
+                .append( from )
+                .append( " WHERE " );
+            if ( ip > 0 ) {
+                sbuf.append( keyCol )
+                    .append( " >= " )
+                    .append( bounds[ ip - 1 ] );
+            }
+            if ( ip > 0 && ip < npart - 1 ) {
+                sbuf.append( " AND " );
+            }
+            if ( ip < npart - 1 ) {
+                sbuf.append( keyCol )
+                    .append( " < " )
+                    .append( bounds[ ip ] );
+            }
+            if ( ip == npart - 1 ) {
+                sbuf.append( " OR " )
+                    .append( keyCol )
+                    .append( " IS NULL" );
+            }
+            if ( isOrdered ) {
+                sbuf.append( " ORDER BY CASE WHEN " )
+                    .append( keyCol )
+                    .append( " IS NULL THEN 1 ELSE 0 END, " )
+                    .append( keyCol );
+            }
+            sqls[ ip ] = sbuf.toString();
+        }
+        return sqls;
+    }
+
+    /**
+     * Indicates whether a number has an integer type.
+     *
+     * @param  num  number
+     * @return  true iff num is an integer type
+     */
+    private static boolean isInteger( Number num ) {
+        if ( num instanceof BigDecimal ) {
+            BigDecimal bd = (BigDecimal) num;
+            return bd.scale() <= 0
+                && bd.abs().compareTo( new BigDecimal( Long.MAX_VALUE ) ) < 0;
+        }
+        else if ( num instanceof BigInteger ) {
+            return ((BigInteger) num).bitLength() < 63;
+        }
+        else {
+            return num instanceof Long
+                || num instanceof Integer
+                || num instanceof Short
+                || num instanceof Byte;
+        }
+    }
+
+    /**
+     * Block of rows passed from a reader thread to the consumer.
+     */
+    private static class Block {
+        final Object[][] rows_;
+        int nrow_;
+        boolean isEnd_;
+        IOException error_;
+
+        /**
+         * Constructor.
+         *
+         * @param  size  maximum number of rows
+         */
+        Block( int size ) {
+            rows_ = new Object[ size ][];
+        }
+    }
+
+    /**
+     * Thread which executes a single query and feeds its rows to a queue.
+     */
+    private class Reader extends Thread {
+        private final Connector connx_;
+        private final String sql_;
+        private final int ncol_;
+        private final int fetchSize_;
+        private final BlockingQueue<Block> queue_;
+
+        /**
+         * Constructor.
+         *
+         * @param  connx  connection source
+         * @param  sql   query text
+         * @param  ncol  expected column count
+         * @param  fetchSize  JDBC fetch size
+         * @param  queue  destination queue
+         * @param  ipart  partition index
+         */
+        Reader( Connector connx, String sql, int ncol, int fetchSize,
+                BlockingQueue<Block> queue, int ipart ) {
+            super( "JDBC partition reader " + ipart );
+            setDaemon( true );
+            connx_ = connx;
+            sql_ = sql;
+            ncol_ = ncol;
+            fetchSize_ = fetchSize;
+            queue_ = queue;
+        }
+
+        public void run() {
+            Block block = new Block( BLOCK_ROWS );
+            Connection conn = null;
+            try {
+                conn = connx_.getConnection();
+                Statement stmt =
+                    JDBCUtils.createStreamingStatement( conn, false,
+                                                        fetchSize_ );
+                StarResultSet srset =
+                    new StarResultSet( stmt.executeQuery( sql_ ) );
+                if ( srset.getColumnInfos().length != ncol_ ) {
+                    throw new IllegalStateException(
+                        "ResultSet column count has changed" );
+                }
+                ResultSet rset = srset.getResultSet();
+                while ( ! closed_ && rset.next() ) {
+                    block.rows_[ block.nrow_++ ] = srset.getRow();
+                    if ( block.nrow_ == BLOCK_ROWS ) {
+                        queue_.put( block );
+                        block = new Block( BLOCK_ROWS );
+                    }
+                }
+                rset.close();
+                stmt.close();
+                block.isEnd_ = true;
+            }
+            catch ( InterruptedException e ) {
+                return;
+            }
+            catch ( SQLException e ) {
+                block.error_ = (IOException)
+                               new IOException( e.getMessage() )
+                              .initCause( e );
+            }
+            catch ( IOException e ) {
+                block.error_ = e;
+            }
+            catch ( RuntimeException e ) {
+                block.error_ = (IOException)
+                               new IOException( e.toString() ).initCause( e );
+            }
+            finally {
+                if ( conn != null ) {
+                    try {
+                        if ( ! conn.getAutoCommit() ) {
+                            conn.commit();
+                        }
+                        conn.close();
+                    }
+                    catch ( SQLException e ) {
+                        logger_.info( "Error closing connection: " + e );
+                    }
+                }
+            }
+            if ( ! closed_ ) {
+                try {
+                    queue_.put( block );
+                }
+                catch ( InterruptedException e ) {
+                }
+            }
+        }
+    }
+}
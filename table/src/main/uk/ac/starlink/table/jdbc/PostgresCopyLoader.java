@@ -0,0 +1,264 @@
+package uk.ac.starlink.table.jdbc;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import uk.ac.starlink.table.RowSequence;
+import uk.ac.starlink.table.Tables;
+
+/**
+ * BulkLoader which uses PostgreSQL's <code>COPY ... FROM STDIN</code>
+ * command to stream rows to the server in CSV format.
+ * This is typically an order of magnitude or more faster than
+ * batched INSERT statements.
+ *
+ * <p>The PostgreSQL JDBC driver's <code>CopyManager</code> is accessed
+ * by reflection, so the driver is not required at build time.
+ * This loader declines to load to connections which are not
+ * PostgreSQL connections, or tables with columns that are not
+ * of scalar numeric, boolean or character type.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+public class PostgresCopyLoader implements BulkLoader {
+
+    private static final String PGCONNECTION_CLASS =
+        "org.postgresql.PGConnection";
+
+    public boolean canLoad( Connection conn, JDBCFormatter.SqlColumn[] cols ) {
+        if ( getPgConnectionClass( conn ) == null ) {
+            return false;
+        }
+        for ( int icol = 0; icol < cols.length; icol++ ) {
+            if ( cols[ icol ] != null &&
+                 ! isCopyType( cols[ icol ].getSqlType() ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long loadRows( Connection conn, String target,
+                          JDBCFormatter.SqlColumn[] cols, RowSequence rseq )
+            throws IOException, SQLException {
+        String sql = "COPY " + target + " FROM STDIN WITH CSV";
+        CsvRowReader reader = new CsvRowReader( cols, rseq );
+        Object result;
+        try {
+            Class pgClazz = getPgConnectionClass( conn );
+            Object copyApi = pgClazz.getMethod( "getCopyAPI", new Class[ 0 ] )
+                                    .invoke( conn, new Object[ 0 ] );
+            Method copyIn =
+                copyApi.getClass()
+                       .getMethod( "copyIn",
+                                   new Class[] { String.class, Reader.class } );
+            result = copyIn.invoke( copyApi, new Object[] { sql, reader } );
+        }
+        catch ( InvocationTargetException e ) {
+            Throwable err = e.getCause();
+            if ( reader.error_ != null ) {
+                throw reader.error_;
+            }
+            else if ( err instanceof SQLException ) {
+                throw (SQLException) err;
+            }
+            else if ( err instanceof IOException ) {
+                throw (IOException) err;
+            }
+            else {
+                throw (SQLException) new SQLException( "COPY failed: " + err )
+                                    .initCause( err );
+            }
+        }
+        catch ( Exception e ) {
+            throw (SQLException)
+                  new SQLException( "PostgreSQL COPY API unavailable: " + e )
+                 .initCause( e );
+        }
+        return result instanceof Number ? ((Number) result).longValue()
+                                        : reader.nrow_;
+    }
+
+    public String toString() {
+        return "PostgreSQL COPY";
+    }
+
+    /**
+     * Returns the PostgreSQL connection interface if a given connection
+     * implements it.
+     *
+     * @param  conn  connection
+     * @return  PGConnection class, or null if conn is not a PGConnection
+     */
+    private static Class getPgConnectionClass( Connection conn ) {
+        try {
+            Class clazz = Class.forName( PGCONNECTION_CLASS, false,
+                                         conn.getClass().getClassLoader() );
+            return clazz.isInstance( conn ) ? clazz : null;
+        }
+        catch ( ClassNotFoundException e ) {
+            return null;
+        }
+        catch ( LinkageError e ) {
+            return null;
+        }
+    }
+
+    /**
+     * Indicates whether values of a given SQL type can be written
+     * by this loader.
+     *
+     * @param  sqlType  type code from {@link java.sql.Types}
+     * @return  true iff values can be written in CSV form
+     */
+    private static boolean isCopyType( int sqlType ) {
+        switch ( sqlType ) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.FLOAT:
+            case Types.REAL:
+            case Types.DOUBLE:
+            case Types.BIT:
+            case Types.BOOLEAN:
+            case Types.CHAR:
+            case Types.VARCHAR:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Reader which supplies the rows of a row sequence
+     * in the CSV dialect understood by PostgreSQL's COPY command.
+     * Blank values are written as empty unquoted fields,
+     * which COPY reads as NULL.
+     */
+    static class CsvRowReader extends Reader {
+        private final JDBCFormatter.SqlColumn[] cols_;
+        private final RowSequence rseq_;
+        private final StringBuffer sbuf_;
+        private int pos_;
+        private boolean done_;
+        long nrow_;
+        IOException error_;
+
+        /** Approximate number of characters buffered at once. */
+        private static final int BUFSIZ = 64 * 1024;
+
+        /**
+         * Constructor.
+         *
+         * @param  cols  column descriptions; null elements are skipped
+         * @param  rseq  row sequence supplying data
+         */
+        CsvRowReader( JDBCFormatter.SqlColumn[] cols, RowSequence rseq ) {
+            cols_ = cols;
+            rseq_ = rseq;
+            sbuf_ = new StringBuffer( BUFSIZ + 1024 );
+        }
+
+        public int read( char[] cbuf, int off, int len ) throws IOException {
+            if ( len == 0 ) {
+                return 0;
+            }
+            while ( pos_ >= sbuf_.length() ) {
+                if ( done_ ) {
+                    return -1;
+                }
+                fill();
+            }
+            int n = Math.min( len, sbuf_.length() - pos_ );
+            sbuf_.getChars( pos_, pos_ + n, cbuf, off );
+            pos_ += n;
+            return n;
+        }
+
+        public void close() {
+        }
+
+        /**
+         * Reads rows into the buffer.
+         */
+        private void fill() throws IOException {
+            sbuf_.setLength( 0 );
+            pos_ = 0;
+            try {
+                while ( sbuf_.length() < BUFSIZ ) {
+                    if ( ! rseq_.next() ) {
+                        done_ = true;
+                        return;
+                    }
+                    appendRow( rseq_.getRow() );
+                    nrow_++;
+                }
+            }
+            catch ( IOException e ) {
+                error_ = e;
+                throw e;
+            }
+        }
+
+        /**
+         * Appends a row to the buffer as a line of CSV.
+         *
+         * @param  row  row data
+         */
+        private void appendRow( Object[] row ) {
+            boolean first = true;
+            for ( int icol = 0; icol < cols_.length; icol++ ) {
+                if ( cols_[ icol ] != null ) {
+                    if ( ! first ) {
+                        sbuf_.append( ',' );
+                    }
+                    first = false;
+                    Object val = row[ icol ];
+                    if ( ! Tables.isBlank( val ) ) {
+                        if ( val instanceof Number ||
+                             val instanceof Boolean ) {
+                            sbuf_.append( val.toString() );
+                        }
+                        else {
+                            appendString( val.toString() );
+                        }
+                    }
+                }
+            }
+            sbuf_.append( '\n' );
+        }
+
+        /**
+         * Appends a string value to the buffer, quoting it if required.
+         *
+         * @param  txt  string value
+         */
+        private void appendString( String txt ) {
+            boolean quote = txt.length() == 0 || txt.equals( "\\." );
+            for ( int i = 0; i < txt.length() && ! quote; i++ ) {
+                char c = txt.charAt( i );
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if ( quote ) {
+                sbuf_.append( '"' );
+                for ( int i = 0; i < txt.length(); i++ ) {
+                    char c = txt.charAt( i );
+                    if ( c == '"' ) {
+                        sbuf_.append( '"' );
+                    }
+                    sbuf_.append( c );
+                }
+                sbuf_.append( '"' );
+            }
+            else {
+                sbuf_.append( txt );
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package uk.ac.starlink.table.jdbc;
 
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
@@ -32,12 +33,22 @@ public class StarResultSet {
     private final TypeMapper typeMapper_;
     private final ValueHandler[] valueHandlers_;
     private final ColumnInfo[] colInfos_;
+    private final int[] getters_;
     private final boolean isRandom_;
     private long nrow_ = -1L;
 
     private static final Logger logger_ =
         Logger.getLogger( "uk.ac.starlink.table.jdbc" );
 
+    /* Codes for the ResultSet method used to read each column. */
+    private static final int GET_OBJECT = 0;
+    private static final int GET_DOUBLE = 1;
+    private static final int GET_FLOAT = 2;
+    private static final int GET_LONG = 3;
+    private static final int GET_INT = 4;
+    private static final int GET_SHORT = 5;
+    private static final int GET_BYTE = 6;
+    private static final int GET_BOOLEAN = 7;
 
     /**
      * Constructs a StarResultSet with default type mapping behaviour.
@@ -70,6 +81,22 @@ public class StarResultSet {
             colInfos_[ icol ] = valueHandlers_[ icol ].getColumnInfo();
         }
 
+        /* Where one of the known type mappers will deliver a boxed
+         * primitive, read it using the corresponding typed getter method.
+         * This avoids intermediate objects such as BigDecimals which
+         * some drivers create for generic getObject calls. */
+        boolean knownMapper = typeMapper == TypeMappers.STANDARD
+                           || typeMapper == TypeMappers.DALI
+                           || typeMapper == TypeMappers.IDENTITY;
+        getters_ = new int[ ncol ];
+        for ( int icol = 0; icol < ncol; icol++ ) {
+            getters_[ icol ] =
+                knownMapper
+                    ? getGetter( meta.getColumnClassName( icol + 1 ),
+                                 colInfos_[ icol ].getContentClass() )
+                    : GET_OBJECT;
+        }
+
         /* Work out whether we have random access. */
         switch ( rset_.getType() ) {
             case ResultSet.TYPE_FORWARD_ONLY:
@@ -197,15 +224,46 @@ public class StarResultSet {
      * @return   the cell value
      */
     public Object getCell( int icol ) throws IOException {
-        Object base;
+        int jcol = icol + 1;
         try {
-            base = rset_.getObject( icol + 1 );
+            switch ( getters_[ icol ] ) {
+                case GET_DOUBLE: {
+                    double dval = rset_.getDouble( jcol );
+                    return rset_.wasNull() ? null : new Double( dval );
+                }
+                case GET_FLOAT: {
+                    float fval = rset_.getFloat( jcol );
+                    return rset_.wasNull() ? null : new Float( fval );
+                }
+                case GET_LONG: {
+                    long lval = rset_.getLong( jcol );
+                    return rset_.wasNull() ? null : new Long( lval );
+                }
+                case GET_INT: {
+                    int ival = rset_.getInt( jcol );
+                    return rset_.wasNull() ? null : new Integer( ival );
+                }
+                case GET_SHORT: {
+                    short sval = rset_.getShort( jcol );
+                    return rset_.wasNull() ? null : new Short( sval );
+                }
+                case GET_BYTE: {
+                    byte bval = rset_.getByte( jcol );
+                    return rset_.wasNull() ? null : new Byte( bval );
+                }
+                case GET_BOOLEAN: {
+                    boolean zval = rset_.getBoolean( jcol );
+                    return rset_.wasNull() ? null : Boolean.valueOf( zval );
+                }
+                default:
+                    return valueHandlers_[ icol ]
+                          .getValue( rset_.getObject( jcol ) );
+            }
         }
         catch ( SQLException e ) {
             throw (IOException) new IOException( "SQL read error" + e )
                                .initCause( e );
         }
-        return valueHandlers_[ icol ].getValue( base );
     }
 
     /**
@@ -235,6 +293,49 @@ public class StarResultSet {
         return new ResultSetRowSequence();
     }
 
+    /**
+     * Returns the code for the ResultSet getter method which can be used
+     * to read values for a column in the form that a standard
+     * ValueHandler would provide them.
+     *
+     * @param  jdbcClassName  class name reported by the JDBC metadata
+     * @param  clazz   content class of the column as presented
+     * @return  one of the GET_* codes
+     */
+    private static int getGetter( String jdbcClassName, Class clazz ) {
+        if ( clazz == Double.class &&
+             BigDecimal.class.getName().equals( jdbcClassName ) ) {
+            return GET_DOUBLE;
+        }
+        else if ( ! clazz.getName().equals( jdbcClassName ) ) {
+            return GET_OBJECT;
+        }
+        else if ( clazz == Double.class ) {
+            return GET_DOUBLE;
+        }
+        else if ( clazz == Float.class ) {
+            return GET_FLOAT;
+        }
+        else if ( clazz == Long.class ) {
+            return GET_LONG;
+        }
+        else if ( clazz == Integer.class ) {
+            return GET_INT;
+        }
+        else if ( clazz == Short.class ) {
+            return GET_SHORT;
+        }
+        else if ( clazz == Byte.class ) {
+            return GET_BYTE;
+        }
+        else if ( clazz == Boolean.class ) {
+            return GET_BOOLEAN;
+        }
+        else {
+            return GET_OBJECT;
+        }
+    }
+
     /**
      * Row sequence based on this result set.  Assumes that the cursor starts
      * off positioned at the top of the results, and that no other access
@@ -5,11 +5,13 @@ import uk.ac.starlink.table.ValueInfo;
 
 /**
  * Abstract superclass for MatchEngines which work on the celestial sphere.
+ * Bins are sky pixels, which can be represented as long integers
+ * as well as objects.
  *
  * @author   Mark Taylor
  * @since    5 Sep 2011
  */
-public abstract class AbstractSkyMatchEngine implements MatchEngine {
+public abstract class AbstractSkyMatchEngine implements LongBinMatchEngine {
 
     private final SkyPixellator pixellator_;
 
@@ -109,6 +111,27 @@ public abstract class AbstractSkyMatchEngine implements MatchEngine {
              : NO_BINS;
     }
 
+    /**
+     * Uses the pixellator to write long integer pixel indices
+     * for a given small circle into a supplied array.
+     *
+     * @param   alpha  right ascension of circle centre in radians
+     * @param   delta  declination of circle centre in radians
+     * @param   radius  radius of circle centre in radians
+     * @param   bins   array to receive pixel indices
+     * @return  number of pixels at least partially overlapped by
+     *          the given circle
+     * @see  LongBinMatchEngine#getLongBins
+     */
+    int getLongBins( double alpha, double delta, double radius,
+                     long[] bins ) {
+        return ( ! Double.isNaN( alpha ) &&
+                 ! Double.isNaN( delta ) &&
+                 radius >= 0 )
+             ? pixellator_.getPixelIndices( alpha, delta, radius, bins )
+             : 0;
+    }
+
     public abstract String toString();
 
     /**
@@ -34,10 +34,9 @@ public class CombinedMatchEngine implements MatchEngine {
 
     // Some work arrays for holding subtuples - benchmarking shows that
     // there actually is a bottleneck if you create new empty arrays
-    // every time you need one.
-    private final Object[][] work0;
-    private final Object[][] work1;
-    private final Object[][] work2;
+    // every time you need one.  They are per-thread so that this
+    // engine can be used concurrently.
+    private final ThreadLocal<Object[][][]> workLocal;
 
     private static final ValueInfo SCORE_INFO =
         new DefaultValueInfo( "Separation", Double.class,
@@ -62,16 +61,21 @@ public class CombinedMatchEngine implements MatchEngine {
         }
         tupleStarts = new int[ nPart ];
         int ts = 0;
-        work0 = new Object[ nPart ][];
-        work1 = new Object[ nPart ][];
-        work2 = new Object[ nPart ][];
         for ( int i = 0; i < nPart; i++ ) {
             tupleStarts[ i ] = ts;
             ts += tupleSizes[ i ];
-            work0[ i ] = new Object[ tupleSizes[ i ] ];
-            work1[ i ] = new Object[ tupleSizes[ i ] ];
-            work2[ i ] = new Object[ tupleSizes[ i ] ];
         }
+        workLocal = new ThreadLocal<Object[][][]>() {
+            protected Object[][][] initialValue() {
+                Object[][][] work = new Object[ 3 ][ nPart ][];
+                for ( int iw = 0; iw < 3; iw++ ) {
+                    for ( int i = 0; i < nPart; i++ ) {
+                        work[ iw ][ i ] = new Object[ tupleSizes[ i ] ];
+                    }
+                }
+                return work;
+            }
+        };
 
         /* Set the name. */
         StringBuffer buf = new StringBuffer( "(" );
@@ -86,6 +90,9 @@ public class CombinedMatchEngine implements MatchEngine {
     }
 
     public double matchScore( Object[] tuple1, Object[] tuple2 ) {
+        Object[][][] work = workLocal.get();
+        Object[][] work1 = work[ 1 ];
+        Object[][] work2 = work[ 2 ];
         double sum2 = 0.0;
         for ( int i = 0; i < nPart; i++ ) {
             Object[] subTuple1 = work1[ i ];
@@ -134,6 +141,7 @@ public class CombinedMatchEngine implements MatchEngine {
 
         /* Work out the bin set for each region of the tuple handled by a
          * different match engine. */
+        Object[][] work0 = workLocal.get()[ 0 ];
         Object[][] binBag = new Object[ nPart ][];
         for ( int i = 0; i < nPart; i++ ) {
             Object[] subTuple = work0[ i ];
@@ -174,6 +174,12 @@ public class EllipseSkyMatchEngine extends AbstractSkyMatchEngine {
                         ellipse.getMaxRadius() );
     }
 
+    public int getLongBins( Object[] tuple, long[] bins ) {
+        SkyEllipse ellipse = toSkyEllipse( tuple );
+        return getLongBins( ellipse.alpha_, ellipse.delta_,
+                            ellipse.getMaxRadius(), bins );
+    }
+
     public boolean canBoundMatch() {
         return true;
     }
@@ -131,6 +131,11 @@ public class ErrorSkyMatchEngine extends AbstractSkyMatchEngine {
                         getError( tuple ) );
     }
 
+    public int getLongBins( Object[] tuple, long[] bins ) {
+        return getLongBins( getAlpha( tuple ), getDelta( tuple ),
+                            getError( tuple ), bins );
+    }
+
     public boolean canBoundMatch() {
         return true;
     }
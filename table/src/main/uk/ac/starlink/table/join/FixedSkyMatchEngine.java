@@ -95,6 +95,11 @@ public class FixedSkyMatchEngine extends AbstractSkyMatchEngine {
                         getSeparation() * 0.5 );
     }
 
+    public int getLongBins( Object[] tuple, long[] bins ) {
+        return getLongBins( getAlpha( tuple ), getDelta( tuple ),
+                            getSeparation() * 0.5, bins );
+    }
+
     public boolean canBoundMatch() {
         return true;
     }
@@ -70,7 +70,62 @@ public class HtmSkyPixellator implements SkyPixellator {
         return levelParam_;
     }
 
-    public Object[] getPixels( double alpha, double delta, double radius ) {
+    /**
+     * This method is synchronized since the underlying HTM implementation
+     * is not known to be thread-safe.
+     */
+    public synchronized Object[] getPixels( double alpha, double delta,
+                                            double radius ) {
+        HTMrange range = getRange( alpha, delta, radius );
+
+        /* Accumulate a list of the pixel IDs. */
+        List binList = new ArrayList();
+        try {
+            for ( Iterator it = new HTMrangeIterator( range, false );
+                  it.hasNext(); ) {
+                binList.add( it.next() );
+            }
+        }
+        catch ( HTMException e ) {
+            throw new RuntimeException( "Uh-oh", e );
+        }
+        return binList.toArray();
+    }
+
+    /**
+     * This method is synchronized since the underlying HTM implementation
+     * is not known to be thread-safe.
+     */
+    public synchronized int getPixelIndices( double alpha, double delta,
+                                             double radius, long[] pixels ) {
+        HTMrange range = getRange( alpha, delta, radius );
+        int npix = 0;
+        try {
+            for ( HTMrangeIterator it = new HTMrangeIterator( range, false );
+                  it.hasNext(); ) {
+                long pix = ((Number) it.next()).longValue();
+                if ( npix < pixels.length ) {
+                    pixels[ npix ] = pix;
+                }
+                npix++;
+            }
+        }
+        catch ( HTMException e ) {
+            throw new RuntimeException( "Uh-oh", e );
+        }
+        return npix;
+    }
+
+    /**
+     * Returns the range of HTM pixels at this pixellator's level
+     * which overlap a given small circle.
+     *
+     * @param  alpha  right ascension of circle centre in radians
+     * @param  delta  declination of circle centre in radians
+     * @param  radius   radius of circle in radians
+     * @return   pixel range
+     */
+    private HTMrange getRange( double alpha, double delta, double radius ) {
         double arcminRadius = Math.toDegrees( radius ) * 60.0;
         Circle zone = new Circle( alpha, delta, arcminRadius );
 
@@ -85,19 +140,7 @@ public class HtmSkyPixellator implements SkyPixellator {
         domain.setOlevel( htm_.maxlevel_ );
         HTMrange range = new HTMrange();
         domain.intersect( htm_, range, false );
-
-        /* Accumulate a list of the pixel IDs. */
-        List binList = new ArrayList();
-        try {
-            for ( Iterator it = new HTMrangeIterator( range, false );
-                  it.hasNext(); ) {
-                binList.add( it.next() );
-            }
-        }
-        catch ( HTMException e ) {
-            throw new RuntimeException( "Uh-oh", e );
-        }
-        return binList.toArray();
+        return range;
     }
 
     /**
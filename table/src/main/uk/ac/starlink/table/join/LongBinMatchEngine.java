@@ -0,0 +1,37 @@
+package uk.ac.starlink.table.join;
+
+/**
+ * MatchEngine which can represent its bins as long integers.
+ * This allows matching code to bin rows using primitive-keyed
+ * data structures, which can be much more economical on memory
+ * and garbage collection than using the objects returned by
+ * {@link #getBins getBins} as keys.
+ *
+ * <p>The long integer bins must satisfy the same requirements as
+ * the object bins; that is
+ * <tt>matchScore(t1,t2)&gt;=0</tt> implies a non-zero intersection of
+ * the bin values written by <tt>getLongBins(t1,...)</tt> and
+ * <tt>getLongBins(t2,...)</tt>.
+ * There is no requirement for the long bin values to correspond
+ * to the object bin values in any way, so the two kinds of bin
+ * must not be mixed in a single match.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+public interface LongBinMatchEngine extends MatchEngine {
+
+    /**
+     * Writes a set of long integer keys for bins into which possible
+     * matches for a given tuple might fall into a supplied array.
+     * If the supplied array is not large enough to hold all the bins,
+     * the return value is still the total bin count,
+     * but the content of the array is undefined;
+     * the caller should try again with a larger array.
+     *
+     * @param  tuple   tuple
+     * @param  bins    array to receive bin keys
+     * @return   number of bins
+     */
+    int getLongBins( Object[] tuple, long[] bins );
+}
@@ -0,0 +1,262 @@
+package uk.ac.starlink.table.join;
+
+import java.util.Arrays;
+
+/**
+ * Compact map from long integer keys to lists of int values,
+ * used for binning row indices by long bin key.
+ *
+ * <p>This does the same job as a {@link LongBinner} restricted to
+ * primitive keys and <code>int</code>-range items, but it avoids
+ * per-entry object allocation.  Keys are held in an open-addressing
+ * hash table with linear probing, and the items for all bins are
+ * packed into a shared pair of arrays as singly-linked lists,
+ * so that each item costs 8 bytes and each bin between 40 and 80 bytes
+ * whatever the bin occupancy.
+ * Items are returned in the order in which they were added.
+ *
+ * <p>Instances are not thread-safe.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+class LongKeyBinner {
+
+    private long[] keys_;
+    private int[] heads_;
+    private int[] tails_;
+    private int[] counts_;
+    private int[] items_;
+    private int[] nexts_;
+    private int nbin_;
+    private int nitem_;
+    private int mask_;
+
+    private static final int NONE = -1;
+    private static final int MAX_ARRAY = Integer.MAX_VALUE - 8;
+
+    /** Maximum number of items that an instance can hold. */
+    static final int MAX_ITEMS = MAX_ARRAY;
+
+    /**
+     * Constructs an empty binner.
+     */
+    public LongKeyBinner() {
+        initSlots( 64 );
+        items_ = new int[ 64 ];
+        nexts_ = new int[ 64 ];
+    }
+
+    /**
+     * Adds an item to the bin with a given key.
+     *
+     * @param  key  bin key
+     * @param  item  value to add
+     */
+    public void addItem( long key, int item ) {
+        int islot = findSlot( key );
+        if ( heads_[ islot ] == NONE ) {
+            if ( ( nbin_ + 1 ) * 2 > keys_.length ) {
+                rehash( keys_.length * 2 );
+                islot = findSlot( key );
+            }
+            keys_[ islot ] = key;
+            nbin_++;
+        }
+        if ( nitem_ == items_.length ) {
+            growItems();
+        }
+        int ientry = nitem_++;
+        items_[ ientry ] = item;
+        nexts_[ ientry ] = NONE;
+        if ( heads_[ islot ] == NONE ) {
+            heads_[ islot ] = ientry;
+        }
+        else {
+            nexts_[ tails_[ islot ] ] = ientry;
+        }
+        tails_[ islot ] = ientry;
+        counts_[ islot ]++;
+    }
+
+    /**
+     * Returns the number of items in the bin with a given key.
+     *
+     * @param  key  bin key
+     * @return   item count, zero if the bin is not present
+     */
+    public int getItemCount( long key ) {
+        int islot = findSlot( key );
+        return heads_[ islot ] == NONE ? 0 : counts_[ islot ];
+    }
+
+    /**
+     * Copies the items in the bin with a given key into a supplied array.
+     * The array must have room for at least
+     * {@link #getItemCount getItemCount(key)} elements after
+     * the given offset.
+     *
+     * @param  key  bin key
+     * @param  buf  array to receive items
+     * @param  off  offset into <code>buf</code> of first item written
+     * @return  number of items written
+     */
+    public int getItems( long key, long[] buf, int off ) {
+        int islot = findSlot( key );
+        int n = 0;
+        for ( int ie = heads_[ islot ]; ie != NONE; ie = nexts_[ ie ] ) {
+            buf[ off + n++ ] = items_[ ie ];
+        }
+        return n;
+    }
+
+    /**
+     * Returns an array containing the keys of all the bins in this binner.
+     *
+     * @return  new array of bin keys
+     */
+    public long[] getKeys() {
+        long[] keys = new long[ nbin_ ];
+        int ik = 0;
+        for ( int islot = 0; islot < keys_.length; islot++ ) {
+            if ( heads_[ islot ] != NONE ) {
+                keys[ ik++ ] = keys_[ islot ];
+            }
+        }
+        assert ik == nbin_;
+        return keys;
+    }
+
+    /**
+     * Returns the number of non-empty bins.
+     *
+     * @return  bin count
+     */
+    public long getBinCount() {
+        return nbin_;
+    }
+
+    /**
+     * Returns the total number of items in all bins.
+     *
+     * @return  item count
+     */
+    public long getItemCount() {
+        return nitem_;
+    }
+
+    /**
+     * Returns the approximate number of bytes of heap storage
+     * currently used by this binner.
+     *
+     * @return  storage size in bytes
+     */
+    public long getStorageSize() {
+        return ( 8L + 4 + 4 + 4 ) * keys_.length
+             + ( 4L + 4 ) * items_.length;
+    }
+
+    /**
+     * Appends all the items from another binner into this one.
+     * Items in a given bin of the other binner are added after
+     * any already present in the same bin of this one.
+     *
+     * @param  other  binner to take items from; not modified
+     */
+    public void addAll( LongKeyBinner other ) {
+        for ( int jslot = 0; jslot < other.keys_.length; jslot++ ) {
+            long key = other.keys_[ jslot ];
+            for ( int ie = other.heads_[ jslot ]; ie != NONE;
+                  ie = other.nexts_[ ie ] ) {
+                addItem( key, other.items_[ ie ] );
+            }
+        }
+    }
+
+    /**
+     * Returns the slot index at which a given key is, or should be,
+     * stored.
+     *
+     * @param  key  bin key
+     * @return  slot index; the slot is either empty or holds
+     *          <code>key</code>
+     */
+    private int findSlot( long key ) {
+        int islot = hash( key ) & mask_;
+        while ( heads_[ islot ] != NONE && keys_[ islot ] != key ) {
+            islot = ( islot + 1 ) & mask_;
+        }
+        return islot;
+    }
+
+    /**
+     * Allocates empty slot arrays of a given size.
+     *
+     * @param  nslot  number of slots, must be a power of two
+     */
+    private void initSlots( int nslot ) {
+        keys_ = new long[ nslot ];
+        heads_ = new int[ nslot ];
+        tails_ = new int[ nslot ];
+        counts_ = new int[ nslot ];
+        Arrays.fill( heads_, NONE );
+        mask_ = nslot - 1;
+    }
+
+    /**
+     * Reallocates the slot arrays with a new size and redistributes
+     * the existing bins into them.  Item storage is not affected.
+     *
+     * @param  nslot  new number of slots, must be a power of two
+     */
+    private void rehash( int nslot ) {
+        long[] keys0 = keys_;
+        int[] heads0 = heads_;
+        int[] tails0 = tails_;
+        int[] counts0 = counts_;
+        initSlots( nslot );
+        for ( int i0 = 0; i0 < keys0.length; i0++ ) {
+            if ( heads0[ i0 ] != NONE ) {
+                int islot = findSlot( keys0[ i0 ] );
+                keys_[ islot ] = keys0[ i0 ];
+                heads_[ islot ] = heads0[ i0 ];
+                tails_[ islot ] = tails0[ i0 ];
+                counts_[ islot ] = counts0[ i0 ];
+            }
+        }
+    }
+
+    /**
+     * Increases the capacity of the item storage arrays.
+     */
+    private void growItems() {
+        int size0 = items_.length;
+        if ( size0 >= MAX_ARRAY ) {
+            throw new IllegalStateException( "Too many binned items" );
+        }
+        int size1 = (int) Math.min( MAX_ARRAY, size0 * 3L / 2 + 1 );
+        int[] items1 = new int[ size1 ];
+        int[] nexts1 = new int[ size1 ];
+        System.arraycopy( items_, 0, items1, 0, size0 );
+        System.arraycopy( nexts_, 0, nexts1, 0, size0 );
+        items_ = items1;
+        nexts_ = nexts1;
+    }
+
+    /**
+     * Scrambles a long key to give a well-distributed int hash value.
+     * Bin keys such as sky pixel indices tend to be clustered,
+     * so a simple truncation would not do.
+     *
+     * @param  key  key
+     * @return  hash value
+     */
+    private static int hash( long key ) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
@@ -45,6 +45,10 @@ import uk.ac.starlink.table.ValueInfo;
  * These two efficiency requirements are usually conflicting to some extent.
  * <p>
  * It may help to think of all this as a sort of fuzzy hash.
+ * <p>
+ * The {@link #getBins} and {@link #matchScore} methods may be invoked
+ * concurrently from multiple threads, so implementations must be
+ * thread-safe as long as the engine's configuration is not changed.
  * 
  * @author   Mark Taylor (Starlink)
  */
@@ -0,0 +1,1224 @@
+package uk.ac.starlink.table.join;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import uk.ac.starlink.table.ByteStore;
+import uk.ac.starlink.table.StoragePolicy;
+
+/**
+ * LinkSet implementation which stores links in packed primitive arrays
+ * rather than as objects, and which can overflow to storage provided
+ * by a {@link StoragePolicy}.
+ *
+ * <p>Links containing one or two {@link RowRef}s, which includes all
+ * the {@link RowLink2}s generated by pair matching, are stored as
+ * fixed-length records of table index, row index and score,
+ * costing around 40 bytes each in memory and 33 bytes each when
+ * written out, as opposed to 150 bytes or so for the object
+ * representation held in a {@link TreeSetLinkSet}.
+ * Other links are held in an ordinary sorted set.
+ *
+ * <p>Records are accumulated in memory, where they are deduplicated
+ * on insertion using an open-addressing hash index.
+ * When the number of records in memory exceeds a given limit,
+ * they are sorted in place and written as a sorted run to a
+ * new {@link ByteStore}.  Runs of similar size are merged as they
+ * accumulate, so that the number of runs which must be searched
+ * to look up a link grows only logarithmically with the number
+ * of links.  Links removed from a run are flagged in a bit mask
+ * and discarded when the run is next merged.
+ * The iterator merges the in-memory records and the runs,
+ * so it always returns links in their natural order;
+ * the {@link #sort} method is therefore a no-op.
+ *
+ * <p>The set must not be modified, other than by use of
+ * <code>Iterator.remove</code>, while iteration is in progress.
+ * I/O errors encountered in storage operations are rethrown as
+ * unchecked exceptions.
+ * Storage for runs is released when runs are merged,
+ * or by calling {@link #dispose} when the set is no longer required;
+ * otherwise it is left to the cleanup provided by the storage policy,
+ * which for disk-based policies happens at JVM exit.
+ *
+ * <p>Several sets, for instance the per-thread partial results
+ * of a parallel match, may share a {@link MemoryBudget}, which limits
+ * the total number of records they hold in memory between them.
+ * If no storage policy is supplied and the in-memory arrays reach
+ * their maximum size, an <code>IllegalStateException</code> is thrown.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+class PackedLinkSet implements LinkSet {
+
+    private final StoragePolicy policy_;
+    private final MemoryBudget budget_;
+    private final int maxMem_;
+    private final int budgetStep_;
+    private final List<Run> runs_;
+    private final SortedSet overflow_;
+    private final LinkRecord rec_;
+    private byte[] kinds_;
+    private int[] tables1_;
+    private long[] rows1_;
+    private int[] tables2_;
+    private long[] rows2_;
+    private double[] scores_;
+    private int nmem_;
+    private int nbudget_;
+    private int[] index_;
+    private boolean indexed_;
+    private int size_;
+    private boolean disposed_;
+
+    private static final byte DELETED = 0;
+    private static final byte KIND_SINGLE = 1;
+    private static final byte KIND_PAIR = 2;
+    private static final byte KIND_SCORED = 3;
+    private static final int NO_TABLE = -1;
+    private static final int EMPTY = -1;
+    private static final int REC_SIZE = 1 + 4 + 8 + 4 + 8 + 8;
+    private static final int MIN_CAPACITY = 1024;
+    private static final int MAX_ARRAY = Integer.MAX_VALUE / 4;
+    private static final int BUDGET_STEP = 1024;
+    private static final Logger logger_ =
+        Logger.getLogger( "uk.ac.starlink.table.join" );
+
+    /**
+     * Constructor.
+     *
+     * @param  policy  storage policy used to obtain storage for links
+     *                 which do not fit in memory;
+     *                 if null, all links are kept in memory
+     * @param  maxMem  maximum number of link records held in memory
+     *                 before they are written out to storage;
+     *                 ignored if <code>policy</code> is null
+     */
+    public PackedLinkSet( StoragePolicy policy, int maxMem ) {
+        this( policy, new MemoryBudget( maxMem ) );
+    }
+
+    /**
+     * Constructs a set which shares an in-memory record budget
+     * with other sets.
+     *
+     * @param  policy  storage policy used to obtain storage for links
+     *                 which do not fit in memory;
+     *                 if null, all links are kept in memory
+     * @param  budget  budget limiting the number of link records held
+     *                 in memory by this and other sets;
+     *                 ignored if <code>policy</code> is null
+     */
+    public PackedLinkSet( StoragePolicy policy, MemoryBudget budget ) {
+        policy_ = policy;
+        budget_ = budget;
+        budget.nset_.incrementAndGet();
+        maxMem_ = (int) Math.max( 1, Math.min( budget.maxRecords_,
+                                               MAX_ARRAY ) );
+        budgetStep_ = Math.max( 1, Math.min( BUDGET_STEP, maxMem_ / 64 ) );
+        runs_ = new ArrayList<Run>();
+        overflow_ = new TreeSet();
+        rec_ = new LinkRecord();
+        allocate( policy == null ? MIN_CAPACITY
+                                 : Math.min( MIN_CAPACITY, maxMem_ ) );
+    }
+
+    public void addLink( RowLink link ) {
+        if ( ! rec_.setLink( link ) ) {
+
+            /* TreeSet.add keeps an existing equal element,
+             * so remove it first to get replace semantics. */
+            overflow_.remove( link );
+            overflow_.add( link );
+            return;
+        }
+        int im = findMem( rec_ );
+        if ( im >= 0 ) {
+            if ( kinds_[ im ] == DELETED ) {
+                size_++;
+            }
+            kinds_[ im ] = rec_.kind_;
+            scores_[ im ] = rec_.score_;
+            return;
+        }
+        if ( ! deleteFromRuns( rec_ ) ) {
+            size_++;
+        }
+        if ( nmem_ == kinds_.length ) {
+            if ( nmem_ >= MAX_ARRAY ) {
+                makeRoom();
+            }
+            else {
+                allocate( (int) Math.min( MAX_ARRAY, nmem_ * 2L ) );
+            }
+        }
+        int ir = nmem_++;
+        if ( nmem_ - nbudget_ >= budgetStep_ ) {
+            updateBudget();
+        }
+        kinds_[ ir ] = rec_.kind_;
+        tables1_[ ir ] = rec_.table1_;
+        rows1_[ ir ] = rec_.row1_;
+        tables2_[ ir ] = rec_.table2_;
+        rows2_[ ir ] = rec_.row2_;
+        scores_[ ir ] = rec_.score_;
+        if ( indexed_ ) {
+            indexRecord( ir );
+        }
+        if ( policy_ != null && isOverBudget() ) {
+            try {
+                spill();
+            }
+            catch ( IOException e ) {
+                throw new RuntimeException( "Link storage error", e );
+            }
+        }
+    }
+
+    public boolean containsLink( RowLink link ) {
+        if ( ! rec_.setLink( link ) ) {
+            return overflow_.contains( link );
+        }
+        int im = findMem( rec_ );
+        if ( im >= 0 ) {
+            return kinds_[ im ] != DELETED;
+        }
+        for ( int i = runs_.size() - 1; i >= 0; i-- ) {
+            if ( runs_.get( i ).findLive( rec_ ) >= 0 ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean removeLink( RowLink link ) {
+        if ( ! rec_.setLink( link ) ) {
+            return overflow_.remove( link );
+        }
+        int im = findMem( rec_ );
+        if ( im >= 0 ) {
+            if ( kinds_[ im ] != DELETED ) {
+                kinds_[ im ] = DELETED;
+                size_--;
+                return true;
+            }
+            else {
+                return false;
+            }
+        }
+        else if ( deleteFromRuns( rec_ ) ) {
+            size_--;
+            return true;
+        }
+        else {
+            return false;
+        }
+    }
+
+    public Iterator iterator() {
+        if ( size_ == 0 ) {
+            return overflow_.iterator();
+        }
+        sortMemory();
+        List<LinkSource> sources = new ArrayList<LinkSource>();
+        sources.add( new MemorySource() );
+        for ( Run run : runs_ ) {
+            sources.add( new RunSource( run ) );
+        }
+        if ( ! overflow_.isEmpty() ) {
+            sources.add( new OverflowSource() );
+        }
+        return new MergeIterator( sources.toArray( new LinkSource[ 0 ] ) );
+    }
+
+    public int size() {
+        return size_ + overflow_.size();
+    }
+
+    public boolean sort() {
+        // no action required - iteration is always sorted
+        return true;
+    }
+
+    /**
+     * Discards the content of this set and releases the storage
+     * used by any runs that have been written out.
+     * The set is empty following this call.
+     */
+    public void dispose() {
+        for ( Run run : runs_ ) {
+            run.store_.close();
+        }
+        runs_.clear();
+        overflow_.clear();
+        nmem_ = 0;
+        size_ = 0;
+        allocate( MIN_CAPACITY );
+        updateBudget();
+        if ( ! disposed_ ) {
+            disposed_ = true;
+            budget_.nset_.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the number of sorted runs currently written to storage.
+     * Intended for testing and diagnostics.
+     *
+     * @return  run count
+     */
+    int getRunCount() {
+        return runs_.size();
+    }
+
+    /**
+     * Frees space in the in-memory record arrays when they are full
+     * and cannot be grown any further.
+     * Deleted records are discarded, and if that is not enough
+     * the records are spilled to storage.
+     *
+     * @throws  IllegalStateException  if no space can be made
+     */
+    private void makeRoom() {
+        sortMemory();
+        if ( nmem_ < kinds_.length ) {
+            return;
+        }
+        if ( policy_ != null ) {
+            try {
+                spill();
+            }
+            catch ( IOException e ) {
+                throw new RuntimeException( "Link storage error", e );
+            }
+        }
+        else {
+            throw new IllegalStateException( "Link set capacity exceeded ("
+                                           + nmem_ + " links in memory)" );
+        }
+    }
+
+    /**
+     * Brings the budget's record of this set's in-memory record count
+     * up to date.
+     */
+    private void updateBudget() {
+        budget_.nrec_.addAndGet( nmem_ - nbudget_ );
+        nbudget_ = nmem_;
+    }
+
+    /**
+     * Indicates whether this set should spill its in-memory records
+     * to storage.  That is the case if the budget shared with other
+     * sets has been exceeded and this set holds at least its share
+     * of the records in memory.  For an unshared budget it is
+     * just the case when the budget is exceeded.
+     *
+     * @return  true iff records should be spilled
+     */
+    private boolean isOverBudget() {
+        if ( nmem_ >= maxMem_ ) {
+            return true;
+        }
+        long nrec = budget_.nrec_.get() + ( nmem_ - nbudget_ );
+        return nrec >= budget_.maxRecords_
+            && nmem_ * (long) Math.max( 1, budget_.nset_.get() ) >= nrec;
+    }
+
+    /**
+     * Resizes the in-memory record arrays.
+     *
+     * @param  capacity  new capacity, not less than the current count
+     */
+    private void allocate( int capacity ) {
+        kinds_ = copyOf( kinds_, capacity );
+        tables1_ = copyOf( tables1_, capacity );
+        rows1_ = copyOf( rows1_, capacity );
+        tables2_ = copyOf( tables2_, capacity );
+        rows2_ = copyOf( rows2_, capacity );
+        scores_ = copyOf( scores_, capacity );
+        index_ = null;
+        indexed_ = false;
+    }
+
+    /**
+     * Locates a record in memory.
+     *
+     * @param  rec  record containing key to find
+     * @return  index of matching in-memory record, which may be flagged
+     *          deleted, or -1 if none exists
+     */
+    private int findMem( LinkRecord rec ) {
+        if ( ! indexed_ ) {
+            buildIndex();
+        }
+        int mask = index_.length - 1;
+        for ( int is = rec.hash() & mask; index_[ is ] != EMPTY;
+              is = ( is + 1 ) & mask ) {
+            int ir = index_[ is ];
+            if ( rows1_[ ir ] == rec.row1_ &&
+                 rows2_[ ir ] == rec.row2_ &&
+                 tables1_[ ir ] == rec.table1_ &&
+                 tables2_[ ir ] == rec.table2_ ) {
+                return ir;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Populates the hash index from the current in-memory records.
+     */
+    private void buildIndex() {
+        int nslot = Integer.highestOneBit( Math.max( 16, kinds_.length ) )
+                  * 2;
+        if ( index_ == null || index_.length != nslot ) {
+            index_ = new int[ nslot ];
+        }
+        Arrays.fill( index_, EMPTY );
+        for ( int ir = 0; ir < nmem_; ir++ ) {
+            indexRecord( ir );
+        }
+        indexed_ = true;
+    }
+
+    /**
+     * Adds a given in-memory record to the hash index.
+     *
+     * @param  ir  record index
+     */
+    private void indexRecord( int ir ) {
+        int mask = index_.length - 1;
+        int is = hash( tables1_[ ir ], rows1_[ ir ],
+                       tables2_[ ir ], rows2_[ ir ] ) & mask;
+        while ( index_[ is ] != EMPTY ) {
+            is = ( is + 1 ) & mask;
+        }
+        index_[ is ] = ir;
+    }
+
+    /**
+     * Flags as deleted the live entry in any run matching a given record.
+     *
+     * @param  rec  record containing key
+     * @return  true iff a live entry was found
+     */
+    private boolean deleteFromRuns( LinkRecord rec ) {
+        for ( int i = runs_.size() - 1; i >= 0; i-- ) {
+            Run run = runs_.get( i );
+            int irec = run.findLive( rec );
+            if ( irec >= 0 ) {
+                run.deleted_.set( irec );
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Discards deleted in-memory records and sorts the rest in place
+     * into their natural order.  The hash index is invalidated.
+     */
+    private void sortMemory() {
+        int n = 0;
+        for ( int ir = 0; ir < nmem_; ir++ ) {
+            if ( kinds_[ ir ] != DELETED ) {
+                if ( n != ir ) {
+                    copyRecord( ir, n );
+                }
+                n++;
+            }
+        }
+        nmem_ = n;
+        updateBudget();
+        quickSort( 0, n - 1 );
+        indexed_ = false;
+    }
+
+    /**
+     * Writes the in-memory records to a new sorted run,
+     * leaving memory empty, and merges runs as required.
+     */
+    private void spill() throws IOException {
+        sortMemory();
+        ByteStore store = policy_.makeByteStore();
+        DataOutputStream out =
+            new DataOutputStream(
+                new BufferedOutputStream( store.getOutputStream() ) );
+        LinkRecord rec = new LinkRecord();
+        for ( int ir = 0; ir < nmem_; ir++ ) {
+            getRecord( ir, rec );
+            rec.write( out );
+        }
+        out.flush();
+        runs_.add( new Run( store, nmem_, 0 ) );
+        nmem_ = 0;
+        updateBudget();
+        allocate( Math.min( MIN_CAPACITY, maxMem_ ) );
+
+        /* Merge the most recent runs while they are of similar size. */
+        int nrun = runs_.size();
+        while ( nrun >= 2 &&
+                runs_.get( nrun - 1 ).level_ ==
+                runs_.get( nrun - 2 ).level_ &&
+                (long) runs_.get( nrun - 1 ).nrec_ +
+                       runs_.get( nrun - 2 ).nrec_ < Integer.MAX_VALUE ) {
+            Run run1 = runs_.remove( --nrun );
+            Run run0 = runs_.remove( --nrun );
+            runs_.add( mergeRuns( run0, run1 ) );
+            nrun++;
+        }
+    }
+
+    /**
+     * Merges two runs into a new one, discarding deleted records.
+     * The input runs are closed.
+     *
+     * @param  run0  first run
+     * @param  run1  second run
+     * @return  merged run
+     */
+    private Run mergeRuns( Run run0, Run run1 ) throws IOException {
+        ByteStore store = policy_.makeByteStore();
+        DataOutputStream out =
+            new DataOutputStream(
+                new BufferedOutputStream( store.getOutputStream() ) );
+        LinkRecord rec0 = new LinkRecord();
+        LinkRecord rec1 = new LinkRecord();
+        int i0 = run0.nextLive( 0 );
+        int i1 = run1.nextLive( 0 );
+        int n = 0;
+        if ( i0 < run0.nrec_ ) {
+            run0.read( i0, rec0 );
+        }
+        if ( i1 < run1.nrec_ ) {
+            run1.read( i1, rec1 );
+        }
+        while ( i0 < run0.nrec_ || i1 < run1.nrec_ ) {
+            boolean use0 = i1 >= run1.nrec_
+                        || ( i0 < run0.nrec_ && rec0.compareTo( rec1 ) <= 0 );
+            if ( use0 ) {
+                rec0.write( out );
+                i0 = run0.nextLive( i0 + 1 );
+                if ( i0 < run0.nrec_ ) {
+                    run0.read( i0, rec0 );
+                }
+            }
+            else {
+                rec1.write( out );
+                i1 = run1.nextLive( i1 + 1 );
+                if ( i1 < run1.nrec_ ) {
+                    run1.read( i1, rec1 );
+                }
+            }
+            n++;
+        }
+        out.flush();
+        run0.store_.close();
+        run1.store_.close();
+        logger_.config( "Merged link runs: " + n + " links" );
+        return new Run( store, n, Math.max( run0.level_, run1.level_ ) + 1 );
+    }
+
+    /**
+     * Copies an in-memory record to a record object.
+     *
+     * @param  ir  record index
+     * @param  rec  destination record
+     */
+    private void getRecord( int ir, LinkRecord rec ) {
+        rec.kind_ = kinds_[ ir ];
+        rec.table1_ = tables1_[ ir ];
+        rec.row1_ = rows1_[ ir ];
+        rec.table2_ = tables2_[ ir ];
+        rec.row2_ = rows2_[ ir ];
+        rec.score_ = scores_[ ir ];
+    }
+
+    /**
+     * Copies one in-memory record over another.
+     *
+     * @param  isrc  source index
+     * @param  idst  destination index
+     */
+    private void copyRecord( int isrc, int idst ) {
+        kinds_[ idst ] = kinds_[ isrc ];
+        tables1_[ idst ] = tables1_[ isrc ];
+        rows1_[ idst ] = rows1_[ isrc ];
+        tables2_[ idst ] = tables2_[ isrc ];
+        rows2_[ idst ] = rows2_[ isrc ];
+        scores_[ idst ] = scores_[ isrc ];
+    }
+
+    /**
+     * Compares two in-memory records.
+     *
+     * @param  i  first record index
+     * @param  j  second record index
+     * @return  comparison result
+     */
+    private int compareMem( int i, int j ) {
+        return compareKeys( tables1_[ i ], rows1_[ i ],
+                            tables2_[ i ], rows2_[ i ],
+                            tables1_[ j ], rows1_[ j ],
+                            tables2_[ j ], rows2_[ j ] );
+    }
+
+    /**
+     * Swaps two in-memory records.
+     *
+     * @param  i  first record index
+     * @param  j  second record index
+     */
+    private void swap( int i, int j ) {
+        byte k = kinds_[ i ];
+        kinds_[ i ] = kinds_[ j ];
+        kinds_[ j ] = k;
+        int t1 = tables1_[ i ];
+        tables1_[ i ] = tables1_[ j ];
+        tables1_[ j ] = t1;
+        long r1 = rows1_[ i ];
+        rows1_[ i ] = rows1_[ j ];
+        rows1_[ j ] = r1;
+        int t2 = tables2_[ i ];
+        tables2_[ i ] = tables2_[ j ];
+        tables2_[ j ] = t2;
+        long r2 = rows2_[ i ];
+        rows2_[ i ] = rows2_[ j ];
+        rows2_[ j ] = r2;
+        double s = scores_[ i ];
+        scores_[ i ] = scores_[ j ];
+        scores_[ j ] = s;
+    }
+
+    /**
+     * Sorts a range of the in-memory records in place.
+     *
+     * @param  lo  index of first record in range
+     * @param  hi  index of last record in range
+     */
+    private void quickSort( int lo, int hi ) {
+        while ( hi - lo > 16 ) {
+
+            /* Median of three pivot, moved to lo. */
+            int mid = ( lo + hi ) >>> 1;
+            if ( compareMem( mid, lo ) < 0 ) {
+                swap( mid, lo );
+            }
+            if ( compareMem( hi, lo ) < 0 ) {
+                swap( hi, lo );
+            }
+            if ( compareMem( hi, mid ) < 0 ) {
+                swap( hi, mid );
+            }
+            swap( lo, mid );
+
+            /* Partition. */
+            int i = lo;
+            int j = hi + 1;
+            while ( true ) {
+                do {
+                    i++;
+                } while ( i < hi && compareMem( i, lo ) < 0 );
+                do {
+                    j--;
+                } while ( compareMem( lo, j ) < 0 );
+                if ( i >= j ) {
+                    break;
+                }
+                swap( i, j );
+            }
+            swap( lo, j );
+
+            /* Recurse on the smaller part, iterate on the larger. */
+            if ( j - lo < hi - j ) {
+                quickSort( lo, j - 1 );
+                lo = j + 1;
+            }
+            else {
+                quickSort( j + 1, hi );
+                hi = j - 1;
+            }
+        }
+        for ( int i = lo + 1; i <= hi; i++ ) {
+            for ( int j = i; j > lo && compareMem( j, j - 1 ) < 0; j-- ) {
+                swap( j, j - 1 );
+            }
+        }
+    }
+
+    /**
+     * Compares the keys of two packed links.  The ordering is
+     * consistent with the natural ordering of the corresponding
+     * {@link RowLink}s, with additional tie-breaking so that
+     * only equal links compare equal.
+     *
+     * @param  ta1  table index of first ref of first link
+     * @param  ra1  row index of first ref of first link
+     * @param  ta2  table index of second ref of first link, or NO_TABLE
+     * @param  ra2  row index of second ref of first link
+     * @param  tb1  table index of first ref of second link
+     * @param  rb1  row index of first ref of second link
+     * @param  tb2  table index of second ref of second link, or NO_TABLE
+     * @param  rb2  row index of second ref of second link
+     * @return  negative, zero or positive for less than, equal to
+     *          or greater than
+     */
+    static int compareKeys( int ta1, long ra1, int ta2, long ra2,
+                            int tb1, long rb1, int tb2, long rb2 ) {
+
+        /* Compare lowest row indices table by table, as RowLink does. */
+        int t = Math.min( ta1, tb1 );
+        while ( t >= 0 ) {
+            long va = ta1 == t ? ra1 : ( ta2 == t ? ra2 : Long.MAX_VALUE );
+            long vb = tb1 == t ? rb1 : ( tb2 == t ? rb2 : Long.MAX_VALUE );
+            if ( va != vb ) {
+                return va < vb ? -1 : +1;
+            }
+            t = nextTable( t, ta1, ta2, tb1, tb2 );
+        }
+
+        /* Then by hash code, as RowLink does. */
+        int ha = linkHash( ta1, ra1, ta2, ra2 );
+        int hb = linkHash( tb1, rb1, tb2, rb2 );
+        if ( ha != hb ) {
+            return ha < hb ? -1 : +1;
+        }
+
+        /* Then anything to make the ordering total. */
+        if ( ta2 != tb2 ) {
+            return ta2 < tb2 ? -1 : +1;
+        }
+        if ( ta1 != tb1 ) {
+            return ta1 < tb1 ? -1 : +1;
+        }
+        if ( ra1 != rb1 ) {
+            return ra1 < rb1 ? -1 : +1;
+        }
+        if ( ra2 != rb2 ) {
+            return ra2 < rb2 ? -1 : +1;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the smallest table index greater than a given value
+     * from a list of candidates.
+     *
+     * @param  t  threshold
+     * @param  t1  candidate
+     * @param  t2  candidate
+     * @param  t3  candidate
+     * @param  t4  candidate
+     * @return  smallest candidate greater than <code>t</code>, or -1
+     */
+    private static int nextTable( int t, int t1, int t2, int t3, int t4 ) {
+        int next = Integer.MAX_VALUE;
+        if ( t1 > t && t1 < next ) {
+            next = t1;
+        }
+        if ( t2 > t && t2 < next ) {
+            next = t2;
+        }
+        if ( t3 > t && t3 < next ) {
+            next = t3;
+        }
+        if ( t4 > t && t4 < next ) {
+            next = t4;
+        }
+        return next == Integer.MAX_VALUE ? -1 : next;
+    }
+
+    /**
+     * Returns the hash code of the RowLink corresponding to a packed link.
+     *
+     * @param  t1  table index of first ref
+     * @param  r1  row index of first ref
+     * @param  t2  table index of second ref, or NO_TABLE
+     * @param  r2  row index of second ref
+     * @return  value of <code>RowLink.hashCode()</code>
+     */
+    private static int linkHash( int t1, long r1, int t2, long r2 ) {
+        int result = 37;
+        result = 23 * result + new RowRef( t1, r1 ).hashCode();
+        if ( t2 != NO_TABLE ) {
+            result = 23 * result + new RowRef( t2, r2 ).hashCode();
+        }
+        return result;
+    }
+
+    /**
+     * Returns a well-scrambled hash value for use in the hash index.
+     *
+     * @param  t1  table index of first ref
+     * @param  r1  row index of first ref
+     * @param  t2  table index of second ref, or NO_TABLE
+     * @param  r2  row index of second ref
+     * @return  hash value
+     */
+    private static int hash( int t1, long r1, int t2, long r2 ) {
+        long h = r1 * 0x9e3779b97f4a7c15L + t1;
+        h = ( h ^ ( h >>> 29 ) ) * 0xbf58476d1ce4e5b9L + r2;
+        h = ( h ^ ( h >>> 31 ) ) * 0x94d049bb133111ebL + t2;
+        h ^= h >>> 32;
+        return (int) h;
+    }
+
+    private static byte[] copyOf( byte[] array, int n ) {
+        byte[] a1 = new byte[ n ];
+        if ( array != null ) {
+            System.arraycopy( array, 0, a1, 0, Math.min( n, array.length ) );
+        }
+        return a1;
+    }
+
+    private static int[] copyOf( int[] array, int n ) {
+        int[] a1 = new int[ n ];
+        if ( array != null ) {
+            System.arraycopy( array, 0, a1, 0, Math.min( n, array.length ) );
+        }
+        return a1;
+    }
+
+    private static long[] copyOf( long[] array, int n ) {
+        long[] a1 = new long[ n ];
+        if ( array != null ) {
+            System.arraycopy( array, 0, a1, 0, Math.min( n, array.length ) );
+        }
+        return a1;
+    }
+
+    private static double[] copyOf( double[] array, int n ) {
+        double[] a1 = new double[ n ];
+        if ( array != null ) {
+            System.arraycopy( array, 0, a1, 0, Math.min( n, array.length ) );
+        }
+        return a1;
+    }
+
+    /**
+     * Limits the total number of link records held in memory by
+     * a group of PackedLinkSets.  Instances are thread-safe.
+     */
+    static class MemoryBudget {
+        final long maxRecords_;
+        final AtomicLong nrec_;
+        final AtomicInteger nset_;
+
+        /**
+         * Constructor.
+         *
+         * @param  maxRecords  maximum total number of link records
+         *                     to hold in memory
+         */
+        MemoryBudget( long maxRecords ) {
+            maxRecords_ = Math.max( 1, maxRecords );
+            nrec_ = new AtomicLong();
+            nset_ = new AtomicInteger();
+        }
+    }
+
+    /**
+     * Mutable holder for a single packed link.
+     */
+    private static class LinkRecord {
+        byte kind_;
+        int table1_;
+        long row1_;
+        int table2_;
+        long row2_;
+        double score_;
+
+        /**
+         * Sets the contents of this record from a RowLink, if possible.
+         *
+         * @param  link  link
+         * @return  true iff the link can be represented as a record
+         */
+        boolean setLink( RowLink link ) {
+            Class clazz = link.getClass();
+            int nref = link.size();
+            if ( clazz == RowLink2.class ) {
+                kind_ = KIND_SCORED;
+                score_ = ((RowLink2) link).getScore();
+            }
+            else if ( clazz == RowLink.class && ( nref == 1 || nref == 2 ) ) {
+                kind_ = nref == 1 ? KIND_SINGLE : KIND_PAIR;
+                score_ = Double.NaN;
+            }
+            else {
+                return false;
+            }
+            RowRef ref1 = link.getRef( 0 );
+            table1_ = ref1.getTableIndex();
+            row1_ = ref1.getRowIndex();
+            if ( nref == 2 ) {
+                RowRef ref2 = link.getRef( 1 );
+                table2_ = ref2.getTableIndex();
+                row2_ = ref2.getRowIndex();
+            }
+            else {
+                table2_ = NO_TABLE;
+                row2_ = -1L;
+            }
+            return true;
+        }
+
+        /**
+         * Returns a new RowLink corresponding to this record.
+         *
+         * @return  link
+         */
+        RowLink toLink() {
+            RowRef ref1 = new RowRef( table1_, row1_ );
+            switch ( kind_ ) {
+                case KIND_SINGLE:
+                    return new RowLink( ref1 );
+                case KIND_PAIR:
+                    return new RowLink( new RowRef[] {
+                                            ref1,
+                                            new RowRef( table2_, row2_ ),
+                                        } );
+                case KIND_SCORED:
+                    RowLink2 link2 =
+                        new RowLink2( ref1, new RowRef( table2_, row2_ ) );
+                    link2.setScore( score_ );
+                    return link2;
+                default:
+                    throw new AssertionError();
+            }
+        }
+
+        int compareTo( LinkRecord other ) {
+            return compareKeys( table1_, row1_, table2_, row2_,
+                                other.table1_, other.row1_,
+                                other.table2_, other.row2_ );
+        }
+
+        int hash() {
+            return PackedLinkSet.hash( table1_, row1_, table2_, row2_ );
+        }
+
+        void write( DataOutputStream out ) throws IOException {
+            out.writeByte( kind_ );
+            out.writeInt( table1_ );
+            out.writeLong( row1_ );
+            out.writeInt( table2_ );
+            out.writeLong( row2_ );
+            out.writeDouble( score_ );
+        }
+
+        void read( ByteBuffer buf, int off ) {
+            kind_ = buf.get( off );
+            table1_ = buf.getInt( off + 1 );
+            row1_ = buf.getLong( off + 5 );
+            table2_ = buf.getInt( off + 13 );
+            row2_ = buf.getLong( off + 17 );
+            score_ = buf.getDouble( off + 25 );
+        }
+    }
+
+    /**
+     * Sorted sequence of records written to a ByteStore.
+     */
+    private static class Run {
+        final ByteStore store_;
+        final int nrec_;
+        final int level_;
+        final BitSet deleted_;
+        final ByteBuffer[] bufs_;
+        final long[] starts_;
+        final ByteBuffer recBuf_;
+        final LinkRecord rec_;
+
+        /**
+         * Constructor.
+         *
+         * @param  store  byte store to which records have been written
+         * @param  nrec   number of records
+         * @param  level  merge level
+         */
+        Run( ByteStore store, int nrec, int level ) throws IOException {
+            store_ = store;
+            nrec_ = nrec;
+            level_ = level;
+            deleted_ = new BitSet();
+            bufs_ = store.toByteBuffers();
+            starts_ = new long[ bufs_.length + 1 ];
+            for ( int ib = 0; ib < bufs_.length; ib++ ) {
+                starts_[ ib + 1 ] = starts_[ ib ] + bufs_[ ib ].limit();
+            }
+            recBuf_ = ByteBuffer.allocate( REC_SIZE );
+            rec_ = new LinkRecord();
+        }
+
+        /**
+         * Reads a record.
+         *
+         * @param  irec  record index
+         * @param  rec   destination record
+         */
+        void read( int irec, LinkRecord rec ) {
+            long pos = irec * (long) REC_SIZE;
+            int ib = 0;
+            while ( pos >= starts_[ ib + 1 ] ) {
+                ib++;
+            }
+            ByteBuffer buf = bufs_[ ib ];
+            int off = (int) ( pos - starts_[ ib ] );
+            if ( off + REC_SIZE <= buf.limit() ) {
+                rec.read( buf, off );
+            }
+            else {
+
+                /* Record straddles a buffer boundary. */
+                for ( int i = 0; i < REC_SIZE; i++ ) {
+                    while ( pos + i >= starts_[ ib + 1 ] ) {
+                        ib++;
+                    }
+                    recBuf_.put( i, bufs_[ ib ]
+                                   .get( (int) ( pos + i - starts_[ ib ] ) ) );
+                }
+                rec.read( recBuf_, 0 );
+            }
+        }
+
+        /**
+         * Returns the index of the first non-deleted record at or after
+         * a given index.
+         *
+         * @param  irec  start index
+         * @return  index of next live record, or nrec if none
+         */
+        int nextLive( int irec ) {
+            int inext = deleted_.nextClearBit( irec );
+            return inext < nrec_ ? inext : nrec_;
+        }
+
+        /**
+         * Locates a non-deleted record with the same key as a given one.
+         *
+         * @param  key  record containing key
+         * @return  index of matching live record, or -1
+         */
+        int findLive( LinkRecord key ) {
+            int lo = 0;
+            int hi = nrec_ - 1;
+            while ( lo <= hi ) {
+                int mid = ( lo + hi ) >>> 1;
+                read( mid, rec_ );
+                int cmp = rec_.compareTo( key );
+                if ( cmp < 0 ) {
+                    lo = mid + 1;
+                }
+                else if ( cmp > 0 ) {
+                    hi = mid - 1;
+                }
+                else {
+                    return deleted_.get( mid ) ? -1 : mid;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Sorted sequence of links which may be merged with others.
+     */
+    private interface LinkSource {
+
+        /**
+         * Returns the current link, or null if there are no more.
+         *
+         * @return  current link
+         */
+        RowLink peek();
+
+        /**
+         * Moves on to the next link.
+         */
+        void advance();
+
+        /**
+         * Deletes from the set the link that was current before the
+         * most recent call to advance.
+         */
+        void removePrevious();
+    }
+
+    /**
+     * LinkSource for the sorted in-memory records.
+     */
+    private class MemorySource implements LinkSource {
+        private final LinkRecord rec_ = new LinkRecord();
+        private int iprev_;
+        private int irec_;
+        private RowLink link_;
+
+        MemorySource() {
+            irec_ = -1;
+            advance();
+        }
+
+        public RowLink peek() {
+            return link_;
+        }
+
+        public void advance() {
+            iprev_ = irec_;
+            do {
+                irec_++;
+            } while ( irec_ < nmem_ && kinds_[ irec_ ] == DELETED );
+            if ( irec_ < nmem_ ) {
+                getRecord( irec_, rec_ );
+                link_ = rec_.toLink();
+            }
+            else {
+                link_ = null;
+            }
+        }
+
+        public void removePrevious() {
+            kinds_[ iprev_ ] = DELETED;
+            size_--;
+        }
+    }
+
+    /**
+     * LinkSource for the records in a run.
+     */
+    private class RunSource implements LinkSource {
+        private final Run run_;
+        private final LinkRecord rec_ = new LinkRecord();
+        private int iprev_;
+        private int irec_;
+        private RowLink link_;
+
+        RunSource( Run run ) {
+            run_ = run;
+            irec_ = run.nextLive( 0 );
+            iprev_ = -1;
+            readLink();
+        }
+
+        public RowLink peek() {
+            return link_;
+        }
+
+        public void advance() {
+            iprev_ = irec_;
+            irec_ = run_.nextLive( irec_ + 1 );
+            readLink();
+        }
+
+        public void removePrevious() {
+            run_.deleted_.set( iprev_ );
+            size_--;
+        }
+
+        private void readLink() {
+            if ( irec_ < run_.nrec_ ) {
+                run_.read( irec_, rec_ );
+                link_ = rec_.toLink();
+            }
+            else {
+                link_ = null;
+            }
+        }
+    }
+
+    /**
+     * LinkSource for the links not represented as records.
+     * This does not hold an iterator over the underlying set,
+     * since it must be possible to remove items during iteration.
+     */
+    private class OverflowSource implements LinkSource {
+        private RowLink prev_;
+        private RowLink link_;
+
+        OverflowSource() {
+            link_ = (RowLink) overflow_.first();
+        }
+
+        public RowLink peek() {
+            return link_;
+        }
+
+        public void advance() {
+            prev_ = link_;
+            link_ = null;
+            for ( Iterator it = overflow_.tailSet( prev_ ).iterator();
+                  it.hasNext() && link_ == null; ) {
+                RowLink link = (RowLink) it.next();
+                if ( link.compareTo( prev_ ) > 0 ) {
+                    link_ = link;
+                }
+            }
+        }
+
+        public void removePrevious() {
+            overflow_.remove( prev_ );
+        }
+    }
+
+    /**
+     * Iterator which merges sorted link sources.
+     */
+    private static class MergeIterator implements Iterator {
+        private final LinkSource[] sources_;
+        private LinkSource last_;
+
+        MergeIterator( LinkSource[] sources ) {
+            sources_ = sources;
+        }
+
+        public boolean hasNext() {
+            for ( int i = 0; i < sources_.length; i++ ) {
+                if ( sources_[ i ].peek() != null ) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public Object next() {
+            LinkSource best = null;
+            RowLink bestLink = null;
+            for ( int i = 0; i < sources_.length; i++ ) {
+                RowLink link = sources_[ i ].peek();
+                if ( link != null &&
+                     ( bestLink == null || link.compareTo( bestLink ) < 0 ) ) {
+                    best = sources_[ i ];
+                    bestLink = link;
+                }
+            }
+            if ( best == null ) {
+                throw new NoSuchElementException();
+            }
+            best.advance();
+            last_ = best;
+            return bestLink;
+        }
+
+        public void remove() {
+            if ( last_ == null ) {
+                throw new IllegalStateException();
+            }
+            last_.removePrevious();
+            last_ = null;
+        }
+    }
+}
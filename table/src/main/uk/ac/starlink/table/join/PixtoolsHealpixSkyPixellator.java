@@ -60,6 +60,20 @@ public class PixtoolsHealpixSkyPixellator extends HealpixSkyPixellator {
         return pixList.toArray();
     }
 
+    public int getPixelIndices( double alpha, double delta, double radius,
+                                long[] pixels ) {
+        double theta = Math.PI * 0.5 - delta;
+        Vector3d vec = pixTools_.Ang2Vec( theta, alpha );
+        List pixList = pixTools_.query_disc( nside_, vec, radius, scheme_, 1 );
+        int npix = pixList.size();
+        if ( npix <= pixels.length ) {
+            for ( int i = 0; i < npix; i++ ) {
+                pixels[ i ] = ((Number) pixList.get( i )).longValue();
+            }
+        }
+        return npix;
+    }
+
     protected void configureK( int k ) {
         nside_ = 1 << k;
     }
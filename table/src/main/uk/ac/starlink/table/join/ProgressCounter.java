@@ -0,0 +1,71 @@
+package uk.ac.starlink.table.join;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reports progress to a {@link ProgressIndicator} on behalf of
+ * work which may be going on concurrently in multiple threads.
+ * This performs a similar job to {@link ProgressRowSequence},
+ * but can be shared between workers processing different row ranges.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+class ProgressCounter {
+
+    private final ProgressIndicator indicator_;
+    private final double total_;
+    private final AtomicLong count_;
+    private boolean closed_;
+
+    /**
+     * Constructs a counter and starts a progress stage.
+     *
+     * @param  indicator  indicator to be informed about progress
+     * @param  total   total count expected at the end of the stage,
+     *                 or a non-positive value if unknown
+     * @param  stage   string describing this stage of the process
+     */
+    public ProgressCounter( ProgressIndicator indicator, long total,
+                            String stage ) {
+        indicator_ = indicator;
+        total_ = total;
+        count_ = new AtomicLong();
+        indicator_.startStage( stage );
+    }
+
+    /**
+     * Records that a number of items have been processed.
+     * This method may be called from any thread.
+     *
+     * @param  n  number of additional items processed
+     * @throws  InterruptedIOException  if the progress indicator
+     *          signals that the process should be interrupted
+     */
+    public void add( long n ) throws InterruptedIOException {
+        long count = count_.addAndGet( n );
+        double level = total_ > 0 ? Math.min( 1.0, count / total_ ) : 0.0;
+        synchronized ( this ) {
+            try {
+                indicator_.setLevel( level );
+            }
+            catch ( InterruptedException e ) {
+                throw (InterruptedIOException)
+                      new InterruptedIOException( e.getMessage() )
+                     .initCause( e );
+            }
+        }
+    }
+
+    /**
+     * Indicates that progress is at an end.  Must be called to end the
+     * progress indicator's stage.
+     */
+    public synchronized void close() {
+        if ( ! closed_ ) {
+            closed_ = true;
+            indicator_.endStage();
+        }
+    }
+}
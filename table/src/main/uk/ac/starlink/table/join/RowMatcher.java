@@ -1,6 +1,7 @@
 package uk.ac.starlink.table.join;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
@@ -13,11 +14,21 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import uk.ac.starlink.table.DescribedValue;
+import uk.ac.starlink.table.RowCollector;
+import uk.ac.starlink.table.RowRunner;
 import uk.ac.starlink.table.RowSequence;
+import uk.ac.starlink.table.RowSplittable;
 import uk.ac.starlink.table.StarTable;
+import uk.ac.starlink.table.StoragePolicy;
 import uk.ac.starlink.table.Tables;
 import uk.ac.starlink.table.ValueInfo;
+import uk.ac.starlink.util.DaemonThreadFactory;
 
 /**
  * Performs matching on the rows of one or more tables.
@@ -32,6 +43,14 @@ import uk.ac.starlink.table.ValueInfo;
  * memory as possible.  Techniques include removing items from one
  * collection as they are added to another.  This means that in many
  * cases input values may be modified by the methods.
+ *
+ * <p>By default all the work is done on the calling thread.
+ * If a multi-threaded {@link uk.ac.starlink.table.RowRunner} is installed
+ * using {@link #setRowRunner}, the row binning and pair scoring stages
+ * are performed concurrently on disjoint parts of the data.
+ * The results are the same in either case, but in the parallel case
+ * the match engine and the random access methods of the tables
+ * will be invoked from multiple threads.
  * 
  * @author   Mark Taylor (Starlink)
  */
@@ -41,8 +60,35 @@ public class RowMatcher {
     private final StarTable[] tables;
     private final int nTable;
     private ProgressIndicator indicator = new NullProgressIndicator();
+    private RowRunner runner = RowRunner.SEQUENTIAL;
+    private StoragePolicy linkPolicy;
+    private PackedLinkSet.MemoryBudget linkBudget;
     private long startTime;
 
+    /** Number of rows processed between progress updates in collectors. */
+    private static final int PROGRESS_STEP = 1024;
+
+    /** Number of rows sampled to estimate bin references per row. */
+    private static final int BIN_SAMPLE_ROWS = 1000;
+
+    /**
+     * Factor by which the sampled bin reference count is inflated
+     * when deciding whether primitive binning has enough capacity.
+     */
+    private static final double BIN_SAMPLE_MARGIN = 2.0;
+
+    /**
+     * Total input row count above which createLinkSet returns a
+     * compact LinkSet implementation.
+     */
+    static final long PACKED_LINK_ROWS = 1000000;
+
+    /**
+     * Maximum number of links held in memory by all the compact LinkSets
+     * created during a match.
+     */
+    static final int PACKED_MEM_LINKS = 1 << 22;
+
     /**
      * Constructs a new matcher with match characteristics defined by
      * a given matching engine.
@@ -54,6 +100,7 @@ public class RowMatcher {
         this.engine = engine;
         this.tables = tables;
         this.nTable = tables.length;
+        this.linkBudget = new PackedLinkSet.MemoryBudget( PACKED_MEM_LINKS );
     }
 
     /**
@@ -74,16 +121,88 @@ public class RowMatcher {
         return indicator;
     }
 
+    /**
+     * Sets the object which controls how row processing is distributed
+     * between threads.  The default is {@link RowRunner#SEQUENTIAL}.
+     *
+     * @param  runner  row runner, not null
+     */
+    public void setRowRunner( RowRunner runner ) {
+        this.runner = runner;
+    }
+
+    /**
+     * Returns the object which controls how row processing is distributed
+     * between threads.
+     *
+     * @return  row runner
+     */
+    public RowRunner getRowRunner() {
+        return runner;
+    }
+
+    /**
+     * Sets the storage policy used to store links which do not fit
+     * in memory during large matches.
+     * If null, the default policy is used.
+     *
+     * @param  policy  storage policy for link sets, or null
+     */
+    public void setLinkStoragePolicy( StoragePolicy policy ) {
+        this.linkPolicy = policy;
+    }
+
+    /**
+     * Returns the storage policy used to store links which do not fit
+     * in memory during large matches.
+     *
+     * @return  storage policy for link sets, or null for the default
+     */
+    public StoragePolicy getLinkStoragePolicy() {
+        return linkPolicy;
+    }
+
     /**
      * Constructs a new empty LinkSet for use by this matcher.
-     * The current implementation returns one based on a SortedSet,
-     * but future implementations may provide the option of LinkSet
-     * implementations backed by disk.
+     * For small tables this returns one based on a SortedSet.
+     * If the input tables are large (or of unknown size) it returns
+     * one which packs links into primitive arrays and writes them
+     * out using the {@link #setLinkStoragePolicy link storage policy}
+     * if there are too many to keep in memory.
+     * All such link sets created during a match share a single
+     * in-memory budget.
      *
      * @return  new LinkSet
      */
     public LinkSet createLinkSet() {
-        return new TreeSetLinkSet();
+        if ( isLargeMatch() ) {
+            return new PackedLinkSet( linkPolicy == null
+                                          ? StoragePolicy.getDefaultPolicy()
+                                          : linkPolicy,
+                                      linkBudget );
+        }
+        else {
+            return new TreeSetLinkSet();
+        }
+    }
+
+    /**
+     * Indicates whether the total number of rows in this matcher's
+     * tables is large enough that compact link storage should be used.
+     *
+     * @return  true  if the total row count exceeds PACKED_LINK_ROWS
+     *                or is unknown
+     */
+    private boolean isLargeMatch() {
+        long nrow = 0;
+        for ( int i = 0; i < nTable; i++ ) {
+            long n = tables[ i ].getRowCount();
+            if ( n < 0 ) {
+                return true;
+            }
+            nrow += n;
+        }
+        return nrow > PACKED_LINK_ROWS;
     }
 
     /**
@@ -199,112 +318,225 @@ public class RowMatcher {
                           boolean bestOnly )
             throws IOException, InterruptedException {
 
+        /* Use primitive-keyed bins if the match engine supports it. */
+        if ( isLongBinning( indexR ) ) {
+            return scanForPairsLong( indexR, indexS, range, bestOnly );
+        }
+
         /* Bin the row indices for the random table. */
-        ProgressRowSequence rseq =
-            new ProgressRowSequence( tables[ indexR ], indicator,
-                                     "Binning rows for table "
-                                     + ( indexR + 1 ) );
-        LongBinner binner =
-            Binners.createLongBinner( tables[ indexR ].getRowCount() );
-        long nrow = 0;
-        long nref = 0;
-        long nexclude = 0;
+        ProgressCounter binProgress =
+            new ProgressCounter( indicator, tables[ indexR ].getRowCount(),
+                                 "Binning rows for table " + ( indexR + 1 ) );
+        LongBinAccumulator binAcc;
         try {
-            for ( long lrow = 0; rseq.nextProgress(); lrow++ ) {
-                Object[] row = rseq.getRow();
-                if ( range.isInside( row ) ) {
-                    Object[] keys = engine.getBins( row );
-                    int nkey = keys.length;
-                    for ( int ikey = 0; ikey < nkey; ikey++ ) {
-                        binner.addItem( keys[ ikey ], lrow );
-                    }
-                    nref += nkey;
+            binAcc = collectRows( new LongBinCollector( indexR, range,
+                                                        binProgress ),
+                                  indexR );
+        }
+        finally {
+            binProgress.close();
+        }
+        LongBinner binner = binAcc.binner_;
+        long nrow = binAcc.nrow_;
+        assert nrow == tables[ indexR ].getRowCount();
+        logBinning( nrow, binAcc.nref_, binAcc.nexclude_,
+                    binner.getBinCount() );
+
+        /* Scan the rows for the sequential table. */
+        ProgressCounter scanProgress =
+            new ProgressCounter( indicator, tables[ indexS ].getRowCount(),
+                                 "Scanning rows for table " + ( indexS + 1 ) );
+        try {
+            return collectRows( new PairScanCollector( indexR, indexS, range,
+                                                       bestOnly, binner,
+                                                       scanProgress ),
+                                indexS );
+        }
+        finally {
+            scanProgress.close();
+        }
+    }
+
+    /**
+     * Does the same job as {@link #scanForPairs}, but bins using
+     * primitive long keys.  This is much less memory-hungry.
+     * May only be called if {@link #isLongBinning} returns true for
+     * table R.
+     *
+     * @param  indexR  index of table which will be accessed randomly
+     * @param  indexS  index of table which will be accessed sequentially
+     * @param  range   range outside which pairs can be ignored
+     * @param  bestOnly  if false, all matches will be included in the result;
+     *         if true, for each row in the sequential table, only the best
+     *         match in the random table will be included
+     * @return  links representing pair matches
+     */
+    private LinkSet scanForPairsLong( int indexR, int indexS, NdRange range,
+                                      boolean bestOnly )
+            throws IOException, InterruptedException {
+
+        /* Bin the row indices for the random table. */
+        ProgressCounter binProgress =
+            new ProgressCounter( indicator, tables[ indexR ].getRowCount(),
+                                 "Binning rows for table " + ( indexR + 1 ) );
+        LongKeyBinAccumulator binAcc;
+        try {
+            binAcc = collectRows( new LongKeyBinCollector( range,
+                                                           binProgress ),
+                                  indexR );
+        }
+        finally {
+            binProgress.close();
+        }
+        LongKeyBinner binner = binAcc.binner_;
+        long nrow = binAcc.nrow_;
+        assert nrow == tables[ indexR ].getRowCount();
+        logBinning( nrow, binAcc.nref_, binAcc.nexclude_,
+                    binner.getBinCount() );
+        logBinStorage( binner, nrow );
+
+        /* Scan the rows for the sequential table. */
+        ProgressCounter scanProgress =
+            new ProgressCounter( indicator, tables[ indexS ].getRowCount(),
+                                 "Scanning rows for table " + ( indexS + 1 ) );
+        try {
+            return collectRows( new LongPairScanCollector( indexR, indexS,
+                                                           range, bestOnly,
+                                                           binner,
+                                                           scanProgress ),
+                                indexS ).links_;
+        }
+        finally {
+            scanProgress.close();
+        }
+    }
+
+    /**
+     * Scores the rows of table R which are candidate matches for a row
+     * of table S, and adds the resulting matched pairs to a link set.
+     * This is the inner loop of the pair scan.
+     *
+     * @param  indexR  index of table which is accessed randomly
+     * @param  indexS  index of table which is accessed sequentially
+     * @param  isrow   row index in table S
+     * @param  srowData  tuple for row <code>isrow</code> of table S
+     * @param  rrows   sorted array of distinct candidate row indices
+     *                 for table R
+     * @param  nr      number of elements of <code>rrows</code> to use
+     * @param  bestOnly  if true, only the best match will be added
+     * @param  linkSet  link set to receive pairs
+     */
+    private void scorePairs( int indexR, int indexS, long isrow,
+                             Object[] srowData, long[] rrows, int nr,
+                             boolean bestOnly, LinkSet linkSet )
+            throws IOException {
+        RowLink2 bestLink = null;
+        double bestScore = Double.MAX_VALUE;
+        for ( int ir = 0; ir < nr; ir++ ) {
+            long irrow = rrows[ ir ];
+            Object[] rrowData = tables[ indexR ].getRow( irrow );
+            double score = engine.matchScore( srowData, rrowData );
+            if ( score >= 0 && ( ! bestOnly || score < bestScore ) ) {
+                RowRef rref = new RowRef( indexR, irrow );
+                RowRef sref = new RowRef( indexS, isrow );
+                RowLink2 pairLink = new RowLink2( rref, sref );
+                pairLink.setScore( score );
+                if ( bestOnly ) {
+                    bestScore = score;
+                    bestLink = pairLink;
                 }
                 else {
-                    nexclude++;
+                    assert ! linkSet.containsLink( pairLink );
+                    linkSet.addLink( pairLink );
                 }
-                nrow++;
             }
-            assert nrow == tables[ indexR ].getRowCount();
         }
-        finally {
-            rseq.close();
+        if ( bestLink != null ) {
+            assert ! linkSet.containsLink( bestLink );
+            linkSet.addLink( bestLink );
         }
+    }
+
+    /**
+     * Writes summary information about row binning to the progress
+     * indicator.
+     *
+     * @param  nrow  number of rows examined
+     * @param  nref  number of row references binned
+     * @param  nexclude  number of rows excluded as out of range
+     * @param  nbin  number of bins
+     */
+    private void logBinning( long nrow, long nref, long nexclude, long nbin ) {
         if ( nexclude > 0 ) {
             indicator.logMessage( nexclude + "/" + nrow + " rows excluded "
                                 + "(out of match region)" );
         }
-        long nbin = binner.getBinCount();
         indicator.logMessage( nref + " row refs for " + nrow + " rows in "
                             + nbin + " bins" );
         indicator.logMessage( "(average bin occupancy " +
                               ( (float) nref / (float) nbin ) + ")" );
+    }
 
-        /* Scan the rows for the sequential table. */
-        LinkSet linkSet = createLinkSet();
-        ProgressRowSequence sseq =
-            new ProgressRowSequence( tables[ indexS ], indicator,
-                                     "Scanning rows for table "
-                                   + ( indexS + 1 ) );
-        try {
-            for ( long isrow = 0; sseq.nextProgress(); isrow++ ) {
-                Object[] srowData = sseq.getRow();
-                if ( range.isInside( srowData ) ) {
-
-                    /* Identify rows from table R which may match table S. */
-                    Object[] keys = engine.getBins( srowData );
-                    int nkey = keys.length;
-                    Set rrowSet = new HashSet();
-                    for ( int ikey = 0; ikey < nkey; ikey++ ) {
-                        long[] rrows = binner.getLongs( keys[ ikey ] );
-                        if ( rrows != null ) {
-                            for ( int ir = 0; ir < rrows.length; ir++ ) {
-                                rrowSet.add( new Long( rrows[ ir ] ) );
-                            }
-                        }
-                    }
-                    long[] rrows = new long[ rrowSet.size() ];
-                    int ir = 0;
-                    for ( Iterator it = rrowSet.iterator(); it.hasNext(); ) {
-                        rrows[ ir++ ] = ((Long) it.next()).longValue();
-                    }
-                    Arrays.sort( rrows );
-
-                    /* Score and accumulate matched links. */
-                    List linkList = new ArrayList( 1 );
-                    double bestScore = Double.MAX_VALUE;
-                    for ( ir = 0; ir < rrows.length; ir++ ) {
-                        long irrow = rrows[ ir ];
-                        Object[] rrowData = tables[ indexR ].getRow( irrow );
-                        double score = engine.matchScore( srowData, rrowData );
-                        if ( score >= 0 &&
-                             ( ! bestOnly || score < bestScore ) ) {
-                            RowRef rref = new RowRef( indexR, irrow );
-                            RowRef sref = new RowRef( indexS, isrow );
-                            RowLink2 pairLink = new RowLink2( rref, sref );
-                            pairLink.setScore( score );
-                            if ( bestOnly ) {
-                                bestScore = score;
-                                linkList.clear();
-                            }
-                            linkList.add( pairLink );
-                            assert ( ! bestOnly ) || ( linkList.size() == 1 );
-                        }
-                    }
+    /**
+     * Writes information about the memory used by a primitive binner
+     * to the progress indicator.
+     *
+     * @param  binner  binner
+     * @param  nrow   number of rows binned
+     */
+    private void logBinStorage( LongKeyBinner binner, long nrow ) {
+        long nbyte = binner.getStorageSize();
+        indicator.logMessage( "Bin storage " + ( nbyte / 1024 ) + "kB"
+                            + ( nrow > 0
+                                ? " (" + ( (float) nbyte / (float) nrow )
+                                  + " bytes/row)"
+                                : "" ) );
+    }
 
-                    /* Add matched links to output set. */
-                    for ( Iterator it = linkList.iterator(); it.hasNext(); ) {
-                        RowLink2 pairLink = (RowLink2) it.next();
-                        assert ! linkSet.containsLink( pairLink );
-                        linkSet.addLink( pairLink );
-                    }
-                }
-            }
+    /**
+     * Indicates whether rows can be binned using primitive long keys
+     * rather than objects.  This is the case if the match engine
+     * is a {@link LongBinMatchEngine}, the row indices fit into
+     * an <code>int</code>, and the number of bin references,
+     * estimated from a sample of rows, is well within the capacity
+     * of a {@link LongKeyBinner}.
+     *
+     * @param  itable  index of the table to be binned
+     * @return  true iff primitive binning can be used
+     */
+    private boolean isLongBinning( int itable ) throws IOException {
+        if ( ! ( engine instanceof LongBinMatchEngine ) ) {
+            return false;
         }
-        finally {
-            sseq.close();
+        StarTable table = tables[ itable ];
+        long nrow = table.getRowCount();
+        if ( nrow < 0 || nrow >= Integer.MAX_VALUE ) {
+            return false;
+        }
+        if ( nrow == 0 ) {
+            return true;
+        }
+
+        /* Count the bin references for rows spread evenly through
+         * the table. */
+        LongBinBuffer binBuf =
+            new LongBinBuffer( (LongBinMatchEngine) engine );
+        int nsample = (int) Math.min( nrow, BIN_SAMPLE_ROWS );
+        long nref = 0;
+        for ( int is = 0; is < nsample; is++ ) {
+            binBuf.calculateBins( table.getRow( is * nrow / nsample ) );
+            nref += binBuf.nbin_;
+        }
+        double refEstimate =
+            BIN_SAMPLE_MARGIN * nref * ( (double) nrow / nsample );
+        if ( refEstimate < LongKeyBinner.MAX_ITEMS ) {
+            return true;
+        }
+        else {
+            indicator.logMessage( "Estimated " + (long) refEstimate
+                                + " bin refs too many for primitive binning" );
+            return false;
         }
-        return linkSet;
     }
 
     /**
@@ -355,6 +587,7 @@ public class RowMatcher {
                 for ( Iterator it = missing[ i ].iterator(); it.hasNext(); ) {
                     multiLinks.addLink( (RowLink) it.next() );
                 }
+                releaseLinks( missing[ i ] );
                 missing[ i ] = null;
             }
         }
@@ -411,6 +644,7 @@ public class RowMatcher {
 
         /* Join up pairs into larger groupings. */
         LinkSet links = agglomerateLinks( pairs );
+        releaseLinks( pairs );
         pairs = null;
 
         /* This could introduce more internal links - get rid of them. */
@@ -431,6 +665,7 @@ public class RowMatcher {
                 for ( Iterator it = missing[ i ].iterator(); it.hasNext(); ) {
                     links.addLink( (RowLink) it.next() );
                 }
+                releaseLinks( missing[ i ] );
                 missing[ i ] = null;
             }
         }
@@ -473,15 +708,19 @@ public class RowMatcher {
         LinkSet links = findPairs( getAllPossibleInternalLinks( 0 ) );
 
         /* Join up pairs into larger groupings. */
-        links = agglomerateLinks( links );
+        LinkSet pairs = links;
+        links = agglomerateLinks( pairs );
+        releaseLinks( pairs );
+        pairs = null;
 
         /* Add unmatched rows if required. */
         if ( includeSingles ) {
-            for ( Iterator it = missingSingles( links, 0 ).iterator();
-                  it.hasNext(); ) {
+            LinkSet singles = missingSingles( links, 0 );
+            for ( Iterator it = singles.iterator(); it.hasNext(); ) {
                 links.addLink( (RowLink) it.next() );
                 it.remove();
             }
+            releaseLinks( singles );
         }
 
         /* Return the list. */
@@ -493,7 +732,7 @@ public class RowMatcher {
      * Identifies all the pairs of equivalent rows in a set of RowLinks.
      * Internal matches (ones corresponding to two rows of the same table)
      * are included as well as external ones.
-     * The input set <code>possibleLinks</code> may be affected
+     * The input set <code>possibleLinks</code> is emptied and released
      * by this routine.
      * 
      * @param  possibleLinks  a set of {@link RowLink} objects which 
@@ -504,6 +743,10 @@ public class RowMatcher {
      */
     private LinkSet findPairs( LinkSet possibleLinks )
             throws IOException, InterruptedException {
+        if ( runner.getThreadCount() > 1 &&
+             possibleLinks.size() >= 2 * runner.getMinChunk() ) {
+            return findPairsParallel( possibleLinks );
+        }
         LinkSet pairs = createLinkSet();
         double nLink = (double) possibleLinks.size();
         int iLink = 0;
@@ -521,12 +764,7 @@ public class RowMatcher {
 
                 /* Cache the rows from each ref since it may be expensive
                  * to get them multiple times. */
-                Object[][] binnedRows = new Object[ nref ][];
-                for ( int i = 0; i < nref; i++ ) {
-                    RowRef ref = link.getRef( i );
-                    StarTable table = tables[ ref.getTableIndex() ];
-                    binnedRows[ i ] = table.getRow( ref.getRowIndex() );
-                }
+                Object[][] binnedRows = getLinkRows( link );
 
                 /* Do a pairwise comparison of all the rows in the same group.
                  * If they match, add the new pair to the set of pairs. */
@@ -548,9 +786,147 @@ public class RowMatcher {
             indicator.setLevel( ++iLink / nLink );
         }
         indicator.endStage();
+        releaseLinks( possibleLinks );
+        return pairs;
+    }
+
+    /**
+     * Performs the same function as {@link #findPairs}, but distributes
+     * the work of scoring candidate pairs between multiple threads.
+     * The result is the same as that of the sequential implementation.
+     *
+     * @param  possibleLinks  a set of {@link RowLink} objects which 
+     *         correspond to groups of possibly matched objects;
+     *         will be emptied by this method
+     * @return  a set of RowLink objects which represent all the actual
+     *          distinct row pairs from <tt>possibleLinks</tt>
+     */
+    private LinkSet findPairsParallel( LinkSet possibleLinks )
+            throws IOException, InterruptedException {
+
+        /* Extract the non-trivial links into an array, emptying the input
+         * set as we go for memory efficiency. */
+        List<RowLink> linkList = new ArrayList<RowLink>();
+        for ( Iterator it = possibleLinks.iterator(); it.hasNext(); ) {
+            RowLink link = (RowLink) it.next();
+            it.remove();
+            if ( link.size() > 1 ) {
+                linkList.add( link );
+            }
+        }
+        releaseLinks( possibleLinks );
+        RowLink[] links = linkList.toArray( new RowLink[ 0 ] );
+        linkList = null;
+        int nLink = links.length;
+
+        /* Divide the array into contiguous chunks, and score the pairs
+         * in each chunk on a separate thread.  The runner's minimum
+         * chunk size is applied to the number of links per chunk. */
+        int nthread = runner.getThreadCount();
+        long minChunk = Math.max( 1, runner.getMinChunk() );
+        int nchunk =
+            (int) Math.max( 1, Math.min( nthread * 4L, nLink / minChunk ) );
+        ProgressCounter progress =
+            new ProgressCounter( indicator, nLink, "Locating pairs" );
+        LinkSet pairs = createLinkSet();
+        ExecutorService executor =
+            Executors.newFixedThreadPool( Math.min( nthread, nchunk ),
+                                          new DaemonThreadFactory(
+                                              "RowMatcher" ) );
+        List<Future<List<RowLink2>>> futures =
+            new ArrayList<Future<List<RowLink2>>>( nchunk );
+        try {
+            for ( int ic = 0; ic < nchunk; ic++ ) {
+                final RowLink[] chunk =
+                    Arrays.asList( links )
+                   .subList( (int) ( ic * (long) nLink / nchunk ),
+                             (int) ( ( ic + 1 ) * (long) nLink / nchunk ) )
+                   .toArray( new RowLink[ 0 ] );
+                final ProgressCounter progress1 = progress;
+                futures.add( executor.submit( new Callable<List<RowLink2>>() {
+                    public List<RowLink2> call() throws IOException {
+                        return scoreLinks( chunk, progress1 );
+                    }
+                } ) );
+            }
+            links = null;
+
+            /* Merge the results in order, retaining only the first
+             * instance of each pair, as for the sequential case. */
+            for ( Future<List<RowLink2>> future : futures ) {
+                for ( RowLink2 pair : getFutureResult( future ) ) {
+                    if ( ! pairs.containsLink( pair ) ) {
+                        pairs.addLink( pair );
+                    }
+                }
+            }
+        }
+        finally {
+            executor.shutdownNow();
+            progress.close();
+        }
         return pairs;
     }
 
+    /**
+     * Scores all the distinct pairs within each of a list of RowLinks.
+     * This method may be called concurrently from multiple threads.
+     * Pairs are only deduplicated within each link, so the same pair
+     * may appear more than once in the result if it occurs in
+     * more than one link; this keeps the memory required
+     * independent of the number of links.
+     *
+     * @param  links  row links with more than one entry
+     * @param  progress  progress counter to be incremented once per link
+     * @return  list of matched pairs with their scores set,
+     *          in the order in which they were encountered
+     */
+    private List<RowLink2> scoreLinks( RowLink[] links,
+                                       ProgressCounter progress )
+            throws IOException {
+        Set<RowLink2> seen = new HashSet<RowLink2>();
+        List<RowLink2> pairList = new ArrayList<RowLink2>();
+        for ( int il = 0; il < links.length; il++ ) {
+            RowLink link = links[ il ];
+            int nref = link.size();
+            Object[][] binnedRows = getLinkRows( link );
+            seen.clear();
+            for ( int i = 0; i < nref; i++ ) {
+                for ( int j = 0; j < i; j++ ) {
+                    RowLink2 pair = new RowLink2( link.getRef( i ),
+                                                  link.getRef( j ) );
+                    if ( seen.add( pair ) ) {
+                        double score = engine.matchScore( binnedRows[ i ],
+                                                          binnedRows[ j ] );
+                        if ( score >= 0 ) {
+                            pair.setScore( score );
+                            pairList.add( pair );
+                        }
+                    }
+                }
+            }
+            progress.add( 1 );
+        }
+        return pairList;
+    }
+
+    /**
+     * Returns the table rows referenced by each of the entries in a link.
+     *
+     * @param  link  row link
+     * @return  array of rows, one for each ref in the link
+     */
+    private Object[][] getLinkRows( RowLink link ) throws IOException {
+        int nref = link.size();
+        Object[][] rows = new Object[ nref ][];
+        for ( int i = 0; i < nref; i++ ) {
+            RowRef ref = link.getRef( i );
+            StarTable table = tables[ ref.getTableIndex() ];
+            rows[ i ] = table.getRow( ref.getRowIndex() );
+        }
+        return rows;
+    }
+
     /**
      * Goes through all tables and gets a preliminary set of all
      * the groups of rows which are possibly linked by a chain of
@@ -588,21 +964,19 @@ public class RowMatcher {
             throws IOException, InterruptedException {
         StarTable table = tables[ itable ];
         long nRow = table.getRowCount();
-        LongBinner binner = Binners.createLongBinner( nRow );
-        ProgressRowSequence rseq =
-            new ProgressRowSequence( table, indicator, "Binning rows" );
+        if ( isLongBinning( itable ) ) {
+            return getAllPossibleInternalLinksLong( itable );
+        }
+        ProgressCounter progress =
+            new ProgressCounter( indicator, nRow, "Binning rows" );
+        LongBinner binner;
         try {
-            for ( long lrow = 0; rseq.nextProgress(); lrow++ ) {
-                Object[] row = rseq.getRow();
-                Object[] keys = engine.getBins( row );
-                int nkey = keys.length;
-                for ( int ikey = 0; ikey < nkey; ikey++ ) {
-                    binner.addItem( keys[ ikey ], lrow );
-                }
-            }
+            binner = collectRows( new LongBinCollector( itable, null,
+                                                        progress ),
+                                  itable ).binner_;
         }
         finally {
-            rseq.close();
+            progress.close();
         }
         long nBin = binner.getBinCount();
         indicator.logMessage( "Average bin count per row: " +
@@ -613,6 +987,60 @@ public class RowMatcher {
         return links;
     }
 
+    /**
+     * Does the same job as {@link #getAllPossibleInternalLinks}, but
+     * bins using primitive long keys.
+     * May only be called if {@link #isLongBinning} returns true for
+     * the table.
+     *
+     * @param   itable  index of table to examine
+     * @return  set of {@link RowLink} objects which constitute possible
+     *          matches
+     */
+    private LinkSet getAllPossibleInternalLinksLong( int itable )
+            throws IOException, InterruptedException {
+        long nRow = tables[ itable ].getRowCount();
+        ProgressCounter progress =
+            new ProgressCounter( indicator, nRow, "Binning rows" );
+        LongKeyBinner binner;
+        try {
+            binner = collectRows( new LongKeyBinCollector( null, progress ),
+                                  itable ).binner_;
+        }
+        finally {
+            progress.close();
+        }
+        long nBin = binner.getBinCount();
+        indicator.logMessage( "Average bin count per row: " +
+                              (float) ( nBin / (double) nRow ) );
+        logBinStorage( binner, nRow );
+
+        /* Turn each multiply-occupied bin into a link. */
+        LinkSet links = createLinkSet();
+        indicator.startStage( "Consolidating potential match groups" );
+        long[] keys = binner.getKeys();
+        int nkey = keys.length;
+        long[] irs = new long[ 16 ];
+        for ( int ik = 0; ik < nkey; ik++ ) {
+            long key = keys[ ik ];
+            int nir = binner.getItemCount( key );
+            if ( nir > 1 ) {
+                if ( nir > irs.length ) {
+                    irs = new long[ nir ];
+                }
+                binner.getItems( key, irs, 0 );
+                RowRef[] refs = new RowRef[ nir ];
+                for ( int iir = 0; iir < nir; iir++ ) {
+                    refs[ iir ] = new RowRef( itable, irs[ iir ] );
+                }
+                links.addLink( new RowLink( refs ) );
+            }
+            indicator.setLevel( ( ik + 1 ) / (double) nkey );
+        }
+        indicator.endStage();
+        return links;
+    }
+
     /**
      * Attempts to locate an intersection between multiple tables.
      * If we have a match engine which is capable of working out a restricted
@@ -764,6 +1192,7 @@ public class RowMatcher {
             links.addLink( repLink );
             it.remove();
         }
+        releaseLinks( replacements );
     }
 
     /**
@@ -887,7 +1316,7 @@ public class RowMatcher {
      * @param  possibleLinks  set of {@link RowLink} objects which correspond
      *         to groups of possibly matched objects; each link must contain
      *         at least one object from the reference table
-     *         (<code>index0</code>)
+     *         (<code>index0</code>); it is emptied and released
      * @param  index0  index of the reference table in this row matcher's list
      *         of tables
      * @param  bestOnly  true iff only the best match with each other table
@@ -968,6 +1397,7 @@ public class RowMatcher {
             indicator.setLevel( ++iLink / nLink );
         }
         indicator.endStage();
+        releaseLinks( possibleLinks );
 
         /* Store all the pairs in a map keyed by row reference of the reference
          * table. */
@@ -998,6 +1428,9 @@ public class RowMatcher {
             pairBinner.addItem( key, value );
         }
 
+        releaseLinks( pairs );
+        pairs = null;
+
         /* Convert the pairs in pairMap to a LinkSet. */
         LinkSet multiLinks = createLinkSet();
         for ( Iterator it = pairBinner.getKeyIterator(); it.hasNext(); ) {
@@ -1047,7 +1480,8 @@ public class RowMatcher {
      * representing a matched pair, with non-blank pair scores.
      * The pairs may only contain RowRefs with a table index of 0 or 1.
      *
-     * <p>The input set, <code>pairs</code>, may be affected by this method.
+     * <p>The input set, <code>pairs</code>, is released by this method
+     * and must not be used afterwards.
      * 
      * @param  pairs  set of <code>RowLink2</code> objects
      *                representing matched pairs
@@ -1076,6 +1510,7 @@ public class RowMatcher {
                 }
             }
         } );
+        releaseLinks( pairs );
         pairs = null;
 
         /* We will be copying entries from the input map to an output one,
@@ -1421,37 +1856,33 @@ public class RowMatcher {
             return;
         }
         StarTable table = tables[ itab ];
-        ProgressRowSequence rseq =
-            new ProgressRowSequence( table, indicator,
-                                     "Binning rows for table " + ( itab + 1 ) );
-        long nrow = 0;
-        long nexclude = 0;
+        ProgressCounter progress =
+            new ProgressCounter( indicator, table.getRowCount(),
+                                 "Binning rows for table " + ( itab + 1 ) );
+        ObjectBinAccumulator acc;
         try {
-            for ( long lrow = 0; rseq.nextProgress(); lrow++ ) {
-                Object[] row = rseq.getRow();
-                if ( range.isInside( row ) ) {
-                    Object[] keys = engine.getBins( row );
-                    int nkey = keys.length;
-                    if ( nkey > 0 ) {
-                        RowRef rref = new RowRef( itab, lrow );
-                        for ( int ikey = 0; ikey < nkey; ikey++ ) {
-                            Object key = keys[ ikey ];
-                            if ( newBins || binner.containsKey( key ) ) {
-                                binner.addItem( key, rref );
-                            }
-                        }
-                    }
-                }
-                else {
-                    nexclude++;
-                }
-                nrow++;
+
+            /* If processing is sequential, the rows can be binned directly
+             * into the supplied binner.  Otherwise, each thread bins
+             * into its own binner (consulting the supplied one, which
+             * is not modified during the parallel phase, if required),
+             * and the results are merged at the end. */
+            ObjectBinner accBinner = runner.getThreadCount() > 1 ? null
+                                                                 : binner;
+            acc = collectRows( new ObjectBinCollector( itab, range, binner,
+                                                       newBins, accBinner,
+                                                       progress ),
+                               itab );
+            if ( acc.binner_ != binner ) {
+                mergeBins( acc.binner_, binner );
             }
-            assert nrow == table.getRowCount();
         }
         finally {
-            rseq.close();
+            progress.close();
         }
+        long nrow = acc.nrow_;
+        long nexclude = acc.nexclude_;
+        assert nrow == table.getRowCount();
         if ( nexclude > 0 ) {
             indicator.logMessage( nexclude + "/" + nrow + " rows excluded "
                                 + "(out of match region)" );
@@ -1542,6 +1973,98 @@ public class RowMatcher {
         indicator.endStage();
     }
 
+    /**
+     * Runs a row collector over the rows of one of this matcher's tables
+     * using the current row runner.
+     *
+     * @param  collector  collector
+     * @param  itab   index of table to process
+     * @return   accumulated result
+     */
+    private <A> A collectRows( RowCollector<A> collector, int itab )
+            throws IOException, InterruptedException {
+        try {
+            return runner.collect( collector, tables[ itab ] );
+        }
+        catch ( InterruptedIOException e ) {
+            throw (InterruptedException)
+                  new InterruptedException( e.getMessage() ).initCause( e );
+        }
+    }
+
+    /**
+     * Waits for the result of a future, rethrowing any exception it
+     * encountered during execution.
+     *
+     * @param  future  future
+     * @return  result
+     */
+    private static <T> T getFutureResult( Future<T> future )
+            throws IOException, InterruptedException {
+        try {
+            return future.get();
+        }
+        catch ( ExecutionException e ) {
+            Throwable err = e.getCause();
+            if ( err instanceof InterruptedIOException ) {
+                throw (InterruptedException)
+                      new InterruptedException( err.getMessage() )
+                     .initCause( err );
+            }
+            else if ( err instanceof IOException ) {
+                throw (IOException) err;
+            }
+            else if ( err instanceof RuntimeException ) {
+                throw (RuntimeException) err;
+            }
+            else if ( err instanceof Error ) {
+                throw (Error) err;
+            }
+            else {
+                throw (IOException) new IOException( err.getMessage() )
+                                   .initCause( err );
+            }
+        }
+    }
+
+    /**
+     * Moves all the items from one ObjectBinner into another.
+     * Items in the source are appended to any in the same bin of
+     * the destination.
+     *
+     * @param  src  source binner; will be emptied
+     * @param  dst  destination binner
+     */
+    private static void mergeBins( ObjectBinner src, ObjectBinner dst ) {
+        for ( Iterator it = src.getKeyIterator(); it.hasNext(); ) {
+            Object key = it.next();
+            for ( Iterator lit = src.getList( key ).iterator();
+                  lit.hasNext(); ) {
+                dst.addItem( key, lit.next() );
+            }
+            it.remove();
+        }
+    }
+
+    /**
+     * Moves all the items from one LongBinner into another.
+     * Items in the source are appended to any in the same bin of
+     * the destination.
+     *
+     * @param  src  source binner; will be emptied
+     * @param  dst  destination binner
+     */
+    private static void mergeBins( LongBinner src, LongBinner dst ) {
+        for ( Iterator it = src.getKeyIterator(); it.hasNext(); ) {
+            Object key = it.next();
+            long[] items = src.getLongs( key );
+            for ( int i = 0; i < items.length; i++ ) {
+                dst.addItem( key, items[ i ] );
+            }
+            it.remove();
+        }
+    }
+
     /**
      * Returns the number of rows in a table which fall within a given
      * range of min/max values.
@@ -1600,6 +2123,7 @@ public class RowMatcher {
      */
     private void startMatch() {
         startTime = new Date().getTime();
+        linkBudget = new PackedLinkSet.MemoryBudget( PACKED_MEM_LINKS );
         indicator.logMessage( "Params:"
                             + formatParams( engine.getMatchParameters() ) );
         indicator.logMessage( "Tuning:"
@@ -1638,6 +2162,538 @@ public class RowMatcher {
         return Tables.checkedLongToInt( lval );
     }
 
+    /**
+     * Partial RowCollector implementation for use with this matcher.
+     * It takes care of iteration and progress reporting;
+     * concrete subclasses just have to process each row.
+     */
+    private abstract class MatchCollector<A> extends RowCollector<A> {
+        private final ProgressCounter progress_;
+
+        /**
+         * Constructor.
+         *
+         * @param  progress  progress counter, incremented once per row
+         */
+        MatchCollector( ProgressCounter progress ) {
+            progress_ = progress;
+        }
+
+        public void accumulateRows( RowSplittable rseq, A acc )
+                throws IOException {
+            int nr = 0;
+            while ( rseq.next() ) {
+                long irow = rseq.getRowIndex();
+                if ( irow < 0 ) {
+                    throw new IOException( "Row index unknown" );
+                }
+                accumulateRow( irow, rseq.getRow(), acc );
+                if ( ++nr == PROGRESS_STEP ) {
+                    progress_.add( nr );
+                    nr = 0;
+                }
+            }
+            progress_.add( nr );
+        }
+
+        /**
+         * Processes a single row.
+         *
+         * @param  irow  row index
+         * @param  row   row data
+         * @param  acc   accumulator to update
+         */
+        protected abstract void accumulateRow( long irow, Object[] row, A acc )
+                throws IOException;
+    }
+
+    /**
+     * Accumulator for LongBinCollector.
+     */
+    private static class LongBinAccumulator {
+        final LongBinner binner_;
+        long nrow_;
+        long nref_;
+        long nexclude_;
+
+        /**
+         * Constructor.
+         *
+         * @param  binner  binner to populate
+         */
+        LongBinAccumulator( LongBinner binner ) {
+            binner_ = binner;
+        }
+    }
+
+    /**
+     * Collector which bins the row indices of a table by match engine bin.
+     */
+    private class LongBinCollector extends MatchCollector<LongBinAccumulator> {
+        private final long tableRows_;
+        private final NdRange range_;
+
+        /**
+         * Constructor.
+         *
+         * @param  itab   index of table to process
+         * @param  range  range outside which rows are ignored,
+         *                or null for no restriction
+         * @param  progress  progress counter
+         */
+        LongBinCollector( int itab, NdRange range, ProgressCounter progress ) {
+            super( progress );
+            tableRows_ = tables[ itab ].getRowCount();
+            range_ = range;
+        }
+
+        public LongBinAccumulator createAccumulator() {
+            return new LongBinAccumulator( Binners
+                                          .createLongBinner( tableRows_ ) );
+        }
+
+        protected void accumulateRow( long irow, Object[] row,
+                                      LongBinAccumulator acc ) {
+            if ( range_ == null || range_.isInside( row ) ) {
+                Object[] keys = engine.getBins( row );
+                int nkey = keys.length;
+                for ( int ikey = 0; ikey < nkey; ikey++ ) {
+                    acc.binner_.addItem( keys[ ikey ], irow );
+                }
+                acc.nref_ += nkey;
+            }
+            else {
+                acc.nexclude_++;
+            }
+            acc.nrow_++;
+        }
+
+        public LongBinAccumulator combine( LongBinAccumulator acc1,
+                                           LongBinAccumulator acc2 ) {
+            mergeBins( acc2.binner_, acc1.binner_ );
+            acc1.nrow_ += acc2.nrow_;
+            acc1.nref_ += acc2.nref_;
+            acc1.nexclude_ += acc2.nexclude_;
+            return acc1;
+        }
+    }
+
+    /**
+     * Accumulator for ObjectBinCollector.
+     */
+    private static class ObjectBinAccumulator {
+        final ObjectBinner binner_;
+        long nrow_;
+        long nexclude_;
+
+        /**
+         * Constructor.
+         *
+         * @param  binner  binner to populate
+         */
+        ObjectBinAccumulator( ObjectBinner binner ) {
+            binner_ = binner;
+        }
+    }
+
+    /**
+     * Collector which bins RowRefs for the rows of a table
+     * by match engine bin.
+     */
+    private class ObjectBinCollector
+            extends MatchCollector<ObjectBinAccumulator> {
+        private final int itab_;
+        private final NdRange range_;
+        private final ObjectBinner refBinner_;
+        private final boolean newBins_;
+        private final ObjectBinner accBinner_;
+
+        /**
+         * Constructor.
+         *
+         * @param  itab   index of table to process
+         * @param  range  range outside which rows are ignored
+         * @param  refBinner  binner consulted for existing bins
+         *                    if <code>newBins</code> is false
+         * @param  newBins   whether new bins may be added
+         * @param  accBinner  binner into which rows are accumulated,
+         *                    or null to create a new one per accumulator
+         * @param  progress  progress counter
+         */
+        ObjectBinCollector( int itab, NdRange range, ObjectBinner refBinner,
+                            boolean newBins, ObjectBinner accBinner,
+                            ProgressCounter progress ) {
+            super( progress );
+            itab_ = itab;
+            range_ = range;
+            refBinner_ = refBinner;
+            newBins_ = newBins;
+            accBinner_ = accBinner;
+        }
+
+        public ObjectBinAccumulator createAccumulator() {
+            return new ObjectBinAccumulator( accBinner_ == null
+                                           ? Binners.createObjectBinner()
+                                           : accBinner_ );
+        }
+
+        protected void accumulateRow( long irow, Object[] row,
+                                      ObjectBinAccumulator acc ) {
+            if ( range_.isInside( row ) ) {
+                Object[] keys = engine.getBins( row );
+                int nkey = keys.length;
+                if ( nkey > 0 ) {
+                    RowRef rref = new RowRef( itab_, irow );
+                    for ( int ikey = 0; ikey < nkey; ikey++ ) {
+                        Object key = keys[ ikey ];
+                        if ( newBins_ || refBinner_.containsKey( key ) ) {
+                            acc.binner_.addItem( key, rref );
+                        }
+                    }
+                }
+            }
+            else {
+                acc.nexclude_++;
+            }
+            acc.nrow_++;
+        }
+
+        public ObjectBinAccumulator combine( ObjectBinAccumulator acc1,
+                                             ObjectBinAccumulator acc2 ) {
+            mergeBins( acc2.binner_, acc1.binner_ );
+            acc1.nrow_ += acc2.nrow_;
+            acc1.nexclude_ += acc2.nexclude_;
+            return acc1;
+        }
+    }
+
+    /**
+     * Collector which scans the rows of one table for matches against
+     * the binned rows of another, accumulating the resulting pairs
+     * into a LinkSet.
+     */
+    private class PairScanCollector extends MatchCollector<LinkSet> {
+        private final int indexR_;
+        private final int indexS_;
+        private final NdRange range_;
+        private final boolean bestOnly_;
+        private final LongBinner binner_;
+
+        /**
+         * Constructor.
+         *
+         * @param  indexR  index of table whose rows have been binned
+         * @param  indexS  index of table whose rows are being scanned
+         * @param  range   range outside which pairs can be ignored
+         * @param  bestOnly  if true, for each scanned row only the best
+         *                   match in the random table will be included
+         * @param  binner  binner containing row indices of table R;
+         *                 not modified
+         * @param  progress  progress counter
+         */
+        PairScanCollector( int indexR, int indexS, NdRange range,
+                           boolean bestOnly, LongBinner binner,
+                           ProgressCounter progress ) {
+            super( progress );
+            indexR_ = indexR;
+            indexS_ = indexS;
+            range_ = range;
+            bestOnly_ = bestOnly;
+            binner_ = binner;
+        }
+
+        public LinkSet createAccumulator() {
+            return createLinkSet();
+        }
+
+        protected void accumulateRow( long isrow, Object[] srowData,
+                                      LinkSet linkSet )
+                throws IOException {
+            if ( range_.isInside( srowData ) ) {
+
+                /* Identify rows from table R which may match table S. */
+                Object[] keys = engine.getBins( srowData );
+                int nkey = keys.length;
+                Set rrowSet = new HashSet();
+                for ( int ikey = 0; ikey < nkey; ikey++ ) {
+                    long[] rrows = binner_.getLongs( keys[ ikey ] );
+                    if ( rrows != null ) {
+                        for ( int ir = 0; ir < rrows.length; ir++ ) {
+                            rrowSet.add( new Long( rrows[ ir ] ) );
+                        }
+                    }
+                }
+                long[] rrows = new long[ rrowSet.size() ];
+                int ir = 0;
+                for ( Iterator it = rrowSet.iterator(); it.hasNext(); ) {
+                    rrows[ ir++ ] = ((Long) it.next()).longValue();
+                }
+                Arrays.sort( rrows );
+
+                /* Score and accumulate matched links. */
+                scorePairs( indexR_, indexS_, isrow, srowData, rrows,
+                            rrows.length, bestOnly_, linkSet );
+            }
+        }
+
+        public LinkSet combine( LinkSet links1, LinkSet links2 ) {
+            return mergeLinks( links1, links2 );
+        }
+    }
+
+    /**
+     * Merges the contents of two disjoint link sets.
+     * The smaller one is emptied into the larger one.
+     *
+     * @param  links1  one link set
+     * @param  links2  other link set
+     * @return  link set containing all the links from both inputs;
+     *          this will be one of the inputs
+     */
+    private static LinkSet mergeLinks( LinkSet links1, LinkSet links2 ) {
+        LinkSet big = links1.size() >= links2.size() ? links1 : links2;
+        LinkSet small = big == links1 ? links2 : links1;
+        for ( Iterator it = small.iterator(); it.hasNext(); ) {
+            RowLink link = (RowLink) it.next();
+            it.remove();
+            big.addLink( link );
+        }
+        releaseLinks( small );
+        return big;
+    }
+
+    /**
+     * Releases any resources held by a link set which is no longer
+     * required.  Compact link sets may hold storage for links which
+     * have been written out; other link sets are left to the
+     * garbage collector.
+     *
+     * @param  links  link set which will not be used again
+     */
+    private static void releaseLinks( LinkSet links ) {
+        if ( links instanceof PackedLinkSet ) {
+            ((PackedLinkSet) links).dispose();
+        }
+    }
+
+    /**
+     * Reusable buffer for acquiring long integer bin keys from
+     * a LongBinMatchEngine.
+     */
+    private static class LongBinBuffer {
+        private final LongBinMatchEngine engine_;
+        long[] bins_;
+        int nbin_;
+
+        /**
+         * Constructor.
+         *
+         * @param  engine  match engine
+         */
+        LongBinBuffer( LongBinMatchEngine engine ) {
+            engine_ = engine;
+            bins_ = new long[ 16 ];
+        }
+
+        /**
+         * Calculates the bins for a tuple.  Following this call,
+         * the first <code>nbin_</code> elements of the <code>bins_</code>
+         * array contain the bin keys.
+         *
+         * @param  tuple  tuple
+         */
+        void calculateBins( Object[] tuple ) {
+            nbin_ = engine_.getLongBins( tuple, bins_ );
+            if ( nbin_ > bins_.length ) {
+                bins_ = new long[ nbin_ ];
+                nbin_ = engine_.getLongBins( tuple, bins_ );
+            }
+        }
+    }
+
+    /**
+     * Accumulator for LongKeyBinCollector.
+     */
+    private static class LongKeyBinAccumulator {
+        final LongKeyBinner binner_;
+        final LongBinBuffer binBuf_;
+        long nrow_;
+        long nref_;
+        long nexclude_;
+
+        /**
+         * Constructor.
+         *
+         * @param  engine  match engine
+         */
+        LongKeyBinAccumulator( LongBinMatchEngine engine ) {
+            binner_ = new LongKeyBinner();
+            binBuf_ = new LongBinBuffer( engine );
+        }
+    }
+
+    /**
+     * Collector which bins the row indices of a table by
+     * primitive bin key.
+     */
+    private class LongKeyBinCollector
+            extends MatchCollector<LongKeyBinAccumulator> {
+        private final NdRange range_;
+
+        /**
+         * Constructor.
+         *
+         * @param  range  range outside which rows are ignored,
+         *                or null for no restriction
+         * @param  progress  progress counter
+         */
+        LongKeyBinCollector( NdRange range, ProgressCounter progress ) {
+            super( progress );
+            range_ = range;
+        }
+
+        public LongKeyBinAccumulator createAccumulator() {
+            return new LongKeyBinAccumulator( (LongBinMatchEngine) engine );
+        }
+
+        protected void accumulateRow( long irow, Object[] row,
+                                      LongKeyBinAccumulator acc ) {
+            if ( range_ == null || range_.isInside( row ) ) {
+                LongBinBuffer binBuf = acc.binBuf_;
+                binBuf.calculateBins( row );
+                int nkey = binBuf.nbin_;
+                long[] keys = binBuf.bins_;
+                int item = (int) irow;
+                for ( int ikey = 0; ikey < nkey; ikey++ ) {
+                    acc.binner_.addItem( keys[ ikey ], item );
+                }
+                acc.nref_ += nkey;
+            }
+            else {
+                acc.nexclude_++;
+            }
+            acc.nrow_++;
+        }
+
+        public LongKeyBinAccumulator combine( LongKeyBinAccumulator acc1,
+                                              LongKeyBinAccumulator acc2 ) {
+            acc1.binner_.addAll( acc2.binner_ );
+            acc1.nrow_ += acc2.nrow_;
+            acc1.nref_ += acc2.nref_;
+            acc1.nexclude_ += acc2.nexclude_;
+            return acc1;
+        }
+    }
+
+    /**
+     * Accumulator for LongPairScanCollector.
+     */
+    private static class LongScanAccumulator {
+        LinkSet links_;
+        final LongBinBuffer binBuf_;
+        long[] rrows_;
+
+        /**
+         * Constructor.
+         *
+         * @param  links  empty link set
+         * @param  engine  match engine
+         */
+        LongScanAccumulator( LinkSet links, LongBinMatchEngine engine ) {
+            links_ = links;
+            binBuf_ = new LongBinBuffer( engine );
+            rrows_ = new long[ 16 ];
+        }
+    }
+
+    /**
+     * Collector which scans the rows of one table for matches against
+     * the rows of another which have been binned by primitive key.
+     */
+    private class LongPairScanCollector
+            extends MatchCollector<LongScanAccumulator> {
+        private final int indexR_;
+        private final int indexS_;
+        private final NdRange range_;
+        private final boolean bestOnly_;
+        private final LongKeyBinner binner_;
+
+        /**
+         * Constructor.
+         *
+         * @param  indexR  index of table whose rows have been binned
+         * @param  indexS  index of table whose rows are being scanned
+         * @param  range   range outside which pairs can be ignored
+         * @param  bestOnly  if true, for each scanned row only the best
+         *                   match in the random table will be included
+         * @param  binner  binner containing row indices of table R;
+         *                 not modified
+         * @param  progress  progress counter
+         */
+        LongPairScanCollector( int indexR, int indexS, NdRange range,
+                               boolean bestOnly, LongKeyBinner binner,
+                               ProgressCounter progress ) {
+            super( progress );
+            indexR_ = indexR;
+            indexS_ = indexS;
+            range_ = range;
+            bestOnly_ = bestOnly;
+            binner_ = binner;
+        }
+
+        public LongScanAccumulator createAccumulator() {
+            return new LongScanAccumulator( createLinkSet(),
+                                            (LongBinMatchEngine) engine );
+        }
+
+        protected void accumulateRow( long isrow, Object[] srowData,
+                                      LongScanAccumulator acc )
+                throws IOException {
+            if ( range_.isInside( srowData ) ) {
+
+                /* Identify rows from table R which may match table S. */
+                LongBinBuffer binBuf = acc.binBuf_;
+                binBuf.calculateBins( srowData );
+                int nkey = binBuf.nbin_;
+                long[] keys = binBuf.bins_;
+                int ntot = 0;
+                for ( int ikey = 0; ikey < nkey; ikey++ ) {
+                    ntot += binner_.getItemCount( keys[ ikey ] );
+                }
+                if ( ntot > acc.rrows_.length ) {
+                    acc.rrows_ = new long[ ntot ];
+                }
+                long[] rrows = acc.rrows_;
+                int nr = 0;
+                for ( int ikey = 0; ikey < nkey; ikey++ ) {
+                    nr += binner_.getItems( keys[ ikey ], rrows, nr );
+                }
+
+                /* Sort and remove duplicates. */
+                if ( nr > 1 ) {
+                    Arrays.sort( rrows, 0, nr );
+                    int nu = 1;
+                    for ( int ir = 1; ir < nr; ir++ ) {
+                        if ( rrows[ ir ] != rrows[ nu - 1 ] ) {
+                            rrows[ nu++ ] = rrows[ ir ];
+                        }
+                    }
+                    nr = nu;
+                }
+
+                /* Score and accumulate matched links. */
+                scorePairs( indexR_, indexS_, isrow, srowData, rrows, nr,
+                            bestOnly_, acc.links_ );
+            }
+        }
+
+        public LongScanAccumulator combine( LongScanAccumulator acc1,
+                                            LongScanAccumulator acc2 ) {
+            acc1.links_ = mergeLinks( acc1.links_, acc2.links_ );
+            return acc1;
+        }
+    }
+
     /**
      * Helper class which decorates a RowRef with a score value.
      */
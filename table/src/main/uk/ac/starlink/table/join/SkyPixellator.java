@@ -48,6 +48,26 @@ public interface SkyPixellator {
      */
     Object[] getPixels( double alpha, double delta, double radius );
 
+    /**
+     * Writes the indices of the pixels in a given region into a
+     * supplied array.
+     * This does the same job as {@link #getPixels}, but the pixels
+     * are represented as long integers, so that callers can bin
+     * by pixel without allocating objects.
+     * If the supplied array is not large enough to hold all the pixels,
+     * the return value is still the total pixel count,
+     * but the content of the array is undefined;
+     * the caller should try again with a larger array.
+     *
+     * @param  alpha  right ascension of circle centre in radians
+     * @param  delta  declination of circle centre in radians
+     * @param  radius   radius of circle in radians
+     * @param  pixels   array to receive pixel indices
+     * @return   number of pixels in the region
+     */
+    int getPixelIndices( double alpha, double delta, double radius,
+                         long[] pixels );
+
     /**
      * Returns a parameter whose value may be adjusted to alter the
      * pixellisation scale.  This is not necessarily the same as the
@@ -0,0 +1,168 @@
+package uk.ac.starlink.table.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Logger;
+import uk.ac.starlink.table.ColumnInfo;
+import uk.ac.starlink.table.RowStore;
+import uk.ac.starlink.table.StarTable;
+import uk.ac.starlink.table.TableFormatException;
+
+/**
+ * RowStore implementation which writes each column to its own
+ * memory-mapped scratch file.
+ * Scalar numeric and boolean columns are stored in native primitive
+ * layout, and the resulting table implements {@link PrimitiveColumnAccess},
+ * so that blocks of their values can be read into primitive arrays
+ * without creating an object per cell.
+ * Other columns are serialized in the same way as for
+ * {@link SidewaysRowStore}.
+ * Scratch files are deleted if setup fails or when this store is
+ * garbage collected, and in any case at JVM exit.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+public class ColumnarRowStore implements RowStore {
+
+    private final File file_;
+    private final ScratchFileSet scratch_;
+    private int ncol_;
+    private StarTable template_;
+    private long lrow_;
+    private ColumnStore[] colStores_;
+    private StarTable storedTable_;
+    private static final Logger logger_ =
+        Logger.getLogger( "uk.ac.starlink.table.storage" );
+
+    /**
+     * Constructs a new row store with a given base path name to use for
+     * temporary files.
+     *
+     * @param   file  base scratch file name
+     */
+    public ColumnarRowStore( File file ) throws IOException {
+        file_ = file;
+        scratch_ = new ScratchFileSet( file );
+    }
+
+    /**
+     * Constructs a new row store with an automatically chosen (and
+     * guaranteed unique) base pathname for scratch files.
+     */
+    public ColumnarRowStore() throws IOException {
+        this( File.createTempFile( "ColumnarRowStore", ".bin" ) );
+        scratch_.addFile( file_ );
+    }
+
+    public void acceptMetadata( StarTable meta ) throws TableFormatException {
+        try {
+            doAcceptMetadata( meta );
+        }
+        catch ( TableFormatException e ) {
+            tidy();
+            throw e;
+        }
+        catch ( IOException e ) {
+            tidy();
+            throw new TableFormatException( "I/O trouble during RowStore setup",
+                                            e );
+        }
+    }
+
+    /**
+     * Does the work for preparing to store cell data.
+     *
+     * @param  meta   template (metadata) table
+     */
+    private void doAcceptMetadata( StarTable meta ) throws IOException {
+        if ( template_ != null ) {
+            throw new IllegalStateException( "Metadata already submitted" );
+        }
+        logger_.info( "Storing table data in " + file_ + "_*" );
+        template_ = meta;
+        ncol_ = meta.getColumnCount();
+        colStores_ = new ColumnStore[ ncol_ ];
+        for ( int icol = 0; icol < ncol_; icol++ ) {
+            ColumnInfo cinfo = meta.getColumnInfo( icol );
+            File dataFile = scratch_.createFile( "_" + icol );
+            Class pclazz =
+                PrimitiveColumnStore
+               .getPrimitiveClass( cinfo.getContentClass() );
+            final ColumnStore colStore;
+            if ( pclazz != null ) {
+                File blankFile = scratch_.createFile( "_" + icol + "_blank" );
+                colStore =
+                    new PrimitiveColumnStore( pclazz, dataFile, blankFile );
+            }
+            else {
+                Codec codec = Codec.getCodec( cinfo );
+                if ( codec == null ) {
+                    throw new TableFormatException( "No codec available for "
+                                                  + cinfo );
+                }
+                if ( codec.getItemSize() >= 0 ) {
+                    colStore = new StreamColumnStore( codec, dataFile );
+                }
+                else {
+                    File indexFile = scratch_.createFile( "_" + icol + "_ix" );
+                    colStore =
+                        new IndexedStreamColumnStore( codec, dataFile,
+                                                      indexFile );
+                }
+            }
+            colStores_[ icol ] = colStore;
+        }
+    }
+
+    public void acceptRow( Object[] row ) throws IOException {
+        if ( template_ == null ) {
+            throw new IllegalStateException( "acceptMetadata not called" );
+        }
+        if ( storedTable_ != null ) {
+            throw new IllegalStateException( "endRows already called" );
+        }
+        for ( int icol = 0; icol < ncol_; icol++ ) {
+            colStores_[ icol ].acceptCell( row[ icol ] );
+        }
+        lrow_++;
+    }
+
+    public void endRows() throws IOException {
+        if ( template_ == null ) {
+            throw new IllegalStateException( "acceptMetadata not called" );
+        }
+        if ( storedTable_ != null ) {
+            throw new IllegalStateException( "endRows already called" );
+        }
+        for ( int icol = 0; icol < ncol_; icol++ ) {
+            colStores_[ icol ].endCells();
+        }
+        storedTable_ = new ColumnarStarTable( template_, lrow_, colStores_ );
+    }
+
+    public StarTable getStarTable() {
+        if ( storedTable_ == null ) {
+            throw new IllegalStateException( "endRows not called" );
+        }
+        return storedTable_;
+    }
+
+    /**
+     * Tidies up resources associated with this store (which may be
+     * substantial).  This object may no longer be used following a
+     * call to this method.
+     */
+    private void tidy() {
+        scratch_.tidy( colStores_ );
+    }
+
+    protected void finalize() throws Throwable {
+        try {
+            tidy();
+        }
+        finally {
+            super.finalize();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package uk.ac.starlink.table.storage;
+
+import uk.ac.starlink.table.StarTable;
+
+/**
+ * StarTable based on column stores, which provides primitive access
+ * to those columns which are backed by PrimitiveColumnStores.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+class ColumnarStarTable extends ColumnStoreStarTable
+                        implements PrimitiveColumnAccess {
+
+    private final PrimitiveColumnStore[] pstores_;
+
+    /**
+     * Constructor.
+     *
+     * @param  template   template table supplying metadata
+     * @param  nrow       number of rows in this table
+     * @param  colStores  array of ColumnStore objects, one for each
+     *                    column in the table
+     */
+    ColumnarStarTable( StarTable template, long nrow,
+                       ColumnStore[] colStores ) {
+        super( template, nrow, colStores );
+        pstores_ = new PrimitiveColumnStore[ colStores.length ];
+        for ( int icol = 0; icol < colStores.length; icol++ ) {
+            if ( colStores[ icol ] instanceof PrimitiveColumnStore ) {
+                pstores_[ icol ] =
+                    (PrimitiveColumnStore) colStores[ icol ];
+            }
+        }
+    }
+
+    public boolean isCellAccessEfficient() {
+        return true;
+    }
+
+    public Class getPrimitiveClass( int icol ) {
+        return pstores_[ icol ] == null
+             ? null
+             : pstores_[ icol ].getPrimitiveClass();
+    }
+
+    public void readDoubles( int icol, long irow, double[] dest,
+                             int off, int n ) {
+        getPrimitiveStore( icol ).readDoubles( irow, dest, off, n );
+    }
+
+    public void readLongs( int icol, long irow, long[] dest,
+                           int off, int n ) {
+        getPrimitiveStore( icol ).readLongs( irow, dest, off, n );
+    }
+
+    public void readBooleans( int icol, long irow, boolean[] dest,
+                              int off, int n ) {
+        getPrimitiveStore( icol ).readBooleans( irow, dest, off, n );
+    }
+
+    public void readBlanks( int icol, long irow, boolean[] dest,
+                            int off, int n ) {
+        getPrimitiveStore( icol ).readBlanks( irow, dest, off, n );
+    }
+
+    /**
+     * Returns the primitive store for a given column.
+     *
+     * @param  icol  column index
+     * @return  primitive store, not null
+     * @throws  UnsupportedOperationException  if the column is not
+     *          primitive
+     */
+    private PrimitiveColumnStore getPrimitiveStore( int icol ) {
+        PrimitiveColumnStore store = pstores_[ icol ];
+        if ( store == null ) {
+            throw new UnsupportedOperationException(
+                "Column " + icol + " not primitive" );
+        }
+        return store;
+    }
+}
@@ -14,6 +14,9 @@ import uk.ac.starlink.table.TableSink;
  * Wrapper storage policy which derives its functionality from an
  * existing ("base") policy, but additionally passes row storage events
  * to a supplied TableSink.
+ * It also keeps track of the memory footprint, on and off the
+ * Java heap, of tables stored by row stores which can report it
+ * (currently {@link OffHeapRowStore}).
  *
  * @author   Mark Taylor
  * @since    24 Aug 2010
@@ -24,6 +27,8 @@ public class MonitorStoragePolicy extends StoragePolicy {
     private final StoragePolicy base_;
     private final TableSink sink_;
     private boolean interrupted_;
+    private long heapSize_;
+    private long offHeapSize_;
     private static final Logger logger_ =
         Logger.getLogger( "uk.ac.starlink.table" );
 
@@ -67,6 +72,45 @@ public class MonitorStoragePolicy extends StoragePolicy {
         return base_;
     }
 
+    /**
+     * Returns the total approximate Java heap usage of tables stored
+     * so far using this policy, for those row stores which report it.
+     *
+     * @return  heap footprint in bytes
+     */
+    public synchronized long getHeapSize() {
+        return heapSize_;
+    }
+
+    /**
+     * Returns the total off-heap (direct) memory usage of tables stored
+     * so far using this policy, for those row stores which report it.
+     *
+     * @return  off-heap footprint in bytes
+     */
+    public synchronized long getOffHeapSize() {
+        return offHeapSize_;
+    }
+
+    /**
+     * Records the footprint of a completed row store, if available.
+     *
+     * @param  store  row store for which endRows has been called
+     */
+    private void addFootprint( RowStore store ) {
+        if ( store instanceof OffHeapRowStore ) {
+            OffHeapRowStore ohStore = (OffHeapRowStore) store;
+            long heap = ohStore.getHeapSize();
+            long offHeap = ohStore.getOffHeapSize();
+            synchronized ( this ) {
+                heapSize_ += heap;
+                offHeapSize_ += offHeap;
+            }
+            logger_.info( "Stored table footprint: " + offHeap
+                        + " bytes off-heap, approx " + heap + " bytes heap" );
+        }
+    }
+
     public RowStore makeRowStore() {
         return new TeeRowStore( base_.makeRowStore(), sink_ );
     }
@@ -124,6 +168,7 @@ public class MonitorStoragePolicy extends StoragePolicy {
 
         public void endRows() throws IOException {
             baseStore_.endRows();
+            addFootprint( baseStore_ );
             sink_.endRows();
         }
 
@@ -0,0 +1,116 @@
+package uk.ac.starlink.table.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * ColumnStore implementation which serializes values of arbitrary
+ * length into slabs of direct memory.
+ * Each value is encoded using a {@link Codec} and appended to a
+ * data heap, and its offset is recorded in a separate index,
+ * so no Java object is retained per cell.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+class OffHeapColumnStore implements ColumnStore {
+
+    private final Codec codec_;
+    private final SegmentedStore dataStore_;
+    private final SegmentedStore indexStore_;
+    private final CellBuffer cellBuf_;
+    private final DataOutputStream cellOut_;
+    private final int ixShift_;
+    private final long ixMask_;
+    private ByteStoreAccess dataIn_;
+    private ByteBuffer[] indexSegs_;
+
+    /**
+     * Constructor.
+     *
+     * @param  codec  encoder/decoder for the values stored in this column;
+     *                unlike disk-based column stores, a variable-length
+     *                codec is appropriate even for fixed-size items
+     * @param  segShift  log2 of the size of each memory slab
+     */
+    public OffHeapColumnStore( Codec codec, int segShift ) {
+        codec_ = codec;
+        dataStore_ = SegmentedStore.createMemoryStore( segShift,
+                                                       ByteOrder.BIG_ENDIAN );
+        indexStore_ =
+            SegmentedStore.createMemoryStore( segShift,
+                                              ByteOrder.nativeOrder() );
+        ixShift_ = segShift - 3;
+        ixMask_ = ( 1L << ixShift_ ) - 1;
+        cellBuf_ = new CellBuffer();
+        cellOut_ = new DataOutputStream( cellBuf_ );
+    }
+
+    /**
+     * Returns the number of bytes of direct memory used by this store.
+     *
+     * @return  off-heap byte count
+     */
+    public long getMemorySize() {
+        return dataStore_.getMemorySize() + indexStore_.getMemorySize();
+    }
+
+    public void acceptCell( Object value ) throws IOException {
+
+        /* Encode into a scratch buffer first, so that a value of an
+         * unexpected type does not leave a partial item in the heap. */
+        cellBuf_.reset();
+        try {
+            codec_.encode( value, cellOut_ );
+        }
+        catch ( RuntimeException e ) {
+            throw (IOException)
+                  new IOException( "Can't store value " + value
+                                 + " off-heap: " + e )
+                 .initCause( e );
+        }
+        cellOut_.flush();
+        indexStore_.getWriteBuffer( 8 ).putLong( dataStore_.getLength() );
+        cellBuf_.writeTo( dataStore_ );
+    }
+
+    public void endCells() throws IOException {
+        ByteBuffer[] dataSegs = dataStore_.endWrites();
+        dataIn_ = new MultiNioAccess( dataSegs.length > 0
+                                    ? dataSegs
+                                    : new ByteBuffer[] {
+                                          ByteBuffer.allocate( 0 ) } );
+        indexSegs_ = indexStore_.endWrites();
+    }
+
+    public synchronized Object readCell( long lrow ) throws IOException {
+        long offset = indexSegs_[ (int) ( lrow >>> ixShift_ ) ]
+                     .getLong( ( (int) ( lrow & ixMask_ ) ) << 3 );
+        dataIn_.seek( offset );
+        return codec_.decode( dataIn_ );
+    }
+
+    public void dispose() {
+        dataStore_.dispose();
+        indexStore_.dispose();
+    }
+
+    /**
+     * Byte array output stream which can copy its contents to a
+     * SegmentedStore without making a copy of its buffer.
+     */
+    private static class CellBuffer extends ByteArrayOutputStream {
+
+        /**
+         * Writes the current contents of this buffer to a store.
+         *
+         * @param  store  destination
+         */
+        void writeTo( SegmentedStore store ) throws IOException {
+            store.write( buf, 0, count );
+        }
+    }
+}
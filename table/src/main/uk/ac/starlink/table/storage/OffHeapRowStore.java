@@ -0,0 +1,189 @@
+package uk.ac.starlink.table.storage;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import uk.ac.starlink.table.ColumnInfo;
+import uk.ac.starlink.table.DefaultValueInfo;
+import uk.ac.starlink.table.RowStore;
+import uk.ac.starlink.table.StarTable;
+import uk.ac.starlink.table.TableFormatException;
+
+/**
+ * RowStore implementation which keeps table data in memory outside
+ * the Java heap.
+ * Scalar numeric and boolean columns are stored as fixed-width
+ * primitive values in slabs of direct memory, and other columns
+ * (strings, arrays etc) are serialized into an off-heap data heap
+ * with a per-row offset index.
+ * No object is retained for each row or cell, so that large tables
+ * neither use much heap space nor impose much load on the
+ * garbage collector.
+ * The resulting table implements {@link PrimitiveColumnAccess}.
+ *
+ * <p>Since direct memory is only released when the buffers referencing
+ * it are garbage collected, it may be necessary to raise the JVM's
+ * direct memory limit (<code>-XX:MaxDirectMemorySize</code>)
+ * when storing very large tables.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+public class OffHeapRowStore implements RowStore {
+
+    private final int segShift_;
+    private int ncol_;
+    private StarTable template_;
+    private long lrow_;
+    private ColumnStore[] colStores_;
+    private StarTable storedTable_;
+
+    /** Log2 of default memory slab size. */
+    private static final int SEG_SHIFT = 27;
+
+    /** Approximate heap cost in bytes of the Java objects for each column. */
+    private static final int COLUMN_HEAP_BYTES = 512;
+
+    /** Approximate heap cost in bytes of the Java objects for each slab. */
+    private static final int SLAB_HEAP_BYTES = 64;
+
+    /**
+     * Constructs a row store with the default slab size.
+     */
+    public OffHeapRowStore() {
+        this( SEG_SHIFT );
+    }
+
+    /**
+     * Constructs a row store with a given slab size.
+     *
+     * @param  segShift  log2 of the maximum number of bytes in each
+     *                   memory slab
+     */
+    OffHeapRowStore( int segShift ) {
+        segShift_ = segShift;
+    }
+
+    public void acceptMetadata( StarTable meta ) throws TableFormatException {
+        if ( template_ != null ) {
+            throw new IllegalStateException( "Metadata already submitted" );
+        }
+        int ncol = meta.getColumnCount();
+        ColumnStore[] colStores = new ColumnStore[ ncol ];
+        for ( int icol = 0; icol < ncol; icol++ ) {
+            ColumnInfo cinfo = meta.getColumnInfo( icol );
+            Class clazz = cinfo.getContentClass();
+            Class pclazz = PrimitiveColumnStore.getPrimitiveClass( clazz );
+            if ( pclazz != null ) {
+                colStores[ icol ] =
+                    new PrimitiveColumnStore( pclazz, createMemoryStore(),
+                                              createMemoryStore() );
+            }
+            else {
+
+                /* Use a codec for a variable-length item even if the column
+                 * declares a fixed size, so that nothing gets truncated. */
+                Codec codec =
+                    Codec.getCodec( new DefaultValueInfo( cinfo.getName(),
+                                                          clazz ) );
+                if ( codec == null ) {
+                    throw new TableFormatException( "No codec available for "
+                                                  + cinfo );
+                }
+                colStores[ icol ] = new OffHeapColumnStore( codec, segShift_ );
+            }
+        }
+        template_ = meta;
+        ncol_ = ncol;
+        colStores_ = colStores;
+    }
+
+    public void acceptRow( Object[] row ) throws IOException {
+        if ( template_ == null ) {
+            throw new IllegalStateException( "acceptMetadata not called" );
+        }
+        if ( storedTable_ != null ) {
+            throw new IllegalStateException( "endRows already called" );
+        }
+        for ( int icol = 0; icol < ncol_; icol++ ) {
+            colStores_[ icol ].acceptCell( row[ icol ] );
+        }
+        lrow_++;
+    }
+
+    public void endRows() throws IOException {
+        if ( template_ == null ) {
+            throw new IllegalStateException( "acceptMetadata not called" );
+        }
+        if ( storedTable_ != null ) {
+            throw new IllegalStateException( "endRows already called" );
+        }
+        for ( int icol = 0; icol < ncol_; icol++ ) {
+            colStores_[ icol ].endCells();
+        }
+        storedTable_ = new ColumnarStarTable( template_, lrow_, colStores_ );
+    }
+
+    public StarTable getStarTable() {
+        if ( storedTable_ == null ) {
+            throw new IllegalStateException( "endRows not called" );
+        }
+        return storedTable_;
+    }
+
+    /**
+     * Returns the number of bytes of direct (off-heap) memory
+     * currently allocated by this store.
+     *
+     * @return  off-heap footprint in bytes
+     */
+    public long getOffHeapSize() {
+        long size = 0;
+        for ( int icol = 0; icol < ncol_; icol++ ) {
+            size += getMemorySize( colStores_[ icol ] );
+        }
+        return size;
+    }
+
+    /**
+     * Returns an estimate of the number of bytes of Java heap
+     * used by this store.  This does not depend on the number of rows,
+     * and does not include the heap used by the template table.
+     *
+     * @return  approximate heap footprint in bytes
+     */
+    public long getHeapSize() {
+        long nslab = 0;
+        for ( int icol = 0; icol < ncol_; icol++ ) {
+            nslab += ( getMemorySize( colStores_[ icol ] ) >>> segShift_ ) + 2;
+        }
+        return ncol_ * (long) COLUMN_HEAP_BYTES + nslab * SLAB_HEAP_BYTES;
+    }
+
+    /**
+     * Returns the direct memory used by one of this store's column stores.
+     *
+     * @param  colStore  column store
+     * @return  off-heap byte count
+     */
+    private static long getMemorySize( ColumnStore colStore ) {
+        if ( colStore instanceof PrimitiveColumnStore ) {
+            return ((PrimitiveColumnStore) colStore).getMemorySize();
+        }
+        else if ( colStore instanceof OffHeapColumnStore ) {
+            return ((OffHeapColumnStore) colStore).getMemorySize();
+        }
+        else {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns a new direct memory store in native byte order.
+     *
+     * @return  new memory store
+     */
+    private SegmentedStore createMemoryStore() {
+        return SegmentedStore.createMemoryStore( segShift_,
+                                                 ByteOrder.nativeOrder() );
+    }
+}
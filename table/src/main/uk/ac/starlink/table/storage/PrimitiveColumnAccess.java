@@ -0,0 +1,106 @@
+package uk.ac.starlink.table.storage;
+
+import java.io.IOException;
+
+/**
+ * Provides bulk access to the values of scalar numeric or boolean
+ * table columns as primitive arrays.
+ * Tables which implement this interface, such as those produced by
+ * {@link ColumnarRowStore} and
+ * {@link uk.ac.starlink.table.ColumnStarTable}s, allow consumers like
+ * plotting, statistics or expression evaluation code to read blocks
+ * of column values into reusable arrays
+ * rather than retrieving one boxed object per cell.
+ *
+ * <p>Column indices are those of the table, and only columns for which
+ * {@link #getPrimitiveClass} returns a non-null value may be read
+ * using the bulk methods.  Implementations are safe for concurrent use
+ * from multiple threads.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+public interface PrimitiveColumnAccess {
+
+    /**
+     * Returns the primitive type in which a given column is stored.
+     *
+     * @param  icol  column index
+     * @return  one of <code>double.class</code>, <code>float.class</code>,
+     *          <code>long.class</code>, <code>int.class</code>,
+     *          <code>short.class</code>, <code>byte.class</code> or
+     *          <code>boolean.class</code>;
+     *          or null if the column cannot be accessed using the
+     *          methods of this interface
+     */
+    Class getPrimitiveClass( int icol );
+
+    /**
+     * Indicates whether the methods of this interface are efficient
+     * for reading a single value at a time.
+     * If not, a single value may be more expensive to read using these
+     * methods than by using the table's <code>getCell</code> method,
+     * so they should only be used for reading values in blocks.
+     *
+     * @return  true iff single-value reads are cheap
+     */
+    boolean isCellAccessEfficient();
+
+    /**
+     * Reads a block of values from a numeric column as doubles.
+     * Blank values are returned as NaN.
+     *
+     * @param  icol  column index
+     * @param  irow  index of the first row to read
+     * @param  dest  destination array
+     * @param  off   offset into <code>dest</code> of first value written
+     * @param  n     number of values to read
+     * @throws  UnsupportedOperationException  if the column is not numeric
+     */
+    void readDoubles( int icol, long irow, double[] dest, int off, int n )
+            throws IOException;
+
+    /**
+     * Reads a block of values from an integer-typed column as longs.
+     * Blank values are returned as zero;
+     * use {@link #readBlanks} to distinguish them.
+     *
+     * @param  icol  column index
+     * @param  irow  index of the first row to read
+     * @param  dest  destination array
+     * @param  off   offset into <code>dest</code> of first value written
+     * @param  n     number of values to read
+     * @throws  UnsupportedOperationException  if the column does not
+     *          have an integer type
+     */
+    void readLongs( int icol, long irow, long[] dest, int off, int n )
+            throws IOException;
+
+    /**
+     * Reads a block of values from a boolean column.
+     * Blank values are returned as false;
+     * use {@link #readBlanks} to distinguish them.
+     *
+     * @param  icol  column index
+     * @param  irow  index of the first row to read
+     * @param  dest  destination array
+     * @param  off   offset into <code>dest</code> of first value written
+     * @param  n     number of values to read
+     * @throws  UnsupportedOperationException  if the column is not boolean
+     */
+    void readBooleans( int icol, long irow, boolean[] dest, int off, int n )
+            throws IOException;
+
+    /**
+     * Reads flags indicating which of a block of values are blank.
+     * For floating point columns, NaN values count as blank.
+     *
+     * @param  icol  column index
+     * @param  irow  index of the first row to read
+     * @param  dest  destination array
+     * @param  off   offset into <code>dest</code> of first value written
+     * @param  n     number of values to read
+     */
+    void readBlanks( int icol, long irow, boolean[] dest, int off, int n )
+            throws IOException;
+}
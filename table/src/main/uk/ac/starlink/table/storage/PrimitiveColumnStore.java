@@ -0,0 +1,443 @@
+package uk.ac.starlink.table.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * ColumnStore implementation which stores scalar primitive values
+ * using the platform's native primitive layout, either in a file
+ * which is memory-mapped for reading, or in direct memory buffers.
+ *
+ * <p>Floating point blanks are stored as NaN, and boolean blanks as
+ * a reserved byte value.  Blank flags for integer types are written
+ * to a separate store, which is only used if any blanks occur.
+ * Once populated, values can be read without synchronization,
+ * either singly or in blocks using the typed methods.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+class PrimitiveColumnStore implements ColumnStore {
+
+    private final Class clazz_;
+    private final int type_;
+    private final int itemShift_;
+    private final int eltShift_;
+    private final long eltMask_;
+    private final int blankShift_;
+    private final long blankMask_;
+    private final SegmentedStore dataStore_;
+    private final SegmentedStore blankStore_;
+    private boolean hasBlanks_;
+    private long nrow_;
+    private ByteBuffer[] segs_;
+    private ByteBuffer[] blankSegs_;
+
+    /** Log2 of default mapped segment size. */
+    public static final int SEG_SHIFT = 30;
+
+    private static final int TYPE_DOUBLE = 0;
+    private static final int TYPE_FLOAT = 1;
+    private static final int TYPE_LONG = 2;
+    private static final int TYPE_INT = 3;
+    private static final int TYPE_SHORT = 4;
+    private static final int TYPE_BYTE = 5;
+    private static final int TYPE_BOOLEAN = 6;
+    private static final byte BOOLEAN_BLANK = (byte) 0xff;
+
+    /**
+     * Constructs a store with the default segment size.
+     *
+     * @param  clazz  primitive class of the stored values;
+     *                must be a non-null return value of
+     *                {@link #getPrimitiveClass}
+     * @param  dataFile  file used for storing data values
+     * @param  blankFile  file used for storing integer blank flags
+     *                    if required;
+     *                    it is the caller's responsibility to clear up
+     *                    both files
+     */
+    public PrimitiveColumnStore( Class clazz, File dataFile, File blankFile )
+            throws IOException {
+        this( clazz, dataFile, blankFile, SEG_SHIFT );
+    }
+
+    /**
+     * Constructs a store with a given segment size.
+     *
+     * @param  clazz  primitive class of the stored values
+     * @param  dataFile  file used for storing data values
+     * @param  blankFile  file used for storing integer blank flags
+     * @param  segShift  log2 of the maximum number of bytes in
+     *                   each mapped buffer
+     */
+    PrimitiveColumnStore( Class clazz, File dataFile, File blankFile,
+                          int segShift ) throws IOException {
+        this( clazz,
+              SegmentedStore.createFileStore( dataFile, segShift,
+                                              ByteOrder.nativeOrder() ),
+              SegmentedStore.createFileStore( blankFile, segShift,
+                                              ByteOrder.nativeOrder() ) );
+    }
+
+    /**
+     * Constructs a store with given backing stores.
+     * The data store must use native byte order.
+     *
+     * @param  clazz  primitive class of the stored values
+     * @param  dataStore  store for data values
+     * @param  blankStore  store for integer blank flags, used only if
+     *                     required
+     */
+    PrimitiveColumnStore( Class clazz, SegmentedStore dataStore,
+                          SegmentedStore blankStore ) {
+        clazz_ = clazz;
+        if ( clazz == double.class ) {
+            type_ = TYPE_DOUBLE;
+            itemShift_ = 3;
+        }
+        else if ( clazz == float.class ) {
+            type_ = TYPE_FLOAT;
+            itemShift_ = 2;
+        }
+        else if ( clazz == long.class ) {
+            type_ = TYPE_LONG;
+            itemShift_ = 3;
+        }
+        else if ( clazz == int.class ) {
+            type_ = TYPE_INT;
+            itemShift_ = 2;
+        }
+        else if ( clazz == short.class ) {
+            type_ = TYPE_SHORT;
+            itemShift_ = 1;
+        }
+        else if ( clazz == byte.class ) {
+            type_ = TYPE_BYTE;
+            itemShift_ = 0;
+        }
+        else if ( clazz == boolean.class ) {
+            type_ = TYPE_BOOLEAN;
+            itemShift_ = 0;
+        }
+        else {
+            throw new IllegalArgumentException( "Not primitive: " + clazz );
+        }
+        dataStore_ = dataStore;
+        blankStore_ = blankStore;
+        eltShift_ = dataStore.getSegmentShift() - itemShift_;
+        eltMask_ = ( 1L << eltShift_ ) - 1;
+        blankShift_ = blankStore.getSegmentShift();
+        blankMask_ = ( 1L << blankShift_ ) - 1;
+    }
+
+    /**
+     * Returns the primitive class in which values of a given
+     * content class can be stored by this class.
+     *
+     * @param  contentClass  column content class
+     * @return  corresponding primitive class, or null if the content
+     *          class is not a primitive wrapper class supported here
+     */
+    public static Class getPrimitiveClass( Class contentClass ) {
+        if ( contentClass == Double.class ) {
+            return double.class;
+        }
+        else if ( contentClass == Float.class ) {
+            return float.class;
+        }
+        else if ( contentClass == Long.class ) {
+            return long.class;
+        }
+        else if ( contentClass == Integer.class ) {
+            return int.class;
+        }
+        else if ( contentClass == Short.class ) {
+            return short.class;
+        }
+        else if ( contentClass == Byte.class ) {
+            return byte.class;
+        }
+        else if ( contentClass == Boolean.class ) {
+            return boolean.class;
+        }
+        else {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the primitive class in which this store holds its values.
+     *
+     * @return  primitive class
+     */
+    public Class getPrimitiveClass() {
+        return clazz_;
+    }
+
+    /**
+     * Returns the number of bytes of direct memory used by this store.
+     *
+     * @return  off-heap byte count
+     */
+    public long getMemorySize() {
+        return dataStore_.getMemorySize() + blankStore_.getMemorySize();
+    }
+
+    public void acceptCell( Object value ) throws IOException {
+        ByteBuffer wbuf = dataStore_.getWriteBuffer( 1 << itemShift_ );
+        switch ( type_ ) {
+            case TYPE_DOUBLE:
+                wbuf.putDouble( value instanceof Number
+                               ? ((Number) value).doubleValue()
+                               : Double.NaN );
+                break;
+            case TYPE_FLOAT:
+                wbuf.putFloat( value instanceof Number
+                              ? ((Number) value).floatValue()
+                              : Float.NaN );
+                break;
+            case TYPE_BOOLEAN:
+                wbuf.put( value instanceof Boolean
+                         ? ( ((Boolean) value).booleanValue() ? (byte) 1
+                                                              : (byte) 0 )
+                         : BOOLEAN_BLANK );
+                break;
+            default:
+                boolean isBlank = ! ( value instanceof Number );
+                long lval = isBlank ? 0L : ((Number) value).longValue();
+                switch ( type_ ) {
+                    case TYPE_LONG:
+                        wbuf.putLong( lval );
+                        break;
+                    case TYPE_INT:
+                        wbuf.putInt( (int) lval );
+                        break;
+                    case TYPE_SHORT:
+                        wbuf.putShort( (short) lval );
+                        break;
+                    case TYPE_BYTE:
+                        wbuf.put( (byte) lval );
+                        break;
+                    default:
+                        throw new AssertionError();
+                }
+                if ( isBlank && ! hasBlanks_ ) {
+                    startBlanks();
+                }
+                if ( hasBlanks_ ) {
+                    blankStore_.getWriteBuffer( 1 )
+                               .put( isBlank ? (byte) 1 : (byte) 0 );
+                }
+        }
+        nrow_++;
+    }
+
+    public void endCells() throws IOException {
+        segs_ = dataStore_.endWrites();
+        if ( hasBlanks_ ) {
+            blankSegs_ = blankStore_.endWrites();
+        }
+    }
+
+    public Object readCell( long lrow ) {
+        switch ( type_ ) {
+            case TYPE_DOUBLE:
+                return new Double( getDouble( lrow ) );
+            case TYPE_FLOAT:
+                return new Float( (float) getDouble( lrow ) );
+            case TYPE_BOOLEAN:
+                byte b = getByte( lrow );
+                return b == BOOLEAN_BLANK ? null : Boolean.valueOf( b != 0 );
+            default:
+                if ( isIntegerBlank( lrow ) ) {
+                    return null;
+                }
+                long lval = getLong( lrow );
+                switch ( type_ ) {
+                    case TYPE_LONG:
+                        return new Long( lval );
+                    case TYPE_INT:
+                        return new Integer( (int) lval );
+                    case TYPE_SHORT:
+                        return new Short( (short) lval );
+                    case TYPE_BYTE:
+                        return new Byte( (byte) lval );
+                    default:
+                        throw new AssertionError();
+                }
+        }
+    }
+
+    /**
+     * Reads a block of values as doubles.  Blanks are returned as NaN.
+     *
+     * @param  irow  first row index
+     * @param  dest  destination array
+     * @param  off   offset into dest
+     * @param  n     number of values
+     * @see  PrimitiveColumnAccess#readDoubles
+     */
+    public void readDoubles( long irow, double[] dest, int off, int n ) {
+        switch ( type_ ) {
+            case TYPE_DOUBLE:
+            case TYPE_FLOAT:
+                for ( int i = 0; i < n; i++ ) {
+                    dest[ off + i ] = getDouble( irow + i );
+                }
+                break;
+            case TYPE_BOOLEAN:
+                throw new UnsupportedOperationException( "Not numeric" );
+            default:
+                for ( int i = 0; i < n; i++ ) {
+                    long lrow = irow + i;
+                    dest[ off + i ] = isIntegerBlank( lrow )
+                                    ? Double.NaN
+                                    : (double) getLong( lrow );
+                }
+        }
+    }
+
+    /**
+     * Reads a block of integer values as longs.  Blanks are returned as 0.
+     *
+     * @param  irow  first row index
+     * @param  dest  destination array
+     * @param  off   offset into dest
+     * @param  n     number of values
+     * @see  PrimitiveColumnAccess#readLongs
+     */
+    public void readLongs( long irow, long[] dest, int off, int n ) {
+        if ( type_ == TYPE_DOUBLE || type_ == TYPE_FLOAT ||
+             type_ == TYPE_BOOLEAN ) {
+            throw new UnsupportedOperationException( "Not integer" );
+        }
+        for ( int i = 0; i < n; i++ ) {
+            dest[ off + i ] = getLong( irow + i );
+        }
+    }
+
+    /**
+     * Reads a block of boolean values.  Blanks are returned as false.
+     *
+     * @param  irow  first row index
+     * @param  dest  destination array
+     * @param  off   offset into dest
+     * @param  n     number of values
+     * @see  PrimitiveColumnAccess#readBooleans
+     */
+    public void readBooleans( long irow, boolean[] dest, int off, int n ) {
+        if ( type_ != TYPE_BOOLEAN ) {
+            throw new UnsupportedOperationException( "Not boolean" );
+        }
+        for ( int i = 0; i < n; i++ ) {
+            dest[ off + i ] = getByte( irow + i ) == (byte) 1;
+        }
+    }
+
+    /**
+     * Reads a block of blank flags.
+     *
+     * @param  irow  first row index
+     * @param  dest  destination array
+     * @param  off   offset into dest
+     * @param  n     number of values
+     * @see  PrimitiveColumnAccess#readBlanks
+     */
+    public void readBlanks( long irow, boolean[] dest, int off, int n ) {
+        for ( int i = 0; i < n; i++ ) {
+            long lrow = irow + i;
+            final boolean isBlank;
+            switch ( type_ ) {
+                case TYPE_DOUBLE:
+                case TYPE_FLOAT:
+                    isBlank = Double.isNaN( getDouble( lrow ) );
+                    break;
+                case TYPE_BOOLEAN:
+                    isBlank = getByte( lrow ) == BOOLEAN_BLANK;
+                    break;
+                default:
+                    isBlank = isIntegerBlank( lrow );
+            }
+            dest[ off + i ] = isBlank;
+        }
+    }
+
+    public void dispose() {
+        dataStore_.dispose();
+        blankStore_.dispose();
+    }
+
+    /**
+     * Returns the value at a given row of a floating point column.
+     *
+     * @param  lrow  row index
+     * @return  value
+     */
+    private double getDouble( long lrow ) {
+        ByteBuffer seg = segs_[ (int) ( lrow >>> eltShift_ ) ];
+        int ix = ( (int) ( lrow & eltMask_ ) ) << itemShift_;
+        return type_ == TYPE_DOUBLE ? seg.getDouble( ix )
+                                    : (double) seg.getFloat( ix );
+    }
+
+    /**
+     * Returns the value at a given row of an integer column.
+     *
+     * @param  lrow  row index
+     * @return  value
+     */
+    private long getLong( long lrow ) {
+        ByteBuffer seg = segs_[ (int) ( lrow >>> eltShift_ ) ];
+        int ix = ( (int) ( lrow & eltMask_ ) ) << itemShift_;
+        switch ( type_ ) {
+            case TYPE_LONG:
+                return seg.getLong( ix );
+            case TYPE_INT:
+                return seg.getInt( ix );
+            case TYPE_SHORT:
+                return seg.getShort( ix );
+            case TYPE_BYTE:
+                return seg.get( ix );
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    /**
+     * Returns the byte at a given row of a single-byte column.
+     *
+     * @param  lrow  row index
+     * @return  value
+     */
+    private byte getByte( long lrow ) {
+        return segs_[ (int) ( lrow >>> eltShift_ ) ]
+              .get( (int) ( lrow & eltMask_ ) );
+    }
+
+    /**
+     * Indicates whether the value at a given row of an integer column
+     * is blank.
+     *
+     * @param  lrow  row index
+     * @return  true iff blank
+     */
+    private boolean isIntegerBlank( long lrow ) {
+        return blankSegs_ != null
+            && blankSegs_[ (int) ( lrow >>> blankShift_ ) ]
+              .get( (int) ( lrow & blankMask_ ) ) != 0;
+    }
+
+    /**
+     * Starts writing blank flags, marking all the rows so far as non-blank.
+     */
+    private void startBlanks() throws IOException {
+        hasBlanks_ = true;
+        byte[] zeros = new byte[ (int) Math.min( nrow_, 64 * 1024 ) ];
+        for ( long nz = nrow_; nz > 0; nz -= zeros.length ) {
+            blankStore_.write( zeros, 0, (int) Math.min( nz, zeros.length ) );
+        }
+    }
+}
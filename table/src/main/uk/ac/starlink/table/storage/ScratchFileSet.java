@@ -0,0 +1,102 @@
+package uk.ac.starlink.table.storage;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Keeps track of the scratch files used by a column-oriented RowStore,
+ * named by appending suffixes to a base file name,
+ * so that they can be tidied up along with the column stores using them.
+ * All files are also marked for deletion on JVM exit.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+class ScratchFileSet {
+
+    private final File baseFile_;
+    private final Set<File> files_;
+    private static final Logger logger_ =
+        Logger.getLogger( "uk.ac.starlink.table.storage" );
+
+    /**
+     * Constructor.
+     *
+     * @param  baseFile  base file name
+     */
+    public ScratchFileSet( File baseFile ) {
+        baseFile_ = baseFile;
+        files_ = new HashSet<File>();
+    }
+
+    /**
+     * Returns the base file name.
+     *
+     * @return  base file
+     */
+    public File getBaseFile() {
+        return baseFile_;
+    }
+
+    /**
+     * Registers a file as a scratch file to be deleted on tidy
+     * or JVM exit.
+     *
+     * @param  file  scratch file
+     * @return  <code>file</code>
+     */
+    public File addFile( File file ) {
+        file.deleteOnExit();
+        files_.add( file );
+        return file;
+    }
+
+    /**
+     * Returns a new registered scratch file whose name is the base
+     * file name with a given suffix.
+     *
+     * @param  suffix  suffix for base file name
+     * @return  new file
+     */
+    public File createFile( String suffix ) {
+        return addFile( new File( baseFile_ + suffix ) );
+    }
+
+    /**
+     * Deletes the registered scratch files and disposes of
+     * some column stores.
+     *
+     * @param  colStores  column stores to dispose of; may be null
+     *                    or contain null elements
+     */
+    public void tidy( ColumnStore[] colStores ) {
+
+        /* Deletes any temporary files we have created to store data. */
+        for ( Iterator<File> it = files_.iterator(); it.hasNext(); ) {
+            File file = it.next();
+            if ( file.exists() ) {
+                if ( file.delete() ) {
+                    logger_.info( "Deleted temporary file " + file );
+                    it.remove();
+                }
+                else {
+                    logger_.warning( "Failed to delete temporary file "
+                                   + file );
+                }
+            }
+        }
+
+        /* Perform additional housekeeping on owned ColumnStores as
+         * available. */
+        if ( colStores != null ) {
+            for ( ColumnStore cs : colStores ) {
+                if ( cs != null ) {
+                    cs.dispose();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package uk.ac.starlink.table.storage;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Accumulates bytes written sequentially, and then presents them for
+ * reading as an array of ByteBuffers (segments), each of which
+ * contains 2<sup>segShift</sup> bytes apart from the last.
+ * Two implementations are provided: one which writes to a file and
+ * maps it on completion, and one which writes directly into slabs of
+ * direct (off-heap) memory.
+ *
+ * <p>Values may be written either using {@link #write write}, which
+ * may split the bytes across segment boundaries, or by putting them into
+ * the buffer returned by {@link #getWriteBuffer getWriteBuffer}.
+ * In the latter case, items written must all have the same size, which
+ * is a power of two, so that no item straddles a segment boundary.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+abstract class SegmentedStore {
+
+    private final int segShift_;
+    private final ByteOrder order_;
+
+    /**
+     * Constructor.
+     *
+     * @param  segShift  log2 of segment size in bytes
+     * @param  order   byte order of the write and read buffers
+     */
+    protected SegmentedStore( int segShift, ByteOrder order ) {
+        segShift_ = segShift;
+        order_ = order;
+    }
+
+    /**
+     * Returns the log2 of the segment size.
+     *
+     * @return  segment shift
+     */
+    public int getSegmentShift() {
+        return segShift_;
+    }
+
+    /**
+     * Returns the byte order of the buffers used by this store.
+     *
+     * @return  byte order
+     */
+    public ByteOrder getOrder() {
+        return order_;
+    }
+
+    /**
+     * Returns a buffer into which at least a given number of bytes can
+     * be written, using relative put methods, at the current position
+     * of this store.
+     *
+     * @param  nbyte  number of bytes required, not greater than the
+     *                segment size
+     * @return  buffer with at least <code>nbyte</code> remaining
+     */
+    public abstract ByteBuffer getWriteBuffer( int nbyte ) throws IOException;
+
+    /**
+     * Signals that no more writes will take place, and returns the
+     * written data.
+     *
+     * @return  read-only segments containing all the bytes written
+     */
+    public abstract ByteBuffer[] endWrites() throws IOException;
+
+    /**
+     * Returns the number of bytes written so far.
+     *
+     * @return  byte count
+     */
+    public abstract long getLength();
+
+    /**
+     * Returns the number of bytes of direct memory currently allocated
+     * by this store.
+     *
+     * @return  off-heap byte count
+     */
+    public abstract long getMemorySize();
+
+    /**
+     * Releases resources.  This object may not subsequently be used.
+     */
+    public abstract void dispose();
+
+    /**
+     * Writes bytes to this store.
+     *
+     * @param  b  buffer containing bytes
+     * @param  off  offset into <code>b</code> of first byte to write
+     * @param  len  number of bytes to write
+     */
+    public void write( byte[] b, int off, int len ) throws IOException {
+        while ( len > 0 ) {
+            ByteBuffer buf = getWriteBuffer( 1 );
+            int n = Math.min( len, buf.remaining() );
+            buf.put( b, off, n );
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Returns a store which writes to a file, and maps it read-only
+     * when writing is complete.
+     *
+     * @param  file  file for the data; it is the caller's responsibility
+     *               to clear it up
+     * @param  segShift  log2 of the maximum size of each mapped buffer
+     * @param  order  byte order
+     * @return  new store
+     */
+    public static SegmentedStore createFileStore( File file, int segShift,
+                                                  ByteOrder order ) {
+        return new FileStore( file, segShift, order );
+    }
+
+    /**
+     * Returns a store which writes to slabs of direct memory.
+     *
+     * @param  segShift  log2 of the maximum size of each slab
+     * @param  order  byte order
+     * @return  new store
+     */
+    public static SegmentedStore createMemoryStore( int segShift,
+                                                    ByteOrder order ) {
+        return new MemoryStore( segShift, order );
+    }
+
+    /**
+     * File-based implementation.
+     */
+    private static class FileStore extends SegmentedStore {
+        private final File file_;
+        private FileOutputStream out_;
+        private ByteBuffer wbuf_;
+        private long nflushed_;
+        private static final int BUFSIZ = 64 * 1024;
+
+        FileStore( File file, int segShift, ByteOrder order ) {
+            super( segShift, order );
+            file_ = file;
+        }
+
+        public ByteBuffer getWriteBuffer( int nbyte ) throws IOException {
+            if ( wbuf_ == null ) {
+                out_ = new FileOutputStream( file_ );
+                wbuf_ = ByteBuffer.allocate( BUFSIZ );
+                wbuf_.order( getOrder() );
+            }
+            else if ( wbuf_.remaining() < nbyte ) {
+                flush();
+            }
+            return wbuf_;
+        }
+
+        public ByteBuffer[] endWrites() throws IOException {
+            if ( wbuf_ == null ) {
+                return new ByteBuffer[ 0 ];
+            }
+            flush();
+            wbuf_ = null;
+            out_.close();
+            out_ = null;
+            long size = nflushed_;
+            int segShift = getSegmentShift();
+            long segSize = 1L << segShift;
+            int nseg = (int) ( ( size + segSize - 1 ) >>> segShift );
+            ByteBuffer[] segs = new ByteBuffer[ nseg ];
+            RandomAccessFile raf = new RandomAccessFile( file_, "r" );
+            try {
+                FileChannel chan = raf.getChannel();
+                for ( int is = 0; is < nseg; is++ ) {
+                    long off = is * segSize;
+                    segs[ is ] =
+                        chan.map( FileChannel.MapMode.READ_ONLY, off,
+                                  Math.min( segSize, size - off ) )
+                            .order( getOrder() );
+                }
+            }
+            finally {
+                raf.close();
+            }
+            return segs;
+        }
+
+        public long getLength() {
+            return nflushed_ + ( wbuf_ == null ? 0 : wbuf_.position() );
+        }
+
+        public long getMemorySize() {
+            return 0;
+        }
+
+        public void dispose() {
+            if ( out_ != null ) {
+                try {
+                    out_.close();
+                }
+                catch ( IOException e ) {
+                }
+                out_ = null;
+            }
+            wbuf_ = null;
+        }
+
+        /**
+         * Writes the contents of the write buffer to the file.
+         */
+        private void flush() throws IOException {
+            wbuf_.flip();
+            FileChannel chan = out_.getChannel();
+            while ( wbuf_.hasRemaining() ) {
+                nflushed_ += chan.write( wbuf_ );
+            }
+            wbuf_.clear();
+        }
+    }
+
+    /**
+     * Direct memory implementation.
+     * Each slab is filled up to the segment size before the next one is
+     * started; the current slab starts small and doubles in size
+     * as required.
+     */
+    private static class MemoryStore extends SegmentedStore {
+        private final int segSize_;
+        private final List<ByteBuffer> slabs_;
+        private ByteBuffer slab_;
+        private long nfull_;
+        private static final int INIT_SIZE = 16 * 1024;
+
+        MemoryStore( int segShift, ByteOrder order ) {
+            super( segShift, order );
+            segSize_ = 1 << segShift;
+            slabs_ = new ArrayList<ByteBuffer>();
+        }
+
+        public ByteBuffer getWriteBuffer( int nbyte ) {
+            if ( slab_ != null && slab_.remaining() >= nbyte ) {
+                return slab_;
+            }
+            if ( slab_ == null ) {
+                slab_ = allocate( Math.min( Math.max( INIT_SIZE, nbyte ),
+                                            segSize_ ) );
+            }
+            else if ( slab_.capacity() < segSize_ ) {
+                int cap = slab_.capacity();
+                int need = slab_.position() + nbyte;
+                while ( cap < need ) {
+                    cap *= 2;
+                }
+                ByteBuffer slab = allocate( Math.min( cap, segSize_ ) );
+                slab_.flip();
+                slab.put( slab_ );
+                slab_ = slab;
+            }
+            if ( slab_.remaining() < nbyte ) {
+                if ( slab_.hasRemaining() ) {
+                    throw new IllegalArgumentException(
+                        "Write straddles segment boundary" );
+                }
+                slabs_.add( slab_ );
+                nfull_ += slab_.position();
+                slab_ = allocate( Math.min( Math.max( INIT_SIZE, nbyte ),
+                                            segSize_ ) );
+            }
+            return slab_;
+        }
+
+        public ByteBuffer[] endWrites() {
+            if ( slab_ != null ) {
+                slabs_.add( slab_ );
+                nfull_ += slab_.position();
+                slab_ = null;
+            }
+            ByteBuffer[] segs = new ByteBuffer[ slabs_.size() ];
+            for ( int is = 0; is < segs.length; is++ ) {
+                ByteBuffer slab = slabs_.get( is );
+                slab.flip();
+                segs[ is ] = slab.asReadOnlyBuffer().order( getOrder() );
+            }
+            return segs;
+        }
+
+        public long getLength() {
+            return nfull_ + ( slab_ == null ? 0 : slab_.position() );
+        }
+
+        public long getMemorySize() {
+            long size = slab_ == null ? 0 : slab_.capacity();
+            for ( ByteBuffer slab : slabs_ ) {
+                size += slab.capacity();
+            }
+            return size;
+        }
+
+        public void dispose() {
+            slabs_.clear();
+            slab_ = null;
+        }
+
+        /**
+         * Allocates a new direct slab.
+         *
+         * @param  size  capacity in bytes
+         * @return  new buffer
+         */
+        private ByteBuffer allocate( int size ) {
+            return ByteBuffer.allocateDirect( size ).order( getOrder() );
+        }
+    }
+}
@@ -5,9 +5,6 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Set;
 import java.util.logging.Logger;
 import uk.ac.starlink.table.ColumnInfo;
 import uk.ac.starlink.table.RowStore;
@@ -25,7 +22,7 @@ import uk.ac.starlink.table.TableFormatException;
 public class SidewaysRowStore implements RowStore {
 
     private final File file_;
-    private final Set tempFiles_;
+    private final ScratchFileSet scratch_;
     private int ncol_;
     private StarTable template_;
     private long lrow_;
@@ -42,7 +39,7 @@ public class SidewaysRowStore implements RowStore {
      */
     public SidewaysRowStore( File file ) throws IOException {
         file_ = file;
-        tempFiles_ = new HashSet();
+        scratch_ = new ScratchFileSet( file );
     }
 
     /**
@@ -113,8 +110,7 @@ public class SidewaysRowStore implements RowStore {
          * and the ColumnStore will use an additional mapped file
          * for the data items themselves. */
         if ( nrow >= 0 ) {
-            file_.deleteOnExit();
-            tempFiles_.add( file_ );
+            scratch_.addFile( file_ );
             RandomAccessFile raf = new RandomAccessFile( file_, "rw" );
             FileChannel chan = raf.getChannel();
             long offset = 0L;
@@ -130,9 +126,7 @@ public class SidewaysRowStore implements RowStore {
                     colStore = new MappedColumnStore( codec, bbuf );
                 }
                 else {
-                    File file = new File( file_ + "_" + icol );
-                    file.deleteOnExit();
-                    tempFiles_.add( file );
+                    File file = scratch_.createFile( "_" + icol );
                     colStore =
                         new IndexedMappedColumnStore( codec, bbuf, file );
                 }
@@ -151,17 +145,13 @@ public class SidewaysRowStore implements RowStore {
                 Codec codec = codecs[ icol ];
                 int itemSize = codec.getItemSize();
                 boolean fixedSize = itemSize >= 0;
-                File dataFile = new File( file_ + "_" + icol );
-                dataFile.deleteOnExit();
-                tempFiles_.add( dataFile );
+                File dataFile = scratch_.createFile( "_" + icol );
                 ColumnStore colStore;
                 if ( fixedSize ) {
                     colStore = new StreamColumnStore( codec, dataFile );
                 }
                 else {
-                    File indexFile = new File( dataFile + "_ix" );
-                    indexFile.deleteOnExit();
-                    tempFiles_.add( indexFile );
+                    File indexFile = scratch_.createFile( "_" + icol + "_ix" );
                     colStore = new IndexedStreamColumnStore( codec, dataFile,
                                                              indexFile );
                 }
@@ -209,32 +199,7 @@ public class SidewaysRowStore implements RowStore {
      * call to this method.
      */
     private void tidy() {
-
-        /* Deletes any temporary files we have created to store data. */
-        for ( Iterator it = tempFiles_.iterator(); it.hasNext(); ) {
-            File file = (File) it.next();
-            if ( file.exists() ) {
-                if ( file.delete() ) {
-                    logger_.info( "Deleted temporary file " + file );
-                    it.remove();
-                }
-                else {
-                    logger_.warning( "Failed to delete temporary file "
-                                   + file );
-                }
-            }
-        }
-
-        /* Perform additional housekeeping on owned ColumnStores as
-         * avaailable. */
-        if ( colStores_ != null ) {
-            for ( int icol = 0; icol < ncol_; icol++ ) {
-                ColumnStore cs = colStores_[ icol ];
-                if ( cs != null ) {
-                    cs.dispose();
-                }
-            }
-        }
+        scratch_.tidy( colStores_ );
     }
 
     protected void finalize() throws Throwable {
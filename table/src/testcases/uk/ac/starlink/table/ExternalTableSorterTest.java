@@ -0,0 +1,119 @@
+package uk.ac.starlink.table;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import uk.ac.starlink.util.TestCase;
+
+public class ExternalTableSorterTest extends TestCase {
+
+    public ExternalTableSorterTest( String name ) {
+        super( name );
+    }
+
+    public void testSort() throws IOException {
+        StarTable table = createTable( new Random( 770021L ), 5000 );
+        StoragePolicy[] policies = new StoragePolicy[] {
+            StoragePolicy.PREFER_MEMORY,
+            StoragePolicy.PREFER_DISK,
+        };
+        int[][] keySets = new int[][] {
+            { 1 },
+            { 2 },
+            { 3, 1 },
+            { 2, 3, 1 },
+        };
+        for ( int ik = 0; ik < keySets.length; ik++ ) {
+            int[] keys = keySets[ ik ];
+            for ( int iu = 0; iu < 2; iu++ ) {
+                boolean up = iu == 0;
+                for ( int in = 0; in < 2; in++ ) {
+                    boolean nullsLast = in == 0;
+                    List<String> expected =
+                        describe( Tables.sortTable( table, keys, up,
+                                                    nullsLast ) );
+                    for ( int ip = 0; ip < policies.length; ip++ ) {
+                        exerciseSorter( new ExternalTableSorter( policies[ ip ],
+                                                                 5000, 1 ),
+                                        table, keys, up, nullsLast, expected );
+                        exerciseSorter( new ExternalTableSorter( policies[ ip ],
+                                                                 333, 3 ),
+                                        table, keys, up, nullsLast, expected );
+                        exerciseSorter( new ExternalTableSorter( policies[ ip ],
+                                                                 50, 4 ),
+                                        table, keys, up, nullsLast, expected );
+                    }
+                }
+            }
+        }
+    }
+
+    public void testEmpty() throws IOException {
+        StarTable table = createTable( new Random( 23L ), 0 );
+        StarTable sorted = new ExternalTableSorter( StoragePolicy.PREFER_DISK,
+                                                    10, 2 )
+                          .sortTable( table, new int[] { 1 }, true, true );
+        assertEquals( 0, sorted.getRowCount() );
+        assertTrue( ! sorted.getRowSequence().next() );
+    }
+
+    private void exerciseSorter( ExternalTableSorter sorter, StarTable table,
+                                 int[] keys, boolean up, boolean nullsLast,
+                                 List<String> expected )
+            throws IOException {
+        StarTable seqTable = new WrapperStarTable( table ) {
+            public boolean isRandom() {
+                return false;
+            }
+        };
+        StarTable sorted = sorter.sortTable( seqTable, keys, up, nullsLast );
+        assertEquals( table.getRowCount(), sorted.getRowCount() );
+        assertEquals( expected, describe( sorted ) );
+
+        /* Check it can be read more than once. */
+        assertEquals( expected, describe( sorted ) );
+    }
+
+    private static List<String> describe( StarTable table )
+            throws IOException {
+        List<String> list = new ArrayList<String>();
+        RowSequence rseq = table.getRowSequence();
+        while ( rseq.next() ) {
+            Object[] row = rseq.getRow();
+            StringBuffer sbuf = new StringBuffer();
+            for ( int ic = 0; ic < row.length; ic++ ) {
+                sbuf.append( row[ ic ] )
+                    .append( ' ' );
+            }
+            list.add( sbuf.toString() );
+        }
+        rseq.close();
+        return list;
+    }
+
+    private static StarTable createTable( Random rnd, int nrow ) {
+        int[] index = new int[ nrow ];
+        double[] dvals = new double[ nrow ];
+        Integer[] ivals = new Integer[ nrow ];
+        String[] svals = new String[ nrow ];
+        for ( int i = 0; i < nrow; i++ ) {
+            index[ i ] = i;
+            dvals[ i ] = rnd.nextInt( 20 ) == 0
+                       ? Double.NaN
+                       : Math.floor( rnd.nextGaussian() * 100 ) / 8.0;
+            ivals[ i ] = rnd.nextInt( 20 ) == 0
+                       ? null
+                       : new Integer( rnd.nextInt( 30 ) - 15 );
+            svals[ i ] = rnd.nextInt( 20 ) == 0
+                       ? null
+                       : Integer.toString( rnd.nextInt( 10 ) );
+        }
+        ColumnStarTable table = ColumnStarTable.makeTableWithRows( nrow );
+        table.addColumn( ArrayColumn.makeColumn( "index", index ) );
+        table.addColumn( ArrayColumn.makeColumn( "dval", dvals ) );
+        table.addColumn( ArrayColumn.makeColumn( "ival", ivals ) );
+        table.addColumn( ArrayColumn.makeColumn( "sval", svals ) );
+        return table;
+    }
+}
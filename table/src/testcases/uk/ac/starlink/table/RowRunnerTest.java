@@ -0,0 +1,149 @@
+package uk.ac.starlink.table;
+
+import java.io.IOException;
+import java.util.List;
+import uk.ac.starlink.util.TestCase;
+
+public class RowRunnerTest extends TestCase {
+
+    public RowRunnerTest( String name ) {
+        super( name );
+    }
+
+    public void testSplit() throws IOException {
+        ColumnStarTable table = createTable( 1000 );
+        RowSplittable split = table.getRowSplittable();
+        assertEquals( 1000, split.splittableSize() );
+        RowSplittable head = split.split();
+        assertEquals( 500, head.splittableSize() );
+        assertEquals( 500, split.splittableSize() );
+        assertTrue( head.next() );
+        assertEquals( 0, head.getRowIndex() );
+        assertEquals( new Long( 0 ), head.getCell( 0 ) );
+        assertTrue( split.next() );
+        assertEquals( 500, split.getRowIndex() );
+        assertEquals( new Long( 500 ), split.getRow()[ 0 ] );
+
+        RowSplittable one = new RandomRowSplittable( createTable( 1 ) );
+        assertNull( one.split() );
+
+        StarTable seqTable = new WrapperStarTable( table ) {
+            public boolean isRandom() {
+                return false;
+            }
+        };
+        RowSplittable seqSplit = seqTable.getRowSplittable();
+        assertNull( seqSplit.split() );
+        assertTrue( seqSplit.next() );
+        assertEquals( 0, seqSplit.getRowIndex() );
+
+        Tables.checkTable( table );
+        Tables.checkTable( seqTable );
+        Tables.checkTable( new RowListStarTable( table ) );
+    }
+
+    public void testPartition() throws IOException {
+        int nrow = 10000;
+        StarTable table = createTable( nrow );
+        List<RowSplittable> splits =
+            new RowRunner( 4, 100 ).partition( table.getRowSplittable() );
+        assertEquals( 16, splits.size() );
+        long irow = 0;
+        for ( RowSplittable split : splits ) {
+            while ( split.next() ) {
+                assertEquals( irow++, split.getRowIndex() );
+            }
+        }
+        assertEquals( nrow, irow );
+
+        assertEquals( 1, new RowRunner( 4, 100000 )
+                        .partition( table.getRowSplittable() ).size() );
+        assertEquals( 1, RowRunner.SEQUENTIAL
+                        .partition( table.getRowSplittable() ).size() );
+    }
+
+    public void testCollect() throws IOException {
+        int nrow = 100001;
+        StarTable table = createTable( nrow );
+        long expectSum = ( (long) nrow * ( nrow - 1 ) ) / 2;
+        RowRunner[] runners = new RowRunner[] {
+            RowRunner.SEQUENTIAL,
+            RowRunner.DEFAULT,
+            new RowRunner( 8, 1 ),
+            new RowRunner( 3, 1000 ),
+        };
+        for ( int ir = 0; ir < runners.length; ir++ ) {
+            long[] result = runners[ ir ].collect( new SumCollector(), table );
+            assertEquals( expectSum, result[ 0 ] );
+            assertEquals( nrow, result[ 1 ] );
+            assertEquals( 0, result[ 2 ] );
+            assertEquals( nrow - 1, result[ 3 ] );
+        }
+    }
+
+    public void testError() throws IOException {
+        StarTable table = new WrapperStarTable( createTable( 1000 ) ) {
+            public Object getCell( long irow, int icol ) throws IOException {
+                if ( irow == 900 ) {
+                    throw new IOException( "bad row" );
+                }
+                return super.getCell( irow, icol );
+            }
+        };
+        try {
+            new RowRunner( 4, 10 ).collect( new SumCollector(), table );
+            fail();
+        }
+        catch ( IOException e ) {
+            assertEquals( "bad row", e.getMessage() );
+        }
+    }
+
+    private static ColumnStarTable createTable( int nrow ) {
+        long[] data = new long[ nrow ];
+        for ( int i = 0; i < nrow; i++ ) {
+            data[ i ] = i;
+        }
+        ColumnStarTable table = ColumnStarTable.makeTableWithRows( nrow );
+        table.addColumn( ArrayColumn.makeColumn( "index", data ) );
+        return table;
+    }
+
+    /**
+     * Accumulates sum, count, first and last values from column 0.
+     */
+    private static class SumCollector extends RowCollector<long[]> {
+        public long[] createAccumulator() {
+            return new long[] { 0, 0, -1, -1 };
+        }
+        public void accumulateRows( RowSplittable rseq, long[] acc )
+                throws IOException {
+            while ( rseq.next() ) {
+                long value = ((Number) rseq.getCell( 0 )).longValue();
+                acc[ 0 ] += value;
+                acc[ 1 ]++;
+                if ( acc[ 2 ] < 0 ) {
+                    acc[ 2 ] = value;
+                }
+                acc[ 3 ] = value;
+            }
+        }
+        public long[] combine( long[] acc1, long[] acc2 ) {
+            if ( acc1[ 1 ] == 0 ) {
+                return acc2;
+            }
+            else if ( acc2[ 1 ] == 0 ) {
+                return acc1;
+            }
+            else {
+                assertTrue( acc1[ 3 ] < acc2[ 2 ] );
+                return new long[] {
+                    acc1[ 0 ] + acc2[ 0 ],
+                    acc1[ 1 ] + acc2[ 1 ],
+                    acc1[ 2 ],
+                    acc2[ 3 ],
+                };
+            }
+        }
+    }
+}
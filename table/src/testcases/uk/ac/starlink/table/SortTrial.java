@@ -0,0 +1,120 @@
+package uk.ac.starlink.table;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Benchmark comparing the primitive key sort used by {@link TableSorter}
+ * with the comparator-based sort it replaced.
+ * This is not a JUnit test, since it needs a lot of memory and time.
+ * It is run from its main() method, with row counts as arguments, e.g.
+ * <pre>
+ *    java -Xmx24g uk.ac.starlink.table.SortTrial 10000000 100000000
+ * </pre>
+ */
+public class SortTrial {
+
+    public static void main( String[] args ) throws IOException {
+        if ( args.length == 0 ) {
+            args = new String[] { "10000000" };
+        }
+        for ( int ia = 0; ia < args.length; ia++ ) {
+            int nrow = Integer.parseInt( args[ ia ] );
+            StarTable table = createTable( nrow );
+            String[] colNames = new String[] { "double", "int", "int+double" };
+            int[][] colSets = new int[][] { { 0 }, { 1 }, { 1, 0 } };
+            for ( int is = 0; is < colSets.length; is++ ) {
+                int[] cols = colSets[ is ];
+                System.out.println( nrow + " rows, " + colNames[ is ] + ":" );
+                long[] legacy = null;
+                if ( nrow <= 20000000 ) {
+                    long t0 = System.currentTimeMillis();
+                    legacy = legacyOrder( table, cols );
+                    report( "comparator", t0 );
+                }
+                else {
+                    System.out.println( "    comparator: skipped" );
+                }
+                long t1 = System.currentTimeMillis();
+                long[] seq = TableSorter.getSortedOrder( table, cols, true,
+                                                         true,
+                                                         RowRunner.SEQUENTIAL );
+                report( "primitive, 1 thread", t1 );
+                long t2 = System.currentTimeMillis();
+                long[] par = TableSorter.getSortedOrder( table, cols, true,
+                                                         true,
+                                                         RowRunner.DEFAULT );
+                report( "primitive, parallel ("
+                      + RowRunner.DEFAULT.getThreadCount() + ")", t2 );
+                if ( ( legacy != null && ! Arrays.equals( legacy, seq ) ) ||
+                     ! Arrays.equals( seq, par ) ) {
+                    throw new AssertionError( "Results differ" );
+                }
+            }
+        }
+    }
+
+    private static void report( String label, long t0 ) {
+        System.out.println( "    " + label + ": "
+                          + ( System.currentTimeMillis() - t0 ) + "ms" );
+    }
+
+    /**
+     * Sorts row indices the way TableSorter used to, using Arrays.sort
+     * with a comparator that reads boxed cell values.
+     */
+    private static long[] legacyOrder( final StarTable table,
+                                       final int[] cols ) {
+        int nrow = (int) table.getRowCount();
+        Number[] rowMap = new Number[ nrow ];
+        for ( int i = 0; i < nrow; i++ ) {
+            rowMap[ i ] = new Integer( i );
+        }
+        Arrays.sort( rowMap, new Comparator<Number>() {
+            public int compare( Number n1, Number n2 ) {
+                long irow1 = n1.longValue();
+                long irow2 = n2.longValue();
+                int c = 0;
+                for ( int i = 0; i < cols.length && c == 0; i++ ) {
+                    Comparable v1;
+                    Comparable v2;
+                    try {
+                        v1 = (Comparable) table.getCell( irow1, cols[ i ] );
+                        v2 = (Comparable) table.getCell( irow2, cols[ i ] );
+                    }
+                    catch ( IOException e ) {
+                        throw new RuntimeException( e );
+                    }
+                    boolean null1 = Tables.isBlank( v1 );
+                    boolean null2 = Tables.isBlank( v2 );
+                    c = null1 || null2
+                      ? ( null1 && null2 ? 0 : ( null1 ? +1 : -1 ) )
+                      : v1.compareTo( v2 );
+                }
+                return c;
+            }
+        } );
+        long[] order = new long[ nrow ];
+        for ( int i = 0; i < nrow; i++ ) {
+            order[ i ] = rowMap[ i ].longValue();
+        }
+        return order;
+    }
+
+    private static StarTable createTable( int nrow ) {
+        Random rnd = new Random( 1234567L );
+        double[] dvals = new double[ nrow ];
+        int[] ivals = new int[ nrow ];
+        for ( int i = 0; i < nrow; i++ ) {
+            dvals[ i ] = rnd.nextInt( 50 ) == 0 ? Double.NaN
+                                                : rnd.nextGaussian();
+            ivals[ i ] = rnd.nextInt( 1000 );
+        }
+        ColumnStarTable table = ColumnStarTable.makeTableWithRows( nrow );
+        table.addColumn( ArrayColumn.makeColumn( "double", dvals ) );
+        table.addColumn( ArrayColumn.makeColumn( "int", ivals ) );
+        return table;
+    }
+}
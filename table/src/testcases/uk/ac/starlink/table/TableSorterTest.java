@@ -0,0 +1,170 @@
+package uk.ac.starlink.table;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import uk.ac.starlink.util.TestCase;
+
+public class TableSorterTest extends TestCase {
+
+    private final StarTable table_;
+    private final RowRunner[] runners_;
+
+    public TableSorterTest( String name ) {
+        super( name );
+        table_ = createTable( new Random( 88123L ), 20000 );
+        runners_ = new RowRunner[] {
+            RowRunner.SEQUENTIAL,
+            new RowRunner( 4, 100 ),
+            new RowRunner( 3, 1 ),
+        };
+    }
+
+    public void testSort() throws IOException {
+        int ncol = table_.getColumnCount();
+        for ( int ic = 0; ic < ncol; ic++ ) {
+            checkSort( new int[] { ic } );
+        }
+        checkSort( new int[] { 1, 2 } );
+        checkSort( new int[] { 6, 3, 0 } );
+        checkSort( new int[] { 7, 4 } );
+        checkSort( new int[] { 5, 7, 1 } );
+    }
+
+    public void testEmpty() throws IOException {
+        StarTable empty = createTable( new Random( 1L ), 0 );
+        assertEquals( 0, TableSorter.getSortedOrder( empty, new int[] { 0 },
+                                                     true, true ).length );
+        StarTable one = createTable( new Random( 1L ), 1 );
+        assertArrayEquals( new long[] { 0 },
+                           TableSorter.getSortedOrder( one, new int[] { 7 },
+                                                       false, true ) );
+    }
+
+    public void testUnsortable() {
+        ColumnStarTable table = ColumnStarTable.makeTableWithRows( 2 );
+        table.addColumn( ArrayColumn
+                        .makeColumn( "arr", new int[][] { { 1 }, { 2 } } ) );
+        try {
+            TableSorter.getSortedOrder( table, new int[] { 0 }, true, true );
+            fail();
+        }
+        catch ( IOException e ) {
+        }
+    }
+
+    private void checkSort( int[] cols ) throws IOException {
+        for ( int iu = 0; iu < 2; iu++ ) {
+            boolean up = iu == 0;
+            for ( int in = 0; in < 2; in++ ) {
+                boolean nullsLast = in == 0;
+                long[] expected = referenceOrder( table_, cols, up, nullsLast );
+                for ( int ir = 0; ir < runners_.length; ir++ ) {
+                    assertArrayEquals( expected,
+                                       TableSorter
+                                      .getSortedOrder( table_, cols, up,
+                                                       nullsLast,
+                                                       runners_[ ir ] ) );
+                }
+            }
+        }
+    }
+
+    /**
+     * Straightforward comparator-based stable sort.
+     */
+    private static long[] referenceOrder( final StarTable table,
+                                          final int[] cols, final boolean up,
+                                          final boolean nullsLast )
+            throws IOException {
+        int nrow = (int) table.getRowCount();
+        Integer[] irows = new Integer[ nrow ];
+        for ( int i = 0; i < nrow; i++ ) {
+            irows[ i ] = new Integer( i );
+        }
+        Arrays.sort( irows, new Comparator<Integer>() {
+            public int compare( Integer i1, Integer i2 ) {
+                for ( int ic = 0; ic < cols.length; ic++ ) {
+                    try {
+                        int c =
+                            compareValues( table.getCell( i1, cols[ ic ] ),
+                                           table.getCell( i2, cols[ ic ] ) );
+                        if ( c != 0 ) {
+                            return c;
+                        }
+                    }
+                    catch ( IOException e ) {
+                        throw new RuntimeException( e );
+                    }
+                }
+                return 0;
+            }
+            private int compareValues( Object o1, Object o2 ) {
+                boolean null1 = Tables.isBlank( o1 );
+                boolean null2 = Tables.isBlank( o2 );
+                if ( null1 || null2 ) {
+                    return null1 && null2
+                         ? 0
+                         : ( null1 ^ up ^ nullsLast ? +1 : -1 );
+                }
+                int c = ((Comparable) o1).compareTo( o2 );
+                return up ? c : -c;
+            }
+        } );
+        long[] order = new long[ nrow ];
+        for ( int i = 0; i < nrow; i++ ) {
+            order[ i ] = irows[ i ].longValue();
+        }
+        return order;
+    }
+
+    private static StarTable createTable( Random rnd, int nrow ) {
+        double[] dvals = new double[ nrow ];
+        float[] fvals = new float[ nrow ];
+        Integer[] ivals = new Integer[ nrow ];
+        long[] lvals = new long[ nrow ];
+        short[] svals = new short[ nrow ];
+        Byte[] bvals = new Byte[ nrow ];
+        String[] strs = new String[ nrow ];
+        Long[] bigs = new Long[ nrow ];
+        for ( int i = 0; i < nrow; i++ ) {
+            boolean blank = rnd.nextInt( 10 ) == 0;
+            dvals[ i ] = blank ? Double.NaN
+                               : ( rnd.nextBoolean() ? rnd.nextGaussian()
+                                                     : rnd.nextInt( 3 ) - 1.0 );
+            if ( ! blank && dvals[ i ] == 0 && rnd.nextBoolean() ) {
+                dvals[ i ] = -0.0;
+            }
+            fvals[ i ] = rnd.nextInt( 8 ) == 0
+                       ? Float.NaN
+                       : (float) ( rnd.nextGaussian() * 1e30 );
+            ivals[ i ] = rnd.nextInt( 7 ) == 0
+                       ? null
+                       : new Integer( rnd.nextInt( 100 ) - 50 );
+            lvals[ i ] = rnd.nextLong();
+            svals[ i ] = (short) rnd.nextInt( 5 );
+            bvals[ i ] = rnd.nextInt( 5 ) == 0
+                       ? null
+                       : new Byte( (byte) rnd.nextInt( 256 ) );
+            strs[ i ] = rnd.nextInt( 9 ) == 0
+                      ? null
+                      : Integer.toString( rnd.nextInt( 40 ), 36 );
+            bigs[ i ] = rnd.nextInt( 6 ) == 0
+                      ? null
+                      : new Long( rnd.nextBoolean() ? Long.MIN_VALUE
+                                                    : Long.MAX_VALUE
+                                                      - rnd.nextInt( 3 ) );
+        }
+        ColumnStarTable table = ColumnStarTable.makeTableWithRows( nrow );
+        table.addColumn( ArrayColumn.makeColumn( "d", dvals ) );
+        table.addColumn( ArrayColumn.makeColumn( "f", fvals ) );
+        table.addColumn( ArrayColumn.makeColumn( "i", ivals ) );
+        table.addColumn( ArrayColumn.makeColumn( "l", lvals ) );
+        table.addColumn( ArrayColumn.makeColumn( "s", svals ) );
+        table.addColumn( ArrayColumn.makeColumn( "b", bvals ) );
+        table.addColumn( ArrayColumn.makeColumn( "str", strs ) );
+        table.addColumn( ArrayColumn.makeColumn( "big", bigs ) );
+        return table;
+    }
+}
@@ -0,0 +1,151 @@
+package uk.ac.starlink.table.formats;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import junit.framework.TestCase;
+import uk.ac.starlink.table.ColumnInfo;
+import uk.ac.starlink.table.RowSequence;
+import uk.ac.starlink.table.StarTable;
+import uk.ac.starlink.table.StoragePolicy;
+import uk.ac.starlink.table.TableFormatException;
+import uk.ac.starlink.util.FileDataSource;
+
+public class CsvChunkReaderTest extends TestCase {
+
+    public CsvChunkReaderTest( String name ) {
+        super( name );
+        Logger.getLogger( "uk.ac.starlink.table.formats" )
+              .setLevel( Level.WARNING );
+    }
+
+    public void testChunks() throws IOException {
+        StringBuffer sbuf = new StringBuffer();
+        for ( int i = 0; i < 300; i++ ) {
+            sbuf.append( i )
+                .append( ", " )
+                .append( i % 7 == 0 ? "" : Double.toString( i * 0.5 ) )
+                .append( "," )
+                .append( i % 5 == 0 ? "\"multi\r\nline, \"\"quoted\"\"\""
+                                    : "\"s" + i + "\"" )
+                .append( " ,  t" )
+                .append( i % 3 == 0 ? "\r\n" : "\n" );
+            if ( i % 11 == 0 ) {
+                sbuf.append( "\n\r\n" );
+            }
+        }
+        String body = sbuf.toString();
+        exerciseText( "id,x,label,flag\n" + body );
+        exerciseText( body );
+        exerciseText( "a comment line\n" + body );
+        exerciseText( "\n" + body + "300,1.5,end,f" );
+    }
+
+    public void testErrors() throws IOException {
+        String[] bads = new String[] {
+            "a,b\n1,2\n3,4,5\n6,7\n",
+            "a,b\n1,\"2\n",
+            "a,b\n1,x\"2\"\n",
+            "",
+        };
+        for ( int i = 0; i < bads.length; i++ ) {
+            File file = writeFile( bads[ i ] );
+            try {
+                new CsvChunkReader( file, 2, 4 );
+                fail();
+            }
+            catch ( TableFormatException e ) {
+                // ok
+            }
+            finally {
+                file.delete();
+            }
+        }
+    }
+
+    public void testBuilder() throws IOException {
+        File file = writeFile( "p,q\n1,2.5\n3,\n" );
+        try {
+            StarTable table = new CsvTableBuilder()
+                             .makeStarTable( new FileDataSource( file ), true,
+                                             StoragePolicy.PREFER_MEMORY );
+            assertTrue( table.isRandom() );
+            assertEquals( 2, table.getRowCount() );
+            assertEquals( "q", table.getColumnInfo( 1 ).getName() );
+            assertEquals( new Float( 2.5f ), table.getCell( 0, 1 ) );
+            assertNull( table.getCell( 1, 1 ) );
+
+            /* Other policies are left to do their own storage. */
+            StarTable seqTable = new CsvTableBuilder()
+                                .makeStarTable( new FileDataSource( file ),
+                                                true,
+                                                StoragePolicy.PREFER_DISK );
+            assertTrue( ! seqTable.isRandom() );
+            assertTableEquals( table, seqTable );
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    private void exerciseText( String text ) throws IOException {
+        File file = writeFile( text );
+        try {
+            StarTable t0 = new CsvStarTable( new FileDataSource( file ) );
+            int[] segSizes = new int[] { 1, 7, 64, 1000, 1 << 20 };
+            for ( int is = 0; is < segSizes.length; is++ ) {
+                for ( int nthread = 1; nthread <= 3; nthread += 2 ) {
+                    CsvChunkReader reader =
+                        new CsvChunkReader( file, nthread, segSizes[ is ] );
+                    assertTableEquals( t0, reader.createTable( false ) );
+                    StarTable t1 = reader.createTable( true );
+                    assertTrue( t1.isRandom() );
+                    assertTableEquals( t0, t1 );
+                }
+            }
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    private void assertTableEquals( StarTable t0, StarTable t1 )
+            throws IOException {
+        int ncol = t0.getColumnCount();
+        assertEquals( ncol, t1.getColumnCount() );
+        assertEquals( t0.getRowCount(), t1.getRowCount() );
+        for ( int icol = 0; icol < ncol; icol++ ) {
+            ColumnInfo info0 = t0.getColumnInfo( icol );
+            ColumnInfo info1 = t1.getColumnInfo( icol );
+            assertEquals( info0.getName(), info1.getName() );
+            assertEquals( info0.getContentClass(), info1.getContentClass() );
+            assertEquals( info0.getElementSize(), info1.getElementSize() );
+        }
+        RowSequence rseq0 = t0.getRowSequence();
+        RowSequence rseq1 = t1.getRowSequence();
+        long nrow = 0;
+        while ( rseq0.next() ) {
+            assertTrue( rseq1.next() );
+            for ( int icol = 0; icol < ncol; icol++ ) {
+                assertEquals( rseq0.getCell( icol ), rseq1.getCell( icol ) );
+            }
+            nrow++;
+        }
+        assertTrue( ! rseq1.next() );
+        assertEquals( t0.getRowCount(), nrow );
+        rseq0.close();
+        rseq1.close();
+    }
+
+    private static File writeFile( String text ) throws IOException {
+        File file = File.createTempFile( "chunk", ".csv" );
+        file.deleteOnExit();
+        OutputStream out = new FileOutputStream( file );
+        out.write( text.getBytes( "ISO-8859-1" ) );
+        out.close();
+        return file;
+    }
+}
@@ -0,0 +1,399 @@
+package uk.ac.starlink.table.jdbc;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import uk.ac.starlink.table.ArrayColumn;
+import uk.ac.starlink.table.ColumnStarTable;
+import uk.ac.starlink.table.RowSequence;
+import uk.ac.starlink.table.StarTable;
+import uk.ac.starlink.table.Tables;
+import uk.ac.starlink.table.WrapperRowSequence;
+import uk.ac.starlink.table.WrapperStarTable;
+import uk.ac.starlink.util.TestCase;
+
+public class JDBCFormatterTest extends TestCase {
+
+    public JDBCFormatterTest( String name ) {
+        super( name );
+    }
+
+    public void testBatch() throws Exception {
+        StarTable table = createTable( 2500 );
+        FakeDb db = new FakeDb( true );
+        JDBCFormatter formatter = new JDBCFormatter( db.conn_, table );
+        formatter.setBatchSize( 1000 );
+        formatter.setCommitRows( 1000 );
+        formatter.createJDBCTable( "tab", WriteMode.CREATE );
+        assertEquals( 3, db.nBatch_ );
+        assertEquals( 0, db.nUpdate_ );
+        assertEquals( 3, db.nCommit_ );
+        assertTrue( db.autoCommit_ );
+        assertEquals( 1, db.nPrepare_ );
+        checkRows( table, db.rows_ );
+
+        db = new FakeDb( true );
+        formatter = new JDBCFormatter( db.conn_, table );
+        formatter.setBatchSize( 300 );
+        formatter.setCommitRows( 0 );
+        formatter.createJDBCTable( "tab", WriteMode.CREATE );
+        assertEquals( 9, db.nBatch_ );
+        assertEquals( 0, db.nCommit_ );
+        checkRows( table, db.rows_ );
+    }
+
+    public void testNoBatch() throws Exception {
+        StarTable table = createTable( 250 );
+        FakeDb db = new FakeDb( false );
+        JDBCFormatter formatter = new JDBCFormatter( db.conn_, table );
+        formatter.setCommitRows( 100 );
+        formatter.createJDBCTable( "tab", WriteMode.CREATE );
+        assertEquals( 0, db.nBatch_ );
+        assertEquals( 250, db.nUpdate_ );
+        assertEquals( 3, db.nCommit_ );
+        checkRows( table, db.rows_ );
+    }
+
+    public void testRollback() throws Exception {
+        final StarTable table = createTable( 2500 );
+        /* Fail part way through the second pass; the first is the
+         * formatter's pre-scan of column metadata. */
+        StarTable badTable = new WrapperStarTable( table ) {
+            int npass_;
+            public RowSequence getRowSequence() throws IOException {
+                final boolean fail = ++npass_ > 1;
+                return new WrapperRowSequence( table.getRowSequence() ) {
+                    int irow_;
+                    public boolean next() throws IOException {
+                        if ( fail && irow_++ == 1500 ) {
+                            throw new IOException( "Broken" );
+                        }
+                        return super.next();
+                    }
+                };
+            }
+        };
+        FakeDb db = new FakeDb( true );
+        JDBCFormatter formatter = new JDBCFormatter( db.conn_, badTable );
+        formatter.setBatchSize( 100 );
+        formatter.setCommitRows( 1000 );
+        try {
+            formatter.createJDBCTable( "tab", WriteMode.CREATE );
+            fail();
+        }
+        catch ( IOException e ) {
+            assertEquals( "Broken", e.getMessage() );
+        }
+        assertEquals( 1000, db.rows_.size() );
+        assertEquals( 1, db.nRollback_ );
+        assertTrue( db.autoCommit_ );
+    }
+
+    public void testBulkLoader() throws Exception {
+        StarTable table = createTable( 1234 );
+        FakeDb db = new FakeDb( true );
+        final List<Object[]> loaded = new ArrayList<Object[]>();
+        final String[] target = new String[ 1 ];
+        JDBCFormatter formatter = new JDBCFormatter( db.conn_, table );
+        assertTrue( formatter.getBulkLoader() instanceof PostgresCopyLoader );
+        assertFalse( formatter.getBulkLoader()
+                    .canLoad( db.conn_, new JDBCFormatter.SqlColumn[ 0 ] ) );
+        formatter.setBulkLoader( new BulkLoader() {
+            public boolean canLoad( Connection conn,
+                                    JDBCFormatter.SqlColumn[] cols ) {
+                return true;
+            }
+            public long loadRows( Connection conn, String tgt,
+                                  JDBCFormatter.SqlColumn[] cols,
+                                  RowSequence rseq )
+                    throws IOException {
+                target[ 0 ] = tgt;
+                while ( rseq.next() ) {
+                    loaded.add( rseq.getRow() );
+                }
+                return loaded.size();
+            }
+        } );
+        formatter.createJDBCTable( "tab", WriteMode.CREATE );
+        assertEquals( "tab ( \"i\", \"x\", \"s\" )", target[ 0 ] );
+        assertEquals( 0, db.nPrepare_ );
+        assertEquals( 1, db.nCommit_ );
+        checkRows( table, loaded );
+    }
+
+    public void testCsv() throws IOException {
+        ColumnStarTable table = ColumnStarTable.makeTableWithRows( 3 );
+        table.addColumn( ArrayColumn.makeColumn( "i",
+                                                 new int[] { 1, -2, 3 } ) );
+        table.addColumn( ArrayColumn.makeColumn( "x",
+                                                 new double[] {
+                                                     0.5, Double.NaN,
+                                                     Double.NEGATIVE_INFINITY,
+                                                 } ) );
+        table.addColumn( ArrayColumn.makeColumn( "s",
+                                                 new String[] {
+                                                     "a,b", "", null,
+                                                 } ) );
+        table.addColumn( ArrayColumn.makeColumn( "t",
+                                                 new String[] {
+                                                     "say \"hi\"", "\\.",
+                                                     "plain",
+                                                 } ) );
+        JDBCFormatter.SqlColumn[] cols = new JDBCFormatter.SqlColumn[] {
+            new JDBCFormatter.SqlColumn( Types.INTEGER, "i", "INTEGER" ),
+            null,
+            new JDBCFormatter.SqlColumn( Types.VARCHAR, "s", "VARCHAR(3)" ),
+            new JDBCFormatter.SqlColumn( Types.VARCHAR, "t", "VARCHAR(8)" ),
+        };
+        Reader rdr = new PostgresCopyLoader
+                        .CsvRowReader( cols, table.getRowSequence() );
+        StringBuffer sbuf = new StringBuffer();
+        char[] cbuf = new char[ 5 ];
+        for ( int n; ( n = rdr.read( cbuf, 0, cbuf.length ) ) >= 0; ) {
+            sbuf.append( cbuf, 0, n );
+        }
+        assertEquals( "1,\"a,b\",\"say \"\"hi\"\"\"\n"
+                    + "-2,,\"\\.\"\n"
+                    + "3,,plain\n",
+                      sbuf.toString() );
+
+        cols[ 1 ] = new JDBCFormatter.SqlColumn( Types.DOUBLE, "x", "DOUBLE" );
+        cols[ 2 ] = null;
+        cols[ 3 ] = null;
+        rdr = new PostgresCopyLoader.CsvRowReader( cols,
+                                                   table.getRowSequence() );
+        sbuf = new StringBuffer();
+        for ( int c; ( c = rdr.read() ) >= 0; ) {
+            sbuf.append( (char) c );
+        }
+        assertEquals( "1,0.5\n-2,\n3,-Infinity\n", sbuf.toString() );
+    }
+
+    private static void checkRows( StarTable table, List<Object[]> rows )
+            throws IOException {
+        assertEquals( table.getRowCount(), rows.size() );
+        RowSequence rseq = table.getRowSequence();
+        for ( int ir = 0; rseq.next(); ir++ ) {
+            Object[] expected = rseq.getRow();
+            Object[] actual = rows.get( ir );
+            for ( int ic = 0; ic < expected.length; ic++ ) {
+                Object e = expected[ ic ];
+                Object a = actual[ ic ];
+                if ( Tables.isBlank( e ) ) {
+                    assertTrue( Tables.isBlank( a ) );
+                }
+                else {
+                    assertEquals( e, a );
+                }
+            }
+        }
+        rseq.close();
+    }
+
+    private static StarTable createTable( int nrow ) {
+        int[] ivals = new int[ nrow ];
+        double[] xvals = new double[ nrow ];
+        String[] svals = new String[ nrow ];
+        for ( int i = 0; i < nrow; i++ ) {
+            ivals[ i ] = i;
+            xvals[ i ] = i % 10 == 0 ? Double.NaN : i * 0.25;
+            svals[ i ] = i % 7 == 0 ? null : "r" + i;
+        }
+        ColumnStarTable table = ColumnStarTable.makeTableWithRows( nrow );
+        table.addColumn( ArrayColumn.makeColumn( "i", ivals ) );
+        table.addColumn( ArrayColumn.makeColumn( "x", xvals ) );
+        table.addColumn( ArrayColumn.makeColumn( "s", svals ) );
+        return table;
+    }
+
+    /**
+     * Minimal in-memory stand-in for a database, accessed through
+     * JDBC interfaces implemented by dynamic proxies.
+     * Inserted rows are recorded, and uncommitted ones are discarded
+     * on rollback.
+     */
+    private static class FakeDb {
+        final boolean supportsBatch_;
+        final Connection conn_;
+        final List<Object[]> rows_ = new ArrayList<Object[]>();
+        boolean autoCommit_ = true;
+        int nCommitted_;
+        int nCommit_;
+        int nRollback_;
+        int nBatch_;
+        int nUpdate_;
+        int nPrepare_;
+
+        FakeDb( boolean supportsBatch ) {
+            supportsBatch_ = supportsBatch;
+            conn_ = (Connection) ProxyHandler.proxy(
+                    Connection.class, new ProxyHandler() {
+                Object call( String name, Object[] args )
+                        throws SQLException {
+                    if ( name.equals( "getMetaData" ) ) {
+                        return createMetaData();
+                    }
+                    else if ( name.equals( "createStatement" ) ) {
+                        return createStatement();
+                    }
+                    else if ( name.equals( "prepareStatement" ) ) {
+                        nPrepare_++;
+                        return createPreparedStatement();
+                    }
+                    else if ( name.equals( "getAutoCommit" ) ) {
+                        return Boolean.valueOf( autoCommit_ );
+                    }
+                    else if ( name.equals( "setAutoCommit" ) ) {
+                        autoCommit_ = ((Boolean) args[ 0 ]).booleanValue();
+                        return null;
+                    }
+                    else if ( name.equals( "commit" ) ) {
+                        if ( autoCommit_ ) {
+                            throw new SQLException( "Auto-commit mode" );
+                        }
+                        nCommit_++;
+                        nCommitted_ = rows_.size();
+                        return null;
+                    }
+                    else if ( name.equals( "rollback" ) ) {
+                        nRollback_++;
+                        while ( rows_.size() > nCommitted_ ) {
+                            rows_.remove( rows_.size() - 1 );
+                        }
+                        return null;
+                    }
+                    else {
+                        return super.call( name, args );
+                    }
+                }
+            } );
+        }
+
+        void addRow( Object[] row ) {
+            rows_.add( row );
+            if ( autoCommit_ ) {
+                nCommitted_ = rows_.size();
+            }
+        }
+
+        Statement createStatement() {
+            return (Statement) ProxyHandler.proxy(
+                    Statement.class, new ProxyHandler() {
+                Object call( String name, Object[] args )
+                        throws SQLException {
+                    return name.equals( "executeUpdate" )
+                         ? new Integer( 0 )
+                         : super.call( name, args );
+                }
+            } );
+        }
+
+        PreparedStatement createPreparedStatement() {
+            final Object[] params = new Object[ 3 ];
+            final List<Object[]> batch = new ArrayList<Object[]>();
+            return (PreparedStatement)
+                   ProxyHandler.proxy(
+                       PreparedStatement.class, new ProxyHandler() {
+                Object call( String name, Object[] args )
+                        throws SQLException {
+                    if ( name.equals( "setNull" ) ) {
+                        params[ ((Integer) args[ 0 ]).intValue() - 1 ] = null;
+                        return null;
+                    }
+                    else if ( name.equals( "setObject" ) ) {
+                        params[ ((Integer) args[ 0 ]).intValue() - 1 ] =
+                            args[ 1 ];
+                        return null;
+                    }
+                    else if ( name.equals( "addBatch" ) ) {
+                        batch.add( params.clone() );
+                        return null;
+                    }
+                    else if ( name.equals( "executeBatch" ) ) {
+                        nBatch_++;
+                        int[] counts = new int[ batch.size() ];
+                        for ( Object[] row : batch ) {
+                            addRow( row );
+                        }
+                        batch.clear();
+                        return counts;
+                    }
+                    else if ( name.equals( "executeUpdate" ) ) {
+                        nUpdate_++;
+                        addRow( params.clone() );
+                        return new Integer( 1 );
+                    }
+                    else {
+                        return super.call( name, args );
+                    }
+                }
+            } );
+        }
+
+        DatabaseMetaData createMetaData() {
+            return (DatabaseMetaData)
+                   ProxyHandler.proxy(
+                       DatabaseMetaData.class, new ProxyHandler() {
+                Object call( String name, Object[] args )
+                        throws SQLException {
+                    if ( name.equals( "getTypeInfo" ) ) {
+                        return createTypeInfo();
+                    }
+                    else if ( name.startsWith( "getMax" ) ) {
+                        return new Integer( 0 );
+                    }
+                    else if ( name.equals( "storesUpperCaseIdentifiers" ) ) {
+                        return Boolean.FALSE;
+                    }
+                    else if ( name.equals( "getIdentifierQuoteString" ) ) {
+                        return "\"";
+                    }
+                    else if ( name.equals( "getSQLKeywords" ) ) {
+                        return "";
+                    }
+                    else if ( name.equals( "supportsBatchUpdates" ) ) {
+                        return Boolean.valueOf( supportsBatch_ );
+                    }
+                    else if ( name.equals( "supportsTransactions" ) ) {
+                        return Boolean.TRUE;
+                    }
+                    else {
+                        return super.call( name, args );
+                    }
+                }
+            } );
+        }
+
+        ResultSet createTypeInfo() {
+            final String[] names = { "INTEGER", "DOUBLE", "VARCHAR", };
+            final int[] types = { Types.INTEGER, Types.DOUBLE, Types.VARCHAR, };
+            return (ResultSet) ProxyHandler.proxy(
+                    ResultSet.class, new ProxyHandler() {
+                int irow_ = -1;
+                Object call( String name, Object[] args )
+                        throws SQLException {
+                    if ( name.equals( "next" ) ) {
+                        return Boolean.valueOf( ++irow_ < names.length );
+                    }
+                    else if ( name.equals( "getString" ) ) {
+                        return names[ irow_ ];
+                    }
+                    else if ( name.equals( "getShort" ) ) {
+                        return new Short( (short) types[ irow_ ] );
+                    }
+                    else {
+                        return super.call( name, args );
+                    }
+                }
+            } );
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package uk.ac.starlink.table.jdbc;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import uk.ac.starlink.table.RowSequence;
+import uk.ac.starlink.util.TestCase;
+
+public class JDBCStarTableTest extends TestCase {
+
+    private static final String SQL = "SELECT * FROM tab";
+    private static final Pattern GE_REGEX =
+        Pattern.compile( ".* id >= ([^ ]+).*" );
+    private static final Pattern LT_REGEX =
+        Pattern.compile( ".* id < ([^ ]+).*" );
+
+    private final List<Object[]> rows_;
+
+    public JDBCStarTableTest( String name ) {
+        super( name );
+        rows_ = new ArrayList<Object[]>();
+        for ( int i = 0; i < 2000; i++ ) {
+            rows_.add( new Object[] {
+                new Integer( i * 3 - 100 ),
+                i % 11 == 0 ? null : new BigDecimal( i * 0.5 ),
+                "r" + i,
+            } );
+        }
+        for ( int i = 0; i < 5; i++ ) {
+            rows_.add( new Object[] { null, new BigDecimal( i ), "n" + i } );
+        }
+    }
+
+    public void testSequential() throws Exception {
+        JDBCStarTable table = new JDBCStarTable( new FakeConnector(), SQL );
+        assertEquals( 1, table.getPartitionCount() );
+        assertEquals( Integer.class,
+                      table.getColumnInfo( 0 ).getContentClass() );
+        assertEquals( Double.class,
+                      table.getColumnInfo( 1 ).getContentClass() );
+        assertEquals( expectedRows(), readRows( table ) );
+    }
+
+    public void testPartitioned() throws Exception {
+        JDBCStarTable table = new JDBCStarTable( new FakeConnector(), SQL );
+        table.setFetchSize( 100 );
+        assertEquals( 100, table.getFetchSize() );
+        List<List<Object>> expected = expectedRows();
+        for ( int np = 2; np < 9; np += 3 ) {
+            table.setPartitioning( "id", np, true );
+            assertEquals( np, table.getPartitionCount() );
+            assertEquals( expected, readRows( table ) );
+
+            table.setPartitioning( "id", np, false );
+            assertEquals( sorted( expected ), sorted( readRows( table ) ) );
+        }
+        table.setPartitioning( null, 4, true );
+        assertEquals( 1, table.getPartitionCount() );
+    }
+
+    public void testPartialRead() throws Exception {
+        JDBCStarTable table = new JDBCStarTable( new FakeConnector(), SQL );
+        table.setPartitioning( "id", 4, false );
+        RowSequence rseq = table.getRowSequence();
+        for ( int i = 0; i < 10; i++ ) {
+            assertTrue( rseq.next() );
+            assertEquals( 3, rseq.getRow().length );
+        }
+        rseq.close();
+    }
+
+    public void testRangeQueries() throws SQLException {
+        Connection conn = new FakeConnector().getConnection();
+        String[] sqls =
+            PartitionedRowSequence.createRangeQueries( conn, SQL, "id", 3,
+                                                       false );
+        assertEquals( 3, sqls.length );
+        assertEquals( "SELECT * FROM ( " + SQL + " ) partq WHERE id < 1899",
+                      sqls[ 0 ] );
+        assertEquals( "SELECT * FROM ( " + SQL + " ) partq "
+                    + "WHERE id >= 1899 AND id < 3898", sqls[ 1 ] );
+        assertEquals( "SELECT * FROM ( " + SQL + " ) partq "
+                    + "WHERE id >= 3898 OR id IS NULL", sqls[ 2 ] );
+        assertEquals( 1, PartitionedRowSequence
+                        .createRangeQueries( conn, SQL, "id", 1, false )
+                        .length );
+        String[] osqls =
+            PartitionedRowSequence.createRangeQueries( conn, SQL, "id", 3,
+                                                       true );
+        for ( int ip = 0; ip < 3; ip++ ) {
+            assertEquals( sqls[ ip ] + " ORDER BY CASE WHEN id IS NULL "
+                        + "THEN 1 ELSE 0 END, id", osqls[ ip ] );
+        }
+    }
+
+    private List<List<Object>> expectedRows() {
+        List<List<Object>> list = new ArrayList<List<Object>>();
+        for ( Object[] row : rows_ ) {
+            List<Object> r = new ArrayList<Object>();
+            r.add( row[ 0 ] );
+            r.add( row[ 1 ] == null
+                 ? null
+                 : new Double( ((BigDecimal) row[ 1 ]).doubleValue() ) );
+            r.add( row[ 2 ] );
+            list.add( r );
+        }
+        return list;
+    }
+
+    private static List<List<Object>> readRows( JDBCStarTable table )
+            throws IOException {
+        List<List<Object>> list = new ArrayList<List<Object>>();
+        RowSequence rseq = table.getRowSequence();
+        while ( rseq.next() ) {
+            List<Object> r = new ArrayList<Object>();
+            for ( int ic = 0; ic < 3; ic++ ) {
+                r.add( rseq.getCell( ic ) );
+            }
+            list.add( r );
+        }
+        rseq.close();
+        return list;
+    }
+
+    private static List<List<Object>> sorted( List<List<Object>> list ) {
+        list = new ArrayList<List<Object>>( list );
+        Collections.sort( list, new Comparator<List<Object>>() {
+            public int compare( List<Object> r1, List<Object> r2 ) {
+                return ((String) r1.get( 2 )).compareTo( (String) r2.get( 2 ) );
+            }
+        } );
+        return list;
+    }
+
+    /**
+     * Selects the rows matching a query understood by the fake database.
+     * Rows are stored in ascending order of id with nulls last,
+     * so ORDER BY clauses are satisfied without sorting.
+     */
+    private List<Object[]> select( String sql ) {
+        int iorder = sql.indexOf( " ORDER BY " );
+        if ( iorder >= 0 ) {
+            sql = sql.substring( 0, iorder );
+        }
+        Matcher geMatcher = GE_REGEX.matcher( sql );
+        Matcher ltMatcher = LT_REGEX.matcher( sql );
+        Integer lo = geMatcher.matches()
+                   ? Integer.valueOf( geMatcher.group( 1 ) )
+                   : null;
+        Integer hi = ltMatcher.matches()
+                   ? Integer.valueOf( ltMatcher.group( 1 ) )
+                   : null;
+        boolean withNull = sql.equals( SQL ) || sql.endsWith( "IS NULL" );
+        List<Object[]> list = new ArrayList<Object[]>();
+        for ( Object[] row : rows_ ) {
+            Integer id = (Integer) row[ 0 ];
+            if ( id == null ? withNull
+                            : ( ( lo == null || id.intValue() >= lo ) &&
+                                ( hi == null || id.intValue() < hi ) ) ) {
+                list.add( row );
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Connector supplying proxy-based connections to a fake database
+     * which holds a single table and understands only the queries
+     * that JDBCStarTable makes.
+     */
+    private class FakeConnector implements Connector {
+        public Connection getConnection() {
+            return (Connection) ProxyHandler.proxy(
+                    Connection.class, new ProxyHandler() {
+                Object call( String name, Object[] args )
+                        throws SQLException {
+                    if ( name.equals( "getMetaData" ) ) {
+                        return ProxyHandler.proxy(
+                                DatabaseMetaData.class, new ProxyHandler() {
+                            Object call( String name, Object[] args )
+                                    throws SQLException {
+                                return name.equals( "getDriverName" ) ||
+                                       name.equals( "getURL" )
+                                     ? "fake"
+                                     : super.call( name, args );
+                            }
+                        } );
+                    }
+                    else if ( name.equals( "createStatement" ) ) {
+                        return createStatement();
+                    }
+                    else if ( name.equals( "getAutoCommit" ) ) {
+                        return Boolean.TRUE;
+                    }
+                    else {
+                        return super.call( name, args );
+                    }
+                }
+            } );
+        }
+
+        Statement createStatement() {
+            return (Statement) ProxyHandler.proxy(
+                    Statement.class, new ProxyHandler() {
+                Object call( String name, Object[] args )
+                        throws SQLException {
+                    if ( name.equals( "setFetchSize" ) ||
+                         name.equals( "setMaxRows" ) ) {
+                        return null;
+                    }
+                    else if ( name.equals( "executeQuery" ) ) {
+                        String sql = (String) args[ 0 ];
+                        if ( sql.startsWith( "SELECT MIN(id), MAX(id)" ) ) {
+                            List<Object[]> rows = select( SQL );
+                            Object min = null;
+                            Object max = null;
+                            for ( Object[] row : rows ) {
+                                if ( row[ 0 ] != null ) {
+                                    max = row[ 0 ];
+                                    min = min == null ? row[ 0 ] : min;
+                                }
+                            }
+                            rows = new ArrayList<Object[]>();
+                            rows.add( new Object[] { min, max } );
+                            return createResultSet( rows );
+                        }
+                        else {
+                            return createResultSet( select( sql ) );
+                        }
+                    }
+                    else {
+                        return super.call( name, args );
+                    }
+                }
+            } );
+        }
+
+        ResultSet createResultSet( final List<Object[]> rows ) {
+            final String[] names = { "id", "x", "s" };
+            final Class[] classes =
+                { Integer.class, BigDecimal.class, String.class };
+            final ResultSetMetaData meta = (ResultSetMetaData)
+                    ProxyHandler.proxy(
+                        ResultSetMetaData.class, new ProxyHandler() {
+                Object call( String name, Object[] args )
+                        throws SQLException {
+                    int ic = args == null
+                           ? -1
+                           : ((Integer) args[ 0 ]).intValue() - 1;
+                    if ( name.equals( "getColumnCount" ) ) {
+                        return new Integer( names.length );
+                    }
+                    else if ( name.equals( "getColumnName" ) ||
+                              name.equals( "getColumnLabel" ) ||
+                              name.equals( "getColumnTypeName" ) ) {
+                        return names[ ic ];
+                    }
+                    else if ( name.equals( "getColumnClassName" ) ) {
+                        return classes[ ic ].getName();
+                    }
+                    else if ( name.equals( "isNullable" ) ) {
+                        return new Integer( ResultSetMetaData
+                                           .columnNullable );
+                    }
+                    else {
+                        return super.call( name, args );
+                    }
+                }
+            } );
+            return (ResultSet) ProxyHandler.proxy(
+                    ResultSet.class, new ProxyHandler() {
+                int irow_ = -1;
+                boolean wasNull_;
+                Object call( String name, Object[] args )
+                        throws SQLException {
+                    if ( name.equals( "getMetaData" ) ) {
+                        return meta;
+                    }
+                    else if ( name.equals( "getType" ) ) {
+                        return new Integer( ResultSet.TYPE_FORWARD_ONLY );
+                    }
+                    else if ( name.equals( "next" ) ) {
+                        return Boolean.valueOf( ++irow_ < rows.size() );
+                    }
+                    else if ( name.equals( "isBeforeFirst" ) ) {
+                        return Boolean.valueOf( irow_ < 0 );
+                    }
+                    else if ( name.equals( "wasNull" ) ) {
+                        return Boolean.valueOf( wasNull_ );
+                    }
+                    else if ( name.startsWith( "get" ) ) {
+                        Object val = rows.get( irow_ )
+                                    [ ((Integer) args[ 0 ]).intValue() - 1 ];
+                        wasNull_ = val == null;
+                        if ( name.equals( "getObject" ) ) {
+                            return val;
+                        }
+                        else if ( name.equals( "getInt" ) ) {
+                            return new Integer( val == null
+                                              ? 0
+                                              : ((Number) val).intValue() );
+                        }
+                        else if ( name.equals( "getDouble" ) ) {
+                            return new Double( val == null
+                                             ? 0
+                                             : ((Number) val).doubleValue() );
+                        }
+                    }
+                    return super.call( name, args );
+                }
+            } );
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package uk.ac.starlink.table.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+
+/**
+ * Invocation handler which dispatches on method name,
+ * for use in faking up JDBC objects in tests.
+ * Subclasses override {@link #call} to implement the methods they need.
+ */
+class ProxyHandler implements InvocationHandler {
+
+    public Object invoke( Object proxy, Method method, Object[] args )
+            throws SQLException {
+        String name = method.getName();
+        if ( name.equals( "hashCode" ) ) {
+            return new Integer( System.identityHashCode( proxy ) );
+        }
+        else if ( name.equals( "equals" ) ) {
+            return Boolean.valueOf( proxy == args[ 0 ] );
+        }
+        else if ( name.equals( "toString" ) ) {
+            return "Fake " + method.getDeclaringClass().getName();
+        }
+        return call( name, args );
+    }
+
+    /**
+     * Handles a call on the proxy.  The default implementation
+     * does nothing for <code>close</code> and throws an exception
+     * otherwise.
+     *
+     * @param  name  method name
+     * @param  args  method arguments
+     * @return  return value
+     */
+    Object call( String name, Object[] args ) throws SQLException {
+        if ( name.equals( "close" ) ) {
+            return null;
+        }
+        throw new UnsupportedOperationException( name );
+    }
+
+    /**
+     * Returns a proxy instance implementing a given interface.
+     *
+     * @param  clazz  interface to implement
+     * @param  handler  invocation handler
+     * @return  proxy object
+     */
+    static Object proxy( Class clazz, InvocationHandler handler ) {
+        return Proxy.newProxyInstance( clazz.getClassLoader(),
+                                       new Class[] { clazz }, handler );
+    }
+}
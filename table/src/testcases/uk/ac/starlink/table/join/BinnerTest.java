@@ -23,6 +23,37 @@ public class BinnerTest extends TestCase {
         }
     }
 
+    public void testLongKeyBinner() {
+        LongKeyBinner binner = new LongKeyBinner();
+        LongKeyBinner other = new LongKeyBinner();
+        int nkey = 5000;
+        for ( int i = 0; i < nkey * 3; i++ ) {
+            long key = ( i % nkey ) * 1000003L - 77;
+            ( i < nkey * 2 ? binner : other ).addItem( key, i );
+        }
+        assertEquals( nkey, binner.getBinCount() );
+        assertEquals( nkey * 2, binner.getItemCount() );
+        binner.addAll( other );
+        assertEquals( nkey, binner.getBinCount() );
+        assertEquals( nkey * 3, binner.getItemCount() );
+        long[] keys = binner.getKeys();
+        assertEquals( nkey, keys.length );
+        long[] buf = new long[ 4 ];
+        for ( int ik = 0; ik < nkey; ik++ ) {
+            long key = ik * 1000003L - 77;
+            assertEquals( 3, binner.getItemCount( key ) );
+            assertEquals( 3, binner.getItems( key, buf, 1 ) );
+            assertEquals( ik, buf[ 1 ] );
+            assertEquals( ik + nkey, buf[ 2 ] );
+            assertEquals( ik + nkey * 2, buf[ 3 ] );
+        }
+        Arrays.sort( keys );
+        assertEquals( -77, keys[ 0 ] );
+        assertEquals( 0, binner.getItemCount( 23 ) );
+        assertEquals( 0, binner.getItems( 23, buf, 0 ) );
+        assertTrue( binner.getStorageSize() > 8 * binner.getItemCount() );
+    }
+
     private void exerciseLongBinner( LongBinner binner, int count ) {
         String[] keys = new String[] { "A", "B", };
         long[] a1 = new long[ count * 2 ];
@@ -0,0 +1,193 @@
+package uk.ac.starlink.table.join;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import uk.ac.starlink.table.StoragePolicy;
+import uk.ac.starlink.util.TestCase;
+
+public class LinkSetTest extends TestCase {
+
+    public LinkSetTest( String name ) {
+        super( name );
+    }
+
+    public void testPacked() {
+        exerciseLinkSet( new PackedLinkSet( null, 100 ), 0 );
+        exerciseLinkSet( new PackedLinkSet( StoragePolicy.PREFER_MEMORY, 50 ),
+                         1 );
+        exerciseLinkSet( new PackedLinkSet( StoragePolicy.PREFER_DISK, 37 ),
+                         2 );
+        exerciseLinkSet( new PackedLinkSet( StoragePolicy.ADAPTIVE, 1 ), 3 );
+    }
+
+    public void testReplace() {
+        RowRef[] refs = new RowRef[] {
+            new RowRef( 0, 1L ), new RowRef( 1, 2L ), new RowRef( 2, 3L ),
+        };
+        RowLink link1 = new RowLink( refs );
+        RowLink link2 = new RowLink( refs.clone() );
+        assertEquals( link1, link2 );
+        LinkSet packed = new PackedLinkSet( null, 100 );
+        packed.addLink( link1 );
+        packed.addLink( link2 );
+        assertEquals( 1, packed.size() );
+        Iterator it = packed.iterator();
+        assertSame( link2, it.next() );
+        assertTrue( ! it.hasNext() );
+    }
+
+    public void testBudget() {
+        PackedLinkSet.MemoryBudget budget =
+            new PackedLinkSet.MemoryBudget( 100 );
+        PackedLinkSet set1 =
+            new PackedLinkSet( StoragePolicy.PREFER_DISK, budget );
+        PackedLinkSet set2 =
+            new PackedLinkSet( StoragePolicy.PREFER_DISK, budget );
+        for ( int i = 0; i < 80; i++ ) {
+            set1.addLink( new RowLink2( new RowRef( 0, i ),
+                                        new RowRef( 1, i ) ) );
+        }
+        assertEquals( 0, set1.getRunCount() );
+
+        /* The shared budget is exceeded before either set reaches it. */
+        for ( int i = 0; i < 80; i++ ) {
+            set2.addLink( new RowLink2( new RowRef( 0, i ),
+                                        new RowRef( 1, i + 1 ) ) );
+        }
+        assertTrue( set1.getRunCount() + set2.getRunCount() > 0 );
+        assertEquals( 80, set1.size() );
+        assertEquals( 80, set2.size() );
+
+        /* Disposal empties the set and frees its share of the budget. */
+        set1.dispose();
+        assertEquals( 0, set1.size() );
+        assertEquals( 0, set1.getRunCount() );
+        assertTrue( ! set1.iterator().hasNext() );
+        set2.dispose();
+        assertEquals( 0L, budget.nrec_.get() );
+        assertEquals( 0, budget.nset_.get() );
+    }
+
+    public void testCompare() {
+        Random rnd = new Random( 9901L );
+        List<RowLink> links = new ArrayList<RowLink>();
+        for ( int i = 0; i < 400; i++ ) {
+            links.add( createLink( rnd ) );
+        }
+        for ( RowLink a : links ) {
+            for ( RowLink b : links ) {
+                int cmp = compareKeys( a, b );
+                assertEquals( a.equals( b ), cmp == 0 );
+                int natural = a.compareTo( b );
+                if ( natural != 0 ) {
+                    assertEquals( natural < 0, cmp < 0 );
+                }
+                assertEquals( -Integer.signum( cmp ),
+                              Integer.signum( compareKeys( b, a ) ) );
+            }
+        }
+    }
+
+    private void exerciseLinkSet( PackedLinkSet packed, long seed ) {
+        LinkSet ref = new TreeSetLinkSet();
+        Random rnd = new Random( 4421L + seed );
+        for ( int i = 0; i < 3000; i++ ) {
+            RowLink link = createLink( rnd );
+            double r = rnd.nextDouble();
+            if ( r < 0.6 ) {
+                ref.removeLink( link );
+                ref.addLink( link );
+                packed.addLink( link );
+            }
+            else if ( r < 0.8 ) {
+                assertEquals( ref.removeLink( link ),
+                              packed.removeLink( link ) );
+            }
+            else {
+                assertEquals( ref.containsLink( link ),
+                              packed.containsLink( link ) );
+            }
+            assertEquals( ref.size(), packed.size() );
+            if ( i % 1000 == 999 ) {
+                assertEquals( describe( ref ), describe( packed ) );
+            }
+        }
+        assertTrue( packed.sort() );
+        assertEquals( describe( ref ), describe( packed ) );
+
+        /* Remove every third link during iteration. */
+        int il = 0;
+        for ( Iterator it = packed.iterator(); it.hasNext(); ) {
+            RowLink link = (RowLink) it.next();
+            if ( il++ % 3 == 0 ) {
+                it.remove();
+                assertTrue( ref.removeLink( link ) );
+            }
+        }
+        assertEquals( ref.size(), packed.size() );
+        assertEquals( describe( ref ), describe( packed ) );
+
+        /* Remove the rest. */
+        for ( Iterator it = packed.iterator(); it.hasNext(); ) {
+            it.next();
+            it.remove();
+        }
+        assertEquals( 0, packed.size() );
+        assertTrue( ! packed.iterator().hasNext() );
+    }
+
+    private static RowLink createLink( Random rnd ) {
+        RowRef ref1 = new RowRef( rnd.nextInt( 3 ), rnd.nextInt( 40 ) );
+        RowRef ref2 = new RowRef( rnd.nextInt( 3 ), rnd.nextInt( 40 ) );
+        switch ( rnd.nextInt( 4 ) ) {
+            case 0:
+                return new RowLink( ref1 );
+            case 1:
+                return new RowLink( new RowRef[] { ref1, ref2 } );
+            case 2:
+                return new RowLink( new RowRef[] {
+                    ref1, ref2, new RowRef( 2, rnd.nextInt( 40 ) ),
+                } );
+            default:
+                RowLink2 link2 = new RowLink2( ref1, ref2 );
+                link2.setScore( rnd.nextDouble() );
+                return link2;
+        }
+    }
+
+    private static int compareKeys( RowLink a, RowLink b ) {
+        if ( a.size() > 2 || b.size() > 2 ) {
+            return a.equals( b ) ? 0 : ( a.compareTo( b ) <= 0 ? -1 : +1 );
+        }
+        return PackedLinkSet.compareKeys( a.getRef( 0 ).getTableIndex(),
+                                          a.getRef( 0 ).getRowIndex(),
+                                          a.size() > 1
+                                              ? a.getRef( 1 ).getTableIndex()
+                                              : -1,
+                                          a.size() > 1
+                                              ? a.getRef( 1 ).getRowIndex()
+                                              : -1L,
+                                          b.getRef( 0 ).getTableIndex(),
+                                          b.getRef( 0 ).getRowIndex(),
+                                          b.size() > 1
+                                              ? b.getRef( 1 ).getTableIndex()
+                                              : -1,
+                                          b.size() > 1
+                                              ? b.getRef( 1 ).getRowIndex()
+                                              : -1L );
+    }
+
+    private static List<String> describe( LinkSet links ) {
+        List<String> list = new ArrayList<String>();
+        for ( Iterator it = links.iterator(); it.hasNext(); ) {
+            RowLink link = (RowLink) it.next();
+            list.add( link.getClass().getName() + link
+                    + ( link instanceof RowLink2
+                            ? " " + ((RowLink2) link).getScore()
+                            : "" ) );
+        }
+        return list;
+    }
+}
@@ -0,0 +1,191 @@
+package uk.ac.starlink.table.join;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import uk.ac.starlink.table.ArrayColumn;
+import uk.ac.starlink.table.ColumnStarTable;
+import uk.ac.starlink.table.RowRunner;
+import uk.ac.starlink.table.StarTable;
+import uk.ac.starlink.util.TestCase;
+
+public class ParallelMatchTest extends TestCase {
+
+    private final StarTable[] tables_;
+    private final MatchEngine engine_;
+    private final RowRunner[] runners_;
+
+    public ParallelMatchTest( String name ) {
+        super( name );
+        Random rnd = new Random( 230001L );
+        tables_ = new StarTable[] {
+            createTable( rnd, 4000 ),
+            createTable( rnd, 3000 ),
+            createTable( rnd, 2000 ),
+        };
+        engine_ = new IsotropicCartesianMatchEngine( 2, 0.004, false );
+        runners_ = new RowRunner[] {
+            new RowRunner( 4, 100 ),
+            new RowRunner( 3, 1 ),
+        };
+    }
+
+    public void testPairs() throws Exception {
+        StarTable[] pair = new StarTable[] { tables_[ 0 ], tables_[ 1 ] };
+        PairMode[] modes = PairMode.values();
+        for ( int im = 0; im < modes.length; im++ ) {
+            PairMode mode = modes[ im ];
+            List<String> seqLinks =
+                describe( createMatcher( pair, RowRunner.SEQUENTIAL )
+                         .findPairMatches( mode ) );
+            assertTrue( seqLinks.size() > 100 );
+            for ( int ir = 0; ir < runners_.length; ir++ ) {
+                assertEquals( seqLinks,
+                              describe( createMatcher( pair, runners_[ ir ] )
+                                       .findPairMatches( mode ) ) );
+            }
+        }
+    }
+
+    public void testInternal() throws Exception {
+        StarTable[] single = new StarTable[] { tables_[ 0 ] };
+        List<String> seqLinks =
+            describe( createMatcher( single, RowRunner.SEQUENTIAL )
+                     .findInternalMatches( false ) );
+        assertTrue( seqLinks.size() > 10 );
+        for ( int ir = 0; ir < runners_.length; ir++ ) {
+            assertEquals( seqLinks,
+                          describe( createMatcher( single, runners_[ ir ] )
+                                   .findInternalMatches( false ) ) );
+        }
+    }
+
+    public void testMulti() throws Exception {
+        MultiJoinType[] joinTypes = new MultiJoinType[ tables_.length ];
+        for ( int i = 0; i < joinTypes.length; i++ ) {
+            joinTypes[ i ] = MultiJoinType.DEFAULT;
+        }
+        List<String> seqGroups =
+            describe( createMatcher( tables_, RowRunner.SEQUENTIAL )
+                     .findGroupMatches( joinTypes ) );
+        List<String> seqPairs =
+            describe( createMatcher( tables_, RowRunner.SEQUENTIAL )
+                     .findMultiPairMatches( 0, true, joinTypes ) );
+        assertTrue( seqGroups.size() > 100 );
+        assertTrue( seqPairs.size() > 100 );
+        for ( int ir = 0; ir < runners_.length; ir++ ) {
+            assertEquals( seqGroups,
+                          describe( createMatcher( tables_, runners_[ ir ] )
+                                   .findGroupMatches( joinTypes ) ) );
+            assertEquals( seqPairs,
+                          describe( createMatcher( tables_, runners_[ ir ] )
+                                   .findMultiPairMatches( 0, true,
+                                                          joinTypes ) ) );
+        }
+    }
+
+    public void testLongBins() throws Exception {
+        final MatchEngine longEngine =
+            new FixedSkyMatchEngine( new PixtoolsHealpixSkyPixellator(),
+                                     Math.toRadians( 0.05 ) );
+        assertTrue( longEngine instanceof LongBinMatchEngine );
+        MatchEngine objEngine =
+            new CombinedMatchEngine( new MatchEngine[] { longEngine } );
+        assertFalse( objEngine instanceof LongBinMatchEngine );
+        StarTable[] skyTables = new StarTable[ 2 ];
+        Random rnd = new Random( 55501L );
+        for ( int i = 0; i < 2; i++ ) {
+            int nrow = 3000;
+            double[] ras = new double[ nrow ];
+            double[] decs = new double[ nrow ];
+            for ( int ir = 0; ir < nrow; ir++ ) {
+                ras[ ir ] = Math.toRadians( 10 + rnd.nextDouble() * 5 );
+                decs[ ir ] = Math.toRadians( -20 + rnd.nextDouble() * 5 );
+            }
+            ColumnStarTable table = ColumnStarTable.makeTableWithRows( nrow );
+            table.addColumn( ArrayColumn.makeColumn( "ra", ras ) );
+            table.addColumn( ArrayColumn.makeColumn( "dec", decs ) );
+            skyTables[ i ] = table;
+        }
+        StarTable[] single = new StarTable[] { skyTables[ 0 ] };
+        PairMode[] modes = PairMode.values();
+        for ( int im = 0; im < modes.length; im++ ) {
+            LinkSet objLinks = new RowMatcher( objEngine, skyTables )
+                              .findPairMatches( modes[ im ] );
+            LinkSet longLinks = new RowMatcher( longEngine, skyTables )
+                               .findPairMatches( modes[ im ] );
+            RowMatcher pMatcher = new RowMatcher( longEngine, skyTables );
+            pMatcher.setRowRunner( runners_[ 0 ] );
+            List<String> longDescrip = describe( longLinks );
+            assertTrue( longDescrip.size() > 100 );
+            assertEquals( longDescrip,
+                          describe( pMatcher
+                                   .findPairMatches( modes[ im ] ) ) );
+
+            /* CombinedMatchEngine rescales scores, so just compare refs. */
+            assertEquals( describeRefs( objLinks ),
+                          describeRefs( longLinks ) );
+        }
+        List<String> objInternal =
+            describeRefs( new RowMatcher( objEngine, single )
+                         .findInternalMatches( false ) );
+        assertTrue( objInternal.size() > 100 );
+        assertEquals( objInternal,
+                      describeRefs( new RowMatcher( longEngine, single )
+                                   .findInternalMatches( false ) ) );
+    }
+
+    private RowMatcher createMatcher( StarTable[] tables, RowRunner runner ) {
+        RowMatcher matcher = new RowMatcher( engine_, tables );
+        matcher.setRowRunner( runner );
+        return matcher;
+    }
+
+    private static List<String> describe( LinkSet links ) {
+        List<String> list = new ArrayList<String>();
+        for ( Iterator it = links.iterator(); it.hasNext(); ) {
+            RowLink link = (RowLink) it.next();
+            StringBuffer sbuf = new StringBuffer();
+            for ( int i = 0; i < link.size(); i++ ) {
+                sbuf.append( link.getRef( i ) )
+                    .append( ' ' );
+            }
+            if ( link instanceof RowLink2 ) {
+                sbuf.append( ((RowLink2) link).getScore() );
+            }
+            list.add( sbuf.toString() );
+        }
+        Collections.sort( list );
+        return list;
+    }
+
+    private static List<String> describeRefs( LinkSet links ) {
+        List<String> list = new ArrayList<String>();
+        for ( Iterator it = links.iterator(); it.hasNext(); ) {
+            RowLink link = (RowLink) it.next();
+            StringBuffer sbuf = new StringBuffer();
+            for ( int i = 0; i < link.size(); i++ ) {
+                sbuf.append( link.getRef( i ) )
+                    .append( ' ' );
+            }
+            list.add( sbuf.toString() );
+        }
+        Collections.sort( list );
+        return list;
+    }
+
+    private static StarTable createTable( Random rnd, int nrow ) {
+        double[] xs = new double[ nrow ];
+        double[] ys = new double[ nrow ];
+        for ( int i = 0; i < nrow; i++ ) {
+            xs[ i ] = rnd.nextDouble();
+            ys[ i ] = rnd.nextDouble();
+        }
+        ColumnStarTable table = ColumnStarTable.makeTableWithRows( nrow );
+        table.addColumn( ArrayColumn.makeColumn( "x", xs ) );
+        table.addColumn( ArrayColumn.makeColumn( "y", ys ) );
+        return table;
+    }
+}
@@ -51,9 +51,35 @@ public class SkyPixellatorTest extends TestCase {
             Object[] disc1 = pixellator.getPixels( ra1, dec1, radius );
             Object[] disc2 = pixellator.getPixels( ra2, dec2, radius );
             assertTrue( hasOverlap( disc1, disc2 ) );
+            assertEquals( toLongSet( disc1 ),
+                          getPixelIndexSet( pixellator, ra1, dec1, radius ) );
         }
     }
 
+    private Set getPixelIndexSet( SkyPixellator pixellator,
+                                  double alpha, double delta, double radius ) {
+        long[] buf = new long[ 1 ];
+        int npix = pixellator.getPixelIndices( alpha, delta, radius, buf );
+        if ( npix > buf.length ) {
+            buf = new long[ npix ];
+            assertEquals( npix, pixellator.getPixelIndices( alpha, delta,
+                                                            radius, buf ) );
+        }
+        Set set = new HashSet();
+        for ( int i = 0; i < npix; i++ ) {
+            set.add( new Long( buf[ i ] ) );
+        }
+        return set;
+    }
+
+    private Set toLongSet( Object[] pixels ) {
+        Set set = new HashSet();
+        for ( int i = 0; i < pixels.length; i++ ) {
+            set.add( new Long( ((Number) pixels[ i ]).longValue() ) );
+        }
+        return set;
+    }
+
     private boolean hasOverlap( Object[] a1, Object[] a2 ) {
         Set intersect = new HashSet( Arrays.asList( a1 ) );
         intersect.retainAll( Arrays.asList( a2 ) );
@@ -1,6 +1,7 @@
 package uk.ac.starlink.table.storage;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
@@ -38,6 +39,8 @@ public class StorageTest extends TestCase {
         assertEquals( StoragePolicy.PREFER_MEMORY, getPolicy( "memory" ) );
         assertEquals( StoragePolicy.PREFER_DISK, getPolicy( "disk" ) );
         assertEquals( StoragePolicy.SIDEWAYS, getPolicy( "sideways" ) );
+        assertEquals( StoragePolicy.COLUMNAR, getPolicy( "columnar" ) );
+        assertEquals( StoragePolicy.OFFHEAP, getPolicy( "offheap" ) );
         assertEquals( StoragePolicy.DISCARD, getPolicy( "discard" ) );
         assertEquals( StoragePolicy.ADAPTIVE, getPolicy( "adaptive" ) );
 
@@ -47,6 +50,10 @@ public class StorageTest extends TestCase {
                        StoragePolicy.PREFER_DISK.toString() );
         assertEquals( "StoragePolicy.SIDEWAYS",
                        StoragePolicy.SIDEWAYS.toString() );
+        assertEquals( "StoragePolicy.COLUMNAR",
+                       StoragePolicy.COLUMNAR.toString() );
+        assertEquals( "StoragePolicy.OFFHEAP",
+                       StoragePolicy.OFFHEAP.toString() );
         assertEquals( "StoragePolicy.DISCARD",
                        StoragePolicy.DISCARD.toString() );
         assertEquals( "StoragePolicy.ADAPTIVE",
@@ -58,6 +65,10 @@ public class StorageTest extends TestCase {
                     instanceof DiskRowStore );
         assertTrue( StoragePolicy.SIDEWAYS.makeRowStore()
                     instanceof SidewaysRowStore );
+        assertTrue( StoragePolicy.COLUMNAR.makeRowStore()
+                    instanceof ColumnarRowStore );
+        assertTrue( StoragePolicy.OFFHEAP.makeRowStore()
+                    instanceof OffHeapRowStore );
         assertTrue( StoragePolicy.DISCARD.makeRowStore()
                     instanceof DiscardRowStore );
         assertTrue( StoragePolicy.ADAPTIVE.makeRowStore()
@@ -129,6 +140,12 @@ public class StorageTest extends TestCase {
                                 fillStore( new SidewaysRowStore(), t2 );
         SidewaysRowStore sst3 = (SidewaysRowStore)
                                 fillStore( new SidewaysRowStore(), t3 );
+        StarTable ct1 = fillStore( new ColumnarRowStore(), t1 ).getStarTable();
+        StarTable ct3 = fillStore( new ColumnarRowStore(), t3 ).getStarTable();
+        StarTable ot1 = fillStore( new OffHeapRowStore(), t1 ).getStarTable();
+        StarTable ot2 = fillStore( new OffHeapRowStore(), t2 ).getStarTable();
+        StarTable ot3 = fillStore( new OffHeapRowStore( 6 ), t3 )
+                       .getStarTable();
 
         assertTrue( fixedRows( dst1 ) );
         assertTrue( fixedRows( dst2 ) );
@@ -146,6 +163,8 @@ public class StorageTest extends TestCase {
         checkTables( t1, dt1, mt1, st1 );
         checkTables( t2, dt2, mt2, st2 );
         checkTables( t3, dt3, mt3, st3 );
+        checkTables( t1, ct1, ct3, st1 );
+        checkTables( t3, ot3, mt3, st3 );
 
         fTest_.assertTableEquals( t1, dt1 );
         fTest_.assertTableEquals( t1, mt1 );
@@ -153,6 +172,13 @@ public class StorageTest extends TestCase {
         fTest_.assertTableEquals( t3, dt3 );
         fTest_.assertTableEquals( t3, mt3 );
         fTest_.assertTableEquals( t3, st3 );
+        fTest_.assertTableEquals( t1, ct1 );
+        fTest_.assertTableEquals( t3, ct3 );
+        fTest_.assertTableEquals( t1, ot1 );
+        fTest_.assertTableEquals( t3, ot3 );
+
+        /* Off-heap storage does not truncate fixed-length strings. */
+        fTest_.assertTableEquals( t2, ot2 );
 
         String err;
         try {
@@ -270,6 +296,18 @@ public class StorageTest extends TestCase {
         }
         catch ( TableFormatException e ) {
         }
+        try {
+            new ColumnarRowStore().acceptMetadata( table );
+            fail();
+        }
+        catch ( TableFormatException e ) {
+        }
+        try {
+            new OffHeapRowStore().acceptMetadata( table );
+            fail();
+        }
+        catch ( TableFormatException e ) {
+        }
         try {
             new ByteStoreRowStore( new MemoryByteStore() )
                                   .acceptMetadata( table );
@@ -279,6 +317,198 @@ public class StorageTest extends TestCase {
         }
     }
 
+    public void testPrimitiveAccess() throws IOException {
+        int nrow = 3000;
+        ColumnStarTable t0 = ColumnStarTable.makeTableWithRows( nrow );
+        double[] dvals = new double[ nrow ];
+        float[] fvals = new float[ nrow ];
+        Long[] lvals = new Long[ nrow ];
+        Integer[] ivals = new Integer[ nrow ];
+        short[] svals = new short[ nrow ];
+        Byte[] bvals = new Byte[ nrow ];
+        Boolean[] zvals = new Boolean[ nrow ];
+        String[] strs = new String[ nrow ];
+        for ( int i = 0; i < nrow; i++ ) {
+            boolean blank = i % 13 == 5;
+            dvals[ i ] = blank ? Double.NaN : i * 0.25 - 100;
+            fvals[ i ] = blank ? Float.NaN : i * -1.5f;
+            lvals[ i ] = blank ? null : new Long( i * 1000000007L );
+            ivals[ i ] = i < 2000 ? new Integer( i - 1000 ) : null;
+            svals[ i ] = (short) i;
+            bvals[ i ] = blank ? null : new Byte( (byte) i );
+            zvals[ i ] = blank ? null : Boolean.valueOf( i % 3 == 0 );
+            strs[ i ] = blank ? null : "s" + i;
+        }
+        t0.addColumn( ArrayColumn.makeColumn( "d", dvals ) );
+        t0.addColumn( ArrayColumn.makeColumn( "f", fvals ) );
+        t0.addColumn( ArrayColumn.makeColumn( "l", lvals ) );
+        t0.addColumn( ArrayColumn.makeColumn( "i", ivals ) );
+        t0.addColumn( ArrayColumn.makeColumn( "s", svals ) );
+        t0.addColumn( ArrayColumn.makeColumn( "b", bvals ) );
+        t0.addColumn( ArrayColumn.makeColumn( "z", zvals ) );
+        t0.addColumn( ArrayColumn.makeColumn( "str", strs ) );
+
+        StarTable t1 = StoragePolicy.COLUMNAR.copyTable( t0 );
+        fTest_.assertTableEquals( t0, t1 );
+        PrimitiveColumnAccess pt1 = (PrimitiveColumnAccess) t1;
+        assertEquals( double.class, pt1.getPrimitiveClass( 0 ) );
+        assertEquals( long.class, pt1.getPrimitiveClass( 2 ) );
+        assertEquals( boolean.class, pt1.getPrimitiveClass( 6 ) );
+        assertNull( pt1.getPrimitiveClass( 7 ) );
+        checkPrimitiveAccess( t1, pt1 );
+
+        StarTable t2 = StoragePolicy.OFFHEAP.copyTable( t0 );
+        fTest_.assertTableEquals( t0, t2 );
+        checkPrimitiveAccess( t2, (PrimitiveColumnAccess) t2 );
+        StarTable t3 = fillStore( new OffHeapRowStore( 6 ), t0 )
+                      .getStarTable();
+        fTest_.assertTableEquals( t0, t3 );
+        checkPrimitiveAccess( t3, (PrimitiveColumnAccess) t3 );
+
+        /* Exercise segment boundaries with a tiny segment size. */
+        for ( int icol = 0; icol < 7; icol++ ) {
+            Class clazz = pt1.getPrimitiveClass( icol );
+            File dfile = File.createTempFile( "pcs", ".bin" );
+            File bfile = new File( dfile + "_blank" );
+            PrimitiveColumnStore store =
+                new PrimitiveColumnStore( clazz, dfile, bfile, 6 );
+            for ( int ir = 0; ir < nrow; ir++ ) {
+                store.acceptCell( t0.getCell( ir, icol ) );
+            }
+            store.endCells();
+            for ( int ir = 0; ir < nrow; ir++ ) {
+                assertEquals( t0.getCell( ir, icol ), store.readCell( ir ) );
+            }
+            boolean[] blanks = new boolean[ 100 ];
+            store.readBlanks( 37, blanks, 0, 100 );
+            for ( int i = 0; i < 100; i++ ) {
+                assertEquals( Tables.isBlank( t0.getCell( 37 + i, icol ) ),
+                              blanks[ i ] );
+            }
+            dfile.delete();
+            bfile.delete();
+        }
+    }
+
+    public void testOffHeap() throws IOException {
+        ColumnStarTable big = ColumnStarTable.makeTableWithRows( 500000 );
+        big.addColumn( ArrayColumn.makeColumn( "a", new double[ 0 ] ) );
+        big.addColumn( ArrayColumn.makeColumn( "b", new int[ 0 ] ) );
+        ColumnStarTable small = ColumnStarTable.makeTableWithRows( 10 );
+        small.addColumn( ArrayColumn.makeColumn( "a", new double[ 0 ] ) );
+        assertTrue( StoragePolicy.PREFER_MEMORY.makeConfiguredRowStore( big )
+                    instanceof ListRowStore );
+        assertTrue( StoragePolicy.OFFHEAP.makeConfiguredRowStore( big )
+                    instanceof OffHeapRowStore );
+        assertTrue( StoragePolicy.PREFER_MEMORY
+                                 .makeConfiguredRowStore( small )
+                    instanceof ListRowStore );
+        assertTrue( StoragePolicy.OFFHEAP.makeConfiguredRowStore( small )
+                    instanceof ListRowStore );
+
+        int nrow = 5000;
+        ColumnStarTable t0 = ColumnStarTable.makeTableWithRows( nrow );
+        double[] dvals = new double[ nrow ];
+        String[] strs = new String[ nrow ];
+        int[][] arrays = new int[ nrow ][];
+        for ( int i = 0; i < nrow; i++ ) {
+            dvals[ i ] = i;
+            strs[ i ] = i % 7 == 0 ? null : "row " + i;
+            arrays[ i ] = new int[ i % 5 + 1 ];
+            arrays[ i ][ 0 ] = i;
+        }
+        t0.addColumn( ArrayColumn.makeColumn( "d", dvals ) );
+        t0.addColumn( ArrayColumn.makeColumn( "s", strs ) );
+        t0.addColumn( ArrayColumn.makeColumn( "a", arrays ) );
+        MonitorStoragePolicy policy =
+            new MonitorStoragePolicy( StoragePolicy.OFFHEAP,
+                                      new DiscardRowStore() );
+        assertEquals( 0L, policy.getOffHeapSize() );
+        StarTable t1 = policy.copyTable( t0 );
+        fTest_.assertTableEquals( t0, t1 );
+        assertTrue( policy.getOffHeapSize() >= nrow * 8 );
+        assertTrue( policy.getHeapSize() > 0 );
+        assertTrue( policy.getHeapSize() < policy.getOffHeapSize() );
+
+        /* Values of the wrong type are rejected. */
+        ColumnStarTable t2 = ColumnStarTable.makeTableWithRows( 2 );
+        t2.addColumn( new ColumnData( new ColumnInfo( "x", String.class,
+                                                      null ) ) {
+            public Object readValue( long irow ) {
+                return irow == 0 ? (Object) "ok" : (Object) new Integer( 1 );
+            }
+        } );
+        try {
+            fillStore( new OffHeapRowStore(), t2 );
+            fail();
+        }
+        catch ( IOException e ) {
+        }
+    }
+
+    private void checkPrimitiveAccess( StarTable table,
+                                       PrimitiveColumnAccess pacc )
+            throws IOException {
+        int nrow = (int) table.getRowCount();
+        int off = 3;
+        int n = nrow - 200;
+        long irow = 101;
+        double[] dbuf = new double[ n + off ];
+        long[] lbuf = new long[ n + off ];
+        boolean[] zbuf = new boolean[ n + off ];
+        boolean[] blanks = new boolean[ n + off ];
+        for ( int icol = 0; icol < 7; icol++ ) {
+            Class clazz = pacc.getPrimitiveClass( icol );
+            boolean isInt = clazz != double.class && clazz != float.class
+                         && clazz != boolean.class;
+            pacc.readBlanks( icol, irow, blanks, off, n );
+            if ( clazz != boolean.class ) {
+                pacc.readDoubles( icol, irow, dbuf, off, n );
+            }
+            else {
+                pacc.readBooleans( icol, irow, zbuf, off, n );
+            }
+            if ( isInt ) {
+                pacc.readLongs( icol, irow, lbuf, off, n );
+            }
+            else {
+                try {
+                    pacc.readLongs( icol, irow, lbuf, off, n );
+                    fail();
+                }
+                catch ( UnsupportedOperationException e ) {
+                }
+            }
+            for ( int i = 0; i < n; i++ ) {
+                Object cell = table.getCell( irow + i, icol );
+                boolean isBlank = Tables.isBlank( cell );
+                assertEquals( isBlank, blanks[ off + i ] );
+                if ( clazz == boolean.class ) {
+                    assertEquals( cell != null &&
+                                  ((Boolean) cell).booleanValue(),
+                                  zbuf[ off + i ] );
+                }
+                else if ( isBlank ) {
+                    assertTrue( Double.isNaN( dbuf[ off + i ] ) );
+                }
+                else {
+                    assertEquals( ((Number) cell).doubleValue(),
+                                  dbuf[ off + i ], 0.0 );
+                    if ( isInt ) {
+                        assertEquals( ((Number) cell).longValue(),
+                                      lbuf[ off + i ] );
+                    }
+                }
+            }
+        }
+        try {
+            pacc.readDoubles( 7, 0, dbuf, 0, 1 );
+            fail();
+        }
+        catch ( UnsupportedOperationException e ) {
+        }
+    }
+
     private void checkTables( StarTable tab1, StarTable tab2, StarTable tab3,
                               StarTable tab4 )
             throws IOException {
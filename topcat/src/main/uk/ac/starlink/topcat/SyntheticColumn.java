@@ -13,6 +13,7 @@ import uk.ac.starlink.table.ColumnInfo;
 import uk.ac.starlink.table.DescribedValue;
 import uk.ac.starlink.table.DefaultValueInfo;
 import uk.ac.starlink.table.ValueInfo;
+import uk.ac.starlink.ttools.jel.RandomJELEvaluator;
 import uk.ac.starlink.ttools.jel.RandomJELRowReader;
 
 /**
@@ -25,14 +26,16 @@ import uk.ac.starlink.ttools.jel.RandomJELRowReader;
  * <p>
  * The engine used for expression evaluation is the GNU 
  * Java Expressions Library (JEL).
+ * Values may be read concurrently from multiple threads without
+ * contention, since each thread evaluates the expression
+ * using its own copy of the row reader.
  *
  * @author   Mark Taylor (Starlink)
  * @see      <a href="http://galaxy.fzu.cz/JEL/">JEL</a>
  */
 public class SyntheticColumn extends ColumnData {
 
-    private CompiledExpression compEx_;
-    private RandomJELRowReader rowReader_;
+    private RandomJELEvaluator evaluator_;
 
     private static Logger logger = Logger.getLogger( "uk.ac.starlink.topcat" );
 
@@ -73,10 +76,21 @@ public class SyntheticColumn extends ColumnData {
                                RandomJELRowReader rowReader ) 
             throws CompilationException {
 
-        /* Compile the expression. */
+        /* Compile the expression to check it, and prepare for evaluation
+         * using per-thread copies of the row reader. */
         Library lib = TopcatJELUtils.getLibrary( rowReader, false );
-        compEx_ = Evaluator.compile( expression, lib, resultType );
-        rowReader_ = rowReader;
+        Evaluator.compile( expression, lib, resultType );
+        evaluator_ = new RandomJELEvaluator( rowReader,
+                                             new String[] { expression },
+                                             resultType ) {
+            protected CompiledExpression compile( RandomJELRowReader rdr,
+                                                  String expr, Class type )
+                    throws CompilationException {
+                return Evaluator
+                      .compile( expr, TopcatJELUtils.getLibrary( rdr, false ),
+                                type );
+            }
+        };
 
         /* Work out the type of the compiled expression. */
         Class actualType =
@@ -114,7 +128,7 @@ public class SyntheticColumn extends ColumnData {
 
     public Object readValue( long lrow ) throws IOException {
         try {
-            return rowReader_.evaluateAtRow( compEx_, lrow );
+            return evaluator_.evaluateAtRow( 0, lrow );
         }
         catch ( RuntimeException e ) {
             logger.info( e.toString() );
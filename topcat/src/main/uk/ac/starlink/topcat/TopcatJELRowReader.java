@@ -58,6 +58,15 @@ public class TopcatJELRowReader extends RandomJELRowReader {
         }
     }
 
+    /**
+     * Returns a new reader with the same table and subsets as this one.
+     *
+     * @return  new reader
+     */
+    public RandomJELRowReader copyReader() {
+        return new TopcatJELRowReader( getTable(), subsets_, subsetIds_ );
+    }
+
     /**
      * Overrides superclass implementation to recognise row subsets
      * by name or _ID.
@@ -4,6 +4,7 @@ import javax.swing.BoundedRangeModel;
 import uk.ac.starlink.ttools.plot2.data.DataSpec;
 import uk.ac.starlink.ttools.plot2.data.DataStore;
 import uk.ac.starlink.ttools.plot2.data.TupleSequence;
+import uk.ac.starlink.ttools.plot2.data.TupleSplittable;
 import uk.ac.starlink.ttools.plot2.data.WrapperTupleSequence;
 
 /**
@@ -71,7 +72,11 @@ public class GuiDataStore implements DataStore {
             isInit_ = true;
         }
         final TupleSequence baseSeq = base_.getTupleSequence( dataSpec );
-        if ( progresser_ == null ) {
+        if ( baseSeq instanceof TupleSplittable ) {
+            return new GuiTupleSplittable( (TupleSplittable) baseSeq,
+                                           Thread.currentThread() );
+        }
+        else if ( progresser_ == null ) {
             return new WrapperTupleSequence( baseSeq ) {
                 @Override
                 public boolean next() {
@@ -112,4 +117,61 @@ public class GuiDataStore implements DataStore {
             };
         }
     }
+
+    /**
+     * Splittable tuple sequence wrapper which checks for interruptions
+     * and updates progress.  Since the parts resulting from a split
+     * may be processed on worker threads, interruption of the thread
+     * which acquired the original sequence is also checked.
+     */
+    private class GuiTupleSplittable extends WrapperTupleSequence
+                                     implements TupleSplittable {
+        private final TupleSplittable baseSeq_;
+        private final Thread ownerThread_;
+
+        /**
+         * Constructor.
+         *
+         * @param  baseSeq  base splittable
+         * @param  ownerThread  thread which requested the sequence
+         */
+        GuiTupleSplittable( TupleSplittable baseSeq, Thread ownerThread ) {
+            super( baseSeq );
+            baseSeq_ = baseSeq;
+            ownerThread_ = ownerThread;
+        }
+
+        @Override
+        public boolean next() {
+            if ( baseSeq_.next() ) {
+                if ( Thread.currentThread().isInterrupted() ||
+                     ownerThread_.isInterrupted() ) {
+                    if ( progresser_ != null ) {
+                        progresser_.reset();
+                    }
+                    return false;
+                }
+                else {
+                    if ( progresser_ != null ) {
+                        progresser_.increment();
+                    }
+                    return true;
+                }
+            }
+            else {
+                return false;
+            }
+        }
+
+        public TupleSplittable split() {
+            TupleSplittable baseHead = baseSeq_.split();
+            return baseHead == null
+                 ? null
+                 : new GuiTupleSplittable( baseHead, ownerThread_ );
+        }
+
+        public long splittableSize() {
+            return baseSeq_.splittableSize();
+        }
+    }
 }
@@ -117,6 +117,9 @@ public class AddColumnsTable extends WrapperStarTable {
         final RowSequence baseSeq = baseTable_.getRowSequence();
         final SupplementSequence supSeq = colSup_.createSequence( baseSeq );
         return new RowSequence() {
+
+            /* Index of the current row in the base table, as required
+             * by the SupplementSequence methods. */
             long lrow_ = -1;
             public boolean next() throws IOException {
                 if ( baseSeq.next() ) {
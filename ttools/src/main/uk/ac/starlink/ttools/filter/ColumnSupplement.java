@@ -51,8 +51,11 @@ public interface ColumnSupplement {
 
     /**
      * Returns a new iterator over the values in the columns defined by
-     * this object.  The supplied row sequence must be from an appropriate
-     * host table; if not, behaviour is undefined.
+     * this object.  The supplied row sequence must be a new sequence
+     * from an appropriate host table; if not, behaviour is undefined.
+     * The row index passed to the returned sequence's methods
+     * must be the index in the host table of the current row of
+     * <code>rseq</code>.
      *
      * @param   rseq   row sequence providing data from the host table
      * @return   iterator over row data from supplementary columns
@@ -7,12 +7,20 @@ import java.io.IOException;
 import uk.ac.starlink.table.ColumnInfo;
 import uk.ac.starlink.table.RowSequence;
 import uk.ac.starlink.table.StarTable;
+import uk.ac.starlink.ttools.jel.BlockJELEvaluator;
 import uk.ac.starlink.ttools.jel.JELUtils;
+import uk.ac.starlink.ttools.jel.RandomJELEvaluator;
 import uk.ac.starlink.ttools.jel.RandomJELRowReader;
 import uk.ac.starlink.ttools.jel.StarTableJELRowReader;
 
 /**
  * ColumnSupplement that generates new columns based on JEL expressions.
+ * If the input table is random-access and the columns the expressions
+ * reference can be read in bulk, sequences provided by this
+ * object evaluate the expressions a block of rows at a time
+ * using a {@link uk.ac.starlink.ttools.jel.BlockJELEvaluator}.
+ * Otherwise they evaluate them a row at a time from the values of
+ * the host table's row sequence.
  *
  * @author   Mark Taylor
  * @since    27 Mar 2012
@@ -23,8 +31,7 @@ public class JELColumnSupplement implements ColumnSupplement {
     private final String[] exprs_;
     private final int ncol_;
     private final ColumnInfo[] outColInfos_;
-    private final RandomJELRowReader randomReader_;
-    private final CompiledExpression[] randomCompexs_;
+    private final RandomJELEvaluator randomEvaluator_;
 
     /**
      * Constructs a multiple-column JEL column supplement.
@@ -53,16 +60,14 @@ public class JELColumnSupplement implements ColumnSupplement {
         }
         exprs_ = (String[]) exprs.clone();
 
-        /* Compile the expressions ready for random evaluation. */
-        randomReader_ = new RandomJELRowReader( inTable_ );
-        Library randomLib = JELUtils.getLibrary( randomReader_ );
-        randomCompexs_ = new CompiledExpression[ ncol_ ];
+        /* Check the expressions and determine their types. */
+        RandomJELRowReader randomReader = new RandomJELRowReader( inTable_ );
+        Library randomLib = JELUtils.getLibrary( randomReader );
         outColInfos_ = new ColumnInfo[ ncol_ ];
         for ( int icol = 0; icol < ncol_; icol++ ) {
             String expr = exprs[ icol ];
             try {
-                randomCompexs_[ icol ] =
-                    JELUtils.compile( randomLib, inTable_, expr );
+                JELUtils.compile( randomLib, inTable_, expr );
 
                 /* Set the content class for the new column to be that
                  * returned by the expression. */
@@ -76,6 +81,11 @@ public class JELColumnSupplement implements ColumnSupplement {
                 throw JELUtils.toIOException( e, expr );
             }
         }
+
+        /* Prepare for random evaluation, which may be done concurrently
+         * from multiple threads. */
+        randomEvaluator_ =
+            new RandomJELEvaluator( randomReader, exprs_, null );
     }
 
     /**
@@ -103,7 +113,7 @@ public class JELColumnSupplement implements ColumnSupplement {
     }
 
     public Object getCell( long irow, int icol ) throws IOException {
-        return evaluateRandom( irow, randomCompexs_[ icol ] );
+        return evaluateRandom( irow, icol );
     }
 
     public Object[] getRow( long irow ) throws IOException {
@@ -115,6 +125,26 @@ public class JELColumnSupplement implements ColumnSupplement {
     }
 
     public SupplementSequence createSequence( RowSequence rseq ) {
+
+        /* Block evaluation reads the input table directly, independently
+         * of the supplied row sequence, which will typically be read
+         * as well.  Only use it if the table's columns can be read
+         * cheaply in bulk, otherwise each cell would be read twice
+         * at full cost; in that case take values from the sequence. */
+        if ( inTable_.isRandom() ) {
+            BlockJELEvaluator evaluator;
+            try {
+                evaluator = new BlockJELEvaluator( inTable_, exprs_, null );
+            }
+            catch ( CompilationException e ) {
+                throw (AssertionError)
+                      new AssertionError( "Well it compiled OK last time" )
+                     .initCause( e );
+            }
+            if ( evaluator.isBulkAccess() ) {
+                return new BlockSupplementSequence( evaluator );
+            }
+        }
         return new JELSupplementSequence( inTable_, exprs_, rseq );
     }
 
@@ -123,13 +153,13 @@ public class JELColumnSupplement implements ColumnSupplement {
      * for a given cell.
      *
      * @param   irow  row index
-     * @param   compex  compiled expression
+     * @param   icol  column index
      * @return   cell value
      */
-    private Object evaluateRandom( long irow, CompiledExpression compex )
+    private Object evaluateRandom( long irow, int icol )
             throws IOException {
         try {
-            return randomReader_.evaluateAtRow( compex, irow );
+            return randomEvaluator_.evaluateAtRow( icol, irow );
         }
         catch ( RuntimeException e ) {
             return null;
@@ -237,4 +267,39 @@ public class JELColumnSupplement implements ColumnSupplement {
             }
         }
     }
+
+    /**
+     * SupplementSequence which evaluates expressions in blocks of rows
+     * of a random-access input table.
+     * The row index supplied to its methods is used to read the table,
+     * as permitted by the SupplementSequence contract.
+     */
+    private static class BlockSupplementSequence
+            implements SupplementSequence {
+        private final BlockJELEvaluator evaluator_;
+        private final int ncol_;
+
+        /**
+         * Constructor.
+         *
+         * @param  evaluator  block evaluator for this supplement's
+         *                    expressions
+         */
+        BlockSupplementSequence( BlockJELEvaluator evaluator ) {
+            evaluator_ = evaluator;
+            ncol_ = evaluator.getExpressionCount();
+        }
+
+        public Object getCell( long irow, int icol ) throws IOException {
+            return evaluator_.getValue( icol, irow );
+        }
+
+        public Object[] getRow( long irow ) throws IOException {
+            Object[] row = new Object[ ncol_ ];
+            for ( int icol = 0; icol < ncol_; icol++ ) {
+                row[ icol ] = evaluator_.getValue( icol, irow );
+            }
+            return row;
+        }
+    }
 }
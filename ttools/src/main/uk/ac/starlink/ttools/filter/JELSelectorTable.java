@@ -6,17 +6,27 @@ import gnu.jel.Library;
 import java.io.IOException;
 import java.util.List;
 import uk.ac.starlink.table.RowSequence;
+import uk.ac.starlink.table.RowSplittable;
 import uk.ac.starlink.table.StarTable;
 import uk.ac.starlink.table.WrapperRowSequence;
 import uk.ac.starlink.table.WrapperStarTable;
+import uk.ac.starlink.ttools.jel.BlockJELEvaluator;
 import uk.ac.starlink.ttools.jel.JELUtils;
 import uk.ac.starlink.ttools.jel.DummyJELRowReader;
+import uk.ac.starlink.ttools.jel.RandomJELEvaluator;
 import uk.ac.starlink.ttools.jel.RandomJELRowReader;
 import uk.ac.starlink.ttools.jel.SequentialJELRowReader;
 
 /**
  * Sequential table which selects rows on the basis of a JEL-interpreted
  * expression.
+ * If the base table is random-access and the columns used by the
+ * expression can be read from it in bulk, the row sequence provided by
+ * this table evaluates the expression a block of rows at a time
+ * using a {@link uk.ac.starlink.ttools.jel.BlockJELEvaluator}.
+ * If the base table is random-access, the row splittable provided by
+ * this table applies the selection to the parts of the base table's
+ * splittable, so that rows may be selected in parallel.
  *
  * @see  uk.ac.starlink.ttools.jel.JELRowReader
  */
@@ -51,6 +61,25 @@ public class JELSelectorTable extends WrapperStarTable {
     }
 
     public RowSequence getRowSequence() throws IOException {
+
+        /* Block evaluation reads the base table directly, independently
+         * of the base row sequence, which is read as well.  Only use it
+         * if the table's columns can be read cheaply in bulk, otherwise
+         * each cell would be read twice at full cost. */
+        if ( baseTable_.isRandom() ) {
+            BlockJELEvaluator evaluator;
+            try {
+                evaluator = new BlockJELEvaluator( baseTable_,
+                                                   new String[] { expr_ },
+                                                   boolean.class );
+            }
+            catch ( CompilationException e ) {
+                throw JELUtils.toIOException( e, expr_ );
+            }
+            if ( evaluator.isBulkAccess() ) {
+                return createBlockRowSequence( evaluator );
+            }
+        }
         final SequentialJELRowReader jelSeq = 
             new SequentialJELRowReader( baseTable_ );
         final CompiledExpression compEx;
@@ -92,4 +121,126 @@ public class JELSelectorTable extends WrapperStarTable {
         };
     }
 
+    /**
+     * Returns a row sequence which evaluates the selection expression
+     * in blocks.  Only works if the base table is random-access.
+     *
+     * @param  evaluator  block evaluator for the selection expression
+     *                    on the base table
+     * @return   new row sequence
+     */
+    private RowSequence
+            createBlockRowSequence( final BlockJELEvaluator evaluator )
+            throws IOException {
+        final RowSequence baseSeq = baseTable_.getRowSequence();
+        return new WrapperRowSequence( baseSeq ) {
+            long irow_ = -1;
+            public boolean next() throws IOException {
+                while ( baseSeq.next() ) {
+                    if ( evaluator.getBooleanValue( 0, ++irow_ ) ) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+    }
+
+    public RowSplittable getRowSplittable() throws IOException {
+        if ( baseTable_.isRandom() ) {
+            RandomJELEvaluator evaluator =
+                new RandomJELEvaluator( new RandomJELRowReader( baseTable_ ),
+                                        new String[] { expr_ },
+                                        boolean.class );
+            return new SelectorRowSplittable( baseTable_.getRowSplittable(),
+                                              evaluator );
+        }
+        else {
+            return super.getRowSplittable();
+        }
+    }
+
+    /**
+     * RowSplittable that includes only those rows of a base splittable
+     * for which a boolean expression evaluates true.
+     * Evaluation is done at the row index reported by the base splittable.
+     */
+    private static class SelectorRowSplittable implements RowSplittable {
+        private final RowSplittable baseSplit_;
+        private final RandomJELEvaluator evaluator_;
+
+        /**
+         * Constructor.
+         *
+         * @param  baseSplit  splittable from the random-access base table
+         * @param  evaluator  evaluator for the selection expression,
+         *                    which may be shared between threads
+         */
+        SelectorRowSplittable( RowSplittable baseSplit,
+                               RandomJELEvaluator evaluator ) {
+            baseSplit_ = baseSplit;
+            evaluator_ = evaluator;
+        }
+
+        public RowSplittable split() {
+            RowSplittable split = baseSplit_.split();
+            return split == null
+                 ? null
+                 : new SelectorRowSplittable( split, evaluator_ );
+        }
+
+        public long splittableSize() {
+            return baseSplit_.splittableSize();
+        }
+
+        public long getRowIndex() {
+            return -1;
+        }
+
+        public boolean next() throws IOException {
+            while ( baseSplit_.next() ) {
+                if ( isIncluded( baseSplit_.getRowIndex() ) ) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public Object getCell( int icol ) throws IOException {
+            return baseSplit_.getCell( icol );
+        }
+
+        public Object[] getRow() throws IOException {
+            return baseSplit_.getRow();
+        }
+
+        public void close() throws IOException {
+            baseSplit_.close();
+        }
+
+        /**
+         * Indicates whether a given row of the base table is included.
+         *
+         * @param  irow  base table row index
+         * @return   true iff the selection expression is true at irow
+         */
+        private boolean isIncluded( long irow ) throws IOException {
+            if ( irow < 0 ) {
+                throw new IOException( "Base row index unknown" );
+            }
+            Object val;
+            try {
+                val = evaluator_.evaluateAtRow( 0, irow );
+            }
+            catch ( IOException e ) {
+                throw e;
+            }
+            catch ( Throwable e ) {
+                throw (IOException) new IOException( "Evaluation error" )
+                                   .initCause( e );
+            }
+            Boolean bval = (Boolean) val;
+            return bval != null && bval.booleanValue();
+        }
+    }
 }
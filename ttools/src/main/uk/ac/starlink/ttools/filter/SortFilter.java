@@ -9,8 +9,11 @@ import java.util.Comparator;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import uk.ac.starlink.table.ColumnPermutedStarTable;
+import uk.ac.starlink.table.ExternalTableSorter;
 import uk.ac.starlink.table.RowPermutedStarTable;
 import uk.ac.starlink.table.StarTable;
+import uk.ac.starlink.table.StoragePolicy;
 import uk.ac.starlink.table.Tables;
 import uk.ac.starlink.task.TaskException;
 import uk.ac.starlink.ttools.Tokenizer;
@@ -51,6 +54,11 @@ public class SortFilter extends BasicFilter {
             "flag is given then they are considered to come at the start",
             "instead.",
             "</p>",
+            "<p>Tables which are too large to sort in memory,",
+            "or which do not provide random access,",
+            "are sorted in chunks which are written to temporary storage",
+            "and then merged.",
+            "</p>",
             explainSyntax( new String[] { "key-list", } ),
         };
     }
@@ -109,11 +117,14 @@ public class SortFilter extends BasicFilter {
         }
 
         public StarTable wrap( StarTable baseTable ) throws IOException {
-            baseTable = Tables.randomTable( baseTable );
+
+            /* A random-access table can be sorted in memory by row index
+             * without copying its rows, as long as the index fits in
+             * an array.  Otherwise use an external sort. */
             long lnrow = baseTable.getRowCount();
-            if ( lnrow > Integer.MAX_VALUE ) {
-                throw new UnsupportedOperationException( 
-                    "Sorry, can't sort tables with >2^31 rows" );
+            if ( ! baseTable.isRandom() ||
+                 lnrow < 0 || lnrow > Integer.MAX_VALUE ) {
+                return externalSort( baseTable, keys_, up_, nullsLast_ );
             }
             int nrow = (int) lnrow;
             Number[] rowMap = new Number[ nrow ];
@@ -143,6 +154,72 @@ public class SortFilter extends BasicFilter {
         }
     }
 
+    /**
+     * Indicates whether the rows of a table ought to be sorted using
+     * an external merge sort rather than in memory, because the
+     * number of whole rows to be held in memory is too large or unknown.
+     * This is not relevant for a sort which holds only row indices.
+     *
+     * @param  table  table to sort
+     * @param  nrow   number of rows which would be held in memory
+     *                by an in-memory sort, or -1 if unknown
+     * @return  true  iff an external sort should be used
+     */
+    static boolean isExternalSort( StarTable table, long nrow ) {
+        return nrow < 0
+            || nrow > ExternalTableSorter
+                     .getDefaultRunRows( table, getSortThreadCount() );
+    }
+
+    /**
+     * Sorts a table on a number of JEL expressions using an external
+     * merge sort.  The key values are calculated once for each row.
+     * Ties are resolved by the original row order.
+     *
+     * @param  baseTable  table to sort
+     * @param  keys   JEL sort key expressions, most significant first
+     * @param  up   true for ascending order, false for descending
+     * @param  nullsLast  true if blank values come last in the
+     *                    collation order, false if they come first
+     * @return   sorted table, not necessarily random access
+     */
+    static StarTable externalSort( StarTable baseTable, String[] keys,
+                                   boolean up, boolean nullsLast )
+            throws IOException {
+        int ncol = baseTable.getColumnCount();
+        int nkey = keys.length;
+        StarTable keyedTable =
+            new AddColumnsTable( baseTable,
+                                 new JELColumnSupplement( baseTable, keys,
+                                                          null ) );
+        int[] keyCols = new int[ nkey ];
+        for ( int ik = 0; ik < nkey; ik++ ) {
+            keyCols[ ik ] = ncol + ik;
+        }
+        int nthread = getSortThreadCount();
+        ExternalTableSorter sorter =
+            new ExternalTableSorter( StoragePolicy.getDefaultPolicy(),
+                                     ExternalTableSorter
+                                    .getDefaultRunRows( keyedTable, nthread ),
+                                     nthread );
+        StarTable sortedTable =
+            sorter.sortTable( keyedTable, keyCols, up, nullsLast );
+        int[] colMap = new int[ ncol ];
+        for ( int ic = 0; ic < ncol; ic++ ) {
+            colMap[ ic ] = ic;
+        }
+        return new ColumnPermutedStarTable( sortedTable, colMap );
+    }
+
+    /**
+     * Returns the number of threads to use for external sorting.
+     *
+     * @return  thread count
+     */
+    private static int getSortThreadCount() {
+        return Math.min( 4, Runtime.getRuntime().availableProcessors() );
+    }
+
     /** 
      * Comparator which will compare two objects which are Numbers 
      * representing row indices of a given table.
@@ -64,6 +64,9 @@ public class SortHeadFilter extends BasicFilter {
             "but it can be done in one pass and is usually cheaper",
             "on memory and faster, as long as <code>&lt;nrows&gt;</code>",
             "is significantly lower than the size of the table.",
+            "If <code>&lt;nrows&gt;</code> is too large for the retained",
+            "rows to be held in memory, a full external sort is",
+            "done instead.",
             "</p>",
             explainSyntax( new String[] { "key-list", } ),
         };
@@ -144,6 +147,22 @@ public class SortHeadFilter extends BasicFilter {
 
         public StarTable wrap( StarTable baseTable ) throws IOException {
 
+            /* If too many rows would have to be retained in memory,
+             * do a full external sort instead.  The row index is used
+             * as the final key so that ties are resolved in the same
+             * way as by the in-memory algorithm. */
+            long nrow = baseTable.getRowCount();
+            long nkeep = nrow >= 0 ? Math.min( nrow, (long) nrows_ ) : nrows_;
+            if ( SortFilter.isExternalSort( baseTable, nkeep ) ) {
+                String[] keys = new String[ keys_.length + 1 ];
+                System.arraycopy( keys_, 0, keys, 0, keys_.length );
+                keys[ keys_.length ] = "$0";
+                StarTable sorted =
+                    SortFilter.externalSort( baseTable, keys, up_, nullsLast_ );
+                return keepHead_ ? new HeadTable( sorted, nrows_ )
+                                 : new TailTable( sorted, nrows_ );
+            }
+
             /* Compile expressions for the specified sort keys. */
             SequentialJELRowReader rseq =
                 new SequentialJELRowReader( baseTable );
@@ -13,8 +13,13 @@ import java.io.IOException;
  * row sequence.  In particular the data supplied by this object is
  * always from the <em>current</em> row of the underlying RowSequence;
  * the row index supplied to the getRow/getCell methods of this object
- * is additional information, it is <em>not</em> to be used to request
- * out of sequence values.
+ * is the index of that row in the host table,
+ * it is <em>not</em> to be used to request out of sequence values.
+ * If the host table is random-access, implementations may however
+ * use that index to read the host table's data directly,
+ * for instance to evaluate values for a block of rows starting at
+ * the current one, rather than taking values from the underlying
+ * RowSequence.
  *
  * @author   Mark Taylor
  * @since    2 Apr 2012
@@ -25,9 +30,9 @@ public interface SupplementSequence {
     /**
      * Returns a cell value from the current row of this sequence.
      *
-     * @param   irow  current index of the sequence;
-     *                supplied for information only,
-     *                and not to be used for random access
+     * @param   irow  current index of the sequence,
+     *                which is the index of the current row
+     *                in the host table
      * @param  icol  column index
      * @return   value of column <code>icol</code> at current sequence row
      */
@@ -36,9 +41,9 @@ public interface SupplementSequence {
     /**
      * Returns an array of cell values giving the current row of this sequence.
      *
-     * @param   irow  current index of the sequence;
-     *                supplied for information only,
-     *                and not to be used for random access
+     * @param   irow  current index of the sequence,
+     *                which is the index of the current row
+     *                in the host table
      * @return   current sequence row
      */
     Object[] getRow( long irow ) throws IOException;
@@ -0,0 +1,721 @@
+package uk.ac.starlink.ttools.jel;
+
+import gnu.jel.CompilationException;
+import gnu.jel.CompiledExpression;
+import gnu.jel.Library;
+import java.io.IOException;
+import java.util.BitSet;
+import uk.ac.starlink.table.StarTable;
+import uk.ac.starlink.table.storage.PrimitiveColumnAccess;
+
+/**
+ * Evaluates a fixed set of JEL expressions over contiguous blocks of rows
+ * of a random-access table.
+ *
+ * <p>When a row outside the current block is requested, a new block
+ * starting at that row is set up.  Blocks start small and double
+ * in length up to a maximum block size while rows are requested
+ * in sequence, so that reading only the first few rows does not
+ * cost the evaluation of a whole large block.  The first time an expression is
+ * required within a block, the values of the scalar numeric and boolean
+ * columns it references are read for the whole block into primitive
+ * arrays, in bulk if the table implements
+ * {@link uk.ac.starlink.table.storage.PrimitiveColumnAccess},
+ * and the expression is evaluated for every row of the block
+ * into a primitive result array.  Subsequent requests for that
+ * expression in the same block just read from the result array.
+ * Each expression is compiled only once, and the column and result
+ * arrays are reused from block to block.
+ * Compared with evaluating expressions one row at a time,
+ * this means that column data is read in tight per-column loops,
+ * and that no wrapper objects are created for primitive input
+ * or output values.
+ *
+ * <p>This is only worthwhile if rows are accessed more or less in order,
+ * as from a row sequence.  Instances of this class are not thread-safe.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+public class BlockJELEvaluator {
+
+    private final StarTable table_;
+    private final String[] exprs_;
+    private final int blockSize_;
+    private final boolean isBulk_;
+    private final long nrow_;
+    private final BlockRowReader reader_;
+    private final CompiledExpression[] compexs_;
+    private final int[][] exprCols_;
+    private final ResultBuffer[] results_;
+    private final boolean[] colLoaded_;
+    private long blockStart_;
+    private int blockLength_;
+    private int nextLength_;
+
+    /** Default maximum number of rows in a block. */
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    /** Number of rows in the first block, or one following a jump. */
+    private static final int INITIAL_BLOCK_SIZE = 16;
+
+    /**
+     * Constructs an evaluator with the default block size.
+     *
+     * @param  table  random-access table providing evaluation context
+     * @param  exprs   expressions to evaluate
+     * @param  reqType  required type of compiled expressions,
+     *                  or null for no requirement
+     * @throws  CompilationException  if an expression cannot be compiled
+     */
+    public BlockJELEvaluator( StarTable table, String[] exprs, Class reqType )
+            throws CompilationException {
+        this( table, exprs, reqType, DEFAULT_BLOCK_SIZE );
+    }
+
+    /**
+     * Constructs an evaluator with a given block size.
+     *
+     * @param  table  random-access table providing evaluation context
+     * @param  exprs   expressions to evaluate
+     * @param  reqType  required type of compiled expressions,
+     *                  or null for no requirement
+     * @param  blockSize  maximum number of rows evaluated at once
+     * @throws  CompilationException  if an expression cannot be compiled
+     * @throws  IllegalArgumentException  if the table is not random-access
+     */
+    public BlockJELEvaluator( StarTable table, String[] exprs, Class reqType,
+                              int blockSize )
+            throws CompilationException {
+        if ( ! table.isRandom() ) {
+            throw new IllegalArgumentException( "Table not random-access" );
+        }
+        table_ = table;
+        exprs_ = (String[]) exprs.clone();
+        blockSize_ = blockSize;
+        nrow_ = table.getRowCount();
+        reader_ = new BlockRowReader( table, blockSize );
+        Library lib = JELUtils.getLibrary( reader_ );
+        int nexpr = exprs.length;
+        compexs_ = new CompiledExpression[ nexpr ];
+        exprCols_ = new int[ nexpr ][];
+        results_ = new ResultBuffer[ nexpr ];
+        for ( int ie = 0; ie < nexpr; ie++ ) {
+            String expr = exprs[ ie ];
+            reader_.usedCols_.clear();
+            compexs_[ ie ] = reqType == null
+                           ? JELUtils.compile( lib, table, expr )
+                           : JELUtils.compile( lib, table, expr, reqType );
+            exprCols_[ ie ] = toIndices( reader_.usedCols_ );
+            results_[ ie ] =
+                new ResultBuffer( compexs_[ ie ].getType(), blockSize );
+        }
+        colLoaded_ = new boolean[ table.getColumnCount() ];
+        boolean isBulk = true;
+        for ( int[] icols : exprCols_ ) {
+            for ( int icol : icols ) {
+                isBulk = isBulk && reader_.isBulkColumn( icol );
+            }
+        }
+        isBulk_ = isBulk;
+        blockStart_ = -1;
+        blockLength_ = 0;
+        nextLength_ = Math.min( INITIAL_BLOCK_SIZE, blockSize_ );
+    }
+
+    /**
+     * Returns the number of expressions this evaluator can evaluate.
+     *
+     * @return  expression count
+     */
+    public int getExpressionCount() {
+        return exprs_.length;
+    }
+
+    /**
+     * Returns the maximum number of rows evaluated at once.
+     *
+     * @return   block size
+     */
+    public int getBlockSize() {
+        return blockSize_;
+    }
+
+    /**
+     * Indicates whether all the table columns referenced by this
+     * evaluator's expressions are read using bulk primitive access.
+     * If not, some column values are read from the table one cell
+     * at a time.
+     *
+     * @return  true iff all referenced columns can be read in bulk
+     */
+    public boolean isBulkAccess() {
+        return isBulk_;
+    }
+
+    /**
+     * Returns the value of one of this evaluator's expressions at a
+     * given row.
+     * The returned value is wrapped up as an object if the result of
+     * the expression is a primitive.  If evaluation results in a
+     * null value or a RuntimeException, null is returned.
+     *
+     * @param  iexpr  index of expression
+     * @param  irow   row index
+     * @return   expression value
+     */
+    public Object getValue( int iexpr, long irow ) throws IOException {
+        ResultBuffer result = getResult( iexpr, irow );
+        return result.getValue( (int) ( irow - blockStart_ ) );
+    }
+
+    /**
+     * Returns the value of one of this evaluator's boolean-valued
+     * expressions at a given row.  A null value gives false.
+     *
+     * @param  iexpr  index of expression
+     * @param  irow   row index
+     * @return   expression value
+     */
+    public boolean getBooleanValue( int iexpr, long irow )
+            throws IOException {
+        ResultBuffer result = getResult( iexpr, irow );
+        int ir = (int) ( irow - blockStart_ );
+        return ! result.nulls_[ ir ] && result.booleans_[ ir ];
+    }
+
+    /**
+     * Returns the value of one of this evaluator's numeric-valued
+     * expressions at a given row as a double.  A null value gives NaN.
+     *
+     * @param  iexpr  index of expression
+     * @param  irow   row index
+     * @return   expression value
+     */
+    public double getDoubleValue( int iexpr, long irow ) throws IOException {
+        ResultBuffer result = getResult( iexpr, irow );
+        int ir = (int) ( irow - blockStart_ );
+        return result.nulls_[ ir ] ? Double.NaN : result.getDouble( ir );
+    }
+
+    /**
+     * Returns the result buffer for a given expression, evaluated over
+     * a block containing a given row.
+     *
+     * @param  iexpr  index of expression
+     * @param  irow   row index
+     * @return   populated result buffer
+     */
+    private ResultBuffer getResult( int iexpr, long irow )
+            throws IOException {
+        if ( irow < blockStart_ || irow >= blockStart_ + blockLength_ ) {
+            if ( irow < 0 || irow >= nrow_ ) {
+                throw new IllegalArgumentException( "Row " + irow
+                                                  + " out of range" );
+            }
+
+            /* Grow the block size while rows are read in sequence,
+             * so that a short scan does not evaluate a whole large block,
+             * and start small again following a jump. */
+            boolean isNext = irow == blockStart_ + blockLength_;
+            nextLength_ = isNext ? Math.min( 2 * nextLength_, blockSize_ )
+                                 : Math.min( INITIAL_BLOCK_SIZE, blockSize_ );
+            blockStart_ = irow;
+            blockLength_ = (int) Math.min( nextLength_, nrow_ - irow );
+            for ( int ie = 0; ie < results_.length; ie++ ) {
+                results_[ ie ].done_ = false;
+            }
+            for ( int ic = 0; ic < colLoaded_.length; ic++ ) {
+                colLoaded_[ ic ] = false;
+            }
+        }
+        ResultBuffer result = results_[ iexpr ];
+        if ( ! result.done_ ) {
+            for ( int icol : exprCols_[ iexpr ] ) {
+                if ( ! colLoaded_[ icol ] ) {
+                    reader_.loadColumn( icol, blockStart_, blockLength_ );
+                    colLoaded_[ icol ] = true;
+                }
+            }
+            evaluateBlock( compexs_[ iexpr ], result );
+            result.done_ = true;
+        }
+        return result;
+    }
+
+    /**
+     * Evaluates an expression at every row of the current block.
+     *
+     * @param  compex  compiled expression
+     * @param  result  buffer to receive results
+     */
+    private void evaluateBlock( CompiledExpression compex,
+                                ResultBuffer result ) throws IOException {
+        BlockRowReader rdr = reader_;
+        Object[] args = rdr.getArguments();
+        boolean[] nulls = result.nulls_;
+        int n = blockLength_;
+        try {
+            for ( int ir = 0; ir < n; ir++ ) {
+                rdr.setBlockRow( blockStart_, ir );
+                rdr.clearNullExpression();
+                try {
+                    switch ( result.type_ ) {
+                        case 0:
+                            result.booleans_[ ir ] =
+                                compex.evaluate_boolean( args );
+                            break;
+                        case 1:
+                            result.longs_[ ir ] = compex.evaluate_byte( args );
+                            break;
+                        case 2:
+                            result.longs_[ ir ] = compex.evaluate_char( args );
+                            break;
+                        case 3:
+                            result.longs_[ ir ] =
+                                compex.evaluate_short( args );
+                            break;
+                        case 4:
+                            result.longs_[ ir ] = compex.evaluate_int( args );
+                            break;
+                        case 5:
+                            result.longs_[ ir ] = compex.evaluate_long( args );
+                            break;
+                        case 6:
+                            result.doubles_[ ir ] =
+                                compex.evaluate_float( args );
+                            break;
+                        case 7:
+                            result.doubles_[ ir ] =
+                                compex.evaluate_double( args );
+                            break;
+                        default:
+                            result.objects_[ ir ] = compex.evaluate( args );
+                    }
+                    nulls[ ir ] = rdr.isNullExpression()
+                               || ( result.objects_ != null
+                                    && result.objects_[ ir ] == null );
+                }
+                catch ( RuntimeException e ) {
+                    nulls[ ir ] = true;
+                }
+            }
+        }
+        catch ( IOException e ) {
+            throw e;
+        }
+        catch ( Error e ) {
+            throw e;
+        }
+        catch ( Throwable e ) {
+            throw (IOException) new IOException( "Evaluation error" )
+                               .initCause( e );
+        }
+        if ( result.objects_ != null ) {
+            for ( int ir = 0; ir < n; ir++ ) {
+                if ( nulls[ ir ] ) {
+                    result.objects_[ ir ] = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the indices of the set bits in a bit set.
+     *
+     * @param  bits  bit set
+     * @return  array of set bit indices
+     */
+    private static int[] toIndices( BitSet bits ) {
+        int[] indices = new int[ bits.cardinality() ];
+        int i = 0;
+        for ( int ib = bits.nextSetBit( 0 ); ib >= 0;
+              ib = bits.nextSetBit( ib + 1 ) ) {
+            indices[ i++ ] = ib;
+        }
+        return indices;
+    }
+
+    /**
+     * Holds the results of evaluating one expression over a block.
+     * Integer-type results are stored as longs, and floating point
+     * results as doubles.
+     */
+    private static class ResultBuffer {
+        final int type_;
+        final boolean[] nulls_;
+        final boolean[] booleans_;
+        final long[] longs_;
+        final double[] doubles_;
+        final Object[] objects_;
+        boolean done_;
+
+        /**
+         * Constructor.
+         *
+         * @param  type  JEL type code of the expression
+         * @param  size  block size
+         */
+        ResultBuffer( int type, int size ) {
+            type_ = type;
+            nulls_ = new boolean[ size ];
+            booleans_ = type == 0 ? new boolean[ size ] : null;
+            longs_ = type >= 1 && type <= 5 ? new long[ size ] : null;
+            doubles_ = type == 6 || type == 7 ? new double[ size ] : null;
+            objects_ = type > 7 ? new Object[ size ] : null;
+        }
+
+        /**
+         * Returns a result value as a double.
+         * Only works for numeric types.
+         *
+         * @param  ir  index within block
+         * @return   numeric value
+         */
+        double getDouble( int ir ) {
+            if ( doubles_ != null ) {
+                return doubles_[ ir ];
+            }
+            else if ( longs_ != null ) {
+                return (double) longs_[ ir ];
+            }
+            else {
+                Object val = objects_[ ir ];
+                return val instanceof Number ? ((Number) val).doubleValue()
+                                             : Double.NaN;
+            }
+        }
+
+        /**
+         * Returns a result value as an object.
+         *
+         * @param  ir  index within block
+         * @return   value, wrapped if primitive
+         */
+        Object getValue( int ir ) {
+            if ( nulls_[ ir ] ) {
+                return null;
+            }
+            switch ( type_ ) {
+                case 0:
+                    return Boolean.valueOf( booleans_[ ir ] );
+                case 1:
+                    return new Byte( (byte) longs_[ ir ] );
+                case 2:
+                    return new Character( (char) longs_[ ir ] );
+                case 3:
+                    return new Short( (short) longs_[ ir ] );
+                case 4:
+                    return new Integer( (int) longs_[ ir ] );
+                case 5:
+                    return new Long( longs_[ ir ] );
+                case 6:
+                    return new Float( (float) doubles_[ ir ] );
+                case 7:
+                    return new Double( doubles_[ ir ] );
+                default:
+                    return objects_[ ir ];
+            }
+        }
+    }
+
+    /**
+     * Row reader which takes scalar primitive column values from
+     * per-block arrays where they have been loaded, and otherwise
+     * reads cells from the table at the current row.
+     */
+    private static class BlockRowReader extends StarTableJELRowReader {
+        private final StarTable table_;
+        private final PrimitiveColumnAccess primAccess_;
+        private final int blockSize_;
+        private final BitSet usedCols_;
+        private final boolean[][] boolData_;
+        private final int[][] intData_;
+        private final long[][] longData_;
+        private final float[][] floatData_;
+        private final double[][] doubleData_;
+        private final boolean[][] nullData_;
+        private double[] dbuf_;
+        private long[] lbuf_;
+        private long lrow_;
+        private int ir_;
+
+        /**
+         * Constructor.
+         *
+         * @param  table  random-access table
+         * @param  blockSize  block size
+         */
+        BlockRowReader( StarTable table, int blockSize ) {
+            super( table );
+            table_ = table;
+            primAccess_ = table instanceof PrimitiveColumnAccess
+                        ? (PrimitiveColumnAccess) table
+                        : null;
+            blockSize_ = blockSize;
+            usedCols_ = new BitSet();
+            int ncol = table.getColumnCount();
+            boolData_ = new boolean[ ncol ][];
+            intData_ = new int[ ncol ][];
+            longData_ = new long[ ncol ][];
+            floatData_ = new float[ ncol ][];
+            doubleData_ = new double[ ncol ][];
+            nullData_ = new boolean[ ncol ][];
+            lrow_ = -1;
+        }
+
+        /**
+         * Records the columns referenced by expressions as they are
+         * compiled.
+         */
+        public Object translate( String name ) {
+            Object id = super.translate( name );
+            if ( id instanceof Integer && ((Integer) id).intValue() >= 0 ) {
+                usedCols_.set( ((Integer) id).intValue() );
+            }
+            return id;
+        }
+
+        public long getCurrentRow() {
+            return lrow_;
+        }
+
+        protected long getTableRowIndex() {
+            return lrow_;
+        }
+
+        public Object getCell( int icol ) throws IOException {
+            return table_.getCell( lrow_, icol );
+        }
+
+        /**
+         * Sets the current row.
+         *
+         * @param  start  table row index of the start of the block
+         * @param  ir   index of the current row within the block
+         */
+        void setBlockRow( long start, int ir ) {
+            lrow_ = start + ir;
+            ir_ = ir;
+        }
+
+        /**
+         * Reads the values of a column for a block of rows into this
+         * reader's arrays, if it is a scalar numeric or boolean column.
+         *
+         * @param  icol  column index
+         * @param  start  table row index of first row in block
+         * @param  n   number of rows in block
+         */
+        void loadColumn( int icol, long start, int n ) throws IOException {
+            Class clazz = getColumnClass( icol );
+            boolean isPrim = isBulkColumn( icol );
+            if ( clazz == Double.class ) {
+                double[] data = doubleData_[ icol ];
+                if ( data == null ) {
+                    data = new double[ blockSize_ ];
+                    doubleData_[ icol ] = data;
+                }
+                if ( isPrim ) {
+                    primAccess_.readDoubles( icol, start, data, 0, n );
+                }
+                else {
+                    for ( int i = 0; i < n; i++ ) {
+                        Object val = table_.getCell( start + i, icol );
+                        data[ i ] = val == null
+                                  ? Double.NaN
+                                  : ((Double) val).doubleValue();
+                    }
+                }
+            }
+            else if ( clazz == Float.class ) {
+                float[] data = floatData_[ icol ];
+                if ( data == null ) {
+                    data = new float[ blockSize_ ];
+                    floatData_[ icol ] = data;
+                }
+                if ( isPrim ) {
+                    double[] dvals = getDoubleBuffer();
+                    primAccess_.readDoubles( icol, start, dvals, 0, n );
+                    for ( int i = 0; i < n; i++ ) {
+                        data[ i ] = (float) dvals[ i ];
+                    }
+                }
+                else {
+                    for ( int i = 0; i < n; i++ ) {
+                        Object val = table_.getCell( start + i, icol );
+                        data[ i ] = val == null
+                                  ? Float.NaN
+                                  : ((Float) val).floatValue();
+                    }
+                }
+            }
+            else if ( clazz == Integer.class ) {
+                int[] data = intData_[ icol ];
+                boolean[] nulls = getNullArray( icol );
+                if ( data == null ) {
+                    data = new int[ blockSize_ ];
+                    intData_[ icol ] = data;
+                }
+                if ( isPrim ) {
+                    long[] lvals = getLongBuffer();
+                    primAccess_.readBlanks( icol, start, nulls, 0, n );
+                    primAccess_.readLongs( icol, start, lvals, 0, n );
+                    for ( int i = 0; i < n; i++ ) {
+                        data[ i ] = (int) lvals[ i ];
+                    }
+                }
+                else {
+                    for ( int i = 0; i < n; i++ ) {
+                        Object val = table_.getCell( start + i, icol );
+                        nulls[ i ] = val == null;
+                        data[ i ] = val == null
+                                  ? 0
+                                  : ((Integer) val).intValue();
+                    }
+                }
+            }
+            else if ( clazz == Long.class ) {
+                long[] data = longData_[ icol ];
+                boolean[] nulls = getNullArray( icol );
+                if ( data == null ) {
+                    data = new long[ blockSize_ ];
+                    longData_[ icol ] = data;
+                }
+                if ( isPrim ) {
+                    primAccess_.readBlanks( icol, start, nulls, 0, n );
+                    primAccess_.readLongs( icol, start, data, 0, n );
+                }
+                else {
+                    for ( int i = 0; i < n; i++ ) {
+                        Object val = table_.getCell( start + i, icol );
+                        nulls[ i ] = val == null;
+                        data[ i ] = val == null
+                                  ? 0L
+                                  : ((Long) val).longValue();
+                    }
+                }
+            }
+            else if ( clazz == Boolean.class ) {
+                boolean[] data = boolData_[ icol ];
+                boolean[] nulls = getNullArray( icol );
+                if ( data == null ) {
+                    data = new boolean[ blockSize_ ];
+                    boolData_[ icol ] = data;
+                }
+                if ( isPrim ) {
+                    primAccess_.readBlanks( icol, start, nulls, 0, n );
+                    primAccess_.readBooleans( icol, start, data, 0, n );
+                }
+                else {
+                    for ( int i = 0; i < n; i++ ) {
+                        Object val = table_.getCell( start + i, icol );
+                        nulls[ i ] = val == null;
+                        data[ i ] = val != null
+                                 && ((Boolean) val).booleanValue();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Indicates whether a column's values can be read for a block
+         * using the table's bulk primitive access methods.
+         *
+         * @param  icol  column index
+         * @return  true iff column <code>icol</code> can be read in bulk
+         */
+        boolean isBulkColumn( int icol ) {
+            if ( primAccess_ == null ) {
+                return false;
+            }
+            Class pclazz = primAccess_.getPrimitiveClass( icol );
+            return pclazz != null
+                && JELUtils.getWrapperType( pclazz )
+                           .equals( getColumnClass( icol ) );
+        }
+
+        /**
+         * Returns a workspace array of doubles with the block size.
+         *
+         * @return  double buffer
+         */
+        private double[] getDoubleBuffer() {
+            if ( dbuf_ == null ) {
+                dbuf_ = new double[ blockSize_ ];
+            }
+            return dbuf_;
+        }
+
+        /**
+         * Returns a workspace array of longs with the block size.
+         *
+         * @return  long buffer
+         */
+        private long[] getLongBuffer() {
+            if ( lbuf_ == null ) {
+                lbuf_ = new long[ blockSize_ ];
+            }
+            return lbuf_;
+        }
+
+        /**
+         * Returns the null flag array for a column, creating it if
+         * necessary.
+         *
+         * @param  icol  column index
+         * @return  null flag array
+         */
+        private boolean[] getNullArray( int icol ) {
+            if ( nullData_[ icol ] == null ) {
+                nullData_[ icol ] = new boolean[ blockSize_ ];
+            }
+            return nullData_[ icol ];
+        }
+
+        protected boolean getBooleanColumnValue( int icol ) {
+            boolean[] data = boolData_[ icol ];
+            if ( data != null ) {
+                if ( nullData_[ icol ][ ir_ ] ) {
+                    foundNull();
+                }
+                return data[ ir_ ];
+            }
+            return super.getBooleanColumnValue( icol );
+        }
+
+        protected int getIntColumnValue( int icol ) {
+            int[] data = intData_[ icol ];
+            if ( data != null ) {
+                if ( nullData_[ icol ][ ir_ ] ) {
+                    foundNull();
+                }
+                return data[ ir_ ];
+            }
+            return super.getIntColumnValue( icol );
+        }
+
+        protected long getLongColumnValue( int icol ) {
+            long[] data = longData_[ icol ];
+            if ( data != null ) {
+                if ( nullData_[ icol ][ ir_ ] ) {
+                    foundNull();
+                }
+                return data[ ir_ ];
+            }
+            return super.getLongColumnValue( icol );
+        }
+
+        protected float getFloatColumnValue( int icol ) {
+            float[] data = floatData_[ icol ];
+            return data != null ? data[ ir_ ]
+                                : super.getFloatColumnValue( icol );
+        }
+
+        protected double getDoubleColumnValue( int icol ) {
+            double[] data = doubleData_[ icol ];
+            return data != null ? data[ ir_ ]
+                                : super.getDoubleColumnValue( icol );
+        }
+    }
+}
@@ -17,6 +17,13 @@ import java.util.List;
  * Anything else is treated as an <tt>Object</tt> or <tt>Object[]</tt>.
  * It could be extended to deal with more if necessary.
  * <p>
+ * The public evaluation methods are synchronized, since evaluation
+ * uses per-reader state.  A <code>CompiledExpression</code> is only
+ * valid for use with the reader against whose library it was compiled,
+ * so for concurrent evaluation each thread needs its own reader
+ * and its own compiled expressions; {@link RandomJELEvaluator}
+ * manages this for random-access tables.
+ * <p>
  * Expressions of the following types are understood:
  * <dl>
  * <dt>"null":
@@ -320,6 +327,18 @@ public abstract class JELRowReader extends DVMap {
      */
     public synchronized Object evaluate( CompiledExpression compEx )
              throws Throwable {
+        return evaluateUnsynchronized( compEx );
+    }
+
+    /**
+     * Does the work for {@link #evaluate} without synchronization.
+     * Only for use where this reader is confined to a single thread.
+     *
+     * @param  compEx  compiled expression
+     * @return   expression value at current row
+     */
+    Object evaluateUnsynchronized( CompiledExpression compEx )
+             throws Throwable {
          try {
              isNullExpression_ = false;
              Object result = compEx.evaluate( args_ );
@@ -341,6 +360,18 @@ public abstract class JELRowReader extends DVMap {
      */
     public synchronized double evaluateDouble( CompiledExpression compEx )
              throws Throwable {
+        return evaluateDoubleUnsynchronized( compEx );
+    }
+
+    /**
+     * Does the work for {@link #evaluateDouble} without synchronization.
+     * Only for use where this reader is confined to a single thread.
+     *
+     * @param  compEx  numeric-valued compiled expression
+     * @return   expression value at current row
+     */
+    double evaluateDoubleUnsynchronized( CompiledExpression compEx )
+             throws Throwable {
         try {
             isNullExpression_ = false;
             double result = compEx.evaluate_double( args_ );
@@ -351,6 +382,36 @@ public abstract class JELRowReader extends DVMap {
         }
     }
 
+    /**
+     * Returns the argument array to pass to a CompiledExpression's
+     * evaluation methods for evaluation by this reader.
+     * Only for use where this reader is confined to a single thread.
+     *
+     * @return  evaluation arguments
+     */
+    Object[] getArguments() {
+        return args_;
+    }
+
+    /**
+     * Resets the flag indicating that a null value has been encountered.
+     * Should be called before each evaluation done directly using
+     * {@link #getArguments}.
+     */
+    void clearNullExpression() {
+        isNullExpression_ = false;
+    }
+
+    /**
+     * Indicates whether a null value has been encountered since the
+     * last call to {@link #clearNullExpression}.
+     *
+     * @return  true iff the last evaluation result should be null
+     */
+    boolean isNullExpression() {
+        return isNullExpression_;
+    }
+
     /**
      * Returns the type name of the quantity which is referenced in 
      * expressions with a given name.  The significance of this return
@@ -25,8 +25,7 @@ public class JELTable extends WrapperStarTable {
     private final StarTable baseTable_;
     private final String[] exprs_;
     private final ColumnInfo[] colInfos_;
-    private final CompiledExpression[] randomCompexs_;
-    private final RandomJELRowReader randomReader_;
+    private final RandomJELEvaluator randomEvaluator_;
     private final int ncol_;
 
     /**
@@ -58,15 +57,14 @@ public class JELTable extends WrapperStarTable {
         }
         ncol_ = exprs.length;
 
-        /* Compile the expressions ready for random evaluation. */
-        randomReader_ = new RandomJELRowReader( baseTable );
-        Library lib = JELUtils.getLibrary( randomReader_ );
-        randomCompexs_ = new CompiledExpression[ ncol_ ];
+        /* Check that the expressions compile. */
+        RandomJELRowReader randomReader = new RandomJELRowReader( baseTable );
+        Library lib = JELUtils.getLibrary( randomReader );
         for ( int i = 0; i < ncol_; i++ ) {
             final String expr = exprs_[ i ];
             ColumnInfo colInfo = colInfos_[ i ];
             try {
-                randomCompexs_[ i ] = JELUtils.compile( lib, baseTable, expr );
+                JELUtils.compile( lib, baseTable, expr );
             }
 
             /* If there's trouble, rethrow the exception to give more
@@ -97,6 +95,11 @@ public class JELTable extends WrapperStarTable {
             }
             colInfos_[ i ].setContentClass( clazz );
         }
+
+        /* Prepare for random evaluation, which may be done concurrently
+         * from multiple threads. */
+        randomEvaluator_ =
+            new RandomJELEvaluator( randomReader, exprs_, null );
     }
 
     public int getColumnCount() {
@@ -109,7 +112,7 @@ public class JELTable extends WrapperStarTable {
 
     public Object getCell( long irow, int icol ) throws IOException {
         try {
-            return randomReader_.evaluateAtRow( randomCompexs_[ icol ], irow );
+            return randomEvaluator_.evaluateAtRow( icol, irow );
         }
         catch ( IOException e ) {
             throw e;
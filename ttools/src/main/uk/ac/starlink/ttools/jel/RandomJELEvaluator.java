@@ -0,0 +1,238 @@
+package uk.ac.starlink.ttools.jel;
+
+import gnu.jel.CompilationException;
+import gnu.jel.CompiledExpression;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Evaluates a fixed set of JEL expressions at arbitrary rows of a
+ * random-access table, safely and without locking from multiple threads.
+ *
+ * <p>A {@link RandomJELRowReader} keeps the current row and some
+ * evaluation state in its own fields, so its evaluation methods
+ * have to be synchronized, and a table which shares one reader between
+ * threads serialises all its expression evaluations.
+ * This class instead keeps a pool of evaluation contexts, each
+ * consisting of a reader got from {@link RandomJELRowReader#copyReader}
+ * and copies of the expressions compiled against that reader.
+ * An evaluation borrows a context from the pool and returns it
+ * afterwards, and a new context is only compiled when all the
+ * existing ones are in use, so the number of compilations is limited
+ * by the number of concurrent evaluations rather than the number of
+ * threads that have ever used this object.
+ *
+ * <p>If the prototype reader cannot be copied,
+ * expressions are compiled once against the prototype reader itself,
+ * and evaluations are synchronized on it.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+public class RandomJELEvaluator {
+
+    private final RandomJELRowReader protoReader_;
+    private final String[] exprs_;
+    private final Class reqType_;
+    private final boolean isShared_;
+    private final Queue<Context> pool_;
+    private Context sharedContext_;
+
+    /**
+     * Constructor.
+     * The expressions are assumed to have been checked already;
+     * if one fails to compile, the error will be reported
+     * when it is evaluated.
+     *
+     * @param  protoReader  reader providing the evaluation context;
+     *                      it is only used as a template,
+     *                      unless it cannot be copied, in which case
+     *                      it is used for synchronized evaluation
+     * @param  exprs   expressions to evaluate
+     * @param  reqType  required type of compiled expressions,
+     *                  or null for no requirement
+     */
+    public RandomJELEvaluator( RandomJELRowReader protoReader, String[] exprs,
+                               Class reqType ) {
+        protoReader_ = protoReader;
+        exprs_ = (String[]) exprs.clone();
+        reqType_ = reqType;
+        isShared_ = protoReader.copyReader() == null;
+        pool_ = new ConcurrentLinkedQueue<Context>();
+    }
+
+    /**
+     * Returns the number of expressions this evaluator can evaluate.
+     *
+     * @return  expression count
+     */
+    public int getExpressionCount() {
+        return exprs_.length;
+    }
+
+    /**
+     * Evaluates one of this evaluator's expressions at a given row.
+     * The returned value is wrapped up as an object if the result of
+     * the expression is a primitive.
+     *
+     * @param  iexpr  index of expression
+     * @param  irow   row index
+     * @return   expression value
+     */
+    public Object evaluateAtRow( int iexpr, long irow ) throws Throwable {
+        if ( isShared_ ) {
+            synchronized ( protoReader_ ) {
+                return getSharedContext().evaluate( iexpr, irow );
+            }
+        }
+        else {
+            Context context = borrowContext();
+            try {
+                return context.evaluate( iexpr, irow );
+            }
+            finally {
+                pool_.offer( context );
+            }
+        }
+    }
+
+    /**
+     * Evaluates one of this evaluator's numeric-valued expressions
+     * at a given row as a double.  A null value gives NaN.
+     *
+     * @param  iexpr  index of expression
+     * @param  irow   row index
+     * @return   expression value
+     */
+    public double evaluateDoubleAtRow( int iexpr, long irow )
+            throws Throwable {
+        if ( isShared_ ) {
+            synchronized ( protoReader_ ) {
+                return getSharedContext().evaluateDouble( iexpr, irow );
+            }
+        }
+        else {
+            Context context = borrowContext();
+            try {
+                return context.evaluateDouble( iexpr, irow );
+            }
+            finally {
+                pool_.offer( context );
+            }
+        }
+    }
+
+    /**
+     * Compiles an expression against a row reader.
+     * The default implementation uses the standard JEL library
+     * for the reader; subclasses may override it to use a different one.
+     *
+     * @param  reader  row reader
+     * @param  expr   expression
+     * @param  reqType  required expression type, or null
+     * @return   compiled expression
+     */
+    protected CompiledExpression compile( RandomJELRowReader reader,
+                                          String expr, Class reqType )
+            throws CompilationException {
+        return reqType == null
+             ? JELUtils.compile( JELUtils.getLibrary( reader ),
+                                 reader.getTable(), expr )
+             : JELUtils.compile( JELUtils.getLibrary( reader ),
+                                 reader.getTable(), expr, reqType );
+    }
+
+    /**
+     * Takes an unused context from the pool, or creates a new one
+     * if none is available.  The caller should return it to the pool
+     * when it has finished with it.
+     *
+     * @return  context for use by the calling thread only
+     */
+    private Context borrowContext() throws IOException {
+        Context context = pool_.poll();
+        return context == null ? createContext( protoReader_.copyReader() )
+                               : context;
+    }
+
+    /**
+     * Returns the context based on the prototype reader, used when
+     * that cannot be copied.  Must be called while synchronized on
+     * the prototype reader.
+     *
+     * @return  shared context
+     */
+    private Context getSharedContext() throws IOException {
+        if ( sharedContext_ == null ) {
+            sharedContext_ = createContext( protoReader_ );
+        }
+        return sharedContext_;
+    }
+
+    /**
+     * Creates a new evaluation context by compiling this evaluator's
+     * expressions against a given reader.
+     *
+     * @param  reader  row reader
+     * @return  new context
+     */
+    private Context createContext( RandomJELRowReader reader )
+            throws IOException {
+        int nexpr = exprs_.length;
+        CompiledExpression[] compexs = new CompiledExpression[ nexpr ];
+        for ( int i = 0; i < nexpr; i++ ) {
+            try {
+                compexs[ i ] = compile( reader, exprs_[ i ], reqType_ );
+            }
+            catch ( CompilationException e ) {
+                throw JELUtils.toIOException( e, exprs_[ i ] );
+            }
+        }
+        return new Context( reader, compexs );
+    }
+
+    /**
+     * Aggregates the state used for evaluation.
+     * An instance may only be used by one thread at a time.
+     */
+    private static class Context {
+        final RandomJELRowReader reader_;
+        final CompiledExpression[] compexs_;
+
+        /**
+         * Constructor.
+         *
+         * @param  reader  row reader
+         * @param  compexs  expressions compiled against reader
+         */
+        Context( RandomJELRowReader reader, CompiledExpression[] compexs ) {
+            reader_ = reader;
+            compexs_ = compexs;
+        }
+
+        /**
+         * Evaluates an expression at a given row.
+         *
+         * @param  iexpr  index of expression
+         * @param  irow   row index
+         * @return   expression value
+         */
+        Object evaluate( int iexpr, long irow ) throws Throwable {
+            reader_.setCurrentRow( irow );
+            return reader_.evaluateUnsynchronized( compexs_[ iexpr ] );
+        }
+
+        /**
+         * Evaluates a numeric expression at a given row as a double.
+         *
+         * @param  iexpr  index of expression
+         * @param  irow   row index
+         * @return   expression value
+         */
+        double evaluateDouble( int iexpr, long irow ) throws Throwable {
+            reader_.setCurrentRow( irow );
+            return reader_.evaluateDoubleUnsynchronized( compexs_[ iexpr ] );
+        }
+    }
+}
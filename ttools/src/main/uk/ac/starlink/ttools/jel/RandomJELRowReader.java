@@ -34,6 +34,15 @@ public class RandomJELRowReader extends StarTableJELRowReader {
         return lrow_;
     }
 
+    /**
+     * Returns the current row, which is a row index of the table.
+     *
+     * @return  current row
+     */
+    protected long getTableRowIndex() {
+        return lrow_;
+    }
+
     /**
      * Sets the current row for evaluations.
      *
@@ -56,6 +65,28 @@ public class RandomJELRowReader extends StarTableJELRowReader {
         return evaluate( compEx );
     }
 
+    /**
+     * Returns a new reader with the same evaluation context as this one.
+     * Expressions to be evaluated by the new reader must be compiled
+     * against it.  This can be used to give each of several threads
+     * its own reader, so that they do not contend for this one.
+     *
+     * <p>Subclasses which add to the evaluation context should override
+     * this method to return an instance of their own class.
+     * This implementation returns null if called on a subclass,
+     * indicating that the reader cannot be copied;
+     * in that case users must share this reader,
+     * using its synchronized evaluation methods.
+     *
+     * @return  new reader, or null if this reader cannot be copied
+     * @see   RandomJELEvaluator
+     */
+    public RandomJELRowReader copyReader() {
+        return getClass() == RandomJELRowReader.class
+             ? new RandomJELRowReader( table_ )
+             : null;
+    }
+
     /**
      * Returns the cell at a given column in the current row.
      *
@@ -49,6 +49,10 @@ public class SequentialJELRowReader extends StarTableJELRowReader
         return lrow_;
     }
 
+    protected long getTableRowIndex() {
+        return lrow_;
+    }
+
     public void close() throws IOException {
         rseq_.close();
     }
@@ -10,6 +10,7 @@ import uk.ac.starlink.table.ColumnInfo;
 import uk.ac.starlink.table.DescribedValue;
 import uk.ac.starlink.table.StarTable;
 import uk.ac.starlink.table.Tables;
+import uk.ac.starlink.table.storage.PrimitiveColumnAccess;
 
 /**
  * JELRowReader subclass for access to StarTables.
@@ -59,12 +60,27 @@ import uk.ac.starlink.table.Tables;
  *
  * </dl>
  *
+ * <p>If the table is a random-access table implementing
+ * {@link uk.ac.starlink.table.storage.PrimitiveColumnAccess}
+ * which can read single values efficiently,
+ * and the subclass reports the table row index of the current row
+ * using {@link #getTableRowIndex}, the values of scalar primitive
+ * columns are read using the table's primitive access methods,
+ * so that evaluating an expression does not require creating
+ * wrapper objects for them.
+ *
  * @author   Mark Taylor
  * @since    7 Dec 2007
  */
 public abstract class StarTableJELRowReader extends JELRowReader {
 
     private final StarTable table_;
+    private final PrimitiveColumnAccess primAccess_;
+    private final boolean[] primFlags_;
+    private final double[] dval1_;
+    private final long[] lval1_;
+    private final boolean[] bval1_;
+    private final boolean[] blank1_;
     private final long HASH_LONG = System.identityHashCode( this );
     private static final Logger logger_ =
         Logger.getLogger( "uk.ac.starlink.ttools.jel" );
@@ -101,6 +117,27 @@ public abstract class StarTableJELRowReader extends JELRowReader {
      */
     public StarTableJELRowReader( StarTable table ) {
         table_ = table;
+        if ( table instanceof PrimitiveColumnAccess && table.isRandom() &&
+             ((PrimitiveColumnAccess) table).isCellAccessEfficient() ) {
+            primAccess_ = (PrimitiveColumnAccess) table;
+            int ncol = table.getColumnCount();
+            primFlags_ = new boolean[ ncol ];
+            for ( int icol = 0; icol < ncol; icol++ ) {
+                Class pclazz = primAccess_.getPrimitiveClass( icol );
+                primFlags_[ icol ] =
+                    pclazz != null &&
+                    JELUtils.getWrapperType( pclazz )
+                   .equals( table.getColumnInfo( icol ).getContentClass() );
+            }
+        }
+        else {
+            primAccess_ = null;
+            primFlags_ = new boolean[ 0 ];
+        }
+        dval1_ = new double[ 1 ];
+        lval1_ = new long[ 1 ];
+        bval1_ = new boolean[ 1 ];
+        blank1_ = new boolean[ 1 ];
     }
 
     /**
@@ -129,6 +166,22 @@ public abstract class StarTableJELRowReader extends JELRowReader {
      */
     public abstract long getCurrentRow();
 
+    /**
+     * Returns the index in this reader's table of the row whose values
+     * are returned by {@link #getCell}, if known.
+     * If this returns a non-negative value, primitive column values
+     * may be read directly from the table at that index
+     * rather than using <code>getCell</code>.
+     * The default implementation returns -1; subclasses whose current row
+     * is always the table row with index {@link #getCurrentRow}
+     * may override it to return that value.
+     *
+     * @return   table row index of current row, or -1 if not known
+     */
+    protected long getTableRowIndex() {
+        return -1;
+    }
+
     protected boolean isBlank( int icol ) {
         try {
             return Tables.isBlank( getCell( icol ) );
@@ -334,6 +387,21 @@ public abstract class StarTableJELRowReader extends JELRowReader {
     }
 
     protected boolean getBooleanColumnValue( int icol ) {
+        long irow = getPrimitiveRowIndex( icol );
+        if ( irow >= 0 ) {
+            try {
+                primAccess_.readBlanks( icol, irow, blank1_, 0, 1 );
+                if ( ! blank1_[ 0 ] ) {
+                    primAccess_.readBooleans( icol, irow, bval1_, 0, 1 );
+                    return bval1_[ 0 ];
+                }
+            }
+            catch ( IOException e ) {
+                logger_.warning( "Expression evaluation error: " + e );
+            }
+            foundNull();
+            return false;
+        }
         return getBooleanValue( (Boolean) getCellValue( icol ) );
     }
     protected byte getByteColumnValue( int icol ) {
@@ -346,21 +414,85 @@ public abstract class StarTableJELRowReader extends JELRowReader {
         return getShortValue( (Short) getCellValue( icol ) );
     }
     protected int getIntColumnValue( int icol ) {
-        return getIntValue( (Integer) getCellValue( icol ) );
+        return getPrimitiveRowIndex( icol ) >= 0
+             ? (int) getPrimitiveLongValue( icol )
+             : getIntValue( (Integer) getCellValue( icol ) );
     }
     protected long getLongColumnValue( int icol ) {
-        return getLongValue( (Long) getCellValue( icol ) );
+        return getPrimitiveRowIndex( icol ) >= 0
+             ? getPrimitiveLongValue( icol )
+             : getLongValue( (Long) getCellValue( icol ) );
     }
     protected float getFloatColumnValue( int icol ) {
-        return getFloatValue( (Float) getCellValue( icol ) );
+        return getPrimitiveRowIndex( icol ) >= 0
+             ? (float) getPrimitiveDoubleValue( icol )
+             : getFloatValue( (Float) getCellValue( icol ) );
     }
     protected double getDoubleColumnValue( int icol ) {
-        return getDoubleValue( (Double) getCellValue( icol ) );
+        return getPrimitiveRowIndex( icol ) >= 0
+             ? getPrimitiveDoubleValue( icol )
+             : getDoubleValue( (Double) getCellValue( icol ) );
     }
     protected Object getObjectColumnValue( int icol ) {
         return getCellValue( icol );
     }
 
+    /**
+     * Returns the table row index at which a given column's value may be
+     * read using primitive access, if that is possible.
+     *
+     * @param  icol  column index
+     * @return   table row index of current row,
+     *           or -1 if primitive access is not available
+     */
+    private long getPrimitiveRowIndex( int icol ) {
+        return icol < primFlags_.length && primFlags_[ icol ]
+             ? getTableRowIndex()
+             : -1;
+    }
+
+    /**
+     * Reads the value of an integer column at the current row using
+     * primitive access.  Null values are flagged using
+     * {@link #foundNull}.
+     *
+     * @param  icol  column index
+     * @return  column value at current row; zero if null
+     */
+    private long getPrimitiveLongValue( int icol ) {
+        long irow = getTableRowIndex();
+        try {
+            primAccess_.readBlanks( icol, irow, blank1_, 0, 1 );
+            if ( ! blank1_[ 0 ] ) {
+                primAccess_.readLongs( icol, irow, lval1_, 0, 1 );
+                return lval1_[ 0 ];
+            }
+        }
+        catch ( IOException e ) {
+            logger_.warning( "Expression evaluation error: " + e );
+        }
+        foundNull();
+        return 0L;
+    }
+
+    /**
+     * Reads the value of a floating point column at the current row
+     * using primitive access.
+     *
+     * @param  icol  column index
+     * @return  column value at current row; NaN if null
+     */
+    private double getPrimitiveDoubleValue( int icol ) {
+        try {
+            primAccess_.readDoubles( icol, getTableRowIndex(), dval1_, 0, 1 );
+            return dval1_[ 0 ];
+        }
+        catch ( IOException e ) {
+            logger_.warning( "Expression evaluation error: " + e );
+            return Double.NaN;
+        }
+    }
+
     /**
      * Returns the value of a cell in the current row without throwing checked
      * errors.
@@ -4,6 +4,7 @@ import java.util.logging.Logger;
 import uk.ac.starlink.table.DefaultValueInfo;
 import uk.ac.starlink.table.DescribedValue;
 import uk.ac.starlink.table.ValueInfo;
+import uk.ac.starlink.table.join.LongBinMatchEngine;
 import uk.ac.starlink.table.join.MatchEngine;
 import uk.ac.starlink.table.join.NdRange;
 import uk.ac.starlink.ttools.func.CoordsRadians;
@@ -17,6 +18,11 @@ import uk.ac.starlink.ttools.func.CoordsRadians;
  * exactly the same as its base engine.  If the base engine has no
  * human-unfriendly units, this one should behave exactly the same.
  *
+ * <p>The {@link #createHumanMatchEngine} factory method should
+ * generally be used in preference to the constructor, since it
+ * preserves the primitive binning capability of base engines which
+ * implement {@link uk.ac.starlink.table.join.LongBinMatchEngine}.
+ *
  * @author   Mark Taylor
  * @since    2 Sep 2005
  */
@@ -136,6 +142,22 @@ public class HumanMatchEngine implements MatchEngine {
                                                      .getMaxs() ) ) );
     }
 
+    /**
+     * Returns a HumanMatchEngine based on a given engine.
+     * If the base engine is a {@link LongBinMatchEngine},
+     * the result will be too.
+     *
+     * @param   baseEngine  the match engine supplying the base behaviour
+     *          for the result
+     * @return   new human-friendly match engine
+     */
+    public static HumanMatchEngine
+            createHumanMatchEngine( MatchEngine baseEngine ) {
+        return baseEngine instanceof LongBinMatchEngine
+             ? new LongBinHumanMatchEngine( (LongBinMatchEngine) baseEngine )
+             : new HumanMatchEngine( baseEngine );
+    }
+
     /**
      * Unwraps a tuple of objects from a client of this engine, providing
      * one suitable for the base engine.
@@ -143,7 +165,7 @@ public class HumanMatchEngine implements MatchEngine {
      * @param  wrapped   tuple provided by client
      * @return   tuple suitable for base
      */
-    private Object[] unwrapTuple( Object[] wrapped ) {
+    Object[] unwrapTuple( Object[] wrapped ) {
         Object[] unwrapped = new Object[ nval_ ];
         for ( int i = 0; i < nval_; i++ ) {
             unwrapped[ i ] = tupleWrappers_[ i ].unwrapValue( wrapped[ i ] );
@@ -383,4 +405,26 @@ public class HumanMatchEngine implements MatchEngine {
             };
         }
     }
+
+    /**
+     * HumanMatchEngine subclass which can provide primitive bins.
+     */
+    private static class LongBinHumanMatchEngine extends HumanMatchEngine
+                                                 implements LongBinMatchEngine {
+        private final LongBinMatchEngine longBaseEngine_;
+
+        /**
+         * Constructor.
+         *
+         * @param  baseEngine  base engine
+         */
+        LongBinHumanMatchEngine( LongBinMatchEngine baseEngine ) {
+            super( baseEngine );
+            longBaseEngine_ = baseEngine;
+        }
+
+        public int getLongBins( Object[] tuple, long[] bins ) {
+            return longBaseEngine_.getLongBins( unwrapTuple( tuple ), bins );
+        }
+    }
 }
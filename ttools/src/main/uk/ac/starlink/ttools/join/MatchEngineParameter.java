@@ -511,7 +511,8 @@ public class MatchEngineParameter extends Parameter<MatchEngine>
                                             + cName );
                 }
             }
-            components[ i ] = new HumanMatchEngine( component );
+            components[ i ] =
+                HumanMatchEngine.createHumanMatchEngine( component );
         }
         return components.length == 1
              ? components[ 0 ]
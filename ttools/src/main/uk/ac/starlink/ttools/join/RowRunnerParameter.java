@@ -0,0 +1,67 @@
+package uk.ac.starlink.ttools.join;
+
+import uk.ac.starlink.table.RowRunner;
+import uk.ac.starlink.task.Environment;
+import uk.ac.starlink.task.IntegerParameter;
+import uk.ac.starlink.task.TaskException;
+
+/**
+ * Parameter for getting a RowRunner which determines how many threads
+ * are used for crossmatching.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+public class RowRunnerParameter extends IntegerParameter {
+
+    /**
+     * Constructor.
+     *
+     * @param   name  parameter name
+     */
+    public RowRunnerParameter( String name ) {
+        super( name );
+        setIntDefault( 1 );
+        setMinimum( 0 );
+        setUsage( "<n>" );
+        setPrompt( "Number of threads to use for matching" );
+        setDescription( new String[] {
+            "<p>Determines how many threads are used to perform",
+            "the match.",
+            "If set to the default value, 1, all the processing",
+            "is done sequentially in a single thread.",
+            "If set to a larger value <code>&lt;n&gt;</code>,",
+            "the work of binning rows and scoring candidate pairs",
+            "is divided between up to <code>&lt;n&gt;</code> threads,",
+            "which may make the match faster on a multi-core machine.",
+            "The special value 0 means use as many threads as there",
+            "are available processors.",
+            "The result of the match does not depend on this value.",
+            "</p>",
+            "<p>Note that parallel processing will normally require",
+            "more memory than sequential processing,",
+            "and that only input tables which provide random access",
+            "can be divided up between threads.",
+            "</p>",
+        } );
+    }
+
+    /**
+     * Returns the row runner indicated by the value of this parameter.
+     *
+     * @param  env  execution environment
+     * @return   row runner, not null
+     */
+    public RowRunner rowRunnerValue( Environment env ) throws TaskException {
+        int nthread = intValue( env );
+        if ( nthread == 1 ) {
+            return RowRunner.SEQUENTIAL;
+        }
+        else if ( nthread == 0 ) {
+            return RowRunner.DEFAULT;
+        }
+        else {
+            return new RowRunner( nthread, RowRunner.DFLT_MIN_CHUNK );
+        }
+    }
+}
@@ -2,6 +2,7 @@ package uk.ac.starlink.ttools.join;
 
 import java.io.PrintStream;
 import uk.ac.starlink.table.JoinFixAction;
+import uk.ac.starlink.table.RowRunner;
 import uk.ac.starlink.table.join.FixedSkyMatchEngine;
 import uk.ac.starlink.table.join.HealpixSkyPixellator;
 import uk.ac.starlink.table.join.JoinType;
@@ -36,6 +37,7 @@ public class SkyMatch2Mapper implements TableMapper {
     private final JoinTypeParameter joinParam_;
     private final FindModeParameter modeParam_;
     private final IntegerParameter healpixkParam_;
+    private final RowRunnerParameter runnerParam_;
 
     /**
      * Constructor.
@@ -90,6 +92,7 @@ public class SkyMatch2Mapper implements TableMapper {
 
         joinParam_ = new JoinTypeParameter( "join" );
         modeParam_ = new FindModeParameter( "find" );
+        runnerParam_ = new RowRunnerParameter( "threads" );
     }
 
     public Parameter[] getParameters() {
@@ -102,6 +105,7 @@ public class SkyMatch2Mapper implements TableMapper {
             healpixkParam_,
             joinParam_,
             modeParam_,
+            runnerParam_,
         }; 
     }
 
@@ -127,6 +131,7 @@ public class SkyMatch2Mapper implements TableMapper {
         pixer.setHealpixK( k );
         JoinType join = joinParam_.joinTypeValue( env );
         PairMode pairMode = modeParam_.objectValue( env );
+        RowRunner runner = runnerParam_.rowRunnerValue( env );
 
         JoinFixAction fixact1 =
             JoinFixAction.makeRenameDuplicatesAction( "_1", false, true );
@@ -138,6 +143,7 @@ public class SkyMatch2Mapper implements TableMapper {
                 ? (ProgressIndicator) new NullProgressIndicator()
                 : (ProgressIndicator) new TextProgressIndicator( err, false );
         return new SkyMatch2Mapping( matcher, ra1, dec1, ra2, dec2, join,
-                                     pairMode, fixact1, fixact2, progger );
+                                     pairMode, fixact1, fixact2, progger,
+                                     runner );
     }
 }
@@ -119,6 +119,15 @@ public abstract class ColStats {
      */
     protected abstract void acceptDatum( Object value );
 
+    /**
+     * Adds the data accumulated by another stats object to this one.
+     * The other object must have been created for the same column,
+     * and should cover data following that accumulated here.
+     *
+     * @param  other  stats object of the same type as this one
+     */
+    protected abstract void addStats( ColStats other );
+
     /**
      * Returns the mean of the accumulated data.
      *
@@ -187,6 +196,9 @@ public abstract class ColStats {
                 ngood_++;
             }
         }
+        protected void addStats( ColStats other ) {
+            ngood_ += ((BasicColStats) other).ngood_;
+        }
         protected double getMeanValue() {
             return Double.NaN;
         }
@@ -221,6 +233,11 @@ public abstract class ColStats {
                 }
             }
         }
+        protected void addStats( ColStats other ) {
+            BooleanColStats bother = (BooleanColStats) other;
+            ngood_ += bother.ngood_;
+            ntrue_ += bother.ntrue_;
+        }
         protected double getMeanValue() {
             return (double) ntrue_ / (double) ngood_;
         }
@@ -264,6 +281,21 @@ public abstract class ColStats {
             }
         }
 
+        protected void addStats( ColStats other ) {
+            NumberColStats nother = (NumberColStats) other;
+            ngood_ += nother.ngood_;
+            sum_ += nother.sum_;
+            sum2_ += nother.sum2_;
+            if ( nother.dmin_ < dmin_ ) {
+                dmin_ = nother.dmin_;
+                min_ = nother.min_;
+            }
+            if ( nother.dmax_ > dmax_ ) {
+                dmax_ = nother.dmax_;
+                max_ = nother.max_;
+            }
+        }
+
         protected double getMeanValue() {
             return ngood_ > 0 ? sum_ / ngood_
                               : Double.NaN;
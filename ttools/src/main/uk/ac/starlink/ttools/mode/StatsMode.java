@@ -7,7 +7,9 @@ import uk.ac.starlink.table.BeanStarTable;
 import uk.ac.starlink.table.ColumnInfo;
 import uk.ac.starlink.table.DefaultValueInfo;
 import uk.ac.starlink.table.DescribedValue;
-import uk.ac.starlink.table.RowSequence;
+import uk.ac.starlink.table.RowCollector;
+import uk.ac.starlink.table.RowRunner;
+import uk.ac.starlink.table.RowSplittable;
 import uk.ac.starlink.table.StarTable;
 import uk.ac.starlink.table.ValueInfo;
 import uk.ac.starlink.table.formats.TextTableWriter;
@@ -78,30 +80,12 @@ public class StatsMode implements ProcessingMode {
     private static StarTable makeStatsTable( StarTable table )
             throws IOException {
 
-        /* Get an array of objects each of which can accumulate the
-         * statistics for one column of the base table. */
-        int ncol = table.getColumnCount();
-        ColStats[] stats = new ColStats[ ncol ];
-        for ( int icol = 0; icol < ncol; icol++ ) {
-            stats[ icol ] =
-                ColStats.makeColStats( table.getColumnInfo( icol ) );
-        }
-
-        /* Accumulate the statistics. */
-        RowSequence rseq = table.getRowSequence();
-        long nrow = 0;
-        try {
-            while ( rseq.next() ) {
-                nrow++;
-                Object[] row = rseq.getRow();
-                for ( int icol = 0; icol < ncol; icol++ ) {
-                    stats[ icol ].acceptDatum( row[ icol ] );
-                }
-            }
-        }
-        finally {
-            rseq.close();
-        }
+        /* Accumulate the statistics, in parallel if the table
+         * can be split into row ranges. */
+        StatsAccumulator acc =
+            RowRunner.DEFAULT.collect( new StatsCollector( table ), table );
+        ColStats[] stats = acc.stats_;
+        long nrow = acc.nrow_;
 
         /* Turn the array of ColStats objects into a StarTable. */
         StarTable statsTable;
@@ -134,4 +118,69 @@ public class StatsMode implements ProcessingMode {
         return statsTable;
     }
 
+    /**
+     * Accumulates statistics for all the columns of a table.
+     */
+    private static class StatsAccumulator {
+        final ColStats[] stats_;
+        long nrow_;
+
+        /**
+         * Constructor.
+         *
+         * @param  stats  array of per-column stats objects
+         */
+        StatsAccumulator( ColStats[] stats ) {
+            stats_ = stats;
+        }
+    }
+
+    /**
+     * Collector which accumulates per-column statistics.
+     */
+    private static class StatsCollector
+            extends RowCollector<StatsAccumulator> {
+        private final StarTable table_;
+
+        /**
+         * Constructor.
+         *
+         * @param  table  table whose stats are to be calculated
+         */
+        StatsCollector( StarTable table ) {
+            table_ = table;
+        }
+
+        public StatsAccumulator createAccumulator() {
+            int ncol = table_.getColumnCount();
+            ColStats[] stats = new ColStats[ ncol ];
+            for ( int icol = 0; icol < ncol; icol++ ) {
+                stats[ icol ] =
+                    ColStats.makeColStats( table_.getColumnInfo( icol ) );
+            }
+            return new StatsAccumulator( stats );
+        }
+
+        public void accumulateRows( RowSplittable rseq, StatsAccumulator acc )
+                throws IOException {
+            ColStats[] stats = acc.stats_;
+            int ncol = stats.length;
+            while ( rseq.next() ) {
+                acc.nrow_++;
+                Object[] row = rseq.getRow();
+                for ( int icol = 0; icol < ncol; icol++ ) {
+                    stats[ icol ].acceptDatum( row[ icol ] );
+                }
+            }
+        }
+
+        public StatsAccumulator combine( StatsAccumulator acc1,
+                                         StatsAccumulator acc2 ) {
+            for ( int icol = 0; icol < acc1.stats_.length; icol++ ) {
+                acc1.stats_[ icol ].addStats( acc2.stats_[ icol ] );
+            }
+            acc1.nrow_ += acc2.nrow_;
+            return acc1;
+        }
+    }
 }
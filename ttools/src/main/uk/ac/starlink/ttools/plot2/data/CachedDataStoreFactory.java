@@ -571,25 +571,48 @@ public class CachedDataStoreFactory implements DataStoreFactory {
     }
 
     /**
-     * TupleSequence implementation based on CachedColumns.
+     * TupleSplittable implementation based on CachedColumns.
+     * It covers a contiguous range of rows, which may be split into
+     * sub-ranges for processing in parallel.
      */
-    private static class CachedTupleSequence implements TupleSequence {
+    private static class CachedTupleSequence implements TupleSplittable {
 
+        private final CachedColumn mask_;
+        private final CachedColumn[] cols_;
         private final int ncol_;
-        private final long nrow_;
         private final CachedReader maskRdr_;
         private final CachedReader[] colRdrs_;
-        private long irow_ = -1;
+        private final long nrow_;
+        private long irow_;
+
+        /** Minimum number of rows for which splitting is worth while. */
+        private static final long MIN_SPLIT = 1000;
 
         /**
-         * Constructor.
+         * Constructs a sequence covering all the rows of its columns.
          *
          * @param  mask  boolean-typed column providing inclusion flags per row
          * @param  cols  array of columns providing data cells per row
          */
         CachedTupleSequence( CachedColumn mask, CachedColumn[] cols ) {
+            this( mask, cols, 0, mask.getRowCount() );
+        }
+
+        /**
+         * Constructs a sequence covering a given range of rows.
+         *
+         * @param  mask  boolean-typed column providing inclusion flags per row
+         * @param  cols  array of columns providing data cells per row
+         * @param  irow0  index of the first row covered
+         * @param  nrow   index after the last row covered
+         */
+        private CachedTupleSequence( CachedColumn mask, CachedColumn[] cols,
+                                     long irow0, long nrow ) {
+            mask_ = mask;
+            cols_ = cols;
             ncol_ = cols.length;
-            nrow_ = mask.getRowCount();
+            nrow_ = nrow;
+            irow_ = irow0 - 1;
             maskRdr_ = mask.createReader();
             colRdrs_ = new CachedReader[ ncol_ ];
             for ( int ic = 0; ic < ncol_; ic++ ) {
@@ -597,6 +620,26 @@ public class CachedDataStoreFactory implements DataStoreFactory {
             }
         }
 
+        public TupleSplittable split() {
+            long irow0 = irow_ + 1;
+            long nr = nrow_ - irow0;
+            if ( nr < 2 * MIN_SPLIT ) {
+                return null;
+            }
+
+            /* Fresh readers are acquired for the new sequence,
+             * so it does not share any state with this one. */
+            long mid = irow0 + nr / 2;
+            CachedTupleSequence head =
+                new CachedTupleSequence( mask_, cols_, irow0, mid );
+            irow_ = mid - 1;
+            return head;
+        }
+
+        public long splittableSize() {
+            return nrow_ - ( irow_ + 1 );
+        }
+
         public boolean next() {
             while ( ++irow_ < nrow_ ) {
                 if ( maskRdr_.getBooleanValue( irow_ ) ) {
@@ -38,6 +38,10 @@ public interface DataStore {
      * Must only be called if {@link #hasData} returns true for the
      * given DataSpec; if not, behaviour is undefined.
      *
+     * <p>The returned object may be a {@link TupleSplittable},
+     * in which case a {@link TupleRunner} can be used to process
+     * its tuples in parallel.
+     *
      * @param   spec   plot data specification object
      * @return  sequence of values which can be used to perform a plot
      */
@@ -0,0 +1,50 @@
+package uk.ac.starlink.ttools.plot2.data;
+
+/**
+ * Accumulates information from the tuples of a data set, in a way which
+ * can be performed in parallel on disjoint parts of the data.
+ * An accumulator object is created for each part,
+ * the tuples in that part are fed to it, and then the accumulators
+ * are combined pairwise to yield a single result.
+ * Instances are executed by a {@link TupleRunner}.
+ *
+ * <p>Implementations must take care that the accumulator objects
+ * do not share mutable state, since they may be populated on
+ * different threads.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ * @see      uk.ac.starlink.table.RowCollector
+ */
+public abstract class TupleCollector<A> {
+
+    /**
+     * Returns a new empty accumulator.
+     *
+     * @return   new accumulator
+     */
+    public abstract A createAccumulator();
+
+    /**
+     * Consumes all the tuples of a tuple sequence,
+     * accumulating information from them into a given accumulator.
+     *
+     * @param  tseq   tuple sequence positioned at the start of its iteration
+     * @param  acc    accumulator to populate,
+     *                created by this collector's {@link #createAccumulator}
+     */
+    public abstract void accumulate( TupleSequence tseq, A acc );
+
+    /**
+     * Combines the information from two accumulators.
+     * The first accumulator covers tuples which precede those covered
+     * by the second one.
+     * The return value may be one of the inputs,
+     * which may be modified in the process.
+     *
+     * @param  acc1  accumulator for earlier tuples
+     * @param  acc2  accumulator for later tuples
+     * @return   accumulator covering the tuples of both inputs
+     */
+    public abstract A combine( A acc1, A acc2 );
+}
@@ -0,0 +1,223 @@
+package uk.ac.starlink.ttools.plot2.data;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+import uk.ac.starlink.ttools.plot2.Slow;
+import uk.ac.starlink.util.DaemonThreadFactory;
+import uk.ac.starlink.util.FutureUtils;
+
+/**
+ * Manages processing of the tuples in a data set, possibly in parallel.
+ * If the tuple sequence is a {@link TupleSplittable}, it is split up
+ * into a number of disjoint parts, and these are fed to accumulators
+ * of a {@link TupleCollector} on threads from a pool.
+ * Each worker thread handles a contiguous run of parts using a single
+ * accumulator, so no more accumulators are created than there are
+ * threads, which matters since accumulators may be large.
+ * The resulting accumulators are then combined in sequence order.
+ * Otherwise, all the work is done on the calling thread.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ * @see      uk.ac.starlink.table.RowRunner
+ */
+public class TupleRunner {
+
+    private final int nthread_;
+    private final long minChunk_;
+
+    /** Number of parts targeted for each thread. */
+    private static final int SPLITS_PER_THREAD = 4;
+
+    /** Default minimum number of rows in a split part. */
+    public static final long DFLT_MIN_CHUNK = 100000;
+
+    /** Instance which uses multiple threads if the hardware supports it. */
+    public static final TupleRunner DEFAULT =
+        new TupleRunner( Runtime.getRuntime().availableProcessors(),
+                         DFLT_MIN_CHUNK );
+
+    /** Instance which does all processing on the calling thread. */
+    public static final TupleRunner SEQUENTIAL = new TupleRunner( 1, 0 );
+
+    private static final Logger logger_ =
+        Logger.getLogger( "uk.ac.starlink.ttools.plot2" );
+
+    /**
+     * Constructor.
+     *
+     * @param  nthread  maximum number of worker threads to use
+     * @param  minChunk  minimum number of rows in a split part;
+     *                   parts smaller than this will not be split
+     */
+    public TupleRunner( int nthread, long minChunk ) {
+        nthread_ = Math.max( 1, nthread );
+        minChunk_ = minChunk;
+    }
+
+    /**
+     * Returns the maximum number of threads this runner will use.
+     *
+     * @return  thread count
+     */
+    public int getThreadCount() {
+        return nthread_;
+    }
+
+    /**
+     * Collects information from all the tuples in a data store
+     * for a given data spec, possibly in parallel.
+     *
+     * @param  collector  collector
+     * @param  dataStore  data store
+     * @param  dataSpec   data specification
+     * @return   accumulator covering all the tuples
+     */
+    @Slow
+    public <A> A collect( TupleCollector<A> collector, DataStore dataStore,
+                          DataSpec dataSpec ) {
+        return collect( collector, dataStore.getTupleSequence( dataSpec ) );
+    }
+
+    /**
+     * Collects information from all the tuples of a tuple sequence,
+     * possibly in parallel.
+     *
+     * <p>If the calling thread is interrupted while waiting for
+     * worker threads, the work is abandoned, the thread's interrupted
+     * status is set, and an empty accumulator is returned.
+     *
+     * @param  collector  collector
+     * @param  tseq  tuple sequence positioned at the start of its iteration
+     * @return   accumulator covering all the tuples of the sequence
+     */
+    @Slow
+    public <A> A collect( TupleCollector<A> collector, TupleSequence tseq ) {
+        List<TupleSequence> splits = partition( tseq );
+        int nsplit = splits.size();
+        if ( nsplit == 1 ) {
+            A acc = collector.createAccumulator();
+            collector.accumulate( splits.get( 0 ), acc );
+            return acc;
+        }
+        else {
+            logger_.config( "Processing tuples in " + nsplit + " parts on "
+                          + Math.min( nthread_, nsplit ) + " threads" );
+            return collectParallel( collector, splits );
+        }
+    }
+
+    /**
+     * Splits a tuple sequence up into a number of parts suitable for
+     * processing by this runner.  If the sequence is not a
+     * {@link TupleSplittable}, the result is a singleton list.
+     *
+     * @param  tseq  tuple sequence positioned at the start of its iteration
+     * @return  list of disjoint tuple sequences in sequence order
+     */
+    public List<TupleSequence> partition( TupleSequence tseq ) {
+        List<TupleSequence> result = new ArrayList<TupleSequence>();
+        if ( nthread_ == 1 || ! ( tseq instanceof TupleSplittable ) ) {
+            result.add( tseq );
+            return result;
+        }
+        LinkedList<TupleSplittable> splits = new LinkedList<TupleSplittable>();
+        splits.add( (TupleSplittable) tseq );
+        int maxSplit = nthread_ * SPLITS_PER_THREAD;
+        while ( splits.size() < maxSplit ) {
+
+            /* Find the largest remaining part. */
+            ListIterator<TupleSplittable> largestIt = null;
+            long largestSize = -1;
+            for ( ListIterator<TupleSplittable> it = splits.listIterator();
+                  it.hasNext(); ) {
+                long size = it.next().splittableSize();
+                if ( size > largestSize ) {
+                    largestSize = size;
+                    largestIt = splits.listIterator( it.previousIndex() );
+                }
+            }
+
+            /* Split it if it's big enough, inserting the head part in
+             * the list before the tail part to preserve sequence order. */
+            if ( largestIt == null || largestSize < 2 * minChunk_ ) {
+                break;
+            }
+            TupleSplittable tail = largestIt.next();
+            TupleSplittable head = tail.split();
+            if ( head == null ) {
+                break;
+            }
+            largestIt.previous();
+            largestIt.add( head );
+        }
+        result.addAll( splits );
+        return result;
+    }
+
+    /**
+     * Performs parallel collection over a given list of tuple sequences.
+     *
+     * @param  collector  collector
+     * @param  splits   disjoint tuple sequences in sequence order
+     * @return   combined accumulator
+     */
+    private <A> A collectParallel( final TupleCollector<A> collector,
+                                   List<TupleSequence> splits ) {
+        int nsplit = splits.size();
+        int nwork = Math.min( nthread_, nsplit );
+        ExecutorService executor =
+            Executors.newFixedThreadPool( nwork,
+                                          new DaemonThreadFactory(
+                                              "TupleRunner" ) );
+        try {
+            List<Future<A>> futures = new ArrayList<Future<A>>( nwork );
+            for ( int iw = 0; iw < nwork; iw++ ) {
+                final List<TupleSequence> run =
+                    splits.subList( iw * nsplit / nwork,
+                                    ( iw + 1 ) * nsplit / nwork );
+                futures.add( executor.submit( new Callable<A>() {
+                    public A call() {
+                        A acc = collector.createAccumulator();
+                        for ( TupleSequence split : run ) {
+                            collector.accumulate( split, acc );
+                        }
+                        return acc;
+                    }
+                } ) );
+            }
+            A result = null;
+            for ( Future<A> future : futures ) {
+                A acc = FutureUtils.getResult( future );
+                result = result == null ? acc
+                                        : collector.combine( result, acc );
+            }
+            return result;
+        }
+        catch ( InterruptedIOException e ) {
+            executor.shutdownNow();
+            return collector.createAccumulator();
+        }
+        catch ( IOException e ) {
+            executor.shutdownNow();
+            throw (RuntimeException) new RuntimeException( e.getMessage() )
+                                    .initCause( e );
+        }
+        catch ( RuntimeException e ) {
+            executor.shutdownNow();
+            throw e;
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
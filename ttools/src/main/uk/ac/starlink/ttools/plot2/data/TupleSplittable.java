@@ -0,0 +1,49 @@
+package uk.ac.starlink.ttools.plot2.data;
+
+/**
+ * TupleSequence which is also capable of partitioning itself into
+ * disjoint parts, each of which can be iterated over independently.
+ * This can be used in the same way as a <code>java.util.Spliterator</code>
+ * to process the tuples of a data set in parallel on multiple threads.
+ *
+ * <p>Splitting must be done before iteration starts,
+ * that is before the first call of {@link #next}.
+ * Although a given TupleSplittable (like any TupleSequence) is not
+ * in general safe for use from multiple threads, the separate parts
+ * resulting from a split may be used concurrently on different threads.
+ *
+ * <p>The {@link TupleRunner} class provides a convenient way to make
+ * use of this facility.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ * @see      uk.ac.starlink.table.RowSplittable
+ */
+public interface TupleSplittable extends TupleSequence {
+
+    /**
+     * Attempts to partition this object into two halves,
+     * ideally of similar size.
+     * If splitting is not possible or not worth while,
+     * <code>null</code> is returned.  Otherwise, the returned object
+     * covers the first part of the tuples previously covered by this one,
+     * and this object is modified to cover only the remainder.
+     *
+     * <p>This method must not be called after the first call
+     * of {@link #next}.
+     *
+     * @return  splittable covering the initial part of this one's tuples,
+     *          or null
+     */
+    TupleSplittable split();
+
+    /**
+     * Returns the number of underlying rows covered by this object,
+     * or an estimate of it.  This is used to make decisions about
+     * whether further splitting is worthwhile.
+     * If no estimate is available, -1 may be returned.
+     *
+     * @return  approximate size of this splittable, or -1
+     */
+    long splittableSize();
+}
@@ -50,12 +50,31 @@ public abstract class ArrayBinList implements BinList {
      */
     protected abstract double getBinResultInt( int index );
 
+    /**
+     * Merges the data accumulated into a given bin of another list
+     * into the same bin of this one.  This is only called for bins
+     * which have had data submitted to the other list.
+     *
+     * @param  index  bin index
+     * @param  other  list of the same type and size as this one
+     */
+    protected abstract void addBinInt( int index, ArrayBinList other );
+
     public void submitToBin( long lndex, double datum ) {
         int index = (int) lndex;
         mask_.set( index );
         submitToBinInt( index, datum );
     }
 
+    public void addBins( BinList other ) {
+        BitSet omask = ((ArrayBinList) other).mask_;
+        for ( int index = omask.nextSetBit( 0 ); index >= 0;
+              index = omask.nextSetBit( index + 1 ) ) {
+            addBinInt( index, (ArrayBinList) other );
+        }
+        mask_.or( omask );
+    }
+
     public long getSize() {
         return size_;
     }
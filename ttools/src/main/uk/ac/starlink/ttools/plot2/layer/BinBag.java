@@ -77,6 +77,25 @@ public class BinBag {
         }
     }
 
+    /**
+     * Adds the bin values accumulated in another bin bag to this one.
+     * The other bag must have been constructed with the same
+     * parameters as this one.
+     *
+     * @param  other  compatible bin bag
+     */
+    public void add( BinBag other ) {
+        for ( Map.Entry<Integer,Value> entry : other.valueMap_.entrySet() ) {
+            Integer ix = entry.getKey();
+            Value val = valueMap_.get( ix );
+            if ( val == null ) {
+                val = new Value();
+                valueMap_.put( ix, val );
+            }
+            val.value_ += entry.getValue().value_;
+        }
+    }
+
     /**
      * Returns a sorted iterator over all bins with non-zero values.
      *
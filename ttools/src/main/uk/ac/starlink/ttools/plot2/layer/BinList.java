@@ -44,6 +44,22 @@ public interface BinList {
      */
     void submitToBin( long index, double datum );
 
+    /**
+     * Merges the values accumulated in another bin list into this one.
+     * The other list must have been created in the same way as this one,
+     * that is by the same method of the same combiner with the same size.
+     * Following this call, each bin of this list has the result it
+     * would have had if the values submitted to the other list had
+     * been submitted to this one.
+     * The other list should not be used subsequently.
+     *
+     * <p>This makes it possible to accumulate values into separate
+     * bin lists on different threads and then combine them.
+     *
+     * @param  other  bin list compatible with this one
+     */
+    void addBins( BinList other );
+
     /**
      * Returns an object containing the result values accumulated into
      * the bins so far.
@@ -228,6 +228,18 @@ public abstract class Combiner {
          * @return  combined value of all submitted data
          */
         double getResult();
+
+        /**
+         * Merges the values accumulated by another container into this one.
+         * The other container must have been created by the same
+         * combiner as this one.  Following this call, the result of
+         * this container is as if all the values submitted to the other
+         * one had been submitted to this one.
+         * The other container should not be used subsequently.
+         *
+         * @param  other  container of the same type as this one
+         */
+        void add( Container other );
     }
 
     /**
@@ -266,19 +278,7 @@ public abstract class Combiner {
         }
 
         public BinList createArrayBinList( int size ) {
-            final int[] counts = new int[ size ];
-            final double[] sums = new double[ size ];
-            return new ArrayBinList( size, this ) {
-                public void submitToBinInt( int index, double value ) {
-                    counts[ index ]++;
-                    sums[ index ] += value;
-                }
-                public double getBinResultInt( int index ) {
-                    int count = counts[ index ];
-                    return count == 0 ? Double.NaN
-                                      : sums[ index ] / (double) count;
-                }
-            };
+            return new MeanBinList( size, this );
         }
 
         public Container createContainer() {
@@ -309,6 +309,38 @@ public abstract class Combiner {
             public double getResult() {
                 return count_ == 0 ? Double.NaN : sum_ / (double) count_;
             }
+            public void add( Container other ) {
+                MeanContainer o = (MeanContainer) other;
+                count_ += o.count_;
+                sum_ += o.sum_;
+            }
+        }
+
+        /**
+         * Array-based bin list that holds a count and a sum for each bin.
+         */
+        private static class MeanBinList extends ArrayBinList {
+            final int[] counts_;
+            final double[] sums_;
+            MeanBinList( int size, Combiner combiner ) {
+                super( size, combiner );
+                counts_ = new int[ size ];
+                sums_ = new double[ size ];
+            }
+            public void submitToBinInt( int index, double value ) {
+                counts_[ index ]++;
+                sums_[ index ] += value;
+            }
+            public double getBinResultInt( int index ) {
+                int count = counts_[ index ];
+                return count == 0 ? Double.NaN
+                                  : sums_[ index ] / (double) count;
+            }
+            public void addBinInt( int index, ArrayBinList other ) {
+                MeanBinList o = (MeanBinList) other;
+                counts_[ index ] += o.counts_[ index ];
+                sums_[ index ] += o.sums_[ index ];
+            }
         }
     }
 
@@ -368,20 +400,7 @@ public abstract class Combiner {
         }
 
         public BinList createArrayBinList( int size ) {
-            final int[] counts = new int[ size ];
-            final double[] sum1s = new double[ size ];
-            final double[] sum2s = new double[ size ];
-            return new ArrayBinList( size, this ) {
-                public void submitToBinInt( int index, double value ) {
-                    counts[ index ]++;
-                    sum1s[ index ] += value;
-                    sum2s[ index ] += value * value;
-                }
-                public double getBinResultInt( int index ) {
-                    return getStdev( isSampleStdev_, counts[ index ],
-                                     sum1s[ index ], sum2s[ index ] );
-                }
-            };
+            return new StdevBinList( size, this, isSampleStdev_ );
         }
 
         public Container createContainer() {
@@ -415,6 +434,12 @@ public abstract class Combiner {
                 sum1_ += datum;
                 sum2_ += datum * datum;
             }
+            public void add( Container other ) {
+                StdevContainer o = (StdevContainer) other;
+                count_ += o.count_;
+                sum1_ += o.sum1_;
+                sum2_ += o.sum2_;
+            }
         }
 
         /**
@@ -439,6 +464,40 @@ public abstract class Combiner {
             }
         }
 
+        /**
+         * Array-based bin list that holds a count, sum and sum of squares
+         * for each bin.
+         */
+        private static class StdevBinList extends ArrayBinList {
+            final boolean isSampleStdev_;
+            final int[] counts_;
+            final double[] sum1s_;
+            final double[] sum2s_;
+            StdevBinList( int size, Combiner combiner,
+                          boolean isSampleStdev ) {
+                super( size, combiner );
+                isSampleStdev_ = isSampleStdev;
+                counts_ = new int[ size ];
+                sum1s_ = new double[ size ];
+                sum2s_ = new double[ size ];
+            }
+            public void submitToBinInt( int index, double value ) {
+                counts_[ index ]++;
+                sum1s_[ index ] += value;
+                sum2s_[ index ] += value * value;
+            }
+            public double getBinResultInt( int index ) {
+                return getStdev( isSampleStdev_, counts_[ index ],
+                                 sum1s_[ index ], sum2s_[ index ] );
+            }
+            public void addBinInt( int index, ArrayBinList other ) {
+                StdevBinList o = (StdevBinList) other;
+                counts_[ index ] += o.counts_[ index ];
+                sum1s_[ index ] += o.sum1s_[ index ];
+                sum2s_[ index ] += o.sum2s_[ index ];
+            }
+        }
+
         /**
          * Utility method to calculate a population or sample
          * standard deviation from the relevant accumulated quantities.
@@ -479,16 +538,7 @@ public abstract class Combiner {
         }
 
         public BinList createArrayBinList( int size ) {
-            final int[] counts = new int[ size ];
-            return new ArrayBinList( size, this ) {
-                public void submitToBinInt( int index, double value ) {
-                    counts[ index ]++;
-                }
-                public double getBinResultInt( int index ) {
-                    int count = counts[ index ];
-                    return count == 0 ? Double.NaN : count;
-                }
-            };
+            return new CountBinList( size, this );
         }
 
         public Container createContainer() {
@@ -516,6 +566,30 @@ public abstract class Combiner {
             public double getResult() {
                 return count_ == 0 ? Double.NaN : count_;
             }
+            public void add( Container other ) {
+                count_ += ((CountContainer) other).count_;
+            }
+        }
+
+        /**
+         * Array-based bin list that holds a count for each bin.
+         */
+        private static class CountBinList extends ArrayBinList {
+            final int[] counts_;
+            CountBinList( int size, Combiner combiner ) {
+                super( size, combiner );
+                counts_ = new int[ size ];
+            }
+            public void submitToBinInt( int index, double value ) {
+                counts_[ index ]++;
+            }
+            public double getBinResultInt( int index ) {
+                int count = counts_[ index ];
+                return count == 0 ? Double.NaN : count;
+            }
+            public void addBinInt( int index, ArrayBinList other ) {
+                counts_[ index ] += ((CountBinList) other).counts_[ index ];
+            }
         }
     }
 
@@ -544,16 +618,7 @@ public abstract class Combiner {
         }
 
         public BinList createArrayBinList( int size ) {
-            final double[] sums = new double[ size ];
-            Arrays.fill( sums, Double.NaN );
-            return new ArrayBinList( size, this ) {
-                public void submitToBinInt( int index, double datum ) {
-                    sums[ index ] = combineSum( sums[ index ], datum );
-                }
-                public double getBinResultInt( int index ) {
-                    return sums[ index ];
-                }
-            };
+            return new SumBinList( size, this );
         }
 
         public Container createContainer() {
@@ -583,6 +648,34 @@ public abstract class Combiner {
             public double getResult() {
                 return sum_;
             }
+            public void add( Container other ) {
+                double datum = ((SumContainer) other).sum_;
+                if ( ! Double.isNaN( datum ) ) {
+                    sum_ = combineSum( sum_, datum );
+                }
+            }
+        }
+
+        /**
+         * Array-based bin list that holds a sum for each bin.
+         */
+        private static class SumBinList extends ArrayBinList {
+            final double[] sums_;
+            SumBinList( int size, Combiner combiner ) {
+                super( size, combiner );
+                sums_ = new double[ size ];
+                Arrays.fill( sums_, Double.NaN );
+            }
+            public void submitToBinInt( int index, double datum ) {
+                sums_[ index ] = combineSum( sums_[ index ], datum );
+            }
+            public double getBinResultInt( int index ) {
+                return sums_[ index ];
+            }
+            public void addBinInt( int index, ArrayBinList other ) {
+                double datum = ((SumBinList) other).sums_[ index ];
+                sums_[ index ] = combineSum( sums_[ index ], datum );
+            }
         }
     }
 
@@ -612,16 +705,7 @@ public abstract class Combiner {
         }
 
         public BinList createArrayBinList( int size ) {
-            final double[] mins = new double[ size ];
-            Arrays.fill( mins, Double.NaN );
-            return new ArrayBinList( size, this ) {
-                public void submitToBinInt( int index, double datum ) {
-                    mins[ index ] = combineMin( mins[ index ], datum );
-                }
-                public double getBinResultInt( int index ) {
-                    return mins[ index ];
-                }
-            };
+            return new MinBinList( size, this );
         }
 
         public Container createContainer() {
@@ -652,6 +736,34 @@ public abstract class Combiner {
             public double getResult() {
                 return min_;
             }
+            public void add( Container other ) {
+                double datum = ((MinContainer) other).min_;
+                if ( ! Double.isNaN( datum ) ) {
+                    min_ = combineMin( min_, datum );
+                }
+            }
+        }
+
+        /**
+         * Array-based bin list that holds a minimum for each bin.
+         */
+        private static class MinBinList extends ArrayBinList {
+            final double[] mins_;
+            MinBinList( int size, Combiner combiner ) {
+                super( size, combiner );
+                mins_ = new double[ size ];
+                Arrays.fill( mins_, Double.NaN );
+            }
+            public void submitToBinInt( int index, double datum ) {
+                mins_[ index ] = combineMin( mins_[ index ], datum );
+            }
+            public double getBinResultInt( int index ) {
+                return mins_[ index ];
+            }
+            public void addBinInt( int index, ArrayBinList other ) {
+                double datum = ((MinBinList) other).mins_[ index ];
+                mins_[ index ] = combineMin( mins_[ index ], datum );
+            }
         }
     }
 
@@ -681,16 +793,7 @@ public abstract class Combiner {
         }
 
         public BinList createArrayBinList( int size ) {
-            final double[] maxs = new double[ size ];
-            Arrays.fill( maxs, Double.NaN );
-            return new ArrayBinList( size, this ) {
-                public void submitToBinInt( int index, double datum ) {
-                    maxs[ index ] = combineMax( maxs[ index ], datum );
-                }
-                public double getBinResultInt( int index ) {
-                    return maxs[ index ];
-                }
-            };
+            return new MaxBinList( size, this );
         }
 
         public Container createContainer() {
@@ -721,6 +824,34 @@ public abstract class Combiner {
             public double getResult() {
                 return max_;
             }
+            public void add( Container other ) {
+                double datum = ((MaxContainer) other).max_;
+                if ( ! Double.isNaN( datum ) ) {
+                    max_ = combineMax( max_, datum );
+                }
+            }
+        }
+
+        /**
+         * Array-based bin list that holds a maximum for each bin.
+         */
+        private static class MaxBinList extends ArrayBinList {
+            final double[] maxs_;
+            MaxBinList( int size, Combiner combiner ) {
+                super( size, combiner );
+                maxs_ = new double[ size ];
+                Arrays.fill( maxs_, Double.NaN );
+            }
+            public void submitToBinInt( int index, double datum ) {
+                maxs_[ index ] = combineMax( maxs_[ index ], datum );
+            }
+            public double getBinResultInt( int index ) {
+                return maxs_[ index ];
+            }
+            public void addBinInt( int index, ArrayBinList other ) {
+                double datum = ((MaxBinList) other).maxs_[ index ];
+                maxs_[ index ] = combineMax( maxs_[ index ], datum );
+            }
         }
     }
 
@@ -747,6 +878,9 @@ public abstract class Combiner {
                 public double getBinResultInt( int index ) {
                     return mask.get( index ) ? 1 : Double.NaN;
                 }
+                public void addBinInt( int index, ArrayBinList other ) {
+                    mask.set( index );
+                }
             };
         }
 
@@ -767,6 +901,9 @@ public abstract class Combiner {
             public double getResult() {
                 return hit_ ? 1 : Double.NaN;
             }
+            public void add( Container other ) {
+                hit_ = hit_ || ((HitContainer) other).hit_;
+            }
         }
     }
 }
@@ -48,6 +48,20 @@ public class HashBinList implements BinList {
         container.submit( value );
     }
 
+    public void addBins( BinList other ) {
+        for ( Map.Entry<Long,Combiner.Container> entry :
+              ((HashBinList) other).map_.entrySet() ) {
+            Long key = entry.getKey();
+            Combiner.Container container = map_.get( key );
+            if ( container == null ) {
+                map_.put( key, entry.getValue() );
+            }
+            else {
+                container.add( entry.getValue() );
+            }
+        }
+    }
+
     public Result getResult() {
         return new Result() {
             public double getBinValue( long index ) {
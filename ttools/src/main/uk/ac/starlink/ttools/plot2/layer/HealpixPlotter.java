@@ -362,21 +362,7 @@ public class HealpixPlotter
             final BinList baseList =
                 isFew ? Combiner.SUM.createArrayBinList( (int) nbin )
                       : Combiner.SUM.createHashBinList( nbin );
-            return new BinList() {
-                public Combiner getCombiner() {
-                    return combiner;
-                }
-                public long getSize() {
-                    return baseList.getSize();
-                }
-                public void submitToBin( long index, double datum ) {
-                    baseList.submitToBin( index, datum );
-                }
-                public BinList.Result getResult() {
-                    return new FactorResult( baseList.getResult(), factor,
-                                             false );
-                }
-            };
+            return new FactorBinList( combiner, baseList, factor );
         }
         else { 
             if ( ! Arrays.asList( new Combiner[] {
@@ -389,6 +375,49 @@ public class HealpixPlotter
         }
     }
 
+    /**
+     * Wrapper implementation of BinList whose results are those of
+     * a base list multiplied by a fixed factor.
+     */
+    private static class FactorBinList implements BinList {
+        private final Combiner combiner_;
+        private final BinList baseList_;
+        private final double factor_;
+
+        /**
+         * Constructor.
+         *
+         * @param  combiner  combiner reported by this list
+         * @param  baseList  list which accumulates the values
+         * @param  factor   factor by which base results are multiplied
+         */
+        FactorBinList( Combiner combiner, BinList baseList, double factor ) {
+            combiner_ = combiner;
+            baseList_ = baseList;
+            factor_ = factor;
+        }
+
+        public Combiner getCombiner() {
+            return combiner_;
+        }
+
+        public long getSize() {
+            return baseList_.getSize();
+        }
+
+        public void submitToBin( long index, double datum ) {
+            baseList_.submitToBin( index, datum );
+        }
+
+        public void addBins( BinList other ) {
+            baseList_.addBins( ((FactorBinList) other).baseList_ );
+        }
+
+        public BinList.Result getResult() {
+            return new FactorResult( baseList_.getResult(), factor_, false );
+        }
+    }
+
     /**
      * Wrapper implementation of BinList.Result that multiplies
      * bin values by a fixed factor.
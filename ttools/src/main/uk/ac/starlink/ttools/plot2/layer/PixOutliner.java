@@ -9,6 +9,8 @@ import uk.ac.starlink.ttools.plot2.Pixer;
 import uk.ac.starlink.ttools.plot2.Surface;
 import uk.ac.starlink.ttools.plot2.data.DataSpec;
 import uk.ac.starlink.ttools.plot2.data.DataStore;
+import uk.ac.starlink.ttools.plot2.data.TupleCollector;
+import uk.ac.starlink.ttools.plot2.data.TupleRunner;
 import uk.ac.starlink.ttools.plot2.data.TupleSequence;
 
 /**
@@ -21,8 +23,9 @@ import uk.ac.starlink.ttools.plot2.data.TupleSequence;
  */
 public abstract class PixOutliner implements Outliner {
 
-    public Object calculateBinPlan( Surface surface, DataGeom geom,
-                                    Map<AuxScale,Range> auxRanges,
+    public Object calculateBinPlan( final Surface surface,
+                                    final DataGeom geom,
+                                    final Map<AuxScale,Range> auxRanges,
                                     DataStore dataStore, DataSpec dataSpec,
                                     Object[] knownPlans ) {
 
@@ -37,14 +40,28 @@ public abstract class PixOutliner implements Outliner {
         }
 
         /* Otherwise set up a limited PaperType implementation that takes
-         * glyphs and turns them into a bit map, and plot the glyphs on it. */
-        BinPaper paper = new BinPaper( surface.getPlotBounds() );
-        ShapePainter painter =
-            create2DPainter( surface, geom, auxRanges, paper.getPaperType() );
-        TupleSequence tseq = dataStore.getTupleSequence( dataSpec );
-        while( tseq.next() ) {
-            painter.paintPoint( tseq, null, paper );
-        }
+         * glyphs and turns them into a bit map, and plot the glyphs on it.
+         * If the data can be split, separate papers are painted in
+         * parallel and their counts added together afterwards. */
+        TupleCollector<BinPaper> collector = new TupleCollector<BinPaper>() {
+            public BinPaper createAccumulator() {
+                return new BinPaper( surface.getPlotBounds() );
+            }
+            public void accumulate( TupleSequence tseq, BinPaper paper ) {
+                ShapePainter painter =
+                    create2DPainter( surface, geom, auxRanges,
+                                     paper.getPaperType() );
+                while ( tseq.next() ) {
+                    painter.paintPoint( tseq, null, paper );
+                }
+            }
+            public BinPaper combine( BinPaper paper1, BinPaper paper2 ) {
+                paper1.add( paper2 );
+                return paper1;
+            }
+        };
+        BinPaper paper =
+            TupleRunner.DEFAULT.collect( collector, dataStore, dataSpec );
 
         /* Extract the result as a bin plan. */
         return new PixBinPlan( paper.counts_, paper.pointCount_,
@@ -94,6 +111,20 @@ public abstract class PixOutliner implements Outliner {
             }
             pointCount_++;
         }
+
+        /**
+         * Adds the counts accumulated by another paper with the same
+         * bounds to this one.
+         *
+         * @param  other  compatible paper
+         */
+        void add( BinPaper other ) {
+            int n = counts_.length;
+            for ( int i = 0; i < n; i++ ) {
+                counts_[ i ] += other.counts_[ i ];
+            }
+            pointCount_ += other.pointCount_;
+        }
     }
 
     /**
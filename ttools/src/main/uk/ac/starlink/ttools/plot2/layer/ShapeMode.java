@@ -49,6 +49,8 @@ import uk.ac.starlink.ttools.plot2.data.DataStore;
 import uk.ac.starlink.ttools.plot2.data.FloatingCoord;
 import uk.ac.starlink.ttools.plot2.data.InputMeta;
 import uk.ac.starlink.ttools.plot2.data.Tuple;
+import uk.ac.starlink.ttools.plot2.data.TupleCollector;
+import uk.ac.starlink.ttools.plot2.data.TupleRunner;
 import uk.ac.starlink.ttools.plot2.data.TupleSequence;
 import uk.ac.starlink.ttools.plot2.geom.CubeSurface;
 import uk.ac.starlink.ttools.plot2.geom.PlaneSurface;
@@ -1437,41 +1439,55 @@ public abstract class ShapeMode implements ModePlotter.Mode {
              * @param  tseq    point sequence
              * @param  auxRanges   aux data range map
              */
-            private BinList readBinList( Surface surface, DataSpec dataSpec,
+            private BinList readBinList( final Surface surface,
+                                         DataSpec dataSpec,
                                          DataStore dataStore,
-                                         Map<AuxScale,Range> auxRanges ) {
-                DataGeom geom = getDataGeom();
-                WeightPaper wpaper =
-                    new WeightPaper( surface.getPlotBounds(),
-                                     wstamper_.combiner_ );
-                ShapePainter painter =
-                    outliner_.create2DPainter( surface, geom, auxRanges,
-                                               wpaper.getPaperType() );
-                TupleSequence tseq = dataStore.getTupleSequence( dataSpec );
-
-                /* Under normal circumstances, use the submitted combiner
-                 * to construct a bin list to order. */
-                boolean hasWeight = ! dataSpec.isCoordBlank( icWeight_ );
-                if ( hasWeight ) {
-                    while ( tseq.next() ) {
-                        double w =
-                            WEIGHT_COORD.readDoubleCoord( tseq, icWeight_ );
-                        if ( ! Double.isNaN( w ) ) {
-                            wpaper.setWeight( w );
-                            painter.paintPoint( tseq, null, wpaper );
-                        }
+                                         final Map<AuxScale,Range> auxRanges ) {
+                final DataGeom geom = getDataGeom();
+                final boolean hasWeight = ! dataSpec.isCoordBlank( icWeight_ );
+                TupleCollector<WeightPaper> collector =
+                        new TupleCollector<WeightPaper>() {
+                    public WeightPaper createAccumulator() {
+                        return new WeightPaper( surface.getPlotBounds(),
+                                                wstamper_.combiner_ );
                     }
-                }
+                    public void accumulate( TupleSequence tseq,
+                                            WeightPaper wpaper ) {
+                        ShapePainter painter =
+                            outliner_.create2DPainter( surface, geom,
+                                                       auxRanges,
+                                                       wpaper.getPaperType() );
+
+                        /* Under normal circumstances, use the submitted
+                         * combiner to construct a bin list to order. */
+                        if ( hasWeight ) {
+                            while ( tseq.next() ) {
+                                double w = WEIGHT_COORD
+                                          .readDoubleCoord( tseq, icWeight_ );
+                                if ( ! Double.isNaN( w ) ) {
+                                    wpaper.setWeight( w );
+                                    painter.paintPoint( tseq, null, wpaper );
+                                }
+                            }
+                        }
 
-                /* If no weight coordinate has been supplied,
-                 * assume a weighting of unity. */
-                else {
-                    wpaper.setWeight( 1 );
-                    while ( tseq.next() ) {
-                        painter.paintPoint( tseq, null, wpaper );
+                        /* If no weight coordinate has been supplied,
+                         * assume a weighting of unity. */
+                        else {
+                            wpaper.setWeight( 1 );
+                            while ( tseq.next() ) {
+                                painter.paintPoint( tseq, null, wpaper );
+                            }
+                        }
                     }
-                }
-                return wpaper.binList_;
+                    public WeightPaper combine( WeightPaper wpaper1,
+                                                WeightPaper wpaper2 ) {
+                        wpaper1.binList_.addBins( wpaper2.binList_ );
+                        return wpaper1;
+                    }
+                };
+                return TupleRunner.DEFAULT
+                      .collect( collector, dataStore, dataSpec ).binList_;
             }
 
             /**
@@ -65,6 +65,9 @@ public class DataStoreParameter extends ChoiceParameter<DataStoreFactory> {
             "This may use a significant amount of memory for large tables",
             "but it's usually more sensible (faster)",
             "if the data will need to be scanned multiple times.",
+            "Cached data can also be processed in parallel",
+            "on multiple cores for some plot types,",
+            "such as histograms and density maps.",
             "</p>",
         } );
     }
@@ -4,12 +4,15 @@ import gnu.jel.CompilationException;
 import gnu.jel.CompiledExpression;
 import gnu.jel.Library;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import uk.ac.starlink.table.DefaultValueInfo;
 import uk.ac.starlink.table.RowSequence;
 import uk.ac.starlink.table.StarTable;
 import uk.ac.starlink.table.ValueInfo;
 import uk.ac.starlink.task.TaskException;
+import uk.ac.starlink.ttools.jel.BlockJELEvaluator;
 import uk.ac.starlink.ttools.jel.JELUtils;
 import uk.ac.starlink.ttools.jel.StarTableJELRowReader;
 import uk.ac.starlink.ttools.plot2.Equality;
@@ -25,6 +28,10 @@ import uk.ac.starlink.ttools.plot2.data.UserDataReader;
  * as JEL expressions in the context of the DataSpec's table.
  * The constraints on ID equality are therefore met since equal expression
  * strings applied against the same table must yield the same values.
+ * If the table is random-access and the columns used by the expressions
+ * can be read from it in bulk, the data readers provided by this spec
+ * evaluate expressions a block of rows at a time using a
+ * {@link uk.ac.starlink.ttools.jel.BlockJELEvaluator}.
  *
  * @author   Mark Taylor
  * @since    1 Mar 2013
@@ -197,6 +204,55 @@ public class JELDataSpec extends AbstractDataSpec {
                 }
                 userCoordReaders_[ ic ] = vrdrs;
             }
+
+            /* If possible, arrange for expressions to be evaluated
+             * in blocks.  Block evaluation reads the table directly,
+             * independently of the row sequence that is also read,
+             * so only use it if the table's columns can be read cheaply
+             * in bulk, otherwise each cell would be read twice
+             * at full cost. */
+            if ( table.isRandom() ) {
+                List<JelValueReader> jrdrs = new ArrayList<JelValueReader>();
+                addJelReader( jrdrs, maskReader_ );
+                for ( ValueReader[] vrdrs : userCoordReaders_ ) {
+                    for ( ValueReader vrdr : vrdrs ) {
+                        addJelReader( jrdrs, vrdr );
+                    }
+                }
+                int nj = jrdrs.size();
+                if ( nj > 0 ) {
+                    String[] exprs = new String[ nj ];
+                    for ( int ij = 0; ij < nj; ij++ ) {
+                        exprs[ ij ] = jrdrs.get( ij ).expr_;
+                    }
+                    BlockJELEvaluator blockEval;
+                    try {
+                        blockEval = new BlockJELEvaluator( table, exprs, null );
+                    }
+                    catch ( CompilationException e ) {
+                        throw new TaskException( "Bad Expression", e );
+                    }
+                    if ( blockEval.isBulkAccess() ) {
+                        for ( int ij = 0; ij < nj; ij++ ) {
+                            jrdrs.get( ij ).setBlockEvaluator( blockEval,
+                                                               ij );
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds a value reader to a list if it is a JelValueReader.
+         *
+         * @param  list  list to add to
+         * @param  vrdr  value reader
+         */
+        private static void addJelReader( List<JelValueReader> list,
+                                          ValueReader vrdr ) {
+            if ( vrdr instanceof JelValueReader ) {
+                list.add( (JelValueReader) vrdr );
+            }
         }
 
         public boolean getMaskFlag( RowSequence rseq, long irow )
@@ -350,7 +406,10 @@ public class JELDataSpec extends AbstractDataSpec {
     private static class JelValueReader implements ValueReader {
         private final RowSequenceEvaluator evaluator_;
         private final CompiledExpression compex_;
+        private final String expr_;
         private final ValueInfo info_;
+        private BlockJELEvaluator blockEval_;
+        private int iBlockExpr_;
         private RowSequence rseq_;
         private long irow_;
 
@@ -365,12 +424,29 @@ public class JELDataSpec extends AbstractDataSpec {
                         CompiledExpression compex, String expr ) {
             evaluator_ = evaluator;
             compex_ = compex;
+            expr_ = expr;
             info_ = new DefaultValueInfo( expr, compex.getTypeC(), null );
         }
 
+        /**
+         * Arranges for values to be read from a block evaluator
+         * rather than by evaluating the expression row by row.
+         * The row index passed to <code>readValue</code> must then be
+         * the index of a row in the evaluator's table.
+         *
+         * @param  blockEval  block evaluator
+         * @param  iexpr   index of this reader's expression in blockEval
+         */
+        void setBlockEvaluator( BlockJELEvaluator blockEval, int iexpr ) {
+            blockEval_ = blockEval;
+            iBlockExpr_ = iexpr;
+        }
+
         public Object readValue( RowSequence rseq, long irow )
                 throws IOException {
-            return evaluator_.evaluateObject( compex_, rseq, irow );
+            return blockEval_ == null
+                 ? evaluator_.evaluateObject( compex_, rseq, irow )
+                 : blockEval_.getValue( iBlockExpr_, irow );
         }
 
         public ValueInfo getValueInfo() {
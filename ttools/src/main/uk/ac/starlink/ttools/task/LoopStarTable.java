@@ -41,7 +41,16 @@ public class LoopStarTable extends ColumnStarTable {
             colData = new ColumnData( new ColumnInfo( colName, Integer.class,
                                                       descrip ) ) {
                 public Object readValue( long irow ) {
-                    return new Integer( (int) ( start + irow * step ) );
+                    return new Integer( readIntValue( irow ) );
+                }
+                public boolean hasPrimitiveValues() {
+                    return true;
+                }
+                public boolean isNullValue( long irow ) {
+                    return false;
+                }
+                public int readIntValue( long irow ) {
+                    return (int) ( start + irow * step );
                 }
             };
         }
@@ -50,7 +59,16 @@ public class LoopStarTable extends ColumnStarTable {
             colData = new ColumnData( new ColumnInfo( colName, Double.class,
                                                       descrip ) ) {
                 public Object readValue( long irow ) {
-                    return new Double( start + irow * step );
+                    return new Double( readDoubleValue( irow ) );
+                }
+                public boolean hasPrimitiveValues() {
+                    return true;
+                }
+                public boolean isNullValue( long irow ) {
+                    return false;
+                }
+                public double readDoubleValue( long irow ) {
+                    return start + irow * step;
                 }
             };
         }
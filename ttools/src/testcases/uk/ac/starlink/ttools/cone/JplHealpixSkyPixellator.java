@@ -51,21 +51,7 @@ public class JplHealpixSkyPixellator extends HealpixSkyPixellator {
     }
 
     public Object[] getPixels( double alpha, double delta, double radius ) {
-        double theta = Math.PI * 0.5 - delta;
-        alpha = alpha % ( 2 * Math.PI );
-        if ( alpha < 0 ) {
-            alpha += 2 * Math.PI;
-        }
-        Pointing pointing = new Pointing( theta, alpha );
-        RangeSet rset;
-        try {
-            rset = healpixBase_.queryDisc( pointing, radius );
-        }
-        catch ( Exception e ) {
-            logger_.warning( "Healpix error for "
-                           + alpha + ", " + delta + ", " + radius + ": " + e );
-            rset = null;
-        }
+        RangeSet rset = queryDisc( alpha, delta, radius );
         if ( rset == null ) {
             return new Long[ 0 ];
         }
@@ -82,6 +68,51 @@ public class JplHealpixSkyPixellator extends HealpixSkyPixellator {
         }
     }
 
+    public int getPixelIndices( double alpha, double delta, double radius,
+                                long[] pixels ) {
+        RangeSet rset = queryDisc( alpha, delta, radius );
+        if ( rset == null ) {
+            return 0;
+        }
+        else {
+            int npix = (int) rset.nval();
+            if ( npix <= pixels.length ) {
+                int ip = 0;
+                for ( RangeSet.ValueIterator vit = rset.valueIterator();
+                      vit.hasNext(); ) {
+                    pixels[ ip++ ] = vit.next();
+                }
+                assert ip == npix;
+            }
+            return npix;
+        }
+    }
+
+    /**
+     * Returns the set of pixels overlapping a given disc.
+     *
+     * @param  alpha  right ascension of disc centre in radians
+     * @param  delta  declination of disc centre in radians
+     * @param  radius  disc radius in radians
+     * @return  pixel range set, or null in case of error
+     */
+    private RangeSet queryDisc( double alpha, double delta, double radius ) {
+        double theta = Math.PI * 0.5 - delta;
+        alpha = alpha % ( 2 * Math.PI );
+        if ( alpha < 0 ) {
+            alpha += 2 * Math.PI;
+        }
+        Pointing pointing = new Pointing( theta, alpha );
+        try {
+            return healpixBase_.queryDisc( pointing, radius );
+        }
+        catch ( Exception e ) {
+            logger_.warning( "Healpix error for "
+                           + alpha + ", " + delta + ", " + radius + ": " + e );
+            return null;
+        }
+    }
+
     protected void configureK( int k ) {
         int nside = 1 << k;
         HealpixBase hpbase;
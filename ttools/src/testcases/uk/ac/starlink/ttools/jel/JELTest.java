@@ -3,17 +3,30 @@ package uk.ac.starlink.ttools.jel;
 import gnu.jel.CompiledExpression;
 import gnu.jel.Library;
 import gnu.jel.CompilationException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import uk.ac.starlink.table.ArrayColumn;
 import uk.ac.starlink.table.ColumnData;
 import uk.ac.starlink.table.ColumnInfo;
+import uk.ac.starlink.table.ColumnStarTable;
 import uk.ac.starlink.table.ConstantColumn;
 import uk.ac.starlink.table.DefaultValueInfo;
+import uk.ac.starlink.table.PrimitiveArrayColumn;
+import uk.ac.starlink.table.RowSequence;
+import uk.ac.starlink.table.RowSplittable;
+import uk.ac.starlink.table.RowStore;
 import uk.ac.starlink.table.StarTable;
 import uk.ac.starlink.table.Tables;
+import uk.ac.starlink.table.WrapperStarTable;
 import uk.ac.starlink.table.formats.CsvStarTable;
+import uk.ac.starlink.table.storage.ColumnarRowStore;
+import uk.ac.starlink.table.storage.PrimitiveColumnAccess;
 import uk.ac.starlink.ttools.TableTestCase;
 import uk.ac.starlink.ttools.QuickTable;
+import uk.ac.starlink.ttools.filter.JELSelectorTable;
 import uk.ac.starlink.util.ByteArrayDataSource;
 
 public class JELTest extends TableTestCase {
@@ -142,6 +155,260 @@ public class JELTest extends TableTestCase {
         assertEquals( null, rdr.evaluateAtRow( sExpr, 1 ) );
     }
 
+    public void testConcurrent() throws Throwable {
+        final int nrow = 20000;
+        int[] ivals = new int[ nrow ];
+        for ( int i = 0; i < nrow; i++ ) {
+            ivals[ i ] = i;
+        }
+        ColumnStarTable t0 = ColumnStarTable.makeTableWithRows( nrow );
+        t0.addColumn( ArrayColumn.makeColumn( "i", ivals ) );
+        final StarTable jt = new JELTable( t0, new ColumnInfo[] {
+            new ColumnInfo( "i3", Integer.class, null ),
+            new ColumnInfo( "name", String.class, null ),
+        }, new String[] { "i*3", "\"r\"+i" } );
+        final RandomJELEvaluator evaluator =
+            new RandomJELEvaluator( new RandomJELRowReader( t0 ),
+                                    new String[] { "i*0.5" }, null );
+
+        /* A reader subclass which cannot be copied is evaluated
+         * synchronously. */
+        RandomJELRowReader sharedReader = new RandomJELRowReader( t0 ) {};
+        assertNull( sharedReader.copyReader() );
+        final RandomJELEvaluator sharedEvaluator =
+            new RandomJELEvaluator( sharedReader,
+                                    new String[] { "i+1" }, null );
+
+        /* Evaluate on several threads at once, each with its own
+         * interleaved set of rows. */
+        final int nthread = 4;
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        Thread[] threads = new Thread[ nthread ];
+        for ( int it = 0; it < nthread; it++ ) {
+            final int it0 = it;
+            threads[ it ] = new Thread() {
+                public void run() {
+                    try {
+                        for ( int ir = it0; ir < nrow; ir += nthread ) {
+                            assertEquals( new Integer( ir * 3 ),
+                                          jt.getCell( ir, 0 ) );
+                            assertEquals( "r" + ir, jt.getCell( ir, 1 ) );
+                            assertEquals( ir * 0.5,
+                                          evaluator
+                                         .evaluateDoubleAtRow( 0, ir ) );
+                            assertEquals( new Integer( ir + 1 ),
+                                          sharedEvaluator
+                                         .evaluateAtRow( 0, ir ) );
+                        }
+                    }
+                    catch ( Throwable e ) {
+                        synchronized ( errors ) {
+                            errors.add( e );
+                        }
+                    }
+                }
+            };
+        }
+        for ( Thread thread : threads ) {
+            thread.start();
+        }
+        for ( Thread thread : threads ) {
+            thread.join();
+        }
+        if ( errors.size() > 0 ) {
+            throw errors.get( 0 );
+        }
+
+        /* Selection using a row splittable. */
+        StarTable st = new JELSelectorTable( t0, "i % 7 == 3" );
+        RowSplittable split = st.getRowSplittable();
+        List<RowSplittable> parts = new ArrayList<RowSplittable>();
+        parts.add( split );
+        for ( RowSplittable s1; ( s1 = split.split() ) != null; ) {
+            parts.add( s1 );
+        }
+        long nsel = 0;
+        for ( RowSplittable part : parts ) {
+            while ( part.next() ) {
+                assertEquals( 3, ((Integer) part.getCell( 0 )).intValue() % 7 );
+                nsel++;
+            }
+            part.close();
+        }
+        assertEquals( ( nrow - 3 + 6 ) / 7, nsel );
+    }
+
+    public void testPrimitiveAccess() throws Throwable {
+        int nrow = 5;
+        ColumnStarTable t0 = createPrimitiveTable();
+        boolean[] blanks = new boolean[ nrow ];
+        t0.readBlanks( 0, 0, blanks, 0, nrow );
+        assertTrue( blanks[ 3 ] );
+        assertFalse( blanks[ 2 ] );
+        double[] dvals = new double[ nrow ];
+        t0.readDoubles( 3, 0, dvals, 0, nrow );
+        assertTrue( Double.isNaN( dvals[ 3 ] ) );
+        assertEquals( 1.5, dvals[ 2 ] );
+        long[] lvals = new long[ nrow ];
+        t0.readLongs( 0, 0, lvals, 0, nrow );
+        assertEquals( 3L, lvals[ 2 ] );
+
+        String[] exprs = new String[] {
+            "i+1", "l*2", "f/2", "d*2", "b ? i : -i", "NULL_i",
+        };
+        Object[][] expected = new Object[][] {
+            { new Integer( 2 ), new Long( 18 ), new Float( 0.5f ),
+              new Double( 1 ), new Integer( 1 ), Boolean.FALSE },
+            null,
+            null,
+            { null, null, new Float( Float.NaN ), new Double( Double.NaN ),
+              null, Boolean.TRUE },
+            null,
+        };
+        RandomJELRowReader rdr = new RandomJELRowReader( t0 );
+        Library lib = JELUtils.getLibrary( rdr );
+        CompiledExpression[] compexs = new CompiledExpression[ exprs.length ];
+        for ( int ie = 0; ie < exprs.length; ie++ ) {
+            compexs[ ie ] = JELUtils.compile( lib, t0, exprs[ ie ] );
+        }
+        StarTable jt = JELTable.createJELTable( t0, exprs );
+        RowSequence jseq = jt.getRowSequence();
+        for ( int ir = 0; ir < nrow; ir++ ) {
+            assertTrue( jseq.next() );
+            for ( int ie = 0; ie < exprs.length; ie++ ) {
+                Object val = rdr.evaluateAtRow( compexs[ ie ], ir );
+                if ( expected[ ir ] != null ) {
+                    assertEquals( expected[ ir ][ ie ], val );
+                }
+                assertEquals( val, jt.getCell( ir, ie ) );
+                assertEquals( val, jseq.getCell( ie ) );
+            }
+        }
+        assertFalse( jseq.next() );
+        jseq.close();
+    }
+
+    public void testBlockEvaluation() throws Throwable {
+        ColumnStarTable t0 = createPrimitiveTable();
+        int nrow = (int) t0.getRowCount();
+        String[] exprs = new String[] {
+            "i+1", "l*2", "f/2", "d*2", "b ? i : -i", "NULL_i",
+            "d > 1", "$0 * 10", "Object$l", "\"x\" + i", "NULL",
+        };
+        long[] irows = new long[] { 0, 1, 2, 3, 4, 1, 0, 4, 3, 2 };
+        RowStore colStore = new ColumnarRowStore();
+        Tables.streamStarTable( t0, colStore );
+        StarTable colTable = colStore.getStarTable();
+        assertTrue( colTable instanceof PrimitiveColumnAccess );
+        StarTable[] tables = new StarTable[] {
+            t0, new WrapperStarTable( t0 ), colTable,
+        };
+        for ( StarTable table : tables ) {
+            RandomJELRowReader rdr = new RandomJELRowReader( table );
+            Library lib = JELUtils.getLibrary( rdr );
+            int nexpr = exprs.length;
+            CompiledExpression[] compexs = new CompiledExpression[ nexpr ];
+            for ( int ie = 0; ie < nexpr; ie++ ) {
+                compexs[ ie ] = JELUtils.compile( lib, table, exprs[ ie ] );
+            }
+            for ( int blockSize : new int[] { 1, 2, 5, 1024 } ) {
+                BlockJELEvaluator blockEval =
+                    new BlockJELEvaluator( table, exprs, null, blockSize );
+                assertEquals( nexpr, blockEval.getExpressionCount() );
+                for ( long irow : irows ) {
+                    for ( int ie = 0; ie < nexpr; ie++ ) {
+                        Object val = rdr.evaluateAtRow( compexs[ ie ], irow );
+                        assertEquals( val, blockEval.getValue( ie, irow ) );
+                        if ( val instanceof Number ) {
+                            assertEquals( ((Number) val).doubleValue(),
+                                          blockEval.getDoubleValue( ie,
+                                                                    irow ) );
+                        }
+                        else if ( val instanceof Boolean ) {
+                            assertEquals( ((Boolean) val).booleanValue(),
+                                          blockEval.getBooleanValue( ie,
+                                                                     irow ) );
+                        }
+                    }
+                }
+            }
+        }
+
+        JELSelectorTable selTable = new JELSelectorTable( t0, "d > 1" );
+        RowSequence selSeq = selTable.getRowSequence();
+        assertTrue( selSeq.next() );
+        assertEquals( new Double( 1.5 ), selSeq.getCell( 3 ) );
+        assertTrue( selSeq.next() );
+        assertEquals( new Double( 2.5 ), selSeq.getCell( 3 ) );
+        assertFalse( selSeq.next() );
+        selSeq.close();
+    }
+
+    public void testBlockGrowth() throws Throwable {
+        final int nrow = 10000;
+        final int[] nread = new int[ 1 ];
+        ColumnStarTable t0 = ColumnStarTable.makeTableWithRows( nrow );
+        t0.addColumn( new ColumnData( new ColumnInfo( "x", Double.class,
+                                                      null ) ) {
+            public Object readValue( long irow ) {
+                return new Double( readDoubleValue( irow ) );
+            }
+            public boolean hasPrimitiveValues() {
+                return true;
+            }
+            public double readDoubleValue( long irow ) {
+                nread[ 0 ]++;
+                return irow;
+            }
+        } );
+        BlockJELEvaluator blockEval =
+            new BlockJELEvaluator( t0, new String[] { "x * 2" }, null );
+        assertTrue( blockEval.isBulkAccess() );
+        assertEquals( 0.0, blockEval.getDoubleValue( 0, 0 ) );
+        assertTrue( nread[ 0 ] < 100 );
+        for ( int ir = 0; ir < nrow; ir++ ) {
+            assertEquals( 2.0 * ir, blockEval.getDoubleValue( 0, ir ) );
+        }
+        assertEquals( nrow, nread[ 0 ] );
+
+        /* A jump starts a small block again. */
+        nread[ 0 ] = 0;
+        assertEquals( 200.0, blockEval.getDoubleValue( 0, 100 ) );
+        assertTrue( nread[ 0 ] < 100 );
+
+        /* Columns of a table without primitive access can't be
+         * read in bulk. */
+        assertFalse( new BlockJELEvaluator( new WrapperStarTable( t0 ),
+                                            new String[] { "x * 2" }, null )
+                    .isBulkAccess() );
+    }
+
+    private static ColumnStarTable createPrimitiveTable()
+            throws IOException {
+        int nrow = 5;
+        ColumnStarTable t0 = ColumnStarTable.makeTableWithRows( nrow );
+        t0.addColumn( ArrayColumn.makeColumn( "i",
+                                              new int[] { 1, 2, 3, 4, 5 } ) );
+        t0.addColumn( ArrayColumn.makeColumn( "l",
+                                              new long[] { 9, 8, 7, 6, 5 } ) );
+        t0.addColumn( ArrayColumn.makeColumn( "f",
+                                              new float[] { 1, 2, 3, 4, 5 } ) );
+        t0.addColumn( ArrayColumn.makeColumn( "d",
+                                              new double[] { .5, 1, 1.5, 2,
+                                                             2.5 } ) );
+        t0.addColumn( ArrayColumn.makeColumn( "b",
+                                              new boolean[] { true, false,
+                                                              true, false,
+                                                              true } ) );
+        for ( int icol = 0; icol < t0.getColumnCount(); icol++ ) {
+            assertTrue( t0.getColumnData( icol )
+                        instanceof PrimitiveArrayColumn );
+            assertNotNull( t0.getPrimitiveClass( icol ) );
+            t0.setCell( 3, icol, null );
+        }
+        return t0;
+    }
+
     public static class FuncLib {
         public static int triplePrim( int a ) {
             return 3 * a;
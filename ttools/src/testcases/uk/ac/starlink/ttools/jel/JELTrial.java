@@ -0,0 +1,196 @@
+package uk.ac.starlink.ttools.jel;
+
+import gnu.jel.CompilationException;
+import gnu.jel.CompiledExpression;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import uk.ac.starlink.fits.FitsTableBuilder;
+import uk.ac.starlink.fits.FitsTableWriter;
+import uk.ac.starlink.table.ArrayColumn;
+import uk.ac.starlink.table.ColumnStarTable;
+import uk.ac.starlink.table.RowSequence;
+import uk.ac.starlink.table.StarTable;
+import uk.ac.starlink.table.StoragePolicy;
+import uk.ac.starlink.table.WrapperStarTable;
+import uk.ac.starlink.ttools.filter.AddColumnsTable;
+import uk.ac.starlink.ttools.filter.JELColumnSupplement;
+import uk.ac.starlink.util.FileDataSource;
+
+/**
+ * Benchmark comparing ways of evaluating JEL expressions
+ * for the row sequence of a table with a column added as by
+ * <code>tpipe cmd='addcol x ra*2'</code>.
+ * The row-by-row cases use a sequential-only wrapper of the table,
+ * and a random-access wrapper which hides its
+ * {@link uk.ac.starlink.table.storage.PrimitiveColumnAccess}
+ * implementation; in both, each expression is evaluated from boxed
+ * cell values as each row is read.
+ * The block case uses the table itself, so that the expressions are
+ * evaluated in blocks by a {@link BlockJELEvaluator}
+ * from primitive column values.
+ * The cell reader case evaluates the expression one row at a time
+ * using a {@link SequentialJELRowReader} on the table itself,
+ * which reads primitive values a cell at a time where that is cheap.
+ * The block and cell reader cases are repeated for a copy of the table
+ * in a mapped FITS file.
+ * This is not a JUnit test, since it needs a lot of memory and time.
+ * It is run from its main() method, with row counts as arguments, e.g.
+ * <pre>
+ *    java -Xmx4g uk.ac.starlink.ttools.jel.JELTrial 10000000 100000000
+ * </pre>
+ */
+public class JELTrial {
+
+    public static void main( String[] args ) throws IOException {
+        if ( args.length == 0 ) {
+            args = new String[] { "10000000" };
+        }
+        String[] exprs = new String[] { "ra*2", "ra + dec * 0.5", "n % 7" };
+        for ( int ia = 0; ia < args.length; ia++ ) {
+            int nrow = Integer.parseInt( args[ ia ] );
+            StarTable table = createTable( nrow );
+            StarTable fitsTable = createFitsTable( table );
+            StarTable seqTable = new WrapperStarTable( table ) {
+                public boolean isRandom() {
+                    return false;
+                }
+            };
+            StarTable boxTable = new WrapperStarTable( table );
+            for ( int ie = 0; ie < exprs.length; ie++ ) {
+                String expr = exprs[ ie ];
+                System.out.println( nrow + " rows, " + expr + ":" );
+
+                /* Run each once untimed to warm up. */
+                evaluate( seqTable, expr );
+                evaluate( boxTable, expr );
+                evaluate( table, expr );
+                evaluateCells( table, expr );
+                evaluate( fitsTable, expr );
+                evaluateCells( fitsTable, expr );
+                long t0 = System.currentTimeMillis();
+                double seqSum = evaluate( seqTable, expr );
+                report( "row-by-row sequential", t0 );
+                long t1 = System.currentTimeMillis();
+                double boxSum = evaluate( boxTable, expr );
+                report( "row-by-row random", t1 );
+                long t2 = System.currentTimeMillis();
+                double primSum = evaluate( table, expr );
+                report( "block primitive", t2 );
+                long t3 = System.currentTimeMillis();
+                double cellSum = evaluateCells( table, expr );
+                report( "cell reader", t3 );
+                long t4 = System.currentTimeMillis();
+                double fitsSum = evaluate( fitsTable, expr );
+                report( "FITS block primitive", t4 );
+                long t5 = System.currentTimeMillis();
+                double fitsCellSum = evaluateCells( fitsTable, expr );
+                report( "FITS cell reader", t5 );
+                if ( boxSum != seqSum || primSum != seqSum ||
+                     cellSum != seqSum || fitsSum != seqSum ||
+                     fitsCellSum != seqSum ) {
+                    throw new AssertionError( "Results differ" );
+                }
+            }
+        }
+    }
+
+    private static void report( String label, long t0 ) {
+        System.out.println( "    " + label + ": "
+                          + ( System.currentTimeMillis() - t0 ) + "ms" );
+    }
+
+    /**
+     * Iterates over a table with a JEL column added,
+     * reading the added column.
+     *
+     * @param  table  base table
+     * @param  expr   expression for added column
+     * @return  sum of added column values
+     */
+    private static double evaluate( StarTable table, String expr )
+            throws IOException {
+        StarTable addTable =
+            new AddColumnsTable( table,
+                                 new JELColumnSupplement( table, expr, null ) );
+        int icol = table.getColumnCount();
+        double sum = 0;
+        RowSequence rseq = addTable.getRowSequence();
+        while ( rseq.next() ) {
+            sum += ((Number) rseq.getCell( icol )).doubleValue();
+        }
+        rseq.close();
+        return sum;
+    }
+
+    /**
+     * Iterates over a table evaluating an expression using a
+     * sequential row reader.
+     *
+     * @param  table  table
+     * @param  expr   numeric expression
+     * @return  sum of expression values
+     */
+    private static double evaluateCells( StarTable table, String expr )
+            throws IOException {
+        SequentialJELRowReader rdr = new SequentialJELRowReader( table );
+        CompiledExpression compex;
+        try {
+            compex = JELUtils.compile( JELUtils.getLibrary( rdr ), table,
+                                       expr, double.class );
+        }
+        catch ( CompilationException e ) {
+            throw JELUtils.toIOException( e, expr );
+        }
+        double sum = 0;
+        while ( rdr.next() ) {
+            try {
+                sum += rdr.evaluateDouble( compex );
+            }
+            catch ( Throwable e ) {
+                throw (IOException) new IOException( e.toString() )
+                                   .initCause( e );
+            }
+        }
+        rdr.close();
+        return sum;
+    }
+
+    /**
+     * Writes a table to a temporary FITS file and returns a
+     * random-access table read from it.
+     *
+     * @param  table  table to copy
+     * @return   mapped FITS table
+     */
+    private static StarTable createFitsTable( StarTable table )
+            throws IOException {
+        File file = File.createTempFile( "JELTrial", ".fits" );
+        file.deleteOnExit();
+        OutputStream out =
+            new BufferedOutputStream( new FileOutputStream( file ) );
+        new FitsTableWriter().writeStarTable( table, out );
+        out.close();
+        return new FitsTableBuilder()
+              .makeStarTable( new FileDataSource( file ),
+                              true, StoragePolicy.PREFER_MEMORY );
+    }
+
+    private static StarTable createTable( int nrow ) {
+        double[] ras = new double[ nrow ];
+        double[] decs = new double[ nrow ];
+        int[] ns = new int[ nrow ];
+        for ( int i = 0; i < nrow; i++ ) {
+            ras[ i ] = ( i * 0.0001 ) % 360;
+            decs[ i ] = ( i * 0.0003 ) % 180 - 90;
+            ns[ i ] = i;
+        }
+        ColumnStarTable table = ColumnStarTable.makeTableWithRows( nrow );
+        table.addColumn( ArrayColumn.makeColumn( "ra", ras ) );
+        table.addColumn( ArrayColumn.makeColumn( "dec", decs ) );
+        table.addColumn( ArrayColumn.makeColumn( "n", ns ) );
+        return table;
+    }
+}
@@ -0,0 +1,112 @@
+package uk.ac.starlink.ttools.plot2.data;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+
+public class TupleRunnerTest extends TestCase {
+
+    public void testRunner() {
+        long n = 1234567;
+        long sum = n * ( n - 1 ) / 2;
+        final AtomicInteger nacc = new AtomicInteger();
+        TupleCollector<long[]> collector = new TupleCollector<long[]>() {
+            public long[] createAccumulator() {
+                nacc.incrementAndGet();
+                return new long[ 3 ];
+            }
+            public void accumulate( TupleSequence tseq, long[] acc ) {
+                long last = -1;
+                while ( tseq.next() ) {
+                    long ix = tseq.getRowIndex();
+                    assertTrue( ix > last );
+                    last = ix;
+                    acc[ 0 ]++;
+                    acc[ 1 ] += ix;
+                }
+            }
+            public long[] combine( long[] acc1, long[] acc2 ) {
+                acc1[ 0 ] += acc2[ 0 ];
+                acc1[ 1 ] += acc2[ 1 ];
+                return acc1;
+            }
+        };
+        TupleRunner[] runners = new TupleRunner[] {
+            TupleRunner.DEFAULT,
+            TupleRunner.SEQUENTIAL,
+            new TupleRunner( 4, 1000 ),
+        };
+        for ( TupleRunner runner : runners ) {
+            long[] acc =
+                runner.collect( collector, new RangeSplittable( 0, n ) );
+            assertEquals( n, acc[ 0 ] );
+            assertEquals( sum, acc[ 1 ] );
+        }
+
+        /* Only one accumulator is used per worker thread. */
+        nacc.set( 0 );
+        long[] acc4 = new TupleRunner( 4, 1000 )
+                     .collect( collector, new RangeSplittable( 0, n ) );
+        assertEquals( n, acc4[ 0 ] );
+        assertEquals( 4, nacc.get() );
+
+        List<TupleSequence> splits =
+            new TupleRunner( 4, 1000 ).partition( new RangeSplittable( 0, n ) );
+        assertEquals( 16, splits.size() );
+        long next = 0;
+        for ( TupleSequence split : splits ) {
+            while ( split.next() ) {
+                assertEquals( next++, split.getRowIndex() );
+            }
+        }
+        assertEquals( n, next );
+    }
+
+    private static class RangeSplittable implements TupleSplittable {
+        private long irow_;
+        private long end_;
+
+        RangeSplittable( long start, long end ) {
+            irow_ = start - 1;
+            end_ = end;
+        }
+
+        public TupleSplittable split() {
+            long start = irow_ + 1;
+            if ( end_ - start < 2 ) {
+                return null;
+            }
+            long mid = start + ( end_ - start ) / 2;
+            irow_ = mid - 1;
+            return new RangeSplittable( start, mid );
+        }
+
+        public long splittableSize() {
+            return end_ - ( irow_ + 1 );
+        }
+
+        public boolean next() {
+            return ++irow_ < end_;
+        }
+
+        public long getRowIndex() {
+            return irow_;
+        }
+
+        public Object getObjectValue( int icol ) {
+            return new Long( irow_ );
+        }
+
+        public double getDoubleValue( int icol ) {
+            return irow_;
+        }
+
+        public int getIntValue( int icol ) {
+            return (int) irow_;
+        }
+
+        public boolean getBooleanValue( int icol ) {
+            return irow_ % 2 == 0;
+        }
+    }
+}
@@ -58,6 +58,45 @@ public class CombinerTest extends TestCase {
         }
     }
 
+    public void testMerge() {
+        int nbin = 100;
+        for ( Combiner combiner : combiners_ ) {
+            BinList all = combiner.createArrayBinList( nbin );
+            BinList a1 = combiner.createArrayBinList( nbin );
+            BinList a2 = combiner.createArrayBinList( nbin );
+            BinList h1 = new HashBinList( nbin, combiner );
+            BinList h2 = new HashBinList( nbin, combiner );
+            for ( int is = 0; is < 1000; is++ ) {
+                int ibin = random_.nextInt( nbin / 2 )
+                         * ( is % 2 == 0 ? 1 : 2 );
+                double datum = random_.nextDouble() * 10;
+                all.submitToBin( ibin, datum );
+                BinList a = is < 400 ? a1 : a2;
+                BinList h = is < 400 ? h1 : h2;
+                a.submitToBin( ibin, datum );
+                h.submitToBin( ibin, datum );
+            }
+            a1.addBins( a2 );
+            h1.addBins( h2 );
+            BinList.Result allResult = all.getResult();
+            BinList.Result aResult = a1.getResult();
+            BinList.Result hResult = h1.getResult();
+            assertEquals( allResult.getBinCount(), aResult.getBinCount() );
+            assertEquals( allResult.getBinCount(), hResult.getBinCount() );
+            for ( int ib = 0; ib < nbin; ib++ ) {
+                double value = allResult.getBinValue( ib );
+                if ( Double.isNaN( value ) ) {
+                    assertTrue( Double.isNaN( aResult.getBinValue( ib ) ) );
+                    assertTrue( Double.isNaN( hResult.getBinValue( ib ) ) );
+                }
+                else {
+                    assertEquals( value, aResult.getBinValue( ib ), 1e-8 );
+                    assertEquals( value, hResult.getBinValue( ib ), 1e-8 );
+                }
+            }
+        }
+    }
+
     private class CTest {
         final Combiner combiner_;
         final double result_;
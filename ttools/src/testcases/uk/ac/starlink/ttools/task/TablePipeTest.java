@@ -10,6 +10,7 @@ import uk.ac.starlink.table.DefaultValueInfo;
 import uk.ac.starlink.table.DescribedValue;
 import uk.ac.starlink.table.StarTable;
 import uk.ac.starlink.table.Tables;
+import uk.ac.starlink.table.WrapperStarTable;
 import uk.ac.starlink.task.TaskException;
 import uk.ac.starlink.ttools.TableTestCase;
 import uk.ac.starlink.ttools.QuickTable;
@@ -631,6 +632,22 @@ public class TablePipeTest extends TableTestCase {
         assertSameData( inTable_, apply( "sort $0" ) );
         assertSameData( inTable_, apply( "sort $1" ) );
         assertSameData( inTable_, apply( "sort '$0 $1'" ) );
+
+        /* Sequential input is sorted externally. */
+        StarTable seqTable = new WrapperStarTable( inTable_ ) {
+            public boolean isRandom() {
+                return false;
+            }
+        };
+        String[] sorts = new String[] {
+            "sort b", "sort -down b", "sort -nullsfirst b",
+            "sort -nullsfirst -down b", "sort '($0+1)/2 d'",
+            "sort d.charAt(2)",
+        };
+        for ( int i = 0; i < sorts.length; i++ ) {
+            assertSameData( apply( sorts[ i ] ),
+                            process( seqTable, sorts[ i ] ) );
+        }
     }
 
     public void testSortHead() throws Exception {
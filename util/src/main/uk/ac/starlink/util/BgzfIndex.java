@@ -0,0 +1,356 @@
+package uk.ac.starlink.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Records the block structure of a file in the Blocked GNU Zip Format
+ * (BGZF), and provides utility methods for handling BGZF blocks.
+ *
+ * <p>BGZF, as written by the <code>bgzip</code> utility and used
+ * in bioinformatics, is a series of gzip members each of which
+ * decompresses to no more than 64kbyte.  Each member header contains
+ * an extra field recording its compressed size.
+ * The file is therefore a legal gzip file, but it can be split into
+ * independently decompressible blocks without inflating it,
+ * which means it can be decompressed in parallel, and that an index of
+ * compressed against uncompressed offsets can be constructed cheaply
+ * to provide random access.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+public class BgzfIndex {
+
+    private final long[] coffs_;
+    private final long[] uoffs_;
+
+    /**
+     * Number of bytes at the start of a block required to determine
+     * whether it is a BGZF block, and if so its size.
+     */
+    public static final int HEADER_SIZE = 18;
+
+    /**
+     * Constructor.
+     *
+     * @param  coffs  compressed offsets of each non-empty block,
+     *                followed by the compressed length
+     * @param  uoffs  uncompressed offsets of each non-empty block,
+     *                followed by the uncompressed length
+     */
+    private BgzfIndex( long[] coffs, long[] uoffs ) {
+        coffs_ = coffs;
+        uoffs_ = uoffs;
+    }
+
+    /**
+     * Returns the number of (non-empty) blocks in the file.
+     *
+     * @return   block count
+     */
+    public int getBlockCount() {
+        return coffs_.length - 1;
+    }
+
+    /**
+     * Returns the total uncompressed length of the file.
+     *
+     * @return   uncompressed byte count
+     */
+    public long getUncompressedLength() {
+        return uoffs_[ uoffs_.length - 1 ];
+    }
+
+    /**
+     * Returns the offset in the compressed file at which a given block
+     * starts.
+     *
+     * @param  iblock  block index
+     * @return   compressed offset
+     */
+    public long getCompressedOffset( int iblock ) {
+        return coffs_[ iblock ];
+    }
+
+    /**
+     * Returns the offset in the uncompressed stream at which the data
+     * from a given block starts.
+     *
+     * @param  iblock  block index
+     * @return   uncompressed offset
+     */
+    public long getUncompressedOffset( int iblock ) {
+        return uoffs_[ iblock ];
+    }
+
+    /**
+     * Returns the index of the block containing a given offset in the
+     * uncompressed stream.
+     *
+     * @param  uoff  uncompressed offset
+     * @return  block index, or -1 if uoff is out of range
+     */
+    public int getBlockIndex( long uoff ) {
+        if ( uoff < 0 || uoff >= getUncompressedLength() ) {
+            return -1;
+        }
+        int lo = 0;
+        int hi = getBlockCount() - 1;
+        while ( lo < hi ) {
+            int mid = ( lo + hi + 1 ) >>> 1;
+            if ( uoffs_[ mid ] <= uoff ) {
+                lo = mid;
+            }
+            else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Reads and decompresses a given block from a file channel.
+     * Positional reads are used, so this method may be called
+     * concurrently on the same channel.
+     *
+     * @param  chan  channel for the file this index describes
+     * @param  iblock  block index
+     * @return  uncompressed content of block
+     */
+    public byte[] readBlock( FileChannel chan, int iblock )
+            throws IOException {
+        int csize = (int) ( coffs_[ iblock + 1 ] - coffs_[ iblock ] );
+        byte[] block = new byte[ csize ];
+        readFully( chan, coffs_[ iblock ], ByteBuffer.wrap( block ) );
+        byte[] data = inflateBlock( block );
+        if ( data.length != uoffs_[ iblock + 1 ] - uoffs_[ iblock ] ) {
+            throw new IOException( "BGZF file changed since indexing" );
+        }
+        return data;
+    }
+
+    /**
+     * Scans a file to construct an index of its BGZF blocks.
+     * Only the block headers and trailers are read,
+     * so this is much faster than decompressing the file.
+     *
+     * @param  chan  channel for a BGZF file
+     * @return   new index
+     * @throws  IOException  if the file is not in BGZF format
+     */
+    public static BgzfIndex createIndex( FileChannel chan )
+            throws IOException {
+        long csize = chan.size();
+        LongList coffList = new LongList();
+        LongList uoffList = new LongList();
+        byte[] header = new byte[ HEADER_SIZE ];
+        ByteBuffer hbuf = ByteBuffer.wrap( header );
+        byte[] trailer = new byte[ 4 ];
+        ByteBuffer tbuf = ByteBuffer.wrap( trailer );
+        long coff = 0;
+        long uoff = 0;
+        while ( coff < csize ) {
+            hbuf.clear();
+            readFully( chan, coff, hbuf );
+            if ( ! isBgzf( header ) ) {
+                throw new IOException( "Not a BGZF block at offset " + coff );
+            }
+            int bsize = getBlockSize( header );
+            tbuf.clear();
+            readFully( chan, coff + bsize - 4, tbuf );
+            int isize = readLeInt( trailer, 0 );
+            if ( isize > 0 ) {
+                coffList.add( coff );
+                uoffList.add( uoff );
+            }
+            coff += bsize;
+            uoff += isize & 0xffffffffL;
+        }
+        coffList.add( coff );
+        uoffList.add( uoff );
+
+        /* Empty blocks are not recorded, so the compressed range of a
+         * block may include following empty blocks.  That doesn't matter,
+         * since inflateBlock only decodes the first one. */
+        return new BgzfIndex( coffList.toLongArray(), uoffList.toLongArray() );
+    }
+
+    /**
+     * Indicates whether a buffer starts with a BGZF block header.
+     *
+     * @param  header  buffer of at least {@link #HEADER_SIZE} bytes
+     * @return  true iff header looks like the start of a BGZF block
+     */
+    public static boolean isBgzf( byte[] header ) {
+        return header.length >= HEADER_SIZE
+            && header[ 0 ] == (byte) 0x1f
+            && header[ 1 ] == (byte) 0x8b
+            && header[ 2 ] == 8
+            && ( header[ 3 ] & 0x04 ) != 0
+            && readLeShort( header, 10 ) >= 6
+            && header[ 12 ] == 'B'
+            && header[ 13 ] == 'C'
+            && readLeShort( header, 14 ) == 2;
+    }
+
+    /**
+     * Returns the total compressed size of a BGZF block given its header.
+     *
+     * @param  header  buffer for which {@link #isBgzf} returns true
+     * @return   total size in bytes of the block including header
+     *           and trailer
+     */
+    public static int getBlockSize( byte[] header ) {
+        return readLeShort( header, 16 ) + 1;
+    }
+
+    /**
+     * Decompresses a complete BGZF block and checks its CRC.
+     * Any bytes following the block in the buffer are ignored.
+     *
+     * @param  block  buffer containing a whole BGZF block at the start
+     * @return   uncompressed content
+     */
+    public static byte[] inflateBlock( byte[] block ) throws IOException {
+        if ( ! isBgzf( block ) ) {
+            throw new IOException( "Bad BGZF block" );
+        }
+        int leng = getBlockSize( block );
+        if ( leng > block.length || leng < HEADER_SIZE + 8 ) {
+            throw new IOException( "Bad BGZF block" );
+        }
+        int xlen = readLeShort( block, 10 );
+        int cstart = 12 + xlen;
+        int clen = leng - cstart - 8;
+        int crc = readLeInt( block, leng - 8 );
+        int isize = readLeInt( block, leng - 4 );
+        if ( clen < 0 || isize < 0 ) {
+            throw new IOException( "Bad BGZF block" );
+        }
+        byte[] data = new byte[ isize ];
+        Inflater inflater = new Inflater( true );
+        try {
+            inflater.setInput( block, cstart, clen );
+            int n = 0;
+            while ( n < isize ) {
+                int k = inflater.inflate( data, n, isize - n );
+                if ( k == 0 && ( inflater.finished() ||
+                                 inflater.needsInput() ) ) {
+                    throw new EOFException( "Truncated BGZF block" );
+                }
+                n += k;
+            }
+        }
+        catch ( DataFormatException e ) {
+            throw (IOException) new IOException( "Bad BGZF block data" )
+                               .initCause( e );
+        }
+        finally {
+            inflater.end();
+        }
+        CRC32 crc32 = new CRC32();
+        crc32.update( data, 0, isize );
+        if ( (int) crc32.getValue() != crc ) {
+            throw new IOException( "BGZF block CRC error" );
+        }
+        return data;
+    }
+
+    /**
+     * Reads a complete BGZF block from a stream.
+     *
+     * @param  in  input stream positioned at the start of a block
+     * @return  buffer containing exactly one compressed block,
+     *          or null at end of stream
+     * @throws  IOException  if the stream contains something other
+     *          than a BGZF block
+     */
+    static byte[] readBlock( InputStream in ) throws IOException {
+        byte[] header = new byte[ HEADER_SIZE ];
+        int nr = readFully( in, header, 0, HEADER_SIZE );
+        if ( nr == 0 ) {
+            return null;
+        }
+        if ( nr < HEADER_SIZE || ! isBgzf( header ) ) {
+            throw new IOException( "Not a BGZF block" );
+        }
+        int bsize = getBlockSize( header );
+        byte[] block = new byte[ bsize ];
+        System.arraycopy( header, 0, block, 0, HEADER_SIZE );
+        if ( readFully( in, block, HEADER_SIZE, bsize - HEADER_SIZE )
+             < bsize - HEADER_SIZE ) {
+            throw new EOFException( "Truncated BGZF block" );
+        }
+        return block;
+    }
+
+    /**
+     * Reads as many bytes as possible up to a given count from a stream.
+     *
+     * @param  in  input stream
+     * @param  buf  destination buffer
+     * @param  off  offset into buf
+     * @param  len  maximum number of bytes to read
+     * @return   number of bytes read; less than len only at end of stream
+     */
+    private static int readFully( InputStream in, byte[] buf, int off,
+                                  int len )
+            throws IOException {
+        int n = 0;
+        while ( n < len ) {
+            int k = in.read( buf, off + n, len - n );
+            if ( k < 0 ) {
+                break;
+            }
+            n += k;
+        }
+        return n;
+    }
+
+    /**
+     * Fills a buffer using positional reads from a file channel.
+     *
+     * @param  chan  channel
+     * @param  pos   file offset
+     * @param  buf   buffer to fill
+     */
+    private static void readFully( FileChannel chan, long pos, ByteBuffer buf )
+            throws IOException {
+        while ( buf.hasRemaining() ) {
+            int n = chan.read( buf, pos );
+            if ( n < 0 ) {
+                throw new EOFException( "Truncated BGZF file" );
+            }
+            pos += n;
+        }
+    }
+
+    /**
+     * Reads an unsigned little-endian 16-bit value from a buffer.
+     *
+     * @param  buf  buffer
+     * @param  off  offset
+     * @return  value
+     */
+    private static int readLeShort( byte[] buf, int off ) {
+        return ( buf[ off ] & 0xff ) | ( buf[ off + 1 ] & 0xff ) << 8;
+    }
+
+    /**
+     * Reads a little-endian 32-bit value from a buffer.
+     *
+     * @param  buf  buffer
+     * @param  off  offset
+     * @return  value
+     */
+    private static int readLeInt( byte[] buf, int off ) {
+        return readLeShort( buf, off ) | readLeShort( buf, off + 2 ) << 16;
+    }
+}
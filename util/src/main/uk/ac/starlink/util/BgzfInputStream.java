@@ -0,0 +1,43 @@
+package uk.ac.starlink.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decompresses a gzip stream in the blocked BGZF format using
+ * multiple threads.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ * @see      BgzfIndex
+ */
+class BgzfInputStream extends ParallelBlockInputStream {
+
+    private final InputStream in_;
+
+    /**
+     * Constructor.  The supplied stream should be positioned at the
+     * start of the first BGZF block.
+     *
+     * @param  in  compressed input stream
+     */
+    public BgzfInputStream( InputStream in ) {
+        super( 4 * getThreadCount() );
+        in_ = in;
+    }
+
+    protected BlockTask nextBlock() throws IOException {
+        final byte[] block = BgzfIndex.readBlock( in_ );
+        return block == null ? null
+                             : new BlockTask() {
+                                   public byte[] call() throws IOException {
+                                       return BgzfIndex.inflateBlock( block );
+                                   }
+                               };
+    }
+
+    public void close() throws IOException {
+        super.close();
+        in_.close();
+    }
+}
@@ -0,0 +1,113 @@
+package uk.ac.starlink.util;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Utilities for managing small persistent cache files which hold
+ * information derived from other files.
+ * Cache files live in a directory that can be configured by a
+ * system property, and are named using a hash of a key string,
+ * typically including the canonical path of the file they describe.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+public class CacheFiles {
+
+    /**
+     * Private constructor prevents instantiation.
+     */
+    private CacheFiles() {
+    }
+
+    /**
+     * Returns the directory in which cache files are stored.
+     * This is given by a named system property if it is set,
+     * otherwise the default temporary directory.
+     *
+     * @param  dirProp  name of system property giving the directory
+     * @return  cache directory
+     */
+    public static File getCacheDir( String dirProp ) {
+        String dirName;
+        try {
+            dirName = System.getProperty( dirProp );
+            if ( dirName == null || dirName.trim().length() == 0 ) {
+                dirName = System.getProperty( "java.io.tmpdir" );
+            }
+        }
+        catch ( SecurityException e ) {
+            dirName = ".";
+        }
+        return new File( dirName );
+    }
+
+    /**
+     * Returns a cache file location.
+     * The file name is made from a prefix, a hash of the key, and a suffix.
+     *
+     * @param  dirProp  name of system property giving the directory
+     * @param  prefix   file name prefix
+     * @param  key      text identifying the cached content
+     * @param  suffix   file name suffix
+     * @return   cache file, which may or may not exist
+     */
+    public static File getCacheFile( String dirProp, String prefix,
+                                     CharSequence key, String suffix ) {
+        return new File( getCacheDir( dirProp ),
+                         prefix + Long.toHexString( hash( key ) ) + suffix );
+    }
+
+    /**
+     * Returns a path which identifies a file.
+     * This is the canonical path if it can be determined,
+     * otherwise the absolute path.
+     *
+     * @param  file  file
+     * @return  path
+     */
+    public static String getPath( File file ) {
+        try {
+            return file.getCanonicalPath();
+        }
+        catch ( IOException e ) {
+            return file.getAbsolutePath();
+        }
+    }
+
+    /**
+     * Returns a 64-bit FNV-1a hash of a character sequence.
+     *
+     * @param  txt  text
+     * @return  hash value
+     */
+    public static long hash( CharSequence txt ) {
+        long hash = 0xcbf29ce484222325L;
+        int n = txt.length();
+        for ( int i = 0; i < n; i++ ) {
+            hash ^= txt.charAt( i );
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Moves a fully written temporary file into place as a cache file,
+     * replacing any existing one.  Writing to a temporary file first
+     * means that a partially written cache file is never used.
+     * If the move fails, the temporary file is deleted.
+     *
+     * @param  tmpFile  temporary file
+     * @param  cacheFile  destination cache file
+     */
+    public static void commit( File tmpFile, File cacheFile )
+            throws IOException {
+        cacheFile.delete();
+        if ( ! tmpFile.renameTo( cacheFile ) ) {
+            tmpFile.delete();
+            throw new IOException( "Failed to rename " + tmpFile
+                                 + " to " + cacheFile );
+        }
+    }
+}
@@ -3,6 +3,7 @@ package uk.ac.starlink.util;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PushbackInputStream;
 import java.util.zip.GZIPInputStream;
 import org.apache.tools.bzip2.CBZip2InputStream;
 
@@ -19,6 +20,16 @@ public abstract class Compression {
     /** Number of bytes needed to determine compression type (magic number). */
     public static final int MAGIC_SIZE = 3;
 
+    /**
+     * Name of the system property which controls whether multi-threaded
+     * decompression is used where the compressed format permits it
+     * (bzip2 streams, and gzip streams in the blocked BGZF format).
+     * If set to "true" or "false" it forces the behaviour,
+     * otherwise parallel decompression is used if more than one
+     * processor is available.
+     */
+    public static final String PARALLEL_PROPERTY = "compression.parallel";
+
     /**
      * Private sole constructor.
      *
@@ -116,6 +127,27 @@ public abstract class Compression {
      */
     public static final Compression GZIP = new Compression( "gzip" ) {
         public InputStream decompress( InputStream raw ) throws IOException {
+
+            /* If the stream is BGZF, its blocks can be inflated
+             * independently. */
+            if ( ParallelBlockInputStream.isParallel() ) {
+                PushbackInputStream pin =
+                    new PushbackInputStream( raw, BgzfIndex.HEADER_SIZE );
+                byte[] header = new byte[ BgzfIndex.HEADER_SIZE ];
+                int nr = 0;
+                while ( nr < header.length ) {
+                    int n = pin.read( header, nr, header.length - nr );
+                    if ( n < 0 ) {
+                        break;
+                    }
+                    nr += n;
+                }
+                pin.unread( header, 0, nr );
+                raw = pin;
+                if ( nr == header.length && BgzfIndex.isBgzf( header ) ) {
+                    return new BgzfInputStream( pin );
+                }
+            }
             return new GZIPInputStream( raw ) {
 
                 /* This is a workaround for a bug in GZIPInputStream in
@@ -160,6 +192,9 @@ public abstract class Compression {
                 throw new IllegalArgumentException( 
                     "Wrong magic number for bzip2 encoding" );
             }
+            if ( ParallelBlockInputStream.isParallel() ) {
+                return new ParallelBzip2InputStream( raw );
+            }
             return new CBZip2InputStream( raw );
         }
     };
@@ -0,0 +1,35 @@
+package uk.ac.starlink.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ThreadFactory which creates daemon threads with recognisable names.
+ * Threads are named by a fixed prefix followed by a sequence number.
+ * Since the threads are daemons, they will not prevent the JVM
+ * from exiting.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+
+    private final String prefix_;
+    private static final AtomicInteger threadCount_ = new AtomicInteger();
+
+    /**
+     * Constructor.
+     *
+     * @param  prefix  prefix for thread names
+     */
+    public DaemonThreadFactory( String prefix ) {
+        prefix_ = prefix;
+    }
+
+    public Thread newThread( Runnable r ) {
+        Thread thread =
+            new Thread( r, prefix_ + "-" + threadCount_.incrementAndGet() );
+        thread.setDaemon( true );
+        return thread;
+    }
+}
@@ -0,0 +1,63 @@
+package uk.ac.starlink.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Utilities for working with the results of tasks submitted to
+ * thread pools.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ * @see      DaemonThreadFactory
+ */
+public class FutureUtils {
+
+    /**
+     * Private constructor prevents instantiation.
+     */
+    private FutureUtils() {
+    }
+
+    /**
+     * Waits for and returns the result of a future,
+     * rethrowing any error it encountered.
+     * An IOException, RuntimeException or Error thrown by the task
+     * is rethrown as is, and any other checked exception is wrapped
+     * in an IOException.
+     * If the calling thread is interrupted while waiting,
+     * its interrupted status is set and an
+     * {@link java.io.InterruptedIOException} is thrown.
+     *
+     * @param  future  future
+     * @return   result
+     */
+    public static <T> T getResult( Future<T> future ) throws IOException {
+        try {
+            return future.get();
+        }
+        catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw (IOException) new InterruptedIOException( "Interrupted" )
+                               .initCause( e );
+        }
+        catch ( ExecutionException e ) {
+            Throwable err = e.getCause();
+            if ( err instanceof IOException ) {
+                throw (IOException) err;
+            }
+            else if ( err instanceof RuntimeException ) {
+                throw (RuntimeException) err;
+            }
+            else if ( err instanceof Error ) {
+                throw (Error) err;
+            }
+            else {
+                throw (IOException) new IOException( err.getMessage() )
+                                   .initCause( err );
+            }
+        }
+    }
+}
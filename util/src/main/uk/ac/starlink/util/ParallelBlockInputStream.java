@@ -0,0 +1,293 @@
+package uk.ac.starlink.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Abstract InputStream which decodes independently compressed blocks
+ * of an underlying stream in parallel.
+ * The compressed blocks are read from the underlying stream on the
+ * thread which reads from this stream, and each one is passed to a
+ * pooled thread for decoding.  A bounded number of blocks is decoded
+ * ahead of the current read position, and the decoded data is returned
+ * in the original order.
+ *
+ * <p>Concrete subclasses must implement {@link #nextBlock} to split
+ * the underlying stream into blocks.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+abstract class ParallelBlockInputStream extends InputStream {
+
+    private final int maxPending_;
+    private final LinkedList<Pending> pending_;
+    private boolean rawEnd_;
+    private byte[] buf_;
+    private int ipos_;
+    private boolean closed_;
+
+    private static final byte[] EMPTY = new byte[ 0 ];
+    private static ExecutorService executor_;
+
+    /**
+     * Constructor.
+     *
+     * @param  maxPending  maximum number of blocks to decode ahead
+     */
+    protected ParallelBlockInputStream( int maxPending ) {
+        maxPending_ = Math.max( 1, maxPending );
+        pending_ = new LinkedList<Pending>();
+        buf_ = EMPTY;
+    }
+
+    /**
+     * Reads the next compressed block from the underlying stream,
+     * and returns a task which will decode it.
+     * This is called on the thread reading from this stream.
+     *
+     * @return  task yielding the decoded bytes of the next block,
+     *          or null if there are no more blocks
+     */
+    protected abstract BlockTask nextBlock() throws IOException;
+
+    /**
+     * Called if a block task fails, to give subclasses the chance to
+     * recover.  The default implementation just rethrows the error.
+     * Implementations may use {@link #takeNextTask} to consume
+     * following blocks.
+     *
+     * @param  task  task which failed
+     * @param  error  error thrown by the task
+     * @return   decoded data to use in place of the failed block
+     */
+    protected byte[] recover( BlockTask task, IOException error )
+            throws IOException {
+        throw error;
+    }
+
+    /**
+     * Removes and returns the task for the block following those
+     * which have already been returned.  Any decoding already started
+     * for it is abandoned.
+     *
+     * @return  next task, or null if there are no more blocks
+     */
+    protected BlockTask takeNextTask() throws IOException {
+        if ( pending_.isEmpty() ) {
+            return rawEnd_ ? null : nextTask();
+        }
+        else {
+            Pending pend = pending_.removeFirst();
+            pend.future_.cancel( true );
+            return pend.task_;
+        }
+    }
+
+    public int read() throws IOException {
+        if ( ipos_ >= buf_.length && ! fill() ) {
+            return -1;
+        }
+        return buf_[ ipos_++ ] & 0xff;
+    }
+
+    public int read( byte[] b, int off, int len ) throws IOException {
+        if ( len == 0 ) {
+            return 0;
+        }
+        if ( ipos_ >= buf_.length && ! fill() ) {
+            return -1;
+        }
+        int n = Math.min( len, buf_.length - ipos_ );
+        System.arraycopy( buf_, ipos_, b, off, n );
+        ipos_ += n;
+        return n;
+    }
+
+    public long skip( long n ) throws IOException {
+        long nskip = 0;
+        while ( nskip < n && ( ipos_ < buf_.length || fill() ) ) {
+            int k = (int) Math.min( n - nskip, buf_.length - ipos_ );
+            ipos_ += k;
+            nskip += k;
+        }
+        return nskip;
+    }
+
+    public int available() {
+        return buf_.length - ipos_;
+    }
+
+    public boolean markSupported() {
+        return false;
+    }
+
+    public void close() throws IOException {
+        if ( ! closed_ ) {
+            closed_ = true;
+            for ( Pending pend : pending_ ) {
+                pend.future_.cancel( true );
+            }
+            pending_.clear();
+            buf_ = EMPTY;
+        }
+    }
+
+    /**
+     * Makes sure that some decoded bytes are available in the buffer.
+     *
+     * @return  true if data is available, false at end of stream
+     */
+    private boolean fill() throws IOException {
+        if ( closed_ ) {
+            throw new IOException( "Stream closed" );
+        }
+        while ( true ) {
+            while ( ! rawEnd_ && pending_.size() < maxPending_ ) {
+                BlockTask task = nextTask();
+                if ( task != null ) {
+                    Future<byte[]> future = getExecutor().submit( task );
+                    pending_.add( new Pending( task, future ) );
+                }
+            }
+            if ( pending_.isEmpty() ) {
+                return false;
+            }
+            Pending pend = pending_.removeFirst();
+            byte[] data;
+            try {
+                data = getResult( pend.future_ );
+            }
+            catch ( IOException e ) {
+                data = recover( pend.task_, e );
+            }
+            buf_ = data;
+            ipos_ = 0;
+            if ( data.length > 0 ) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Calls nextBlock, noting when the end of the raw stream is reached.
+     *
+     * @return   next task or null
+     */
+    private BlockTask nextTask() throws IOException {
+        BlockTask task = nextBlock();
+        if ( task == null ) {
+            rawEnd_ = true;
+        }
+        return task;
+    }
+
+    /**
+     * Waits for and returns the result of a decompression task.
+     * Any error it encountered, including a RuntimeException from
+     * decoding corrupt data, is presented as an IOException.
+     *
+     * @param  future  future
+     * @return   result
+     */
+    private static byte[] getResult( Future<byte[]> future )
+            throws IOException {
+        try {
+            return FutureUtils.getResult( future );
+        }
+        catch ( RuntimeException e ) {
+            throw (IOException) new IOException( "Decompression error: " + e )
+                               .initCause( e );
+        }
+    }
+
+    /**
+     * Runs a task on the current thread, returning its result.
+     * Any error it throws is presented as an IOException.
+     *
+     * @param  task  task
+     * @return  decoded data
+     */
+    static byte[] runTask( BlockTask task ) throws IOException {
+        FutureTask<byte[]> future = new FutureTask<byte[]>( task );
+        future.run();
+        return getResult( future );
+    }
+
+    /**
+     * Indicates whether the parallel decompression streams should be
+     * used.  This is determined by the {@link Compression#PARALLEL_PROPERTY}
+     * system property if it is set, otherwise by whether more than one
+     * processor is available.
+     *
+     * @return   true iff parallel decompression is to be used
+     */
+    static boolean isParallel() {
+        try {
+            String parVal =
+                System.getProperty( Compression.PARALLEL_PROPERTY );
+            if ( parVal != null && parVal.trim().length() > 0 ) {
+                return Boolean.valueOf( parVal.trim() ).booleanValue();
+            }
+        }
+        catch ( SecurityException e ) {
+            // never mind
+        }
+        return getThreadCount() > 1;
+    }
+
+    /**
+     * Returns the number of processors available for decoding.
+     *
+     * @return  thread count
+     */
+    static int getThreadCount() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Returns the executor service used for decoding.
+     * Its threads are daemons, and expire when idle.
+     *
+     * @return  executor
+     */
+    private static synchronized ExecutorService getExecutor() {
+        if ( executor_ == null ) {
+            executor_ = Executors
+                       .newCachedThreadPool( new DaemonThreadFactory(
+                                                 "Decompressor" ) );
+        }
+        return executor_;
+    }
+
+    /**
+     * Task which decodes a single compressed block.
+     */
+    static abstract class BlockTask implements Callable<byte[]> {
+    }
+
+    /**
+     * Associates a task with the future representing its execution.
+     */
+    private static class Pending {
+        final BlockTask task_;
+        final Future<byte[]> future_;
+
+        /**
+         * Constructor.
+         *
+         * @param  task  task
+         * @param  future  future for task
+         */
+        Pending( BlockTask task, Future<byte[]> future ) {
+            task_ = task;
+            future_ = future;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package uk.ac.starlink.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.apache.tools.bzip2.CBZip2InputStream;
+
+/**
+ * Decompresses a bzip2 stream using multiple threads.
+ * Each bzip2 block starts with a 48-bit magic number, but blocks are
+ * not aligned on byte boundaries.  This class scans the compressed bits
+ * for the magic numbers, and packages each block as a standalone
+ * single-block bzip2 stream which can be decoded independently
+ * on a pooled thread.
+ * Concatenated bzip2 streams, as written by parallel compressors,
+ * are read in their entirety.
+ *
+ * <p>The magic number can occur by chance within compressed data.
+ * A block which has been split in the wrong place like this will
+ * fail to decode or fail its CRC check, in which case it is retried
+ * joined to the following segment.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+class ParallelBzip2InputStream extends ParallelBlockInputStream {
+
+    private final InputStream in_;
+    private final byte[] rbuf_;
+    private int rpos_;
+    private int rleng_;
+    private ByteList segBuf_;
+    private int segStartBit_;
+    private boolean segIsBlock_;
+    private long reg_;
+    private boolean inEnd_;
+
+    private static final long BLOCK_MAGIC = 0x314159265359L;
+    private static final long EOS_MAGIC = 0x177245385090L;
+    private static final long MASK48 = 0xffffffffffffL;
+    private static final int MAX_MERGE = 4;
+    private static final int[] CRC_TABLE = createCrcTable();
+
+    /**
+     * Constructor.  The supplied stream should be positioned just after
+     * the initial "BZ" magic number.
+     *
+     * @param  in  compressed input stream
+     */
+    public ParallelBzip2InputStream( InputStream in ) throws IOException {
+        super( 2 * getThreadCount() );
+        in_ = in;
+        int h = in.read();
+        int level = in.read();
+        if ( h != 'h' || level < '1' || level > '9' ) {
+            throw new IOException( "Stream is not BZip2 formatted" );
+        }
+        rbuf_ = new byte[ 64 * 1024 ];
+        segBuf_ = new ByteList();
+    }
+
+    protected BlockTask nextBlock() throws IOException {
+        while ( ! inEnd_ ) {
+            if ( rpos_ == rleng_ ) {
+                rleng_ = in_.read( rbuf_ );
+                rpos_ = 0;
+                if ( rleng_ < 0 ) {
+                    inEnd_ = true;
+                    return new Bzip2Task( endSegment( segBuf_.size() * 8 ) );
+                }
+                continue;
+            }
+            int b = rbuf_[ rpos_++ ] & 0xff;
+            segBuf_.add( (byte) b );
+            reg_ = ( reg_ << 8 ) | b;
+
+            /* Look for a magic number ending at each bit of the new byte,
+             * most significant bit first. */
+            for ( int k = 7; k >= 0; k-- ) {
+                long word = ( reg_ >>> k ) & MASK48;
+                boolean isBlock = word == BLOCK_MAGIC;
+                if ( isBlock || word == EOS_MAGIC ) {
+
+                    /* Bit index within the segment buffer of the
+                     * magic number start. */
+                    int magicBit = segBuf_.size() * 8 - k - 48;
+                    if ( magicBit >= 0 ) {
+                        Segment seg = endSegment( magicBit );
+                        segIsBlock_ = isBlock;
+                        return new Bzip2Task( seg );
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Called if a block fails to decode.  This may be because a chance
+     * occurrence of the magic number split the block, so try again
+     * with following segments added.
+     */
+    protected byte[] recover( BlockTask task, IOException error )
+            throws IOException {
+        Segment seg = ((Bzip2Task) task).seg_;
+        for ( int i = 0; i < MAX_MERGE; i++ ) {
+            Bzip2Task next = (Bzip2Task) takeNextTask();
+            if ( next == null ) {
+                break;
+            }
+            seg = seg.append( next.seg_ );
+            try {
+                return runTask( new Bzip2Task( seg ) );
+            }
+            catch ( IOException e ) {
+                // try again with another segment
+            }
+        }
+        throw error;
+    }
+
+    public void close() throws IOException {
+        super.close();
+        in_.close();
+    }
+
+    /**
+     * Ends the current segment at a given point, and starts a new one.
+     * Segments that don't contain a block are returned too,
+     * so that they are available for recovery merges.
+     *
+     * @param  endBit  bit index in the segment buffer of the end of
+     *                 the current segment
+     * @return   the completed segment
+     */
+    private Segment endSegment( int endBit ) {
+        byte[] bytes = segBuf_.toByteArray();
+        Segment seg = new Segment( bytes, segStartBit_,
+                                   endBit - segStartBit_, segIsBlock_ );
+
+        /* Start the new segment at the byte containing endBit. */
+        int startByte = endBit / 8;
+        segBuf_ = new ByteList();
+        for ( int i = startByte; i < bytes.length; i++ ) {
+            segBuf_.add( bytes[ i ] );
+        }
+        segStartBit_ = endBit % 8;
+        segIsBlock_ = false;
+        return seg;
+    }
+
+    /**
+     * Returns the initial table for bzip2's CRC-32 variant.
+     *
+     * @return  256-element lookup table
+     */
+    private static int[] createCrcTable() {
+        int[] table = new int[ 256 ];
+        for ( int i = 0; i < 256; i++ ) {
+            int c = i << 24;
+            for ( int j = 0; j < 8; j++ ) {
+                c = ( c & 0x80000000 ) != 0 ? ( c << 1 ) ^ 0x04c11db7
+                                            : c << 1;
+            }
+            table[ i ] = c;
+        }
+        return table;
+    }
+
+    /**
+     * Calculates the bzip2 CRC of some bytes.
+     *
+     * @param  buf  buffer
+     * @param  leng  number of bytes to use
+     * @return  CRC value
+     */
+    static int crc( byte[] buf, int leng ) {
+        int crc = 0xffffffff;
+        for ( int i = 0; i < leng; i++ ) {
+            crc = ( crc << 8 ) ^ CRC_TABLE[ ( ( crc >>> 24 ) ^ buf[ i ] )
+                                           & 0xff ];
+        }
+        return ~crc;
+    }
+
+    /**
+     * Represents a contiguous run of bits from the compressed stream.
+     */
+    private static class Segment {
+        final byte[] bytes_;
+        final int startBit_;
+        final long nbit_;
+        final boolean isBlock_;
+
+        /**
+         * Constructor.
+         *
+         * @param  bytes  bytes containing the bits
+         * @param  startBit  index of first bit in the first byte (0-7)
+         * @param  nbit   number of bits in segment
+         * @param  isBlock  true iff the segment starts with a block
+         *                  magic number
+         */
+        Segment( byte[] bytes, int startBit, long nbit, boolean isBlock ) {
+            bytes_ = bytes;
+            startBit_ = startBit;
+            nbit_ = nbit;
+            isBlock_ = isBlock;
+        }
+
+        /**
+         * Returns the value of a bit in this segment.
+         *
+         * @param  ibit  bit index from segment start
+         * @return  0 or 1
+         */
+        int getBit( long ibit ) {
+            long jbit = startBit_ + ibit;
+            return ( bytes_[ (int) ( jbit / 8 ) ] >> ( 7 - jbit % 8 ) ) & 1;
+        }
+
+        /**
+         * Returns a segment consisting of this one followed by another.
+         *
+         * @param  other  following segment
+         * @return  combined segment
+         */
+        Segment append( Segment other ) {
+            long nbit = nbit_ + other.nbit_;
+            byte[] bytes = new byte[ (int) ( ( startBit_ + nbit + 7 ) / 8 ) ];
+            Segment seg = new Segment( bytes, startBit_, nbit, isBlock_ );
+            for ( long i = 0; i < nbit_; i++ ) {
+                seg.setBit( i, getBit( i ) );
+            }
+            for ( long i = 0; i < other.nbit_; i++ ) {
+                seg.setBit( nbit_ + i, other.getBit( i ) );
+            }
+            return seg;
+        }
+
+        /**
+         * Sets the value of a bit in this segment.
+         *
+         * @param  ibit  bit index from segment start
+         * @param  value  0 or 1
+         */
+        private void setBit( long ibit, int value ) {
+            long jbit = startBit_ + ibit;
+            int mask = 1 << ( 7 - (int) ( jbit % 8 ) );
+            int ib = (int) ( jbit / 8 );
+            bytes_[ ib ] = (byte) ( value != 0 ? bytes_[ ib ] | mask
+                                               : bytes_[ ib ] & ~mask );
+        }
+
+        /**
+         * Returns an unsigned value from a run of bits in this segment.
+         *
+         * @param  ibit  index of first bit
+         * @param  nbit  number of bits (no more than 32)
+         * @return  value
+         */
+        int getBits( long ibit, int nbit ) {
+            int v = 0;
+            for ( int i = 0; i < nbit; i++ ) {
+                v = ( v << 1 ) | getBit( ibit + i );
+            }
+            return v;
+        }
+    }
+
+    /**
+     * Task which decodes a single block segment.
+     */
+    private static class Bzip2Task extends BlockTask {
+        final Segment seg_;
+
+        /**
+         * Constructor.
+         *
+         * @param  seg  segment; if it is not a block segment,
+         *              the task yields no data
+         */
+        Bzip2Task( Segment seg ) {
+            seg_ = seg;
+        }
+
+        public byte[] call() throws IOException {
+            if ( ! seg_.isBlock_ ) {
+                return new byte[ 0 ];
+            }
+            if ( seg_.nbit_ < 48 + 32 ||
+                 seg_.nbit_ > 8L * Integer.MAX_VALUE - 1024 ) {
+                throw new IOException( "Bad bzip2 block" );
+            }
+            int storedCrc = seg_.getBits( 48, 32 );
+
+            /* Construct a standalone single-block bzip2 stream:
+             * header, block bits, end of stream marker, stream CRC.
+             * For a single block stream the stream CRC is the same as
+             * the block CRC. */
+            long nbit = seg_.nbit_;
+            long totBits = 16 + nbit + 48 + 32;
+            byte[] stream = new byte[ (int) ( ( totBits + 7 ) / 8 ) ];
+            stream[ 0 ] = (byte) 'h';
+            stream[ 1 ] = (byte) '9';
+            byte[] bytes = seg_.bytes_;
+            int shift = seg_.startBit_;
+            int nfull = (int) ( nbit / 8 );
+            for ( int i = 0; i < nfull; i++ ) {
+                int hi = ( bytes[ i ] << shift ) & 0xff;
+                int lo = shift == 0
+                       ? 0
+                       : ( bytes[ i + 1 ] & 0xff ) >>> ( 8 - shift );
+                stream[ 2 + i ] = (byte) ( hi | lo );
+            }
+            long ibit = 16 + 8L * nfull;
+            for ( long i = 8L * nfull; i < nbit; i++ ) {
+                putBit( stream, ibit++, seg_.getBit( i ) );
+            }
+            for ( int i = 47; i >= 0; i-- ) {
+                putBit( stream, ibit++, (int) ( EOS_MAGIC >>> i ) & 1 );
+            }
+            for ( int i = 31; i >= 0; i-- ) {
+                putBit( stream, ibit++, ( storedCrc >>> i ) & 1 );
+            }
+
+            /* Decode it and check the result. */
+            InputStream bzIn =
+                new CBZip2InputStream( new ByteArrayInputStream( stream ) );
+            ByteArrayOutputStream out = new ByteArrayOutputStream( 1 << 20 );
+            byte[] buf = new byte[ 64 * 1024 ];
+            for ( int n; ( n = bzIn.read( buf ) ) >= 0; ) {
+                out.write( buf, 0, n );
+            }
+            byte[] data = out.toByteArray();
+            if ( crc( data, data.length ) != storedCrc ) {
+                throw new IOException( "BZip2 block CRC error" );
+            }
+            return data;
+        }
+
+        /**
+         * Sets a bit in a zero-initialised byte array.
+         *
+         * @param  buf  buffer
+         * @param  ibit  bit index
+         * @param  value  0 or 1
+         */
+        private static void putBit( byte[] buf, long ibit, int value ) {
+            if ( value != 0 ) {
+                buf[ (int) ( ibit / 8 ) ] |= (byte) ( 0x80 >>> ( ibit % 8 ) );
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package uk.ac.starlink.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import junit.framework.TestCase;
+
+public class CacheFilesTest extends TestCase {
+
+    private static final String DIR_PROP = "test.cachefiles.dir";
+
+    public CacheFilesTest( String name ) {
+        super( name );
+    }
+
+    public void testHash() {
+        assertEquals( 0xcbf29ce484222325L, CacheFiles.hash( "" ) );
+        assertEquals( 0xaf63dc4c8601ec8cL, CacheFiles.hash( "a" ) );
+        assertEquals( CacheFiles.hash( "foobar" ),
+                      CacheFiles.hash( new StringBuffer( "foo" )
+                                      .append( "bar" ) ) );
+    }
+
+    public void testFiles() throws IOException {
+        File tmpdir = new File( System.getProperty( "java.io.tmpdir" ) );
+        assertEquals( tmpdir, CacheFiles.getCacheDir( DIR_PROP ) );
+        File dir = File.createTempFile( "cache", "" );
+        dir.delete();
+        dir.mkdir();
+        System.setProperty( DIR_PROP, dir.getPath() );
+        try {
+            assertEquals( dir, CacheFiles.getCacheDir( DIR_PROP ) );
+            File f1 = CacheFiles.getCacheFile( DIR_PROP, "x-", "k1", ".c" );
+            File f2 = CacheFiles.getCacheFile( DIR_PROP, "x-", "k2", ".c" );
+            assertEquals( dir, f1.getParentFile() );
+            assertTrue( f1.getName().startsWith( "x-" ) );
+            assertTrue( f1.getName().endsWith( ".c" ) );
+            assertFalse( f1.equals( f2 ) );
+
+            File tmp = new File( dir, "t.tmp" );
+            new FileOutputStream( tmp ).close();
+            CacheFiles.commit( tmp, f1 );
+            assertTrue( f1.exists() );
+            assertFalse( tmp.exists() );
+            f1.delete();
+        }
+        finally {
+            System.clearProperty( DIR_PROP );
+            dir.delete();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package uk.ac.starlink.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import junit.framework.TestCase;
+import org.apache.tools.bzip2.CBZip2InputStream;
+import org.apache.tools.bzip2.CBZip2OutputStream;
+
+public class ParallelDecompressTest extends TestCase {
+
+    private final byte[] data_;
+
+    public ParallelDecompressTest( String name ) {
+        super( name );
+        data_ = createData( 450000, 23 );
+    }
+
+    public void testBzip2() throws IOException {
+        byte[] bz = bzip2( data_ );
+        InputStream bzIn =
+            new CBZip2InputStream( new ByteArrayInputStream( bz, 2,
+                                                             bz.length - 2 ) );
+        assertArrayEquals( data_, readAll( bzIn ) );
+        assertArrayEquals( data_, readParallel( bz ) );
+
+        /* Concatenated streams. */
+        byte[] data2 = createData( 1000, 5 );
+        byte[] bz2 = bzip2( data2 );
+        byte[] bzcat = new byte[ bz.length + bz2.length ];
+        System.arraycopy( bz, 0, bzcat, 0, bz.length );
+        System.arraycopy( bz2, 0, bzcat, bz.length, bz2.length );
+        byte[] datacat = new byte[ data_.length + data2.length ];
+        System.arraycopy( data_, 0, datacat, 0, data_.length );
+        System.arraycopy( data2, 0, datacat, data_.length, data2.length );
+        assertArrayEquals( datacat, readParallel( bzcat ) );
+
+        /* Small and empty streams. */
+        assertArrayEquals( data2, readParallel( bz2 ) );
+        byte[] empty = new byte[ 0 ];
+        assertArrayEquals( empty, readParallel( bzip2( empty ) ) );
+
+        /* Corrupted stream. */
+        bz[ bz.length / 2 ] ^= 0x5a;
+        try {
+            readParallel( bz );
+            fail();
+        }
+        catch ( IOException e ) {
+            // ok
+        }
+    }
+
+    public void testBgzf() throws IOException {
+        byte[] gz = bgzip( data_ );
+        assertArrayEquals( data_, readAll( new GZIPInputStream(
+                                      new ByteArrayInputStream( gz ) ) ) );
+        assertArrayEquals( data_, readParallel( gz ) );
+        byte[] header = new byte[ BgzfIndex.HEADER_SIZE ];
+        System.arraycopy( gz, 0, header, 0, header.length );
+        assertTrue( BgzfIndex.isBgzf( header ) );
+        header[ 12 ] = 'X';
+        assertFalse( BgzfIndex.isBgzf( header ) );
+
+        File file = File.createTempFile( "test", ".gz" );
+        file.deleteOnExit();
+        OutputStream out = new FileOutputStream( file );
+        out.write( gz );
+        out.close();
+        FileChannel chan = new RandomAccessFile( file, "r" ).getChannel();
+        BgzfIndex index = BgzfIndex.createIndex( chan );
+        int nblock = index.getBlockCount();
+        assertTrue( nblock > 4 );
+        assertEquals( data_.length, index.getUncompressedLength() );
+        assertEquals( -1, index.getBlockIndex( data_.length ) );
+        for ( int ib = nblock - 1; ib >= 0; ib-- ) {
+            long uoff = index.getUncompressedOffset( ib );
+            assertEquals( ib, index.getBlockIndex( uoff ) );
+            byte[] block = index.readBlock( chan, ib );
+            assertEquals( ib, index.getBlockIndex( uoff + block.length - 1 ) );
+            for ( int i = 0; i < block.length; i++ ) {
+                assertEquals( data_[ (int) uoff + i ], block[ i ] );
+            }
+        }
+        chan.close();
+        file.delete();
+
+        gz[ gz.length / 2 ] ^= 0x5a;
+        try {
+            readParallel( gz );
+            fail();
+        }
+        catch ( IOException e ) {
+            // ok
+        }
+    }
+
+    private static byte[] readParallel( byte[] zbuf ) throws IOException {
+        System.setProperty( Compression.PARALLEL_PROPERTY, "true" );
+        try {
+            return readAll( Compression.decompressStatic(
+                                new ByteArrayInputStream( zbuf ) ) );
+        }
+        finally {
+            System.clearProperty( Compression.PARALLEL_PROPERTY );
+        }
+    }
+
+    private static byte[] readAll( InputStream in ) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOUtils.copy( in, out );
+        in.close();
+        return out.toByteArray();
+    }
+
+    private static byte[] bzip2( byte[] data ) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        bout.write( 'B' );
+        bout.write( 'Z' );
+        OutputStream zout = new CBZip2OutputStream( bout, 1 );
+        zout.write( data );
+        zout.close();
+        return bout.toByteArray();
+    }
+
+    private static byte[] bgzip( byte[] data ) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int chunk = 0xff00;
+        for ( int off = 0; off < data.length; off += chunk ) {
+            writeBgzfBlock( out, data, off,
+                            Math.min( chunk, data.length - off ) );
+        }
+        writeBgzfBlock( out, data, 0, 0 );
+        return out.toByteArray();
+    }
+
+    private static void writeBgzfBlock( ByteArrayOutputStream out,
+                                        byte[] data, int off, int len ) {
+        Deflater deflater = new Deflater( Deflater.DEFAULT_COMPRESSION, true );
+        deflater.setInput( data, off, len );
+        deflater.finish();
+        byte[] cbuf = new byte[ len + 1024 ];
+        int clen = 0;
+        while ( ! deflater.finished() ) {
+            clen += deflater.deflate( cbuf, clen, cbuf.length - clen );
+        }
+        deflater.end();
+        CRC32 crc = new CRC32();
+        crc.update( data, off, len );
+        out.write( new byte[] { 0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0,
+                                (byte) 0xff, 6, 0, 'B', 'C', 2, 0 },
+                   0, 16 );
+        writeLe( out, 18 + clen + 8 - 1, 2 );
+        out.write( cbuf, 0, clen );
+        writeLe( out, (int) crc.getValue(), 4 );
+        writeLe( out, len, 4 );
+    }
+
+    private static void writeLe( ByteArrayOutputStream out, int value,
+                                 int nbyte ) {
+        for ( int i = 0; i < nbyte; i++ ) {
+            out.write( ( value >>> ( 8 * i ) ) & 0xff );
+        }
+    }
+
+    private static byte[] createData( int leng, long seed ) {
+        Random rnd = new Random( seed );
+        byte[] buf = new byte[ leng ];
+        for ( int i = 0; i < leng; i++ ) {
+            buf[ i ] = rnd.nextInt( 4 ) == 0
+                     ? (byte) rnd.nextInt()
+                     : (byte) ( 'a' + ( i / 17 ) % 26 );
+        }
+        return buf;
+    }
+
+    private static void assertArrayEquals( byte[] expected, byte[] actual ) {
+        assertEquals( expected.length, actual.length );
+        assertTrue( Arrays.equals( expected, actual ) );
+    }
+}
@@ -0,0 +1,422 @@
+package uk.ac.starlink.votable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import uk.ac.starlink.fits.BlockMappedInput;
+import uk.ac.starlink.util.CacheFiles;
+import uk.ac.starlink.util.CountInputStream;
+import uk.ac.starlink.util.Loader;
+import uk.ac.starlink.util.LongList;
+import uk.ac.starlink.util.URLUtils;
+
+/**
+ * Provides row offset indexes for unencoded BINARY or BINARY2 data
+ * streams held in local files.
+ * Since the length of a binary row can depend on its content,
+ * the only way to find where each row starts is to scan through the
+ * whole stream.  This class does that once, and caches the result in
+ * a sidecar index file so that later reads of the same data file
+ * can avoid the scan.
+ *
+ * <p>Index files are written to the directory named by the
+ * {@link #INDEXDIR_PROP} system property if set,
+ * or the default temporary directory otherwise.
+ * An index file is only used if the data file's length and modification
+ * time, and the datatype and arraysize of each field,
+ * match the values recorded when it was written.
+ * A cached index is mapped rather than read into memory.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+class BinaryRowIndex {
+
+    /**
+     * Name of system property which controls whether href-referenced
+     * binary streams in local files are indexed to provide random access.
+     * Set it to "false" to prevent indexing.
+     */
+    public static final String INDEX_PROP = "votable.binary.index";
+
+    /**
+     * Name of system property giving the directory in which row index
+     * files are cached.  If not set, java.io.tmpdir is used.
+     */
+    public static final String INDEXDIR_PROP = "votable.binary.indexdir";
+
+    private static final int MAGIC = 0x564f5849;
+    private static final int VERSION = 3;
+    private static final int BLOCK_LONGS =
+        BlockMappedInput.DEFAULT_BLOCKSIZE / 8;
+    private static final Logger logger_ =
+        Logger.getLogger( "uk.ac.starlink.votable" );
+
+    /**
+     * Private constructor prevents instantiation.
+     */
+    private BinaryRowIndex() {
+    }
+
+    /**
+     * Returns the local file containing an indexable binary stream,
+     * if there is one.
+     * The stream must be an unencoded local file,
+     * the JVM must be able to map large files (64-bit),
+     * and indexing must not have been disabled using the
+     * {@link #INDEX_PROP} system property.
+     *
+     * @param  url  location of stream data
+     * @param  encoding  value of STREAM element encoding attribute
+     * @return   file containing the data, or null if it cannot be indexed
+     */
+    public static File getIndexableFile( URL url, String encoding ) {
+        if ( ( encoding != null && encoding.trim().length() > 0 ) ||
+             ! isIndexingEnabled() || ! Loader.is64Bit() ) {
+            return null;
+        }
+        File file = URLUtils.urlToFile( url.toString() );
+        return file != null && file.isFile() && file.canRead() ? file : null;
+    }
+
+    /**
+     * Returns the offsets of the start of each row in a binary stream file.
+     * If a valid cached index is available it is used, otherwise the
+     * file is scanned and an attempt is made to cache the result.
+     *
+     * @param  file  file containing raw BINARY or BINARY2 data
+     * @param  decoders  column decoders
+     * @param  isBinary2  true for BINARY2, false for BINARY
+     * @return   file offsets of each row
+     */
+    public static RowOffsets getRowOffsets( File file, Decoder[] decoders,
+                                        boolean isBinary2 )
+            throws IOException {
+        File indexFile = getIndexFile( file );
+        String fieldSig = getFieldSignature( decoders );
+        if ( indexFile.exists() ) {
+            try {
+                RowOffsets offsets = readIndex( indexFile, file, fieldSig,
+                                            isBinary2 );
+                if ( offsets != null ) {
+                    logger_.info( "Using cached row index " + indexFile );
+                    return offsets;
+                }
+            }
+            catch ( IOException e ) {
+                logger_.log( Level.INFO,
+                             "Failed to read row index " + indexFile, e );
+            }
+        }
+        RowOffsets offsets = scanRowOffsets( file, decoders, isBinary2 );
+        try {
+            writeIndex( indexFile, file, fieldSig, isBinary2, offsets );
+            logger_.info( "Wrote row index " + indexFile );
+        }
+        catch ( IOException e ) {
+            logger_.log( Level.INFO,
+                         "Failed to write row index " + indexFile, e );
+        }
+        return offsets;
+    }
+
+    /**
+     * Scans a file containing binary data to find the offsets of the
+     * start of each row.  Cells are skipped rather than decoded.
+     *
+     * @param  file  file containing raw BINARY or BINARY2 data
+     * @param  decoders  column decoders
+     * @param  isBinary2  true for BINARY2, false for BINARY
+     * @return   file offsets of each row
+     */
+    static RowOffsets scanRowOffsets( File file, Decoder[] decoders,
+                                  boolean isBinary2 )
+            throws IOException {
+        long leng = file.length();
+        int ncol = decoders.length;
+        boolean[] nullFlags = new boolean[ ncol ];
+        LongList offsets = new LongList();
+        CountInputStream countIn =
+            new CountInputStream( new BufferedInputStream(
+                                      new FileInputStream( file ) ) );
+        DataInput in = new DataInputStream( countIn );
+        long pos = 0;
+        try {
+            while ( pos < leng ) {
+                offsets.add( pos );
+                if ( isBinary2 ) {
+                    FlagIO.readFlags( in, nullFlags );
+                }
+                for ( int icol = 0; icol < ncol; icol++ ) {
+                    decoders[ icol ].skipStream( in );
+                }
+                pos = countIn.getReadCount() + countIn.getSkipCount();
+            }
+        }
+        catch ( EOFException e ) {
+            pos = leng + 1;
+        }
+        finally {
+            countIn.close();
+        }
+
+        /* Discard a final row that overruns the end of the file. */
+        int nrow = offsets.size();
+        if ( pos > leng ) {
+            nrow--;
+            logger_.warning( "Binary stream " + file + " truncated - using "
+                           + nrow + " complete rows" );
+        }
+        long[] offs = offsets.toLongArray();
+        int nblock = ( nrow + BLOCK_LONGS - 1 ) / BLOCK_LONGS;
+        LongBuffer[] blocks = new LongBuffer[ nblock ];
+        for ( int ib = 0; ib < nblock; ib++ ) {
+            int irow0 = ib * BLOCK_LONGS;
+            blocks[ ib ] =
+                LongBuffer.wrap( offs, irow0,
+                                 Math.min( BLOCK_LONGS, nrow - irow0 ) )
+                          .slice();
+        }
+        return new RowOffsets( blocks );
+    }
+
+    /**
+     * Returns a string which characterises the binary layout of the
+     * fields read by a given set of decoders.
+     * Decoders for fields with different datatypes or arraysizes
+     * give different results.
+     *
+     * @param  decoders  column decoders
+     * @return   field signature
+     */
+    static String getFieldSignature( Decoder[] decoders ) {
+        StringBuffer sbuf = new StringBuffer();
+        for ( int icol = 0; icol < decoders.length; icol++ ) {
+            Decoder decoder = decoders[ icol ];
+            sbuf.append( decoder.getClass().getName() )
+                .append( '(' )
+                .append( decoder.getContentClass().getName() );
+            long[] arraysize = decoder.arraysize;
+            for ( int i = 0; i < arraysize.length; i++ ) {
+                sbuf.append( i == 0 ? ':' : 'x' )
+                    .append( arraysize[ i ] );
+            }
+            sbuf.append( ')' );
+        }
+        return sbuf.toString();
+    }
+
+    /**
+     * Indicates whether indexing has been disabled by system property.
+     *
+     * @return  false iff {@link #INDEX_PROP} is set to "false"
+     */
+    private static boolean isIndexingEnabled() {
+        try {
+            return ! "false".equalsIgnoreCase( System
+                                              .getProperty( INDEX_PROP ) );
+        }
+        catch ( SecurityException e ) {
+            return true;
+        }
+    }
+
+    /**
+     * Returns the location of the index file for a given data file.
+     *
+     * @param  dataFile  binary data file
+     * @return  index file, which may or may not exist
+     */
+    private static File getIndexFile( File dataFile ) {
+        return CacheFiles.getCacheFile( INDEXDIR_PROP, "votable-",
+                                        CacheFiles.getPath( dataFile ),
+                                        ".rowidx" );
+    }
+
+    /**
+     * Reads a row index file.
+     * The header is read and checked, and the offsets which follow it
+     * are mapped, so they are not read into memory.
+     * The file is closed before this method returns.
+     *
+     * @param  indexFile  index file
+     * @param  dataFile   data file to which the index should apply
+     * @param  fieldSig  field signature from {@link #getFieldSignature}
+     * @param  isBinary2  true for BINARY2, false for BINARY
+     * @return   row offsets, or null if the index does not match the data
+     */
+    private static RowOffsets readIndex( File indexFile, File dataFile,
+                                         String fieldSig, boolean isBinary2 )
+            throws IOException {
+        FileInputStream fin = new FileInputStream( indexFile );
+        try {
+            CountInputStream countIn =
+                new CountInputStream( new BufferedInputStream( fin ) );
+            DataInputStream din = new DataInputStream( countIn );
+            if ( din.readInt() != MAGIC ||
+                 din.readInt() != VERSION ||
+                 din.readLong() != dataFile.length() ||
+                 din.readLong() != dataFile.lastModified() ||
+                 din.readBoolean() != isBinary2 ||
+                 ! fieldSig.equals( readString( din ) ) ) {
+                return null;
+            }
+            long nrow = din.readLong();
+            long start = getPaddedLength( countIn.getReadCount() );
+            FileChannel chan = fin.getChannel();
+            if ( nrow < 0 || chan.size() != start + nrow * 8 ) {
+                throw new IOException( "Bad row index length" );
+            }
+            int nblock = (int) ( ( nrow + BLOCK_LONGS - 1 ) / BLOCK_LONGS );
+            LongBuffer[] blocks = new LongBuffer[ nblock ];
+            for ( int ib = 0; ib < nblock; ib++ ) {
+                long irow0 = ib * (long) BLOCK_LONGS;
+                long nr = Math.min( BLOCK_LONGS, nrow - irow0 );
+                blocks[ ib ] =
+                    chan.map( FileChannel.MapMode.READ_ONLY,
+                              start + irow0 * 8, nr * 8 )
+                        .asLongBuffer();
+            }
+            return new RowOffsets( blocks );
+        }
+        finally {
+            fin.close();
+        }
+    }
+
+    /**
+     * Returns the length of the header of an index file,
+     * padded so that the offset values which follow it are aligned.
+     *
+     * @param  leng  unpadded header length in bytes
+     * @return   padded header length in bytes
+     */
+    private static long getPaddedLength( long leng ) {
+        return ( ( leng + 7 ) / 8 ) * 8;
+    }
+
+    /**
+     * Reads a string written as an int length followed by that number
+     * of chars.  Unlike <code>readUTF</code>, there is no length limit.
+     *
+     * @param  in  input stream
+     * @return   string
+     */
+    private static String readString( DataInput in ) throws IOException {
+        int nc = in.readInt();
+        if ( nc < 0 ) {
+            throw new IOException( "Bad string length " + nc );
+        }
+        StringBuffer sbuf = new StringBuffer( nc );
+        for ( int i = 0; i < nc; i++ ) {
+            sbuf.append( in.readChar() );
+        }
+        return sbuf.toString();
+    }
+
+    /**
+     * Writes a row index file.  The file is written under a temporary
+     * name and then renamed, so that a partially written index is
+     * never used.
+     *
+     * @param  indexFile  index file
+     * @param  dataFile   data file to which the index applies
+     * @param  fieldSig  field signature from {@link #getFieldSignature}
+     * @param  isBinary2  true for BINARY2, false for BINARY
+     * @param  offsets   row offsets
+     */
+    private static void writeIndex( File indexFile, File dataFile,
+                                    String fieldSig, boolean isBinary2,
+                                    RowOffsets offsets )
+            throws IOException {
+        File tmpFile = new File( indexFile.getPath() + ".tmp" );
+        OutputStream out =
+            new BufferedOutputStream( new FileOutputStream( tmpFile ) );
+        try {
+            DataOutputStream dout = new DataOutputStream( out );
+            dout.writeInt( MAGIC );
+            dout.writeInt( VERSION );
+            dout.writeLong( dataFile.length() );
+            dout.writeLong( dataFile.lastModified() );
+            dout.writeBoolean( isBinary2 );
+            dout.writeInt( fieldSig.length() );
+            dout.writeChars( fieldSig );
+            long nrow = offsets.getRowCount();
+            dout.writeLong( nrow );
+            long hdrLeng = dout.size();
+            for ( long i = hdrLeng; i < getPaddedLength( hdrLeng ); i++ ) {
+                dout.writeByte( 0 );
+            }
+            for ( long irow = 0; irow < nrow; irow++ ) {
+                dout.writeLong( offsets.getOffset( irow ) );
+            }
+            dout.flush();
+        }
+        finally {
+            out.close();
+        }
+        CacheFiles.commit( tmpFile, indexFile );
+    }
+
+    /**
+     * Holds the file offset of the start of each row in a binary stream.
+     * The offsets are stored in one or more buffers, which may be
+     * mapped from an index file or wrap an array in memory.
+     * Instances are immutable and may be used from multiple threads.
+     */
+    static class RowOffsets {
+        private final LongBuffer[] blocks_;
+        private final long nrow_;
+
+        /**
+         * Constructor.
+         * Each buffer must contain values from index 0 up to its limit,
+         * and all but the last must contain the same fixed number
+         * of values, <code>BLOCK_LONGS</code>.
+         *
+         * @param  blocks  buffers containing consecutive offset values;
+         *                 they are not modified
+         */
+        RowOffsets( LongBuffer[] blocks ) {
+            blocks_ = blocks;
+            long nrow = 0;
+            for ( int ib = 0; ib < blocks.length; ib++ ) {
+                nrow += blocks[ ib ].limit();
+            }
+            nrow_ = nrow;
+        }
+
+        /**
+         * Returns the number of rows.
+         *
+         * @return  row count
+         */
+        public long getRowCount() {
+            return nrow_;
+        }
+
+        /**
+         * Returns the offset of the start of a given row.
+         *
+         * @param  irow  row index
+         * @return   file offset of row start
+         */
+        public long getOffset( long irow ) {
+            return blocks_[ (int) ( irow / BLOCK_LONGS ) ]
+                  .get( (int) ( irow % BLOCK_LONGS ) );
+        }
+    }
+}
@@ -35,45 +35,13 @@ class BinaryRowSequence implements RowSequence {
      *         of STREAM element ("gzip" or "base64", else assumed none)
      * @param  isBinary2 true for BINARY2 format, false for BINARY
      */
-    public BinaryRowSequence( final Decoder[] decoders, InputStream in,
+    public BinaryRowSequence( Decoder[] decoders, InputStream in,
                               String encoding, boolean isBinary2 )
             throws IOException {
         ncol_ = decoders.length;
-        if ( "gzip".equals( encoding ) ) {
-            in = new GZIPInputStream( in );
-        }
-        else if ( "base64".equals( encoding ) ) {
-            in = new Base64InputStream( in );
-        }
-        pIn_ = new PushbackInputStream( in );
+        pIn_ = new PushbackInputStream( decodeStream( in, encoding ) );
         dataIn_ = new DataInputStream( pIn_ );
-        rowReader_ = isBinary2
-            ? new RowReader() {
-                  final boolean[] nullFlags = new boolean[ ncol_ ];
-                  public void readRow( Object[] row ) throws IOException {
-                      FlagIO.readFlags( dataIn_, nullFlags );
-                      for ( int icol = 0; icol < ncol_; icol++ ) {
-                          Decoder decoder = decoders[ icol ];
-                          final Object cell;
-                          if ( nullFlags[ icol ] ) {
-                              decoder.skipStream( dataIn_ );
-                              cell = null;
-                          }
-                          else {
-                              cell = decoder.decodeStream( dataIn_ );
-                          }
-                          row[ icol ] = cell;
-                      }
-                  }
-              }
-            : new RowReader() {
-                  public void readRow( Object[] row ) throws IOException {
-                      for ( int icol = 0; icol < ncol_; icol++ ) {
-                          row[ icol ] = decoders[ icol ]
-                                       .decodeStream( dataIn_ );
-                      }
-                  }
-              };
+        rowReader_ = createRowReader( decoders, dataIn_, isBinary2 );
     }
 
     public boolean next() throws IOException {
@@ -118,10 +86,100 @@ class BinaryRowSequence implements RowSequence {
         pIn_.close();
     }
 
+    /**
+     * Returns a row sequence which reads streamed data in VOTable
+     * BINARY or BINARY2 format.
+     * If {@link PipelinedBinaryRowSequence#isPipelined} indicates
+     * that it is appropriate, the decoding is done on separate threads
+     * so that it can proceed concurrently with the caller's processing
+     * of the rows.
+     * Otherwise, a <code>BinaryRowSequence</code> is returned.
+     *
+     * @param  decoders  n-element array of decoders for n-column data
+     * @param  in  input stream containing binary data
+     * @param  encoding  encoding string as per <tt>encoding</tt> attribute
+     *         of STREAM element ("gzip" or "base64", else assumed none)
+     * @param  isBinary2 true for BINARY2 format, false for BINARY
+     * @return  row sequence
+     */
+    public static RowSequence createRowSequence( Decoder[] decoders,
+                                                 InputStream in,
+                                                 String encoding,
+                                                 boolean isBinary2 )
+            throws IOException {
+        return PipelinedBinaryRowSequence.isPipelined()
+             ? new PipelinedBinaryRowSequence( decoders, in, encoding,
+                                               isBinary2 )
+             : new BinaryRowSequence( decoders, in, encoding, isBinary2 );
+    }
+
+    /**
+     * Returns a stream which decodes a stream as indicated by the
+     * <code>encoding</code> attribute of a STREAM element.
+     *
+     * @param  in  raw input stream
+     * @param  encoding  encoding string as per <tt>encoding</tt> attribute
+     *         of STREAM element ("gzip" or "base64", else assumed none)
+     * @return  stream containing binary data
+     */
+    static InputStream decodeStream( InputStream in, String encoding )
+            throws IOException {
+        if ( "gzip".equals( encoding ) ) {
+            return new GZIPInputStream( in );
+        }
+        else if ( "base64".equals( encoding ) ) {
+            return new Base64InputStream( in );
+        }
+        else {
+            return in;
+        }
+    }
+
+    /**
+     * Returns an object that can read rows from a binary data stream.
+     *
+     * @param  decoders  n-element array of decoders for n-column data
+     * @param  dataIn   source of binary data
+     * @param  isBinary2 true for BINARY2 format, false for BINARY
+     * @return  row reader
+     */
+    static RowReader createRowReader( final Decoder[] decoders,
+                                      final DataInput dataIn,
+                                      boolean isBinary2 ) {
+        final int ncol = decoders.length;
+        return isBinary2
+            ? new RowReader() {
+                  final boolean[] nullFlags = new boolean[ ncol ];
+                  public void readRow( Object[] row ) throws IOException {
+                      FlagIO.readFlags( dataIn, nullFlags );
+                      for ( int icol = 0; icol < ncol; icol++ ) {
+                          Decoder decoder = decoders[ icol ];
+                          final Object cell;
+                          if ( nullFlags[ icol ] ) {
+                              decoder.skipStream( dataIn );
+                              cell = null;
+                          }
+                          else {
+                              cell = decoder.decodeStream( dataIn );
+                          }
+                          row[ icol ] = cell;
+                      }
+                  }
+              }
+            : new RowReader() {
+                  public void readRow( Object[] row ) throws IOException {
+                      for ( int icol = 0; icol < ncol; icol++ ) {
+                          row[ icol ] = decoders[ icol ]
+                                       .decodeStream( dataIn );
+                      }
+                  }
+              };
+    }
+
     /**
      * Interface for an object that can read a row from a binary stream.
      */
-    private interface RowReader {
+    interface RowReader {
 
         /**
          * Populates a given row array with cell values for the next
@@ -0,0 +1,725 @@
+package uk.ac.starlink.votable;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import uk.ac.starlink.table.RowSequence;
+import uk.ac.starlink.util.DaemonThreadFactory;
+
+/**
+ * RowSequence implementation which reads streamed data in VOTable BINARY
+ * or BINARY2 format using a pipeline of threads.
+ *
+ * <p>One thread reads the input stream, undoing any base64 or gzip
+ * encoding, and places the resulting bytes in large blocks on a
+ * bounded queue.  A second thread reads bytes from that queue and
+ * decodes them into batches of rows, which are placed on another
+ * bounded queue.  The {@link #next} method of this sequence just takes
+ * rows from the batches on that queue.  So input, byte decoding,
+ * row decoding and the caller's processing of the rows can all
+ * take place concurrently.
+ *
+ * <p>Since row boundaries in a binary stream can only be located by
+ * decoding all the cells that precede them, the row decoding itself
+ * cannot be split between multiple threads.
+ *
+ * <p>The pipeline threads hold only a weak reference to this sequence.
+ * If the sequence is discarded without being closed, the threads
+ * notice within a short time that their output will never be consumed,
+ * close the input stream and exit.  Calling {@link #close} is still
+ * the best way to free the resources promptly.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+class PipelinedBinaryRowSequence implements RowSequence {
+
+    private final Pipeline pipeline_;
+    private Object[][] rows_;
+    private int nrow_;
+    private int irow_;
+    private Object[] row_;
+    private Throwable error_;
+    private boolean done_;
+
+    /**
+     * Name of system property which controls whether binary streams
+     * are decoded using a pipeline of threads.
+     * If set to "true" or "false" this determines whether
+     * {@link #isPipelined} returns true; if unset, pipelining is
+     * used only when more than one processor is available.
+     */
+    public static final String PIPELINE_PROP = "votable.binary.pipeline";
+
+    /** Number of bytes in each block of decoded input. */
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    /** Maximum number of decoded byte blocks queued for row decoding. */
+    private static final int BLOCK_QUEUE_SIZE = 16;
+
+    /** Number of rows in each batch of decoded rows. */
+    private static final int BATCH_ROWS = 1024;
+
+    /** Maximum number of row batches queued for the consumer. */
+    private static final int BATCH_QUEUE_SIZE = 4;
+
+    /**
+     * Interval in milliseconds at which a blocked pipeline thread checks
+     * whether its consumer has gone away.
+     */
+    private static final long POLL_MILLIS = 500;
+
+    private static final Block END_BLOCK = new Block( null, -1, null );
+    private static final Batch END_BATCH = new Batch( null, 0, null );
+    private static final Logger logger_ =
+        Logger.getLogger( "uk.ac.starlink.votable" );
+
+    /**
+     * Constructs a new row sequence from a set of decoders and a
+     * possibly encoded input stream.
+     * Reading starts immediately on new threads.
+     *
+     * @param  decoders  n-element array of decoders for n-column data
+     * @param  in  input stream containing binary data
+     * @param  encoding  encoding string as per <tt>encoding</tt> attribute
+     *         of STREAM element ("gzip" or "base64", else assumed none)
+     * @param  isBinary2 true for BINARY2 format, false for BINARY
+     */
+    public PipelinedBinaryRowSequence( Decoder[] decoders, InputStream in,
+                                       String encoding, boolean isBinary2 )
+            throws IOException {
+        BlockSource source =
+            "base64".equals( encoding )
+                ? (BlockSource) new Base64BlockSource( in )
+                : new StreamBlockSource( BinaryRowSequence
+                                        .decodeStream( in, encoding ) );
+        pipeline_ = new Pipeline( this, in, source, decoders, isBinary2 );
+        pipeline_.start();
+    }
+
+    public boolean next() throws IOException {
+        if ( ++irow_ < nrow_ ) {
+            row_ = rows_[ irow_ ];
+            return true;
+        }
+        if ( error_ != null ) {
+            rethrow( error_ );
+        }
+        if ( done_ ) {
+            return false;
+        }
+        Batch batch;
+        try {
+            batch = pipeline_.batchQueue_.take();
+        }
+        catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw (IOException)
+                  new InterruptedIOException( "Interrupted" ).initCause( e );
+        }
+        if ( batch.error_ != null ) {
+            error_ = batch.error_;
+            rethrow( error_ );
+        }
+        if ( batch.rows_ == null ) {
+            done_ = true;
+            return false;
+        }
+        rows_ = batch.rows_;
+        nrow_ = batch.nrow_;
+        irow_ = 0;
+        row_ = rows_[ 0 ];
+        return true;
+    }
+
+    public Object[] getRow() {
+        if ( row_ != null ) {
+            return row_;
+        }
+        else {
+            throw new IllegalStateException( "No next() yet" );
+        }
+    }
+
+    public Object getCell( int icol ) {
+        if ( row_ != null ) {
+            return row_[ icol ];
+        }
+        else {
+            throw new IllegalStateException( "No next() yet" );
+        }
+    }
+
+    public void close() throws IOException {
+        pipeline_.close();
+    }
+
+    /**
+     * Rethrows an error which was caught on one of the pipeline threads.
+     *
+     * @param  error  error
+     */
+    private static void rethrow( Throwable error ) throws IOException {
+        if ( error instanceof IOException ) {
+            throw (IOException) error;
+        }
+        else if ( error instanceof RuntimeException ) {
+            throw (RuntimeException) error;
+        }
+        else if ( error instanceof Error ) {
+            throw (Error) error;
+        }
+        else {
+            throw (IOException) new IOException( error.getMessage() )
+                               .initCause( error );
+        }
+    }
+
+    /**
+     * Indicates whether binary streams should by default be read using
+     * a <code>PipelinedBinaryRowSequence</code>.
+     * This is determined by the {@link #PIPELINE_PROP} system property
+     * if it is set, otherwise by whether more than one processor
+     * is available.
+     *
+     * @return   true iff pipelined reading is to be used
+     */
+    public static boolean isPipelined() {
+        try {
+            String pipeVal = System.getProperty( PIPELINE_PROP );
+            if ( pipeVal != null && pipeVal.trim().length() > 0 ) {
+                return Boolean.valueOf( pipeVal.trim() ).booleanValue();
+            }
+        }
+        catch ( SecurityException e ) {
+            logger_.info( "Can't read " + PIPELINE_PROP + " property" );
+        }
+        return Runtime.getRuntime().availableProcessors() > 1;
+    }
+
+    /**
+     * Holds the state shared between a row sequence and its pipeline
+     * threads.  This object, and not the sequence itself, is what
+     * the threads refer to, so that the sequence can be garbage
+     * collected while they are running.
+     */
+    private static class Pipeline {
+        private final Reference<PipelinedBinaryRowSequence> seqRef_;
+        private final InputStream in_;
+        private final BlockSource source_;
+        private final BlockingQueue<Block> blockQueue_;
+        private final BlockInputStream blockIn_;
+        private final BinaryRowSequence.RowReader rowReader_;
+        private final int ncol_;
+        private final Thread readThread_;
+        private final Thread decodeThread_;
+        final BlockingQueue<Batch> batchQueue_;
+        private volatile boolean closed_;
+
+        /**
+         * Constructor.
+         *
+         * @param  seq  row sequence consuming the output of this pipeline
+         * @param  in   raw input stream
+         * @param  source   source of decoded bytes from <code>in</code>
+         * @param  decoders   column decoders
+         * @param  isBinary2  true for BINARY2 format, false for BINARY
+         */
+        Pipeline( PipelinedBinaryRowSequence seq, InputStream in,
+                  BlockSource source, Decoder[] decoders, boolean isBinary2 ) {
+            seqRef_ = new WeakReference<PipelinedBinaryRowSequence>( seq );
+            in_ = in;
+            source_ = source;
+            ncol_ = decoders.length;
+            blockQueue_ = new ArrayBlockingQueue<Block>( BLOCK_QUEUE_SIZE );
+            batchQueue_ = new ArrayBlockingQueue<Batch>( BATCH_QUEUE_SIZE );
+            blockIn_ = new BlockInputStream( blockQueue_ );
+            rowReader_ =
+                BinaryRowSequence
+               .createRowReader( decoders, new DataInputStream( blockIn_ ),
+                                 isBinary2 );
+            Runnable reader = new Runnable() {
+                public void run() {
+                    try {
+                        readBlocks();
+                    }
+                    catch ( InterruptedException e ) {
+                        // closed
+                    }
+                }
+            };
+            Runnable decoder = new Runnable() {
+                public void run() {
+                    try {
+                        decodeRows();
+                    }
+                    catch ( InterruptedException e ) {
+                        // closed
+                    }
+                }
+            };
+            readThread_ = new DaemonThreadFactory( "VOTable binary reader" )
+                         .newThread( reader );
+            decodeThread_ = new DaemonThreadFactory( "VOTable binary decoder" )
+                           .newThread( decoder );
+        }
+
+        /**
+         * Starts the pipeline threads.
+         */
+        void start() {
+            readThread_.start();
+            decodeThread_.start();
+        }
+
+        /**
+         * Stops the pipeline threads and closes the input stream.
+         */
+        void close() throws IOException {
+            closed_ = true;
+            readThread_.interrupt();
+            decodeThread_.interrupt();
+            in_.close();
+        }
+
+        /**
+         * Places an item on a queue, waiting if necessary for space
+         * to become available.  If while waiting it turns out that
+         * the pipeline has been closed or its consumer has been
+         * garbage collected, the pipeline is closed and
+         * false is returned.
+         *
+         * @param  queue  destination queue
+         * @param  item   item to add
+         * @return   true iff the item was added
+         */
+        private <T> boolean put( BlockingQueue<T> queue, T item )
+                throws InterruptedException {
+            while ( ! queue.offer( item, POLL_MILLIS,
+                                   TimeUnit.MILLISECONDS ) ) {
+                if ( closed_ ) {
+                    return false;
+                }
+                if ( seqRef_.get() == null ) {
+                    logger_.info( "Unclosed VOTable binary row sequence"
+                                + " discarded - stopping pipeline" );
+                    try {
+                        close();
+                    }
+                    catch ( IOException e ) {
+                    }
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Reads blocks of bytes from the source and places them on the
+         * block queue until the end of the input is reached.
+         * The final block on the queue is either an error block or
+         * {@link #END_BLOCK}.  Called from the reader thread.
+         */
+        private void readBlocks() throws InterruptedException {
+            while ( true ) {
+                byte[] buf = new byte[ BLOCK_SIZE ];
+                int n;
+                try {
+                    n = source_.fill( buf );
+                }
+                catch ( Throwable e ) {
+                    if ( ! closed_ ) {
+                        IOException ioe = e instanceof IOException
+                                        ? (IOException) e
+                                        : (IOException)
+                                          new IOException( e.toString() )
+                                         .initCause( e );
+                        put( blockQueue_, new Block( null, 0, ioe ) );
+                    }
+                    return;
+                }
+                if ( n < 0 ) {
+                    put( blockQueue_, END_BLOCK );
+                    return;
+                }
+                if ( ! put( blockQueue_, new Block( buf, n, null ) ) ) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Decodes rows from the block queue and places them in batches
+         * on the batch queue until the end of the input is reached.
+         * The final batch on the queue is either an error batch or
+         * {@link #END_BATCH}.  Called from the decoder thread.
+         */
+        private void decodeRows() throws InterruptedException {
+            while ( true ) {
+                Object[][] rows = new Object[ BATCH_ROWS ][];
+                int nr = 0;
+                boolean end = false;
+                Throwable error = null;
+                try {
+                    while ( nr < BATCH_ROWS && ! ( end = blockIn_.isEnd() ) ) {
+                        Object[] row = new Object[ ncol_ ];
+                        rowReader_.readRow( row );
+                        rows[ nr++ ] = row;
+                    }
+                }
+                catch ( Throwable e ) {
+                    if ( closed_ ) {
+                        return;
+                    }
+                    error = e;
+                }
+                if ( nr > 0 &&
+                     ! put( batchQueue_, new Batch( rows, nr, null ) ) ) {
+                    return;
+                }
+                if ( error != null ) {
+                    put( batchQueue_, new Batch( null, 0, error ) );
+                    return;
+                }
+                if ( end ) {
+                    put( batchQueue_, END_BATCH );
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Block of bytes for transfer between pipeline threads.
+     */
+    private static class Block {
+        final byte[] buf_;
+        final int n_;
+        final IOException error_;
+
+        /**
+         * Constructor.
+         *
+         * @param  buf  byte buffer, or null for end of stream or error
+         * @param  n    number of bytes used in buffer
+         * @param  error  error, or null
+         */
+        Block( byte[] buf, int n, IOException error ) {
+            buf_ = buf;
+            n_ = n;
+            error_ = error;
+        }
+    }
+
+    /**
+     * Batch of rows for transfer between pipeline threads.
+     */
+    private static class Batch {
+        final Object[][] rows_;
+        final int nrow_;
+        final Throwable error_;
+
+        /**
+         * Constructor.
+         *
+         * @param  rows  row array, or null for end of stream or error
+         * @param  nrow  number of rows used in row array
+         * @param  error  error, or null
+         */
+        Batch( Object[][] rows, int nrow, Throwable error ) {
+            rows_ = rows;
+            nrow_ = nrow;
+            error_ = error;
+        }
+    }
+
+    /**
+     * InputStream which supplies bytes taken from a queue of blocks.
+     * The queue must be terminated by an error block or {@link #END_BLOCK}.
+     */
+    private static class BlockInputStream extends InputStream {
+        private final BlockingQueue<Block> queue_;
+        private byte[] buf_;
+        private int nbuf_;
+        private int ibuf_;
+        private boolean end_;
+
+        /**
+         * Constructor.
+         *
+         * @param  queue  queue from which blocks are taken
+         */
+        BlockInputStream( BlockingQueue<Block> queue ) {
+            queue_ = queue;
+        }
+
+        /**
+         * Indicates whether the end of this stream has been reached.
+         * As for the non-pipelined implementation, an EOFException
+         * encountered before the first byte of a row counts as
+         * the end of the stream.
+         *
+         * @return  true iff no more bytes are available
+         */
+        boolean isEnd() throws IOException {
+            try {
+                return ! ensureData();
+            }
+            catch ( EOFException e ) {
+                return true;
+            }
+        }
+
+        /**
+         * Makes sure that the current buffer has some unread bytes in it,
+         * if any remain in the stream.
+         *
+         * @return  true iff there are more bytes available
+         */
+        private boolean ensureData() throws IOException {
+            while ( ibuf_ >= nbuf_ ) {
+                if ( end_ ) {
+                    return false;
+                }
+                Block block;
+                try {
+                    block = queue_.take();
+                }
+                catch ( InterruptedException e ) {
+                    end_ = true;
+                    throw (IOException)
+                          new InterruptedIOException( "Interrupted" )
+                         .initCause( e );
+                }
+                if ( block.error_ != null ) {
+                    end_ = true;
+                    throw block.error_;
+                }
+                if ( block.buf_ == null ) {
+                    end_ = true;
+                    return false;
+                }
+                buf_ = block.buf_;
+                nbuf_ = block.n_;
+                ibuf_ = 0;
+            }
+            return true;
+        }
+
+        public int read() throws IOException {
+            return ensureData() ? buf_[ ibuf_++ ] & 0xff : -1;
+        }
+
+        public int read( byte[] b, int off, int len ) throws IOException {
+            if ( len == 0 ) {
+                return 0;
+            }
+            if ( ! ensureData() ) {
+                return -1;
+            }
+            int n = Math.min( len, nbuf_ - ibuf_ );
+            System.arraycopy( buf_, ibuf_, b, off, n );
+            ibuf_ += n;
+            return n;
+        }
+
+        public int available() {
+            return nbuf_ - ibuf_;
+        }
+    }
+
+    /**
+     * Supplies decoded bytes to fill buffers.
+     */
+    private static abstract class BlockSource {
+        private IOException pending_;
+
+        /**
+         * Reads up to <code>len</code> bytes of data into an array,
+         * as for {@link java.io.InputStream#read(byte[],int,int)}.
+         *
+         * @param  b  destination buffer
+         * @param  off  offset into <code>b</code> at which to start writing
+         * @param  len  maximum number of bytes to write
+         * @return   number of bytes written, or -1 for end of stream
+         */
+        abstract int read( byte[] b, int off, int len ) throws IOException;
+
+        /**
+         * Fills a buffer with data as far as possible.
+         * If an error is encountered after some bytes have been read,
+         * those bytes are returned and the error is thrown on the
+         * following call.
+         *
+         * @param  buf  destination buffer
+         * @return  number of bytes read, or -1 for end of stream
+         */
+        int fill( byte[] buf ) throws IOException {
+            if ( pending_ != null ) {
+                IOException e = pending_;
+                pending_ = null;
+                throw e;
+            }
+            int n = 0;
+            try {
+                while ( n < buf.length ) {
+                    int nr = read( buf, n, buf.length - n );
+                    if ( nr < 0 ) {
+                        break;
+                    }
+                    n += nr;
+                }
+            }
+            catch ( IOException e ) {
+                if ( n == 0 ) {
+                    throw e;
+                }
+                pending_ = e;
+            }
+            return n == 0 ? -1 : n;
+        }
+    }
+
+    /**
+     * BlockSource implementation that reads from an InputStream.
+     */
+    private static class StreamBlockSource extends BlockSource {
+        private final InputStream in_;
+
+        /**
+         * Constructor.
+         *
+         * @param  in  input stream
+         */
+        StreamBlockSource( InputStream in ) {
+            in_ = in;
+        }
+
+        int read( byte[] b, int off, int len ) throws IOException {
+            return in_.read( b, off, len );
+        }
+    }
+
+    /**
+     * BlockSource implementation that decodes base64-encoded text
+     * from an InputStream.
+     * The behaviour is the same as that of
+     * {@link uk.ac.starlink.util.Base64InputStream}, but the input is
+     * read in bulk rather than a byte at a time.
+     */
+    private static class Base64BlockSource extends BlockSource {
+        private final InputStream in_;
+        private final byte[] raw_;
+        private int nraw_;
+        private int iraw_;
+        private int state_;
+        private int prev_;
+        private boolean end_;
+        private IOException error_;
+        private static final int[] TABLE = createTable();
+
+        /**
+         * Constructor.
+         *
+         * @param  in  input stream containing base64-encoded text
+         */
+        Base64BlockSource( InputStream in ) {
+            in_ = in;
+            raw_ = new byte[ BLOCK_SIZE ];
+            state_ = 1;
+        }
+
+        int read( byte[] b, int off, int len ) throws IOException {
+            int n = 0;
+            while ( n < len && ! end_ ) {
+                if ( iraw_ >= nraw_ ) {
+                    nraw_ = in_.read( raw_ );
+                    iraw_ = 0;
+                    if ( nraw_ < 0 ) {
+                        nraw_ = 0;
+                        end_ = true;
+                        if ( state_ != 1 ) {
+                            error_ =
+                                new EOFException( "Unexpected end-of-file" );
+                        }
+                        break;
+                    }
+                }
+                int c = raw_[ iraw_++ ] & 0xff;
+                if ( c == '=' ) {
+                    end_ = true;
+                    if ( state_ < 3 ) {
+                        error_ = new IOException( "Invalid pad character" );
+                    }
+                    break;
+                }
+                int v = TABLE[ c ];
+                if ( v >= 0 ) {
+                    switch ( state_ ) {
+                        case 1:
+                            state_ = 2;
+                            break;
+                        case 2:
+                            b[ off + n++ ] = (byte) ( ( prev_ << 2 )
+                                                    | ( v >> 4 ) );
+                            state_ = 3;
+                            break;
+                        case 3:
+                            b[ off + n++ ] = (byte) ( ( prev_ << 4 )
+                                                    | ( v >> 2 ) );
+                            state_ = 4;
+                            break;
+                        case 4:
+                            b[ off + n++ ] = (byte) ( ( prev_ << 6 ) | v );
+                            state_ = 1;
+                            break;
+                        default:
+                            assert false;
+                    }
+                    prev_ = v;
+                }
+            }
+            if ( n == 0 && end_ ) {
+                if ( error_ != null ) {
+                    throw error_;
+                }
+                return -1;
+            }
+            return n;
+        }
+
+        /**
+         * Returns a lookup table giving the 6-bit value of each
+         * base64 character, or -1 for non-base64 characters.
+         *
+         * @return  256-element lookup table
+         */
+        private static int[] createTable() {
+            int[] table = new int[ 256 ];
+            for ( int i = 0; i < 256; i++ ) {
+                table[ i ] = -1;
+            }
+            int i = 0;
+            for ( int c = 'A'; c <= 'Z'; c++ ) {
+                table[ c ] = i++;
+            }
+            for ( int c = 'a'; c <= 'z'; c++ ) {
+                table[ c ] = i++;
+            }
+            for ( int c = '0'; c <= '9'; c++ ) {
+                table[ c ] = i++;
+            }
+            table[ '+' ] = 62;
+            table[ '/' ] = 63;
+            return table;
+        }
+    }
+}
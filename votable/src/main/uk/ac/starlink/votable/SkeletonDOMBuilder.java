@@ -257,12 +257,17 @@ abstract class SkeletonDOMBuilder extends CustomDOMBuilder {
 
     /**
      * Custom handler for TABLEDATA element.
+     * If parallel decoding is in use, the raw cell text for each row
+     * is collected and passed to a {@link TabledataBatcher}, otherwise
+     * cells are decoded on the parser thread.
      */
     private class TabledataHandler extends NullContentHandler {
         final Decoder[] decoders_;
         final int ncol_;
+        final TabledataBatcher batcher_;
         StringBuffer cell_;
         Object[] row_;
+        String[] cells_;
         int icol_;
         boolean inCell_;
 
@@ -275,6 +280,9 @@ abstract class SkeletonDOMBuilder extends CustomDOMBuilder {
             String comment = "Invisible data nodes were parsed directly";
             tabledataEl.appendChild( tabledataEl.getOwnerDocument()
                                                 .createComment( comment ) );
+            batcher_ = tableHandler_ != null && TabledataBatcher.isParallel()
+                     ? new TabledataBatcher( decoders_, tableHandler_ )
+                     : null;
             if ( tableHandler_ != null ) {
                 tableHandler_.startTable( tableEl_.getMetadataTable() );
             }
@@ -288,7 +296,12 @@ abstract class SkeletonDOMBuilder extends CustomDOMBuilder {
                 inCell_ = true;
             }
             else if ( "TR".equals( tagName ) ) {
-                row_ = new Object[ ncol_ ];
+                if ( batcher_ != null ) {
+                    cells_ = new String[ ncol_ ];
+                }
+                else {
+                    row_ = new Object[ ncol_ ];
+                }
                 icol_ = 0;
             }
         }
@@ -309,19 +322,31 @@ abstract class SkeletonDOMBuilder extends CustomDOMBuilder {
                                 String qName ) throws SAXException {
             String tagName = getVOTagName( namespaceURI, localName, qName );
             if ( inCell_ && "TD".equals( tagName ) && icol_ < ncol_
-                         && row_ != null ) {
-                row_[ icol_ ] = cell_.length() > 0
-                         ? decoders_[ icol_ ].decodeString( cell_.toString() )
-                         : null;
+                         && ( row_ != null || cells_ != null ) ) {
+                if ( cells_ != null ) {
+                    cells_[ icol_ ] = cell_.length() > 0 ? cell_.toString()
+                                                         : null;
+                }
+                else {
+                    row_[ icol_ ] = cell_.length() > 0
+                        ? decoders_[ icol_ ].decodeString( cell_.toString() )
+                        : null;
+                }
                 icol_++;
                 inCell_ = false;
             }
             else if ( "TR".equals( tagName ) ) {
-                if ( tableHandler_ != null ) {
+                if ( batcher_ != null ) {
+                    batcher_.addRow( cells_ );
+                }
+                else if ( tableHandler_ != null ) {
                     tableHandler_.rowData( row_ );
                 }
             }
             else if (  "TABLEDATA".equals( tagName ) ) {
+                if ( batcher_ != null ) {
+                    batcher_.flush();
+                }
                 defaultHandler_.endElement( namespaceURI, localName, qName );
                 setCustomHandler( basicHandler_ );
                 if ( tableHandler_ != null ) {
@@ -360,8 +385,9 @@ abstract class SkeletonDOMBuilder extends CustomDOMBuilder {
                         throws IOException {
                     InputStream in = new BufferedInputStream( datain );
                     RowSequence rseq =
-                        new BinaryRowSequence( decoders, in, "base64",
-                                               isBinary2 );
+                        BinaryRowSequence
+                       .createRowSequence( decoders, in, "base64",
+                                           isBinary2 );
                     try {
                         while ( rseq.next() ) {
                             tableHandler_.rowData( rseq.getRow() );
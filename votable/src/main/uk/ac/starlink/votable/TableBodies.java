@@ -1,13 +1,24 @@
 package uk.ac.starlink.votable;
 
 import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
+import uk.ac.starlink.fits.BlockMappedInput;
 import uk.ac.starlink.fits.FitsTableBuilder;
 import uk.ac.starlink.table.EmptyRowSequence;
 import uk.ac.starlink.table.RowSequence;
@@ -26,6 +37,9 @@ import uk.ac.starlink.util.DOMUtils;
  */
 class TableBodies {
 
+    private static final Logger logger_ =
+        Logger.getLogger( "uk.ac.starlink.votable" );
+
     /**
      * Abstract superclass for TabularData implementations which only 
      * allow sequential access.
@@ -141,8 +155,287 @@ class TableBodies {
 
         public RowSequence getRowSequence() throws IOException {
             InputStream istrm = new BufferedInputStream( url.openStream() );
-            return new BinaryRowSequence( decoders, istrm, encoding,
-                                          isBinary2 );
+            return BinaryRowSequence
+                  .createRowSequence( decoders, istrm, encoding, isBinary2 );
+        }
+    }
+
+    /**
+     * Returns a TabularData implementation for a BINARY or BINARY2 STREAM
+     * element with an <tt>href</tt> attribute pointing to the data.
+     * If the data is in a local unencoded file, the result provides
+     * random access by use of a row offset index, otherwise it is
+     * sequential.
+     *
+     * @param  decoders  column decoders
+     * @param  url   location of the stream data
+     * @param  encoding  value of the STREAM encoding attribute
+     * @param  isBinary2  true for BINARY2, false for BINARY
+     * @return  new tabular data
+     */
+    public static TabularData createHrefBinaryTabularData( Decoder[] decoders,
+                                                           URL url,
+                                                           String encoding,
+                                                           boolean isBinary2 ) {
+        File file = BinaryRowIndex.getIndexableFile( url, encoding );
+        return file != null
+             ? new IndexedBinaryTabularData( decoders, file, isBinary2 )
+             : new HrefBinaryTabularData( decoders, url, encoding, isBinary2 );
+    }
+
+    /**
+     * Random-access TabularData implementation for an unencoded BINARY
+     * or BINARY2 stream in a local file.
+     * The file is mapped, and rows are located using offsets from
+     * {@link BinaryRowIndex}, which are acquired lazily the first time
+     * they are needed.
+     *
+     * <p>The file is mapped once and the file is closed straight away,
+     * so no file descriptor is held open.  Concurrent reads use
+     * readers from a pool, each with its own views of the shared
+     * mapped buffers.  The pool belongs to this object, so the
+     * mappings are released when it is garbage collected.
+     */
+    static class IndexedBinaryTabularData implements TabularData {
+        private final Decoder[] decoders_;
+        private final Class[] classes_;
+        private final File file_;
+        private final boolean isBinary2_;
+        private final Queue<MappedRowReader> readerPool_;
+        private volatile BinaryRowIndex.RowOffsets offsets_;
+        private ByteBuffer[] bufs_;
+
+        /**
+         * Constructor.
+         *
+         * @param  decoders  column decoders
+         * @param  file  file containing raw stream data
+         * @param  isBinary2  true for BINARY2, false for BINARY
+         */
+        public IndexedBinaryTabularData( Decoder[] decoders, File file,
+                                         boolean isBinary2 ) {
+            decoders_ = decoders;
+            classes_ = getClasses( decoders );
+            file_ = file;
+            isBinary2_ = isBinary2;
+            readerPool_ = new ConcurrentLinkedQueue<MappedRowReader>();
+        }
+
+        public int getColumnCount() {
+            return classes_.length;
+        }
+
+        public Class getContentClass( int icol ) {
+            return classes_[ icol ];
+        }
+
+        public long getRowCount() {
+            try {
+                return getOffsets().getRowCount();
+            }
+            catch ( IOException e ) {
+                logger_.log( Level.WARNING,
+                             "Failed to index binary stream " + file_, e );
+                return -1;
+            }
+        }
+
+        public boolean isRandom() {
+            return true;
+        }
+
+        public RowSequence getRowSequence() throws IOException {
+            InputStream istrm =
+                new BufferedInputStream( new FileInputStream( file_ ) );
+            return BinaryRowSequence
+                  .createRowSequence( decoders_, istrm, null, isBinary2_ );
+        }
+
+        public Object[] getRow( long irow ) throws IOException {
+            long offset = getOffsets().getOffset( irow );
+            MappedRowReader reader = readerPool_.poll();
+            if ( reader == null ) {
+                reader = new MappedRowReader( getBuffers(), decoders_,
+                                              isBinary2_ );
+            }
+            try {
+                return reader.readRow( offset );
+            }
+            finally {
+                readerPool_.offer( reader );
+            }
+        }
+
+        public Object getCell( long irow, int icol ) throws IOException {
+            return getRow( irow )[ icol ];
+        }
+
+        /**
+         * Returns the row offset index, building it if necessary.
+         * Once the index is available no locking is required.
+         *
+         * @return   offset of each row in the file
+         */
+        private BinaryRowIndex.RowOffsets getOffsets() throws IOException {
+            BinaryRowIndex.RowOffsets offsets = offsets_;
+            if ( offsets == null ) {
+                synchronized ( this ) {
+                    offsets = offsets_;
+                    if ( offsets == null ) {
+                        offsets = BinaryRowIndex
+                                 .getRowOffsets( file_, decoders_,
+                                                 isBinary2_ );
+                        offsets_ = offsets;
+                    }
+                }
+            }
+            return offsets;
+        }
+
+        /**
+         * Returns buffers mapping the whole data file in consecutive
+         * blocks, mapping it if necessary.
+         * The file itself is closed once the mapping has been done.
+         *
+         * @return  read-only buffers covering the file contents
+         */
+        private synchronized ByteBuffer[] getBuffers() throws IOException {
+            if ( bufs_ == null ) {
+                RandomAccessFile raf = new RandomAccessFile( file_, "r" );
+                try {
+                    FileChannel chan = raf.getChannel();
+                    long leng = chan.size();
+                    long blockSize = BlockMappedInput.DEFAULT_BLOCKSIZE;
+                    int nblock = (int) ( ( leng + blockSize - 1 ) / blockSize );
+                    ByteBuffer[] bufs = new ByteBuffer[ nblock ];
+                    for ( int ib = 0; ib < nblock; ib++ ) {
+                        long off = ib * blockSize;
+                        bufs[ ib ] =
+                            chan.map( FileChannel.MapMode.READ_ONLY, off,
+                                      Math.min( blockSize, leng - off ) );
+                    }
+                    bufs_ = bufs;
+                }
+                finally {
+                    raf.close();
+                }
+            }
+            return bufs_;
+        }
+    }
+
+    /**
+     * Reads rows from a mapped binary stream file.  Not thread-safe.
+     */
+    private static class MappedRowReader {
+        private final int ncol_;
+        private final BufferInputStream bufIn_;
+        private final BinaryRowSequence.RowReader rowReader_;
+
+        /**
+         * Constructor.
+         *
+         * @param  bufs  buffers mapping the data file;
+         *               they are not modified
+         * @param  decoders  column decoders
+         * @param  isBinary2  true for BINARY2, false for BINARY
+         */
+        MappedRowReader( ByteBuffer[] bufs, Decoder[] decoders,
+                         boolean isBinary2 ) {
+            ncol_ = decoders.length;
+            bufIn_ = new BufferInputStream( bufs );
+            rowReader_ =
+                BinaryRowSequence
+               .createRowReader( decoders, new DataInputStream( bufIn_ ),
+                                 isBinary2 );
+        }
+
+        /**
+         * Reads the row starting at a given file offset.
+         *
+         * @param  offset  offset of row start
+         * @return   row data
+         */
+        Object[] readRow( long offset ) throws IOException {
+            bufIn_.seek( offset );
+            Object[] row = new Object[ ncol_ ];
+            rowReader_.readRow( row );
+            return row;
+        }
+    }
+
+    /**
+     * InputStream reading from private views of a sequence of buffers
+     * which together represent a single run of bytes.
+     * All but the last buffer must be the same size.
+     * The stream is positioned using the {@link #seek} method.
+     */
+    private static class BufferInputStream extends InputStream {
+        private final ByteBuffer[] bufs_;
+        private final long blockSize_;
+        private int ibuf_;
+
+        /**
+         * Constructor.
+         *
+         * @param  bufs  buffers; the supplied objects are not modified
+         */
+        BufferInputStream( ByteBuffer[] bufs ) {
+            bufs_ = new ByteBuffer[ bufs.length ];
+            for ( int ib = 0; ib < bufs.length; ib++ ) {
+                bufs_[ ib ] = bufs[ ib ].duplicate();
+            }
+            blockSize_ = bufs.length > 0 ? bufs[ 0 ].capacity() : 1;
+        }
+
+        /**
+         * Sets the position of this stream.
+         *
+         * @param  pos  offset from the start of the first buffer
+         */
+        void seek( long pos ) {
+            ibuf_ = (int) ( pos / blockSize_ );
+            if ( ibuf_ < bufs_.length ) {
+                bufs_[ ibuf_ ].position( (int) ( pos % blockSize_ ) );
+                for ( int ib = ibuf_ + 1; ib < bufs_.length; ib++ ) {
+                    bufs_[ ib ].position( 0 );
+                }
+            }
+        }
+
+        /**
+         * Returns the current buffer, advancing to the next one if the
+         * current one is exhausted.
+         *
+         * @return   buffer with some bytes remaining, or null at end
+         */
+        private ByteBuffer getBuffer() {
+            while ( ibuf_ < bufs_.length ) {
+                ByteBuffer buf = bufs_[ ibuf_ ];
+                if ( buf.hasRemaining() ) {
+                    return buf;
+                }
+                ibuf_++;
+            }
+            return null;
+        }
+
+        public int read() {
+            ByteBuffer buf = getBuffer();
+            return buf == null ? -1 : buf.get() & 0xff;
+        }
+
+        public int read( byte[] b, int off, int len ) {
+            if ( len == 0 ) {
+                return 0;
+            }
+            ByteBuffer buf = getBuffer();
+            if ( buf == null ) {
+                return -1;
+            }
+            int n = Math.min( len, buf.remaining() );
+            buf.get( b, off, n );
+            return n;
         }
     }
 
@@ -345,16 +345,17 @@ public class TableElement extends VOElement {
         if ( href != null && href.length() > 0 ) {
             URL url = getContextURL( href );
             String encoding = streamEl.getAttribute( "encoding" );
-            return new TableBodies
-                      .HrefBinaryTabularData( decoders, url, encoding,
-                                              isBinary2 );
+            return TableBodies
+                  .createHrefBinaryTabularData( decoders, url, encoding,
+                                                isBinary2 );
         }
         else {
             return new TableBodies.SequentialTabularData( clazzes ) {
                 public RowSequence getRowSequence() throws IOException {
                     InputStream istrm = getTextChildrenStream( streamEl );
-                    return new BinaryRowSequence( decoders, istrm, "base64",
-                                                  isBinary2 );
+                    return BinaryRowSequence
+                          .createRowSequence( decoders, istrm, "base64",
+                                              isBinary2 );
                 }
             };
         }
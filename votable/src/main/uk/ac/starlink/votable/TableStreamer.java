@@ -11,6 +11,7 @@ import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 import org.xml.sax.XMLReader;
+import uk.ac.starlink.table.RowStore;
 import uk.ac.starlink.table.StarTable;
 import uk.ac.starlink.table.TableFormatException;
 import uk.ac.starlink.table.TableSink;
@@ -28,12 +29,15 @@ import uk.ac.starlink.util.StarEntityResolver;
  *
  * @author   Mark Taylor
  */
-class TableStreamer extends TableContentHandler implements TableHandler {
+class TableStreamer extends TableContentHandler
+                    implements VOTableParser.RandomTableHandler {
 
     private int skipTables_;
     private final TableSink sink_;
     private final Namespacing namespacing_;
     private boolean isVotable_; 
+    private boolean acceptRandom_;
+    private StarTable randomTable_;
     private static Logger logger_ =
         Logger.getLogger( "uk.ac.starlink.votable" );
 
@@ -105,6 +109,43 @@ class TableStreamer extends TableContentHandler implements TableHandler {
         throw new SuccessfulCompletionException();
     }
 
+    public boolean acceptRandomTable( StarTable table ) throws SAXException {
+        if ( acceptRandom_ ) {
+            randomTable_ = table;
+            throw new SuccessfulCompletionException();
+        }
+        else {
+            return false;
+        }
+    }
+
+    /**
+     * Acquires a single TABLE element from a VOTable document as a
+     * StarTable.  Normally the data is streamed into the supplied
+     * row store, and the row store's table is returned.
+     * However, if the table data is an href-referenced binary stream
+     * which can be indexed, a random-access table reading directly from
+     * the referenced file is returned instead, and the row store is
+     * not used.
+     *
+     * @param  saxsrc  source of the VOTable document
+     * @param  rowStore   storage into which the table data may be streamed
+     * @param  itable index of the table in the document to be read
+     *                (0-based)
+     * @param  strict whether to enforce strict reading of the VOTable standard
+     * @return   table
+     */
+    public static StarTable readStarTable( InputSource saxsrc,
+                                           RowStore rowStore, int itable,
+                                           boolean strict )
+            throws IOException, SAXException {
+        TableStreamer streamer = new TableStreamer( rowStore, itable, strict );
+        streamer.acceptRandom_ = true;
+        parse( streamer, saxsrc );
+        return streamer.randomTable_ != null ? streamer.randomTable_
+                                             : rowStore.getStarTable();
+    }
+
     /**
      * Acquires the data from a single TABLE element in a VOTable document,
      * writing the result to a sink.  The rest of the SAX stream is ignored.
@@ -122,7 +163,17 @@ class TableStreamer extends TableContentHandler implements TableHandler {
 
         /* Construct a table handler which can pull out data from one
          * table as required. */
-        TableStreamer streamer = new TableStreamer( sink, itable, strict );
+        parse( new TableStreamer( sink, itable, strict ), saxsrc );
+    }
+
+    /**
+     * Parses a SAX source using a given streamer.
+     *
+     * @param  streamer  streamer
+     * @param  saxsrc  source of the VOTable document
+     */
+    private static void parse( TableStreamer streamer, InputSource saxsrc )
+            throws IOException, SAXException {
 
         /* Get a SAX parser. */
         XMLReader parser;
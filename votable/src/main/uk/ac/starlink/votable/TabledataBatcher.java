@@ -0,0 +1,215 @@
+package uk.ac.starlink.votable;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+import org.xml.sax.SAXException;
+import uk.ac.starlink.util.DaemonThreadFactory;
+import uk.ac.starlink.util.FutureUtils;
+
+/**
+ * Decodes the cell text of TABLEDATA rows in parallel.
+ * Rows are accumulated as arrays of undecoded strings into batches.
+ * Each full batch is decoded into typed values by a pooled thread,
+ * and decoded rows are passed to a {@link TableHandler} in their
+ * original order on the thread that supplied them.
+ * This means that the SAX parser thread only has to collect cell text,
+ * while the work of parsing that text into values can be spread
+ * between other processors.
+ *
+ * <p>The {@link Decoder#decodeString} methods on which this relies
+ * do not modify decoder state, so a single set of decoders may be
+ * used from multiple threads.
+ *
+ * @author   Mark Taylor
+ * @since    17 Oct 2026
+ */
+class TabledataBatcher {
+
+    private final Decoder[] decoders_;
+    private final TableHandler handler_;
+    private final int maxPending_;
+    private final LinkedList<Future<Object[][]>> pending_;
+    private String[][] batch_;
+    private int nrow_;
+
+    /**
+     * Name of system property which controls whether TABLEDATA cells
+     * are decoded in parallel.
+     * If set to "true" or "false" this determines whether
+     * {@link #isParallel} returns true; if unset, parallel decoding is
+     * used only when more than one processor is available.
+     */
+    public static final String PARALLEL_PROP = "votable.tabledata.parallel";
+
+    /** Number of rows in each batch. */
+    private static final int BATCH_ROWS = 2048;
+
+    private static final int NTHREAD =
+        Runtime.getRuntime().availableProcessors();
+    private static ExecutorService executor_;
+    private static final Logger logger_ =
+        Logger.getLogger( "uk.ac.starlink.votable" );
+
+    /**
+     * Constructor.
+     *
+     * @param  decoders  per-column decoders
+     * @param  handler   destination for decoded rows
+     */
+    public TabledataBatcher( Decoder[] decoders, TableHandler handler ) {
+        decoders_ = decoders;
+        handler_ = handler;
+        maxPending_ = 2 * NTHREAD;
+        pending_ = new LinkedList<Future<Object[][]>>();
+        batch_ = new String[ BATCH_ROWS ][];
+    }
+
+    /**
+     * Adds a row of undecoded cell text.  Decoded rows, possibly
+     * including earlier ones, may be passed to the table handler
+     * during this call.
+     *
+     * @param  cells  array with one element for each column giving the
+     *                TD text content, or null for empty cells
+     */
+    public void addRow( String[] cells ) throws SAXException {
+        batch_[ nrow_++ ] = cells;
+        if ( nrow_ == BATCH_ROWS ) {
+            submitBatch();
+            while ( pending_.size() > maxPending_ ||
+                    ( pending_.size() > 0 && pending_.getFirst().isDone() ) ) {
+                deliver( pending_.removeFirst() );
+            }
+        }
+    }
+
+    /**
+     * Decodes all remaining rows and passes them to the table handler.
+     * Must be called once all rows have been added.
+     */
+    public void flush() throws SAXException {
+        if ( nrow_ > 0 ) {
+            submitBatch();
+        }
+        while ( pending_.size() > 0 ) {
+            deliver( pending_.removeFirst() );
+        }
+    }
+
+    /**
+     * Submits the current batch for decoding and starts a new one.
+     */
+    private void submitBatch() {
+        final String[][] batch = batch_;
+        final int nrow = nrow_;
+        pending_.add( getExecutor().submit( new Callable<Object[][]>() {
+            public Object[][] call() {
+                return decodeRows( batch, nrow );
+            }
+        } ) );
+        batch_ = new String[ BATCH_ROWS ][];
+        nrow_ = 0;
+    }
+
+    /**
+     * Waits for a batch to be decoded, and passes its rows to the
+     * table handler.
+     *
+     * @param  future  future whose value is a decoded batch
+     */
+    private void deliver( Future<Object[][]> future ) throws SAXException {
+        Object[][] rows;
+        boolean done = false;
+        try {
+            rows = FutureUtils.getResult( future );
+            done = true;
+        }
+        catch ( IOException e ) {
+            throw new SAXException( e.getMessage(), e );
+        }
+        finally {
+            if ( ! done ) {
+                cancelPending();
+            }
+        }
+        for ( int ir = 0; ir < rows.length; ir++ ) {
+            handler_.rowData( rows[ ir ] );
+        }
+    }
+
+    /**
+     * Abandons all batches that have not yet been delivered.
+     */
+    private void cancelPending() {
+        for ( Future<Object[][]> future : pending_ ) {
+            future.cancel( true );
+        }
+        pending_.clear();
+    }
+
+    /**
+     * Decodes the cells of a batch of rows.
+     *
+     * @param  batch  array of undecoded rows
+     * @param  nrow   number of rows of <code>batch</code> to use
+     * @return  <code>nrow</code>-element array of decoded rows
+     */
+    private Object[][] decodeRows( String[][] batch, int nrow ) {
+        int ncol = decoders_.length;
+        Object[][] rows = new Object[ nrow ][];
+        for ( int ir = 0; ir < nrow; ir++ ) {
+            String[] cells = batch[ ir ];
+            Object[] row = new Object[ ncol ];
+            for ( int icol = 0; icol < ncol; icol++ ) {
+                String txt = cells[ icol ];
+                row[ icol ] = txt == null
+                            ? null
+                            : decoders_[ icol ].decodeString( txt );
+            }
+            rows[ ir ] = row;
+        }
+        return rows;
+    }
+
+    /**
+     * Indicates whether TABLEDATA cells should be decoded in parallel
+     * using this class.
+     * This is determined by the {@link #PARALLEL_PROP} system property
+     * if it is set, otherwise by whether more than one processor
+     * is available.
+     *
+     * @return   true iff parallel decoding is to be used
+     */
+    public static boolean isParallel() {
+        try {
+            String parVal = System.getProperty( PARALLEL_PROP );
+            if ( parVal != null && parVal.trim().length() > 0 ) {
+                return Boolean.valueOf( parVal.trim() ).booleanValue();
+            }
+        }
+        catch ( SecurityException e ) {
+            logger_.info( "Can't read " + PARALLEL_PROP + " property" );
+        }
+        return NTHREAD > 1;
+    }
+
+    /**
+     * Returns the executor service used for decoding.
+     * Its threads are daemons, and expire when idle.
+     *
+     * @return  executor
+     */
+    private static synchronized ExecutorService getExecutor() {
+        if ( executor_ == null ) {
+            executor_ = Executors
+                       .newCachedThreadPool( new DaemonThreadFactory(
+                                                 "TABLEDATA decoder" ) );
+        }
+        return executor_;
+    }
+}
@@ -106,19 +106,18 @@ public class VOTableBuilder implements TableBuilder, MultiTableBuilder {
             }
         }
 
-        /* Stream the result to a new table store. */
+        /* Stream the result to a new table store, unless the data
+         * can be read directly. */
         final RowStore rowStore = storagePolicy.makeRowStore();
         InputSource saxSrc = new InputSource( datsrc.getInputStream() );
         saxSrc.setSystemId( datsrc.getSystemId() );
         try {
-            TableStreamer.streamStarTable( saxSrc, rowStore, itab, strict_ );
+            return TableStreamer
+                  .readStarTable( saxSrc, rowStore, itab, strict_ );
         }
         catch ( SAXException e ) {
             throw new TableFormatException( e.getMessage(), e );
         }
-
-        /* Return the resulting table. */
-        return rowStore.getStarTable();
     }
 
     public TableSequence makeStarTables( DataSource datsrc,
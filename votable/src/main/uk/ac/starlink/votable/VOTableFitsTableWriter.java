@@ -72,7 +72,7 @@ public abstract class VOTableFitsTableWriter extends AbstractFitsTableWriter {
         }
 
         /* Prepare destination stream. */
-        DataOutputStream dout = new DataOutputStream( out );
+        DataOutputStream dout = toDataOutputStream( out );
         out = null;
 
         /* Write the primary HDU. */
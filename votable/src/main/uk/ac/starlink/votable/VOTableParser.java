@@ -1,5 +1,6 @@
 package uk.ac.starlink.votable;
 
+import java.io.File;
 import java.net.URL;
 import java.io.IOException;
 import java.io.InputStream;
@@ -8,6 +9,7 @@ import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 import uk.ac.starlink.fits.FitsTableBuilder;
 import uk.ac.starlink.table.RowSequence;
+import uk.ac.starlink.table.StarTable;
 import uk.ac.starlink.table.TableSink;
 
 /**
@@ -58,14 +60,37 @@ class VOTableParser extends SkeletonDOMBuilder {
         TableHandler tableHandler = getTableHandler();
         TableElement tableEl = getTableElement();
         if ( getReadHrefTables() && tableHandler != null && tableEl != null ) {
+            Decoder[] decoders = getDecoders( tableEl.getFields() );
+            String encoding = getAttribute( atts, "encoding" );
+
+            /* If the data is in a local file that can be indexed, offer
+             * the handler a random-access table instead of streaming it. */
+            File file = BinaryRowIndex.getIndexableFile( url, encoding );
+            if ( file != null &&
+                 tableHandler instanceof RandomTableHandler ) {
+                tableEl.setData( new TableBodies
+                                    .IndexedBinaryTabularData( decoders, file,
+                                                               isBinary2 ) );
+                try {
+                    if ( ((RandomTableHandler) tableHandler)
+                        .acceptRandomTable( new VOStarTable( tableEl ) ) ) {
+                        return;
+                    }
+                }
+                catch ( IOException e ) {
+                    throw (SAXException)
+                          new SAXParseException( e.getMessage(), getLocator(),
+                                                 e )
+                         .initCause( e );
+                }
+            }
             InputStream in = null;
             try {
                 in = url.openStream();
                 tableHandler.startTable( tableEl.getMetadataTable() );
-                Decoder[] decoders = getDecoders( tableEl.getFields() );
-                String encoding = getAttribute( atts, "encoding" );
                 RowSequence rseq =
-                    new BinaryRowSequence( decoders, in, encoding, isBinary2 );
+                    BinaryRowSequence
+                   .createRowSequence( decoders, in, encoding, isBinary2 );
                 try {
                     while ( rseq.next() ) {
                         tableHandler.rowData( rseq.getRow() );
@@ -136,4 +161,25 @@ class VOTableParser extends SkeletonDOMBuilder {
             }
         }
     }
+
+    /**
+     * Extension of the TableHandler interface for handlers which can
+     * accept a whole random-access table in place of the
+     * <code>startTable</code>/<code>rowData</code>/<code>endTable</code>
+     * sequence.  This is currently offered only for href-referenced
+     * binary streams which can be indexed.
+     */
+    interface RandomTableHandler extends TableHandler {
+
+        /**
+         * Offers a random-access table to this handler.
+         * If it is accepted, no other table events will be messaged
+         * for the current table.
+         *
+         * @param  table  random-access table
+         * @return  true if the table is accepted, false if its rows
+         *          should be streamed as usual
+         */
+        boolean acceptRandomTable( StarTable table ) throws SAXException;
+    }
 }
@@ -0,0 +1,161 @@
+package uk.ac.starlink.votable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import uk.ac.starlink.table.StarTable;
+import uk.ac.starlink.table.StoragePolicy;
+import uk.ac.starlink.util.FileDataSource;
+
+public class BinaryRowIndexTest extends TableTestCase {
+
+    public BinaryRowIndexTest( String name ) {
+        super( name );
+        Logger.getLogger( "uk.ac.starlink.votable" ).setLevel( Level.WARNING );
+        Logger.getLogger( "uk.ac.starlink.fits" ).setLevel( Level.WARNING );
+    }
+
+    public void testIndex() throws IOException {
+        File dir = File.createTempFile( "idx", "" );
+        dir.delete();
+        dir.mkdir();
+        System.setProperty( BinaryRowIndex.INDEXDIR_PROP, dir.getPath() );
+        try {
+            StarTable t0 = AutoStarTable.getDemoTable( 500 );
+            exerciseIndex( t0, DataFormat.BINARY2, dir );
+            exerciseIndex( t0, DataFormat.BINARY, dir );
+        }
+        finally {
+            System.clearProperty( BinaryRowIndex.INDEXDIR_PROP );
+            deleteFiles( dir );
+            dir.delete();
+        }
+    }
+
+    private void exerciseIndex( StarTable t0, DataFormat format, File dir )
+            throws IOException {
+        File file = new File( dir, "t.vot" );
+        OutputStream out = new FileOutputStream( file );
+        new VOTableWriter( format, false ).writeStarTable( t0, out, file );
+        out.close();
+        File dataFile = new File( dir, "t-data.bin" );
+        assertTrue( dataFile.exists() );
+
+        /* Read without indexing for reference. */
+        StarTable tref;
+        System.setProperty( BinaryRowIndex.INDEX_PROP, "false" );
+        try {
+            tref = readTable( file );
+        }
+        finally {
+            System.clearProperty( BinaryRowIndex.INDEX_PROP );
+        }
+        assertTrue( ! ( tref instanceof VOStarTable ) );
+        assertEquals( 0, countIndexFiles( dir ) );
+
+        /* First read builds an index, second read uses the cached one.
+         * The index file's timestamp is wound back after it is written,
+         * so that it can be seen whether it is rewritten. */
+        long idxTime = 0;
+        for ( int i = 0; i < 2; i++ ) {
+            StarTable t1 = readTable( file );
+            assertTrue( t1 instanceof VOStarTable );
+            assertTrue( t1.isRandom() );
+            assertEquals( t0.getRowCount(), t1.getRowCount() );
+            assertRowSequenceEquals( tref, t1 );
+            checkRandomRows( tref, t1 );
+            assertEquals( 1, countIndexFiles( dir ) );
+            if ( i == 0 ) {
+                File idxFile = getIndexFile( dir );
+                idxTime = idxFile.lastModified() - 3600 * 1000;
+                assertTrue( idxFile.setLastModified( idxTime ) );
+            }
+            else {
+                assertEquals( idxTime, getIndexFile( dir ).lastModified() );
+            }
+        }
+
+        /* Index is not used if data file changes. */
+        assertTrue( dataFile.setLastModified( dataFile.lastModified()
+                                            - 60 * 1000 ) );
+        StarTable t2 = readTable( file );
+        assertEquals( t0.getRowCount(), t2.getRowCount() );
+        checkRandomRows( tref, t2 );
+        assertEquals( 1, countIndexFiles( dir ) );
+        assertTrue( getIndexFile( dir ).lastModified() != idxTime );
+        deleteFiles( dir );
+    }
+
+    public void testFieldSignature() {
+        long[] scalar = new long[ 0 ];
+        String sigInt = BinaryRowIndex.getFieldSignature( new Decoder[] {
+            Decoder.makeDecoder( "int", scalar, null ),
+        } );
+        String sigFloat = BinaryRowIndex.getFieldSignature( new Decoder[] {
+            Decoder.makeDecoder( "float", scalar, null ),
+        } );
+        String sigArray = BinaryRowIndex.getFieldSignature( new Decoder[] {
+            Decoder.makeDecoder( "int", new long[] { 2 }, null ),
+        } );
+        String sigVar = BinaryRowIndex.getFieldSignature( new Decoder[] {
+            Decoder.makeDecoder( "int", new long[] { -1 }, null ),
+        } );
+        assertEquals( sigInt, BinaryRowIndex.getFieldSignature( new Decoder[] {
+            Decoder.makeDecoder( "int", scalar, null ),
+        } ) );
+        assertFalse( sigInt.equals( sigFloat ) );
+        assertFalse( sigInt.equals( sigArray ) );
+        assertFalse( sigArray.equals( sigVar ) );
+    }
+
+    private static StarTable readTable( File file ) throws IOException {
+        return new VOTableBuilder()
+              .makeStarTable( new FileDataSource( file ), false,
+                              StoragePolicy.PREFER_MEMORY );
+    }
+
+    private void checkRandomRows( StarTable tref, StarTable table )
+            throws IOException {
+        int nrow = (int) tref.getRowCount();
+        for ( int i = nrow - 1; i >= 0; i -= 7 ) {
+            Object[] row = table.getRow( i );
+            for ( int ic = 0; ic < row.length; ic++ ) {
+                Object cell = tref.getCell( i, ic );
+                assertScalarOrArrayEquals( cell, row[ ic ] );
+                assertScalarOrArrayEquals( cell, table.getCell( i, ic ) );
+            }
+        }
+    }
+
+    private static void deleteFiles( File dir ) {
+        File[] files = dir.listFiles();
+        for ( int i = 0; i < files.length; i++ ) {
+            files[ i ].delete();
+        }
+    }
+
+    private static File getIndexFile( File dir ) {
+        File[] files = dir.listFiles();
+        for ( int i = 0; i < files.length; i++ ) {
+            if ( files[ i ].getName().endsWith( ".rowidx" ) ) {
+                return files[ i ];
+            }
+        }
+        fail();
+        return null;
+    }
+
+    private static int countIndexFiles( File dir ) {
+        int n = 0;
+        String[] names = dir.list();
+        for ( int i = 0; i < names.length; i++ ) {
+            if ( names[ i ].endsWith( ".rowidx" ) ) {
+                n++;
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,169 @@
+package uk.ac.starlink.votable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import junit.framework.TestCase;
+import uk.ac.starlink.table.RowSequence;
+import uk.ac.starlink.util.Base64OutputStream;
+
+public class BinaryRowSequenceTest extends TestCase {
+
+    private static final int NROW = 20000;
+
+    public BinaryRowSequenceTest( String name ) {
+        super( name );
+    }
+
+    public void testPipeline() throws IOException {
+        for ( int ib = 0; ib < 2; ib++ ) {
+            boolean isBinary2 = ib == 1;
+            byte[] raw = createData( isBinary2 );
+            checkStream( raw, null, isBinary2, NROW );
+            checkStream( gzip( raw ), "gzip", isBinary2, NROW );
+            checkStream( base64( raw ), "base64", isBinary2, NROW );
+        }
+    }
+
+    public void testTruncated() throws IOException {
+        byte[] raw = createData( true );
+        byte[] b64 = base64( raw );
+        for ( int i = 1; i < 8; i++ ) {
+            byte[] trunc = new byte[ b64.length - i * 1001 ];
+            System.arraycopy( b64, 0, trunc, 0, trunc.length );
+            checkStream( trunc, "base64", true, -1 );
+        }
+        byte[] bad = (byte[]) b64.clone();
+        bad[ bad.length / 2 ] = (byte) '=';
+        checkStream( bad, "base64", true, -1 );
+    }
+
+    public void testAbandoned() throws Exception {
+        RowSequence rseq =
+            new PipelinedBinaryRowSequence( createDecoders(),
+                                            new ByteArrayInputStream(
+                                                createData( false ) ),
+                                            null, false );
+        assertTrue( rseq.next() );
+        assertTrue( countPipelineThreads() > 0 );
+        rseq = null;
+        for ( int i = 0; i < 100 && countPipelineThreads() > 0; i++ ) {
+            System.gc();
+            Thread.sleep( 100 );
+        }
+        assertEquals( 0, countPipelineThreads() );
+    }
+
+    private static int countPipelineThreads() {
+        int n = 0;
+        for ( Thread th : Thread.getAllStackTraces().keySet() ) {
+            if ( th.isAlive() && th.getName().startsWith( "VOTable binary" ) ) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private void checkStream( byte[] data, String encoding, boolean isBinary2,
+                              int nrow )
+            throws IOException {
+        List<Object> seqResult =
+            readRows( new BinaryRowSequence( createDecoders(),
+                                             new ByteArrayInputStream( data ),
+                                             encoding, isBinary2 ) );
+        List<Object> pipeResult =
+            readRows( new PipelinedBinaryRowSequence(
+                              createDecoders(),
+                              new ByteArrayInputStream( data ),
+                              encoding, isBinary2 ) );
+        if ( nrow >= 0 ) {
+            assertEquals( nrow, seqResult.size() );
+        }
+        assertEquals( seqResult.size(), pipeResult.size() );
+        for ( int i = 0; i < seqResult.size(); i++ ) {
+            Object s = seqResult.get( i );
+            Object p = pipeResult.get( i );
+            if ( s instanceof Object[] ) {
+                assertTrue( Arrays.equals( (Object[]) s, (Object[]) p ) );
+            }
+            else {
+                assertEquals( s, p );
+            }
+        }
+    }
+
+    /**
+     * Reads all the rows from a sequence.  If an error is encountered,
+     * the final element of the result is the error's class.
+     */
+    private static List<Object> readRows( RowSequence rseq ) {
+        List<Object> list = new ArrayList<Object>();
+        try {
+            while ( rseq.next() ) {
+                list.add( rseq.getRow().clone() );
+            }
+        }
+        catch ( IOException e ) {
+            list.add( e.getClass() );
+        }
+        finally {
+            try {
+                rseq.close();
+            }
+            catch ( IOException e ) {
+                list.add( e.getClass() );
+            }
+        }
+        return list;
+    }
+
+    private static Decoder[] createDecoders() {
+        return new Decoder[] {
+            Decoder.makeDecoder( "int", new long[ 0 ], null ),
+            Decoder.makeDecoder( "char", new long[] { -1 }, null ),
+            Decoder.makeDecoder( "double", new long[ 0 ], null ),
+        };
+    }
+
+    private static byte[] createData( boolean isBinary2 ) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream( bout );
+        boolean[] flags = new boolean[ 3 ];
+        for ( int i = 0; i < NROW; i++ ) {
+            String txt = "row " + i;
+            if ( isBinary2 ) {
+                flags[ 1 ] = i % 5 == 0;
+                FlagIO.writeFlags( out, flags );
+            }
+            out.writeInt( i );
+            out.writeInt( txt.length() );
+            out.writeBytes( txt );
+            out.writeDouble( Math.sqrt( i ) );
+        }
+        out.close();
+        return bout.toByteArray();
+    }
+
+    private static byte[] gzip( byte[] data ) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        OutputStream out = new GZIPOutputStream( bout );
+        out.write( data );
+        out.close();
+        return bout.toByteArray();
+    }
+
+    private static byte[] base64( byte[] data ) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        Base64OutputStream out = new Base64OutputStream( bout, 16 );
+        out.write( data );
+        out.endBase64();
+        out.close();
+        return bout.toByteArray();
+    }
+}
@@ -0,0 +1,93 @@
+package uk.ac.starlink.votable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.TestCase;
+import uk.ac.starlink.table.StarTable;
+import uk.ac.starlink.table.TableSink;
+
+public class TabledataBatcherTest extends TestCase {
+
+    public TabledataBatcherTest( String name ) {
+        super( name );
+    }
+
+    public void testBatches() throws IOException {
+        int[] nrows = new int[] { 0, 1, 2047, 2048, 2049, 50001 };
+        for ( int i = 0; i < nrows.length; i++ ) {
+            byte[] doc = createDocument( nrows[ i ] );
+            List<Object[]> seqRows = readRows( doc, false );
+            List<Object[]> parRows = readRows( doc, true );
+            assertEquals( nrows[ i ], seqRows.size() );
+            assertEquals( seqRows.size(), parRows.size() );
+            for ( int ir = 0; ir < seqRows.size(); ir++ ) {
+                Object[] seqRow = seqRows.get( ir );
+                Object[] parRow = parRows.get( ir );
+                assertEquals( 4, parRow.length );
+                assertEquals( seqRow[ 0 ], parRow[ 0 ] );
+                assertEquals( seqRow[ 1 ], parRow[ 1 ] );
+                assertTrue( Arrays.equals( (int[]) seqRow[ 2 ],
+                                           (int[]) parRow[ 2 ] ) );
+                assertEquals( seqRow[ 3 ], parRow[ 3 ] );
+            }
+            if ( nrows[ i ] > 3 ) {
+                assertNull( parRows.get( 3 )[ 1 ] );
+                assertNull( parRows.get( 1 )[ 3 ] );
+                assertEquals( new Long( 2 ), parRows.get( 2 )[ 0 ] );
+            }
+        }
+    }
+
+    private static List<Object[]> readRows( byte[] doc, boolean isParallel )
+            throws IOException {
+        String prop = TabledataBatcher.PARALLEL_PROP;
+        System.setProperty( prop, Boolean.toString( isParallel ) );
+        try {
+            final List<Object[]> rows = new ArrayList<Object[]>();
+            TableSink sink = new TableSink() {
+                public void acceptMetadata( StarTable meta ) {
+                }
+                public void acceptRow( Object[] row ) {
+                    rows.add( row );
+                }
+                public void endRows() {
+                }
+            };
+            new VOTableBuilder()
+               .streamStarTable( new ByteArrayInputStream( doc ), sink, null );
+            return rows;
+        }
+        finally {
+            System.clearProperty( prop );
+        }
+    }
+
+    private static byte[] createDocument( int nrow ) {
+        StringBuffer sbuf = new StringBuffer()
+            .append( "<VOTABLE><RESOURCE><TABLE>" )
+            .append( "<FIELD name='id' datatype='long'/>" )
+            .append( "<FIELD name='x' datatype='double'/>" )
+            .append( "<FIELD name='v' datatype='int' arraysize='2'/>" )
+            .append( "<FIELD name='s' datatype='char' arraysize='*'/>" )
+            .append( "<DATA><TABLEDATA>\n" );
+        for ( int i = 0; i < nrow; i++ ) {
+            sbuf.append( "<TR>" )
+                .append( "<TD>" ).append( i ).append( "</TD>" )
+                .append( "<TD>" ).append( i % 3 == 0 ? "" : "" + i * 0.25 )
+                .append( "</TD>" )
+                .append( "<TD>" ).append( i ).append( " " ).append( -i )
+                .append( "</TD>" );
+
+            /* Omit the final cell in some rows. */
+            if ( i % 2 == 0 ) {
+                sbuf.append( "<TD>r" ).append( i ).append( "</TD>" );
+            }
+            sbuf.append( "</TR>\n" );
+        }
+        sbuf.append( "</TABLEDATA></DATA></TABLE></RESOURCE></VOTABLE>" );
+        return sbuf.toString().getBytes();
+    }
+}
@@ -0,0 +1,145 @@
+package uk.ac.starlink.votable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Random;
+import uk.ac.starlink.table.StarTable;
+import uk.ac.starlink.table.TableSink;
+
+/**
+ * Benchmark comparing TABLEDATA parsing with cell decoding on the
+ * SAX parser thread against parallel decoding by {@link TabledataBatcher}.
+ * This is not a JUnit test, since it needs a lot of time and disk space.
+ * It is run from its main() method, with row counts as arguments, e.g.
+ * <pre>
+ *    java uk.ac.starlink.votable.TabledataTrial 1000000 10000000
+ * </pre>
+ */
+public class TabledataTrial {
+
+    public static void main( String[] args ) throws IOException {
+        if ( args.length == 0 ) {
+            args = new String[] { "10000000" };
+        }
+        for ( int ia = 0; ia < args.length; ia++ ) {
+            int nrow = Integer.parseInt( args[ ia ] );
+            File file = File.createTempFile( "tabledata", ".vot" );
+            file.deleteOnExit();
+            long t0 = System.currentTimeMillis();
+            writeDocument( file, nrow );
+            System.out.println( nrow + " rows, " + file.length() + " bytes" );
+            report( "write", t0 );
+            long seqSum = timeRead( file, false );
+            long parSum = timeRead( file, true );
+            if ( seqSum != parSum ) {
+                throw new AssertionError( "Results differ" );
+            }
+            file.delete();
+        }
+    }
+
+    private static long timeRead( File file, boolean isParallel )
+            throws IOException {
+        String prop = TabledataBatcher.PARALLEL_PROP;
+        String oldVal = System.getProperty( prop );
+        System.setProperty( prop, Boolean.toString( isParallel ) );
+        try {
+            InputStream in =
+                new BufferedInputStream( new FileInputStream( file ) );
+            ChecksumSink sink = new ChecksumSink();
+            long t0 = System.currentTimeMillis();
+            try {
+                new VOTableBuilder().streamStarTable( in, sink, null );
+            }
+            finally {
+                in.close();
+            }
+            report( isParallel
+                        ? "parallel ("
+                          + Runtime.getRuntime().availableProcessors()
+                          + " processors)"
+                        : "sequential",
+                    t0 );
+            return sink.sum_;
+        }
+        finally {
+            if ( oldVal == null ) {
+                System.clearProperty( prop );
+            }
+            else {
+                System.setProperty( prop, oldVal );
+            }
+        }
+    }
+
+    private static void report( String label, long t0 ) {
+        System.out.println( "    " + label + ": "
+                          + ( System.currentTimeMillis() - t0 ) + "ms" );
+    }
+
+    private static void writeDocument( File file, int nrow )
+            throws IOException {
+        Random rnd = new Random( 2345678L );
+        Writer out =
+            new BufferedWriter( new OutputStreamWriter(
+                                    new FileOutputStream( file ), "UTF-8" ) );
+        out.write( "<?xml version='1.0'?>\n"
+                 + "<VOTABLE version='1.3'"
+                 + " xmlns='http://www.ivoa.net/xml/VOTable/v1.3'>\n"
+                 + "<RESOURCE>\n"
+                 + "<TABLE nrows='" + nrow + "'>\n"
+                 + "<FIELD name='id' datatype='long'/>\n"
+                 + "<FIELD name='ra' datatype='double'/>\n"
+                 + "<FIELD name='dec' datatype='double'/>\n"
+                 + "<FIELD name='mag' datatype='float'/>\n"
+                 + "<FIELD name='flags' datatype='short' arraysize='3'/>\n"
+                 + "<FIELD name='name' datatype='char' arraysize='*'/>\n"
+                 + "<DATA><TABLEDATA>\n" );
+        for ( int i = 0; i < nrow; i++ ) {
+            String mag = rnd.nextInt( 20 ) == 0
+                       ? ""
+                       : Float.toString( (float) ( 10 + rnd.nextGaussian() ) );
+            out.write( "<TR><TD>" + i + "</TD>"
+                     + "<TD>" + rnd.nextDouble() * 360 + "</TD>"
+                     + "<TD>" + ( rnd.nextDouble() * 180 - 90 ) + "</TD>"
+                     + "<TD>" + mag + "</TD>"
+                     + "<TD>" + rnd.nextInt( 100 ) + " " + rnd.nextInt( 100 )
+                     + " " + rnd.nextInt( 100 ) + "</TD>"
+                     + "<TD>src-" + Integer.toHexString( i ) + "</TD></TR>\n" );
+        }
+        out.write( "</TABLEDATA></DATA>\n"
+                 + "</TABLE>\n"
+                 + "</RESOURCE>\n"
+                 + "</VOTABLE>\n" );
+        out.close();
+    }
+
+    /**
+     * Sink which accumulates an order-dependent checksum of cell values.
+     */
+    private static class ChecksumSink implements TableSink {
+        long sum_;
+        public void acceptMetadata( StarTable meta ) {
+        }
+        public void acceptRow( Object[] row ) {
+            long h = 0;
+            for ( int ic = 0; ic < row.length; ic++ ) {
+                Object cell = row[ ic ];
+                h = 31 * h + ( cell instanceof short[]
+                               ? Arrays.hashCode( (short[]) cell )
+                               : ( cell == null ? 0 : cell.hashCode() ) );
+            }
+            sum_ = 31 * sum_ + h;
+        }
+        public void endRows() {
+        }
+    }
+}